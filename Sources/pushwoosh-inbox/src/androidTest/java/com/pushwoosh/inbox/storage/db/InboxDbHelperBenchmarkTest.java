@@ -0,0 +1,127 @@
+package com.pushwoosh.inbox.storage.db;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.pushwoosh.inbox.data.InboxMessageType;
+import com.pushwoosh.inbox.internal.data.InboxMessageInternal;
+import com.pushwoosh.inbox.internal.data.InboxMessageSource;
+import com.pushwoosh.inbox.internal.data.InboxMessageStatus;
+import com.pushwoosh.inbox.storage.data.MergeResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-device benchmarks of the inbox database, results go to logcat under the {@code InboxBenchmark} tag.
+ * <ul>
+ *   <li>page-load latency: one 20-message page of a 1000-message inbox, with the helper closed after
+ *   every operation ("reopen", the former behaviour) and with the persistent connection;</li>
+ *   <li>merge time of a 5000-message server list into 5000 local messages.</li>
+ * </ul>
+ */
+@RunWith(AndroidJUnit4.class)
+public class InboxDbHelperBenchmarkTest {
+	private static final String TAG = "InboxBenchmark";
+	private static final String DB_NAME = "PwInbox.db";
+	private static final int MESSAGES = 1000;
+	private static final int PAGE_SIZE = 20;
+	private static final int PAGE_LOADS = 100;
+	private static final int MERGE_SIZE = 5000;
+
+	private Context context;
+	private InboxDbHelper helper;
+
+	@Before
+	public void setUp() {
+		context = ApplicationProvider.getApplicationContext();
+		context.deleteDatabase(DB_NAME);
+		helper = new InboxDbHelper(context);
+		helper.createOrUpdate(messages(0, MESSAGES), true);
+	}
+
+	@After
+	public void tearDown() {
+		helper.close();
+		context.deleteDatabase(DB_NAME);
+	}
+
+	private static List<InboxMessageInternal> messages(int from, int count) {
+		long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+		List<InboxMessageInternal> messages = new ArrayList<>(count);
+		for (int i = from; i < from + count; i++) {
+			messages.add(new InboxMessageInternal.Builder()
+					.setId("inbox-" + i)
+					.setOrder(i)
+					.setSendDate(now - i)
+					.setExpiredDate(now + TimeUnit.DAYS.toSeconds(30))
+					.setTitle("Message " + i)
+					.setMessage("Body of inbox message number " + i)
+					.setHash("hash-" + i)
+					.setInboxMessageType(InboxMessageType.PLAIN)
+					.setActionParams("{}")
+					.setInboxMessageStatus(InboxMessageStatus.DELIVERED)
+					.setSource(InboxMessageSource.SERVICE)
+					.build());
+		}
+		return messages;
+	}
+
+	private void run(boolean reopen) {
+		Collection<InboxMessageStatus> statuses = InboxMessageStatus.getActualCodes();
+		long[] nanos = new long[PAGE_LOADS];
+		for (int i = 0; i < PAGE_LOADS; i++) {
+			long start = System.nanoTime();
+			Collection<InboxMessageInternal> page =
+					helper.getActualMessagesWithStatus(statuses, MESSAGES - (i % 10) * PAGE_SIZE, null, PAGE_SIZE);
+			Integer unread = helper.getActualCountWithStatus(statuses);
+			nanos[i] = System.nanoTime() - start;
+			if (reopen) {
+				helper.close();
+			}
+			assertEquals(PAGE_SIZE, page.size());
+			assertEquals(MESSAGES, unread.intValue());
+		}
+		Arrays.sort(nanos);
+		Log.i(TAG, String.format(Locale.US, "%-10s page load p50 %5d us p95 %5d us",
+				reopen ? "reopen" : "persistent", nanos[PAGE_LOADS / 2] / 1000, nanos[PAGE_LOADS * 95 / 100] / 1000));
+	}
+
+	@Test
+	public void inboxPageLoadLatency() {
+		run(true);
+		run(false);
+	}
+
+	// Half of the server list overlaps the local messages, the other half is new; the full list
+	// deletes the local messages missing from it.
+	@Test
+	public void mergeServerListIntoLocalMessages() {
+		helper.createOrUpdate(messages(0, MERGE_SIZE), true);
+		List<InboxMessageInternal> serverList = messages(MERGE_SIZE / 2, MERGE_SIZE);
+
+		long start = System.nanoTime();
+		MergeResult result = helper.createOrUpdate(serverList, true);
+		long mergeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		Log.i(TAG, String.format(Locale.US, "merge %d into %d: %d ms (new %d, updated %d, deleted %d)",
+				MERGE_SIZE, MERGE_SIZE, mergeMillis, result.getNewItems().size(),
+				result.getUpdatedItems().size() + result.getIncorrectNetworkStatus().size(), result.getDeletedItems().size()));
+		assertEquals(MERGE_SIZE / 2, result.getNewItems().size());
+		assertEquals(MERGE_SIZE / 2, result.getDeletedItems().size());
+	}
+}
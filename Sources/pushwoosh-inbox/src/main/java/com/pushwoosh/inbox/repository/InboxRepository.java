@@ -249,7 +249,7 @@ public class InboxRepository {
             throw new InboxMessagesException("Provided InboxMessage is not instance of InboxMessageImpl");
         }
         long order = getInboxMessageOrder(inboxMessage);
-        return mapToInboxMessages(inboxStorage.getActualMessages(order, limit));
+        return mapToInboxMessages(inboxStorage.getActualMessages(order, getInboxMessageId(inboxMessage), limit));
     }
 
     public void loadCachedMessages(
@@ -261,7 +261,8 @@ public class InboxRepository {
             throw new InboxMessagesException("Provided InboxMessage is not instance of InboxMessageImpl");
         }
         long order = getInboxMessageOrder(inboxMessage);
-        GetInboxMessagesTask task = new GetInboxMessagesTask(InboxRepository.this, callback, null, order, limit);
+        String id = getInboxMessageId(inboxMessage);
+        GetInboxMessagesTask task = new GetInboxMessagesTask(InboxRepository.this, callback, null, order, id, limit);
         task.execute();
     }
 
@@ -277,9 +278,10 @@ public class InboxRepository {
             return;
         }
         long order = getInboxMessageOrder(inboxMessage);
+        String id = getInboxMessageId(inboxMessage);
         Callback<LoadResult, NetworkException> networkCallback = networkResult -> {
             GetInboxMessagesTask task =
-                    new GetInboxMessagesTask(InboxRepository.this, callback, networkResult, order, limit);
+                    new GetInboxMessagesTask(InboxRepository.this, callback, networkResult, order, id, limit);
             task.execute();
         };
 
@@ -490,11 +492,19 @@ public class InboxRepository {
                 : ((InboxMessageImpl) inboxMessage).getInboxMessageInternal().getOrder();
     }
 
+    @Nullable
+    private String getInboxMessageId(InboxMessage inboxMessage) {
+        return inboxMessage == null
+                ? null
+                : ((InboxMessageImpl) inboxMessage).getInboxMessageInternal().getId();
+    }
+
     private static class GetInboxMessagesTask {
         private final WeakReference<InboxRepository> inboxRepositoryReference;
         private final @Nullable Callback<Collection<InboxMessage>, InboxMessagesException> callback;
         private final @Nullable Result<LoadResult, NetworkException> networkResult;
         private final long order;
+        private final @Nullable String id;
         private final int limit;
 
         private GetInboxMessagesTask(
@@ -502,11 +512,13 @@ public class InboxRepository {
                 @Nullable Callback<Collection<InboxMessage>, InboxMessagesException> callback,
                 @Nullable Result<LoadResult, NetworkException> networkResult,
                 long order,
+                @Nullable String id,
                 int limit) {
             this.inboxRepositoryReference = new WeakReference<>(inboxRepository);
             this.callback = callback;
             this.networkResult = networkResult;
             this.order = order;
+            this.id = id;
             this.limit = limit;
         }
 
@@ -517,7 +529,7 @@ public class InboxRepository {
                     return;
                 }
                 Collection<InboxMessage> inboxMessages = inboxRepository.mapToInboxMessages(
-                        inboxRepository.inboxStorage.getActualMessages(order, limit));
+                        inboxRepository.inboxStorage.getActualMessages(order, id, limit));
 
                 if (callback != null) {
                     InboxMessagesException exception = networkResult != null
@@ -72,9 +72,16 @@ public interface InboxStorage {
 	@NonNull
 	Collection<InboxMessageInternal> getAllActualMessages();
 
+	/**
+	 * Obtain a page of actual messages that follow the given one in display order
+	 *
+	 * @param order - {@link InboxMessageInternal#order} of the last message of the previous page or {@link Long#MAX_VALUE}
+	 * @param id - {@link InboxMessageInternal#id} of that message or null for the first page
+	 * @param limit - page size, -1 for no limit
+	 */
 	@WorkerThread
 	@NonNull
-	Collection<InboxMessageInternal> getActualMessages(long order, int limit);
+	Collection<InboxMessageInternal> getActualMessages(long order, @Nullable String id, int limit);
 
 	@WorkerThread
 	@NonNull
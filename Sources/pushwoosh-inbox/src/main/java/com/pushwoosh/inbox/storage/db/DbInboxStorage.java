@@ -73,8 +73,8 @@ public class DbInboxStorage implements InboxStorage {
 
 	@NonNull
 	@Override
-	public Collection<InboxMessageInternal> getActualMessages(long sortOrder, int limit) {
-		final Collection<InboxMessageInternal> allActualWithStatus = inboxDbHelper.getActualMessagesWithStatus(InboxMessageStatus.getActualCodes(), sortOrder, limit);
+	public Collection<InboxMessageInternal> getActualMessages(long sortOrder, @Nullable String id, int limit) {
+		final Collection<InboxMessageInternal> allActualWithStatus = inboxDbHelper.getActualMessagesWithStatus(InboxMessageStatus.getActualCodes(), sortOrder, id, limit);
 		return allActualWithStatus == null ? Collections.emptyList() : allActualWithStatus;
 	}
 
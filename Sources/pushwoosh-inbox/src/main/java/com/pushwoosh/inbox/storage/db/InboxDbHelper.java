@@ -26,11 +26,10 @@
 
 package com.pushwoosh.inbox.storage.db;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.text.TextUtils;
@@ -41,25 +40,47 @@ import com.pushwoosh.inbox.internal.data.InboxMessageInternal;
 import com.pushwoosh.inbox.internal.data.InboxMessageSource;
 import com.pushwoosh.inbox.internal.data.InboxMessageStatus;
 import com.pushwoosh.inbox.storage.data.MergeResult;
-import com.pushwoosh.internal.utils.DbUtils;
 import com.pushwoosh.internal.utils.PWLog;
+import com.pushwoosh.internal.utils.PersistentSQLiteOpenHelper;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-public class InboxDbHelper extends SQLiteOpenHelper {
+public class InboxDbHelper extends PersistentSQLiteOpenHelper {
 	private static final String DELIMITER = "', '";
 
 	private static final String INBOX_DB = "PwInbox.db";
-	private static final int VERSION = 1;
-
-	private final Object mutex = new Object();
+	private static final int VERSION = 2;
+
+	private static final String INDEX_ORDER = "idx_inbox_order_id";
+	private static final String INDEX_EXPIRED_DATE = "idx_inbox_expired_date";
+	private static final String INDEX_STATUS = "idx_inbox_status_expired_date";
+	private static final String TEMP_MERGE_IDS = "inbox_merge_ids";
+
+	private static final String NOT_IN_MERGE_IDS =
+			InboxTable.Column.ID + " NOT IN (SELECT " + InboxTable.Column.ID + " FROM " + TEMP_MERGE_IDS + ")";
+
+	private static final String INSERT_COLUMNS =
+			InboxTable.Column.ID + ", " +
+			InboxTable.Column.ORDER + ", " +
+			InboxTable.Column.EXPIRED_DATE + ", " +
+			InboxTable.Column.SEND_DATE + ", " +
+			InboxTable.Column.TITLE + ", " +
+			InboxTable.Column.HASH + ", " +
+			InboxTable.Column.MESSAGE + ", " +
+			InboxTable.Column.IMAGE + ", " +
+			InboxTable.Column.TYPE + ", " +
+			InboxTable.Column.ACTION_PARAMS + ", " +
+			InboxTable.Column.STATUS + ", " +
+			InboxTable.Column.SOURCE;
 
 	public InboxDbHelper(Context context) {
-		super(context, INBOX_DB, null, VERSION);
+		super(context, INBOX_DB, VERSION);
 	}
 
 	@Override
@@ -81,11 +102,26 @@ public class InboxDbHelper extends SQLiteOpenHelper {
 						");";
 
 		db.execSQL(createInAppsTable);
+		createIndexes(db);
 	}
 
 	@Override
 	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		if (oldVersion < 2) {
+			createIndexes(db);
+		}
+	}
 
+	private void createIndexes(SQLiteDatabase db) {
+		// keyset pagination: ORDER BY inbox_order DESC, inbox_id DESC
+		db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_ORDER + " ON " + InboxTable.NAME +
+				" (" + InboxTable.Column.ORDER + ", " + InboxTable.Column.ID + ")");
+		// range delete of expired messages on every merge
+		db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPIRED_DATE + " ON " + InboxTable.NAME +
+				" (" + InboxTable.Column.EXPIRED_DATE + ")");
+		// unread / total counters
+		db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_STATUS + " ON " + InboxTable.NAME +
+				" (" + InboxTable.Column.STATUS + ", " + InboxTable.Column.EXPIRED_DATE + ")");
 	}
 
 	void removeItems(Collection<String> ids) {
@@ -191,17 +227,34 @@ public class InboxDbHelper extends SQLiteOpenHelper {
 		});
 	}
 
+	/**
+	 * Keyset page of messages that go after the message with {@code sortOrder} and {@code afterId}
+	 * in {@code inbox_order DESC, inbox_id DESC} order. The id breaks ties between equal orders;
+	 * pass {@code null} to continue strictly below {@code sortOrder}.
+	 */
 	@Nullable
-	Collection<InboxMessageInternal> getActualMessagesWithStatus(Collection<InboxMessageStatus> statusList, long sortOrder, int limit) {
+	Collection<InboxMessageInternal> getActualMessagesWithStatus(Collection<InboxMessageStatus> statusList, long sortOrder, @Nullable String afterId, int limit) {
 		String table = InboxTable.NAME;
-		String selection = InboxTable.Column.STATUS +
-				" IN ( " + getCollectionSelectionParams(statusList) + " )" +
-				" AND " + InboxTable.Column.EXPIRED_DATE + " > ?" +
-				" AND " + InboxTable.Column.ORDER + " < ?";
-		String[] selectionArgs = toStringArray(toStringList(statusList),
-				String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())),
-				String.valueOf(sortOrder));
-		String orderBy = InboxTable.Column.ORDER + " DESC ";
+		String selection;
+		String[] selectionArgs;
+		String now = String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+		if (afterId == null) {
+			selection = InboxTable.Column.STATUS +
+					" IN ( " + getCollectionSelectionParams(statusList) + " )" +
+					" AND " + InboxTable.Column.EXPIRED_DATE + " > ?" +
+					" AND " + InboxTable.Column.ORDER + " < ?";
+			selectionArgs = toStringArray(toStringList(statusList), now, String.valueOf(sortOrder));
+		} else {
+			// "order <= ?" bounds the index range, row values are not available on older SQLite versions
+			selection = InboxTable.Column.STATUS +
+					" IN ( " + getCollectionSelectionParams(statusList) + " )" +
+					" AND " + InboxTable.Column.EXPIRED_DATE + " > ?" +
+					" AND " + InboxTable.Column.ORDER + " <= ?" +
+					" AND (" + InboxTable.Column.ORDER + " < ? OR " + InboxTable.Column.ID + " < ?)";
+			selectionArgs = toStringArray(toStringList(statusList), now,
+					String.valueOf(sortOrder), String.valueOf(sortOrder), afterId);
+		}
+		String orderBy = InboxTable.Column.ORDER + " DESC, " + InboxTable.Column.ID + " DESC";
 		String limitCondition = limit == -1 ? null : String.valueOf(limit);
 
 		return query(table, null, selection, selectionArgs, null, null, orderBy, limitCondition, new Function<Cursor, Collection<InboxMessageInternal>>() {
@@ -282,25 +335,35 @@ public class InboxDbHelper extends SQLiteOpenHelper {
 		});
 	}
 
+	/**
+	 * Merges incoming messages in one transaction.
+	 * <p>
+	 * Incoming ids go to a temp table; the stored status and source of all of them are read with
+	 * a single join, rows are written with one cached upsert statement, and for a full list the
+	 * stale rows are selected and deleted with one {@code NOT IN} query each.
+	 */
 	@NonNull
 	MergeResult createOrUpdate(Collection<InboxMessageInternal> inboxMessageInternals, boolean fullList) {
 		MergeResult mergeResult = MergeResult.createEmpty();
-		List<String> inboxMessagesIds = new ArrayList<>();
 		synchronized (mutex) {
-			final SQLiteDatabase db = getWritableDatabase();
 			try {
+				final SQLiteDatabase db = getDatabase();
 				db.beginTransaction();
 				try {
 					removeExpired(db);
+					fillMergeIds(db, inboxMessageInternals);
+
+					Map<String, StoredState> stored = selectStoredStates(db);
 					for (InboxMessageInternal inboxMessageInternal : inboxMessageInternals) {
-						inboxMessagesIds.add(inboxMessageInternal.getId());
-						createOrUpdate(db, inboxMessageInternal, mergeResult);
+						StoredState state = createOrUpdate(inboxMessageInternal, stored.get(inboxMessageInternal.getId()), mergeResult);
+						stored.put(inboxMessageInternal.getId(), state);
 					}
 
 					if (fullList) {
-						mergeResult.getDeletedItems().addAll(selectNotFromList(inboxMessagesIds, db));
-						db.execSQL(getDeletedRaw(mergeResult.getDeletedItems()));
+						mergeResult.getDeletedItems().addAll(selectNotInMergeIds(db));
+						db.execSQL("DELETE FROM " + InboxTable.NAME + " WHERE " + NOT_IN_MERGE_IDS);
 					}
+					db.execSQL("DELETE FROM " + TEMP_MERGE_IDS);
 
 					db.setTransactionSuccessful();
 				} finally {
@@ -308,8 +371,6 @@ public class InboxDbHelper extends SQLiteOpenHelper {
 				}
 			} catch (Exception e) {
 				PWLog.error("Failed work with db", e);
-			} finally {
-				db.close();
 			}
 		}
 		return mergeResult;
@@ -321,50 +382,64 @@ public class InboxDbHelper extends SQLiteOpenHelper {
 						new String[]{ String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())) });
 	}
 
-	private void createOrUpdate(SQLiteDatabase db, InboxMessageInternal inboxMessageInternal, MergeResult mergeResult) {
-		String[] columns = new String[]{InboxTable.Column.STATUS, InboxTable.Column.SOURCE};
-		String table = InboxTable.NAME;
-		String selection = InboxTable.Column.ID + " = ?";
-		String[] selectionArgs = DbUtils.getSelectionArgs(inboxMessageInternal.getId());
-		final Cursor cursor = db.query(table, columns, selection, selectionArgs, null, null, null);
-		try {
-			if (cursor.moveToFirst()) {
-				boolean needToChangeStatus = true;
-				final InboxMessageStatus byCode = InboxMessageStatus.getByCode(cursor.getInt(cursor.getColumnIndex(InboxTable.Column.STATUS)));
-				final InboxMessageSource source = InboxMessageSource.getByCode(cursor.getInt(cursor.getColumnIndex(InboxTable.Column.SOURCE)));
-				if (source == InboxMessageSource.PUSH || byCode == null || byCode.isLowerStatus(inboxMessageInternal.getInboxMessageStatus())) {
-					mergeResult.getUpdatedItems().add(inboxMessageInternal.getId());
-				} else if (inboxMessageInternal.getInboxMessageStatus().isLowerStatus(byCode)) {
-					mergeResult.getIncorrectNetworkStatus().put(inboxMessageInternal.getId(), byCode);
-					needToChangeStatus = false;
-				}
+	// Temp tables live on the connection, which stays pinned to this thread for the transaction.
+	private void fillMergeIds(SQLiteDatabase db, Collection<InboxMessageInternal> inboxMessageInternals) {
+		db.execSQL("CREATE TEMP TABLE IF NOT EXISTS " + TEMP_MERGE_IDS + " (" + InboxTable.Column.ID + " text primary key)");
+		db.execSQL("DELETE FROM " + TEMP_MERGE_IDS);
+		final SQLiteStatement insert = getStatement("INSERT OR IGNORE INTO " + TEMP_MERGE_IDS +
+				" (" + InboxTable.Column.ID + ") VALUES (?)");
+		for (InboxMessageInternal inboxMessageInternal : inboxMessageInternals) {
+			bindStringOrNull(insert, 1, inboxMessageInternal.getId());
+			insert.executeInsert();
+		}
+	}
 
-				final ContentValues inboxMessageContentValues = getInboxMessageContentValues(inboxMessageInternal);
-				if (!needToChangeStatus) {
-					inboxMessageContentValues.remove(InboxTable.Column.STATUS);
-				}
-				db.update(InboxTable.NAME, inboxMessageContentValues, InboxTable.Column.ID + " = ?", new String[]{ inboxMessageInternal.getId() });
-			} else {
-				mergeResult.getNewItems().add(inboxMessageInternal.getId());
-				addInboxMessage(db, inboxMessageInternal);
+	private Map<String, StoredState> selectStoredStates(SQLiteDatabase db) {
+		Map<String, StoredState> states = new HashMap<>();
+		final Cursor cursor = db.rawQuery("SELECT m." + InboxTable.Column.ID + ", m." + InboxTable.Column.STATUS + ", m." + InboxTable.Column.SOURCE +
+				" FROM " + InboxTable.NAME + " m INNER JOIN " + TEMP_MERGE_IDS + " i" +
+				" ON m." + InboxTable.Column.ID + " = i." + InboxTable.Column.ID, null);
+		try {
+			while (cursor.moveToNext()) {
+				states.put(cursor.getString(0), new StoredState(cursor.getInt(1), cursor.getInt(2)));
 			}
 		} finally {
 			cursor.close();
 		}
+		return states;
+	}
+
+	private StoredState createOrUpdate(InboxMessageInternal inboxMessageInternal, @Nullable StoredState stored, MergeResult mergeResult) {
+		int statusCode = inboxMessageInternal.getInboxMessageStatus().getCode();
+		if (stored != null) {
+			final InboxMessageStatus byCode = InboxMessageStatus.getByCode(stored.status);
+			final InboxMessageSource source = InboxMessageSource.getByCode(stored.source);
+			if (source == InboxMessageSource.PUSH || byCode == null || byCode.isLowerStatus(inboxMessageInternal.getInboxMessageStatus())) {
+				mergeResult.getUpdatedItems().add(inboxMessageInternal.getId());
+			} else if (inboxMessageInternal.getInboxMessageStatus().isLowerStatus(byCode)) {
+				mergeResult.getIncorrectNetworkStatus().put(inboxMessageInternal.getId(), byCode);
+				statusCode = stored.status;
+			}
+		} else {
+			mergeResult.getNewItems().add(inboxMessageInternal.getId());
+		}
+
+		final SQLiteStatement upsert = getStatement("INSERT OR REPLACE INTO " + InboxTable.NAME + " (" + INSERT_COLUMNS +
+				") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		bindInboxMessage(upsert, inboxMessageInternal, statusCode);
+		if (upsert.executeInsert() == -1L) {
+			PWLog.warn("Not stored " + inboxMessageInternal.getId());
+		}
+		return new StoredState(statusCode, inboxMessageInternal.getSource().getCode());
 	}
 
-	private List<String> selectNotFromList(List<String> inboxMessagesIds, SQLiteDatabase db) {
+	private List<String> selectNotInMergeIds(SQLiteDatabase db) {
 		List<String> ids = new ArrayList<>();
-		String[] columns = new String[]{InboxTable.Column.ID};
-		String table = InboxTable.NAME;
-		final Cursor cursor = db.query(table, columns, null, null, null, null, null);
+		final Cursor cursor = db.rawQuery("SELECT " + InboxTable.Column.ID + " FROM " + InboxTable.NAME +
+				" WHERE " + NOT_IN_MERGE_IDS, null);
 		try {
-			if (cursor.moveToFirst()) {
-				do {
-					String id = cursor.getString(cursor.getColumnIndex(InboxTable.Column.ID));
-					if (inboxMessagesIds == null || inboxMessagesIds.isEmpty() || !inboxMessagesIds.contains(id))
-					ids.add(id);
-				} while (cursor.moveToNext());
+			while (cursor.moveToNext()) {
+				ids.add(cursor.getString(0));
 			}
 		} finally {
 			cursor.close();
@@ -373,58 +448,43 @@ public class InboxDbHelper extends SQLiteOpenHelper {
 		return ids;
 	}
 
-	private void addInboxMessage(SQLiteDatabase db, InboxMessageInternal inboxMessageInternal) {
-		ContentValues contentValues = getInboxMessageContentValues(inboxMessageInternal);
-		final long insert = db.insert(InboxTable.NAME, null, contentValues);
-		if (insert == 0L) {
-			PWLog.warn("Not stored " + inboxMessageInternal.getId());
-		}
+	private static void bindInboxMessage(SQLiteStatement statement, InboxMessageInternal inboxMessageInternal, int statusCode) {
+		bindStringOrNull(statement, 1, inboxMessageInternal.getId());
+		statement.bindLong(2, inboxMessageInternal.getOrder());
+		statement.bindLong(3, inboxMessageInternal.getExpiredDate());
+		statement.bindLong(4, inboxMessageInternal.getSendDate());
+		bindStringOrNull(statement, 5, inboxMessageInternal.getTitle());
+		bindStringOrNull(statement, 6, inboxMessageInternal.getHash());
+		bindStringOrNull(statement, 7, inboxMessageInternal.getMessage());
+		bindStringOrNull(statement, 8, inboxMessageInternal.getImage());
+		statement.bindLong(9, inboxMessageInternal.getInboxMessageType().getCode());
+		bindStringOrNull(statement, 10, inboxMessageInternal.getActionParams());
+		statement.bindLong(11, statusCode);
+		statement.bindLong(12, inboxMessageInternal.getSource().getCode());
 	}
 
-	@NonNull
-	private ContentValues getInboxMessageContentValues(InboxMessageInternal inboxMessageInternal) {
-		ContentValues contentValues = new ContentValues();
-		contentValues.put(InboxTable.Column.ID, inboxMessageInternal.getId());
-		contentValues.put(InboxTable.Column.ORDER, inboxMessageInternal.getOrder());
-		contentValues.put(InboxTable.Column.EXPIRED_DATE, inboxMessageInternal.getExpiredDate());
-		contentValues.put(InboxTable.Column.SEND_DATE, inboxMessageInternal.getSendDate());
-		contentValues.put(InboxTable.Column.TITLE, inboxMessageInternal.getTitle());
-		contentValues.put(InboxTable.Column.HASH, inboxMessageInternal.getHash());
-		contentValues.put(InboxTable.Column.MESSAGE, inboxMessageInternal.getMessage());
-		contentValues.put(InboxTable.Column.IMAGE, inboxMessageInternal.getImage());
-		contentValues.put(InboxTable.Column.TYPE, inboxMessageInternal.getInboxMessageType().getCode());
-		contentValues.put(InboxTable.Column.ACTION_PARAMS, inboxMessageInternal.getActionParams());
-		contentValues.put(InboxTable.Column.STATUS, inboxMessageInternal.getInboxMessageStatus().getCode());
-		contentValues.put(InboxTable.Column.SOURCE, inboxMessageInternal.getSource().getCode());
-		return contentValues;
+	private static final class StoredState {
+		final int status;
+		final int source;
+
+		StoredState(int status, int source) {
+			this.status = status;
+			this.source = source;
+		}
 	}
 
+	// A single SELECT reads a consistent snapshot; with WAL it runs alongside writes without the mutex.
 	private <T> T query(String table, String[] columns, String selection, String[] selectionArgs, String groupBy, String having, String orderBy, String limit, Function<Cursor, T> function) {
-		synchronized (mutex) {
+		try {
+			final Cursor cursor = getDatabase().query(table, columns, selection, selectionArgs, groupBy, having, orderBy, limit);
 			try {
-				final SQLiteDatabase db = getReadableDatabase();
-				try {
-					T apply;
-					db.beginTransaction();
-					final Cursor cursor = db.query(table, columns, selection, selectionArgs, groupBy, having, orderBy, limit);
-					try {
-						apply = function.apply(cursor);
-						db.setTransactionSuccessful();
-					} finally {
-						cursor.close();
-						db.endTransaction();
-					}
-					return apply;
-				} catch (Exception e) {
-					PWLog.error("Failed work with db", e);
-					return null;
-				} finally {
-					db.close();
-				}
-			} catch (Exception e) {
-				PWLog.error("Problem with db executing", e);
-				return null;
+				return function.apply(cursor);
+			} finally {
+				cursor.close();
 			}
+		} catch (Exception e) {
+			PWLog.error("Failed work with db", e);
+			return null;
 		}
 	}
 
@@ -458,17 +518,13 @@ public class InboxDbHelper extends SQLiteOpenHelper {
 	private void executeSqlRaw(String row) {
 		synchronized (mutex) {
 			try {
-				final SQLiteDatabase writableDatabase = getWritableDatabase();
+				final SQLiteDatabase writableDatabase = getDatabase();
+				writableDatabase.beginTransaction();
 				try {
-					writableDatabase.beginTransaction();
-					try {
-						writableDatabase.execSQL(row);
-						writableDatabase.setTransactionSuccessful();
-					} finally {
-						writableDatabase.endTransaction();
-					}
+					writableDatabase.execSQL(row);
+					writableDatabase.setTransactionSuccessful();
 				} finally {
-					writableDatabase.close();
+					writableDatabase.endTransaction();
 				}
 			} catch (Exception e) {
 				PWLog.error("Problem with db executing", e);
@@ -486,19 +542,14 @@ public class InboxDbHelper extends SQLiteOpenHelper {
 	public void dropDb() {
 		synchronized (mutex) {
 			try {
-				SQLiteDatabase database = getWritableDatabase();
+				SQLiteDatabase database = getDatabase();
+				database.beginTransaction();
 				try {
-					database.beginTransaction();
-					try {
-						database.delete(InboxTable.NAME, "", new String[]{ });
-						database.setTransactionSuccessful();
-					} finally {
-						database.endTransaction();
-					}
+					database.delete(InboxTable.NAME, "", new String[]{ });
+					database.setTransactionSuccessful();
 				} finally {
-					database.close();
+					database.endTransaction();
 				}
-
 			} catch (Exception e) {
 				PWLog.error("Problem with db executing", e);
 			}
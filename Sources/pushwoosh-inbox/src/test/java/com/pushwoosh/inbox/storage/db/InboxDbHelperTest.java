@@ -0,0 +1,114 @@
+package com.pushwoosh.inbox.storage.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.pushwoosh.inbox.data.InboxMessageType;
+import com.pushwoosh.inbox.internal.data.InboxMessageInternal;
+import com.pushwoosh.inbox.internal.data.InboxMessageSource;
+import com.pushwoosh.inbox.internal.data.InboxMessageStatus;
+import com.pushwoosh.inbox.storage.data.MergeResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+@LooperMode(LooperMode.Mode.LEGACY)
+public class InboxDbHelperTest {
+    private InboxDbHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = new InboxDbHelper(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() {
+        helper.dropDb();
+        helper.close();
+    }
+
+    private static InboxMessageInternal message(String id, long order, InboxMessageStatus status, InboxMessageSource source) {
+        return new InboxMessageInternal.Builder()
+                .setId(id)
+                .setOrder(order)
+                .setExpiredDate(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + TimeUnit.DAYS.toSeconds(1))
+                .setTitle("title " + id)
+                .setInboxMessageType(InboxMessageType.PLAIN)
+                .setInboxMessageStatus(status)
+                .setSource(source)
+                .build();
+    }
+
+    private static InboxMessageInternal message(String id, long order) {
+        return message(id, order, InboxMessageStatus.DELIVERED, InboxMessageSource.SERVICE);
+    }
+
+    private static List<String> ids(Collection<InboxMessageInternal> messages) {
+        List<String> ids = new ArrayList<>();
+        for (InboxMessageInternal message : messages) {
+            ids.add(message.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void createOrUpdate_classifiesNewUpdatedIncorrectAndDeleted() {
+        helper.createOrUpdate(Arrays.asList(
+                message("kept-read", 1, InboxMessageStatus.READ, InboxMessageSource.SERVICE),
+                message("upgraded", 2, InboxMessageStatus.DELIVERED, InboxMessageSource.SERVICE),
+                message("stale", 3)), true);
+
+        MergeResult result = helper.createOrUpdate(Arrays.asList(
+                message("kept-read", 1, InboxMessageStatus.DELIVERED, InboxMessageSource.SERVICE),
+                message("upgraded", 2, InboxMessageStatus.OPEN, InboxMessageSource.SERVICE),
+                message("fresh", 4)), true);
+
+        assertEquals(Collections.singletonList("fresh"), new ArrayList<>(result.getNewItems()));
+        assertEquals(Collections.singletonList("upgraded"), new ArrayList<>(result.getUpdatedItems()));
+        assertEquals(InboxMessageStatus.READ, result.getIncorrectNetworkStatus().get("kept-read"));
+        assertEquals(Collections.singletonList("stale"), new ArrayList<>(result.getDeletedItems()));
+        // the higher local status survives a lower one coming from the server
+        assertEquals(InboxMessageStatus.READ, helper.getById("kept-read").getInboxMessageStatus());
+        assertEquals(InboxMessageStatus.OPEN, helper.getById("upgraded").getInboxMessageStatus());
+    }
+
+    @Test
+    public void createOrUpdate_partialListKeepsOtherMessages() {
+        helper.createOrUpdate(Arrays.asList(message("a", 1), message("b", 2)), true);
+
+        MergeResult result = helper.createOrUpdate(Collections.singletonList(message("c", 3)), false);
+
+        assertTrue(result.getDeletedItems().isEmpty());
+        assertEquals(Arrays.asList("c", "b", "a"),
+                ids(helper.getActualMessagesWithStatus(InboxMessageStatus.getActualCodes(), Long.MAX_VALUE, null, -1)));
+    }
+
+    // Messages with equal order must not be skipped or repeated across pages.
+    @Test
+    public void getActualMessagesWithStatus_keysetPagesThroughEqualOrders() {
+        helper.createOrUpdate(Arrays.asList(
+                message("a", 5), message("b", 5), message("c", 5), message("d", 4)), true);
+        Collection<InboxMessageStatus> statuses = InboxMessageStatus.getActualCodes();
+
+        List<String> firstPage = ids(helper.getActualMessagesWithStatus(statuses, Long.MAX_VALUE, null, 2));
+        List<String> secondPage = ids(helper.getActualMessagesWithStatus(statuses, 5, "b", 2));
+
+        assertEquals(Arrays.asList("c", "b"), firstPage);
+        assertEquals(Arrays.asList("a", "d"), secondPage);
+    }
+}
@@ -39,6 +39,7 @@ public class LiveUpdatesPlugin implements Plugin {
 
     private static final String TAG = "LiveUpdatesPlugin";
     private static final String META_STYLE_PROVIDER = "com.pushwoosh.LIVE_UPDATE_STYLE_PROVIDER";
+    private static final String META_MIN_RENDER_INTERVAL = "com.pushwoosh.LIVE_UPDATE_MIN_RENDER_INTERVAL_MS";
 
     /**
      * Activates the module: installs the renderer on API 36+ and registers the live-update push
@@ -50,7 +51,7 @@ public class LiveUpdatesPlugin implements Plugin {
         PWLog.info(TAG, "init() entry; SDK_INT=" + Build.VERSION.SDK_INT);
         if (Build.VERSION.SDK_INT >= 36) {
             LiveUpdateProgressStyleProvider provider = resolveStyleProvider();
-            PushwooshLiveUpdates.install(new LiveUpdateNotificationRenderer(provider));
+            PushwooshLiveUpdates.install(new LiveUpdateNotificationRenderer(provider, resolveMinRenderIntervalMs()));
         } else {
             PWLog.warn(TAG, "Live Updates require API 36+; live-update pushes will be suppressed");
         }
@@ -98,6 +99,33 @@ public class LiveUpdatesPlugin implements Plugin {
         return new DefaultProgressStyleProvider();
     }
 
+    /**
+     * Reads the shortest time between two renders of the same live update from the
+     * {@code com.pushwoosh.LIVE_UPDATE_MIN_RENDER_INTERVAL_MS} manifest meta-data. Falls back to one
+     * second when the key is absent, negative or unreadable.
+     */
+    @RequiresApi(36)
+    @VisibleForTesting
+    static long resolveMinRenderIntervalMs() {
+        try {
+            Context ctx = AndroidPlatformModule.getApplicationContext();
+            if (ctx == null) return LiveUpdateNotificationRenderer.DEFAULT_MIN_RENDER_INTERVAL_MS;
+            Bundle meta = ctx.getPackageManager()
+                    .getApplicationInfo(ctx.getPackageName(), PackageManager.GET_META_DATA)
+                    .metaData;
+            if (meta == null) return LiveUpdateNotificationRenderer.DEFAULT_MIN_RENDER_INTERVAL_MS;
+
+            int intervalMs = meta.getInt(META_MIN_RENDER_INTERVAL, -1);
+            if (intervalMs >= 0) {
+                PWLog.info(TAG, "Live update min render interval: " + intervalMs + " ms");
+                return intervalMs;
+            }
+        } catch (Throwable t) {
+            PWLog.warn(TAG, "failed to read live update min render interval, using default: " + t.getMessage());
+        }
+        return LiveUpdateNotificationRenderer.DEFAULT_MIN_RENDER_INTERVAL_MS;
+    }
+
     /**
      * Resolves the leading-dot shorthand the same way {@code AndroidManifestConfig} does for every
      * other manifest class reference: {@code ".MyProvider"} expands to {@code <packageName>.MyProvider}.
@@ -69,7 +69,8 @@ public final class PushwooshLiveUpdates {
      * <p>
      * Use this when the app knows an activity has finished before the server sends its terminal
      * {@code end} push — for example the user cancels an order from inside the app. If no Live
-     * Update with this id is currently shown, the call does nothing.
+     * Update with this id is currently shown, the call does nothing. Update pushes for this id that
+     * arrive afterwards are ignored until the server starts it again.
      * <p>
      * Safe to call from any thread; a no-op on devices below API 36.
      *
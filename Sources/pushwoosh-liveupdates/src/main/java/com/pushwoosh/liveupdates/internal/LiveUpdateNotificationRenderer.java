@@ -10,6 +10,7 @@ import android.graphics.Bitmap;
 import android.net.Uri;
 import android.service.notification.StatusBarNotification;
 import android.text.TextUtils;
+import android.util.LruCache;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
@@ -32,7 +33,11 @@ import org.json.JSONObject;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * SDK-owned renderer that owns the entire live-update notification pipeline.
@@ -45,6 +50,11 @@ import java.util.List;
  * {@link LiveUpdateProgressStyleProvider} with a fall back to {@link DefaultProgressStyleProvider}
  * when the custom provider throws.
  * <p>
+ * Renders go through a {@link LiveUpdateRenderQueue}: pushes that come faster than the configured
+ * rate are coalesced so only the latest state of each live update is posted, and a dismiss is never
+ * overtaken by a render of the same live update. Large icons and actions are kept between renders
+ * of a live update and rebuilt only when they change.
+ * <p>
  * Requires API 36+; instantiated only when {@link com.pushwoosh.liveupdates.LiveUpdatesPlugin}
  * activates on a supported device.
  */
@@ -55,13 +65,55 @@ public class LiveUpdateNotificationRenderer {
     static final String CHANNEL_ID = "pushwoosh_live_updates";
     private static final String CHANNEL_NAME = "Live Updates";
     private static final String EXTRA_REQUEST_PROMOTED_ONGOING = "android.requestPromotedOngoing";
+    public static final long DEFAULT_MIN_RENDER_INTERVAL_MS = 1000;
+    private static final int ICON_CACHE_BYTES = 2 * 1024 * 1024;
+    private static final int MAX_CACHED_ACTIVITIES = 32;
 
     @NonNull private final LiveUpdateProgressStyleProvider provider;
 
     @NonNull private final DefaultProgressStyleProvider defaultProvider = new DefaultProgressStyleProvider();
 
+    @NonNull private final LiveUpdateRenderQueue queue;
+
+    // The caches below are touched only from the queue's target, which it calls one at a time.
+    @NonNull private final LruCache<String, Bitmap> icons = new LruCache<String, Bitmap>(ICON_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String url, Bitmap icon) {
+            return icon.getByteCount();
+        }
+    };
+
+    @NonNull private final Map<String, ActivityResources> resources =
+            new LinkedHashMap<String, ActivityResources>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ActivityResources> eldest) {
+                    return size() > MAX_CACHED_ACTIVITIES;
+                }
+            };
+
+    private boolean channelReady;
+
     public LiveUpdateNotificationRenderer(@NonNull LiveUpdateProgressStyleProvider provider) {
+        this(provider, DEFAULT_MIN_RENDER_INTERVAL_MS);
+    }
+
+    /**
+     * @param minRenderIntervalMs shortest time between two renders of the same live update; pushes
+     *                            that come in between are coalesced into the latest one
+     */
+    public LiveUpdateNotificationRenderer(@NonNull LiveUpdateProgressStyleProvider provider, long minRenderIntervalMs) {
         this.provider = provider;
+        this.queue = new LiveUpdateRenderQueue(new LiveUpdateRenderQueue.Target() {
+            @Override
+            public void post(@NonNull LiveUpdateState state) {
+                postNow(state);
+            }
+
+            @Override
+            public void cancel(@NonNull String activityId) {
+                cancelNow(activityId);
+            }
+        }, minRenderIntervalMs);
     }
 
     /** Test hook: returns the configured style provider. */
@@ -73,6 +125,11 @@ public class LiveUpdateNotificationRenderer {
     /**
      * Builds and posts (or refreshes in place) the live-update notification for the given state.
      * <p>
+     * The state is posted on the calling thread when the live update was not rendered within the
+     * minimum render interval and the app is within the system notification rate; otherwise it
+     * replaces any state still waiting for the same {@code activityId} and is posted from a
+     * background thread when its turn comes.
+     * <p>
      * Posting reuses the {@code activityId} as the notification tag and {@code activityId.hashCode()}
      * as the id, so a later {@code update} push with the same id replaces the existing notification
      * silently ({@code setOnlyAlertOnce}). Failures in optional steps (icon download, individual
@@ -82,6 +139,15 @@ public class LiveUpdateNotificationRenderer {
     @WorkerThread
     public void render(@NonNull LiveUpdateState state) {
         PWLog.noise(TAG, "render(activityId=" + state.getActivityId() + ", op=" + state.getOperation() + ")");
+        queue.submit(state);
+    }
+
+    @VisibleForTesting
+    @NonNull LiveUpdateRenderQueue getQueueForTest() {
+        return queue;
+    }
+
+    private void postNow(@NonNull LiveUpdateState state) {
         Context context = AndroidPlatformModule.getApplicationContext();
         if (context == null) {
             PWLog.error(TAG, "context is null, dropping render for " + state.getActivityId());
@@ -93,7 +159,15 @@ public class LiveUpdateNotificationRenderer {
             PWLog.error(TAG, "NotificationManager unavailable");
             return;
         }
-        ensureChannel(nm);
+        if (!channelReady) {
+            ensureChannel(nm);
+            channelReady = true;
+        }
+        ActivityResources res = resources.get(state.getActivityId());
+        if (res == null) {
+            res = new ActivityResources();
+            resources.put(state.getActivityId(), res);
+        }
 
         int smallIcon = NotificationUtils.tryToGetIconFormStringOrGetFromApplication(null);
         if (smallIcon == -1) {
@@ -127,35 +201,82 @@ public class LiveUpdateNotificationRenderer {
         }
 
         if (state.getIconUrl() != null) {
-            int dimension = (int) AndroidPlatformModule.getResourceProvider()
-                    .getDimension(android.R.dimen.notification_large_icon_height);
-            Bitmap icon = NotificationUtils.tryGetBitmap(state.getIconUrl(), dimension);
+            Bitmap icon = iconFor(state, res);
             if (icon != null) {
                 builder.setLargeIcon(icon);
-            } else {
-                PWLog.warn(TAG, "icon load failed for " + state.getActivityId() + ", rendering without");
             }
         }
 
+        String actionsKey = actionsKey(state.getActions());
+        if (!actionsKey.equals(res.actionsKey)) {
+            res.actions = buildActions(context, state);
+            res.actionsKey = actionsKey;
+        }
+        for (Notification.Action platformAction : res.actions) {
+            builder.addAction(platformAction);
+        }
+
+        try {
+            nm.notify(state.getActivityId(), state.getActivityId().hashCode(), builder.build());
+        } catch (Throwable t) {
+            PWLog.error(TAG, "notify failed for " + state.getActivityId(), t);
+        }
+    }
+
+    /**
+     * Returns the large icon of the state from the cache, downloading it on the first use. A URL that
+     * failed to load is not tried again for the same live update, so a broken icon does not cost a
+     * download on every update.
+     */
+    @Nullable private Bitmap iconFor(@NonNull LiveUpdateState state, @NonNull ActivityResources res) {
+        String iconUrl = state.getIconUrl();
+        Bitmap icon = icons.get(iconUrl);
+        if (icon != null || iconUrl.equals(res.failedIconUrl)) {
+            return icon;
+        }
+        int dimension = (int) AndroidPlatformModule.getResourceProvider()
+                .getDimension(android.R.dimen.notification_large_icon_height);
+        icon = NotificationUtils.tryGetBitmap(iconUrl, dimension);
+        if (icon == null) {
+            res.failedIconUrl = iconUrl;
+            PWLog.warn(TAG, "icon load failed for " + state.getActivityId() + ", rendering without");
+            return null;
+        }
+        icons.put(iconUrl, icon);
+        return icon;
+    }
+
+    @NonNull private static List<Notification.Action> buildActions(@NonNull Context context, @NonNull LiveUpdateState state) {
         List<Action> actions = state.getActions();
+        List<Notification.Action> platformActions = new ArrayList<>(actions.size());
         for (int i = 0; i < actions.size(); i++) {
             try {
                 int requestCode = state.getActivityId().hashCode() * 31 + i;
                 String intentId = state.getActivityId() + "#" + i;
                 Notification.Action platformAction = buildAction(context, actions.get(i), requestCode, intentId);
                 if (platformAction != null) {
-                    builder.addAction(platformAction);
+                    platformActions.add(platformAction);
                 }
             } catch (Throwable t) {
                 PWLog.warn(TAG, "action build failed, skipping: " + t.getMessage());
             }
         }
+        return platformActions;
+    }
 
-        try {
-            nm.notify(state.getActivityId(), state.getActivityId().hashCode(), builder.build());
-        } catch (Throwable t) {
-            PWLog.error(TAG, "notify failed for " + state.getActivityId(), t);
+    /** Everything {@link #buildAction} reads, so equal keys give equal pending intents. */
+    @NonNull private static String actionsKey(@NonNull List<Action> actions) {
+        StringBuilder key = new StringBuilder();
+        for (Action action : actions) {
+            Class<?> actionClass = action.getActionClass();
+            key.append(action.getType()).append('\u0000')
+                    .append(action.getTitle()).append('\u0000')
+                    .append(action.getUrl()).append('\u0000')
+                    .append(action.getIntentAction()).append('\u0000')
+                    .append(actionClass != null ? actionClass.getName() : null).append('\u0000')
+                    .append(action.getExtras()).append('\u0001');
         }
+        return key.toString();
     }
 
     /** Asks the custom provider for the style, falling back to the default if it throws. */
@@ -173,10 +294,19 @@ public class LiveUpdateNotificationRenderer {
         }
     }
 
-    /** Cancels the live-update notification with the given {@code activityId}; no-op if not shown. */
+    /**
+     * Cancels the live-update notification with the given {@code activityId}; no-op if not shown.
+     * A render of it that has not been posted yet is dropped, and updates that arrive later are
+     * ignored until the live update is started again.
+     */
     @AnyThread
     public void dismiss(@NonNull String activityId) {
         PWLog.noise(TAG, "dismiss(activityId=" + activityId + ")");
+        queue.end(activityId);
+    }
+
+    private void cancelNow(@NonNull String activityId) {
+        resources.remove(activityId);
         NotificationManager nm = notificationManager();
         if (nm != null) {
             nm.cancel(activityId, activityId.hashCode());
@@ -208,14 +338,17 @@ public class LiveUpdateNotificationRenderer {
     }
 
     /**
-     * Dismisses every live update this app is currently showing. Reuses {@link #getActiveIds()}
-     * (which yields an empty list on failure) and cancels each id independently, so one failing
-     * cancel does not abort the rest. A no-op when nothing is shown.
+     * Dismisses every live update this app is currently showing or about to show. Reuses
+     * {@link #getActiveIds()} (which yields an empty list on failure) together with the live updates
+     * waiting for their first render, and cancels each id independently, so one failing cancel does
+     * not abort the rest. A no-op when nothing is shown.
      */
     @AnyThread
     public void dismissAll() {
         PWLog.noise(TAG, "dismissAll()");
-        for (String id : getActiveIds()) {
+        Set<String> ids = new LinkedHashSet<>(getActiveIds());
+        ids.addAll(queue.pendingIds());
+        for (String id : ids) {
             try {
                 dismiss(id);
             } catch (Throwable t) {
@@ -224,6 +357,13 @@ public class LiveUpdateNotificationRenderer {
         }
     }
 
+    /** Resources of one live update kept between its renders. */
+    private static class ActivityResources {
+        @Nullable String failedIconUrl;
+        @Nullable String actionsKey;
+        @NonNull List<Notification.Action> actions = Collections.emptyList();
+    }
+
     /** Resolves the platform {@link NotificationManager}, or {@code null} if it is unavailable. */
     @Nullable private static NotificationManager notificationManager() {
         ManagerProvider managerProvider = AndroidPlatformModule.getManagerProvider();
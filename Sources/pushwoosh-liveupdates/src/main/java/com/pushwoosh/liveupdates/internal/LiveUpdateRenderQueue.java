@@ -0,0 +1,320 @@
+package com.pushwoosh.liveupdates.internal;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.pushwoosh.internal.utils.PWLog;
+import com.pushwoosh.liveupdates.LiveUpdateOperation;
+import com.pushwoosh.liveupdates.LiveUpdateState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces live-update renders per {@code activityId} and paces them.
+ * <p>
+ * Only the latest pending state of an activity is kept: an update that arrives while the previous
+ * one waits for its turn replaces it. An activity is rendered at most once per
+ * {@code minRenderIntervalMs}, and the whole app at most {@link #APP_RENDERS_PER_SECOND} times a
+ * second — the system sheds notification updates above that rate, which could silently lose the
+ * latest state. A state that may be rendered right away is rendered on the calling thread; the rest
+ * are rendered on a background thread once their turn comes, activities in the order they got dirty.
+ * <p>
+ * {@link #end(String)} drops the pending state of the activity and cancels its notification. It
+ * never waits for a render in progress: the thread doing that render cancels the notification once
+ * it is done, so nothing is posted after the end. Updates that arrive for an ended activity are
+ * dropped until it is started again.
+ */
+class LiveUpdateRenderQueue {
+
+    private static final String TAG = "LiveUpdateRenderQueue";
+    static final int APP_RENDERS_PER_SECOND = 5;
+    private static final int ENDED_IDS_LIMIT = 64;
+
+    /** Does the actual work; called one at a time. */
+    interface Target {
+        void post(@NonNull LiveUpdateState state);
+
+        void cancel(@NonNull String activityId);
+    }
+
+    @NonNull private final Target target;
+    private final long minRenderIntervalMs;
+
+    private final Object lock = new Object();
+    // held while the target is called, so a cancel never overtakes a render of the same activity
+    private final ReentrantLock renderLock = new ReentrantLock();
+
+    // guarded by lock
+    private final LinkedHashMap<String, LiveUpdateState> pending = new LinkedHashMap<>();
+    // ended activities whose notification is still to be cancelled by whoever holds renderLock
+    private final LinkedHashSet<String> cancels = new LinkedHashSet<>();
+    private final Map<String, Long> lastRenderAt = new HashMap<>();
+    private final long[] recentRenders = new long[APP_RENDERS_PER_SECOND];
+    private int recentRenderCount;
+    private int recentRenderIndex;
+    private final Map<String, Boolean> endedIds = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > ENDED_IDS_LIMIT;
+        }
+    };
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> scheduledDrain;
+    private long scheduledDrainAt;
+    private int submitted;
+    private int rendered;
+    private int coalesced;
+    private int dropped;
+
+    LiveUpdateRenderQueue(@NonNull Target target, long minRenderIntervalMs) {
+        this.target = target;
+        this.minRenderIntervalMs = Math.max(0, minRenderIntervalMs);
+    }
+
+    /**
+     * Queues the state of a {@code start} or {@code update} and renders it right away if the
+     * activity and the app are within their rate.
+     */
+    @WorkerThread
+    void submit(@NonNull LiveUpdateState state) {
+        String activityId = state.getActivityId();
+        synchronized (lock) {
+            submitted++;
+            if (state.getOperation() == LiveUpdateOperation.START) {
+                endedIds.remove(activityId);
+            } else if (endedIds.containsKey(activityId)) {
+                dropped++;
+                PWLog.noise(TAG, activityId + " has ended, dropping late " + state.getOperation());
+                return;
+            }
+            // an activity that is already waiting keeps its place in the line
+            if (pending.put(activityId, state) != null) {
+                coalesced++;
+            }
+        }
+        drain(activityId);
+    }
+
+    /**
+     * Drops the pending state of the activity and cancels its notification. Never waits: if a
+     * render is in progress, the notification is cancelled right after it by the rendering thread.
+     */
+    @AnyThread
+    void end(@NonNull String activityId) {
+        synchronized (lock) {
+            if (pending.remove(activityId) != null) {
+                dropped++;
+            }
+            lastRenderAt.remove(activityId);
+            endedIds.put(activityId, Boolean.TRUE);
+            cancels.add(activityId);
+        }
+        cancelEnded();
+    }
+
+    /** @return ids of the activities that wait for their render */
+    @AnyThread
+    @NonNull List<String> pendingIds() {
+        synchronized (lock) {
+            return new ArrayList<>(pending.keySet());
+        }
+    }
+
+    /**
+     * Renders what is due: only {@code activityId} when called by {@link #submit}, every due
+     * activity when called by the scheduler. Whatever is left is scheduled for when it gets due.
+     */
+    private void drain(@Nullable String activityId) {
+        renderLock.lock();
+        try {
+            while (true) {
+                // an activity ended before its restart is cancelled before the restart is posted
+                cancelEndedRenderLocked();
+                LiveUpdateState next;
+                synchronized (lock) {
+                    long now = now();
+                    next = takeDueLocked(activityId, now);
+                    if (next == null) {
+                        scheduleLocked(now);
+                        break;
+                    }
+                }
+                try {
+                    target.post(next);
+                } catch (Throwable t) {
+                    PWLog.error(TAG, "render failed for " + next.getActivityId(), t);
+                }
+            }
+        } finally {
+            renderLock.unlock();
+        }
+        // an end may have come after the last check, when renderLock was still held
+        cancelEnded();
+    }
+
+    /**
+     * Cancels the ended activities unless another thread renders right now, in which case that
+     * thread cancels them after its render.
+     */
+    private void cancelEnded() {
+        while (true) {
+            if (!renderLock.tryLock()) {
+                return;
+            }
+            try {
+                cancelEndedRenderLocked();
+            } finally {
+                renderLock.unlock();
+            }
+            synchronized (lock) {
+                if (cancels.isEmpty()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void cancelEndedRenderLocked() {
+        while (true) {
+            String activityId;
+            synchronized (lock) {
+                Iterator<String> it = cancels.iterator();
+                if (!it.hasNext()) {
+                    return;
+                }
+                activityId = it.next();
+                it.remove();
+            }
+            try {
+                target.cancel(activityId);
+            } catch (Throwable t) {
+                PWLog.error(TAG, "cancel failed for " + activityId, t);
+            }
+        }
+    }
+
+    @Nullable
+    private LiveUpdateState takeDueLocked(@Nullable String activityId, long now) {
+        long appDueAt = appDueAtLocked();
+        if (activityId != null) {
+            return pending.containsKey(activityId) && dueAtLocked(activityId, appDueAt) <= now
+                    ? takeLocked(activityId, now)
+                    : null;
+        }
+        for (String id : pending.keySet()) {
+            if (dueAtLocked(id, appDueAt) <= now) {
+                return takeLocked(id, now);
+            }
+        }
+        return null;
+    }
+
+    @NonNull
+    private LiveUpdateState takeLocked(@NonNull String activityId, long now) {
+        LiveUpdateState state = pending.remove(activityId);
+        lastRenderAt.put(activityId, now);
+        recentRenders[recentRenderIndex] = now;
+        recentRenderIndex = (recentRenderIndex + 1) % APP_RENDERS_PER_SECOND;
+        recentRenderCount = Math.min(recentRenderCount + 1, APP_RENDERS_PER_SECOND);
+        rendered++;
+        return state;
+    }
+
+    private long dueAtLocked(@NonNull String activityId, long appDueAt) {
+        Long last = lastRenderAt.get(activityId);
+        return last == null ? appDueAt : Math.max(appDueAt, last + minRenderIntervalMs);
+    }
+
+    /** @return when the app may render again: a second after the oldest of its recent renders */
+    private long appDueAtLocked() {
+        if (recentRenderCount < APP_RENDERS_PER_SECOND) {
+            return Long.MIN_VALUE;
+        }
+        return recentRenders[recentRenderIndex] + TimeUnit.SECONDS.toMillis(1);
+    }
+
+    private void scheduleLocked(long now) {
+        if (pending.isEmpty()) {
+            // forget activities that would be rendered right away anyway
+            Iterator<Map.Entry<String, Long>> it = lastRenderAt.entrySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().getValue() + minRenderIntervalMs <= now) {
+                    it.remove();
+                }
+            }
+            return;
+        }
+
+        long appDueAt = appDueAtLocked();
+        long dueAt = Long.MAX_VALUE;
+        for (String id : pending.keySet()) {
+            dueAt = Math.min(dueAt, dueAtLocked(id, appDueAt));
+        }
+        if (scheduledDrain != null) {
+            if (scheduledDrainAt <= dueAt) {
+                return;
+            }
+            scheduledDrain.cancel(false);
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Pushwoosh-live-updates");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        scheduledDrainAt = dueAt;
+        scheduledDrain = scheduler.schedule(() -> {
+            synchronized (lock) {
+                scheduledDrain = null;
+            }
+            drain(null);
+        }, Math.max(0, dueAt - now), TimeUnit.MILLISECONDS);
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    @VisibleForTesting
+    int getSubmittedCount() {
+        synchronized (lock) {
+            return submitted;
+        }
+    }
+
+    @VisibleForTesting
+    int getRenderedCount() {
+        synchronized (lock) {
+            return rendered;
+        }
+    }
+
+    @VisibleForTesting
+    int getCoalescedCount() {
+        synchronized (lock) {
+            return coalesced;
+        }
+    }
+
+    @VisibleForTesting
+    int getDroppedCount() {
+        synchronized (lock) {
+            return dropped;
+        }
+    }
+}
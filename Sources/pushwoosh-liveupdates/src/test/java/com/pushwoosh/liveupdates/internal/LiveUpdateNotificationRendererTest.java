@@ -11,10 +11,12 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.Bitmap;
 
 import com.pushwoosh.internal.platform.AndroidPlatformModule;
 import com.pushwoosh.internal.platform.manager.ManagerProvider;
 import com.pushwoosh.internal.platform.resource.ResourceProvider;
+import com.pushwoosh.internal.utils.NotificationUtils;
 import com.pushwoosh.internal.utils.PWLog;
 import com.pushwoosh.liveupdates.LiveUpdateOperation;
 import com.pushwoosh.liveupdates.LiveUpdateProgressStyleProvider;
@@ -511,4 +513,88 @@ public class LiveUpdateNotificationRendererTest {
         Notification n = nm.getActiveNotifications()[0].getNotification();
         assertEquals(35, n.extras.getInt(Notification.EXTRA_PROGRESS));
     }
+
+    // Verifies that live updates sharing an icon download it once.
+    @Test
+    public void render_sameIconUrl_downloadedOnce() {
+        Bitmap icon = Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888);
+        LiveUpdateNotificationRenderer renderer = new LiveUpdateNotificationRenderer(new DefaultProgressStyleProvider());
+
+        try (MockedStatic<NotificationUtils> utils = mockStatic(NotificationUtils.class, CALLS_REAL_METHODS)) {
+            utils.when(() -> NotificationUtils.tryGetBitmap(eq("https://example.com/logo.png"), anyInt())).thenReturn(icon);
+
+            renderer.render(new LiveUpdateState.Builder("order_1", LiveUpdateOperation.START)
+                    .iconUrl("https://example.com/logo.png")
+                    .build());
+            renderer.render(new LiveUpdateState.Builder("order_2", LiveUpdateOperation.START)
+                    .iconUrl("https://example.com/logo.png")
+                    .build());
+
+            utils.verify(() -> NotificationUtils.tryGetBitmap(eq("https://example.com/logo.png"), anyInt()), times(1));
+        }
+        assertEquals(2, nm.getActiveNotifications().length);
+        assertNotNull(nm.getActiveNotifications()[0].getNotification().getLargeIcon());
+    }
+
+    // Verifies that an icon that failed to load is not downloaded again by every update.
+    @Test
+    public void render_failedIcon_notRetriedByUpdates() {
+        LiveUpdateNotificationRenderer renderer =
+                new LiveUpdateNotificationRenderer(new DefaultProgressStyleProvider(), 0);
+
+        try (MockedStatic<NotificationUtils> utils = mockStatic(NotificationUtils.class, CALLS_REAL_METHODS)) {
+            utils.when(() -> NotificationUtils.tryGetBitmap(anyString(), anyInt())).thenReturn(null);
+
+            for (int i = 0; i < 3; i++) {
+                renderer.render(new LiveUpdateState.Builder("order_1", LiveUpdateOperation.UPDATE)
+                        .iconUrl("https://example.com/broken.png")
+                        .progress(i)
+                        .build());
+            }
+
+            utils.verify(() -> NotificationUtils.tryGetBitmap(anyString(), anyInt()), times(1));
+        }
+        assertEquals(2, nm.getActiveNotifications()[0].getNotification().extras.getInt(Notification.EXTRA_PROGRESS));
+    }
+
+    // Verifies that an update with the same actions reuses their pending intents, and that actions an
+    // update no longer has are not left on the notification.
+    @Test
+    public void render_actionsReusedWhileUnchanged_droppedWhenRemoved() throws Exception {
+        com.pushwoosh.notification.Action a = new com.pushwoosh.notification.Action(
+                new org.json.JSONObject("{\"type\":\"BROADCAST\",\"title\":\"Cancel\",\"action\":\"com.app.CANCEL\"}"));
+        LiveUpdateNotificationRenderer renderer =
+                new LiveUpdateNotificationRenderer(new DefaultProgressStyleProvider(), 0);
+
+        renderer.render(new LiveUpdateState.Builder("order_1", LiveUpdateOperation.START)
+                .actions(java.util.Collections.singletonList(a))
+                .build());
+        Notification first = nm.getActiveNotifications()[0].getNotification();
+        renderer.render(new LiveUpdateState.Builder("order_1", LiveUpdateOperation.UPDATE)
+                .actions(java.util.Collections.singletonList(a))
+                .build());
+        Notification second = nm.getActiveNotifications()[0].getNotification();
+        renderer.render(new LiveUpdateState.Builder("order_1", LiveUpdateOperation.UPDATE)
+                .build());
+        Notification third = nm.getActiveNotifications()[0].getNotification();
+
+        assertSame(first.actions[0].actionIntent, second.actions[0].actionIntent);
+        assertTrue(third.actions == null || third.actions.length == 0);
+    }
+
+    // Verifies that a dismiss also drops a live update that waits for its render.
+    @Test
+    public void dismissAll_dropsPendingRender() {
+        LiveUpdateNotificationRenderer renderer =
+                new LiveUpdateNotificationRenderer(new DefaultProgressStyleProvider(), 60_000);
+
+        renderer.render(new LiveUpdateState.Builder("order_1", LiveUpdateOperation.START).title("v1").build());
+        renderer.render(new LiveUpdateState.Builder("order_1", LiveUpdateOperation.UPDATE).title("v2").build());
+        assertEquals(java.util.Collections.singletonList("order_1"), renderer.getQueueForTest().pendingIds());
+
+        renderer.dismissAll();
+
+        assertTrue(renderer.getQueueForTest().pendingIds().isEmpty());
+        assertEquals(0, nm.getActiveNotifications().length);
+    }
 }
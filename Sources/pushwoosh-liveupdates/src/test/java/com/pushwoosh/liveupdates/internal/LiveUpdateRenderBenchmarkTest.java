@@ -0,0 +1,106 @@
+package com.pushwoosh.liveupdates.internal;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.service.notification.StatusBarNotification;
+
+import com.pushwoosh.internal.platform.AndroidPlatformModule;
+import com.pushwoosh.liveupdates.LiveUpdateOperation;
+import com.pushwoosh.liveupdates.LiveUpdateState;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.logging.Logger;
+
+/**
+ * 50 live-update pushes a second spread over 10 activities for 4 seconds. Before
+ * {@link LiveUpdateRenderQueue} every push was one notify on the push thread, ten times the rate at
+ * which the system accepts notification updates from an app, so the updates above it were shed and
+ * a live update could stay on a stale state.
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.LEGACY)
+@Config(sdk = 36)
+public class LiveUpdateRenderBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(LiveUpdateRenderBenchmarkTest.class.getName());
+    private static final int ACTIVITIES = 10;
+    private static final int UPDATES_PER_SECOND = 50;
+    private static final int SECONDS = 4;
+
+    private NotificationManager nm;
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() {
+        // renders that wait for their turn run on the queue's thread, where static mocks are not seen
+        Context context = RuntimeEnvironment.getApplication();
+        AndroidPlatformModule.init(context, true);
+        nm = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+    }
+
+    @Test(timeout = 30_000)
+    public void fiftyUpdatesPerSecondAcrossTenActivities() throws Exception {
+        LiveUpdateNotificationRenderer renderer = new LiveUpdateNotificationRenderer(new DefaultProgressStyleProvider());
+        LiveUpdateRenderQueue queue = renderer.getQueueForTest();
+        int pushes = UPDATES_PER_SECOND * SECONDS;
+        long intervalNs = 1_000_000_000L / UPDATES_PER_SECOND;
+        long maxCallNs = 0;
+        long totalCallNs = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < pushes; i++) {
+            LiveUpdateState state = new LiveUpdateState.Builder("order_" + (i % ACTIVITIES),
+                    i < ACTIVITIES ? LiveUpdateOperation.START : LiveUpdateOperation.UPDATE)
+                    .title("Order " + (i % ACTIVITIES))
+                    .progress(i / ACTIVITIES)
+                    .build();
+            long callStart = System.nanoTime();
+            renderer.render(state);
+            long callNs = System.nanoTime() - callStart;
+            maxCallNs = Math.max(maxCallNs, callNs);
+            totalCallNs += callNs;
+
+            long sleepNs = start + (i + 1) * intervalNs - System.nanoTime();
+            if (sleepNs > 0) {
+                Thread.sleep(sleepNs / 1_000_000, (int) (sleepNs % 1_000_000));
+            }
+        }
+        while (!queue.pendingIds().isEmpty()) {
+            Thread.sleep(50);
+        }
+        Thread.sleep(200);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        int lastProgress = (pushes - 1) / ACTIVITIES;
+        StatusBarNotification[] shown = nm.getActiveNotifications();
+        assertEquals(ACTIVITIES, shown.length);
+        for (StatusBarNotification sbn : shown) {
+            assertEquals(sbn.getTag(), lastProgress, sbn.getNotification().extras.getInt(Notification.EXTRA_PROGRESS));
+        }
+        assertEquals(pushes, queue.getSubmittedCount());
+        // every push was either rendered or replaced by a later state of its activity
+        assertEquals(pushes, queue.getRenderedCount() + queue.getCoalescedCount());
+
+        LOG.info(String.format("%d pushes over %d activities in %.1f s", pushes, ACTIVITIES, elapsedSeconds));
+        LOG.info(String.format("%-35s %4d notify calls", "one notify per push (before)", pushes));
+        LOG.info(String.format("%-35s %4d notify calls, %d coalesced", "coalesced and paced (after)",
+                queue.getRenderedCount(), queue.getCoalescedCount()));
+        LOG.info(String.format("%-35s %.2f ms avg, %.2f ms max", "render() on the push thread",
+                totalCallNs / 1e6 / pushes, maxCallNs / 1e6));
+    }
+}
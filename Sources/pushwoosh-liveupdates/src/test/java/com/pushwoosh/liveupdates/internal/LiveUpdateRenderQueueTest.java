@@ -0,0 +1,175 @@
+package com.pushwoosh.liveupdates.internal;
+
+import static org.junit.Assert.*;
+
+import com.pushwoosh.liveupdates.LiveUpdateOperation;
+import com.pushwoosh.liveupdates.LiveUpdateState;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.LEGACY)
+@Config(sdk = 36)
+public class LiveUpdateRenderQueueTest {
+
+    // Verifies that the first state of an activity is posted on the calling thread.
+    @Test
+    public void submit_firstState_isPostedRightAway() {
+        RecordingTarget target = new RecordingTarget();
+        LiveUpdateRenderQueue queue = new LiveUpdateRenderQueue(target, 60_000);
+
+        queue.submit(state("order_1", LiveUpdateOperation.START, "v1"));
+
+        assertEquals(Collections.singletonList("post order_1 v1"), target.events());
+    }
+
+    // Verifies that updates coming within the interval collapse into the latest one, posted once the
+    // interval has passed.
+    @Test(timeout = 10_000)
+    public void submit_withinInterval_postsOnlyLatestState() throws Exception {
+        RecordingTarget target = new RecordingTarget();
+        LiveUpdateRenderQueue queue = new LiveUpdateRenderQueue(target, 200);
+
+        queue.submit(state("order_1", LiveUpdateOperation.START, "v1"));
+        queue.submit(state("order_1", LiveUpdateOperation.UPDATE, "v2"));
+        queue.submit(state("order_1", LiveUpdateOperation.UPDATE, "v3"));
+        assertEquals(Collections.singletonList("post order_1 v1"), target.events());
+
+        target.awaitEvents(2);
+        Thread.sleep(300);
+
+        assertEquals(Arrays.asList("post order_1 v1", "post order_1 v3"), target.events());
+        assertEquals(1, queue.getCoalescedCount());
+    }
+
+    // Verifies that an end drops the waiting update, so nothing is posted after the cancel.
+    @Test(timeout = 10_000)
+    public void end_dropsPendingUpdate() throws Exception {
+        RecordingTarget target = new RecordingTarget();
+        LiveUpdateRenderQueue queue = new LiveUpdateRenderQueue(target, 100);
+
+        queue.submit(state("order_1", LiveUpdateOperation.START, "v1"));
+        queue.submit(state("order_1", LiveUpdateOperation.UPDATE, "v2"));
+        queue.end("order_1");
+        Thread.sleep(300);
+
+        assertEquals(Arrays.asList("post order_1 v1", "cancel order_1"), target.events());
+        assertTrue(queue.pendingIds().isEmpty());
+    }
+
+    // Verifies that an update delivered after the end is dropped, and that a new start shows the
+    // activity again.
+    @Test
+    public void submit_afterEnd_isDroppedUntilStart() {
+        RecordingTarget target = new RecordingTarget();
+        LiveUpdateRenderQueue queue = new LiveUpdateRenderQueue(target, 0);
+
+        queue.submit(state("order_1", LiveUpdateOperation.START, "v1"));
+        queue.end("order_1");
+        queue.submit(state("order_1", LiveUpdateOperation.UPDATE, "late"));
+        queue.submit(state("order_1", LiveUpdateOperation.START, "again"));
+
+        assertEquals(Arrays.asList("post order_1 v1", "cancel order_1", "post order_1 again"), target.events());
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    // Verifies that an end coming while the activity is being posted returns without waiting for the
+    // post, and that the rendering thread cancels the activity only after the post.
+    @Test(timeout = 10_000)
+    public void end_duringPost_returnsAndCancelsAfterPost() throws Exception {
+        CountDownLatch posting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingTarget target = new RecordingTarget() {
+            @Override
+            public void post(LiveUpdateState state) {
+                posting.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.post(state);
+            }
+        };
+        LiveUpdateRenderQueue queue = new LiveUpdateRenderQueue(target, 0);
+
+        Thread pushThread = new Thread(() -> queue.submit(state("order_1", LiveUpdateOperation.START, "v1")));
+        pushThread.start();
+        posting.await();
+        queue.end("order_1");
+        assertTrue(target.events().isEmpty());
+        release.countDown();
+        pushThread.join();
+
+        assertEquals(Arrays.asList("post order_1 v1", "cancel order_1"), target.events());
+    }
+
+    // Verifies that the app never posts more than the system allows in a second, and that every
+    // activity still ends up with its state.
+    @Test(timeout = 10_000)
+    public void submit_manyActivities_staysWithinAppRate() throws Exception {
+        RecordingTarget target = new RecordingTarget();
+        LiveUpdateRenderQueue queue = new LiveUpdateRenderQueue(target, 0);
+
+        for (int i = 0; i < 8; i++) {
+            queue.submit(state("order_" + i, LiveUpdateOperation.START, "v1"));
+        }
+        assertEquals(LiveUpdateRenderQueue.APP_RENDERS_PER_SECOND, target.events().size());
+
+        target.awaitEvents(8);
+        List<Long> times = target.postTimes();
+        for (int i = LiveUpdateRenderQueue.APP_RENDERS_PER_SECOND; i < times.size(); i++) {
+            long window = times.get(i) - times.get(i - LiveUpdateRenderQueue.APP_RENDERS_PER_SECOND);
+            assertTrue("window " + window + " ms", window >= 990);
+        }
+    }
+
+    static LiveUpdateState state(String activityId, LiveUpdateOperation operation, String title) {
+        return new LiveUpdateState.Builder(activityId, operation).title(title).build();
+    }
+
+    static class RecordingTarget implements LiveUpdateRenderQueue.Target {
+        private final List<String> events = new ArrayList<>();
+        private final List<Long> postTimes = new ArrayList<>();
+
+        @Override
+        public void post(LiveUpdateState state) {
+            synchronized (this) {
+                events.add("post " + state.getActivityId() + " " + state.getTitle());
+                postTimes.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+                notifyAll();
+            }
+        }
+
+        @Override
+        public synchronized void cancel(String activityId) {
+            events.add("cancel " + activityId);
+            notifyAll();
+        }
+
+        synchronized List<String> events() {
+            return new ArrayList<>(events);
+        }
+
+        synchronized List<Long> postTimes() {
+            return new ArrayList<>(postTimes);
+        }
+
+        synchronized void awaitEvents(int count) throws InterruptedException {
+            while (events.size() < count) {
+                wait();
+            }
+        }
+    }
+}
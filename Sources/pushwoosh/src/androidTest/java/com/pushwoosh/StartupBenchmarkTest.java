@@ -0,0 +1,45 @@
+package com.pushwoosh;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.pushwoosh.internal.StartupTrace;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * On-device cold-start benchmark of the SDK.
+ * <p>
+ * The test process is started cold and {@code PushwooshInitProvider} initializes the SDK before
+ * the application is created, exactly as in an app, so {@link StartupTrace} holds the stages of that
+ * start. The time {@code PushwooshInitProvider} kept the main thread and every stage go to logcat
+ * under the {@code StartupBenchmark} tag. Run with {@code -e class com.pushwoosh.StartupBenchmarkTest}
+ * so that no other test starts the process first.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmarkTest {
+    private static final String TAG = "StartupBenchmark";
+
+    @Test
+    public void coldStartStages() {
+        assertNotNull(PushwooshPlatform.getInstance());
+
+        StartupTrace trace = StartupTrace.getInstance();
+        List<StartupTrace.Stage> stages = trace.getStages();
+        assertFalse("SDK was not started by PushwooshInitProvider", stages.isEmpty());
+
+        Log.i(TAG, String.format(Locale.US, "main thread %.2f ms", trace.getMainThreadNanos() / 1e6));
+        for (StartupTrace.Stage stage : stages) {
+            Log.i(TAG, String.format(Locale.US, "%-20s %8.2f ms %s",
+                    stage.getName(), stage.getDurationNanos() / 1e6, stage.getThreadName()));
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.pushwoosh.inapp.view;
+
+import android.app.Activity;
+
+/**
+ * Empty activity the WebView benchmarks present their WebViews in.
+ */
+public class WebViewHostActivity extends Activity {
+}
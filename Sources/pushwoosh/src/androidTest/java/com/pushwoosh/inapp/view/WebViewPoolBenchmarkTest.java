@@ -0,0 +1,120 @@
+package com.pushwoosh.inapp.view;
+
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-device benchmark of time to first paint of a rich media: from asking {@link WebViewPool} for a
+ * WebView to the loaded page being drawn.
+ * <p>
+ * "cold" is the first WebView of the process, which loads and starts Chromium, what a rich media
+ * opened from a push pays without preloading. "new" is a WebView created once Chromium is running,
+ * "warm" is the WebView preloaded while the main thread was idle. Results go to logcat under the
+ * {@code WebViewPoolBenchmark} tag. Run with {@code -e class com.pushwoosh.inapp.view.WebViewPoolBenchmarkTest}
+ * so that no other test creates a WebView in the process first.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WebViewPoolBenchmarkTest {
+    private static final String TAG = "WebViewPoolBenchmark";
+    private static final String HTML = "<html><body style=\"background:#2196F3\">"
+            + "<h1>Rich media</h1><p>Time to first paint</p></body></html>";
+
+    private Context context;
+    private WebViewPool pool;
+    private ActivityScenario<WebViewHostActivity> scenario;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        pool = new WebViewPool();
+        scenario = ActivityScenario.launch(WebViewHostActivity.class);
+    }
+
+    @After
+    public void tearDown() {
+        scenario.onActivity(activity -> pool.resetForTesting());
+        scenario.close();
+    }
+
+    @Test
+    public void timeToFirstPaint() throws Exception {
+        long cold = present();
+        long created = present();
+
+        scenario.onActivity(activity -> pool.enable(context));
+        AtomicBoolean warmedUp = new AtomicBoolean();
+        long deadline = SystemClock.elapsedRealtime() + TimeUnit.SECONDS.toMillis(10);
+        while (!warmedUp.get() && SystemClock.elapsedRealtime() < deadline) {
+            Thread.sleep(50);
+            scenario.onActivity(activity -> warmedUp.set(pool.hasWarmWebView()));
+        }
+        assertTrue("WebView was not preloaded", warmedUp.get());
+        long warm = present();
+
+        Log.i(TAG, String.format(Locale.US, "%-40s %6d ms", "cold (first WebView of the process)", cold));
+        Log.i(TAG, String.format(Locale.US, "%-40s %6d ms", "new WebView (Chromium running)", created));
+        Log.i(TAG, String.format(Locale.US, "%-40s %6d ms", "warm (preloaded WebView)", warm));
+        Log.i(TAG, String.format(Locale.US, "%-40s %6d ms", "preload on the idle main thread", pool.getLastWarmUpMs()));
+    }
+
+    /**
+     * Shows {@link #HTML} in the activity the way {@link ResourceWebView} does and releases the
+     * WebView once it is drawn.
+     *
+     * @return milliseconds from acquiring the WebView to the first paint of the page
+     */
+    private long present() throws InterruptedException {
+        CountDownLatch painted = new CountDownLatch(1);
+        AtomicLong firstPaintMs = new AtomicLong();
+        WebView[] shown = new WebView[1];
+
+        scenario.onActivity(activity -> {
+            long start = SystemClock.elapsedRealtime();
+            WebView webView = pool.acquire(activity);
+            webView.setWebViewClient(new WebViewClient() {
+                @Override
+                public void onPageFinished(WebView view, String url) {
+                    view.postVisualStateCallback(0, new WebView.VisualStateCallback() {
+                        @Override
+                        public void onComplete(long requestId) {
+                            firstPaintMs.set(SystemClock.elapsedRealtime() - start);
+                            painted.countDown();
+                        }
+                    });
+                }
+            });
+            activity.setContentView(webView, new ViewGroup.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            webView.loadDataWithBaseURL(null, HTML, "text/html", "UTF-8", null);
+            shown[0] = webView;
+        });
+
+        assertTrue("page was not drawn", painted.await(30, TimeUnit.SECONDS));
+        scenario.onActivity(activity -> {
+            ((ViewGroup) shown[0].getParent()).removeView(shown[0]);
+            pool.release(shown[0]);
+        });
+        return firstPaintMs.get();
+    }
+}
@@ -0,0 +1,96 @@
+package com.pushwoosh.repository;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * On-device benchmark of push-receive-to-stored latency: time to persist an incoming push bundle
+ * and to read it back when the notification is opened.
+ * <p>
+ * The "reopen" run closes the helper after every operation, which is what each call used to do,
+ * the "persistent" run keeps the connection and compiled statements. Results go to logcat
+ * under the {@code PushBundleBenchmark} tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PushBundleStorageBenchmarkTest {
+    private static final String TAG = "PushBundleBenchmark";
+    private static final String DB_NAME = "pushBundleDb.db";
+    private static final int PUSHES = 300;
+
+    private Context context;
+    private PushBundleStorageImpl storage;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        storage = new PushBundleStorageImpl(context);
+    }
+
+    @After
+    public void tearDown() {
+        storage.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    private static Bundle pushBundle(int i) {
+        Bundle bundle = new Bundle();
+        bundle.putString("pw_msg", "1");
+        bundle.putString("p", "hash-" + i);
+        bundle.putString("title", "Flash sale " + i);
+        bundle.putString("header", "Only today");
+        bundle.putString("u", "{\"campaign\":\"spring\",\"deeplink\":\"app://sale/" + i + "\"}");
+        bundle.putString("pw_msg_tag", "tag-" + (i % 10));
+        return bundle;
+    }
+
+    private long[] run(boolean reopen) throws Exception {
+        long[] putNanos = new long[PUSHES];
+        long[] getNanos = new long[PUSHES];
+        for (int i = 0; i < PUSHES; i++) {
+            Bundle bundle = pushBundle(i);
+
+            long start = System.nanoTime();
+            long id = storage.putPushBundle(bundle);
+            putNanos[i] = System.nanoTime() - start;
+            if (reopen) {
+                storage.close();
+            }
+
+            start = System.nanoTime();
+            Bundle stored = storage.getPushBundle(id);
+            getNanos[i] = System.nanoTime() - start;
+            if (reopen) {
+                storage.close();
+            }
+            assertEquals(bundle.getString("p"), stored.getString("p"));
+        }
+        Arrays.sort(putNanos);
+        Arrays.sort(getNanos);
+        Log.i(TAG, String.format(Locale.US, "%-10s put p50 %5d us p95 %5d us | get p50 %5d us p95 %5d us",
+                reopen ? "reopen" : "persistent",
+                putNanos[PUSHES / 2] / 1000, putNanos[PUSHES * 95 / 100] / 1000,
+                getNanos[PUSHES / 2] / 1000, getNanos[PUSHES * 95 / 100] / 1000));
+        return new long[]{putNanos[PUSHES / 2], getNanos[PUSHES / 2]};
+    }
+
+    @Test
+    public void pushReceiveToStoredLatency() throws Exception {
+        run(true);
+        run(false);
+    }
+}
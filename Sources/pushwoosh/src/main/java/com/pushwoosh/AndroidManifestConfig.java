@@ -78,8 +78,12 @@ class AndroidManifestConfig implements Config {
     private boolean isCollectingLifecycleEventsAllowed = true;
     private boolean shouldShowFullscreenRichMedia = false;
     private boolean reverseProxyAllowed = false;
+    private boolean requestCompressionEnabled = false;
+    private boolean webViewPreloadEnabled = false;
     private int idleTimeoutSeconds = 0;
     private int exitIntentTimeoutSeconds = 0;
+    private int pushStatisticsBatchSize = 0;
+    private int pushStatisticsFlushIntervalMillis = 0;
 
     @IdRes
     private int notificationIcon = 0;
@@ -137,6 +141,8 @@ class AndroidManifestConfig implements Config {
         shouldShowFullscreenRichMedia =
                 applicationInfo.metaData.getBoolean("com.pushwoosh.show_fullscreen_richmedia", true);
         reverseProxyAllowed = applicationInfo.metaData.getBoolean("com.pushwoosh.allow_reverse_proxy", false);
+        requestCompressionEnabled = applicationInfo.metaData.getBoolean("com.pushwoosh.gzip_requests", false);
+        webViewPreloadEnabled = applicationInfo.metaData.getBoolean("com.pushwoosh.preload_webview", false);
 
         String notificationIconPath = applicationInfo.metaData.getString("com.pushwoosh.notification_icon");
         if (notificationIconPath != null) {
@@ -183,6 +189,9 @@ class AndroidManifestConfig implements Config {
 
         idleTimeoutSeconds = applicationInfo.metaData.getInt("com.pushwoosh.idle_timeout_seconds", 0);
         exitIntentTimeoutSeconds = applicationInfo.metaData.getInt("com.pushwoosh.exit_intent_timeout_seconds", 0);
+        pushStatisticsBatchSize = applicationInfo.metaData.getInt("com.pushwoosh.push_stats_batch_size", 0);
+        pushStatisticsFlushIntervalMillis =
+                applicationInfo.metaData.getInt("com.pushwoosh.push_stats_flush_interval_ms", 0);
 
         boolean isCollectingDeviceDataAllowed =
                 applicationInfo.metaData.getBoolean("com.pushwoosh.allow_collecting_device_data", true);
@@ -397,6 +406,16 @@ class AndroidManifestConfig implements Config {
         return reverseProxyAllowed;
     }
 
+    @Override
+    public boolean isRequestCompressionEnabled() {
+        return requestCompressionEnabled;
+    }
+
+    @Override
+    public boolean isWebViewPreloadEnabled() {
+        return webViewPreloadEnabled;
+    }
+
     @Override
     public int getIdleTimeoutSeconds() {
         return idleTimeoutSeconds;
@@ -406,4 +425,14 @@ class AndroidManifestConfig implements Config {
     public int getExitIntentTimeoutSeconds() {
         return exitIntentTimeoutSeconds;
     }
+
+    @Override
+    public int getPushStatisticsBatchSize() {
+        return pushStatisticsBatchSize;
+    }
+
+    @Override
+    public int getPushStatisticsFlushIntervalMillis() {
+        return pushStatisticsFlushIntervalMillis;
+    }
 }
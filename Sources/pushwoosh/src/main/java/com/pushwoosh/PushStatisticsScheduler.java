@@ -3,16 +3,23 @@ package com.pushwoosh;
 import android.os.Bundle;
 import android.text.TextUtils;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.work.BackoffPolicy;
 import androidx.work.Constraints;
 import androidx.work.Data;
 import androidx.work.ExistingWorkPolicy;
 import androidx.work.OneTimeWorkRequest;
 
+import com.pushwoosh.internal.utils.Config;
 import com.pushwoosh.internal.utils.PWLog;
 import com.pushwoosh.notification.PushBundleDataProvider;
+import com.pushwoosh.repository.PushStatisticsStorage;
+import com.pushwoosh.repository.RepositoryModule;
 
+import java.util.Collections;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -39,6 +46,10 @@ import java.util.concurrent.TimeUnit;
  * <li>Open events use exponential backoff with slower retry intervals (30s initial delay)</li>
  * </ul>
  * <p>
+ * Events are appended to the durable {@link PushStatisticsStorage} queue and drained in
+ * batches by one coalescing job per event type, so a burst of pushes during a broadcast
+ * campaign does not spin up a WorkManager job per push.
+ * <p>
  * The scheduler integrates with {@link PushBundleDataProvider} to extract push notification
  * metadata and with {@link PushwooshWorkManagerHelper} to manage WorkManager constraints
  * and task scheduling policies.
@@ -54,8 +65,17 @@ public class PushStatisticsScheduler {
     /** Maximum initial delay in milliseconds to spread server load while avoiding device sleep. */
     private static final int MAX_INITIAL_DELAY_MILLIS = 2500;
 
+    /** Default maximum number of events sent by one statistics job. */
+    static final int DEFAULT_BATCH_SIZE = 50;
+
+    /** Prefix of the unique work name of the coalescing statistics job. */
+    private static final String FLUSH_WORK_NAME_PREFIX = "PushStatisticsFlush_";
+
     /** Random instance for generating jitter delays. */
     private static final Random RANDOM = new Random();
+
+    /** Event types with a flush job enqueued by this process that has not started reading the queue yet. */
+    private static final Set<String> WAITING_FLUSHES = Collections.newSetFromMap(new ConcurrentHashMap<>());
     
     /**
      * Schedules a push notification delivery event for reliable statistics reporting.
@@ -123,10 +143,14 @@ public class PushStatisticsScheduler {
     /**
      * Public method for scheduling statistics events with WorkManager.
      * <p>
-     * This method creates a {@link OneTimeWorkRequest} for the {@link PushStatisticsWorker}
-     * with the provided event data, applies appropriate constraints and retry policies,
-     * and enqueues the work using {@link PushwooshWorkManagerHelper}.
-     * The method generates a work name combining event type, hash.
+     * The event is appended to the durable {@link PushStatisticsStorage} queue and a single
+     * coalescing {@link PushStatisticsWorker} job per event type is enqueued to drain it.
+     * Pushes that arrive while the job is pending join the same job instead of spawning
+     * their own WorkManager job, so a burst of N pushes costs one job per
+     * {@link #getBatchSize() batch} rather than N jobs.
+     * <p>
+     * If the queue is not available (e.g. no application context yet), the event falls back
+     * to a dedicated {@link OneTimeWorkRequest} with the unique work name {@code eventType_hash}.
      * <p>
      * Work constraints and backoff policies are configured based on event type:
      * <ul>
@@ -142,31 +166,143 @@ public class PushStatisticsScheduler {
     public static void scheduleStatisticsEvent(String eventType, String hash, String metadata) {
         PWLog.noise(TAG, "scheduleStatisticsEvent(), eventType: " + eventType + ", hash: " + hash + ", metadata: " + metadata);
         try {
-            // Clean and concise Data creation using helper method
-            Data inputData = PushStatisticsWorker.createInputData(eventType, hash, metadata);
-                    
-            OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(PushStatisticsWorker.class)
-                    .setInputData(inputData)
-                    .setConstraints(getStatisticsConstraints())
-                    .setInitialDelay(getJitterDelay(), TimeUnit.MILLISECONDS)
-                    .setBackoffCriteria(getBackoffPolicy(eventType), getInitialBackoffDelay(eventType), TimeUnit.SECONDS)
-                    .build();
-                    
-            String uniqueWorkName = eventType + "_" + hash;
-            
-            PushwooshWorkManagerHelper.enqueueOneTimeUniqueWork(
-                request, 
-                uniqueWorkName, 
-                ExistingWorkPolicy.KEEP
-            );
-            
-            PWLog.debug(TAG, "Successfully scheduled " + eventType + " event for hash: " + hash);
-            
+            PushStatisticsStorage storage = RepositoryModule.getPushStatisticsStorage();
+            if (storage == null || !storage.add(eventType, hash, metadata)) {
+                scheduleSingleEvent(eventType, hash, metadata);
+                return;
+            }
+
+            scheduleFlush(eventType, getJitterDelay(), getFlushPolicy(eventType));
+
+            PWLog.debug(TAG, "Successfully queued " + eventType + " event for hash: " + hash);
+
         } catch (Exception e) {
             PWLog.error(TAG, "Failed to schedule " + eventType + " event", e);
         }
     }
-    
+
+    /**
+     * Schedules a flush for every event type that still has queued events.
+     * <p>
+     * Called on SDK start so that events queued by a previous process are delivered
+     * even if no new push arrives.
+     */
+    public static void schedulePendingEvents() {
+        PWLog.noise(TAG, "schedulePendingEvents()");
+        try {
+            PushStatisticsStorage storage = RepositoryModule.getPushStatisticsStorage();
+            if (storage == null) {
+                return;
+            }
+            for (String eventType : new String[]{PushStatisticsWorker.EVENT_DELIVERY, PushStatisticsWorker.EVENT_OPEN}) {
+                if (storage.count(eventType) > 0) {
+                    scheduleFlush(eventType, getJitterDelay(), getFlushPolicy(eventType));
+                }
+            }
+        } catch (Exception e) {
+            PWLog.error(TAG, "Failed to schedule pending statistics events", e);
+        }
+    }
+
+    /**
+     * Enqueues the coalescing {@link PushStatisticsWorker} job that drains queued events of the given type.
+     *
+     * @param eventType the type of statistics event
+     * @param delayMillis initial delay of the job
+     * @param policy {@link ExistingWorkPolicy#KEEP} to join a pending job,
+     *               {@link ExistingWorkPolicy#APPEND_OR_REPLACE} to run after the job currently running
+     */
+    static void scheduleFlush(String eventType, long delayMillis, ExistingWorkPolicy policy) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(PushStatisticsWorker.class)
+                .setInputData(PushStatisticsWorker.createBatchInputData(eventType))
+                .setConstraints(getStatisticsConstraints())
+                .setInitialDelay(delayMillis, TimeUnit.MILLISECONDS)
+                .setBackoffCriteria(getBackoffPolicy(eventType), getInitialBackoffDelay(eventType), TimeUnit.SECONDS)
+                .build();
+
+        // marked before the job can start, so that the mark never outlives the job's read of the queue
+        WAITING_FLUSHES.add(eventType);
+        PushwooshWorkManagerHelper.enqueueOneTimeUniqueWork(request, getFlushWorkName(eventType), policy);
+    }
+
+    /**
+     * Called by the flush job right before it reads the queue: events queued from now on are not in its
+     * batch, so their flush is appended after it.
+     */
+    static void onFlushStarted(String eventType) {
+        WAITING_FLUSHES.remove(eventType);
+    }
+
+    /**
+     * Called by the flush job that will run again after a backoff and read the queue once more.
+     */
+    static void onFlushRetried(String eventType) {
+        WAITING_FLUSHES.add(eventType);
+    }
+
+    @VisibleForTesting
+    static void clearWaitingFlushes() {
+        WAITING_FLUSHES.clear();
+    }
+
+    static String getFlushWorkName(String eventType) {
+        return FLUSH_WORK_NAME_PREFIX + eventType;
+    }
+
+    /**
+     * @return maximum number of events sent by one {@link PushStatisticsWorker} run,
+     *         configured with {@code com.pushwoosh.push_stats_batch_size}
+     */
+    static int getBatchSize() {
+        Config config = getConfig();
+        int batchSize = config != null ? config.getPushStatisticsBatchSize() : 0;
+        return batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * A new event joins a flush job with {@link ExistingWorkPolicy#KEEP} only while that job is known to be
+     * waiting to read the queue. Otherwise a job of this type may be running, past reading its batch or about
+     * to finish, and {@code KEEP} would drop the flush, so it is appended to run right after that job.
+     */
+    private static ExistingWorkPolicy getFlushPolicy(String eventType) {
+        return WAITING_FLUSHES.contains(eventType)
+                ? ExistingWorkPolicy.KEEP
+                : ExistingWorkPolicy.APPEND_OR_REPLACE;
+    }
+
+    /**
+     * Legacy per-event scheduling: one {@link OneTimeWorkRequest} per push identified by {@code eventType_hash}.
+     */
+    private static void scheduleSingleEvent(String eventType, String hash, String metadata) {
+        Data inputData = PushStatisticsWorker.createInputData(eventType, hash, metadata);
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(PushStatisticsWorker.class)
+                .setInputData(inputData)
+                .setConstraints(getStatisticsConstraints())
+                .setInitialDelay(getJitterDelay(), TimeUnit.MILLISECONDS)
+                .setBackoffCriteria(getBackoffPolicy(eventType), getInitialBackoffDelay(eventType), TimeUnit.SECONDS)
+                .build();
+
+        String uniqueWorkName = eventType + "_" + hash;
+
+        PushwooshWorkManagerHelper.enqueueOneTimeUniqueWork(
+            request,
+            uniqueWorkName,
+            ExistingWorkPolicy.KEEP
+        );
+
+        PWLog.debug(TAG, "Successfully scheduled " + eventType + " event for hash: " + hash);
+    }
+
+    private static Config getConfig() {
+        try {
+            PushwooshPlatform platform = PushwooshPlatform.getInstance();
+            return platform != null ? platform.getConfig() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     /**
      * Retrieves WorkManager constraints for statistics delivery tasks.
      * <p>
@@ -235,17 +371,22 @@ public class PushStatisticsScheduler {
     /**
      * Generates a random jitter delay to spread server load while avoiding device sleep.
      * <p>
-     * This method returns a random delay between 0 and {@link #MAX_INITIAL_DELAY_MILLIS}
-     * to prevent all devices from sending statistics requests simultaneously to the server.
-     * The delay is kept short (2.5 seconds) to prevent Android from putting the app into
+     * This method returns a random delay between 0 and the flush interval
+     * ({@link #MAX_INITIAL_DELAY_MILLIS} unless overridden with
+     * {@code com.pushwoosh.push_stats_flush_interval_ms}) to prevent all devices from sending
+     * statistics requests simultaneously to the server. Events received while the delay
+     * runs are sent by the same job.
+     * The default delay is kept short (2.5 seconds) to prevent Android from putting the app into
      * deep sleep mode (Doze Mode) which would delay or block network requests.
-     * <p>
-     * The 2500ms range provides 25 different 100ms intervals for load distribution
-     * while ensuring requests are sent before the device enters power saving modes.
      *
-     * @return random delay in milliseconds between 0 and MAX_INITIAL_DELAY_MILLIS (inclusive)
+     * @return random delay in milliseconds between 0 and the flush interval (inclusive)
      */
     private static int getJitterDelay() {
-        return RANDOM.nextInt(MAX_INITIAL_DELAY_MILLIS + 1);
+        Config config = getConfig();
+        int flushInterval = config != null ? config.getPushStatisticsFlushIntervalMillis() : 0;
+        if (flushInterval <= 0) {
+            flushInterval = MAX_INITIAL_DELAY_MILLIS;
+        }
+        return RANDOM.nextInt(flushInterval + 1);
     }
 }
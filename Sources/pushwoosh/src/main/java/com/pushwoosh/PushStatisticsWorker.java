@@ -5,6 +5,7 @@ import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
 import androidx.work.WorkerParameters;
 
 import com.pushwoosh.internal.SdkStateProvider;
@@ -12,7 +13,12 @@ import com.pushwoosh.internal.network.ConnectionException;
 import com.pushwoosh.internal.network.NetworkException;
 import com.pushwoosh.internal.utils.PWLog;
 import com.pushwoosh.internal.work.BasePushwooshWorker;
+import com.pushwoosh.repository.PushStatisticsStorage;
 import com.pushwoosh.repository.PushwooshRepository;
+import com.pushwoosh.repository.RepositoryModule;
+import com.pushwoosh.repository.util.PushStatisticsEvent;
+
+import java.util.List;
 
 /**
  * WorkManager Worker that handles reliable delivery of push notification statistics events.
@@ -22,6 +28,10 @@ import com.pushwoosh.repository.PushwooshRepository;
  * It ensures that critical push delivery and open events are reliably sent to the Pushwoosh
  * servers even when the app process is terminated or the device is in low-power state.
  * <p>
+ * Jobs scheduled by {@link PushStatisticsScheduler} carry {@link #DATA_BATCH} and drain the
+ * {@link PushStatisticsStorage} queue in batches; jobs carrying a single push hash (scheduled when
+ * the queue is unavailable or by earlier SDK versions) send that one event.
+ * <p>
  * The worker supports two types of events:
  * <ul>
  * <li>Delivery events - sent when a push notification is successfully delivered</li>
@@ -47,6 +57,8 @@ public class PushStatisticsWorker extends BasePushwooshWorker {
     public static final String DATA_PUSH_HASH = "DATA_PUSH_HASH";
     /** Key for the push notification metadata in WorkManager input data. */
     public static final String DATA_METADATA = "DATA_METADATA";
+    /** Key marking a job that drains the {@link PushStatisticsStorage} queue instead of sending a single event. */
+    public static final String DATA_BATCH = "DATA_BATCH";
 
     // Event types supported by this worker
     /** Event type constant for push notification delivery events. */
@@ -78,6 +90,20 @@ public class PushStatisticsWorker extends BasePushwooshWorker {
                 .build();
     }
 
+    /**
+     * Creates input data for the coalescing statistics WorkManager task that drains
+     * all queued events of the given type in batches.
+     *
+     * @param eventType the type of statistics event (EVENT_DELIVERY or EVENT_OPEN)
+     * @return Data object ready to be used with WorkManager requests
+     */
+    public static Data createBatchInputData(String eventType) {
+        return new Data.Builder()
+                .putString(DATA_EVENT_TYPE, eventType)
+                .putBoolean(DATA_BATCH, true)
+                .build();
+    }
+
     /**
      * Constructs a new PushStatisticsWorker.
      * <p>
@@ -120,6 +146,10 @@ public class PushStatisticsWorker extends BasePushwooshWorker {
     public Result doWork() {
         PWLog.noise(TAG, String.format("doWork(), %s attempt", getRunAttemptCount()));
         String eventType = getInputData().getString(DATA_EVENT_TYPE);
+        if (getInputData().getBoolean(DATA_BATCH, false)) {
+            return doBatchWork(eventType);
+        }
+
         String pushHash = getInputData().getString(DATA_PUSH_HASH);
         String metadata = getInputData().getString(DATA_METADATA);
 
@@ -174,6 +204,83 @@ public class PushStatisticsWorker extends BasePushwooshWorker {
         }
     }
 
+    /**
+     * Drains up to {@link PushStatisticsScheduler#getBatchSize()} queued events of the given type.
+     * <p>
+     * Each event keeps the single-event semantics of {@link #doWork()}: sent events and events
+     * failed with a non-retriable error are removed from the queue, while a retriable error
+     * (see {@link #shouldRetryException(NetworkException)}) increments the attempt counter of
+     * that event and stops the batch, so the rest of the queue is retried after WorkManager backoff.
+     * An event is dropped once it reaches {@link #MAX_RETRY_ATTEMPTS}.
+     * <p>
+     * If events remain after the batch, a follow-up job is appended to drain them.
+     *
+     * @param eventType the type of statistics event (EVENT_DELIVERY or EVENT_OPEN)
+     * @return {@link Result#success()} if the batch was processed,
+     *         {@link Result#retry()} if the SDK is not ready or an event should be retried,
+     *         {@link Result#failure()} if the event type is unknown or the queue is not available
+     */
+    private Result doBatchWork(String eventType) {
+        if (!EVENT_DELIVERY.equals(eventType) && !EVENT_OPEN.equals(eventType)) {
+            PWLog.warn(TAG, "Unknown event type: " + eventType);
+            return Result.failure();
+        }
+
+        if (!SdkStateProvider.getInstance().isReady()) {
+            return Result.retry();
+        }
+
+        PushStatisticsStorage storage = RepositoryModule.getPushStatisticsStorage();
+        if (storage == null) {
+            PWLog.error(TAG, "Push statistics storage is not available, " + eventType + " events not sent");
+            return Result.failure();
+        }
+
+        boolean shouldRetry = false;
+        PushStatisticsScheduler.onFlushStarted(eventType);
+        try {
+            List<PushStatisticsEvent> batch = storage.peek(eventType, PushStatisticsScheduler.getBatchSize());
+            PWLog.debug(TAG, String.format("Sending batch of %d %s events", batch.size(), eventType));
+            for (PushStatisticsEvent event : batch) {
+                com.pushwoosh.function.Result<Void, NetworkException> result =
+                        sendStatisticsEventSync(eventType, event.getHash(), event.getMetadata());
+                if (result.isSuccess()) {
+                    storage.remove(event.getRowId());
+                    continue;
+                }
+
+                NetworkException exception = result.getException();
+                if (exception != null && shouldRetryException(exception)) {
+                    if (storage.incrementAttempts(event.getRowId()) >= MAX_RETRY_ATTEMPTS) {
+                        PWLog.warn(TAG, "Max retry attempts reached for " + eventType + " event, giving up");
+                        storage.remove(event.getRowId());
+                        continue;
+                    }
+                    PWLog.debug(TAG, String.format("Will retry %s events due to: %s", eventType, exception.getMessage()));
+                    shouldRetry = true;
+                    break;
+                }
+
+                PWLog.warn(TAG, String.format("Failed to send %s event due to: %s", eventType,
+                        exception != null ? exception.getMessage() : null));
+                storage.remove(event.getRowId());
+            }
+        } catch (Throwable e) {
+            PWLog.error(TAG, "Failed to send statistics events: " + eventType, e);
+            shouldRetry = true;
+        }
+
+        if (shouldRetry) {
+            PushStatisticsScheduler.onFlushRetried(eventType);
+            return Result.retry();
+        }
+
+        if (storage.count(eventType) > 0) {
+            PushStatisticsScheduler.scheduleFlush(eventType, 0, ExistingWorkPolicy.APPEND_OR_REPLACE);
+        }
+        return Result.success();
+    }
+
     /**
      * Sends a push notification statistics event synchronously.
      * <p>
@@ -209,7 +316,7 @@ public class PushStatisticsWorker extends BasePushwooshWorker {
     /**
      * Determines whether a network exception should trigger a retry.
      * <p>
-     * This method implements smart retry logic adapted from RetriableRequestCallback:
+     * This method implements smart retry logic adapted from RetryEngine:
      * - Connection errors (network unavailable): retry with network constraints
      * - Server errors (5xx, 408, 429): retry with backoff
      * - Client errors (4xx): don't retry to save battery and server load
@@ -232,14 +339,14 @@ public class PushStatisticsWorker extends BasePushwooshWorker {
             return true;
         }
 
-        // Server errors - should retry (same logic as RetriableRequestCallback)
+        // Server errors - should retry (same logic as RetryEngine)
         return isRetriableServerError(networkStatus);
     }
 
     /**
      * Determines if an HTTP status code represents a server error that should be retried.
      * <p>
-     * Based on RetriableRequestCallback.isRetriableStatus(), this method identifies
+     * Based on RetryEngine.isServerUnavailable(), this method identifies
      * temporary server issues that are likely to resolve on retry:
      * - 408 Request Timeout
      * - 429 Too Many Requests
@@ -34,6 +34,7 @@ import com.pushwoosh.notification.PushMessage;
 import com.pushwoosh.notification.PushwooshNotificationManager;
 import com.pushwoosh.notification.event.RegistrationSuccessEvent;
 import com.pushwoosh.repository.NotificationPrefs;
+import com.pushwoosh.repository.PushHistoryStorage;
 import com.pushwoosh.repository.PushwooshRepository;
 import com.pushwoosh.repository.RegistrationPrefs;
 import com.pushwoosh.repository.RepositoryModule;
@@ -1500,7 +1501,10 @@ public class Pushwoosh {
             if (!ensureInitialized()) {
                 return;
             }
-            RepositoryModule.getNotificationPreferences().pushHistory().clear();
+            PushHistoryStorage pushHistoryStorage = RepositoryModule.getPushHistoryStorage();
+            if (pushHistoryStorage != null) {
+                pushHistoryStorage.clear();
+            }
         } catch (Exception e) {
             PWLog.error("Pushwoosh", "can't clear push history", e);
         }
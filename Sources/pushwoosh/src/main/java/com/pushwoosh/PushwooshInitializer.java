@@ -31,8 +31,11 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Build;
 
+import com.pushwoosh.inapp.view.WebViewPool;
+import com.pushwoosh.internal.StartupTrace;
 import com.pushwoosh.internal.platform.AndroidPlatformModule;
 import com.pushwoosh.internal.specific.DeviceSpecificProvider;
+import com.pushwoosh.internal.utils.BackgroundExecutor;
 import com.pushwoosh.internal.utils.LockScreenReceiver;
 import com.pushwoosh.internal.utils.PWLog;
 
@@ -63,7 +66,12 @@ public class PushwooshInitializer {
 
         }
 
+        StartupTrace trace = StartupTrace.getInstance();
+        StartupTrace.Section initSection = trace.begin("init");
+
+        StartupTrace.Section section = trace.begin("platformModule");
         AndroidPlatformModule.init(context);
+        section.end();
 
         // initialize Firebase PushRegistrar in Xamarin plugin:
         // must be removed in the PUSH-27936
@@ -71,13 +79,16 @@ public class PushwooshInitializer {
 
         if (DeviceSpecificProvider.getInstance() == null) {
             ManifestValidator.scheduleValidation();
+            initSection.end();
             return;
         }
 
+        section = trace.begin("manifestConfig");
         AndroidManifestConfig config = new AndroidManifestConfig();
         if (lazy) {
             config.setLazySdkInitialization(false);
         }
+        section.end();
 
         PushwooshPlatform pushwooshPlatform = new PushwooshPlatform.Builder()
                 .setConfig(config)
@@ -85,13 +96,31 @@ public class PushwooshInitializer {
                 .build();
 
         if (config.isLazySdkInitialization()) {
+            initSection.end();
             return;
         }
+        section = trace.begin("applicationCreated");
         pushwooshPlatform.onApplicationCreated();
         AndroidPlatformModule.getApplicationOpenDetector()
                 .onApplicationCreated(pushwooshPlatform.getAppVersionProvider().isFirstLaunch());
+        section.end();
+
+        // the receiver only handles broadcasts sent after the screen is locked, it doesn't have to be
+        // registered before the application is created
+        BackgroundExecutor.executeOnPool(() -> registerLockScreenReceiver(context));
 
-        // lock screen receiver
+        if (config.isWebViewPreloadEnabled()) {
+            // the WebView itself is created once the main thread is idle
+            BackgroundExecutor.main(() -> WebViewPool.getInstance().enable(context));
+        }
+
+        ManifestValidator.scheduleValidation();
+        initSection.end();
+        trace.logSummary();
+    }
+
+    private static void registerLockScreenReceiver(Context context) {
+        StartupTrace.Section section = StartupTrace.getInstance().begin("lockScreenReceiver");
         LockScreenReceiver lockScreenReceiver = new LockScreenReceiver();
         IntentFilter filter = new IntentFilter(Intent.ACTION_SCREEN_ON);
         filter.addAction(Intent.ACTION_SCREEN_OFF);
@@ -102,8 +131,7 @@ public class PushwooshInitializer {
         } else {
             context.registerReceiver(lockScreenReceiver, filter);
         }
-
-        ManifestValidator.scheduleValidation();
+        section.end();
     }
 
     private static void initFirebaseInXamarinPlugin(Context context) {
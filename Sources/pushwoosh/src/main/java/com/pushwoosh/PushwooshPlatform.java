@@ -7,6 +7,7 @@ import com.pushwoosh.inapp.PushwooshInAppImpl;
 import com.pushwoosh.inapp.PushwooshInAppServiceImpl;
 import com.pushwoosh.inapp.view.strategy.ResourceViewStrategyFactory;
 import com.pushwoosh.internal.PushRegistrarHelper;
+import com.pushwoosh.internal.StartupTrace;
 import com.pushwoosh.internal.network.NetworkModule;
 import com.pushwoosh.internal.network.RequestManager;
 import com.pushwoosh.internal.network.ServerCommunicationManager;
@@ -89,22 +90,33 @@ public class PushwooshPlatform {
     }
 
     private PushwooshPlatform(Builder builder) {
+        StartupTrace trace = StartupTrace.getInstance();
+        StartupTrace.Section platformSection = trace.begin("platform");
         UUIDFactory = new UUIDFactory();
         config = builder.config;
         deviceRegistrar = new DeviceRegistrar();
+        StartupTrace.Section section = trace.begin("repositoryModule");
         RepositoryModule.init(config, deviceRegistrar);
+        section.end();
         PWLog.init();
         registrationPrefs = RepositoryModule.getRegistrationPreferences();
         serverCommunicationManager = new ServerCommunicationManager();
 
-        NetworkModule.init(registrationPrefs, serverCommunicationManager, config.isReverseProxyAllowed());
+        NetworkModule.init(
+                registrationPrefs,
+                serverCommunicationManager,
+                config.isReverseProxyAllowed(),
+                config.isRequestCompressionEnabled());
 
+        section = trace.begin("notificationManager");
         notificationManager = new PushwooshNotificationManager(builder.pushRegistrar, config);
+        section.end();
+        // in-app repository and storage are built on first use
         pushwooshInApp = new PushwooshInAppImpl(new PushwooshInAppServiceImpl(), serverCommunicationManager);
         pushMessageFactory = new PushMessageFactory();
 
         appVersionProvider =
-                new AppVersionProvider(AndroidPlatformModule.getPrefsProvider().providePrefs("PWAppVersion"));
+                new AppVersionProvider(AndroidPlatformModule.getPrefsProvider().providePrefs(AppVersionProvider.PREFS_NAME));
 
         RequestManager requestManager = NetworkModule.getRequestManager();
         SendTagsProcessor sendTagsProcessor = new SendTagsProcessor();
@@ -132,6 +144,7 @@ public class PushwooshPlatform {
                 pushwooshDefaultEvents,
                 pushRegistrarHelper,
                 DeviceUtils::getDeviceUUID);
+        platformSection.end();
     }
 
     public static PushwooshPlatform getInstance() {
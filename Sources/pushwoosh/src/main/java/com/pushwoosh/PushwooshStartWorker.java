@@ -5,10 +5,13 @@ import android.text.TextUtils;
 import androidx.annotation.VisibleForTesting;
 
 import com.pushwoosh.appevents.PushwooshDefaultEvents;
+import com.pushwoosh.inapp.InAppModule;
 import com.pushwoosh.inapp.PushwooshInAppImpl;
+import com.pushwoosh.inapp.network.InAppRepository;
 import com.pushwoosh.internal.Plugin;
 import com.pushwoosh.internal.PushRegistrarHelper;
 import com.pushwoosh.internal.SdkStateProvider;
+import com.pushwoosh.internal.StartupTrace;
 import com.pushwoosh.internal.event.AppIdChangedEvent;
 import com.pushwoosh.internal.event.EventBus;
 import com.pushwoosh.internal.event.EventListener;
@@ -144,6 +147,7 @@ public class PushwooshStartWorker {
 
         // when all tasks are ready => start sdk finally
         sdkExecutor.submit(() -> {
+            StartupTrace.Section section = StartupTrace.getInstance().begin("sdkReady");
             try {
                 PWLog.debug(TAG, "Waiter task is waiting for latch...");
                 latch.await();
@@ -155,6 +159,7 @@ public class PushwooshStartWorker {
                 } else {
                     try {
                         SdkStateProvider.getInstance().setReady();
+                        section.end();
                         long initializeDuration = System.currentTimeMillis() - initializeStartTime;
                         PWLog.info(TAG, "Pushwoosh SDK started successfully, duration: " + initializeDuration + "ms");
                         start();
@@ -249,8 +254,10 @@ public class PushwooshStartWorker {
      */
     private void fetchDeviceHwidAsync(CountDownLatch latch, AtomicBoolean hasFailed) {
         PWLog.noise(TAG, "fetchDeviceHwidAsync()");
+        StartupTrace.Section section = StartupTrace.getInstance().begin("hwid");
         try {
             deviceUuidGetter.getDeviceUUID(value -> {
+                section.end();
                 PWLog.debug(TAG, "fetched device hwid: " + value);
                 try {
                     preferences.hwid().set(value);
@@ -350,6 +357,12 @@ public class PushwooshStartWorker {
         } catch (Throwable e) {
             PWLog.error(TAG, "an error occurred during start", e);
         }
+        PushStatisticsScheduler.schedulePendingEvents();
+        pushwooshRepository.sendPendingTags();
+        InAppRepository inAppRepository = InAppModule.getInAppRepository();
+        if (inAppRepository != null) {
+            inAppRepository.sendPendingEvents();
+        }
     }
 
     /**
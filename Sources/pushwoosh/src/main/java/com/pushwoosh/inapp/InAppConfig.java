@@ -1,40 +1,59 @@
 package com.pushwoosh.inapp;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
 import com.pushwoosh.inapp.storage.InAppFolderProvider;
 import com.pushwoosh.inapp.view.config.ModalRichmediaConfig;
-import com.pushwoosh.inapp.view.config.enums.ModalRichMediaDismissAnimationType;
-import com.pushwoosh.inapp.view.config.enums.ModalRichMediaPresentAnimationType;
-import com.pushwoosh.inapp.view.config.enums.ModalRichMediaSwipeGesture;
-import com.pushwoosh.inapp.view.config.enums.ModalRichMediaViewPosition;
 import com.pushwoosh.internal.utils.FileUtils;
 import com.pushwoosh.internal.utils.PWLog;
 import com.pushwoosh.repository.RepositoryModule;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
 
+/**
+ * Reads {@code pushwoosh.json} of an in-app: its localized strings and modal style settings.
+ *
+ * <p>{@link #parseLocalizedStrings} and {@link #parseModalConfig} parse the file on every call. Rendering
+ * goes through {@link #getLocalizedStrings} and {@link #getModalConfig} instead, which use the bundle
+ * compiled when the in-app was deployed ({@link #compile}): it is kept next to {@code pushwoosh.json} and
+ * in a small in-memory cache keyed by in-app code, and is compiled again once the {@code updated}
+ * timestamp of the in-app or the file itself changes.
+ */
 public class InAppConfig {
     private static final String TAG = "[InApp]InAppConfig";
 
-    private static class Column {
-        static final String KEY_LOCALIZATION = "localization";
-        static final String KEY_DEFAULT_LANGUAGE = "default_language";
-        static final String KEY_MODAL_POSITION = "position";
-        static final String KEY_PRESENT_ANIMATION = "present_animation";
-        static final String KEY_DISMISS_ANIMATION = "dismiss_animation";
-        static final String KEY_SWIPE_TO_DISMISS = "swipe_to_dismiss";
-        static final String KEY_ANIMATION_DURATION = "animation_duration";
+    private static final String COMPILED_SUFFIX = ".bin";
+
+    private static final int CACHE_SIZE = 8;
+    private static final Map<String, Compiled> CACHE =
+            new LinkedHashMap<String, Compiled>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Compiled> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private static final class Compiled {
+        final long stamp;
+        // null if the in-app has no usable pushwoosh.json
+        @Nullable final InAppConfigBundle bundle;
+
+        Compiled(long stamp, @Nullable InAppConfigBundle bundle) {
+            this.stamp = stamp;
+            this.bundle = bundle;
+        }
     }
 
     private InAppFolderProvider inAppFolderProvider;
@@ -43,149 +62,185 @@ public class InAppConfig {
         this.inAppFolderProvider = inAppFolderProvider;
     }
 
-    private void parseModalPosition(JSONObject json, ModalRichmediaConfig config) {
-        if (json.has(Column.KEY_MODAL_POSITION)) {
-            try {
-                String position = json.getString(Column.KEY_MODAL_POSITION);
-                ModalRichMediaViewPosition pos = ModalRichMediaViewPosition.fromString(position);
-                if (pos != null) {
-                    config.setViewPosition(pos);
-                }
-            } catch (JSONException e) {
-                PWLog.warn(TAG, "Failed to parse " + Column.KEY_MODAL_POSITION + ": " + e.getMessage());
-            }
-        }
+    @WorkerThread
+    public Map<String, String> parseLocalizedStrings(String code) throws IOException, JSONException {
+        File configFile = inAppFolderProvider.getConfigFile(code);
+        String content = FileUtils.readFile(configFile);
+        return InAppConfigBundle.parse(content).getLocalizedStrings(preferredLanguage());
     }
 
-    private void parsePresentAnimation(JSONObject json, ModalRichmediaConfig config) {
-        if (json.has(Column.KEY_PRESENT_ANIMATION)) {
-            try {
-                String animation = json.getString(Column.KEY_PRESENT_ANIMATION);
-                ModalRichMediaPresentAnimationType anim = ModalRichMediaPresentAnimationType.fromString(animation);
-                if (anim != null) {
-                    config.setPresentAnimationType(anim);
-                }
-            } catch (JSONException e) {
-                PWLog.warn(TAG, "Failed to parse " + Column.KEY_PRESENT_ANIMATION + ": " + e.getMessage());
-            }
+    @WorkerThread
+    public ModalRichmediaConfig parseModalConfig(String code) throws IOException {
+        PWLog.noise(TAG, "parseModalConfig started for code: " + code);
+
+        File configFile = inAppFolderProvider.getConfigFile(code);
+        if (!configFile.exists()) {
+            return null;
         }
-    }
 
-    private void parseDismissAnimation(JSONObject json, ModalRichmediaConfig config) {
-        if (json.has(Column.KEY_DISMISS_ANIMATION)) {
-            try {
-                String animation = json.getString(Column.KEY_DISMISS_ANIMATION);
-                ModalRichMediaDismissAnimationType anim = ModalRichMediaDismissAnimationType.fromString(animation);
-                if (anim != null) {
-                    config.setDismissAnimationType(anim);
-                }
-            } catch (JSONException e) {
-                PWLog.warn(TAG, "Failed to parse " + Column.KEY_DISMISS_ANIMATION + ": " + e.getMessage());
+        try {
+            String content = FileUtils.readFile(configFile);
+            if (content == null || content.trim().isEmpty()) {
+                PWLog.warn(TAG, "Config file exists but is empty for code: " + code);
+                return null;
             }
+
+            return InAppConfigBundle.parse(content).newModalConfig();
+
+        } catch (JSONException e) {
+            PWLog.error(TAG, "Invalid JSON in config file for code: " + code, e);
+            throw new IOException("Malformed config file", e); // Convert to IOException for consistency
         }
     }
 
-    private void parseSwipeGestures(JSONObject json, ModalRichmediaConfig config) {
-        if (json.has(Column.KEY_SWIPE_TO_DISMISS)) {
-            try {
-                JSONArray swipeArray = json.getJSONArray(Column.KEY_SWIPE_TO_DISMISS);
-                Set<ModalRichMediaSwipeGesture> swipes = new HashSet<>();
-                for (int i = 0; i < swipeArray.length(); i++) {
-                    ModalRichMediaSwipeGesture gesture = ModalRichMediaSwipeGesture.fromString(swipeArray.getString(i));
-                    if (gesture != null && gesture != ModalRichMediaSwipeGesture.NONE) {
-                        swipes.add(gesture);
-                    }
-                }
-                config.setSwipeGestures(swipes);
-            } catch (JSONException e) {
-                PWLog.warn(TAG, "Failed to parse " + Column.KEY_SWIPE_TO_DISMISS + ": " + e.getMessage());
-            }
+    /**
+     * Same as {@link #parseLocalizedStrings(String)}, from the bundle compiled for this deployment of the
+     * in-app.
+     *
+     * @throws JSONException if the in-app has no strings for the current or the default language
+     */
+    @WorkerThread
+    public Map<String, String> getLocalizedStrings(String code, long updated) throws JSONException {
+        InAppConfigBundle bundle = load(code, updated);
+        if (bundle == null) {
+            throw new JSONException("No pushwoosh.json for " + code);
         }
+        return bundle.getLocalizedStrings(preferredLanguage());
+    }
+
+    /**
+     * Same as {@link #parseModalConfig(String)}, from the bundle compiled for this deployment of the in-app.
+     *
+     * @return a new config, {@code null} if the in-app has no usable pushwoosh.json
+     */
+    @Nullable
+    @WorkerThread
+    public ModalRichmediaConfig getModalConfig(String code, long updated) {
+        InAppConfigBundle bundle = load(code, updated);
+        return bundle == null ? null : bundle.newModalConfig();
     }
 
-    private void parseAnimationDuration(JSONObject json, ModalRichmediaConfig config) {
-        if (!json.has(Column.KEY_ANIMATION_DURATION)) {
+    /**
+     * Compiles pushwoosh.json of an in-app that has just been deployed and keeps the bundle on disk and in
+     * memory.
+     */
+    @WorkerThread
+    public void compile(String code, long updated) {
+        File configFile = inAppFolderProvider.getConfigFile(code);
+        if (configFile == null) {
             return;
         }
-        try {
-            int duration = json.getInt(Column.KEY_ANIMATION_DURATION);
-            if (duration > 0) {
-                config.setAnimationDuration(duration);
+
+        long stamp = stamp(updated, configFile);
+        InAppConfigBundle bundle = parseConfigFile(code, configFile);
+        File compiledFile = getCompiledFile(configFile);
+        if (bundle != null) {
+            try (DataOutputStream out =
+                         new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compiledFile)))) {
+                bundle.write(out, stamp);
+            } catch (IOException e) {
+                PWLog.warn(TAG, "Failed to store compiled config for code: " + code, e);
+                //noinspection ResultOfMethodCallIgnored
+                compiledFile.delete();
             }
-        } catch (JSONException e) {
-            PWLog.warn(TAG, "Failed to parse " + Column.KEY_ANIMATION_DURATION + ": " + e.getMessage());
+        } else {
+            //noinspection ResultOfMethodCallIgnored
+            compiledFile.delete();
         }
+        cache(code, new Compiled(stamp, bundle));
     }
 
-    @WorkerThread
-    public Map<String, String> parseLocalizedStrings(String code) throws IOException, JSONException {
+    /**
+     * Forgets the bundle of an in-app whose files are removed or replaced.
+     */
+    public void evict(String code) {
+        synchronized (CACHE) {
+            CACHE.remove(code);
+        }
+    }
+
+    static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    @Nullable
+    private InAppConfigBundle load(String code, long updated) {
         File configFile = inAppFolderProvider.getConfigFile(code);
-        String content = FileUtils.readFile(configFile);
-        JSONObject json = new JSONObject(content);
-        JSONObject localization = json.getJSONObject(Column.KEY_LOCALIZATION);
+        if (configFile == null) {
+            return null;
+        }
 
-        String defaultLanguage = json.getString(Column.KEY_DEFAULT_LANGUAGE);
+        long stamp = stamp(updated, configFile);
+        synchronized (CACHE) {
+            Compiled compiled = CACHE.get(code);
+            if (compiled != null && compiled.stamp == stamp) {
+                return compiled.bundle;
+            }
+        }
 
-        String preferredLanguage =
-                RepositoryModule.getRegistrationPreferences().language().get();
-        JSONObject localizedStrings;
+        // in-apps deployed before bundles were compiled have no compiled file, they are compiled in memory
+        InAppConfigBundle bundle = readCompiledFile(code, configFile, stamp);
+        if (bundle == null) {
+            bundle = parseConfigFile(code, configFile);
+        }
+        cache(code, new Compiled(stamp, bundle));
+        return bundle;
+    }
 
-        try {
-            localizedStrings = localization.getJSONObject(preferredLanguage);
-        } catch (JSONException e) {
-            localizedStrings = localization.getJSONObject(defaultLanguage);
+    private static void cache(String code, Compiled compiled) {
+        synchronized (CACHE) {
+            CACHE.put(code, compiled);
         }
+    }
 
-        return parseLocalizedStrings(localizedStrings);
+    // what the bundle is compiled from: the deployment of the in-app and the pushwoosh.json it was deployed with
+    private static long stamp(long updated, File configFile) {
+        long stamp = updated;
+        stamp = 31 * stamp + configFile.getPath().hashCode();
+        stamp = 31 * stamp + configFile.length();
+        stamp = 31 * stamp + configFile.lastModified();
+        return stamp;
     }
 
-    @WorkerThread
-    public ModalRichmediaConfig parseModalConfig(String code) throws IOException {
-        PWLog.noise(TAG, "parseModalConfig started for code: " + code);
+    private static File getCompiledFile(File configFile) {
+        return new File(configFile.getPath() + COMPILED_SUFFIX);
+    }
 
-        File configFile = inAppFolderProvider.getConfigFile(code);
-        if (!configFile.exists()) {
+    @Nullable
+    private static InAppConfigBundle readCompiledFile(String code, File configFile, long stamp) {
+        File compiledFile = getCompiledFile(configFile);
+        if (!compiledFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(compiledFile)))) {
+            return InAppConfigBundle.read(in, stamp);
+        } catch (IOException e) {
+            PWLog.warn(TAG, "Failed to read compiled config for code: " + code, e);
             return null;
         }
+    }
 
+    @Nullable
+    private static InAppConfigBundle parseConfigFile(String code, File configFile) {
+        if (!configFile.exists()) {
+            return null;
+        }
         try {
             String content = FileUtils.readFile(configFile);
             if (content == null || content.trim().isEmpty()) {
                 PWLog.warn(TAG, "Config file exists but is empty for code: " + code);
                 return null;
             }
-
-            JSONObject json = new JSONObject(content);
-            JSONObject styleSettingsJson = json.optJSONObject("style_settings");
-
-            ModalRichmediaConfig config = new ModalRichmediaConfig();
-
-            if (styleSettingsJson != null) {
-                parseModalPosition(styleSettingsJson, config);
-                parsePresentAnimation(styleSettingsJson, config);
-                parseDismissAnimation(styleSettingsJson, config);
-                parseSwipeGestures(styleSettingsJson, config);
-                parseAnimationDuration(styleSettingsJson, config);
-            }
-
-            return config;
-
-        } catch (JSONException e) {
-            PWLog.error(TAG, "Invalid JSON in config file for code: " + code, e);
-            throw new IOException("Malformed config file", e); // Convert to IOException for consistency
+            return InAppConfigBundle.parse(content);
+        } catch (IOException | JSONException e) {
+            PWLog.error(TAG, "Invalid config file for code: " + code, e);
+            return null;
         }
     }
 
-    private Map<String, String> parseLocalizedStrings(JSONObject json) throws JSONException {
-        Map<String, String> result = new HashMap<>();
-
-        Iterator<String> iter = json.keys();
-        while (iter.hasNext()) {
-            String key = iter.next();
-            String value = json.getString(key);
-            result.put(key, value);
-        }
-
-        return result;
+    private static String preferredLanguage() {
+        return RepositoryModule.getRegistrationPreferences().language().get();
     }
 }
@@ -0,0 +1,335 @@
+package com.pushwoosh.inapp;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.pushwoosh.inapp.view.config.ModalRichmediaConfig;
+import com.pushwoosh.inapp.view.config.enums.ModalRichMediaDismissAnimationType;
+import com.pushwoosh.inapp.view.config.enums.ModalRichMediaPresentAnimationType;
+import com.pushwoosh.inapp.view.config.enums.ModalRichMediaSwipeGesture;
+import com.pushwoosh.inapp.view.config.enums.ModalRichMediaViewPosition;
+import com.pushwoosh.internal.utils.PWLog;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code pushwoosh.json} of an in-app compiled for rendering: the string table of every language and the
+ * parsed {@code style_settings}.
+ *
+ * <p>Immutable. {@link InAppConfig} compiles it when the in-app is deployed, keeps it next to
+ * {@code pushwoosh.json} in the binary form of {@link #write} and caches it in memory.
+ */
+final class InAppConfigBundle {
+    private static final String TAG = "[InApp]InAppConfigBundle";
+
+    private static final int MAGIC = 0x50574342; // "PWCB"
+    private static final int FORMAT_VERSION = 1;
+
+    private static class Column {
+        static final String KEY_LOCALIZATION = "localization";
+        static final String KEY_DEFAULT_LANGUAGE = "default_language";
+        static final String KEY_STYLE_SETTINGS = "style_settings";
+        static final String KEY_MODAL_POSITION = "position";
+        static final String KEY_PRESENT_ANIMATION = "present_animation";
+        static final String KEY_DISMISS_ANIMATION = "dismiss_animation";
+        static final String KEY_SWIPE_TO_DISMISS = "swipe_to_dismiss";
+        static final String KEY_ANIMATION_DURATION = "animation_duration";
+    }
+
+    // null if pushwoosh.json has no localization
+    @Nullable private final Map<String, Map<String, String>> localization;
+    @Nullable private final String defaultLanguage;
+
+    @Nullable private final ModalRichMediaViewPosition viewPosition;
+    @Nullable private final ModalRichMediaPresentAnimationType presentAnimationType;
+    @Nullable private final ModalRichMediaDismissAnimationType dismissAnimationType;
+    @Nullable private final Set<ModalRichMediaSwipeGesture> swipeGestures;
+    // 0 if not set
+    private final int animationDuration;
+
+    private InAppConfigBundle(
+            @Nullable Map<String, Map<String, String>> localization,
+            @Nullable String defaultLanguage,
+            @Nullable ModalRichMediaViewPosition viewPosition,
+            @Nullable ModalRichMediaPresentAnimationType presentAnimationType,
+            @Nullable ModalRichMediaDismissAnimationType dismissAnimationType,
+            @Nullable Set<ModalRichMediaSwipeGesture> swipeGestures,
+            int animationDuration) {
+        this.localization = localization;
+        this.defaultLanguage = defaultLanguage;
+        this.viewPosition = viewPosition;
+        this.presentAnimationType = presentAnimationType;
+        this.dismissAnimationType = dismissAnimationType;
+        this.swipeGestures = swipeGestures;
+        this.animationDuration = animationDuration;
+    }
+
+    /**
+     * @return the strings of {@code language}, the strings of the default language if there are none
+     * @throws JSONException if pushwoosh.json has no strings for either
+     */
+    @NonNull
+    Map<String, String> getLocalizedStrings(@Nullable String language) throws JSONException {
+        if (localization == null || defaultLanguage == null) {
+            throw new JSONException("No " + Column.KEY_LOCALIZATION + " or " + Column.KEY_DEFAULT_LANGUAGE);
+        }
+        Map<String, String> strings = localization.get(language);
+        if (strings == null) {
+            strings = localization.get(defaultLanguage);
+        }
+        if (strings == null) {
+            throw new JSONException("No " + Column.KEY_LOCALIZATION + " for " + defaultLanguage);
+        }
+        return strings;
+    }
+
+    /**
+     * @return a new config with the style settings of the in-app, callers are free to change it
+     */
+    @NonNull
+    ModalRichmediaConfig newModalConfig() {
+        ModalRichmediaConfig config = new ModalRichmediaConfig();
+        if (viewPosition != null) {
+            config.setViewPosition(viewPosition);
+        }
+        if (presentAnimationType != null) {
+            config.setPresentAnimationType(presentAnimationType);
+        }
+        if (dismissAnimationType != null) {
+            config.setDismissAnimationType(dismissAnimationType);
+        }
+        if (swipeGestures != null) {
+            config.setSwipeGestures(swipeGestures);
+        }
+        if (animationDuration > 0) {
+            config.setAnimationDuration(animationDuration);
+        }
+        return config;
+    }
+
+    static InAppConfigBundle parse(String content) throws JSONException {
+        JSONObject json = new JSONObject(content);
+
+        Map<String, Map<String, String>> localization = null;
+        JSONObject localizationJson = json.optJSONObject(Column.KEY_LOCALIZATION);
+        if (localizationJson != null) {
+            localization = new HashMap<>();
+            Iterator<String> languages = localizationJson.keys();
+            while (languages.hasNext()) {
+                String language = languages.next();
+                JSONObject strings = localizationJson.optJSONObject(language);
+                if (strings != null) {
+                    localization.put(language, parseStrings(strings));
+                }
+            }
+            localization = Collections.unmodifiableMap(localization);
+        }
+        String defaultLanguage = json.has(Column.KEY_DEFAULT_LANGUAGE)
+                ? json.getString(Column.KEY_DEFAULT_LANGUAGE)
+                : null;
+
+        JSONObject style = json.optJSONObject(Column.KEY_STYLE_SETTINGS);
+        if (style == null) {
+            style = new JSONObject();
+        }
+        return new InAppConfigBundle(localization, defaultLanguage,
+                parsePosition(style), parsePresentAnimation(style), parseDismissAnimation(style),
+                parseSwipeGestures(style), parseAnimationDuration(style));
+    }
+
+    private static Map<String, String> parseStrings(JSONObject json) throws JSONException {
+        Map<String, String> result = new HashMap<>();
+        Iterator<String> iter = json.keys();
+        while (iter.hasNext()) {
+            String key = iter.next();
+            result.put(key, json.getString(key));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Nullable
+    private static String optStyleString(JSONObject json, String key) {
+        if (!json.has(key)) {
+            return null;
+        }
+        try {
+            return json.getString(key);
+        } catch (JSONException e) {
+            PWLog.warn(TAG, "Failed to parse " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Nullable
+    private static ModalRichMediaViewPosition parsePosition(JSONObject json) {
+        return ModalRichMediaViewPosition.fromString(optStyleString(json, Column.KEY_MODAL_POSITION));
+    }
+
+    @Nullable
+    private static ModalRichMediaPresentAnimationType parsePresentAnimation(JSONObject json) {
+        return ModalRichMediaPresentAnimationType.fromString(optStyleString(json, Column.KEY_PRESENT_ANIMATION));
+    }
+
+    @Nullable
+    private static ModalRichMediaDismissAnimationType parseDismissAnimation(JSONObject json) {
+        return ModalRichMediaDismissAnimationType.fromString(optStyleString(json, Column.KEY_DISMISS_ANIMATION));
+    }
+
+    @Nullable
+    private static Set<ModalRichMediaSwipeGesture> parseSwipeGestures(JSONObject json) {
+        if (!json.has(Column.KEY_SWIPE_TO_DISMISS)) {
+            return null;
+        }
+        try {
+            JSONArray swipeArray = json.getJSONArray(Column.KEY_SWIPE_TO_DISMISS);
+            Set<ModalRichMediaSwipeGesture> swipes = new HashSet<>();
+            for (int i = 0; i < swipeArray.length(); i++) {
+                ModalRichMediaSwipeGesture gesture = ModalRichMediaSwipeGesture.fromString(swipeArray.getString(i));
+                if (gesture != null && gesture != ModalRichMediaSwipeGesture.NONE) {
+                    swipes.add(gesture);
+                }
+            }
+            return Collections.unmodifiableSet(swipes);
+        } catch (JSONException e) {
+            PWLog.warn(TAG, "Failed to parse " + Column.KEY_SWIPE_TO_DISMISS + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static int parseAnimationDuration(JSONObject json) {
+        if (!json.has(Column.KEY_ANIMATION_DURATION)) {
+            return 0;
+        }
+        try {
+            return Math.max(json.getInt(Column.KEY_ANIMATION_DURATION), 0);
+        } catch (JSONException e) {
+            PWLog.warn(TAG, "Failed to parse " + Column.KEY_ANIMATION_DURATION + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Writes the bundle with a header that {@link #read} checks: {@code stamp} identifies what the bundle
+     * was compiled from.
+     */
+    void write(DataOutputStream out, long stamp) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeLong(stamp);
+
+        writeString(out, defaultLanguage);
+        if (localization == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(localization.size());
+            for (Map.Entry<String, Map<String, String>> language : localization.entrySet()) {
+                writeString(out, language.getKey());
+                out.writeInt(language.getValue().size());
+                for (Map.Entry<String, String> string : language.getValue().entrySet()) {
+                    writeString(out, string.getKey());
+                    writeString(out, string.getValue());
+                }
+            }
+        }
+
+        writeString(out, viewPosition == null ? null : viewPosition.name());
+        writeString(out, presentAnimationType == null ? null : presentAnimationType.name());
+        writeString(out, dismissAnimationType == null ? null : dismissAnimationType.name());
+        if (swipeGestures == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(swipeGestures.size());
+            for (ModalRichMediaSwipeGesture gesture : swipeGestures) {
+                writeString(out, gesture.name());
+            }
+        }
+        out.writeInt(animationDuration);
+    }
+
+    /**
+     * @return the bundle, {@code null} if it was written by another format version or compiled from
+     * something other than {@code stamp}
+     * @throws IOException if the bundle is truncated or corrupted
+     */
+    @Nullable
+    static InAppConfigBundle read(DataInputStream in, long stamp) throws IOException {
+        if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION || in.readLong() != stamp) {
+            return null;
+        }
+
+        String defaultLanguage = readString(in);
+        Map<String, Map<String, String>> localization = null;
+        int languages = in.readInt();
+        if (languages >= 0) {
+            localization = new HashMap<>(languages * 2);
+            for (int i = 0; i < languages; i++) {
+                String language = readString(in);
+                int count = in.readInt();
+                Map<String, String> strings = new HashMap<>(count * 2);
+                for (int j = 0; j < count; j++) {
+                    strings.put(readString(in), readString(in));
+                }
+                localization.put(language, Collections.unmodifiableMap(strings));
+            }
+            localization = Collections.unmodifiableMap(localization);
+        }
+
+        try {
+            String position = readString(in);
+            String present = readString(in);
+            String dismiss = readString(in);
+            Set<ModalRichMediaSwipeGesture> swipeGestures = null;
+            int gestures = in.readInt();
+            if (gestures >= 0) {
+                swipeGestures = new HashSet<>();
+                for (int i = 0; i < gestures; i++) {
+                    swipeGestures.add(ModalRichMediaSwipeGesture.valueOf(readString(in)));
+                }
+                swipeGestures = Collections.unmodifiableSet(swipeGestures);
+            }
+            int animationDuration = in.readInt();
+
+            return new InAppConfigBundle(localization, defaultLanguage,
+                    position == null ? null : ModalRichMediaViewPosition.valueOf(position),
+                    present == null ? null : ModalRichMediaPresentAnimationType.valueOf(present),
+                    dismiss == null ? null : ModalRichMediaDismissAnimationType.valueOf(dismiss),
+                    swipeGestures, animationDuration);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("Unknown style setting", e);
+        }
+    }
+
+    // writeUTF is limited to 64 KB, localized strings are not
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -35,6 +35,8 @@ import com.pushwoosh.inapp.storage.ContextInAppFolderProvider;
 import com.pushwoosh.inapp.storage.InAppDbHelper;
 import com.pushwoosh.inapp.storage.InAppFolderProvider;
 import com.pushwoosh.inapp.storage.InAppStorage;
+import com.pushwoosh.inapp.storage.PendingEventsStorage;
+import com.pushwoosh.inapp.storage.PendingEventsStorageImpl;
 import com.pushwoosh.internal.network.NetworkModule;
 import com.pushwoosh.internal.platform.AndroidPlatformModule;
 import com.pushwoosh.repository.RepositoryModule;
@@ -51,6 +53,9 @@ public class InAppModule {
     private static volatile InAppRepository inAppRepository;
     private static final Object inAppRepositoryMutex = new Object();
 
+    private static volatile PendingEventsStorage pendingEventsStorage;
+    private static final Object pendingEventsStorageMutex = new Object();
+
     public static InAppFolderProvider getInAppFolderProvider() {
         return inAppFolderProvider;
     }
@@ -78,6 +83,24 @@ public class InAppModule {
         return inAppStorage;
     }
 
+    /**
+     * @return queue of undelivered {@code /postEvent} calls or {@code null} if application context is not available yet
+     */
+    @Nullable
+    public static PendingEventsStorage getPendingEventsStorage() {
+        synchronized (pendingEventsStorageMutex) {
+            if (pendingEventsStorage == null) {
+                if (AndroidPlatformModule.getApplicationContext() == null) {
+                    return null;
+                }
+
+                pendingEventsStorage = new PendingEventsStorageImpl(AndroidPlatformModule.getApplicationContext());
+            }
+        }
+
+        return pendingEventsStorage;
+    }
+
     @Nullable
     public static InAppRepository getInAppRepository() {
         synchronized (inAppRepositoryMutex) {
@@ -105,4 +128,8 @@ public class InAppModule {
     public static void setInAppStorage(InAppStorage inAppStorage) {
         InAppModule.inAppStorage = inAppStorage;
     }
+
+    public static void setPendingEventsStorage(PendingEventsStorage pendingEventsStorage) {
+        InAppModule.pendingEventsStorage = pendingEventsStorage;
+    }
 }
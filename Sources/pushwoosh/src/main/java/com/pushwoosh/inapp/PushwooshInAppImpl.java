@@ -66,7 +66,6 @@ public class PushwooshInAppImpl {
 
     private final Map<String, Object> javascriptInterfaces = new HashMap<>();
     private final Map<String, String> registeredJavascriptInterfaces = new HashMap<>();
-    private final InAppRepository inAppRepository;
     private final ServerCommunicationManager serverCommunicationManager;
     private PushwooshInAppService pushwooshInAppService;
     private EventListener<ServerCommunicationStartedEvent> checkForUpdatesWhenServerCommunicationStartsEvent;
@@ -74,7 +73,6 @@ public class PushwooshInAppImpl {
     public PushwooshInAppImpl(
             PushwooshInAppService pushwooshInAppService, ServerCommunicationManager serverCommunicationManager) {
         registrationPrefs = RepositoryModule.getRegistrationPreferences();
-        inAppRepository = InAppModule.getInAppRepository();
         this.pushwooshInAppService = pushwooshInAppService;
         this.serverCommunicationManager = serverCommunicationManager;
     }
@@ -106,7 +104,7 @@ public class PushwooshInAppImpl {
             @Nullable TagsBundle attributes,
             @Nullable final Callback<Void, PostEventException> callback) {
         SdkStateProvider.getInstance().executeOrQueue(() -> {
-            inAppRepository.postEvent(event, attributes, result -> {
+            InAppModule.getInAppRepository().postEvent(event, attributes, result -> {
                 if (result.isSuccess()) {
                     Resource resource = result.getData();
 
@@ -162,7 +160,7 @@ public class PushwooshInAppImpl {
                 registrationPrefs.userId().set(oldUserId);
             }
         };
-        inAppRepository.setUserId(userId, callback);
+        InAppModule.getInAppRepository().setUserId(userId, callback);
     }
 
     public void mergeUserId(
@@ -170,7 +168,7 @@ public class PushwooshInAppImpl {
             @NonNull String newUserId,
             boolean doMerge,
             @Nullable final Callback<Void, MergeUserException> callback) {
-        inAppRepository.mergeUserId(oldUserId, newUserId, doMerge, callback);
+        InAppModule.getInAppRepository().mergeUserId(oldUserId, newUserId, doMerge, callback);
     }
 
     public void addJavascriptInterface(@NonNull Object object, @NonNull String name) {
@@ -186,7 +184,7 @@ public class PushwooshInAppImpl {
     }
 
     public void reloadInApps(Callback<Boolean, ReloadInAppsException> callback) {
-        if (inAppRepository == null) {
+        if (InAppModule.getInAppRepository() == null) {
             return;
         }
 
@@ -236,7 +234,7 @@ public class PushwooshInAppImpl {
             String actionAttributes,
             int actionType,
             Callback<Void, RichMediaActionException> callback) {
-        inAppRepository.richMediaAction(richmediaCode, inappCode, messageHash, actionAttributes, actionType, callback);
+        InAppModule.getInAppRepository().richMediaAction(richmediaCode, inappCode, messageHash, actionAttributes, actionType, callback);
     }
 
     private static class ReloadInAppsTask {
@@ -0,0 +1,80 @@
+package com.pushwoosh.inapp.mapper;
+
+import androidx.annotation.NonNull;
+
+import com.pushwoosh.internal.utils.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+/**
+ * Reads a file the way {@link FileUtils#readFile} does, without holding it: every line terminator
+ * ("\n", "\r" or "\r\n") becomes '\n', and a '\n' ends the last line if the file doesn't.
+ */
+final class HtmlFileReader extends Reader {
+    private static final int BUFFER_LENGTH = 8 * 1024;
+
+    private final Reader in;
+    private final char[] chunk = new char[BUFFER_LENGTH];
+    private int chunkPosition;
+    private int chunkLength;
+    // a '\n' right after a '\r' belongs to the same terminator
+    private boolean skipLineFeed;
+    private boolean lineEnded = true;
+
+    HtmlFileReader(File file) throws IOException {
+        in = new InputStreamReader(new FileInputStream(file));
+    }
+
+    @Override
+    public int read(@NonNull char[] buffer, int offset, int count) throws IOException {
+        if (count == 0) {
+            return 0;
+        }
+
+        int read = 0;
+        while (read < count) {
+            int c = next();
+            if (c == -1) {
+                if (!lineEnded) {
+                    buffer[offset + read++] = '\n';
+                    lineEnded = true;
+                }
+                break;
+            }
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            if (c == '\r') {
+                skipLineFeed = true;
+                c = '\n';
+            }
+            lineEnded = c == '\n';
+            buffer[offset + read++] = (char) c;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    private int next() throws IOException {
+        if (chunkPosition == chunkLength) {
+            int read = in.read(chunk, 0, chunk.length);
+            if (read <= 0) {
+                return -1;
+            }
+            chunkPosition = 0;
+            chunkLength = read;
+        }
+        return chunk[chunkPosition++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
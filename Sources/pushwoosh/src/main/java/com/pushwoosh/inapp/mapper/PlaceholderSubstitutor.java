@@ -28,6 +28,9 @@ package com.pushwoosh.inapp.mapper;
 
 import com.pushwoosh.internal.utils.PWLog;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -48,22 +51,100 @@ import java.util.regex.Pattern;
  *   4. {key|type|}                   &lt;- tags
  *   5. {key|type|default}            &lt;- tags
  * </pre>
+ *
+ * <p>Rendering goes through a {@link PlaceholderTemplate} compiled from the content, which produces the
+ * same string in one pass; Rich Media HTML keeps its compiled template in a small cache keyed by in-app
+ * code and {@code updated}, which {@link RichMediaDocument} also streams from. A template holds offsets into
+ * the content and its placeholders, not the content itself. Content or values the template can't handle
+ * exactly fall back to the passes above.
  */
 public final class PlaceholderSubstitutor {
     private static final String TAG = "[InApp]PlaceholderSubstitutor";
 
-    private static final Pattern DOUBLE_KEY_TYPE_DEFAULT_DOTALL =
+    static final Pattern DOUBLE_KEY_TYPE_DEFAULT_DOTALL =
             Pattern.compile("\\{\\{(.[^\\}]+?)\\|(.[^\\}]+?)\\|(.[^\\}]*?)\\}\\}", Pattern.DOTALL);
-    private static final Pattern DOUBLE_KEY_TYPE_DEFAULT =
+    static final Pattern DOUBLE_KEY_TYPE_DEFAULT =
             Pattern.compile("\\{\\{(.[^\\}]+?)\\|(.[^\\}]+?)\\|(.[^\\}]*?)\\}\\}");
-    private static final Pattern DOUBLE_KEY_TYPE = Pattern.compile("\\{\\{(.[^\\}]+?)\\|(.[^\\}]+?)\\}\\}");
-    private static final Pattern SINGLE_KEY_TYPE_EMPTY = Pattern.compile("\\{(.[^\\}]+?)\\|(.[^\\}]+?)\\|\\}");
-    private static final Pattern SINGLE_KEY_TYPE_DEFAULT =
+    static final Pattern DOUBLE_KEY_TYPE = Pattern.compile("\\{\\{(.[^\\}]+?)\\|(.[^\\}]+?)\\}\\}");
+    static final Pattern SINGLE_KEY_TYPE_EMPTY = Pattern.compile("\\{(.[^\\}]+?)\\|(.[^\\}]+?)\\|\\}");
+    static final Pattern SINGLE_KEY_TYPE_DEFAULT =
             Pattern.compile("\\{(.[^\\}]+?)\\|(.[^\\}]+?)\\|(.[^\\}]*?)\\}");
 
+    private static final int TEMPLATE_CACHE_SIZE = 8;
+    private static final Map<String, PlaceholderTemplate> TEMPLATE_CACHE =
+            new LinkedHashMap<String, PlaceholderTemplate>(TEMPLATE_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PlaceholderTemplate> eldest) {
+                    return size() > TEMPLATE_CACHE_SIZE;
+                }
+            };
+
     private PlaceholderSubstitutor() {}
 
     public static String substitute(String content, Map<String, String> localizedStrings, Map<String, String> tags) {
+        return substitute(PlaceholderTemplate.compile(content), content, localizedStrings, tags);
+    }
+
+    /**
+     * Same as {@link #substitute(String, Map, Map)}, reusing the template compiled for this in-app
+     * {@code code} and {@code updated} timestamp; a redeployed in-app gets a new timestamp and is
+     * compiled again.
+     */
+    public static String substitute(
+            String code, long updated, String content, Map<String, String> localizedStrings, Map<String, String> tags) {
+        String cacheKey = code + "@" + updated;
+        PlaceholderTemplate template;
+        synchronized (TEMPLATE_CACHE) {
+            template = TEMPLATE_CACHE.get(cacheKey);
+        }
+        if (template == null || !template.matchesSource(content)) {
+            template = PlaceholderTemplate.compile(content);
+            PWLog.noise(TAG, "Compiled template for " + code + ": "
+                    + (template.isCompiled() ? template.slotCount() + " placeholders" : "legacy passes"));
+            synchronized (TEMPLATE_CACHE) {
+                TEMPLATE_CACHE.put(cacheKey, template);
+            }
+        }
+        return substitute(template, content, localizedStrings, tags);
+    }
+
+    /**
+     * @return the template compiled for this in-app {@code code} and {@code updated} timestamp from its
+     * {@code html} file, which is compiled again only if the cached template wasn't compiled from this
+     * version of the file; the file is compiled through a small buffer, never read as a whole
+     */
+    static PlaceholderTemplate template(String code, long updated, File html) throws IOException {
+        String cacheKey = code + "@" + updated;
+        long length = html.length();
+        long lastModified = html.lastModified();
+        PlaceholderTemplate template;
+        synchronized (TEMPLATE_CACHE) {
+            template = TEMPLATE_CACHE.get(cacheKey);
+        }
+        if (template == null || !template.matchesFile(length, lastModified)) {
+            template = PlaceholderTemplate.compile(html);
+            PWLog.noise(TAG, "Compiled template for " + code + ": "
+                    + (template.isCompiled() ? template.slotCount() + " placeholders" : "legacy passes"));
+            synchronized (TEMPLATE_CACHE) {
+                TEMPLATE_CACHE.put(cacheKey, template);
+            }
+        }
+        return template;
+    }
+
+    static void clearTemplateCache() {
+        synchronized (TEMPLATE_CACHE) {
+            TEMPLATE_CACHE.clear();
+        }
+    }
+
+    private static String substitute(
+            PlaceholderTemplate template, String content, Map<String, String> localizedStrings, Map<String, String> tags) {
+        String result = template.render(content, localizedStrings, tags);
+        return result != null ? result : substituteLegacy(content, localizedStrings, tags);
+    }
+
+    static String substituteLegacy(String content, Map<String, String> localizedStrings, Map<String, String> tags) {
         content = postProcess(content, DOUBLE_KEY_TYPE_DEFAULT_DOTALL, localizedStrings);
         content = postProcess(content, DOUBLE_KEY_TYPE_DEFAULT, tags);
         content = postProcess(content, DOUBLE_KEY_TYPE, localizedStrings);
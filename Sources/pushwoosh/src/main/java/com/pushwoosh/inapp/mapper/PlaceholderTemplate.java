@@ -0,0 +1,731 @@
+/*
+ *
+ * Copyright (c) 2017. Pushwoosh Inc. (http://www.pushwoosh.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * (i) the original and/or modified Software should be used exclusively to work with Pushwoosh services,
+ *
+ * (ii) the above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.pushwoosh.inapp.mapper;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A template compiled once into literal ranges of its source and placeholder slots, so rendering is a single
+ * {@link StringBuilder} pass instead of five regex passes with a full-document {@link String#replace}
+ * per match. The template keeps offsets into the source, never its text: it is rendered from the source
+ * it was compiled from.
+ *
+ * <p>Compilation replays the {@link PlaceholderSubstitutor} passes in the same order and with the same
+ * replace-all semantics, with an opaque private-use marker in place of every substituted value. A value
+ * without braces and '|' can't start, end or split a match, and a later pattern that matches across such a
+ * value would match across its marker as well. The one exception is an empty value, which can join the
+ * characters around it into "{{", "}}", "|}" or a group opened by '}'. Whatever could make the output
+ * differ is left to the legacy passes:
+ * <ul>
+ *   <li>{@link #compile} returns a template that is not {@link #isCompiled() compiled} when a later match
+ *   covers a marker, when replace targets overlap, or when a replace target could run into a marker;</li>
+ *   <li>{@link #render} returns {@code null} when a value has braces or '|', or is empty where that could
+ *   join its neighbours.</li>
+ * </ul>
+ *
+ * <p>A file is compiled region by region, so only a region of it is in memory at a time. A region ends
+ * after a '}' that closes every match containing it: it isn't preceded by '{' or '|', so it can't open a
+ * group, and it is followed by neither '{' nor '}'. As long as no pass replaces that '}', no match of any
+ * pass crosses the cut, and the passes over the whole file find the matches they find region by region.
+ * Every match starts with '{', so a region may as well end anywhere in a run without braces and '|' that
+ * follows such a '}', such as an inline image.
+ */
+final class PlaceholderTemplate {
+    // A marker is MARKER_START followed by two base-1024 digits of the slot index.
+    private static final char MARKER_START = '\uE000';
+    private static final char MARKER_DIGIT = '\uE400';
+    private static final char PRIVATE_USE_END = '\uE7FF';
+    private static final int MARKER_LENGTH = 3;
+    private static final int MAX_SLOTS = 1024 * 1024;
+
+    // a file is cut at the first place after REGION_LENGTH chars where a region may end, and not compiled if
+    // a region gets longer than MAX_REGION_LENGTH
+    private static final int REGION_LENGTH = 16 * 1024;
+    private static final int MAX_REGION_LENGTH = 256 * 1024;
+    private static final int READ_BUFFER = 8 * 1024;
+
+    private static final int DEFAULT_GROUP = 0;
+    private static final int DEFAULT_KEY = 1;
+    private static final int DEFAULT_EMPTY = 2;
+
+    private static final Pass[] PASSES = {
+            new Pass(PlaceholderSubstitutor.DOUBLE_KEY_TYPE_DEFAULT_DOTALL, true, DEFAULT_GROUP),
+            new Pass(PlaceholderSubstitutor.DOUBLE_KEY_TYPE_DEFAULT, false, DEFAULT_GROUP),
+            new Pass(PlaceholderSubstitutor.DOUBLE_KEY_TYPE, true, DEFAULT_KEY),
+            new Pass(PlaceholderSubstitutor.SINGLE_KEY_TYPE_EMPTY, false, DEFAULT_EMPTY),
+            new Pass(PlaceholderSubstitutor.SINGLE_KEY_TYPE_DEFAULT, false, DEFAULT_GROUP),
+    };
+
+    // length of the source, -1 if unknown
+    private final int sourceLength;
+    // length and modification time of the file the template was compiled from, -1 if it wasn't
+    private final long fileLength;
+    private final long fileLastModified;
+    // literal i is source[literalStarts[i], literalEnds[i]) and precedes slotRefs[i]; the last literal
+    // closes the template
+    private final int[] literalStarts;
+    private final int[] literalEnds;
+    private final int[] slotRefs;
+    private final Slot[] slots;
+    private final int literalLength;
+
+    private PlaceholderTemplate(int sourceLength, long fileLength, long fileLastModified, int[] literalStarts,
+            int[] literalEnds, int[] slotRefs, Slot[] slots) {
+        this.sourceLength = sourceLength;
+        this.fileLength = fileLength;
+        this.fileLastModified = fileLastModified;
+        this.literalStarts = literalStarts;
+        this.literalEnds = literalEnds;
+        this.slotRefs = slotRefs;
+        this.slots = slots;
+        int length = 0;
+        if (literalStarts != null) {
+            for (int i = 0; i < literalStarts.length; i++) {
+                length += literalEnds[i] - literalStarts[i];
+            }
+        }
+        literalLength = length;
+    }
+
+    private static PlaceholderTemplate legacy(int sourceLength, long fileLength, long fileLastModified) {
+        return new PlaceholderTemplate(sourceLength, fileLength, fileLastModified, null, null, null, null);
+    }
+
+    static PlaceholderTemplate compile(String content) {
+        if (containsPrivateUse(content)) {
+            return legacy(content.length(), -1, -1);
+        }
+
+        Compilation compilation = new Compilation();
+        String text = compileRegion(content, compilation.passes, compilation.slots);
+        if (text == null) {
+            return legacy(content.length(), -1, -1);
+        }
+        compilation.appendRegion(text, 0);
+        return compilation.build(content.length(), -1, -1);
+    }
+
+    /**
+     * Same as {@link #compile(String)} for {@code html} as {@code FileUtils.readFile} reads it. The file is
+     * read twice through a small buffer: the first sweep cuts it into regions and finds the placeholders of
+     * each of them, the second one checks every region against the placeholders of all the others, as the
+     * passes over the whole file would, and lays the template out.
+     */
+    static PlaceholderTemplate compile(File html) throws IOException {
+        long fileLength = html.length();
+        long fileLastModified = html.lastModified();
+        Compilation compilation = new Compilation();
+        if (!compilation.findSlots(html) || !compilation.layOut(html)) {
+            return legacy(compilation.sourceLength, fileLength, fileLastModified);
+        }
+        return compilation.build(compilation.sourceLength, fileLength, fileLastModified);
+    }
+
+    /**
+     * @return false if the content can only be rendered by the legacy passes
+     */
+    boolean isCompiled() {
+        return literalStarts != null;
+    }
+
+    /**
+     * @return true if this template was compiled from {@code content} of this length; a cheap guard
+     * against a cache entry outliving the file it was built from
+     */
+    boolean matchesSource(String content) {
+        return content.length() == sourceLength;
+    }
+
+    /**
+     * @return true if this template was compiled from the file with this length and modification time
+     */
+    boolean matchesFile(long length, long lastModified) {
+        return fileLength >= 0 && fileLength == length && fileLastModified == lastModified;
+    }
+
+    int slotCount() {
+        return slots == null ? 0 : slots.length;
+    }
+
+    /**
+     * @return number of literal ranges, one more than {@link #slotRefCount()}
+     */
+    int literalCount() {
+        return literalStarts.length;
+    }
+
+    /**
+     * @return offset in the source of literal {@code i}, which precedes the value of
+     * {@link #slotRef(int) slotRef(i)}
+     */
+    int literalStart(int i) {
+        return literalStarts[i];
+    }
+
+    /**
+     * @return offset in the source right after literal {@code i}
+     */
+    int literalEnd(int i) {
+        return literalEnds[i];
+    }
+
+    int slotRefCount() {
+        return slotRefs.length;
+    }
+
+    /**
+     * @return index in {@link #values} of the value that follows literal {@code i}
+     */
+    int slotRef(int i) {
+        return slotRefs[i];
+    }
+
+    /**
+     * @return the value of every slot, or {@code null} if the template has to be rendered by the legacy passes
+     */
+    @Nullable
+    String[] values(Map<String, String> localizedStrings, Map<String, String> tags) {
+        if (!isCompiled()) {
+            return null;
+        }
+
+        String[] values = new String[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            String value = slots[i].value(localizedStrings, tags);
+            if (!slots[i].accepts(value)) {
+                return null;
+            }
+            values[i] = value;
+        }
+        return values;
+    }
+
+    /**
+     * @param source the content this template {@link #matchesSource matches}
+     * @return rendered template, or {@code null} if it has to be rendered by the legacy passes
+     */
+    @Nullable
+    String render(String source, Map<String, String> localizedStrings, Map<String, String> tags) {
+        String[] values = values(localizedStrings, tags);
+        if (values == null) {
+            return null;
+        }
+        long length = literalLength;
+        for (int slotRef : slotRefs) {
+            length += values[slotRef].length();
+        }
+
+        StringBuilder result = new StringBuilder((int) Math.min(length, Integer.MAX_VALUE));
+        for (int i = 0; i < slotRefs.length; i++) {
+            result.append(source, literalStarts[i], literalEnds[i]).append(values[slotRefs[i]]);
+        }
+        int last = literalStarts.length - 1;
+        result.append(source, literalStarts[last], literalEnds[last]);
+        return result.toString();
+    }
+
+    /**
+     * Runs the passes over one region of the source.
+     *
+     * @param newSlots where the slots of placeholders new to {@code passes} go, {@code null} if every
+     *                 placeholder has to be known already
+     * @return the region with a marker in place of every placeholder, or {@code null} if it can't be compiled
+     */
+    @Nullable
+    private static String compileRegion(String text, PassSlots[] passes, @Nullable List<Slot> newSlots) {
+        for (PassSlots pass : passes) {
+            text = compilePass(text, pass, newSlots);
+            if (text == null) {
+                return null;
+            }
+        }
+        return text;
+    }
+
+    /**
+     * One legacy pass over {@code text}: the matcher scans the pass input, and every distinct match is
+     * replaced everywhere it occurs, in order of first appearance. Here all occurrences are found up
+     * front and swapped for slot markers in one copy, which is the same thing as long as no two of them
+     * overlap and none of them could run into a value substituted before it.
+     *
+     * @return text for the next pass, or {@code null} if the pass can't be compiled
+     */
+    @Nullable
+    private static String compilePass(String text, PassSlots passSlots, @Nullable List<Slot> newSlots) {
+        Pass pass = passSlots.pass;
+        Map<String, Slot> slotByTotalKey = passSlots.slotByTotalKey;
+        List<int[]> matchSpans = new ArrayList<>();
+        Matcher matcher = pass.pattern.matcher(text);
+        while (matcher.find()) {
+            String totalKey = matcher.group(0);
+            if (totalKey.indexOf(MARKER_START) >= 0) {
+                return null;
+            }
+            if (!slotByTotalKey.containsKey(totalKey)) {
+                if (newSlots == null || newSlots.size() == MAX_SLOTS) {
+                    return null;
+                }
+                Slot slot = new Slot(pass, matcher.group(1), matcher.group(2),
+                        pass.defaultMode == DEFAULT_GROUP ? matcher.group(3) : null, totalKey.length());
+                slot.index = newSlots.size();
+                newSlots.add(slot);
+                slotByTotalKey.put(totalKey, slot);
+                passSlots.maxKeyLength = Math.max(passSlots.maxKeyLength, totalKey.length());
+            }
+            matchSpans.add(new int[]{matcher.start(), matcher.end()});
+        }
+        if (matchSpans.isEmpty()) {
+            return text;
+        }
+
+        // Occurrences the matcher didn't report (e.g. a copy nested in another match) can only start
+        // at a '{' inside a reported match, so that is all that needs checking.
+        List<int[]> occurrences = new ArrayList<>();
+        for (int[] span : matchSpans) {
+            for (int start = text.indexOf('{', span[0]); start >= 0 && start < span[1];
+                    start = text.indexOf('{', start + 1)) {
+                for (Map.Entry<String, Slot> entry : slotByTotalKey.entrySet()) {
+                    if (text.startsWith(entry.getKey(), start)) {
+                        occurrences.add(new int[]{start, start + entry.getKey().length(), entry.getValue().index});
+                    }
+                }
+            }
+        }
+
+        StringBuilder result = new StringBuilder(text.length());
+        int copied = 0;
+        for (int[] occurrence : occurrences) {
+            if (occurrence[0] < copied) {
+                // overlapping targets: the legacy outcome depends on replace order
+                return null;
+            }
+            result.append(text, copied, occurrence[0]);
+            appendMarker(result, occurrence[2]);
+            copied = occurrence[1];
+        }
+        result.append(text, copied, text.length());
+
+        String output = result.toString();
+        if (reachesMarker(output, slotByTotalKey.keySet(), passSlots.maxKeyLength)) {
+            return null;
+        }
+        return output;
+    }
+
+    /**
+     * @return true if some text before a marker is the beginning of one of {@code keys}; with the right
+     * value in place of the marker, legacy replace-all would then rewrite across it
+     */
+    private static boolean reachesMarker(String text, Iterable<String> keys, int maxKeyLength) {
+        int previousMarkerEnd = 0;
+        for (int marker = text.indexOf(MARKER_START); marker >= 0;
+                marker = text.indexOf(MARKER_START, marker + MARKER_LENGTH)) {
+            int from = Math.max(previousMarkerEnd, marker - maxKeyLength + 1);
+            for (int start = marker - 1; start >= from; start--) {
+                if (text.charAt(start) != '{') {
+                    continue;
+                }
+                for (String key : keys) {
+                    if (key.length() > marker - start && key.regionMatches(0, text, start, marker - start)) {
+                        return true;
+                    }
+                }
+            }
+            previousMarkerEnd = marker + MARKER_LENGTH;
+        }
+        return false;
+    }
+
+    /**
+     * @param left  last char of the literal before the value, -1 if it is empty
+     * @param right first char of the literal after the value, -1 if it is empty
+     * @return true if an empty value between these literals could let the patterns see their edges as
+     * "{{", "}}", "|}" or as '{' or '|' followed by a group that starts with '}'. An empty literal between
+     * two slots is taken to be anything, since the other slot may be empty too.
+     */
+    private static boolean mayJoin(int left, boolean templateStart, int right, boolean templateEnd) {
+        if ((left < 0 && templateStart) || (right < 0 && templateEnd)) {
+            return false;
+        }
+        if (left < 0 || right < 0) {
+            return true;
+        }
+        if (right == '}') {
+            return left == '{' || left == '|' || left == '}';
+        }
+        return right == '{' && left == '{';
+    }
+
+    /**
+     * @return true if {@code region} can end before {@code next}: it ends with a '}' that closes every match
+     * containing it, and no match starts with {@code next}. A '}' with a '|' since the '}' before it most
+     * likely closes a placeholder, which would turn into a marker, so it isn't tried.
+     */
+    private static boolean isCut(CharSequence region, char next) {
+        int end = region.length() - 1;
+        if (end < 0 || next == '{' || next == '}' || region.charAt(end) != '}') {
+            return false;
+        }
+        for (int i = end - 1; i >= 0; i--) {
+            char c = region.charAt(i);
+            if (c == '}') {
+                return i < end - 1;
+            }
+            if (c == '|' || (c == '{' && i == end - 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsPrivateUse(String content) {
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c >= MARKER_START && c <= PRIVATE_USE_END) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendMarker(StringBuilder builder, int slot) {
+        builder.append(MARKER_START)
+                .append((char) (MARKER_DIGIT + (slot >> 10)))
+                .append((char) (MARKER_DIGIT + (slot & 0x3FF)));
+    }
+
+    private static int decodeMarker(String text, int markerStart) {
+        return ((text.charAt(markerStart + 1) - MARKER_DIGIT) << 10) | (text.charAt(markerStart + 2) - MARKER_DIGIT);
+    }
+
+    private static PassSlots[] newPassSlots() {
+        PassSlots[] passes = new PassSlots[PASSES.length];
+        for (int i = 0; i < PASSES.length; i++) {
+            passes[i] = new PassSlots(PASSES[i]);
+        }
+        return passes;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static final class Compilation {
+        private static final int REGION_ADDED = 0;
+        private static final int REGION_NOT_CUT = 1;
+        private static final int REGION_FAILED = 2;
+
+        final PassSlots[] passes = newPassSlots();
+        final List<Slot> slots = new ArrayList<>();
+        int sourceLength = -1;
+        // source offsets where the first sweep cut the file
+        private final List<Integer> cuts = new ArrayList<>();
+
+        private final List<Integer> literalStarts = new ArrayList<>();
+        private final List<Integer> literalEnds = new ArrayList<>();
+        private final List<Integer> slotRefs = new ArrayList<>();
+        // first and last char of every literal, -1 for an empty one
+        private final List<Integer> firstChars = new ArrayList<>();
+        private final List<Integer> lastChars = new ArrayList<>();
+        private int literalStart;
+        private int firstChar = -1;
+        private int lastChar = -1;
+
+        /**
+         * First sweep: cuts the file into regions and collects the slots of every pass, each region compiled
+         * with the slots of its own placeholders.
+         *
+         * @return false if the file can't be compiled; {@link #sourceLength} is counted anyway
+         */
+        boolean findSlots(File html) throws IOException {
+            boolean compiled = true;
+            int position = 0;
+            try (Reader reader = new HtmlFileReader(html)) {
+                StringBuilder region = new StringBuilder(REGION_LENGTH * 2);
+                char[] buffer = new char[READ_BUFFER];
+                int nextCut = REGION_LENGTH;
+                // start of the run without braces and '|' the region ends with, if the run follows a hard '}'
+                // or the start of the region; -1 otherwise
+                int plainStart = 0;
+                int read;
+                while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+                    position += read;
+                    for (int i = 0; i < read && compiled; i++) {
+                        char c = buffer[i];
+                        if (isCut(region, c)) {
+                            plainStart = region.length();
+                        }
+                        if (region.length() >= nextCut && plainStart >= 0) {
+                            int added = addRegion(region.toString(), plainStart);
+                            if (added == REGION_FAILED) {
+                                compiled = false;
+                                break;
+                            }
+                            if (added == REGION_NOT_CUT) {
+                                // a pass replaced the '}', try again further on
+                                nextCut = region.length() + REGION_LENGTH / 4;
+                                plainStart = -1;
+                            } else {
+                                int regionStart = cuts.isEmpty() ? 0 : cuts.get(cuts.size() - 1);
+                                cuts.add(regionStart + region.length());
+                                region.setLength(0);
+                                nextCut = REGION_LENGTH;
+                                plainStart = 0;
+                            }
+                        }
+                        if (region.length() == MAX_REGION_LENGTH) {
+                            compiled = false;
+                            break;
+                        }
+                        region.append(c);
+                        if (c == '{' || c == '}' || c == '|') {
+                            plainStart = -1;
+                        }
+                    }
+                }
+                if (compiled) {
+                    compiled = addRegion(region.toString(), -1) == REGION_ADDED;
+                }
+            }
+            sourceLength = position;
+            if (!compiled) {
+                return false;
+            }
+
+            for (PassSlots pass : passes) {
+                for (Slot slot : pass.slotByTotalKey.values()) {
+                    slot.index = slots.size();
+                    slots.add(slot);
+                }
+            }
+            return slots.size() <= MAX_SLOTS;
+        }
+
+        /**
+         * Compiles a region with the slots of its own placeholders and adds them to the slots of the file.
+         *
+         * @param plainStart start of the run without braces and '|' the region ends with, which follows
+         *                   a hard '}' unless it is 0; -1 for the last region
+         * @return {@link #REGION_NOT_CUT} if a pass replaced the '}' before that run
+         */
+        private int addRegion(String region, int plainStart) {
+            if (containsPrivateUse(region)) {
+                return REGION_FAILED;
+            }
+            PassSlots[] regionPasses = newPassSlots();
+            String text = compileRegion(region, regionPasses, new ArrayList<Slot>());
+            if (text == null) {
+                return REGION_FAILED;
+            }
+            // the run is left as it is, so the '}' before it ends the compiled text without the run
+            int plainLength = region.length() - plainStart;
+            if (plainStart > 0 && text.charAt(text.length() - plainLength - 1) != '}') {
+                return REGION_NOT_CUT;
+            }
+            for (int i = 0; i < passes.length; i++) {
+                passes[i].add(regionPasses[i]);
+            }
+            return REGION_ADDED;
+        }
+
+        /**
+         * Second sweep: compiles every region again with the slots of the whole file and lays the template out.
+         *
+         * @return false if the file can't be compiled
+         */
+        boolean layOut(File html) throws IOException {
+            try (Reader reader = new HtmlFileReader(html)) {
+                int regionStart = 0;
+                for (int i = 0; i <= cuts.size(); i++) {
+                    int regionEnd = i < cuts.size() ? cuts.get(i) : sourceLength;
+                    char[] region = new char[regionEnd - regionStart];
+                    int length = 0;
+                    int read;
+                    while (length < region.length
+                            && (read = reader.read(region, length, region.length - length)) != -1) {
+                        length += read;
+                    }
+                    if (length < region.length) {
+                        // the file got shorter
+                        return false;
+                    }
+                    String text = compileRegion(new String(region), passes, null);
+                    if (text == null) {
+                        return false;
+                    }
+                    appendRegion(text, regionStart);
+                    regionStart = regionEnd;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Appends the literal ranges and slot references of a compiled region that starts at
+         * {@code regionStart} in the source.
+         */
+        void appendRegion(String text, int regionStart) {
+            int source = regionStart;
+            int from = 0;
+            for (int marker = text.indexOf(MARKER_START); marker >= 0; marker = text.indexOf(MARKER_START, from)) {
+                appendLiteral(text, from, marker);
+                source += marker - from;
+                closeLiteral(source);
+                Slot slot = slots.get(decodeMarker(text, marker));
+                slotRefs.add(slot.index);
+                source += slot.sourceLength;
+                literalStart = source;
+                from = marker + MARKER_LENGTH;
+            }
+            appendLiteral(text, from, text.length());
+        }
+
+        private void appendLiteral(String text, int from, int to) {
+            if (from < to) {
+                if (firstChar < 0) {
+                    firstChar = text.charAt(from);
+                }
+                lastChar = text.charAt(to - 1);
+            }
+        }
+
+        private void closeLiteral(int end) {
+            literalStarts.add(literalStart);
+            literalEnds.add(end);
+            firstChars.add(firstChar);
+            lastChars.add(lastChar);
+            firstChar = -1;
+            lastChar = -1;
+        }
+
+        PlaceholderTemplate build(int sourceLength, long fileLength, long fileLastModified) {
+            closeLiteral(sourceLength);
+            int[] refs = toArray(slotRefs);
+            for (int i = 0; i < refs.length; i++) {
+                boolean first = i == 0;
+                boolean last = i + 2 == literalStarts.size();
+                if (mayJoin(lastChars.get(i), first, firstChars.get(i + 1), last)) {
+                    slots.get(refs[i]).nonEmpty = true;
+                }
+            }
+            return new PlaceholderTemplate(sourceLength, fileLength, fileLastModified, toArray(literalStarts),
+                    toArray(literalEnds), refs, slots.toArray(new Slot[0]));
+        }
+    }
+
+    private static final class Pass {
+        final Pattern pattern;
+        final boolean localized;
+        final int defaultMode;
+
+        Pass(Pattern pattern, boolean localized, int defaultMode) {
+            this.pattern = pattern;
+            this.localized = localized;
+            this.defaultMode = defaultMode;
+        }
+    }
+
+    private static final class PassSlots {
+        final Pass pass;
+        // slot of every distinct match of the pass, in order of first appearance
+        final Map<String, Slot> slotByTotalKey = new LinkedHashMap<>();
+        int maxKeyLength;
+
+        PassSlots(Pass pass) {
+            this.pass = pass;
+        }
+
+        void add(PassSlots other) {
+            for (Map.Entry<String, Slot> entry : other.slotByTotalKey.entrySet()) {
+                if (!slotByTotalKey.containsKey(entry.getKey())) {
+                    slotByTotalKey.put(entry.getKey(), entry.getValue());
+                }
+            }
+            maxKeyLength = Math.max(maxKeyLength, other.maxKeyLength);
+        }
+    }
+
+    private static final class Slot {
+        final boolean localized;
+        final String key;
+        final String type;
+        final String defaultValue;
+        // length of the placeholder in the source
+        final int sourceLength;
+        int index;
+        boolean nonEmpty;
+
+        Slot(Pass pass, String key, String type, String defaultGroup, int sourceLength) {
+            this.localized = pass.localized;
+            this.key = key;
+            this.type = type;
+            this.sourceLength = sourceLength;
+            if (pass.defaultMode == DEFAULT_KEY) {
+                defaultValue = key;
+            } else if (pass.defaultMode == DEFAULT_EMPTY) {
+                defaultValue = "";
+            } else {
+                defaultValue = defaultGroup;
+            }
+        }
+
+        String value(Map<String, String> localizedStrings, Map<String, String> tags) {
+            Map<String, String> values = localized ? localizedStrings : tags;
+            if (values.containsKey(key)) {
+                return InAppTagFormatModifier.format(values.get(key), type);
+            }
+            return defaultValue;
+        }
+
+        boolean accepts(String value) {
+            if (nonEmpty && value.isEmpty()) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '{' || c == '}' || c == '|') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
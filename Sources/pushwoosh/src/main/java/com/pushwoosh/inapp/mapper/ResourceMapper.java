@@ -26,6 +26,7 @@
 
 package com.pushwoosh.inapp.mapper;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
 import com.pushwoosh.inapp.InAppConfig;
@@ -62,17 +63,72 @@ public class ResourceMapper {
     @WorkerThread
     public HtmlData map(Resource resource) throws IOException {
         String baseUrl = "https://" + RICH_MEDIA_ASSET_HOST + RICH_MEDIA_PATH_PREFIX + resource.getCode() + "/";
-        String htmlData = getHtmlData(resource.getCode(), resource.getTags());
+        RichMediaDocument document = prepareDocument(resource.getCode(), resource.getUpdated(), resource.getTags());
+        if (document != null) {
+            return new HtmlData(resource.getCode(), baseUrl, document);
+        }
+        String htmlData = getHtmlData(resource.getCode(), resource.getUpdated(), resource.getTags());
 
         return new HtmlData(resource.getCode(), baseUrl, htmlData);
     }
 
+    /**
+     * @return the document to stream, or {@code null} if it has to be loaded as a string
+     */
+    @Nullable
+    private RichMediaDocument prepareDocument(String code, long updated, Map<String, String> tags) {
+        File html = inAppFolderProvider.getInAppHtmlFile(code);
+        if (html == null || !html.isFile()) {
+            return null;
+        }
+
+        Map<String, String> localizedStrings;
+        try {
+            localizedStrings = config.getLocalizedStrings(code, updated);
+        } catch (Exception e) {
+            // Early inapps do not contain pushwoosh.json, their placeholders are left as they are
+            return null;
+        }
+
+        try {
+            return RichMediaDocument.prepare(code, updated, html, localizedStrings, tags);
+        } catch (Exception e) {
+            PWLog.warn(TAG, "Failed to prepare html of " + code + " for streaming", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return html of the {@code resource} rendered as a string, as {@link #map} does when it can't be streamed
+     */
+    @WorkerThread
+    public String getHtmlData(Resource resource) throws IOException {
+        return renderHtml(resource.getCode(), resource.getUpdated(), resource.getTags());
+    }
+
     protected String getHtmlData(String code, Map<String, String> tags) throws IOException {
+        return renderHtml(code, null, tags);
+    }
+
+    /**
+     * Same as {@link #getHtmlData(String, Map)}, but reuses the placeholder template and the localized strings
+     * compiled for this deployment of the in-app.
+     */
+    protected String getHtmlData(String code, long updated, Map<String, String> tags) throws IOException {
+        return renderHtml(code, updated, tags);
+    }
+
+    private String renderHtml(String code, @Nullable Long updated, Map<String, String> tags) throws IOException {
         File html = inAppFolderProvider.getInAppHtmlFile(code);
         String content = FileUtils.readFile(html);
 
         try {
-            content = PlaceholderSubstitutor.substitute(content, config.parseLocalizedStrings(code), tags);
+            Map<String, String> localizedStrings = updated == null
+                    ? config.parseLocalizedStrings(code)
+                    : config.getLocalizedStrings(code, updated);
+            content = updated == null
+                    ? PlaceholderSubstitutor.substitute(content, localizedStrings, tags)
+                    : PlaceholderSubstitutor.substitute(code, updated, content, localizedStrings, tags);
         } catch (Exception e) {
             // Not error. Early inapps do not contain pushwoosh.json
             PWLog.warn(TAG, "Failed to process html", e);
@@ -0,0 +1,227 @@
+package com.pushwoosh.inapp.mapper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.pushwoosh.internal.utils.PWLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * The {@code index.html} of a deployed rich media, rendered while the WebView reads it.
+ *
+ * <p>The document used to be read into a string, substituted, copied again to inject the Pushwoosh script
+ * and handed to {@code loadDataWithBaseURL}, a few copies of the whole document on the heap at once.
+ * {@link #open} copies the literal ranges of the {@link PlaceholderTemplate} cached for this deployment from
+ * the file and writes the values of its placeholders between them instead, injecting the script as it goes.
+ * Neither the template nor the stream holds more than a chunk of the document. {@link #prepare} returns
+ * {@code null} when the template can't be rendered exactly; such a document is still rendered as a whole
+ * string.
+ */
+public final class RichMediaDocument implements Serializable {
+    private static final long serialVersionUID = 6051720415383411925L;
+    private static final String TAG = "[InApp]RichMediaDocument";
+    private static final String HEAD = "<head>";
+
+    private final String code;
+    private final long updated;
+    private final String path;
+    private final long length;
+    private final long lastModified;
+    // placeholder values, in the order of the template slots
+    private final String[] values;
+
+    private RichMediaDocument(String code, long updated, File html, long length, long lastModified, String[] values) {
+        this.code = code;
+        this.updated = updated;
+        this.path = html.getAbsolutePath();
+        this.length = length;
+        this.lastModified = lastModified;
+        this.values = values;
+    }
+
+    /**
+     * @param localizedStrings strings of the rich media localization
+     * @return the document, or {@code null} if it has to be substituted as a whole string
+     */
+    @WorkerThread
+    @Nullable
+    public static RichMediaDocument prepare(String code, long updated, File html, Map<String, String> localizedStrings,
+            Map<String, String> tags) throws IOException {
+        long length = html.length();
+        long lastModified = html.lastModified();
+        PlaceholderTemplate template = PlaceholderSubstitutor.template(code, updated, html);
+        String[] values = template.matchesFile(length, lastModified) ? template.values(localizedStrings, tags) : null;
+        if (values == null) {
+            PWLog.noise(TAG, html.getPath() + " can't be rendered from its template");
+            return null;
+        }
+        return new RichMediaDocument(code, updated, html, length, lastModified, values);
+    }
+
+    public String getFileName() {
+        return new File(path).getName();
+    }
+
+    /**
+     * Opens the rendered document as UTF-8, with {@code headScript} in a {@code <script>} right after
+     * every {@code <head>}.
+     */
+    @WorkerThread
+    @NonNull
+    public InputStream open(String headScript) throws IOException {
+        File html = new File(path);
+        if (html.length() != length || html.lastModified() != lastModified) {
+            throw new IOException(html + " changed after it was prepared");
+        }
+        PlaceholderTemplate template = PlaceholderSubstitutor.template(code, updated, html);
+        if (!template.matchesFile(length, lastModified) || template.slotCount() != values.length) {
+            throw new IOException(html + " changed while it was opened");
+        }
+        return new DocumentStream(template, values, "\n<script type=\"text/javascript\">" + headScript + "</script>",
+                new HtmlFileReader(html));
+    }
+
+    private static final class DocumentStream extends InputStream {
+        private static final int CHUNK_LENGTH = 16 * 1024;
+        private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+        private final PlaceholderTemplate template;
+        private final String[] values;
+        private final String headInsertion;
+        private final Reader source;
+        private final char[] buffer = new char[CHUNK_LENGTH];
+        private final StringBuilder pending = new StringBuilder();
+        // literal i is segment 2 * i, the value that follows it segment 2 * i + 1
+        private final int segmentCount;
+        private int segment;
+        private int segmentOffset;
+        // chars of the source read so far
+        private int sourcePosition;
+        private byte[] bytes = new byte[0];
+        private int position;
+
+        DocumentStream(PlaceholderTemplate template, String[] values, String headInsertion, Reader source) {
+            this.template = template;
+            this.values = values;
+            this.headInsertion = headInsertion;
+            this.source = source;
+            segmentCount = template.literalCount() + template.slotRefCount();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureBytes()) {
+                return -1;
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int count) throws IOException {
+            if (count == 0) {
+                return 0;
+            }
+            if (!ensureBytes()) {
+                return -1;
+            }
+            int read = Math.min(count, bytes.length - position);
+            System.arraycopy(bytes, position, buffer, offset, read);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return bytes.length - position;
+        }
+
+        private boolean finished() {
+            return segment == segmentCount;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+
+        private boolean ensureBytes() throws IOException {
+            while (position == bytes.length) {
+                if (finished() && pending.length() == 0) {
+                    return false;
+                }
+                fill();
+            }
+            return true;
+        }
+
+        private void fill() throws IOException {
+            while (!finished() && pending.length() < CHUNK_LENGTH) {
+                int room = CHUNK_LENGTH - pending.length();
+                int length;
+                if (segment % 2 == 0) {
+                    int start = template.literalStart(segment / 2);
+                    length = template.literalEnd(segment / 2) - start;
+                    int count = Math.min(room, length - segmentOffset);
+                    readSource(start + segmentOffset, count);
+                    segmentOffset += count;
+                } else {
+                    String value = values[template.slotRef(segment / 2)];
+                    length = value.length();
+                    int end = Math.min(length, segmentOffset + room);
+                    pending.append(value, segmentOffset, end);
+                    segmentOffset = end;
+                }
+                if (segmentOffset == length) {
+                    segment++;
+                    segmentOffset = 0;
+                }
+            }
+
+            // what "<head>" may still be completed by the next chunk waits for it
+            boolean finished = finished();
+            int keep = finished ? 0 : HEAD.length() - 1;
+            StringBuilder out = new StringBuilder(pending.length() + headInsertion.length());
+            int from = 0;
+            for (int head = pending.indexOf(HEAD); head >= 0; head = pending.indexOf(HEAD, from)) {
+                out.append(pending, from, head + HEAD.length()).append(headInsertion);
+                from = head + HEAD.length();
+            }
+            int end = Math.max(from, pending.length() - keep);
+            if (!finished && end > from && Character.isHighSurrogate(pending.charAt(end - 1))) {
+                end--;
+            }
+            out.append(pending, from, end);
+            pending.delete(0, end);
+            bytes = out.toString().getBytes(UTF_8);
+            position = 0;
+        }
+
+        // appends count chars of the source from start, skipping the placeholder before them
+        private void readSource(int start, int count) throws IOException {
+            while (sourcePosition < start) {
+                long skipped = source.skip(start - sourcePosition);
+                if (skipped <= 0) {
+                    throw new IOException("document ended before its template");
+                }
+                sourcePosition += (int) skipped;
+            }
+            while (count > 0) {
+                int read = source.read(buffer, 0, Math.min(count, buffer.length));
+                if (read == -1) {
+                    throw new IOException("document ended before its template");
+                }
+                pending.append(buffer, 0, read);
+                sourcePosition += read;
+                count -= read;
+            }
+        }
+    }
+}
@@ -26,6 +26,10 @@
 
 package com.pushwoosh.inapp.model;
 
+import androidx.annotation.Nullable;
+
+import com.pushwoosh.inapp.mapper.RichMediaDocument;
+
 import java.io.Serializable;
 
 /**
@@ -41,6 +45,8 @@ public class HtmlData implements Serializable {
 	private String code;
 	private String url;
 	private String htmlContent;
+	@Nullable
+	private RichMediaDocument document;
 
 	public HtmlData(String code, String url, String htmlContent) {
 		this.code = code;
@@ -48,6 +54,15 @@ public class HtmlData implements Serializable {
 		this.htmlContent = htmlContent;
 	}
 
+	/**
+	 * HTML that is streamed to the WebView from {@code document} instead of being loaded as a string
+	 */
+	public HtmlData(String code, String url, RichMediaDocument document) {
+		this.code = code;
+		this.url = url;
+		this.document = document;
+	}
+
 	public String getCode() {
 		return code;
 	}
@@ -56,10 +71,18 @@ public class HtmlData implements Serializable {
 		return url;
 	}
 
+	/**
+	 * @return HTML content, {@code null} if the HTML is streamed from {@link #getDocument()}
+	 */
 	public String getHtmlContent() {
 		return htmlContent;
 	}
 
+	@Nullable
+	public RichMediaDocument getDocument() {
+		return document;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
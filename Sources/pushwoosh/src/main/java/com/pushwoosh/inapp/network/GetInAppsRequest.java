@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Locale;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.pushwoosh.inapp.network.model.Resource;
 import com.pushwoosh.internal.network.PushRequest;
@@ -40,9 +41,42 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+/**
+ * Requests the in-app list.
+ *
+ * <p>With the {@code version} of the list stored by the last sync the server may answer that the list is
+ * not modified, or with a delta: the added and changed in-apps and the codes of the removed ones. Either is
+ * told by {@link #isNotModified()} and {@link #isDelta()} once the response is parsed. A server that doesn't
+ * version the list returns it whole, without a {@code version}.
+ */
 class GetInAppsRequest extends PushRequest<List<Resource>> {
 
 	private static final String IN_APPS = "inApps";
+	private static final String VERSION = "version";
+	private static final String NOT_MODIFIED = "notModified";
+	private static final String DELTA = "delta";
+	private static final String REMOVED = "removed";
+
+	@Nullable
+	private final String knownVersion;
+
+	// set by parseResponse
+	@Nullable
+	private String version;
+	private boolean notModified;
+	private boolean delta;
+	private List<String> removed = Collections.emptyList();
+
+	GetInAppsRequest() {
+		this(null);
+	}
+
+	/**
+	 * @param knownVersion version of the stored in-app list, {@code null} to request the whole list
+	 */
+	GetInAppsRequest(@Nullable String knownVersion) {
+		this.knownVersion = knownVersion;
+	}
 
 	@Override
 	public String getMethod() {
@@ -52,11 +86,24 @@ class GetInAppsRequest extends PushRequest<List<Resource>> {
 	@Override
 	protected void buildParams(JSONObject params) throws JSONException {
 		params.put("language", Locale.getDefault().getLanguage());
+		if (knownVersion != null) {
+			params.put(VERSION, knownVersion);
+		}
 	}
 
+	/**
+	 * @return the added and changed in-apps for a delta, empty if the list is not modified, the whole list otherwise
+	 */
 	@Override
 	public List<Resource> parseResponse(@NonNull JSONObject response) throws JSONException {
 		List<Resource> result = Collections.emptyList();
+		version = response.isNull(VERSION) ? null : response.getString(VERSION);
+		// a delta or "not modified" is only valid against the version that was sent
+		notModified = knownVersion != null && response.optBoolean(NOT_MODIFIED);
+		delta = knownVersion != null && !notModified && response.optBoolean(DELTA);
+		if (notModified) {
+			return result;
+		}
 
 		if (response.has(IN_APPS)) {
 			JSONArray array = response.getJSONArray(IN_APPS);
@@ -66,7 +113,43 @@ class GetInAppsRequest extends PushRequest<List<Resource>> {
 			}
 		}
 
+		if (delta && response.has(REMOVED)) {
+			JSONArray array = response.getJSONArray(REMOVED);
+			removed = new ArrayList<>(array.length());
+			for (int i = 0; i < array.length(); i++) {
+				removed.add(array.getString(i));
+			}
+		}
+
 		return result;
 	}
 
+	/**
+	 * @return version of the returned list, {@code null} if the server doesn't version it
+	 */
+	@Nullable
+	String getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return true if the stored list is up to date
+	 */
+	boolean isNotModified() {
+		return notModified;
+	}
+
+	/**
+	 * @return true if only the changes to the stored list were returned
+	 */
+	boolean isDelta() {
+		return delta;
+	}
+
+	/**
+	 * @return codes of the in-apps removed from the stored list
+	 */
+	List<String> getRemoved() {
+		return removed;
+	}
 }
@@ -27,10 +27,12 @@
 package com.pushwoosh.inapp.network;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
 import com.pushwoosh.inapp.network.model.Resource;
 import com.pushwoosh.inapp.storage.InAppFolderProvider;
+import com.pushwoosh.inapp.storage.InAppManifest;
 import com.pushwoosh.inapp.storage.InAppStorage;
 import com.pushwoosh.internal.checker.ObjectChecker;
 
@@ -38,14 +40,28 @@ import java.io.File;
 
 /**
  * Checks that inApp file exists and that it is not out of a date
+ *
+ * <p>Both are looked up in memory: the stored inApp in the {@link InAppStorage} index and its files in the
+ * {@link InAppManifest}. Files are looked for on disk only the first time an inApp deployed by an earlier
+ * process is checked.
  */
 class InAppDeployedChecker implements ObjectChecker<Resource> {
     private final InAppStorage inAppStorage;
     private final InAppFolderProvider inAppFolderProvider;
+    private final InAppManifest manifest;
 
     InAppDeployedChecker(InAppStorage inAppStorage, InAppFolderProvider inAppFolderProvider) {
+        this(inAppStorage, inAppFolderProvider, null);
+    }
+
+    /**
+     * @param manifest manifest kept by the downloader that deploys inApps into {@code inAppFolderProvider}
+     */
+    InAppDeployedChecker(
+            InAppStorage inAppStorage, InAppFolderProvider inAppFolderProvider, @Nullable InAppManifest manifest) {
         this.inAppStorage = inAppStorage;
         this.inAppFolderProvider = inAppFolderProvider;
+        this.manifest = manifest != null ? manifest : new InAppManifest();
     }
 
     @Override
@@ -56,12 +72,26 @@ class InAppDeployedChecker implements ObjectChecker<Resource> {
             return false;
         }
 
-        File html = inAppFolderProvider.getInAppHtmlFile(check.getCode());
+        if (manifest.get(check.getCode()) != null) {
+            return true;
+        }
+
+        long stamp = manifest.stamp();
+        if (!hasPayload(check.getCode())) {
+            return false;
+        }
+        manifest.restore(new InAppManifest.Entry(check.getCode(), inApp.getUpdated(), null,
+                inAppFolderProvider.getInAppFolder(check.getCode())), stamp);
+        return true;
+    }
+
+    private boolean hasPayload(String code) {
+        File html = inAppFolderProvider.getInAppHtmlFile(code);
         if (html != null && html.exists()) {
             return true;
         }
 
-        File nativeConfig = inAppFolderProvider.getNativeConfigFile(check.getCode());
+        File nativeConfig = inAppFolderProvider.getNativeConfigFile(code);
         return nativeConfig != null && nativeConfig.exists();
     }
 }
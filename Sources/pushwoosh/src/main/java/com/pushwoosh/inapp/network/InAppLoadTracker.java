@@ -0,0 +1,193 @@
+package com.pushwoosh.inapp.network;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Completion signal of in-app list loads ({@code /getInApps}).
+ * <p>
+ * Every load takes a generation from {@link #begin()} and reports it to {@link #complete(long)}.
+ * A waiter asks for a generation and is released as soon as that generation or a newer one
+ * completes, so a stale load that started earlier never satisfies a waiter for a reload.
+ * Waits are {@link Future}s: they wake up when the load completes instead of polling, can be
+ * bounded by a timeout and can be cancelled.
+ */
+class InAppLoadTracker {
+    private final Object lock = new Object();
+    private final List<LoadFuture> waiters = new ArrayList<>();
+    private long startedGeneration;
+    private long completedGeneration;
+
+    /**
+     * @return generation of the load that is starting
+     */
+    long begin() {
+        synchronized (lock) {
+            return ++startedGeneration;
+        }
+    }
+
+    /**
+     * Marks the load finished, successfully or not, and releases waiters for this or older generations.
+     */
+    void complete(long generation) {
+        List<LoadFuture> released = new ArrayList<>();
+        synchronized (lock) {
+            if (generation <= completedGeneration) {
+                return;
+            }
+            completedGeneration = generation;
+            Iterator<LoadFuture> iterator = waiters.iterator();
+            while (iterator.hasNext()) {
+                LoadFuture waiter = iterator.next();
+                if (waiter.generation <= generation) {
+                    iterator.remove();
+                    released.add(waiter);
+                }
+            }
+        }
+        for (LoadFuture waiter : released) {
+            waiter.release(generation);
+        }
+    }
+
+    /**
+     * @return true if at least one load has finished
+     */
+    boolean isLoaded() {
+        synchronized (lock) {
+            return completedGeneration > 0;
+        }
+    }
+
+    /**
+     * @return true if the newest started load has not finished yet
+     */
+    boolean isLoading() {
+        synchronized (lock) {
+            return startedGeneration > completedGeneration;
+        }
+    }
+
+    /**
+     * @return generation of the newest started load, 0 if there was none
+     */
+    long latestGeneration() {
+        synchronized (lock) {
+            return startedGeneration;
+        }
+    }
+
+    /**
+     * @return future completed with the finished generation once {@code generation} or a newer one finishes
+     */
+    @NonNull
+    Future<Long> whenLoaded(long generation) {
+        LoadFuture future = new LoadFuture(generation);
+        long completed;
+        synchronized (lock) {
+            completed = completedGeneration;
+            if (completed < generation) {
+                waiters.add(future);
+                return future;
+            }
+        }
+        future.release(completed);
+        return future;
+    }
+
+    /**
+     * Blocks until {@code generation} or a newer one finishes.
+     *
+     * @return false if the timeout elapsed first
+     */
+    boolean await(long generation, long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        Future<Long> future = whenLoaded(generation);
+        try {
+            future.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            return false;
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            throw e;
+        } catch (ExecutionException | CancellationException e) {
+            return false;
+        }
+    }
+
+    int waitersCount() {
+        synchronized (lock) {
+            return waiters.size();
+        }
+    }
+
+    private final class LoadFuture implements Future<Long> {
+        private final long generation;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile long completedGeneration;
+        private volatile boolean cancelled;
+
+        LoadFuture(long generation) {
+            this.generation = generation;
+        }
+
+        void release(long completed) {
+            completedGeneration = completed;
+            done.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (lock) {
+                if (!waiters.remove(this)) {
+                    return false;
+                }
+                cancelled = true;
+            }
+            done.countDown();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        @Override
+        public Long get() throws InterruptedException {
+            done.await();
+            return result();
+        }
+
+        @Override
+        public Long get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, TimeoutException {
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException("in-app list load " + generation + " is not finished");
+            }
+            return result();
+        }
+
+        private Long result() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            return completedGeneration;
+        }
+    }
+}
@@ -26,10 +26,12 @@
 
 package com.pushwoosh.inapp.network;
 
+import android.os.SystemClock;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import com.pushwoosh.PushwooshPlatform;
@@ -42,6 +44,7 @@ import com.pushwoosh.exception.SetUserException;
 import com.pushwoosh.exception.SetUserIdException;
 import com.pushwoosh.function.Callback;
 import com.pushwoosh.function.Result;
+import com.pushwoosh.inapp.InAppModule;
 import com.pushwoosh.inapp.event.InAppEvent;
 import com.pushwoosh.inapp.exception.ResourceParseException;
 import com.pushwoosh.inapp.mapper.ResourceMapper;
@@ -73,13 +76,17 @@ import java.util.Locale;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 public class InAppRepository {
     private static final String TAG = "[InApp]InAppRepository";
     // Time while wait required inApp
     private static final int REQUIRED_TIMEOUT_SECONDS = 5;
+    private static final int DEPLOY_WAIT_TIMEOUT_SECONDS = 120;
+    // a code missing from a list fetched this recently is not on the server, the list is not fetched again
+    @VisibleForTesting
+    static final long TRIGGER_REFETCH_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
 
     @Nullable private RequestManager requestManager;
 
@@ -87,8 +94,11 @@ public class InAppRepository {
     private final InAppDownloader inAppDownloader;
     private final InAppDeployedChecker inAppDeployedChecker;
     private final ResourceMapper resourceMapper;
-    private final AtomicBoolean inAppLoaded = new AtomicBoolean(false);
+    private final InAppLoadTracker inAppListLoad = new InAppLoadTracker();
     private final RegistrationPrefs registrationPrefs;
+    private final PostEventQueue postEventQueue;
+    // SystemClock.elapsedRealtime() of the last complete /getInApps list, 0 if there was none
+    private volatile long inAppListFetchedAt;
 
     private final ExecutorService io = Executors.newSingleThreadExecutor();
 
@@ -106,7 +116,15 @@ public class InAppRepository {
         this.resourceMapper = resourceMapper;
         this.registrationPrefs = registrationPrefs;
 
-        inAppDeployedChecker = new InAppDeployedChecker(inAppStorage, inAppFolderProvider);
+        inAppDeployedChecker =
+                new InAppDeployedChecker(inAppStorage, inAppFolderProvider, inAppDownloader.getManifest());
+        postEventQueue = new PostEventQueue((request, callback) -> {
+            if (!updateRequestManagerIfNeeded() || requestManager == null) {
+                return false;
+            }
+            requestManager.sendRequest(request, callback);
+            return true;
+        }, InAppModule.getPendingEventsStorage(), BackgroundExecutor::execute);
         EventBus.subscribe(InAppViewEvent.class, (event) -> {
             PreferenceStringValue preferenceValue =
                     RepositoryModule.getNotificationPreferences().messageHash();
@@ -125,23 +143,77 @@ public class InAppRepository {
         });
     }
 
+    /**
+     * Syncs the stored in-apps with the server list and deploys them.
+     * <p>
+     * The version of a list whose in-apps were all stored and deployed is saved and sent with the next
+     * request, so the server answers with only the changes to the list, or that it is not modified.
+     */
     @SuppressWarnings("UnusedReturnValue")
     @WorkerThread
     public Result<Void, NetworkException> loadInApps() {
-        List<Resource> data = null;
+        final long generation = inAppListLoad.begin();
         try {
-            data = getInAppsList();
-
-            if (data == null || data.isEmpty()) {
+            String scope = listScope();
+            String knownVersion = inAppStorage.getListVersion(scope);
+            GetInAppsRequest request = new GetInAppsRequest(knownVersion);
+            List<Resource> data = getInAppsList(request);
+
+            if (request.isNotModified()) {
+                PWLog.noise(TAG, "InApp list is not modified since version " + knownVersion);
+                inAppListFetchedAt = SystemClock.elapsedRealtime();
+                return Result.fromData(null);
+            }
+            if (request.isDelta()) {
+                removeInApps(request.getRemoved());
+            } else if (data.isEmpty()) {
                 return Result.fromData(null);
             }
+            inAppListFetchedAt = SystemClock.elapsedRealtime();
 
             updateInAppStorage(data);
-            downloadOrUpdate(data);
+            DownloadResult downloadResult = downloadOrUpdate(data);
+
+            String version = request.getVersion();
+            if (version != null && !(downloadResult.getFailed().isEmpty() && isStored(data))) {
+                // the next sync returns the whole list again, so what failed is retried
+                version = null;
+            }
+            if (version != null || knownVersion != null) {
+                inAppStorage.saveListVersion(scope, version);
+            }
 
             return Result.fromData(null);
         } finally {
-            inAppLoaded.set(true);
+            inAppListLoad.complete(generation);
+        }
+    }
+
+    // the in-app list is requested for the application, device, user and language
+    private String listScope() {
+        return registrationPrefs.applicationId().get() + "/" + registrationPrefs.hwid().get()
+                + "/" + registrationPrefs.userId().get() + "/" + Locale.getDefault().getLanguage();
+    }
+
+    private boolean isStored(List<Resource> inApps) {
+        for (Resource inApp : inApps) {
+            if (!inApp.equals(inAppStorage.getResource(inApp.getCode()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @WorkerThread
+    private void removeInApps(List<String> codes) {
+        if (codes.isEmpty()) {
+            return;
+        }
+        PWLog.info(TAG, String.format(Locale.US, "Removing %d removed inApps: %s", codes.size(), codes));
+        // forgotten first, so the code is no longer resolved and downloaded again once its files are gone
+        inAppStorage.removeResources(codes);
+        for (String code : codes) {
+            inAppDownloader.removeResourceFiles(code);
         }
     }
 
@@ -219,12 +291,20 @@ public class InAppRepository {
         });
 
         try {
-            latch.await();
-            subscribe.unsubscribe();
+            // the deploy may have finished before we subscribed
+            if (!inAppDownloader.isDownloading(resource)) {
+                return inAppDeployedChecker.check(resource);
+            }
+            if (!latch.await(DEPLOY_WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                PWLog.error(TAG, String.format("Timed out waiting for resource deploy: %s", resource.getCode()));
+                return inAppDeployedChecker.check(resource);
+            }
             return eventType[0].equals(InAppEvent.EventType.DEPLOYED);
         } catch (InterruptedException e) {
             PWLog.error("Deploy interrupted", e);
             return false;
+        } finally {
+            subscribe.unsubscribe();
         }
     }
 
@@ -413,6 +493,9 @@ public class InAppRepository {
 
     /**
      * Sends event to server. If response contains Rich Media or In-App code, triggers display.
+     * <p>
+     * Events are delivered in order through {@link PostEventQueue}, an event that can't be sent now
+     * is kept and sent later, but its callback gets the failure.
      */
     public void postEvent(
             String event, TagsBundle attributes, @Nullable Callback<Resource, PostEventException> callback) {
@@ -420,15 +503,21 @@ public class InAppRepository {
                 PushwooshPlatform.getInstance().pushwooshRepository().getCurrentSessionHash();
 
         PostEventRequest request = new PostEventRequest(event, currentSessionHash, attributes);
-        if (!updateRequestManagerIfNeeded() || requestManager == null) {
-            if (callback != null) {
-                callback.process(Result.fromException(new PostEventException("Request Manager is null")));
-            }
-            return;
-        }
-        requestManager.sendRequest(request, result -> {
-            handlePostEventResponse(result, callback);
-        });
+        postEventQueue.post(request, callback == null ? null : result -> handlePostEventResponse(result, callback));
+    }
+
+    /**
+     * Sends events that were posted but not delivered before the previous process ended.
+     */
+    public void sendPendingEvents() {
+        postEventQueue.flushPending();
+    }
+
+    /**
+     * Drops the events that were posted but not delivered yet, called when device data is removed.
+     */
+    public void clearPendingEvents() {
+        postEventQueue.clear();
     }
 
     public void mergeUserId(
@@ -491,10 +580,10 @@ public class InAppRepository {
         PWLog.noise(
                 TAG,
                 String.format(
-                        "ensureResolvedAndDeployed: code=%s, inAppListReady=%s", inapp.getCode(), inAppLoaded.get()));
+                        "ensureResolvedAndDeployed: code=%s, inAppListReady=%s", inapp.getCode(), inAppListLoad.isLoaded()));
         if (inapp.isNotDownload()) {
             try {
-                if (inAppLoaded.get() || (inapp.isRequired() && waitUntilObtainInApps())) {
+                if (inAppListLoad.isLoaded() || (inapp.isRequired() && waitUntilObtainInApps())) {
                     Resource resource = inAppStorage.getResource(inapp.getCode());
                     if (resource != null) {
                         inapp = resource;
@@ -538,17 +627,28 @@ public class InAppRepository {
 
     private boolean waitUntilObtainInApps() throws Exception {
         PWLog.noise("Wait until getInApps finished");
-        int waitCounter = 0;
-        while (!inAppLoaded.get() && waitCounter < REQUIRED_TIMEOUT_SECONDS * 5) {
-            Thread.sleep(200);
-            waitCounter++;
-        }
-        if (!inAppLoaded.get()) {
+        // any loaded list will do, wait for the first load
+        if (!inAppListLoad.await(1, REQUIRED_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
             throw new TimeoutException("InApp wait timeout");
         }
         return true;
     }
 
+    /**
+     * If /getInApps is in flight, waits for it and looks the code up in the list it stored.
+     */
+    @WorkerThread
+    @Nullable private Resource getResourceFromLoadingList(String code) throws InterruptedException {
+        if (!inAppListLoad.isLoading()) {
+            return null;
+        }
+        PWLog.noise(TAG, String.format("wait for getInApps in progress to resolve inapp %s", code));
+        if (!inAppListLoad.await(inAppListLoad.latestGeneration(), REQUIRED_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            return null;
+        }
+        return inAppStorage.getResource(code);
+    }
+
     private String getResultErrorMessage(Result result, String defaultErrorMessage) {
         return result.getException() == null
                         || TextUtils.isEmpty(result.getException().getMessage())
@@ -557,7 +657,11 @@ public class InAppRepository {
     }
 
     /**
-     * Parses postEvent response: richmedia JSON → Rich Media, code → In-App (fetches via getInApps).
+     * Parses postEvent response: richmedia JSON → Rich Media, code → In-App.
+     * <p>
+     * A code missing from {@link InAppStorage} is looked up in a fresh /getInApps list, which is stored
+     * whole, so the codes of the next events are found locally. The list is fetched at most once per
+     * {@link #TRIGGER_REFETCH_INTERVAL_MS}, a code that is not in a list that recent is not on the server.
      */
     @WorkerThread
     @Nullable private Resource getResourceFromPostEvent(PostEventResponse response) {
@@ -574,11 +678,21 @@ public class InAppRepository {
             }
 
             if (code != null && !code.isEmpty()) {
-                List<Resource> list = this.getInAppsList();
+                Resource loaded = getResourceFromLoadingList(code);
+                if (loaded != null) {
+                    this.downloadIfNeeded(loaded);
+                    PWLog.noise(TAG, String.format("get inapp resource %s from loaded inapp list", code));
+                    return loaded;
+                }
+
+                long fetchedAt = inAppListFetchedAt;
+                if (fetchedAt != 0 && SystemClock.elapsedRealtime() - fetchedAt < TRIGGER_REFETCH_INTERVAL_MS) {
+                    PWLog.error(TAG, String.format("can't load inapp resource, code %s is not in the latest inapp list", code));
+                    return null;
+                }
 
-                for (Resource r : list) {
+                for (Resource r : fetchInAppList()) {
                     if (code.equals(r.getCode())) {
-                        updateInAppStorage(Collections.singletonList(r));
                         this.downloadIfNeeded(r);
                         PWLog.noise(TAG, String.format("get inapp resource %s from server", code));
                         return r;
@@ -598,9 +712,32 @@ public class InAppRepository {
         return null;
     }
 
+    /**
+     * Fetches and stores the in-app list without deploying it, for the threads waiting for in-apps it
+     * counts as a list load.
+     */
+    @WorkerThread
+    private List<Resource> fetchInAppList() {
+        final long generation = inAppListLoad.begin();
+        try {
+            List<Resource> list = getInAppsList();
+            if (!list.isEmpty()) {
+                updateInAppStorage(list);
+                inAppListFetchedAt = SystemClock.elapsedRealtime();
+            }
+            return list;
+        } finally {
+            inAppListLoad.complete(generation);
+        }
+    }
+
     @WorkerThread
     List<Resource> getInAppsList() {
-        GetInAppsRequest request = new GetInAppsRequest();
+        return getInAppsList(new GetInAppsRequest());
+    }
+
+    @WorkerThread
+    private List<Resource> getInAppsList(GetInAppsRequest request) {
         if (!updateRequestManagerIfNeeded() || requestManager == null) {
             PWLog.error(TAG, "Failed to get list of inapps: RequestManager is not valid");
             return Collections.emptyList();
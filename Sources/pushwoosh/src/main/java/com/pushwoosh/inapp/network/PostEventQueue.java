@@ -0,0 +1,308 @@
+package com.pushwoosh.inapp.network;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.pushwoosh.function.Callback;
+import com.pushwoosh.function.Result;
+import com.pushwoosh.inapp.storage.PendingEvent;
+import com.pushwoosh.inapp.storage.PendingEventsStorage;
+import com.pushwoosh.inapp.storage.PendingEventsStorageImpl;
+import com.pushwoosh.internal.network.NetworkException;
+import com.pushwoosh.internal.network.RetryEngine;
+import com.pushwoosh.internal.utils.PWLog;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable, ordered sender of {@code /postEvent}.
+ * <p>
+ * Events are sent one request at a time in the order they were posted, with the attributes and time
+ * they had when they were posted, and are kept in {@link PendingEventsStorage} until Pushwoosh
+ * accepts them, so events posted offline or left by a killed process are delivered later. A backlog
+ * is sent back to back, each request starting as soon as the previous one is answered.
+ * <p>
+ * An event posted while the queue is idle is sent right away, its callback gets the response and may
+ * show the in-app it triggers. When the head of the queue fails to send, the queue backs off with
+ * the jittered delays of {@link RetryEngine} and the callbacks of all queued events fail at once: the
+ * events stay queued, but an in-app they trigger minutes later would be out of place. While backing
+ * off, a new event probes the connection at most once per {@link #RETRY_MIN_DELAY_MS}. Events
+ * rejected by Pushwoosh or blocked because device data was removed or server communication is stopped
+ * are dropped, and {@link #clear} drops all of them when device data is removed.
+ */
+class PostEventQueue {
+    private static final String TAG = "[InApp]PostEventQueue";
+
+    @VisibleForTesting
+    static final long RETRY_MIN_DELAY_MS = TimeUnit.SECONDS.toMillis(5);
+    @VisibleForTesting
+    static final long RETRY_MAX_DELAY_MS = TimeUnit.MINUTES.toMillis(5);
+    @VisibleForTesting
+    static final String NO_REQUEST_MANAGER = "Request Manager is null";
+
+    interface Sender {
+        /**
+         * @return false if there is nothing to send the request with
+         */
+        boolean send(@NonNull PostEventRequest request, @NonNull Callback<PostEventResponse, NetworkException> callback);
+    }
+
+    private static final class Entry {
+        final PostEventRequest request;
+        // guarded by lock, cleared once the callback got a result
+        @Nullable Callback<PostEventResponse, NetworkException> callback;
+        // assigned and read on the storage executor
+        volatile long id = -1;
+
+        Entry(PostEventRequest request, @Nullable Callback<PostEventResponse, NetworkException> callback) {
+            this.request = request;
+            this.callback = callback;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable retryRunnable = this::sendNext;
+
+    private final Sender sender;
+    @Nullable
+    private final PendingEventsStorage storage;
+    private final Executor storageExecutor;
+
+    private boolean restored;
+    private boolean inFlight;
+    private long retryAt;
+    private long lastAttemptAt;
+    private long retryDelayMs;
+
+    private final AtomicInteger requestsSent = new AtomicInteger();
+
+    PostEventQueue(@NonNull Sender sender, @Nullable PendingEventsStorage storage, @NonNull Executor storageExecutor) {
+        this.sender = sender;
+        this.storage = storage;
+        this.storageExecutor = storageExecutor;
+    }
+
+    void post(@NonNull PostEventRequest request, @Nullable Callback<PostEventResponse, NetworkException> callback) {
+        Entry entry = new Entry(request, callback);
+        boolean send = false;
+        boolean queuedOnly = false;
+        synchronized (lock) {
+            queue.add(entry);
+            dropOverflowLocked();
+            // enqueued under the lock so that it can't be overtaken by the removal after the delivery
+            if (storage != null) {
+                storageExecutor.execute(() -> entry.id = storage.add(request.toPendingEvent()));
+            }
+
+            // with a request in flight the event goes out after the ones posted before it
+            if (!inFlight) {
+                long now = SystemClock.uptimeMillis();
+                if (retryAt <= now || now - lastAttemptAt >= RETRY_MIN_DELAY_MS) {
+                    send = true;
+                } else {
+                    entry.callback = null;
+                    queuedOnly = true;
+                }
+            }
+        }
+
+        if (send) {
+            sendNext();
+        } else if (queuedOnly && callback != null) {
+            callback.process(Result.fromException(new NetworkException("Event is queued, server is not reachable")));
+        }
+    }
+
+    /**
+     * Loads events left undelivered by a previous process and sends them. Called on SDK start, when
+     * requests can be sent.
+     */
+    void flushPending() {
+        if (storage == null) {
+            sendNext();
+            return;
+        }
+        storageExecutor.execute(() -> {
+            List<PendingEvent> stored = storage.getAll();
+            synchronized (lock) {
+                if (!restored) {
+                    restored = true;
+                    Set<Long> known = new HashSet<>();
+                    for (Entry entry : queue) {
+                        known.add(entry.id);
+                    }
+                    // stored events are older than the ones posted by this process
+                    for (int i = stored.size() - 1; i >= 0; i--) {
+                        PendingEvent pendingEvent = stored.get(i);
+                        if (!known.contains(pendingEvent.getId())) {
+                            Entry entry = new Entry(new PostEventRequest(pendingEvent), null);
+                            entry.id = pendingEvent.getId();
+                            queue.addFirst(entry);
+                        }
+                    }
+                    dropOverflowLocked();
+                }
+                if (!queue.isEmpty()) {
+                    PWLog.debug(TAG, "Sending " + queue.size() + " pending events");
+                }
+            }
+            sendNext();
+        });
+    }
+
+    /**
+     * Drops the queued and stored events, their callbacks fail. A request in flight is still answered,
+     * but the event is not sent again.
+     */
+    void clear() {
+        List<Callback<PostEventResponse, NetworkException>> callbacks = new ArrayList<>();
+        synchronized (lock) {
+            for (Entry entry : queue) {
+                if (entry.callback != null) {
+                    callbacks.add(entry.callback);
+                    entry.callback = null;
+                }
+            }
+            queue.clear();
+            // what a previous process stored is removed with the rest, there is nothing to restore
+            restored = true;
+            retryDelayMs = 0;
+            retryAt = 0;
+            handler.removeCallbacks(retryRunnable);
+            if (storage != null) {
+                storageExecutor.execute(storage::clear);
+            }
+        }
+
+        for (Callback<PostEventResponse, NetworkException> callback : callbacks) {
+            try {
+                callback.process(Result.fromException(new NetworkException("Pending events are removed")));
+            } catch (Exception e) {
+                PWLog.error(TAG, "Error processing callback", e);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int getRequestsSent() {
+        return requestsSent.get();
+    }
+
+    @VisibleForTesting
+    int getPendingCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    private void sendNext() {
+        final Entry head;
+        synchronized (lock) {
+            head = queue.peekFirst();
+            if (head == null || inFlight) {
+                return;
+            }
+            inFlight = true;
+            lastAttemptAt = SystemClock.uptimeMillis();
+            handler.removeCallbacks(retryRunnable);
+        }
+
+        requestsSent.incrementAndGet();
+        boolean sent = false;
+        try {
+            sent = sender.send(head.request, result -> onResult(head, result));
+        } catch (Exception e) {
+            PWLog.error(TAG, "Failed to send event " + head.request.getEvent(), e);
+        }
+        if (!sent) {
+            onResult(head, Result.fromException(new NetworkException(NO_REQUEST_MANAGER)));
+        }
+    }
+
+    private void onResult(Entry head, Result<PostEventResponse, NetworkException> result) {
+        Callback<PostEventResponse, NetworkException> headCallback;
+        List<Callback<PostEventResponse, NetworkException>> queuedCallbacks = new ArrayList<>();
+        boolean next = false;
+        synchronized (lock) {
+            inFlight = false;
+            headCallback = head.callback;
+            head.callback = null;
+
+            NetworkException exception = result.getException();
+            if (result.isSuccess() || !RetryEngine.isRetriableQueued(exception)) {
+                if (exception != null) {
+                    PWLog.error(TAG, "Event " + head.request.getEvent() + " is rejected, dropping it", exception);
+                }
+                queue.remove(head);
+                if (storage != null) {
+                    storageExecutor.execute(() -> storage.remove(head.id));
+                }
+                retryDelayMs = 0;
+                retryAt = 0;
+                next = !queue.isEmpty();
+            } else {
+                long delay = RetryEngine.getInstance()
+                        .nextRetryDelayMs(retryDelayMs, exception, RETRY_MIN_DELAY_MS, RETRY_MAX_DELAY_MS);
+                retryDelayMs = delay;
+                retryAt = SystemClock.uptimeMillis() + delay;
+                handler.removeCallbacks(retryRunnable);
+                handler.postDelayed(retryRunnable, delay);
+                for (Entry entry : queue) {
+                    if (entry.callback != null) {
+                        queuedCallbacks.add(entry.callback);
+                        entry.callback = null;
+                    }
+                }
+                PWLog.warn(TAG, "Failed to send event, " + queue.size() + " events will be retried in " + delay + " ms");
+            }
+        }
+
+        if (next) {
+            sendNext();
+        }
+        for (Callback<PostEventResponse, NetworkException> callback : queuedCallbacks) {
+            try {
+                callback.process(Result.fromException(result.getException()));
+            } catch (Exception e) {
+                PWLog.error(TAG, "Error processing callback", e);
+            }
+        }
+        if (headCallback != null) {
+            headCallback.process(result);
+        }
+    }
+
+    // the oldest event that is not being sent goes first
+    private void dropOverflowLocked() {
+        while (queue.size() > PendingEventsStorageImpl.MAX_EVENTS) {
+            Entry head = queue.pollFirst();
+            Entry dropped = inFlight ? queue.pollFirst() : head;
+            if (inFlight) {
+                queue.addFirst(head);
+            }
+            PWLog.warn(TAG, "Too many pending events, dropping " + dropped.request.getEvent());
+            Callback<PostEventResponse, NetworkException> callback = dropped.callback;
+            dropped.callback = null;
+            if (storage != null) {
+                storageExecutor.execute(() -> storage.remove(dropped.id));
+            }
+            if (callback != null) {
+                handler.post(() -> callback.process(Result.fromException(new NetworkException("Too many pending events"))));
+            }
+        }
+    }
+}
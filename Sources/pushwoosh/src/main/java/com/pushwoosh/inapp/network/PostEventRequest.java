@@ -30,7 +30,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.pushwoosh.PushwooshPlatform;
+import com.pushwoosh.inapp.storage.PendingEvent;
 import com.pushwoosh.internal.network.PushRequest;
+import com.pushwoosh.internal.utils.PWLog;
 import com.pushwoosh.tags.Tags;
 import com.pushwoosh.tags.TagsBundle;
 
@@ -41,18 +43,55 @@ import java.util.Calendar;
 import java.util.Date;
 
 class PostEventRequest extends PushRequest<PostEventResponse> {
-	private String currentSessionHash;
-	private TagsBundle attributes;
-	private String event;
-	private String richMediaCode;
-	private String inAppCode;
+	private static final String TAG = "[InApp]PostEventRequest";
 
+	private final String event;
+	private final JSONObject attributes;
+	private final long timestampUtc;
+	private final long timestampCurrent;
+
+	/**
+	 * Captures the attributes and the time of the event, a queued event is sent with them later.
+	 */
 	PostEventRequest(String event, String currentSessionHash, @Nullable TagsBundle attributes) {
-		this.attributes = attributes != null ? attributes : Tags.empty();
-		this.currentSessionHash = currentSessionHash;
+		TagsBundle eventAttributes = attributes != null ? attributes : Tags.empty();
+		String richMediaCode = PushwooshPlatform.getInstance().pushwooshRepository().getCurrentRichMediaCode();
+		String inAppCode = PushwooshPlatform.getInstance().pushwooshRepository().getCurrentInAppCode();
 		this.event = event;
-		this.richMediaCode = PushwooshPlatform.getInstance().pushwooshRepository().getCurrentRichMediaCode();
-		this.inAppCode = PushwooshPlatform.getInstance().pushwooshRepository().getCurrentInAppCode();
+		this.attributes = new TagsBundle.Builder()
+				.putAll(eventAttributes.toJson())
+				.putStringIfNotEmpty("msgHash", currentSessionHash)
+				.putStringIfNotEmpty("richMediaCode", richMediaCode)
+				.putStringIfNotEmpty("inAppCode", inAppCode)
+				.build()
+				.toJson();
+
+		int timezone = Calendar.getInstance().getTimeZone().getOffset(new Date().getTime()) / 1000;
+		this.timestampUtc = System.currentTimeMillis() / 1000L;
+		this.timestampCurrent = timestampUtc + timezone;
+	}
+
+	PostEventRequest(@NonNull PendingEvent pendingEvent) {
+		JSONObject storedAttributes;
+		try {
+			storedAttributes = new JSONObject(pendingEvent.getAttributes());
+		} catch (JSONException e) {
+			PWLog.error(TAG, "Malformed attributes of queued event " + pendingEvent.getEvent(), e);
+			storedAttributes = new JSONObject();
+		}
+		this.event = pendingEvent.getEvent();
+		this.attributes = storedAttributes;
+		this.timestampUtc = pendingEvent.getTimestampUtc();
+		this.timestampCurrent = pendingEvent.getTimestampCurrent();
+	}
+
+	String getEvent() {
+		return event;
+	}
+
+	@NonNull
+	PendingEvent toPendingEvent() {
+		return new PendingEvent(-1, event == null ? "" : event, attributes.toString(), timestampUtc, timestampCurrent);
 	}
 
 	@Override
@@ -62,23 +101,10 @@ class PostEventRequest extends PushRequest<PostEventResponse> {
 
 	@Override
 	protected void buildParams(JSONObject params) throws JSONException {
-		attributes = new TagsBundle.Builder()
-				.putAll(attributes.toJson())
-				.putStringIfNotEmpty("msgHash", currentSessionHash)
-				.putStringIfNotEmpty("richMediaCode", richMediaCode)
-				.putStringIfNotEmpty("inAppCode", inAppCode)
-				.build();
-
-
-		params.put("attributes", attributes.toJson());
+		params.put("attributes", attributes);
 		params.put("event", event);
-
-		int timezone = Calendar.getInstance().getTimeZone().getOffset(new Date().getTime()) / 1000;
-		long unixTime = System.currentTimeMillis() / 1000L;
-		long localTime = unixTime + timezone;
-
-		params.put("timestampUTC", unixTime);
-		params.put("timestampCurrent", localTime);
+		params.put("timestampUTC", timestampUtc);
+		params.put("timestampCurrent", timestampCurrent);
 	}
 
 	@Override
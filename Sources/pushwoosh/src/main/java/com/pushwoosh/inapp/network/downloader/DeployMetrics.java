@@ -0,0 +1,61 @@
+package com.pushwoosh.inapp.network.downloader;
+
+import java.util.Locale;
+
+/**
+ * Throughput of one {@link InAppDownloader#downloadAndDeploy} batch: resources deployed, bytes
+ * downloaded and wall time from the first download to the last deploy.
+ */
+public class DeployMetrics {
+    private final int resources;
+    private final int deployed;
+    private final long bytesTransferred;
+    private final long resumedBytes;
+    private final long elapsedMillis;
+
+    DeployMetrics(int resources, int deployed, long bytesTransferred, long resumedBytes, long elapsedMillis) {
+        this.resources = resources;
+        this.deployed = deployed;
+        this.bytesTransferred = bytesTransferred;
+        this.resumedBytes = resumedBytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getResources() {
+        return resources;
+    }
+
+    public int getDeployed() {
+        return deployed;
+    }
+
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * @return bytes taken from partial downloads of earlier attempts instead of the network
+     */
+    public long getResumedBytes() {
+        return resumedBytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getBytesPerSecond() {
+        return bytesTransferred * 1000.0 / Math.max(1, elapsedMillis);
+    }
+
+    public double getResourcesPerSecond() {
+        return deployed * 1000.0 / Math.max(1, elapsedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "deployed %d/%d in %d ms, %d KB downloaded (%.1f KB/s), %d KB resumed",
+                deployed, resources, elapsedMillis, bytesTransferred / 1024, getBytesPerSecond() / 1024,
+                resumedBytes / 1024);
+    }
+}
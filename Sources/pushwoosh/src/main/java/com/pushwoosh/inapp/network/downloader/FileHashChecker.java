@@ -27,7 +27,10 @@
 package com.pushwoosh.inapp.network.downloader;
 
 import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
+import androidx.annotation.Nullable;
 import androidx.core.util.Pair;
 
 import com.pushwoosh.inapp.network.model.Resource;
@@ -41,6 +44,7 @@ import com.pushwoosh.internal.utils.FileUtils;
  * @see <a href="https://jira.corp.pushwoosh.com/browse/PUSH-10305">jira task</a>
  */
 class FileHashChecker implements ObjectChecker<Pair<File, Resource>> {
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
 	@Override
 	public boolean check(Pair<File, Resource> check) {
@@ -61,4 +65,46 @@ class FileHashChecker implements ObjectChecker<Pair<File, Resource>> {
 		String fileHash = FileUtils.getMd5Hash(file);
 		return resourceHash.equals(fileHash);
 	}
+
+	/**
+	 * @return digest to feed with the zip while it is downloaded, or {@code null} if the resource has no hash
+	 */
+	@Nullable
+	MessageDigest newDigest(Resource resource) {
+		String resourceHash = resource.getHash();
+		if (resourceHash == null || resourceHash.isEmpty()) {
+			return null;
+		}
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Same as {@link #check(Pair)}, but uses the digest computed while the file was downloaded
+	 * instead of reading it again. Falls back to reading the file if there is no digest.
+	 */
+	boolean check(File file, Resource resource, @Nullable MessageDigest streamedDigest) {
+		if (streamedDigest == null || file == null || resource == null) {
+			return check(new Pair<>(file, resource));
+		}
+
+		String resourceHash = resource.getHash();
+		if (resourceHash == null || resourceHash.isEmpty()) {
+			return true;
+		}
+
+		return resourceHash.equals(toHex(streamedDigest.digest()));
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+		return new String(hex);
+	}
 }
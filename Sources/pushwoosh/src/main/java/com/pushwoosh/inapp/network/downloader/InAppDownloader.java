@@ -26,35 +26,95 @@
 
 package com.pushwoosh.inapp.network.downloader;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
-import androidx.core.util.Pair;
 
+import com.pushwoosh.inapp.InAppConfig;
 import com.pushwoosh.inapp.event.InAppEvent;
 import com.pushwoosh.inapp.network.model.Resource;
 import com.pushwoosh.inapp.storage.InAppFolderProvider;
+import com.pushwoosh.inapp.storage.InAppManifest;
 import com.pushwoosh.internal.event.EventBus;
+import com.pushwoosh.internal.utils.DownloadStats;
 import com.pushwoosh.internal.utils.FileUtils;
 import com.pushwoosh.internal.utils.PWLog;
 
 import java.io.File;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads, verifies and unzips in-app resources.
+ * <p>
+ * A batch is deployed by up to {@link #MAX_PARALLEL_DOWNLOADS} threads, in the order of
+ * {@link Resource#compareTo}. Each resource is guarded by its own lock, so a resource is never
+ * deployed twice at the same time while unrelated resources go on in parallel. The zip hash is
+ * computed while the file is downloaded, and an interrupted download is resumed, see
+ * {@link FileUtils#downloadFile(String, File, MessageDigest, DownloadStats)}. Once unzipped, pushwoosh.json of
+ * the resource is compiled for rendering, see {@link InAppConfig#compile}.
+ */
 public class InAppDownloader {
     private static final String TAG = "[InApp]InAppDownloader";
 
-    private final Object mutex = new Object();
+    @VisibleForTesting
+    static final int MAX_PARALLEL_DOWNLOADS = 3;
+
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 30;
+
     private final InAppFolderProvider inAppFolderProvider;
+    private final InAppConfig inAppConfig;
     private final FileHashChecker fileHashChecker = new FileHashChecker();
+    private final Executor executor;
+    private final InAppManifest manifest = new InAppManifest();
+    private final ConcurrentHashMap<String, Object> resourceLocks = new ConcurrentHashMap<>();
 
     private final Set<Resource> downloadingResources = new ConcurrentSkipListSet<>();
 
+    @Nullable private volatile DeployMetrics lastMetrics;
+
     public InAppDownloader(InAppFolderProvider inAppFolderProvider) {
+        this(inAppFolderProvider, createExecutor());
+    }
+
+    @VisibleForTesting
+    InAppDownloader(InAppFolderProvider inAppFolderProvider, Executor executor) {
         this.inAppFolderProvider = inAppFolderProvider;
+        this.inAppConfig = new InAppConfig(inAppFolderProvider);
+        this.executor = executor;
+    }
+
+    /**
+     * @return in-apps deployed by this downloader and found on disk
+     */
+    public InAppManifest getManifest() {
+        return manifest;
+    }
+
+    private static Executor createExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                MAX_PARALLEL_DOWNLOADS,
+                MAX_PARALLEL_DOWNLOADS,
+                IDLE_THREAD_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new DownloaderThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
     }
 
     @WorkerThread
@@ -67,37 +127,116 @@ public class InAppDownloader {
         Collections.sort(localResource);
         this.downloadingResources.addAll(localResource);
 
-        synchronized (mutex) {
-            final ArrayList<Resource> deployed = new ArrayList<>(localResource.size());
-            final ArrayList<Resource> failed = new ArrayList<>();
-
-            for (Resource inapp : localResource) {
-                if (downloadAndDeployResource(inapp)) {
-                    deployed.add(inapp);
-                    EventBus.sendEvent(new InAppEvent(InAppEvent.EventType.DEPLOYED, inapp));
-                } else {
-                    failed.add(inapp);
-                    EventBus.sendEvent(new InAppEvent(InAppEvent.EventType.DEPLOY_FAILED, inapp));
+        final long startedAt = System.currentTimeMillis();
+        final List<DownloadStats> stats = new ArrayList<>(localResource.size());
+        final List<FutureTask<Boolean>> deploys = new ArrayList<>(localResource.size());
+        for (Resource inapp : localResource) {
+            final DownloadStats resourceStats = new DownloadStats();
+            final FutureTask<Boolean> deploy = new FutureTask<>(() -> deploy(inapp, resourceStats));
+            stats.add(resourceStats);
+            deploys.add(deploy);
+            if (localResource.size() == 1) {
+                // nothing to run in parallel with, don't hand it over to another thread
+                deploy.run();
+            } else {
+                executor.execute(deploy);
+            }
+        }
+
+        final ArrayList<Resource> deployed = new ArrayList<>(localResource.size());
+        final ArrayList<Resource> failed = new ArrayList<>();
+        for (int i = 0; i < localResource.size(); i++) {
+            if (awaitDeploy(deploys.get(i), localResource.get(i))) {
+                deployed.add(localResource.get(i));
+            } else {
+                failed.add(localResource.get(i));
+            }
+        }
+
+        long bytes = 0;
+        long resumedBytes = 0;
+        for (DownloadStats resourceStats : stats) {
+            bytes += resourceStats.getBytesTransferred();
+            resumedBytes += resourceStats.getResumedBytes();
+        }
+        DeployMetrics metrics = new DeployMetrics(localResource.size(), deployed.size(), bytes, resumedBytes,
+                System.currentTimeMillis() - startedAt);
+        lastMetrics = metrics;
+        PWLog.info(TAG, "Resources " + metrics);
+
+        return new DownloadResult(deployed, failed);
+    }
+
+    /**
+     * @return throughput of the last finished {@link #downloadAndDeploy} batch, {@code null} if there was none
+     */
+    @Nullable
+    public DeployMetrics getLastMetrics() {
+        return lastMetrics;
+    }
+
+    private boolean deploy(Resource inapp, DownloadStats stats) {
+        try {
+            synchronized (lockFor(inapp.getCode())) {
+                boolean deployed = false;
+                manifest.beginChange(inapp.getCode());
+                try {
+                    deployed = downloadAndDeployResource(inapp, stats);
+                } catch (RuntimeException e) {
+                    PWLog.error(TAG, "Failed to deploy resource: " + inapp.getCode(), e);
+                } finally {
+                    manifest.endChange(inapp.getCode(), deployed
+                            ? new InAppManifest.Entry(inapp.getCode(), inapp.getUpdated(), inapp.getHash(),
+                                    inAppFolderProvider.getInAppFolder(inapp.getCode()))
+                            : null);
                 }
 
-                downloadingResources.remove(inapp);
+                EventBus.sendEvent(new InAppEvent(
+                        deployed ? InAppEvent.EventType.DEPLOYED : InAppEvent.EventType.DEPLOY_FAILED, inapp));
+                return deployed;
             }
+        } finally {
+            downloadingResources.remove(inapp);
+        }
+    }
 
-            return new DownloadResult(deployed, failed);
+    private boolean awaitDeploy(FutureTask<Boolean> deploy, Resource inapp) {
+        try {
+            return deploy.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            PWLog.error(TAG, "Interrupted while waiting for resource: " + inapp.getCode());
+        } catch (ExecutionException e) {
+            PWLog.error(TAG, "Failed to deploy resource: " + inapp.getCode(), e.getCause());
         }
+        return false;
     }
 
-    private boolean downloadAndDeployResource(Resource inapp) {
+    @NonNull
+    private Object lockFor(String code) {
+        Object lock = resourceLocks.get(code);
+        if (lock == null) {
+            Object created = new Object();
+            lock = resourceLocks.putIfAbsent(code, created);
+            if (lock == null) {
+                lock = created;
+            }
+        }
+        return lock;
+    }
+
+    private boolean downloadAndDeployResource(Resource inapp, DownloadStats stats) {
         deleteInAppFolder(inapp.getCode());
 
-        File zip = downloadZipFile(inapp);
+        MessageDigest digest = fileHashChecker.newDigest(inapp);
+        File zip = downloadZipFile(inapp, digest, stats);
         if (zip == null) {
             PWLog.error(TAG, String.format("Failed to download ZIP file for resource: %s, url: %s",
                     inapp.getCode(), inapp.getUrl()));
             return false;
         }
 
-        if (!checkZipFile(inapp, zip)) {
+        if (!checkZipFile(inapp, zip, digest)) {
             PWLog.error(TAG, String.format("ZIP file validation failed (hash mismatch) for resource: %s, url: %s",
                     inapp.getCode(), inapp.getUrl()));
             return false;
@@ -109,12 +248,14 @@ public class InAppDownloader {
                     inapp.getCode()));
             return false;
         }
+        inAppConfig.compile(inapp.getCode(), inapp.getUpdated());
 
         PWLog.info(TAG, String.format("Successfully deployed resource: %s", inapp.getCode()));
         return true;
     }
 
     private void deleteInAppFolder(String code) {
+        inAppConfig.evict(code);
         File inAppFolder = inAppFolderProvider.getInAppFolder(code);
         if (inAppFolder != null && inAppFolder.exists()) {
             PWLog.noise(TAG, String.format("Deleting old files for resource: %s", code));
@@ -123,7 +264,7 @@ public class InAppDownloader {
         }
     }
 
-    @Nullable private File downloadZipFile(Resource resource) {
+    @Nullable private File downloadZipFile(Resource resource, @Nullable MessageDigest digest, DownloadStats stats) {
         PWLog.noise(TAG, String.format("Downloading ZIP file for resource: %s from: %s",
                 resource.getCode(), resource.getUrl()));
         EventBus.sendEvent(new InAppEvent(InAppEvent.EventType.DOWNLOADING_ZIP, resource));
@@ -135,7 +276,7 @@ public class InAppDownloader {
         }
 
         final File destinationFile = new File(cacheDir, resource.getCode() + ".zip");
-        final File zip = FileUtils.downloadFile(resource.getUrl(), destinationFile);
+        final File zip = FileUtils.downloadFile(resource.getUrl(), destinationFile, digest, stats);
         if (zip == null) {
             return null;
         }
@@ -146,8 +287,8 @@ public class InAppDownloader {
         return zip;
     }
 
-    private boolean checkZipFile(Resource inapp, File zip) {
-        if (!fileHashChecker.check(new Pair<>(zip, inapp))) {
+    private boolean checkZipFile(Resource inapp, File zip, @Nullable MessageDigest digest) {
+        if (!fileHashChecker.check(zip, inapp, digest)) {
             //noinspection ResultOfMethodCallIgnored
             zip.delete();
             return false;
@@ -174,8 +315,22 @@ public class InAppDownloader {
     }
 
     public void removeResourceFiles(String code) {
-        synchronized (mutex) {
-            deleteInAppFolder(code);
+        synchronized (lockFor(code)) {
+            manifest.beginChange(code);
+            try {
+                deleteInAppFolder(code);
+            } finally {
+                manifest.endChange(code, null);
+            }
+        }
+    }
+
+    private static final class DownloaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(runnable, "Pushwoosh-inapp-download-" + counter.incrementAndGet());
         }
     }
 }
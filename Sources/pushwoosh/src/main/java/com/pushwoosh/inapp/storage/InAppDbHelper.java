@@ -26,31 +26,34 @@
 
 package com.pushwoosh.inapp.storage;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.pushwoosh.inapp.network.model.InAppLayout;
 import com.pushwoosh.inapp.network.model.Resource;
-import com.pushwoosh.internal.utils.DbUtils;
 import com.pushwoosh.internal.utils.PWLog;
+import com.pushwoosh.internal.utils.PersistentSQLiteOpenHelper;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class InAppDbHelper extends SQLiteOpenHelper implements InAppStorage {
+public class InAppDbHelper extends PersistentSQLiteOpenHelper implements InAppStorage {
 
-    private static final String TAG = SQLiteOpenHelper.class.getSimpleName();
+    private static final String TAG = InAppDbHelper.class.getSimpleName();
     private static final String DB_NAME = "inAppDb.db";
-    private static final int VERSION = 4;
+    private static final int VERSION = 5;
 
     private static final String TABLE = "inApps";
+    // one row: version of the in-app list the inApps table holds
+    private static final String LIST_VERSION_TABLE = "inAppsListVersion";
 
     private static class Column {
         static final String CODE = "code";
@@ -62,12 +65,16 @@ public class InAppDbHelper extends SQLiteOpenHelper implements InAppStorage {
         static final String REQUIRED = "required";
         static final String BUSINESS_CASE = "businessCase";
         static final String GDPR = "gdpr";
+        static final String SCOPE = "scope";
+        static final String VERSION = "version";
     }
 
-    private final Object mutex = new Object();
+    // copy-on-write copy of the table: read without locking, replaced as a whole under mutex after every write;
+    // null until the table is loaded
+    @Nullable private volatile Map<String, Resource> index;
 
     public InAppDbHelper(Context context) {
-        super(context, DB_NAME, null, VERSION);
+        super(context, DB_NAME, VERSION);
     }
 
     @Override
@@ -87,6 +94,12 @@ public class InAppDbHelper extends SQLiteOpenHelper implements InAppStorage {
                         ");";
 
         db.execSQL(createInAppsTable);
+        createListVersionTable(db);
+    }
+
+    private static void createListVersionTable(SQLiteDatabase db) {
+        db.execSQL(String.format("create table %s (%s text, %s text);",
+                LIST_VERSION_TABLE, Column.SCOPE, Column.VERSION));
     }
 
     @Override
@@ -103,10 +116,18 @@ public class InAppDbHelper extends SQLiteOpenHelper implements InAppStorage {
             if (oldVersion < 4 && newVersion >= 4) {
                 db.execSQL(String.format(alertInAppTableHeader + "%s TEXT;", Column.BUSINESS_CASE));
             }
+            if (oldVersion < 5 && newVersion >= 5) {
+                createListVersionTable(db);
+            }
         }
     }
 
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Compares the resources with the index and writes only the changed ones.
+     */
     @Override
     public List<String> saveOrUpdateResources(@Nullable List<Resource> inApps) {
         if (inApps == null || inApps.size() == 0) {
@@ -116,11 +137,24 @@ public class InAppDbHelper extends SQLiteOpenHelper implements InAppStorage {
         List<String> updatedList = new ArrayList<>();
         synchronized (mutex) {
             try {
-                SQLiteDatabase db = getWritableDatabase();
+                Map<String, Resource> current = getIndex();
+                if (!hasChanges(current, inApps)) {
+                    return updatedList;
+                }
+
+                Map<String, Resource> next = new HashMap<>(current);
+                SQLiteDatabase db = getDatabase();
                 db.beginTransaction();
                 try {
                     for (Resource inApp : inApps) {
-                        Resource resource = updateResource(db, inApp);
+                        Resource resource = next.get(inApp.getCode());
+                        if (resource != null && resource.equals(inApp)) {
+                            continue;
+                        }
+                        if (!updateResource(inApp)) {
+                            continue;
+                        }
+                        next.put(inApp.getCode(), stored(inApp));
                         if (resource != null) {
                             updatedList.add(resource.getCode());
                         }
@@ -128,42 +162,56 @@ public class InAppDbHelper extends SQLiteOpenHelper implements InAppStorage {
                     db.setTransactionSuccessful();
                 } finally {
                     db.endTransaction();
-                    db.close();
                 }
+                index = Collections.unmodifiableMap(next);
             } catch (Exception e) {
                 PWLog.error("Can't update inApp database", e);
+                // the transaction is rolled back, the table is loaded again
+                index = null;
             }
         }
 
         return updatedList;
     }
 
-    private Resource updateResource(SQLiteDatabase db, Resource inApp) {
-        Resource resource = getResource(inApp.getCode(), db);
-
-        if (resource != null && resource.equals(inApp)) {
-            return null;
+    private static boolean hasChanges(Map<String, Resource> index, List<Resource> inApps) {
+        for (Resource inApp : inApps) {
+            if (!inApp.equals(index.get(inApp.getCode()))) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        ContentValues values = new ContentValues();
-        values.put(Column.URL, inApp.getUrl());
-        values.put(Column.UPDATED, inApp.getUpdated());
-        values.put(Column.LAYOUT, inApp.getLayout().getCode());
-        values.put(Column.PRIORITY, inApp.getPriority());
-        values.put(Column.REQUIRED, inApp.isRequired() ? 1 : 0);
-
-        int updated = db.updateWithOnConflict(TABLE, values, Column.CODE + "= ?", new String[]{inApp.getCode()}, SQLiteDatabase.CONFLICT_IGNORE);
-        if (updated == 0) {
-            values.put(Column.CODE, inApp.getCode());
-            long insert = db.insert(TABLE, null, values);
-
-            if (insert == 0L) {
+    /**
+     * @return false if the resource was not stored
+     */
+    private boolean updateResource(Resource inApp) {
+        SQLiteStatement update = getStatement("UPDATE OR IGNORE " + TABLE + " SET "
+                + Column.URL + " = ?, " + Column.UPDATED + " = ?, " + Column.LAYOUT + " = ?, "
+                + Column.PRIORITY + " = ?, " + Column.REQUIRED + " = ? WHERE " + Column.CODE + " = ?");
+        bindResource(update, inApp);
+        if (update.executeUpdateDelete() == 0) {
+            SQLiteStatement insert = getStatement("INSERT INTO " + TABLE + " ("
+                    + Column.URL + ", " + Column.UPDATED + ", " + Column.LAYOUT + ", "
+                    + Column.PRIORITY + ", " + Column.REQUIRED + ", " + Column.CODE + ") VALUES (?, ?, ?, ?, ?, ?)");
+            bindResource(insert, inApp);
+            if (insert.executeInsert() == -1L) {
                 PWLog.warn("InAppRetrieverWorker", "Not stored " + inApp.getCode());
-                return null;
+                return false;
             }
         }
 
-        return resource;
+        return true;
+    }
+
+    private static void bindResource(SQLiteStatement statement, Resource inApp) {
+        bindStringOrNull(statement, 1, inApp.getUrl());
+        statement.bindLong(2, inApp.getUpdated());
+        bindStringOrNull(statement, 3, inApp.getLayout().getCode());
+        statement.bindLong(4, inApp.getPriority());
+        statement.bindLong(5, inApp.isRequired() ? 1 : 0);
+        bindStringOrNull(statement, 6, inApp.getCode());
     }
 
     @Override
@@ -173,34 +221,126 @@ public class InAppDbHelper extends SQLiteOpenHelper implements InAppStorage {
             return null;
         }
 
+        try {
+            return getIndex().get(code);
+        } catch (Exception e) {
+            PWLog.error("Can't download resource from db with code: " + code, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void removeResources(List<String> codes) {
+        if (codes == null || codes.isEmpty()) {
+            return;
+        }
+
+        synchronized (mutex) {
+            try {
+                Map<String, Resource> next = new HashMap<>(getIndex());
+                SQLiteDatabase db = getDatabase();
+                db.beginTransaction();
+                try {
+                    SQLiteStatement delete = getStatement("DELETE FROM " + TABLE + " WHERE " + Column.CODE + " = ?");
+                    for (String code : codes) {
+                        bindStringOrNull(delete, 1, code);
+                        delete.executeUpdateDelete();
+                        next.remove(code);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                index = Collections.unmodifiableMap(next);
+            } catch (Exception e) {
+                PWLog.error(TAG, "Can't remove inApps from database", e);
+                // the transaction is rolled back, the table is loaded again
+                index = null;
+            }
+        }
+    }
+
+    @Override
+    @Nullable
+    public String getListVersion(String scope) {
         synchronized (mutex) {
             try {
-                SQLiteDatabase db = getWritableDatabase();
+                Cursor cursor = getDatabase().query(LIST_VERSION_TABLE, new String[]{Column.VERSION},
+                        Column.SCOPE + " = ?", new String[]{scope}, null, null, null);
                 try {
-                    return getResource(code, db);
+                    return cursor.moveToFirst() ? cursor.getString(0) : null;
                 } finally {
-                    db.close();
+                    cursor.close();
                 }
             } catch (Exception e) {
-                PWLog.error("Can't download resource from db with code: " + code, e);
+                PWLog.error(TAG, "Can't read inApp list version", e);
                 return null;
             }
         }
     }
 
-    private Resource getResource(String code, SQLiteDatabase db) {
-        String selection = "code = ?";
-        String[] selectionArgs = DbUtils.getSelectionArgs(code);
-        Cursor cursor = db.query(TABLE, null, selection, selectionArgs, null, null, null);
+    @Override
+    public void saveListVersion(String scope, @Nullable String version) {
+        synchronized (mutex) {
+            try {
+                SQLiteDatabase db = getDatabase();
+                db.beginTransaction();
+                try {
+                    getStatement("DELETE FROM " + LIST_VERSION_TABLE).executeUpdateDelete();
+                    if (version != null) {
+                        SQLiteStatement insert = getStatement("INSERT INTO " + LIST_VERSION_TABLE + " ("
+                                + Column.SCOPE + ", " + Column.VERSION + ") VALUES (?, ?)");
+                        bindStringOrNull(insert, 1, scope);
+                        bindStringOrNull(insert, 2, version);
+                        insert.executeInsert();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Exception e) {
+                PWLog.error(TAG, "Can't save inApp list version", e);
+            }
+        }
+    }
+
+    /**
+     * @return every stored resource by code, loaded from the database with the first call
+     */
+    private Map<String, Resource> getIndex() {
+        Map<String, Resource> current = index;
+        if (current != null) {
+            return current;
+        }
+        synchronized (mutex) {
+            if (index == null) {
+                index = Collections.unmodifiableMap(loadIndex(getDatabase()));
+            }
+            return index;
+        }
+    }
+
+    private Map<String, Resource> loadIndex(SQLiteDatabase db) {
+        Map<String, Resource> resources = new HashMap<>();
+        Cursor cursor = db.query(TABLE, null, null, null, null, null, null);
         try {
-            if (cursor.moveToFirst()) {
-                return getResourceFromCursor(cursor);
+            while (cursor.moveToNext()) {
+                Resource resource = getResourceFromCursor(cursor);
+                resources.put(resource.getCode(), resource);
             }
         } finally {
             cursor.close();
         }
+        PWLog.noise(TAG, "Loaded " + resources.size() + " inApps");
+        return resources;
+    }
 
-        return null;
+    /**
+     * @return the resource as it is read back from the database
+     */
+    private static Resource stored(Resource inApp) {
+        return new Resource(inApp.getCode(), inApp.getUrl(), "", inApp.getUpdated(),
+                InAppLayout.of(inApp.getLayout().getCode()), null, inApp.isRequired(), inApp.getPriority());
     }
 
     @NonNull
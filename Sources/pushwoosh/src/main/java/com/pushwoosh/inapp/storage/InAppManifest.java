@@ -0,0 +1,136 @@
+package com.pushwoosh.inapp.storage;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-apps deployed on disk, so that telling whether an in-app is deployed doesn't stat its files every time.
+ *
+ * <p>Copy-on-write: readers look up an immutable snapshot without locking, changes replace it under a lock.
+ * The downloader changes the manifest around every deploy and removal of in-app files
+ * ({@link #beginChange}, {@link #endChange}). In-apps deployed by an earlier process are added once their
+ * files are found on disk ({@link #restore}).
+ */
+public class InAppManifest {
+
+    public static final class Entry {
+        private final String code;
+        private final long updated;
+        @Nullable private final String hash;
+        @Nullable private final File folder;
+
+        public Entry(String code, long updated, @Nullable String hash, @Nullable File folder) {
+            this.code = code;
+            this.updated = updated;
+            this.hash = hash;
+            this.folder = folder;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        /**
+         * @return {@code updated} of the deployed in-app
+         */
+        public long getUpdated() {
+            return updated;
+        }
+
+        /**
+         * @return hash of the deployed archive, {@code null} if the in-app was deployed by an earlier process
+         */
+        @Nullable
+        public String getHash() {
+            return hash;
+        }
+
+        @Nullable
+        public File getFolder() {
+            return folder;
+        }
+    }
+
+    private final Object lock = new Object();
+    private volatile Map<String, Entry> deployed = Collections.emptyMap();
+    // guarded by lock
+    private final Set<String> changing = new HashSet<>();
+    private long stamp;
+
+    /**
+     * @return the deployed in-app, {@code null} if it is not deployed, being deployed or not known yet
+     */
+    @Nullable
+    public Entry get(String code) {
+        return deployed.get(code);
+    }
+
+    public int size() {
+        return deployed.size();
+    }
+
+    /**
+     * @return value to pass to {@link #restore} once the files of an in-app are found on disk
+     */
+    public long stamp() {
+        synchronized (lock) {
+            return stamp;
+        }
+    }
+
+    /**
+     * Adds an in-app whose files were found on disk, unless its files have been changed since {@code stamp}.
+     */
+    public void restore(@NonNull Entry entry, long stamp) {
+        synchronized (lock) {
+            if (stamp != this.stamp || changing.contains(entry.getCode()) || deployed.containsKey(entry.getCode())) {
+                return;
+            }
+            put(entry.getCode(), entry);
+        }
+    }
+
+    /**
+     * Removes an in-app before its files are deleted or replaced. Every call has to be followed by
+     * {@link #endChange}.
+     */
+    public void beginChange(String code) {
+        synchronized (lock) {
+            changing.add(code);
+            stamp++;
+            put(code, null);
+        }
+    }
+
+    /**
+     * @param entry the deployed in-app, {@code null} if its files were removed or failed to deploy
+     */
+    public void endChange(String code, @Nullable Entry entry) {
+        synchronized (lock) {
+            changing.remove(code);
+            stamp++;
+            put(code, entry);
+        }
+    }
+
+    private void put(String code, @Nullable Entry entry) {
+        Map<String, Entry> current = deployed;
+        if (entry == null && !current.containsKey(code)) {
+            return;
+        }
+        Map<String, Entry> next = new HashMap<>(current);
+        if (entry == null) {
+            next.remove(code);
+        } else {
+            next.put(code, entry);
+        }
+        deployed = Collections.unmodifiableMap(next);
+    }
+}
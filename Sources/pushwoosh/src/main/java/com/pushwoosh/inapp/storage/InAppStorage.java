@@ -43,4 +43,25 @@ public interface InAppStorage {
 
 	@Nullable
 	Resource getResource(String code);
+
+	/**
+	 * Deletes the resources the server removed from the in-app list
+	 *
+	 * @param codes codes of the removed resources
+	 */
+	void removeResources(List<String> codes);
+
+	/**
+	 * @param scope application, user and language the in-app list was requested for
+	 * @return version of the in-app list saved for {@code scope}, {@code null} if there is none
+	 */
+	@Nullable
+	String getListVersion(String scope);
+
+	/**
+	 * Saves the version of the in-app list once every in-app of it is stored and deployed.
+	 *
+	 * @param version version of the in-app list, {@code null} to forget the saved one
+	 */
+	void saveListVersion(String scope, @Nullable String version);
 }
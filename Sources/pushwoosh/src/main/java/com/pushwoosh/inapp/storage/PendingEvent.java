@@ -0,0 +1,56 @@
+package com.pushwoosh.inapp.storage;
+
+import androidx.annotation.NonNull;
+
+/**
+ * {@code /postEvent} call as it was made, stored by {@link PendingEventsStorage} until it is delivered.
+ */
+public class PendingEvent {
+    private final long id;
+    private final String event;
+    private final String attributes;
+    private final long timestampUtc;
+    private final long timestampCurrent;
+
+    public PendingEvent(long id, @NonNull String event, @NonNull String attributes, long timestampUtc, long timestampCurrent) {
+        this.id = id;
+        this.event = event;
+        this.attributes = attributes;
+        this.timestampUtc = timestampUtc;
+        this.timestampCurrent = timestampCurrent;
+    }
+
+    /**
+     * @return storage id, ids grow in the order events are added; -1 if the event is not stored
+     */
+    public long getId() {
+        return id;
+    }
+
+    @NonNull
+    public String getEvent() {
+        return event;
+    }
+
+    /**
+     * @return JSON object of the event attributes
+     */
+    @NonNull
+    public String getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return time the event was posted, in seconds since epoch
+     */
+    public long getTimestampUtc() {
+        return timestampUtc;
+    }
+
+    /**
+     * @return time the event was posted, in seconds since epoch shifted by the device time zone
+     */
+    public long getTimestampCurrent() {
+        return timestampCurrent;
+    }
+}
@@ -0,0 +1,32 @@
+package com.pushwoosh.inapp.storage;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Durable queue of {@code /postEvent} calls that were not delivered yet.
+ * <p>
+ * The queue is bounded: when it is full, adding an event drops the oldest one.
+ */
+public interface PendingEventsStorage {
+    /**
+     * Appends an event, {@link PendingEvent#getId()} of the argument is ignored.
+     *
+     * @return id of the stored event or -1 if it can't be stored
+     */
+    long add(@NonNull PendingEvent event);
+
+    /**
+     * @return stored events, oldest first
+     */
+    @NonNull
+    List<PendingEvent> getAll();
+
+    void remove(long id);
+
+    /**
+     * Removes all stored events.
+     */
+    void clear();
+}
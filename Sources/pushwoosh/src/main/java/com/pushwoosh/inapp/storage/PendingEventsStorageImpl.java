@@ -0,0 +1,142 @@
+package com.pushwoosh.inapp.storage;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+
+import com.pushwoosh.internal.utils.PWLog;
+import com.pushwoosh.internal.utils.PersistentSQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PendingEventsStorageImpl extends PersistentSQLiteOpenHelper implements PendingEventsStorage {
+    private static final String TAG = PendingEventsStorageImpl.class.getSimpleName();
+    private static final String DB_NAME = "pendingEventsDb.db";
+    private static final int VERSION = 1;
+
+    /**
+     * Events kept at most, enough for a long offline session of an app that posts screen events.
+     */
+    public static final int MAX_EVENTS = 500;
+
+    private static final String TABLE_EVENTS = "pendingEvents";
+
+    private static class Column {
+        static final String ID = "id";
+        static final String EVENT = "event";
+        static final String ATTRIBUTES = "attributes";
+        static final String TIMESTAMP_UTC = "timestampUtc";
+        static final String TIMESTAMP_CURRENT = "timestampCurrent";
+    }
+
+    private final int maxEvents;
+
+    public PendingEventsStorageImpl(Context context) {
+        this(context, MAX_EVENTS);
+    }
+
+    PendingEventsStorageImpl(Context context, int maxEvents) {
+        super(context, DB_NAME, VERSION);
+        this.maxEvents = maxEvents;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("create table " + TABLE_EVENTS + " ("
+                + Column.ID + " INTEGER PRIMARY KEY, "
+                + Column.EVENT + " TEXT NOT NULL, "
+                + Column.ATTRIBUTES + " TEXT NOT NULL, "
+                + Column.TIMESTAMP_UTC + " INTEGER NOT NULL, "
+                + Column.TIMESTAMP_CURRENT + " INTEGER NOT NULL"
+                + ");");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_EVENTS);
+        onCreate(db);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.setVersion(oldVersion);
+    }
+
+    @Override
+    public long add(@NonNull PendingEvent event) {
+        synchronized (mutex) {
+            SQLiteDatabase db = getDatabase();
+            try {
+                db.beginTransaction();
+                try {
+                    SQLiteStatement insert = getStatement("INSERT INTO " + TABLE_EVENTS + " ("
+                            + Column.EVENT + ", " + Column.ATTRIBUTES + ", "
+                            + Column.TIMESTAMP_UTC + ", " + Column.TIMESTAMP_CURRENT + ") VALUES (?, ?, ?, ?)");
+                    insert.bindString(1, event.getEvent());
+                    insert.bindString(2, event.getAttributes());
+                    insert.bindLong(3, event.getTimestampUtc());
+                    insert.bindLong(4, event.getTimestampCurrent());
+                    long id = insert.executeInsert();
+
+                    SQLiteStatement trim = getStatement("DELETE FROM " + TABLE_EVENTS + " WHERE " + Column.ID + " <= ?");
+                    trim.bindLong(1, id - maxEvents);
+                    trim.executeUpdateDelete();
+
+                    db.setTransactionSuccessful();
+                    return id;
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to queue event " + event.getEvent(), e);
+                return -1;
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public List<PendingEvent> getAll() {
+        List<PendingEvent> events = new ArrayList<>();
+        String sql = "SELECT " + Column.ID + ", " + Column.EVENT + ", " + Column.ATTRIBUTES + ", "
+                + Column.TIMESTAMP_UTC + ", " + Column.TIMESTAMP_CURRENT
+                + " FROM " + TABLE_EVENTS + " ORDER BY " + Column.ID + " ASC";
+        try (Cursor cursor = getDatabase().rawQuery(sql, null)) {
+            while (cursor.moveToNext()) {
+                events.add(new PendingEvent(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getLong(3), cursor.getLong(4)));
+            }
+        } catch (Exception e) {
+            PWLog.error(TAG, "Failed to read pending events", e);
+        }
+        return events;
+    }
+
+    @Override
+    public void remove(long id) {
+        synchronized (mutex) {
+            try {
+                SQLiteStatement delete = getStatement("DELETE FROM " + TABLE_EVENTS + " WHERE " + Column.ID + " = ?");
+                delete.bindLong(1, id);
+                delete.executeUpdateDelete();
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to remove sent event", e);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (mutex) {
+            try {
+                getDatabase().execSQL("DELETE FROM " + TABLE_EVENTS);
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to remove pending events", e);
+            }
+        }
+    }
+}
@@ -157,7 +157,7 @@ public class ModalRichMediaWindow extends PopupWindow
         try {
             ContextInAppFolderProvider folderProvider = new ContextInAppFolderProvider(context);
             InAppConfig inAppConfig = new InAppConfig(folderProvider);
-            ModalRichmediaConfig resourceConfig = inAppConfig.parseModalConfig(resource.getCode());
+            ModalRichmediaConfig resourceConfig = inAppConfig.getModalConfig(resource.getCode(), resource.getUpdated());
 
             if (resourceConfig != null) {
                 resource.setResourceModalConfig(resourceConfig);
@@ -394,6 +394,10 @@ public class ModalRichMediaWindow extends PopupWindow
             baseUrl += "/";
         }
 
+        if (htmlData.getDocument() != null) {
+            resourceWebView.loadDocument(baseUrl, htmlData.getDocument(), pushwooshScript());
+            return true;
+        }
         resourceWebView.loadDataWithBaseURL(
                 baseUrl, htmlContentWithPushwooshInterface(htmlContent), "text/html", "UTF-8", null);
         return true;
@@ -417,9 +421,13 @@ public class ModalRichMediaWindow extends PopupWindow
     }
 
     private String htmlContentWithPushwooshInterface(String content) {
+        return content.replace("<head>", "<head>\n<script type=\"text/javascript\">" + pushwooshScript() + "</script>");
+    }
+
+    private String pushwooshScript() {
         String messageHash =
                 RepositoryModule.getNotificationPreferences().messageHash().get();
-        String jsInterface = String.format(
+        return String.format(
                 PushwooshJSInterface.PUSHWOOSH_JS,
                 Pushwoosh.getInstance().getHwid(),
                 GeneralUtils.SDK_VERSION,
@@ -429,6 +437,5 @@ public class ModalRichMediaWindow extends PopupWindow
                 DeviceSpecificProvider.getInstance().deviceType(),
                 messageHash != null ? messageHash : "",
                 resource.isInApp() ? resource.getCode() : "");
-        return content.replace("<head>", "<head>\n<script type=\"text/javascript\">" + jsInterface + "</script>");
     }
 }
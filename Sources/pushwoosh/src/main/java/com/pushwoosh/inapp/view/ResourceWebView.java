@@ -35,6 +35,7 @@ import android.content.Context;
 import android.graphics.Color;
 import android.os.Build;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.ContextThemeWrapper;
@@ -50,6 +51,7 @@ import androidx.annotation.NonNull;
 
 import com.pushwoosh.PushwooshPlatform;
 import com.pushwoosh.R;
+import com.pushwoosh.inapp.mapper.RichMediaDocument;
 import com.pushwoosh.inapp.model.HtmlData;
 import com.pushwoosh.inapp.network.model.InAppLayout;
 import com.pushwoosh.inapp.view.js.PushwooshJSInterface;
@@ -76,6 +78,9 @@ public class ResourceWebView extends FrameLayout {
     private Handler handler;
     int backgroundColor;
     boolean isInMultiWindowMode;
+    private final long createdAt = SystemClock.elapsedRealtime();
+    private boolean warmWebView;
+    private boolean firstPaintReported;
 
     public ResourceWebView(Context context, InAppLayout inAppLayout) {
         super(context);
@@ -139,7 +144,9 @@ public class ResourceWebView extends FrameLayout {
     }
 
     protected WebView createWebView() {
-        return new WebView(getContext());
+        WebViewPool pool = WebViewPool.getInstance();
+        warmWebView = pool.hasWarmWebView();
+        return pool.acquire(getContext());
     }
 
     @SuppressLint("SetJavaScriptEnabled")
@@ -222,6 +229,7 @@ public class ResourceWebView extends FrameLayout {
     }
 
     protected void hideProgress() {
+        reportFirstPaint();
         if (!progressVisible) return;
         progressVisible = false;
 
@@ -276,6 +284,22 @@ public class ResourceWebView extends FrameLayout {
         webView.loadDataWithBaseURL(baseUrl, htmlData, mimeType, encoding, historyUri);
     }
 
+    /**
+     * Loads the document from {@code baseUrl}; {@link WebClient} streams it to the WebView with
+     * {@code headScript} injected into its {@code <head>}.
+     */
+    protected void loadDocument(String baseUrl, RichMediaDocument document, String headScript) {
+        String url = baseUrl + document.getFileName();
+        PWLog.noise(TAG, String.format("Loading HTML document: %s", url));
+        if (webClient == null) {
+            PWLog.error(TAG, "WebClient is not set, can't load " + url);
+            return;
+        }
+        webView.getSettings().setAllowFileAccess(false);
+        webClient.setDocument(url, document, headScript);
+        webView.loadUrl(url);
+    }
+
     protected void clear() {
         if (webView != null) {
             // Layer 2: release() first (queued lifecycle callbacks become no-ops), then destroy() — never leave a live
@@ -288,12 +312,27 @@ public class ResourceWebView extends FrameLayout {
             if (parent != null) {
                 parent.removeView(webView);
             }
-            webView.destroy();
+            WebViewPool.getInstance().release(webView);
             webView = null;
             webClient = null;
         }
     }
 
+    // Time from creating the view to the loaded page being drawn, the latency a user sees.
+    private void reportFirstPaint() {
+        if (firstPaintReported || webView == null) {
+            return;
+        }
+        firstPaintReported = true;
+        webView.postVisualStateCallback(0, new WebView.VisualStateCallback() {
+            @Override
+            public void onComplete(long requestId) {
+                PWLog.debug(TAG, String.format("First paint %d ms after presenting, %s WebView",
+                        SystemClock.elapsedRealtime() - createdAt, warmWebView ? "preloaded" : "new"));
+            }
+        });
+    }
+
     private View createDefaultLoadingView(Context context) {
         int theme = context.getApplicationInfo().theme;
         if (theme == 0) {
@@ -319,6 +358,10 @@ public class ResourceWebView extends FrameLayout {
         if (!baseUrl.endsWith("/")) {
             baseUrl += "/";
         }
+        if (htmlData.getDocument() != null) {
+            loadDocument(baseUrl, htmlData.getDocument(), PushwooshJSInterface.PUSHWOOSH_JS);
+            return;
+        }
         String htmlContentWithPushWooshInterface = htmlContent.replace(
                 "<head>",
                 "<head>\n<script type=\"text/javascript\">" + PushwooshJSInterface.PUSHWOOSH_JS + "</script>");
@@ -227,15 +227,23 @@ public class RichMediaWebActivity extends WebActivity implements OnRichMediaList
             baseUrl += "/";
         }
 
+        if (htmlData.getDocument() != null) {
+            resourceWebView.loadDocument(baseUrl, htmlData.getDocument(), pushwooshScript());
+            return true;
+        }
         resourceWebView.loadDataWithBaseURL(
                 baseUrl, htmlContentWithPushwooshInterface(htmlContent), "text/html", "UTF-8", null);
         return true;
     }
 
     private String htmlContentWithPushwooshInterface(String content) {
+        return content.replace("<head>", "<head>\n<script type=\"text/javascript\">" + pushwooshScript() + "</script>");
+    }
+
+    private String pushwooshScript() {
         String messageHash =
                 RepositoryModule.getNotificationPreferences().messageHash().get();
-        String jsInterface = String.format(
+        return String.format(
                 PushwooshJSInterface.PUSHWOOSH_JS,
                 Pushwoosh.getInstance().getHwid(),
                 GeneralUtils.SDK_VERSION,
@@ -245,7 +253,6 @@ public class RichMediaWebActivity extends WebActivity implements OnRichMediaList
                 DeviceSpecificProvider.getInstance().deviceType(),
                 messageHash != null ? messageHash : "",
                 resource.isInApp() ? resource.getCode() : "");
-        return content.replace("<head>", "<head>\n<script type=\"text/javascript\">" + jsInterface + "</script>");
     }
 
     @Override
@@ -49,6 +49,7 @@ import com.pushwoosh.PushwooshPlatform;
 import com.pushwoosh.inapp.InAppModule;
 import com.pushwoosh.inapp.event.RichMediaPresentEvent;
 import com.pushwoosh.inapp.mapper.ResourceMapper;
+import com.pushwoosh.inapp.mapper.RichMediaDocument;
 import com.pushwoosh.inapp.network.model.Resource;
 import com.pushwoosh.inapp.view.js.JsCallback;
 import com.pushwoosh.inapp.view.js.PushManagerJSInterface;
@@ -57,7 +58,10 @@ import com.pushwoosh.internal.event.EventBus;
 import com.pushwoosh.internal.utils.PWLog;
 import com.pushwoosh.repository.RepositoryModule;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -87,6 +91,11 @@ public class WebClient extends WebViewClient implements JsCallback {
 
     private boolean released;
 
+    // the main document streamed from its RichMediaDocument, guarded by this
+    @Nullable private String documentPath;
+    @Nullable private RichMediaDocument document;
+    @Nullable private String documentScript;
+
     public WebClient(InAppView inAppView, Resource resource) {
         this.inAppView = inAppView;
         this.resource = resource;
@@ -124,6 +133,15 @@ public class WebClient extends WebViewClient implements JsCallback {
         this.mainContainer = view;
     }
 
+    /**
+     * Serves {@code document} with {@code headScript} when the WebView requests {@code url}.
+     */
+    public synchronized void setDocument(String url, RichMediaDocument document, String headScript) {
+        this.documentPath = Uri.parse(url).getPath();
+        this.document = document;
+        this.documentScript = headScript;
+    }
+
     // Released from clear() before destroy(): skips side effects of lifecycle callbacks still queued after teardown (JS
     // bridge, phantom present event).
     public void release() {
@@ -192,6 +210,10 @@ public class WebClient extends WebViewClient implements JsCallback {
     }
 
     @Nullable private WebResourceResponse interceptViaAssetLoader(WebView view, Uri uri) {
+        WebResourceResponse documentResponse = openDocument(uri);
+        if (documentResponse != null) {
+            return documentResponse;
+        }
         WebViewAssetLoader loader = getAssetLoader(view.getContext());
         if (loader == null) {
             return null;
@@ -199,6 +221,40 @@ public class WebClient extends WebViewClient implements JsCallback {
         return loader.shouldInterceptRequest(uri);
     }
 
+    @Nullable private WebResourceResponse openDocument(Uri uri) {
+        RichMediaDocument requested;
+        String headScript;
+        synchronized (this) {
+            if (document == null
+                    || !ResourceMapper.RICH_MEDIA_ASSET_HOST.equals(uri.getHost())
+                    || !uri.getPath().equals(documentPath)) {
+                return null;
+            }
+            requested = document;
+            headScript = documentScript;
+        }
+        try {
+            return new WebResourceResponse("text/html", "UTF-8", requested.open(headScript));
+        } catch (IOException e) {
+            // e.g. the in-app was redeployed after the document was prepared
+            PWLog.warn(TAG, "Failed to open rich media document " + uri + ", rendering it as a string", e);
+            return renderDocument(uri, headScript);
+        }
+    }
+
+    private WebResourceResponse renderDocument(Uri uri, String headScript) {
+        try {
+            String html = new ResourceMapper(InAppModule.getInAppFolderProvider()).getHtmlData(resource);
+            html = html.replace("<head>", "<head>\n<script type=\"text/javascript\">" + headScript + "</script>");
+            return new WebResourceResponse("text/html", "UTF-8", new ByteArrayInputStream(html.getBytes("UTF-8")));
+        } catch (Exception e) {
+            PWLog.error(TAG, "Failed to render rich media document " + uri, e);
+            // an error rather than the raw file with its placeholders from the asset loader
+            return new WebResourceResponse("text/html", "UTF-8", 500, "Internal Server Error",
+                    Collections.<String, String>emptyMap(), new ByteArrayInputStream(new byte[0]));
+        }
+    }
+
     // synchronized: parallel shouldInterceptRequest worker threads must not see assetLoaderInitialized==true while
     // assetLoader is still null mid-build and miss interception.
     @Nullable private synchronized WebViewAssetLoader getAssetLoader(Context context) {
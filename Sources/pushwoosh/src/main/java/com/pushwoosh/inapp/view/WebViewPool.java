@@ -0,0 +1,210 @@
+package com.pushwoosh.inapp.view;
+
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.webkit.WebView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.pushwoosh.internal.event.EventBus;
+import com.pushwoosh.internal.event.Subscription;
+import com.pushwoosh.internal.platform.ApplicationOpenDetector;
+import com.pushwoosh.internal.utils.PWLog;
+
+/**
+ * Keeps a {@link WebView} warmed up for the next rich media or in-app.
+ * <p>
+ * Creating the first WebView of a process loads and starts Chromium, which takes hundreds of
+ * milliseconds on the main thread right when a push is opened or an in-app is triggered. When
+ * preloading is enabled ({@code com.pushwoosh.preload_webview} meta-data) one WebView is created
+ * while the main thread is idle, on an application context, and is handed to the next
+ * {@link ResourceWebView}, re-based on its context. A WebView that has shown a rich media is never
+ * shown again: its JavaScript interfaces, history and page state belong to that rich media, so it is
+ * destroyed on close and a fresh one is warmed up once the main thread is idle again.
+ * <p>
+ * The warm WebView is dropped on {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} and above
+ * (including when the app goes to the background) and warmed up again when the app comes back to
+ * the foreground. All methods must be called on the main thread.
+ */
+public class WebViewPool implements ComponentCallbacks2 {
+    private static final String TAG = "[InApp]WebViewPool";
+    private static final WebViewPool INSTANCE = new WebViewPool();
+
+    private boolean enabled;
+    private Context applicationContext;
+    @Nullable private Subscription<ApplicationOpenDetector.ApplicationMovedToForegroundEvent> foregroundSubscription;
+    @Nullable private WebView warmWebView;
+    private boolean warmUpScheduled;
+    private int warmPresentations;
+    private int coldPresentations;
+    private long lastWarmUpMs;
+
+    public static WebViewPool getInstance() {
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    WebViewPool() {}
+
+    /**
+     * Turns preloading on and warms up a WebView once the main thread is idle. Only the main process
+     * preloads: a WebView created in another process before its data directory suffix is set would
+     * make the rich media of that process fail.
+     */
+    @MainThread
+    public void enable(@NonNull Context context) {
+        if (enabled) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+                && !TextUtils.equals(context.getPackageName(), Application.getProcessName())) {
+            PWLog.debug(TAG, "Not the main process, WebView is not preloaded");
+            return;
+        }
+        enabled = true;
+        applicationContext = context.getApplicationContext();
+        applicationContext.registerComponentCallbacks(this);
+        foregroundSubscription = EventBus.subscribe(ApplicationOpenDetector.ApplicationMovedToForegroundEvent.class,
+                event -> scheduleWarmUp());
+        scheduleWarmUp();
+    }
+
+    /**
+     * @return the warm WebView re-based on {@code context}, or a new one if there is none
+     */
+    @MainThread
+    @NonNull
+    WebView acquire(@NonNull Context context) {
+        WebView webView = warmWebView;
+        if (webView == null) {
+            coldPresentations++;
+            PWLog.noise(TAG, "No warm WebView, creating one");
+            return new WebView(enabled ? new MutableContextWrapper(context) : context);
+        }
+        warmWebView = null;
+        warmPresentations++;
+        ((MutableContextWrapper) webView.getContext()).setBaseContext(context);
+        scheduleWarmUp();
+        return webView;
+    }
+
+    /**
+     * Destroys a WebView that has been shown, letting go of the activity it was shown in, and warms
+     * up a replacement once the main thread is idle.
+     */
+    @MainThread
+    void release(@NonNull WebView webView) {
+        if (webView.getContext() instanceof MutableContextWrapper && applicationContext != null) {
+            ((MutableContextWrapper) webView.getContext()).setBaseContext(applicationContext);
+        }
+        webView.destroy();
+        scheduleWarmUp();
+    }
+
+    private void scheduleWarmUp() {
+        if (!enabled || warmWebView != null || warmUpScheduled) {
+            return;
+        }
+        warmUpScheduled = true;
+        Looper.getMainLooper().getQueue().addIdleHandler(() -> {
+            warmUpScheduled = false;
+            warmUp();
+            return false;
+        });
+    }
+
+    private void warmUp() {
+        if (!enabled || warmWebView != null) {
+            return;
+        }
+        long start = SystemClock.elapsedRealtime();
+        try {
+            WebView webView = new WebView(new MutableContextWrapper(applicationContext));
+            // starts the renderer as well, the rich media page replaces it
+            webView.loadUrl("about:blank");
+            warmWebView = webView;
+        } catch (Throwable t) {
+            // the WebView provider may be missing or being updated
+            PWLog.error(TAG, "Failed to preload WebView", t);
+            return;
+        }
+        lastWarmUpMs = SystemClock.elapsedRealtime() - start;
+        PWLog.debug(TAG, "WebView preloaded in " + lastWarmUpMs + " ms");
+    }
+
+    private void evict() {
+        if (warmWebView == null) {
+            return;
+        }
+        PWLog.debug(TAG, "Memory is low, dropping the preloaded WebView");
+        warmWebView.destroy();
+        warmWebView = null;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            evict();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        evict();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        // the warm WebView is configured by the activity it is shown in
+    }
+
+    /**
+     * @return true if the next {@link #acquire} returns a warm WebView
+     */
+    @MainThread
+    boolean hasWarmWebView() {
+        return warmWebView != null;
+    }
+
+    @VisibleForTesting
+    void resetForTesting() {
+        if (applicationContext != null) {
+            applicationContext.unregisterComponentCallbacks(this);
+        }
+        if (foregroundSubscription != null) {
+            foregroundSubscription.unsubscribe();
+            foregroundSubscription = null;
+        }
+        evict();
+        enabled = false;
+        applicationContext = null;
+        warmPresentations = 0;
+        coldPresentations = 0;
+        lastWarmUpMs = 0;
+    }
+
+    @VisibleForTesting
+    int getWarmPresentations() {
+        return warmPresentations;
+    }
+
+    @VisibleForTesting
+    int getColdPresentations() {
+        return coldPresentations;
+    }
+
+    @VisibleForTesting
+    long getLastWarmUpMs() {
+        return lastWarmUpMs;
+    }
+}
@@ -138,8 +138,8 @@ public class ResourceViewStrategyFactory {
 
         Map<String, String> localizedStrings;
         try {
-            localizedStrings =
-                    new InAppConfig(InAppModule.getInAppFolderProvider()).parseLocalizedStrings(resolved.getCode());
+            localizedStrings = new InAppConfig(InAppModule.getInAppFolderProvider())
+                    .getLocalizedStrings(resolved.getCode(), resolved.getUpdated());
         } catch (Throwable e) {
             // No pushwoosh.json / no localization block: substitute placeholder defaults, never drop the show.
             // Throwable, not Exception: a pathologically nested pushwoosh.json can blow the parser stack
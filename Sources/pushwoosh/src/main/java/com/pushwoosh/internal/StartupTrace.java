@@ -0,0 +1,162 @@
+package com.pushwoosh.internal;
+
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.pushwoosh.internal.utils.PWLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Timings of the SDK startup stages.
+ * <p>
+ * The SDK is started by {@code PushwooshInitProvider} before {@code Application.onCreate()}, every
+ * stage of that path, and of the work it leaves to background threads, is recorded here with the
+ * thread it ran on. {@link #getStages()} returns them in the order they finished.
+ */
+public final class StartupTrace {
+
+    private static final String TAG = StartupTrace.class.getSimpleName();
+    private static final StartupTrace INSTANCE = new StartupTrace();
+
+    public static final class Stage {
+        private final String name;
+        private final String threadName;
+        private final boolean mainThread;
+        private final long startNanos;
+        private final long durationNanos;
+
+        Stage(String name, String threadName, boolean mainThread, long startNanos, long durationNanos) {
+            this.name = name;
+            this.threadName = threadName;
+            this.mainThread = mainThread;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+        }
+
+        @NonNull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return name of the thread the stage started on
+         */
+        @NonNull
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public boolean isMainThread() {
+            return mainThread;
+        }
+
+        /**
+         * @return {@link SystemClock#elapsedRealtimeNanos()} when the stage started
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %.2f ms on %s", name, durationNanos / 1e6, threadName);
+        }
+    }
+
+    /**
+     * Stage being measured, {@link #end()} records it.
+     */
+    public final class Section {
+        private final String name;
+        private final Thread thread;
+        private final long startNanos;
+
+        private Section(String name) {
+            this.name = name;
+            this.thread = Thread.currentThread();
+            this.startNanos = SystemClock.elapsedRealtimeNanos();
+        }
+
+        public void end() {
+            long duration = SystemClock.elapsedRealtimeNanos() - startNanos;
+            boolean mainThread = thread == Looper.getMainLooper().getThread();
+            synchronized (lock) {
+                stages.add(new Stage(name, thread.getName(), mainThread, startNanos, duration));
+            }
+        }
+    }
+
+    private final Object lock = new Object();
+    private final List<Stage> stages = new ArrayList<>();
+
+    private StartupTrace() {
+        // private constructor for singleton
+    }
+
+    public static StartupTrace getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts measuring a stage on the current thread.
+     */
+    @NonNull
+    public Section begin(@NonNull String name) {
+        return new Section(name);
+    }
+
+    @NonNull
+    public List<Stage> getStages() {
+        synchronized (lock) {
+            return Collections.unmodifiableList(new ArrayList<>(stages));
+        }
+    }
+
+    /**
+     * @return total time of the stages that ran on the main thread, nested stages are counted once
+     */
+    public long getMainThreadNanos() {
+        long total = 0;
+        long coveredUntil = Long.MIN_VALUE;
+        List<Stage> mainStages = new ArrayList<>();
+        for (Stage stage : getStages()) {
+            if (stage.isMainThread()) {
+                mainStages.add(stage);
+            }
+        }
+        Collections.sort(mainStages, (a, b) -> Long.compare(a.startNanos, b.startNanos));
+        for (Stage stage : mainStages) {
+            long start = Math.max(stage.startNanos, coveredUntil);
+            long end = stage.startNanos + stage.durationNanos;
+            if (end > start) {
+                total += end - start;
+                coveredUntil = end;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Logs the stages recorded so far.
+     */
+    public void logSummary() {
+        PWLog.debug(TAG, String.format(Locale.US, "main thread: %.2f ms, stages: %s", getMainThreadNanos() / 1e6, getStages()));
+    }
+
+    public void resetForTesting() {
+        synchronized (lock) {
+            stages.clear();
+        }
+    }
+}
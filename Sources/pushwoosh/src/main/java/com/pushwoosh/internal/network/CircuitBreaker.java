@@ -0,0 +1,43 @@
+package com.pushwoosh.internal.network;
+
+/**
+ * Failure counter of one endpoint.
+ * <p>
+ * After {@link #FAILURE_THRESHOLD} failures in a row the breaker opens for {@link #OPEN_MS}, or for
+ * as long as the server asked with {@code Retry-After}, and requests to the endpoint fail without
+ * being sent. Once that time has passed requests go out again: the first success closes the breaker,
+ * the first failure opens it again. All times are {@link android.os.SystemClock#elapsedRealtime()}.
+ */
+class CircuitBreaker {
+    static final int FAILURE_THRESHOLD = 5;
+    static final long OPEN_MS = 30_000;
+
+    private int failures;
+    private long openUntil;
+
+    /**
+     * @return 0 if a request may be sent, otherwise the time left until the breaker lets requests through
+     */
+    synchronized long remainingOpenMs(long now) {
+        return openUntil > now ? openUntil - now : 0;
+    }
+
+    /**
+     * @return true if the breaker opened
+     */
+    synchronized boolean onFailure(long now, long retryAfterMs) {
+        failures++;
+        if (failures < FAILURE_THRESHOLD) {
+            return false;
+        }
+        // after the breaker has been open one failure is enough to open it again
+        failures = FAILURE_THRESHOLD - 1;
+        openUntil = now + Math.max(OPEN_MS, Math.min(retryAfterMs, RetryEngine.RETRY_AFTER_LIMIT_MS));
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        failures = 0;
+        openUntil = 0;
+    }
+}
@@ -0,0 +1,11 @@
+package com.pushwoosh.internal.network;
+
+/**
+ * Request was not sent because its endpoint failed too many times in a row, see {@link RetryEngine}.
+ * {@link #getRetryAfterMs()} is the time left until the endpoint is tried again.
+ */
+public class CircuitOpenException extends ConnectionException {
+	public CircuitOpenException(String description, long retryAfterMs) {
+		super(description, 0, 0, retryAfterMs);
+	}
+}
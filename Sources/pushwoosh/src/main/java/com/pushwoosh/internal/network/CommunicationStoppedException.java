@@ -0,0 +1,11 @@
+package com.pushwoosh.internal.network;
+
+/**
+ * Request was not sent because device data was removed from Pushwoosh or server communication is stopped,
+ * it won't be sent until the app allows it again.
+ */
+public class CommunicationStoppedException extends NetworkException {
+	public CommunicationStoppedException(String description) {
+		super(description);
+	}
+}
@@ -29,10 +29,20 @@ package com.pushwoosh.internal.network;
 public class ConnectionException extends NetworkException {
 	private final int statusCode;
 	private final int pushwooshStatusCode;
+	private final long retryAfterMs;
+
 	public ConnectionException(String description, int statusCode, int pushwooshStatusCode) {
+		this(description, statusCode, pushwooshStatusCode, 0);
+	}
+
+	/**
+	 * @param retryAfterMs time the server asked to wait before the next request, 0 if it did not
+	 */
+	public ConnectionException(String description, int statusCode, int pushwooshStatusCode, long retryAfterMs) {
 		super(description);
 		this.statusCode = statusCode;
 		this.pushwooshStatusCode = pushwooshStatusCode;
+		this.retryAfterMs = retryAfterMs;
 	}
 
 	public int getStatusCode() {
@@ -42,4 +52,11 @@ public class ConnectionException extends NetworkException {
 	public int getPushwooshStatusCode() {
 		return pushwooshStatusCode;
 	}
+
+	/**
+	 * @return delay from the {@code Retry-After} header of a 429 or 503 response, 0 if there was none
+	 */
+	public long getRetryAfterMs() {
+		return retryAfterMs;
+	}
 }
@@ -4,10 +4,17 @@ class HttpResponse {
     final int statusCode;
     final String statusMessage;
     final String body;
+    // delay from the Retry-After header, 0 if there was none
+    final long retryAfterMs;
 
     HttpResponse(int statusCode, String statusMessage, String body) {
+        this(statusCode, statusMessage, body, 0);
+    }
+
+    HttpResponse(int statusCode, String statusMessage, String body, long retryAfterMs) {
         this.statusCode = statusCode;
         this.statusMessage = statusMessage;
         this.body = body;
+        this.retryAfterMs = retryAfterMs;
     }
 }
@@ -1,23 +1,47 @@
 package com.pushwoosh.internal.network;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.pushwoosh.internal.utils.PWLog;
 
 import org.json.JSONObject;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Performs a single JSON POST over {@link HttpURLConnection}.
+ * <p>
+ * Connections are left to the platform keep-alive pool: the response body is always read to
+ * the end and closed and {@link HttpURLConnection#disconnect()} is never called, so consecutive
+ * requests to the same host reuse the socket and skip the TLS handshake.
+ * The payload is encoded to UTF-8 once and written in fixed-length streaming mode; when request
+ * compression is enabled, payloads above {@link #gzipThresholdBytes} are gzip-compressed
+ * on the fly. Gzip responses are always accepted and decoded.
+ */
 class HttpTransport {
     private static final String TAG = "HttpTransport";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String GZIP = "gzip";
+    private static final int BUFFER_SIZE = 8 * 1024;
 
     @VisibleForTesting
     static int connectTimeoutMs = 30_000;
@@ -25,6 +49,22 @@ class HttpTransport {
     @VisibleForTesting
     static int readTimeoutMs = 60_000;
 
+    @VisibleForTesting
+    static int gzipThresholdBytes = 1024;
+
+    private final boolean compressRequests;
+
+    HttpTransport() {
+        this(false);
+    }
+
+    /**
+     * @param compressRequests gzip request bodies larger than {@link #gzipThresholdBytes}
+     */
+    HttpTransport(boolean compressRequests) {
+        this.compressRequests = compressRequests;
+    }
+
     @NonNull HttpResponse makeRequest(
             @NonNull String endpointUrl,
             @NonNull JSONObject data,
@@ -32,6 +72,19 @@ class HttpTransport {
             @NonNull Map<String, String> headers,
             @NonNull String apiToken)
             throws Exception {
+        return makeRequest(endpointUrl, data.toString(), methodName, headers, apiToken);
+    }
+
+    /**
+     * @param payload serialized JSON request body, see {@link PushRequest#writePayload}
+     */
+    @NonNull HttpResponse makeRequest(
+            @NonNull String endpointUrl,
+            @NonNull String payload,
+            @NonNull String methodName,
+            @NonNull Map<String, String> headers,
+            @NonNull String apiToken)
+            throws Exception {
         try {
             URL url = new URL(endpointUrl + methodName);
             HttpURLConnection connection = (HttpURLConnection) url.openConnection();
@@ -44,20 +97,18 @@ class HttpTransport {
             }
             connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
             connection.setRequestProperty("Authorization", apiToken);
+            // Setting Accept-Encoding explicitly turns off transparent decompression on Android,
+            // so gzip is decoded in readResponse() the same way on every platform.
+            connection.setRequestProperty("Accept-Encoding", GZIP);
             connection.setDoOutput(true);
-
-            String payload = data.toString();
-            connection.setRequestProperty("Content-Length", String.valueOf(payload.getBytes().length));
             connection.setUseCaches(false);
-            try (OutputStream connectionOutput = connection.getOutputStream()) {
-                connectionOutput.write(payload.getBytes());
-                connectionOutput.flush();
-            }
+
+            writePayload(connection, payload);
 
             HttpResponse response = readResponse(connection);
             PWLog.debug(
                     TAG,
-                    "\n"
+                    () -> "\n"
                             + "| Pushwoosh request: " + methodName + "\n"
                             + "| - URL: " + url.toString() + "\n"
                             + "| - Payload: " + payload + "\n"
@@ -70,32 +121,92 @@ class HttpTransport {
         }
     }
 
+    private void writePayload(HttpURLConnection connection, String payload) throws IOException {
+        // payload.length() is a lower bound of the UTF-8 size, enough to pick the branch
+        if (compressRequests && payload.length() > gzipThresholdBytes) {
+            connection.setRequestProperty("Content-Encoding", GZIP);
+            connection.setChunkedStreamingMode(0);
+            try (Writer writer = new OutputStreamWriter(
+                    new GZIPOutputStream(connection.getOutputStream(), BUFFER_SIZE), UTF_8)) {
+                writer.write(payload);
+            }
+            return;
+        }
+
+        byte[] body = payload.getBytes(UTF_8);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream connectionOutput = connection.getOutputStream()) {
+            connectionOutput.write(body);
+        }
+    }
+
     private HttpResponse readResponse(HttpURLConnection connection) throws IOException {
         int status = connection.getResponseCode();
-        InputStream inputStream;
-        if (isErrorResponseCode(status)) {
-            inputStream = new BufferedInputStream(connection.getErrorStream());
-        } else {
-            inputStream = new BufferedInputStream(connection.getInputStream());
-        }
+        InputStream inputStream = isErrorResponseCode(status)
+                ? connection.getErrorStream()
+                : connection.getInputStream();
         String body = "";
-        try {
-            if (connection.getContentLength() != 0) {
-                try (ByteArrayOutputStream dataCache = new ByteArrayOutputStream()) {
-                    byte[] buff = new byte[1024];
-                    int len;
-                    while ((len = inputStream.read(buff)) >= 0) {
-                        dataCache.write(buff, 0, len);
-                    }
-                    body = dataCache.toString().trim();
-                } catch (Exception e) {
-                    PWLog.error(TAG, "Failed to read response body", e);
+        int contentLength = connection.getContentLength();
+        if (inputStream != null) {
+            try {
+                if (contentLength != 0 && GZIP.equalsIgnoreCase(connection.getContentEncoding())) {
+                    inputStream = new GZIPInputStream(inputStream, BUFFER_SIZE);
                 }
+                body = readBody(inputStream, contentLength).trim();
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to read response body", e);
+            } finally {
+                inputStream.close();
+            }
+        }
+        long retryAfterMs = parseRetryAfterMs(connection.getHeaderField("Retry-After"), System.currentTimeMillis());
+        return new HttpResponse(status, connection.getResponseMessage(), body, retryAfterMs);
+    }
+
+    /**
+     * @param value {@code Retry-After} header, either delay seconds or an HTTP date
+     * @return delay in milliseconds, 0 if the header is missing, malformed or in the past
+     */
+    @VisibleForTesting
+    static long parseRetryAfterMs(@Nullable String value, long nowMs) {
+        if (value == null || value.trim().isEmpty()) {
+            return 0;
+        }
+        String trimmed = value.trim();
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed)));
+        } catch (NumberFormatException e) {
+            // not delay seconds, try HTTP date
+        }
+        try {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            Date date = format.parse(trimmed);
+            return date != null ? Math.max(0, date.getTime() - nowMs) : 0;
+        } catch (ParseException e) {
+            PWLog.warn(TAG, "Malformed Retry-After: " + trimmed);
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the stream to the end, which also returns the connection to the keep-alive pool,
+     * and decodes it as UTF-8 straight from the accumulated buffer.
+     */
+    @VisibleForTesting
+    static String readBody(InputStream inputStream, int contentLengthHint) throws IOException {
+        if (contentLengthHint == 0) {
+            return "";
+        }
+        int initialSize = contentLengthHint > 0 ? contentLengthHint : BUFFER_SIZE;
+        try (ByteArrayOutputStream dataCache = new ByteArrayOutputStream(initialSize)) {
+            byte[] buff = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = inputStream.read(buff)) >= 0) {
+                dataCache.write(buff, 0, len);
             }
-        } finally {
-            inputStream.close();
+            return dataCache.toString(UTF_8.name());
         }
-        return new HttpResponse(status, connection.getResponseMessage(), body);
     }
 
     private boolean isErrorResponseCode(int code) {
@@ -0,0 +1,128 @@
+package com.pushwoosh.internal.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * Serializes {@link JSONObject} trees straight into a {@link StringBuilder}.
+ * <p>
+ * Produces the same text as {@link JSONObject#toString()} without building an intermediate string
+ * for every nested object, so a request envelope and its parameters are written into the request
+ * buffer in one pass.
+ */
+final class JsonStreamWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private JsonStreamWriter() {
+    }
+
+    static void writeObject(@NonNull StringBuilder out, @NonNull JSONObject object) throws JSONException {
+        out.append('{');
+        writeMembers(out, object, false, null);
+        out.append('}');
+    }
+
+    /**
+     * Writes {@code "key":value} pairs of {@code object} without the enclosing braces.
+     *
+     * @param leadingComma whether members already precede the written ones
+     * @param skip         object whose keys are written elsewhere, may be {@code null}
+     * @return true if anything has been written
+     */
+    static boolean writeMembers(@NonNull StringBuilder out, @NonNull JSONObject object, boolean leadingComma,
+                                @Nullable JSONObject skip) throws JSONException {
+        boolean written = false;
+        Iterator<String> keys = object.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (skip != null && skip.has(key)) {
+                continue;
+            }
+            if (leadingComma || written) {
+                out.append(',');
+            }
+            writeString(out, key);
+            out.append(':');
+            writeValue(out, object.opt(key));
+            written = true;
+        }
+        return written;
+    }
+
+    static void writeArray(@NonNull StringBuilder out, @NonNull JSONArray array) throws JSONException {
+        out.append('[');
+        for (int i = 0, length = array.length(); i < length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            writeValue(out, array.opt(i));
+        }
+        out.append(']');
+    }
+
+    static void writeValue(@NonNull StringBuilder out, @Nullable Object value) throws JSONException {
+        if (value == null || value == JSONObject.NULL) {
+            out.append("null");
+        } else if (value instanceof String) {
+            writeString(out, (String) value);
+        } else if (value instanceof JSONObject) {
+            writeObject(out, (JSONObject) value);
+        } else if (value instanceof JSONArray) {
+            writeArray(out, (JSONArray) value);
+        } else if (value instanceof Boolean) {
+            out.append(((Boolean) value).booleanValue());
+        } else if (value instanceof Integer || value instanceof Long) {
+            out.append(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            out.append(JSONObject.numberToString((Number) value));
+        } else {
+            writeString(out, value.toString());
+        }
+    }
+
+    /**
+     * Writes a quoted string escaped the way {@link org.json.JSONStringer} does.
+     */
+    static void writeString(@NonNull StringBuilder out, @NonNull String value) {
+        out.append('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    out.append('\\').append(c);
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                default:
+                    if (c <= 0x1F) {
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+        out.append('"');
+    }
+}
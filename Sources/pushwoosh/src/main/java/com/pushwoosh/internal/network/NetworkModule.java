@@ -41,8 +41,16 @@ public class NetworkModule {
     public static void init(
             RegistrationPrefs registrationPrefs, ServerCommunicationManager serverCommunicationManager,
             boolean reverseProxyRequired) {
+        init(registrationPrefs, serverCommunicationManager, reverseProxyRequired, false);
+    }
+
+    public static void init(
+            RegistrationPrefs registrationPrefs, ServerCommunicationManager serverCommunicationManager,
+            boolean reverseProxyRequired, boolean compressRequests) {
         if (requestManager == null) {
-            requestManager = new PushwooshRequestManager(registrationPrefs, serverCommunicationManager, reverseProxyRequired);
+            RequestBaseParams.subscribe();
+            requestManager = new PushwooshRequestManager(
+                    registrationPrefs, serverCommunicationManager, reverseProxyRequired, compressRequests);
         }
     }
 
@@ -8,12 +8,45 @@ import androidx.annotation.Nullable;
 import com.pushwoosh.PushwooshPlatform;
 import com.pushwoosh.internal.platform.utils.GeneralUtils;
 import com.pushwoosh.internal.specific.DeviceSpecificProvider;
+import com.pushwoosh.internal.utils.NetworkPriority;
 import com.pushwoosh.repository.RepositoryModule;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 public abstract class PushRequest<S> {
+    /**
+     * Ordering key of requests that change device registration, user or tags.
+     */
+    static final String DEVICE_STATE_ORDERING_KEY = "deviceState";
+
+    private static final Set<String> CRITICAL_METHODS = new HashSet<>(Arrays.asList(
+            "registerDevice",
+            "unregisterDevice",
+            "pushStat",
+            "messageDeliveryEvent",
+            "postEvent"));
+
+    private static final Set<String> BACKGROUND_METHODS = new HashSet<>(Arrays.asList(
+            "getInApps",
+            "getInboxMessages",
+            "inboxStatus",
+            "getNearestZone"));
+
+    private static final Set<String> DEVICE_STATE_METHODS = new HashSet<>(Arrays.asList(
+            "registerDevice",
+            "unregisterDevice",
+            "setTags",
+            "setEmailTags",
+            "registerUser",
+            "registerEmail",
+            "registerEmailUser",
+            "mergeUser",
+            "setMADID"));
 
     public abstract String getMethod();
 
@@ -21,20 +54,59 @@ public abstract class PushRequest<S> {
         return true;
     }
 
-    protected JSONObject getParams() throws JSONException, InterruptedException {
+    /**
+     * @return true if the only identity parameters of the request are {@code application} and {@code hwid},
+     * without {@code v}, {@code device_type} and {@code userId}
+     */
+    protected boolean omitsDeviceInfo() {
+        return false;
+    }
+
+    /**
+     * Scheduling class of the request on the network pool.
+     */
+    @NonNull public NetworkPriority getPriority() {
+        String method = getMethod();
+        if (CRITICAL_METHODS.contains(method)) {
+            return NetworkPriority.CRITICAL;
+        }
+        if (BACKGROUND_METHODS.contains(method)) {
+            return NetworkPriority.BACKGROUND;
+        }
+        return NetworkPriority.INTERACTIVE;
+    }
+
+    /**
+     * Requests with the same ordering key are sent one at a time in the order they were issued.
+     * Registration, user and tag updates share one key, so tags are never sent ahead of the
+     * registration issued before them.
+     *
+     * @return ordering key or {@code null} if the request may run concurrently with any other
+     */
+    @Nullable public String getOrderingKey() {
+        return DEVICE_STATE_METHODS.contains(getMethod()) ? DEVICE_STATE_ORDERING_KEY : null;
+    }
+
+    /**
+     * @return request body: the identity parameters followed by the parameters of {@link #buildParams}
+     */
+    protected final JSONObject getParams() throws JSONException, InterruptedException {
         final JSONObject baseParams = new JSONObject();
 
         baseParams.put("application", getApplicationId());
         String hwid = getHwid();
         baseParams.put("hwid", hwid);
-        baseParams.put("v", GeneralUtils.SDK_VERSION);
 
-        // check for Amazon (Kindle) or Google device
-        baseParams.put("device_type", DeviceSpecificProvider.getInstance().deviceType());
+        if (!omitsDeviceInfo()) {
+            baseParams.put("v", GeneralUtils.SDK_VERSION);
+
+            // check for Amazon (Kindle) or Google device
+            baseParams.put("device_type", DeviceSpecificProvider.getInstance().deviceType());
 
-        String currentUserId = getUserId();
-        if (!TextUtils.isEmpty(currentUserId)) {
-            baseParams.put("userId", currentUserId);
+            String currentUserId = getUserId();
+            if (!TextUtils.isEmpty(currentUserId)) {
+                baseParams.put("userId", currentUserId);
+            }
         }
 
         buildParams(baseParams);
@@ -42,6 +114,35 @@ public abstract class PushRequest<S> {
         return baseParams;
     }
 
+    /**
+     * Appends the request body to {@code out}, wrapped into {@code {"request": ...}} when
+     * {@link #shouldWrapRequest()}.
+     * <p>
+     * Produces the same members as {@link #getParams()}, but the identity part is copied from the
+     * cached {@link RequestBaseParams} fragment and only the parameters of {@link #buildParams} are
+     * serialized per request. Requests that {@link #omitsDeviceInfo()} are written from {@link #getParams()}.
+     */
+    void writePayload(@NonNull StringBuilder out) throws JSONException, InterruptedException {
+        boolean wrap = shouldWrapRequest();
+        if (wrap) {
+            out.append("{\"request\":");
+        }
+        if (omitsDeviceInfo()) {
+            JsonStreamWriter.writeObject(out, getParams());
+        } else {
+            RequestBaseParams baseParams = RequestBaseParams.obtain(
+                    getApplicationId(), getHwid(), DeviceSpecificProvider.getInstance().deviceType(), getUserId());
+            JSONObject params = new JSONObject();
+            buildParams(params);
+            out.append('{');
+            baseParams.writeWith(out, params);
+            out.append('}');
+        }
+        if (wrap) {
+            out.append('}');
+        }
+    }
+
     @NonNull protected String getHwid() throws InterruptedException {
         return PushwooshPlatform.getInstance().pushwooshRepository().getHwid();
     }
@@ -33,8 +33,9 @@ import java.util.Objects;
  * Wraps a {@link PushRequest} into a JSON envelope, dispatches it via {@link HttpTransport},
  * parses the response and returns a {@link Result} of typed data or {@link NetworkException}.
  * Gates outgoing traffic on: reverse proxy availability, base URL presence,
- * "remove all device data" state, and the {@link ServerCommunicationManager} switch.
- * Async calls run on the network executor; callbacks are delivered on the main thread.
+ * "remove all device data" state, the {@link ServerCommunicationManager} switch, and the circuit
+ * breaker of the endpoint kept by {@link RetryEngine}.
+ * Async calls run on the prioritized network executor; callbacks are delivered on the main thread.
  */
 class PushwooshRequestManager implements RequestManager {
     private static final String TAG = "RequestManager";
@@ -43,6 +44,16 @@ class PushwooshRequestManager implements RequestManager {
     private static final String COMMUNICATION_STOPPED_MSG =
             "Server communication stopped. Call Pushwoosh.startServerCommunication() to resume";
 
+    private static final int MAX_RETAINED_PAYLOAD_BUFFER = 64 * 1024;
+
+    // request bodies are built in a buffer reused by each network thread
+    private static final ThreadLocal<StringBuilder> PAYLOAD_BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(1024);
+        }
+    };
+
     private final RegistrationPrefs registrationPrefs;
     private final ServerCommunicationManager serverCommunicationManager;
 
@@ -53,15 +64,29 @@ class PushwooshRequestManager implements RequestManager {
     private volatile Map<String, String> customHeaders = new HashMap<>();
     private final boolean reverseProxyRequired;
 
-    private final HttpTransport httpTransport = new HttpTransport();
+    private final HttpTransport httpTransport;
+    private final RetryEngine retryEngine;
 
     PushwooshRequestManager(
             RegistrationPrefs registrationPrefs,
             ServerCommunicationManager serverCommunicationManager,
             boolean reverseProxyRequired) {
+        this(registrationPrefs, serverCommunicationManager, reverseProxyRequired, false);
+    }
+
+    /**
+     * @param compressRequests gzip large request bodies, see {@link HttpTransport}
+     */
+    PushwooshRequestManager(
+            RegistrationPrefs registrationPrefs,
+            ServerCommunicationManager serverCommunicationManager,
+            boolean reverseProxyRequired,
+            boolean compressRequests) {
         this.registrationPrefs = registrationPrefs;
         this.serverCommunicationManager = serverCommunicationManager;
         this.reverseProxyRequired = reverseProxyRequired;
+        this.httpTransport = new HttpTransport(compressRequests);
+        this.retryEngine = RetryEngine.getInstance();
     }
 
     private <Response> void safeProcessCallback(
@@ -85,7 +110,8 @@ class PushwooshRequestManager implements RequestManager {
     }
 
     /**
-     * Sends the request asynchronously on the network executor.
+     * Sends the request asynchronously on the network executor,
+     * scheduled by {@link PushRequest#getPriority()} and {@link PushRequest#getOrderingKey()}.
      * <p>
      * The callback (when provided) is delivered on the main thread.
      *
@@ -96,7 +122,7 @@ class PushwooshRequestManager implements RequestManager {
             final PushRequest<Response> request,
             final String baseUrl,
             final Callback<Response, NetworkException> callback) {
-        BackgroundExecutor.network(() -> {
+        BackgroundExecutor.network(request.getPriority(), request.getOrderingKey(), () -> {
             Result<Response, NetworkException> result = sendRequestSync(request, baseUrl);
             if (callback != null) {
                 BackgroundExecutor.main(() -> safeProcessCallback(callback, result));
@@ -150,6 +176,7 @@ class PushwooshRequestManager implements RequestManager {
      *   <li>no base URL is available</li>
      *   <li>device data has been wiped ({@code removeAllDeviceData})</li>
      *   <li>server communication is paused via {@link ServerCommunicationManager}</li>
+     *   <li>the endpoint failed too many times in a row and its circuit breaker is open</li>
      * </ul>
      */
     @NonNull private <Response> Result<Response, NetworkException> sendRequestSync(
@@ -168,11 +195,16 @@ class PushwooshRequestManager implements RequestManager {
         }
         if (registrationPrefs.removeAllDeviceData().get()) {
             PWLog.warn(TAG, DEVICE_REMOVED_MSG + ". Request blocked: " + request.getMethod());
-            return Result.fromException(new NetworkException(DEVICE_REMOVED_MSG));
+            return Result.fromException(new CommunicationStoppedException(DEVICE_REMOVED_MSG));
         }
         if (serverCommunicationManager != null && !serverCommunicationManager.isServerCommunicationAllowed()) {
             PWLog.warn(TAG, COMMUNICATION_STOPPED_MSG + ". Request blocked: " + request.getMethod());
-            return Result.fromException(new NetworkException(COMMUNICATION_STOPPED_MSG));
+            return Result.fromException(new CommunicationStoppedException(COMMUNICATION_STOPPED_MSG));
+        }
+        long circuitOpenMs = retryEngine.checkCircuit(endpoint.url);
+        if (circuitOpenMs > 0) {
+            PWLog.warn(TAG, "Server is unavailable, retrying in " + circuitOpenMs + " ms. Request blocked: " + request.getMethod());
+            return Result.fromException(new CircuitOpenException("Server is unavailable", circuitOpenMs));
         }
 
         return executeRequest(request, endpoint);
@@ -182,19 +214,32 @@ class PushwooshRequestManager implements RequestManager {
      * Performs the HTTP exchange and maps the response to a {@link Result}.
      * <p>
      * A success requires both transport status 200 and Pushwoosh envelope {@code status_code} 200;
-     * anything else (including thrown exceptions) is wrapped into a {@link ConnectionException}.
+     * anything else (including thrown exceptions) is wrapped into a {@link ConnectionException}
+     * carrying the {@code Retry-After} of a 429 or 503 response.
      * On success, the server-provided {@code base_url} is applied via {@link #applyBaseUrlRotation}
-     * when the endpoint is rotatable.
+     * when the endpoint is rotatable. Whether the server answered is reported to {@link RetryEngine}.
      */
     @NonNull private <Response> Result<Response, NetworkException> executeRequest(
             PushRequest<Response> request, Endpoint endpoint) {
         Exception exception;
         int statusCode = 0, pushwooshStatusCode = 0;
+        long retryAfterMs = 0;
         try {
-            HttpResponse httpResponse = httpTransport.makeRequest(
-                    endpoint.url, buildPayload(request), request.getMethod(), endpoint.headers, getApiToken());
+            String payload = buildPayload(request);
+            HttpResponse httpResponse;
+            try {
+                httpResponse = httpTransport.makeRequest(
+                        endpoint.url, payload, request.getMethod(), endpoint.headers, getApiToken());
+            } catch (Exception e) {
+                retryEngine.onResponse(endpoint.url, 0, 0);
+                throw e;
+            }
 
             statusCode = httpResponse.statusCode;
+            if (statusCode == 429 || statusCode == 503) {
+                retryAfterMs = httpResponse.retryAfterMs;
+            }
+            retryEngine.onResponse(endpoint.url, statusCode, retryAfterMs);
 
             ParsedEnvelope parsed = parseEnvelope(httpResponse);
             JSONObject envelope = parsed.envelope;
@@ -209,7 +254,8 @@ class PushwooshRequestManager implements RequestManager {
             exception = ex;
         }
         PWLog.error(TAG, "Request failed: " + exception.getMessage(), exception);
-        return Result.fromException(new ConnectionException(exception.getMessage(), statusCode, pushwooshStatusCode));
+        return Result.fromException(
+                new ConnectionException(exception.getMessage(), statusCode, pushwooshStatusCode, retryAfterMs));
     }
 
     /**
@@ -259,9 +305,17 @@ class PushwooshRequestManager implements RequestManager {
      * When {@link PushRequest#shouldWrapRequest()} is {@code true} the params are wrapped
      * as {@code {"request": ...}}; otherwise the raw params are returned as-is.
      */
-    @NonNull private static JSONObject buildPayload(PushRequest<?> request) throws JSONException, InterruptedException {
-        JSONObject data = request.getParams();
-        return request.shouldWrapRequest() ? new JSONObject().put("request", data) : data;
+    @NonNull private static String buildPayload(PushRequest<?> request) throws JSONException, InterruptedException {
+        StringBuilder out = PAYLOAD_BUFFER.get();
+        out.setLength(0);
+        try {
+            request.writePayload(out);
+            return out.toString();
+        } finally {
+            if (out.capacity() > MAX_RETAINED_PAYLOAD_BUFFER) {
+                PAYLOAD_BUFFER.remove();
+            }
+        }
     }
 
     @NonNull private static JSONObject extractResponseBody(JSONObject envelope) {
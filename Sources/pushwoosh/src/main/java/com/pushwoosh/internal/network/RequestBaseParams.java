@@ -0,0 +1,138 @@
+package com.pushwoosh.internal.network;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.pushwoosh.internal.event.AppIdChangedEvent;
+import com.pushwoosh.internal.event.EventBus;
+import com.pushwoosh.internal.event.InitHwidEvent;
+import com.pushwoosh.internal.event.UserIdUpdatedEvent;
+import com.pushwoosh.internal.platform.utils.GeneralUtils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Identity parameters sent with every request: {@code application}, {@code hwid}, {@code v},
+ * {@code device_type} and {@code userId}, serialized once into a JSON members fragment.
+ * <p>
+ * The last template is shared by all requests until the identity changes. It is dropped on
+ * {@link UserIdUpdatedEvent}, {@link AppIdChangedEvent} and {@link InitHwidEvent}; {@link #obtain}
+ * also compares the values it is asked for, because not every writer of the registration
+ * preferences announces the change and some requests carry their own application or user.
+ */
+final class RequestBaseParams {
+    private static volatile RequestBaseParams current;
+
+    private final String applicationId;
+    private final String hwid;
+    private final int deviceType;
+    private final String userId;
+    private final String fragment;
+
+    private RequestBaseParams(String applicationId, String hwid, int deviceType, String userId) {
+        this.applicationId = applicationId;
+        this.hwid = hwid;
+        this.deviceType = deviceType;
+        this.userId = userId;
+
+        StringBuilder out = new StringBuilder(160);
+        if (applicationId != null) {
+            member(out, "application");
+            JsonStreamWriter.writeString(out, applicationId);
+        }
+        if (hwid != null) {
+            member(out, "hwid");
+            JsonStreamWriter.writeString(out, hwid);
+        }
+        member(out, "v");
+        JsonStreamWriter.writeString(out, GeneralUtils.SDK_VERSION);
+        member(out, "device_type");
+        out.append(deviceType);
+        if (!TextUtils.isEmpty(userId)) {
+            member(out, "userId");
+            JsonStreamWriter.writeString(out, userId);
+        }
+        this.fragment = out.toString();
+    }
+
+    private static void member(StringBuilder out, String name) {
+        if (out.length() > 0) {
+            out.append(',');
+        }
+        JsonStreamWriter.writeString(out, name);
+        out.append(':');
+    }
+
+    static void subscribe() {
+        EventBus.subscribe(UserIdUpdatedEvent.class, event -> invalidate());
+        EventBus.subscribe(AppIdChangedEvent.class, event -> invalidate());
+        EventBus.subscribe(InitHwidEvent.class, event -> invalidate());
+    }
+
+    static void invalidate() {
+        current = null;
+    }
+
+    /**
+     * @return template for the given identity, the cached one if it matches
+     */
+    @NonNull
+    static RequestBaseParams obtain(@Nullable String applicationId, @Nullable String hwid, int deviceType,
+                                    @Nullable String userId) {
+        RequestBaseParams params = current;
+        if (params == null || !params.matches(applicationId, hwid, deviceType, userId)) {
+            params = new RequestBaseParams(applicationId, hwid, deviceType, userId);
+            current = params;
+        }
+        return params;
+    }
+
+    @VisibleForTesting
+    static RequestBaseParams current() {
+        return current;
+    }
+
+    private boolean matches(String applicationId, String hwid, int deviceType, String userId) {
+        return this.deviceType == deviceType
+                && TextUtils.equals(this.hwid, hwid)
+                && TextUtils.equals(this.applicationId, applicationId)
+                && TextUtils.equals(this.userId, userId);
+    }
+
+    /**
+     * Writes the identity members followed by the members of {@code params}, without braces.
+     * A member set by the request itself replaces the identity member of the same name.
+     */
+    void writeWith(@NonNull StringBuilder out, @NonNull JSONObject params) throws JSONException {
+        if (overrides(params)) {
+            JSONObject identity = toJson();
+            boolean written = JsonStreamWriter.writeMembers(out, identity, false, params);
+            JsonStreamWriter.writeMembers(out, params, written, null);
+            return;
+        }
+        out.append(fragment);
+        JsonStreamWriter.writeMembers(out, params, !fragment.isEmpty(), null);
+    }
+
+    private static boolean overrides(JSONObject params) {
+        return params.has("application") || params.has("hwid") || params.has("v")
+                || params.has("device_type") || params.has("userId");
+    }
+
+    @NonNull
+    JSONObject toJson() throws JSONException {
+        JSONObject params = new JSONObject();
+        params.put("application", applicationId);
+        params.put("hwid", hwid);
+        params.put("v", GeneralUtils.SDK_VERSION);
+        params.put("device_type", deviceType);
+        if (!TextUtils.isEmpty(userId)) {
+            params.put("userId", userId);
+        }
+        return params;
+    }
+}
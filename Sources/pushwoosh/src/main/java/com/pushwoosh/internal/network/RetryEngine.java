@@ -0,0 +1,401 @@
+package com.pushwoosh.internal.network;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.pushwoosh.function.Callback;
+import com.pushwoosh.function.Result;
+import com.pushwoosh.internal.utils.BackgroundExecutor;
+import com.pushwoosh.internal.utils.PWLog;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries and backoff of the network layer.
+ * <p>
+ * Delays grow with decorrelated jitter, each one is picked at random between half the base delay and
+ * three times the previous one, so devices that failed together do not come back together. A
+ * {@code Retry-After} of a 429 or 503 response is never undercut. Every endpoint has a
+ * {@link CircuitBreaker}: while the host keeps failing, {@link PushwooshRequestManager} fails
+ * requests to it with {@link CircuitOpenException} instead of sending them.
+ * <p>
+ * {@link #retry} resends a failed request a few times on the network executor, in the order of its
+ * {@link PushRequest#getOrderingKey()}. The same request failed twice is retried once and both
+ * callbacks get the result. Callers that keep their own queue, such as tags and events, take only
+ * the delays from {@link #nextRetryDelayMs} and tell failures to retry by {@link #isRetriableQueued}.
+ */
+public final class RetryEngine {
+    private static final String TAG = "RetryEngine";
+    private static final RetryEngine INSTANCE = new RetryEngine();
+
+    static final int MAX_ATTEMPTS = 3;
+    static final long RETRY_BASE_DELAY_MS = TimeUnit.SECONDS.toMillis(1);
+    static final long RETRY_MAX_DELAY_MS = TimeUnit.SECONDS.toMillis(10);
+    // a Retry-After longer than that is taken for a misconfiguration
+    static final long RETRY_AFTER_LIMIT_MS = TimeUnit.MINUTES.toMillis(10);
+
+    public static final class Metrics {
+        private final long retriesScheduled;
+        private final long retriesSucceeded;
+        private final long retriesExhausted;
+        private final long retriesDeduplicated;
+        private final long shortCircuited;
+        private final long circuitsOpened;
+
+        Metrics(long retriesScheduled, long retriesSucceeded, long retriesExhausted,
+                long retriesDeduplicated, long shortCircuited, long circuitsOpened) {
+            this.retriesScheduled = retriesScheduled;
+            this.retriesSucceeded = retriesSucceeded;
+            this.retriesExhausted = retriesExhausted;
+            this.retriesDeduplicated = retriesDeduplicated;
+            this.shortCircuited = shortCircuited;
+            this.circuitsOpened = circuitsOpened;
+        }
+
+        /**
+         * @return retries delayed by {@link #nextRetryDelayMs}, including the ones of callers with their own queue
+         */
+        public long getRetriesScheduled() {
+            return retriesScheduled;
+        }
+
+        public long getRetriesSucceeded() {
+            return retriesSucceeded;
+        }
+
+        /**
+         * @return requests of {@link #retry} that failed after the last attempt or were not retriable
+         */
+        public long getRetriesExhausted() {
+            return retriesExhausted;
+        }
+
+        /**
+         * @return failed requests joined to a retry of the same request already in progress
+         */
+        public long getRetriesDeduplicated() {
+            return retriesDeduplicated;
+        }
+
+        /**
+         * @return requests failed with {@link CircuitOpenException} without being sent
+         */
+        public long getShortCircuited() {
+            return shortCircuited;
+        }
+
+        public long getCircuitsOpened() {
+            return circuitsOpened;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "retries: " + retriesScheduled + " scheduled, " + retriesSucceeded + " succeeded, "
+                    + retriesExhausted + " exhausted, " + retriesDeduplicated + " deduplicated; "
+                    + "circuits: " + circuitsOpened + " opened, " + shortCircuited + " short-circuited";
+        }
+    }
+
+    private static final class Retry<Response> {
+        final PushRequest<Response> request;
+        @Nullable final String key;
+        // guarded by pending
+        final List<Callback<Response, NetworkException>> callbacks = new ArrayList<>();
+        int attempt;
+        long previousDelayMs;
+        Result<Response, NetworkException> lastResult;
+
+        Retry(PushRequest<Response> request, @Nullable String key, Result<Response, NetworkException> lastResult) {
+            this.request = request;
+            this.key = key;
+            this.lastResult = lastResult;
+        }
+    }
+
+    private final Random random;
+    private final ScheduledExecutorService timer;
+    private final Map<String, CircuitBreaker> circuitBreakers = new HashMap<>();
+    private final Map<String, Retry<?>> pending = new HashMap<>();
+
+    private final AtomicLong retriesScheduled = new AtomicLong();
+    private final AtomicLong retriesSucceeded = new AtomicLong();
+    private final AtomicLong retriesExhausted = new AtomicLong();
+    private final AtomicLong retriesDeduplicated = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong circuitsOpened = new AtomicLong();
+
+    private RetryEngine() {
+        this(new Random(), Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @VisibleForTesting
+    RetryEngine(@NonNull Random random, @NonNull ScheduledExecutorService timer) {
+        this.random = random;
+        this.timer = timer;
+    }
+
+    public static RetryEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true for failures a later attempt may fix: no connection, timeouts, throttling and server errors
+     */
+    public static boolean isRetriable(@Nullable NetworkException exception) {
+        if (!(exception instanceof ConnectionException)) {
+            return false;
+        }
+        ConnectionException connectionException = (ConnectionException) exception;
+        int networkStatus = connectionException.getStatusCode();
+        // statuses are 0 by default and changed after processing request. If they are both still 0
+        // then request failed due to connection errors
+        boolean hasRequestFailed = networkStatus == 0 && connectionException.getPushwooshStatusCode() == 0;
+        return hasRequestFailed || isServerUnavailable(networkStatus);
+    }
+
+    /**
+     * @return true if a request kept in a caller's own queue should stay there for another attempt: it
+     * wasn't sent at all, such as without a request manager, or it failed in a way {@link #isRetriable}
+     * retries. Requests rejected by Pushwoosh or held back while communication is stopped are not.
+     */
+    public static boolean isRetriableQueued(@Nullable NetworkException exception) {
+        if (exception instanceof CommunicationStoppedException) {
+            return false;
+        }
+        if (!(exception instanceof ConnectionException)) {
+            return true;
+        }
+        return isRetriable(exception);
+    }
+
+    private static boolean shouldRetry(@Nullable NetworkException exception) {
+        return isRetriable(exception) && !(exception instanceof CircuitOpenException);
+    }
+
+    static boolean isServerUnavailable(int statusCode) {
+        switch (statusCode) {
+            case 408: // Request Timeout
+            case 429: // Too Many Requests
+            case 500: // Internal Server Error
+            case 502: // Bad Gateway
+            case 503: // Service Unavailable
+            case 504: // Gateway Timeout
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Picks the delay before the next attempt and counts it as a scheduled retry.
+     *
+     * @param previousDelayMs delay before the previous attempt, 0 for the first retry
+     * @param failure         failure of the last attempt, its {@code Retry-After} is honored
+     */
+    public long nextRetryDelayMs(long previousDelayMs, @Nullable NetworkException failure, long baseDelayMs, long maxDelayMs) {
+        long from = baseDelayMs / 2;
+        long to = Math.max(baseDelayMs, Math.min(maxDelayMs, previousDelayMs * 3));
+        long delay = from + (long) (random.nextDouble() * (to - from));
+        if (failure instanceof ConnectionException) {
+            long retryAfterMs = Math.min(((ConnectionException) failure).getRetryAfterMs(), RETRY_AFTER_LIMIT_MS);
+            delay = Math.max(delay, retryAfterMs);
+        }
+        retriesScheduled.incrementAndGet();
+        return delay;
+    }
+
+    /**
+     * Resends the failed request up to {@link #MAX_ATTEMPTS} times, or hands the failure to the
+     * callback right away if it is not {@link #isRetriable} or the endpoint's breaker is open.
+     * The callback is called on a network thread.
+     */
+    public <Response> void retry(
+            @NonNull PushRequest<Response> request,
+            @NonNull Result<Response, NetworkException> failure,
+            @Nullable Callback<Response, NetworkException> callback) {
+        if (!shouldRetry(failure.getException())) {
+            retriesExhausted.incrementAndGet();
+            deliver(callback, failure);
+            return;
+        }
+
+        String key = identityOf(request);
+        Retry<Response> retry;
+        synchronized (pending) {
+            @SuppressWarnings("unchecked")
+            Retry<Response> running = key != null ? (Retry<Response>) pending.get(key) : null;
+            if (running != null) {
+                retriesDeduplicated.incrementAndGet();
+                if (callback != null) {
+                    running.callbacks.add(callback);
+                }
+                PWLog.debug(TAG, request.getMethod() + " is already being retried");
+                return;
+            }
+            retry = new Retry<>(request, key, failure);
+            if (callback != null) {
+                retry.callbacks.add(callback);
+            }
+            if (key != null) {
+                pending.put(key, retry);
+            }
+        }
+        scheduleNext(retry);
+    }
+
+    private <Response> void scheduleNext(Retry<Response> retry) {
+        if (retry.attempt >= MAX_ATTEMPTS) {
+            retriesExhausted.incrementAndGet();
+            finish(retry, retry.lastResult);
+            return;
+        }
+
+        long delay = nextRetryDelayMs(retry.previousDelayMs, retry.lastResult.getException(),
+                RETRY_BASE_DELAY_MS, RETRY_MAX_DELAY_MS);
+        retry.previousDelayMs = delay;
+        retry.attempt++;
+        PWLog.debug(TAG, "Scheduling retry attempt " + retry.attempt + " of " + retry.request.getMethod()
+                + " in " + delay + " ms");
+        try {
+            timer.schedule(() -> BackgroundExecutor.network(
+                    retry.request.getPriority(), retry.request.getOrderingKey(), () -> attempt(retry)),
+                    delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            PWLog.error(TAG, "Failed to retry request " + retry.request.getMethod(), e);
+            finish(retry, Result.fromException(new NetworkException(e.getMessage())));
+        }
+    }
+
+    private <Response> void attempt(Retry<Response> retry) {
+        RequestManager requestManager = NetworkModule.getRequestManager();
+        if (requestManager == null) {
+            finish(retry, Result.fromException(new NetworkException("Failed to retry request " +
+                    retry.request.getMethod() + ": RequestManager is null")));
+            return;
+        }
+
+        Result<Response, NetworkException> result = requestManager.sendRequestSync(retry.request);
+        if (result.isSuccess()) {
+            retriesSucceeded.incrementAndGet();
+            finish(retry, result);
+        } else if (!shouldRetry(result.getException())) {
+            retriesExhausted.incrementAndGet();
+            finish(retry, result);
+        } else {
+            retry.lastResult = result;
+            scheduleNext(retry);
+        }
+    }
+
+    private <Response> void finish(Retry<Response> retry, Result<Response, NetworkException> result) {
+        List<Callback<Response, NetworkException>> callbacks;
+        synchronized (pending) {
+            if (retry.key != null) {
+                pending.remove(retry.key);
+            }
+            callbacks = new ArrayList<>(retry.callbacks);
+        }
+        for (Callback<Response, NetworkException> callback : callbacks) {
+            deliver(callback, result);
+        }
+    }
+
+    private static <Response> void deliver(
+            @Nullable Callback<Response, NetworkException> callback, Result<Response, NetworkException> result) {
+        if (callback == null) {
+            return;
+        }
+        try {
+            callback.process(result);
+        } catch (Exception e) {
+            PWLog.error(TAG, "Error processing callback", e);
+        }
+    }
+
+    /**
+     * @return method and parameters of the request, null if it can't be told apart from other requests cheaply
+     */
+    @Nullable
+    private static String identityOf(PushRequest<?> request) {
+        try {
+            JSONObject params = new JSONObject();
+            request.buildParams(params);
+            return request.getMethod() + params;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return 0 if a request to the endpoint may be sent, otherwise the time left until its breaker closes
+     */
+    long checkCircuit(@NonNull String endpoint) {
+        long remaining = circuitBreaker(endpoint).remainingOpenMs(SystemClock.elapsedRealtime());
+        if (remaining > 0) {
+            shortCircuited.incrementAndGet();
+        }
+        return remaining;
+    }
+
+    /**
+     * Records the outcome of a request that was sent to the endpoint.
+     *
+     * @param statusCode HTTP status of the response, 0 if there was no response
+     */
+    void onResponse(@NonNull String endpoint, int statusCode, long retryAfterMs) {
+        CircuitBreaker circuitBreaker = circuitBreaker(endpoint);
+        if (statusCode != 0 && !isServerUnavailable(statusCode)) {
+            circuitBreaker.onSuccess();
+        } else if (circuitBreaker.onFailure(SystemClock.elapsedRealtime(), retryAfterMs)) {
+            circuitsOpened.incrementAndGet();
+            PWLog.warn(TAG, endpoint + " keeps failing, requests to it are paused");
+        }
+    }
+
+    private CircuitBreaker circuitBreaker(String endpoint) {
+        synchronized (circuitBreakers) {
+            CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+            if (circuitBreaker == null) {
+                circuitBreaker = new CircuitBreaker();
+                circuitBreakers.put(endpoint, circuitBreaker);
+            }
+            return circuitBreaker;
+        }
+    }
+
+    @NonNull
+    public Metrics getMetrics() {
+        return new Metrics(retriesScheduled.get(), retriesSucceeded.get(), retriesExhausted.get(),
+                retriesDeduplicated.get(), shortCircuited.get(), circuitsOpened.get());
+    }
+
+    public void resetForTesting() {
+        synchronized (circuitBreakers) {
+            circuitBreakers.clear();
+        }
+        synchronized (pending) {
+            pending.clear();
+        }
+        retriesScheduled.set(0);
+        retriesSucceeded.set(0);
+        retriesExhausted.set(0);
+        retriesDeduplicated.set(0);
+        shortCircuited.set(0);
+        circuitsOpened.set(0);
+    }
+}
@@ -29,17 +29,9 @@ package com.pushwoosh.internal.platform.utils;
 import android.annotation.SuppressLint;
 import android.app.ActivityManager;
 import android.app.KeyguardManager;
-import android.content.ContentResolver;
 import android.content.Context;
-import android.content.pm.PackageManager;
-import android.content.pm.ProviderInfo;
 import android.content.res.Configuration;
-import android.database.Cursor;
-import android.net.Uri;
-import android.os.AsyncTask;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
 import android.os.PowerManager;
 import android.text.TextUtils;
 
@@ -47,8 +39,8 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.pushwoosh.PushwooshPlatform;
-import com.pushwoosh.PushwooshSharedDataProvider;
 import com.pushwoosh.internal.platform.AndroidPlatformModule;
+import com.pushwoosh.internal.utils.BackgroundExecutor;
 import com.pushwoosh.internal.utils.PWLog;
 import com.pushwoosh.repository.RegistrationPrefs;
 import com.pushwoosh.repository.RepositoryModule;
@@ -61,7 +53,8 @@ import java.util.concurrent.CountDownLatch;
 public class DeviceUtils {
 
     private static final String TAG = "DeviceUtils";
-    private static final int GET_UUID_TASK_TIMEOUT = 10000;
+    // asking other apps starts their processes, which takes a while on a cold device
+    private static final long SHARED_HWID_DEADLINE_MS = 3000;
 
     private static DeviceUUID DEVICE_RANDOM_UUID = new DeviceRandomUUID();
     private static DeviceUUID DEVICE_SHARED_UUID = new DeviceSharedUUID();
@@ -242,13 +235,14 @@ public class DeviceUtils {
     }
 
     private static class DeviceSharedUUID extends DeviceUUID {
-        private CountDownLatch countDownLatch = new CountDownLatch(1);
-        private TryGetSharedUuidTask tryGetSharedUuidTask;
+        private final CountDownLatch countDownLatch = new CountDownLatch(1);
+        private final List<TryGetUuidCallback> callbacks = new ArrayList<>();
+        private boolean resolving;
 
         protected String tryGetUUID() {
             RegistrationPrefs registrationPrefs = RepositoryModule.getRegistrationPreferences();
 
-            if (!isTryGetSharedUuidTaskRunning()) {
+            if (!isResolving()) {
                 tryGetUUID(null);
             }
             try {
@@ -261,149 +255,62 @@ public class DeviceUtils {
 
         @Override
         protected void tryGetUUID(TryGetUuidCallback callback) {
-            if (isTryGetSharedUuidTaskRunning()) {
+            synchronized (callbacks) {
                 if (callback != null) {
-                    tryGetSharedUuidTask.addCallback(callback::onGetUuid);
+                    callbacks.add(callback);
                 }
-                return;
-            }
-
-            Handler stopTaskHandler = new Handler(Looper.myLooper() != null ? Looper.myLooper() : Looper.getMainLooper());
-            TryGetSharedUuidCallback uuidCallback = (uuid) -> {
-                stopTaskHandler.removeCallbacksAndMessages(null);
-                if (callback != null)
-                    callback.onGetUuid(uuid);
-                countDownLatch.countDown();
-                tryGetSharedUuidTask = null;
-            };
-            try {
-                RegistrationPrefs registrationPrefs = RepositoryModule.getRegistrationPreferences();
-                String deviceId = registrationPrefs.deviceId().get();
-                if (!TextUtils.isEmpty(deviceId)) {
-                    uuidCallback.onGetSharedUuid(deviceId);
+                if (resolving) {
                     return;
                 }
-                tryGetSharedUuidTask = new TryGetSharedUuidTask();
-                tryGetSharedUuidTask.addCallback(uuidCallback);
-
-                stopTaskHandler.postDelayed(() -> {
-                    if (tryGetSharedUuidTask != null && tryGetSharedUuidTask.getStatus() != AsyncTask.Status.FINISHED) {
-                        tryGetSharedUuidTask.cancel(true);
-                    }
-                }, GET_UUID_TASK_TIMEOUT);
-                tryGetSharedUuidTask.execute();
-            }
-            catch (Exception e) {
-                PWLog.error(TAG, "Failed to query shared UUID provider", e);
-                uuidCallback.onGetSharedUuid(null);
-            }
-        }
-
-        private boolean isTryGetSharedUuidTaskRunning() {
-            return tryGetSharedUuidTask != null && tryGetSharedUuidTask.getStatus() != AsyncTask.Status.FINISHED;
-        }
-
-        @NonNull
-        private static List<ProviderInfo> getVendorProviderInfos(List<ProviderInfo> providerInfos) {
-            List<ProviderInfo> vendorProviderInfos = new ArrayList<>();
-            if (providerInfos == null) {
-                return vendorProviderInfos;
-            }
-
-            String[] trustedPackageNames = PushwooshPlatform.getInstance().getConfig().getTrustedPackageNames();
-
-            for (ProviderInfo providerInfo : providerInfos) {
-                for (String trustedPackageName : trustedPackageNames) {
-                    if (!TextUtils.isEmpty(providerInfo.packageName)
-                            && TextUtils.equals(providerInfo.packageName, trustedPackageName)) {
-                        vendorProviderInfos.add(providerInfo);
-                    }
-                }
+                resolving = true;
             }
-            return vendorProviderInfos;
-        }
 
-        private static String getUUIDFromForeignInstance() {
-            String result = null;
             try {
+                String deviceId = RepositoryModule.getRegistrationPreferences().deviceId().get();
                 Context context = AndroidPlatformModule.getApplicationContext();
-                if (context == null)
-                    return null;
-                PackageManager pm = context.getPackageManager();
-                List<ProviderInfo> providerInfos = getVendorProviderInfos(pm.queryContentProviders(null, 0, 0));
-                if (providerInfos.size() == 0)
-                    return null;
-                String currentProviderAuthority = context.getPackageName() + "." + PushwooshSharedDataProvider.class.getSimpleName();
-                for (ProviderInfo pi : providerInfos) {
-                    if (pi.authority.endsWith("." + PushwooshSharedDataProvider.class.getSimpleName())
-                            && !pi.authority.equals(currentProviderAuthority)) {
-                        ContentResolver resolver = context.getContentResolver();
-                        Cursor cursor = resolver.query(Uri.parse("content://" + pi.authority + "/" + PushwooshSharedDataProvider.HWID_PATH),
-                                null, null, null, GeneralUtils.md5(context.getPackageName()));
-                        if (cursor != null) {
-                            if (cursor.getColumnCount() > 0 && cursor.getColumnName(0).equals(PushwooshSharedDataProvider.HWID_COLUMN_NAME)) {
-                                if (cursor.moveToFirst()) {
-                                    String hwid = cursor.getString(0);
-                                    if (!TextUtils.isEmpty(hwid)) {
-                                        result = hwid;
-                                        cursor.close();
-                                        break;
-                                    }
-                                }
-                            }
-                            cursor.close();
-                        }
-                    }
+                if (!TextUtils.isEmpty(deviceId) || context == null) {
+                    onResolved(deviceId);
+                    return;
                 }
+
+                String[] trustedPackageNames = PushwooshPlatform.getInstance().getConfig().getTrustedPackageNames();
+                SharedHwidResolver resolver = new SharedHwidResolver(
+                        new SharedHwidResolver.ProviderSource(context),
+                        SharedHwidResolver.otherPackages(trustedPackageNames, context.getPackageName()),
+                        AndroidPlatformModule.getPrefsProvider().providePrefs(SharedHwidResolver.PREFS_NAME),
+                        BackgroundExecutor::executeOnPool,
+                        SHARED_HWID_DEADLINE_MS);
+                BackgroundExecutor.executeOnPool(() -> onResolved(resolver.resolve()));
             } catch (Exception e) {
-                PWLog.error(TAG, "Failed to get UUID from foreign instance", e);
+                PWLog.error(TAG, "Failed to query shared UUID provider", e);
+                onResolved(null);
             }
-            return result;
         }
 
-        private static class TryGetSharedUuidTask extends AsyncTask<Void, Void, String> {
-            private final List<TryGetSharedUuidCallback> callbacks = new ArrayList<>();
-
-            void addCallback(TryGetSharedUuidCallback callback) {
-                synchronized (callbacks) {
-                    callbacks.add(callback);
-                }
+        private boolean isResolving() {
+            synchronized (callbacks) {
+                return resolving;
             }
+        }
 
-            @Override
-            protected String doInBackground(Void... voids) {
-                return getUUIDFromForeignInstance();
+        private void onResolved(String uuid) {
+            RegistrationPrefs registrationPrefs = RepositoryModule.getRegistrationPreferences();
+            if (TextUtils.isEmpty(uuid)) {
+                uuid = UUID.randomUUID().toString();
             }
-
-            private void onFinished(String uuid) {
-                if (TextUtils.isEmpty(uuid)) {
-                    uuid = UUID.randomUUID().toString();
-                }
-                RepositoryModule.getRegistrationPreferences().deviceId().set(uuid);
-                List<TryGetSharedUuidCallback> runCallbacks;
-                synchronized (callbacks) {
-                    runCallbacks = new ArrayList<>(callbacks);
-                }
-                for (TryGetSharedUuidCallback callback : runCallbacks) {
-                    callback.onGetSharedUuid(uuid);
-                }
+            if (!uuid.equals(registrationPrefs.deviceId().get())) {
+                registrationPrefs.deviceId().set(uuid);
             }
-
-            @Override
-            protected void onPostExecute(String uuid) {
-                super.onPostExecute(uuid);
-                onFinished(uuid);
+            List<TryGetUuidCallback> runCallbacks;
+            synchronized (callbacks) {
+                runCallbacks = new ArrayList<>(callbacks);
+                callbacks.clear();
+                resolving = false;
             }
-
-            @Override
-            protected void onCancelled() {
-                super.onCancelled();
-                onFinished(null);
+            countDownLatch.countDown();
+            for (TryGetUuidCallback callback : runCallbacks) {
+                callback.onGetUuid(uuid);
             }
         }
-
-        private interface TryGetSharedUuidCallback {
-            void onGetSharedUuid(String uuid);
-        }
     }
 }
@@ -0,0 +1,172 @@
+package com.pushwoosh.internal.platform.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.pm.ProviderInfo;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.pushwoosh.PushwooshSharedDataProvider;
+import com.pushwoosh.internal.utils.PWLog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Looks up the HWID shared by another app of the same developer.
+ * <p>
+ * Only the trusted packages from the manifest are asked: the {@link PushwooshSharedDataProvider} of
+ * each one is resolved by its authority and all of them are queried in parallel. The first HWID wins,
+ * and the lookup gives up after the deadline. A package that has no provider or no HWID is remembered
+ * for {@link #NEGATIVE_CACHE_TTL_MS} and is not asked again by the next cold starts.
+ */
+class SharedHwidResolver {
+    private static final String TAG = "SharedHwidResolver";
+    static final String PREFS_NAME = "PWSharedHwid";
+    static final long NEGATIVE_CACHE_TTL_MS = TimeUnit.DAYS.toMillis(7);
+
+    interface Source {
+        /**
+         * @return HWID of the package or null if it has no provider or no HWID
+         * @throws Exception if the package could not be asked, it is asked again next time
+         */
+        @Nullable
+        String query(@NonNull String packageName) throws Exception;
+    }
+
+    private final Source source;
+    private final List<String> trustedPackages;
+    @Nullable
+    private final SharedPreferences negativeCache;
+    private final Executor queryExecutor;
+    private final long deadlineMs;
+
+    SharedHwidResolver(@NonNull Source source, @NonNull List<String> trustedPackages,
+                       @Nullable SharedPreferences negativeCache, @NonNull Executor queryExecutor, long deadlineMs) {
+        this.source = source;
+        this.trustedPackages = trustedPackages;
+        this.negativeCache = negativeCache;
+        this.queryExecutor = queryExecutor;
+        this.deadlineMs = deadlineMs;
+    }
+
+    /**
+     * @return trusted packages other than the current one, in the manifest order and without duplicates
+     */
+    @NonNull
+    static List<String> otherPackages(@Nullable String[] trustedPackageNames, @NonNull String currentPackage) {
+        Set<String> packages = new LinkedHashSet<>();
+        if (trustedPackageNames != null) {
+            for (String packageName : trustedPackageNames) {
+                if (!TextUtils.isEmpty(packageName) && !packageName.equals(currentPackage)) {
+                    packages.add(packageName);
+                }
+            }
+        }
+        return new ArrayList<>(packages);
+    }
+
+    /**
+     * Blocks for at most the deadline.
+     *
+     * @return HWID shared by a trusted package or null if there is none or none answered in time
+     */
+    @WorkerThread
+    @Nullable
+    String resolve() {
+        long now = System.currentTimeMillis();
+        List<String> packages = new ArrayList<>();
+        for (String packageName : trustedPackages) {
+            long checkedAt = negativeCache != null ? negativeCache.getLong(packageName, 0) : 0;
+            if (checkedAt <= now && now - checkedAt < NEGATIVE_CACHE_TTL_MS) {
+                PWLog.noise(TAG, packageName + " had no shared HWID recently, skipping it");
+                continue;
+            }
+            packages.add(packageName);
+        }
+        if (packages.isEmpty()) {
+            return null;
+        }
+
+        final long start = SystemClock.elapsedRealtime();
+        final AtomicReference<String> found = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(packages.size());
+        for (String packageName : packages) {
+            queryExecutor.execute(() -> {
+                try {
+                    String hwid = source.query(packageName);
+                    if (!TextUtils.isEmpty(hwid)) {
+                        found.compareAndSet(null, hwid);
+                        while (done.getCount() > 0) {
+                            done.countDown();
+                        }
+                    } else if (negativeCache != null) {
+                        negativeCache.edit().putLong(packageName, System.currentTimeMillis()).apply();
+                    }
+                } catch (Exception e) {
+                    PWLog.error(TAG, "Failed to get HWID from " + packageName, e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        try {
+            if (!done.await(deadlineMs, TimeUnit.MILLISECONDS)) {
+                PWLog.warn(TAG, "Trusted packages did not answer in " + deadlineMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PWLog.debug(TAG, "Asked " + packages.size() + " trusted packages in " + (SystemClock.elapsedRealtime() - start) + " ms");
+        return found.get();
+    }
+
+    /**
+     * {@link Source} asking the {@link PushwooshSharedDataProvider} of a package.
+     */
+    static class ProviderSource implements Source {
+        private final Context context;
+
+        ProviderSource(@NonNull Context context) {
+            this.context = context;
+        }
+
+        @Nullable
+        @Override
+        public String query(@NonNull String packageName) {
+            String authority = packageName + "." + PushwooshSharedDataProvider.class.getSimpleName();
+            PackageManager pm = context.getPackageManager();
+            ProviderInfo providerInfo = pm.resolveContentProvider(authority, 0);
+            // the authority must belong to the trusted package, not to an app that claimed it first
+            if (providerInfo == null || !TextUtils.equals(providerInfo.packageName, packageName)) {
+                return null;
+            }
+
+            Uri uri = Uri.parse("content://" + authority + "/" + PushwooshSharedDataProvider.HWID_PATH);
+            try (Cursor cursor = context.getContentResolver().query(uri, null, null, null,
+                    GeneralUtils.md5(context.getPackageName()))) {
+                if (cursor != null
+                        && cursor.getColumnCount() > 0
+                        && cursor.getColumnName(0).equals(PushwooshSharedDataProvider.HWID_COLUMN_NAME)
+                        && cursor.moveToFirst()) {
+                    return cursor.getString(0);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -7,9 +7,8 @@ import java.util.LinkedList;
 import java.util.List;
 
 /**
- * This class used for {@link com.pushwoosh.repository.SendTagsProcessor}. And this class is fixed
- * bug on Unity where each tag is sent by separate request. This class is accumulated requests and
- * sending it in one single request
+ * Accumulates data on the main thread and hands it over in one batch once {@code timeoutMs} has
+ * passed since the first item.
  */
 public class Accumulator<T> {
 	public interface Completion<W> {
@@ -37,6 +37,7 @@ import com.pushwoosh.internal.platform.AndroidPlatformModule;
  */
 
 public class AppVersionProvider {
+	public static final String PREFS_NAME = "PWAppVersion";
 	private static final String TAG = "AppVersionProvider";
 
 	public int getCurrentVersion() {
@@ -53,6 +54,23 @@ public class AppVersionProvider {
 		return version;
 	}
 
+	/**
+	 * @return time the installed package was last updated, changes on every reinstall even when
+	 * versionCode stays the same (debug builds); 0 if it can't be read
+	 */
+	public long getLastUpdateTime() {
+		Context context = AndroidPlatformModule.getApplicationContext();
+		if (context == null)
+			return 0;
+		try {
+			return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+		}
+		catch (Exception e) {
+			PWLog.error(TAG, "Failed to read package update time", e);
+		}
+		return 0;
+	}
+
 	private SharedPreferences getPrefs() {
 		return prefs;
 	}
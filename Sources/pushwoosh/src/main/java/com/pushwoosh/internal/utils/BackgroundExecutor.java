@@ -4,6 +4,7 @@ import android.os.Handler;
 import android.os.Looper;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
@@ -16,7 +17,7 @@ public final class BackgroundExecutor {
     private static final String TAG = "BackgroundExecutor";
 
     // Thread-safe initialization guaranteed by JVM (JLS §12.4.2)
-    private static final Executor NETWORK = Executors.newSingleThreadExecutor();
+    private static final NetworkScheduler NETWORK = NetworkScheduler.create();
     private static final Executor SERIAL = Executors.newSingleThreadExecutor();
     private static final Executor PARALLEL = Executors.newFixedThreadPool(4);
 
@@ -28,11 +29,27 @@ public final class BackgroundExecutor {
     private BackgroundExecutor() {}
 
     /**
-     * Execute task on dedicated network thread.
-     * HTTP requests run sequentially to avoid race conditions.
+     * Execute task on network pool as {@link NetworkPriority#INTERACTIVE}.
      */
     public static void network(@NonNull Runnable task) {
-        NETWORK.execute(wrapWithErrorHandling(task));
+        network(NetworkPriority.INTERACTIVE, null, task);
+    }
+
+    /**
+     * Execute task on network pool.
+     * Tasks of a class start in FIFO order within the class concurrency limit.
+     * Tasks with the same ordering key run one at a time in submission order.
+     */
+    public static void network(@NonNull NetworkPriority priority, @Nullable String orderingKey, @NonNull Runnable task) {
+        NETWORK.submit(priority, orderingKey, wrapWithErrorHandling(task));
+    }
+
+    /**
+     * Queue depth and wait time counters of the network pool.
+     */
+    @NonNull
+    public static NetworkScheduler.Stats getNetworkStats(@NonNull NetworkPriority priority) {
+        return NETWORK.getStats(priority);
     }
 
     /**
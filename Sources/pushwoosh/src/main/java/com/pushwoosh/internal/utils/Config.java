@@ -170,6 +170,17 @@ public interface Config {
      */
     boolean isReverseProxyAllowed();
 
+    /**
+     * @return If true, request bodies above 1 KB are sent gzip-compressed ({@code Content-Encoding: gzip}).
+     */
+    boolean isRequestCompressionEnabled();
+
+    /**
+     * @return If true, a WebView is created in advance while the app is idle so rich media and in-apps
+     *         don't wait for the WebView to initialize when they are shown.
+     */
+    boolean isWebViewPreloadEnabled();
+
     /**
      * @return Idle timeout in seconds. 0 means idle detection is disabled.
      */
@@ -180,4 +191,16 @@ public interface Config {
      *         Values are clamped to [10, 30] by the detector.
      */
     int getExitIntentTimeoutSeconds();
+
+    /**
+     * @return Maximum number of push statistics events sent by one statistics job.
+     *         0 means the SDK default is used.
+     */
+    int getPushStatisticsBatchSize();
+
+    /**
+     * @return Upper bound in milliseconds of the delay before queued push statistics are flushed.
+     *         0 means the SDK default is used.
+     */
+    int getPushStatisticsFlushIntervalMillis();
 }
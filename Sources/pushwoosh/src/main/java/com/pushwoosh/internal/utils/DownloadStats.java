@@ -0,0 +1,47 @@
+package com.pushwoosh.internal.utils;
+
+/**
+ * Transfer counters of one {@link FileUtils#downloadFile(String, java.io.File, java.security.MessageDigest, DownloadStats)}
+ * call. Written by the downloading thread only; read it after the call returns.
+ */
+public class DownloadStats {
+    private long bytesTransferred;
+    private long resumedBytes;
+    private int resumeCount;
+    private int attempts;
+
+    void onAttempt() {
+        attempts++;
+    }
+
+    void onResumed(long offset) {
+        resumeCount++;
+        resumedBytes += offset;
+    }
+
+    void onBytes(int count) {
+        bytesTransferred += count;
+    }
+
+    /**
+     * @return bytes received over the network, over all attempts
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * @return bytes that did not have to be downloaded again because a partial file was resumed
+     */
+    public long getResumedBytes() {
+        return resumedBytes;
+    }
+
+    public int getResumeCount() {
+        return resumeCount;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
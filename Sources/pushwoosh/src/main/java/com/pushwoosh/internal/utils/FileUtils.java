@@ -6,6 +6,7 @@ import androidx.annotation.Nullable;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -27,70 +28,264 @@ public class FileUtils {
     private static final String TAG = "FileUtils";
 
     private static final int TRY_COUNT = 3;
+    private static final int DOWNLOAD_BUFFER_SIZE = 16 * 1024;
+    private static final int DOWNLOAD_CONNECT_TIMEOUT_MS = 15_000;
+    private static final int DOWNLOAD_READ_TIMEOUT_MS = 30_000;
+    private static final long DOWNLOAD_RETRY_DELAY_MS = 500;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final String PART_SUFFIX = ".part";
+    private static final String PART_META_SUFFIX = ".part.meta";
 
     @Nullable public static File downloadFile(String linkUrl, File destination) {
-        int count;
+        return downloadFile(linkUrl, destination, null, null);
+    }
+
+    /**
+     * Downloads {@code linkUrl} to {@code destination}, resuming partially downloaded data.
+     * <p>
+     * Bytes are written to {@code <destination>.part}. When an attempt breaks off and the server sent a
+     * strong validator (ETag or Last-Modified), the next one requests only the missing tail with a
+     * {@code Range} header guarded by that validator in {@code If-Range}; a plain 200 reply starts the file
+     * over. Without a validator the server can't tell whether the data changed, so the file is always
+     * downloaded from the start. The part file with its validator also survives a failed call (or process
+     * death) and is resumed by the next call for the same url. The complete file is renamed to
+     * {@code destination}.
+     *
+     * @param digest updated with the content of the file while it is written, so the caller can verify
+     *               the hash without reading the file again. Reset whenever the file starts over.
+     * @param stats  receives transfer counters, may be {@code null}
+     * @return {@code destination}, or {@code null} if the file could not be downloaded
+     */
+    @Nullable
+    public static File downloadFile(String linkUrl, File destination, @Nullable MessageDigest digest,
+            @Nullable DownloadStats stats) {
+        final File part = new File(destination.getPath() + PART_SUFFIX);
+        final File meta = new File(destination.getPath() + PART_META_SUFFIX);
+        String validator = readPartValidator(linkUrl, part, meta);
         int tryCount = 0;
-        InputStream input = null;
-        OutputStream output = null;
         try {
             while (tryCount++ < TRY_COUNT) {
-                HttpURLConnection openConnection = null;
+                HttpURLConnection connection = null;
+                InputStream input = null;
+                OutputStream output = null;
                 try {
-                    URL url = new URL(linkUrl);
-                    openConnection = (HttpURLConnection) url.openConnection();
-                    openConnection.connect();
-
-                    if (openConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
-                        PWLog.error(
-                                TAG,
-                                "fail download: " + linkUrl + "  responseCode: " + openConnection.getResponseCode());
+                    // only data the server can vouch for with If-Range is resumed
+                    long offset = validator != null ? part.length() : 0;
+                    connection = (HttpURLConnection) new URL(linkUrl).openConnection();
+                    connection.setConnectTimeout(DOWNLOAD_CONNECT_TIMEOUT_MS);
+                    connection.setReadTimeout(DOWNLOAD_READ_TIMEOUT_MS);
+                    if (offset > 0) {
+                        connection.setRequestProperty("Range", "bytes=" + offset + "-");
+                        connection.setRequestProperty("If-Range", validator);
+                    }
+                    if (stats != null) {
+                        stats.onAttempt();
+                    }
+
+                    int responseCode = connection.getResponseCode();
+                    if (offset > 0 && responseCode == HTTP_RANGE_NOT_SATISFIABLE) {
+                        PWLog.noise(TAG, "stale partial download of " + linkUrl + ", starting over");
+                        deletePart(part, meta);
+                        validator = null;
+                        continue;
+                    }
+
+                    boolean resumed = offset > 0 && responseCode == HttpURLConnection.HTTP_PARTIAL;
+                    if (resumed && getRangeStart(connection) != offset) {
+                        PWLog.noise(TAG, "unexpected Content-Range for " + linkUrl + ", starting over");
+                        deletePart(part, meta);
+                        validator = null;
+                        continue;
+                    }
+                    if (!resumed && responseCode != HttpURLConnection.HTTP_OK) {
+                        PWLog.error(TAG, "fail download: " + linkUrl + "  responseCode: " + responseCode);
+                        deletePart(part, meta);
                         return null;
                     }
 
-                    input = new BufferedInputStream(openConnection.getInputStream());
-                    output = new BufferedOutputStream(new FileOutputStream(destination));
+                    if (digest != null) {
+                        digest.reset();
+                    }
+                    if (resumed) {
+                        if (digest != null) {
+                            updateDigest(part, digest);
+                        }
+                        if (stats != null) {
+                            stats.onResumed(offset);
+                        }
+                        PWLog.noise(TAG, "resuming " + linkUrl + " from byte " + offset);
+                    } else {
+                        offset = 0;
+                        validator = getValidator(connection);
+                        writePartValidator(meta, linkUrl, validator);
+                    }
 
-                    byte[] data = new byte[1024];
+                    input = connection.getInputStream();
+                    output = new FileOutputStream(part, resumed);
 
+                    byte[] data = new byte[DOWNLOAD_BUFFER_SIZE];
+                    int count;
                     while ((count = input.read(data)) != -1) {
                         output.write(data, 0, count);
+                        if (digest != null) {
+                            digest.update(data, 0, count);
+                        }
+                        if (stats != null) {
+                            stats.onBytes(count);
+                        }
                     }
+                    output.close();
+                    output = null;
 
-                    output.flush();
+                    long contentLength = getContentLength(connection);
+                    if (contentLength >= 0 && part.length() != offset + contentLength) {
+                        throw new IOException("connection closed after " + part.length() + " of "
+                                + (offset + contentLength) + " bytes");
+                    }
+
+                    //noinspection ResultOfMethodCallIgnored
+                    destination.delete();
+                    if (!part.renameTo(destination)) {
+                        PWLog.error(TAG, "failed to move " + part.getName() + " to " + destination.getName());
+                        deletePart(part, meta);
+                        return null;
+                    }
+                    //noinspection ResultOfMethodCallIgnored
+                    meta.delete();
                     return destination;
                 } catch (MalformedURLException ignore) {
                     // not need retry
                     break;
                 } catch (IOException e) {
                     PWLog.exception(e);
-                    // XXX retry
-                } finally {
-                    if (input != null) {
-                        try {
-                            input.close();
-                        } catch (IOException ignore) {
-                            // ignore
-                        }
+                    if (tryCount < TRY_COUNT) {
+                        Thread.sleep(DOWNLOAD_RETRY_DELAY_MS * tryCount);
                     }
-                    if (output != null) {
-                        try {
-                            output.close();
-                        } catch (IOException ignore) {
-                            // ignore
-                        }
-                    }
-                    if (openConnection != null) {
-                        openConnection.disconnect();
+                } finally {
+                    closeQuietly(input);
+                    closeQuietly(output);
+                    if (connection != null) {
+                        connection.disconnect();
                     }
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            PWLog.error(TAG, "Download interrupted " + linkUrl);
         } catch (Exception e) {
             PWLog.error(TAG, "Failed to download " + linkUrl, e);
         }
+        if (validator == null) {
+            // without a validator the server can't tell us the data changed, don't resume it later
+            deletePart(part, meta);
+        }
+        return null;
+    }
+
+    /**
+     * @return validator of a part file left by a previous download of the same url, or {@code null};
+     * a part file that can't be resumed is deleted
+     */
+    @Nullable
+    private static String readPartValidator(String linkUrl, File part, File meta) {
+        if (!part.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            meta.delete();
+            return null;
+        }
+        try {
+            String[] lines = readFile(meta).split("\n");
+            if (lines.length >= 2 && linkUrl.equals(lines[0]) && !lines[1].isEmpty()) {
+                return lines[1];
+            }
+        } catch (IOException ignore) {
+            // no meta, can't trust the part
+        }
+        deletePart(part, meta);
         return null;
     }
 
+    private static void writePartValidator(File meta, String linkUrl, @Nullable String validator) {
+        if (validator == null) {
+            //noinspection ResultOfMethodCallIgnored
+            meta.delete();
+            return;
+        }
+        try {
+            writeFile(meta, linkUrl + "\n" + validator);
+        } catch (IOException e) {
+            PWLog.noise(TAG, "can't store download validator: " + e.getMessage());
+        }
+    }
+
+    private static void deletePart(File part, File meta) {
+        //noinspection ResultOfMethodCallIgnored
+        part.delete();
+        //noinspection ResultOfMethodCallIgnored
+        meta.delete();
+    }
+
+    /**
+     * @return strong ETag or Last-Modified of the response, usable in {@code If-Range}
+     */
+    @Nullable
+    private static String getValidator(HttpURLConnection connection) {
+        String etag = connection.getHeaderField("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return connection.getHeaderField("Last-Modified");
+    }
+
+    private static long getRangeStart(HttpURLConnection connection) {
+        // Content-Range: bytes 100-999/1000
+        String contentRange = connection.getHeaderField("Content-Range");
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return -1;
+        }
+        int dash = contentRange.indexOf('-');
+        try {
+            return dash < 0 ? -1 : Long.parseLong(contentRange.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long getContentLength(HttpURLConnection connection) {
+        String contentLength = connection.getHeaderField("Content-Length");
+        if (contentLength == null || connection.getHeaderField("Content-Encoding") != null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void updateDigest(File file, MessageDigest digest) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] data = new byte[DOWNLOAD_BUFFER_SIZE];
+            int count;
+            while ((count = input.read(data)) != -1) {
+                digest.update(data, 0, count);
+            }
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignore) {
+                // ignore
+            }
+        }
+    }
+
     private static boolean isSSLSessionNPEException(Exception e) {
         return (e instanceof NullPointerException) && e.getMessage().equals("ssl_session == null");
     }
@@ -0,0 +1,103 @@
+package com.pushwoosh.internal.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer, single-consumer queue of log entries used by {@link PWLog}.
+ * <p>
+ * Producers never block or take a lock: a slot is claimed with one atomic increment and filled
+ * with one volatile write. When the consumer falls behind by more than the capacity the oldest
+ * entries are overwritten; the consumer counts them as dropped instead of stalling the logging thread.
+ */
+final class LogRingBuffer {
+
+    static final class Entry {
+        final long sequence;
+        final long timestamp;
+        final PWLog.Level level;
+        final String message;
+        @Nullable
+        final Throwable throwable;
+        // false for entries captured only for the listener, with the level disabled for logcat
+        final boolean enabled;
+
+        Entry(long sequence, long timestamp, PWLog.Level level, String message, @Nullable Throwable throwable,
+              boolean enabled) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.level = level;
+            this.message = message;
+            this.throwable = throwable;
+            this.enabled = enabled;
+        }
+    }
+
+    interface Consumer {
+        void accept(@NonNull Entry entry);
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    // written by the single consumer only
+    private volatile long tail;
+    private long dropped;
+
+    LogRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        slots = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+    }
+
+    void publish(PWLog.Level level, String message, @Nullable Throwable throwable, boolean enabled) {
+        long sequence = head.getAndIncrement();
+        slots.set((int) (sequence & mask), new Entry(sequence, System.currentTimeMillis(), level, message,
+                throwable, enabled));
+    }
+
+    boolean hasPending() {
+        return tail < head.get();
+    }
+
+    /**
+     * Hands published entries to {@code consumer} in order. Must not be called concurrently.
+     *
+     * @return number of entries consumed
+     */
+    int drain(@NonNull Consumer consumer) {
+        int consumed = 0;
+        long next = tail;
+        while (next < head.get()) {
+            Entry entry = slots.get((int) (next & mask));
+            if (entry == null || entry.sequence < next) {
+                // the slot is claimed but not filled yet
+                break;
+            }
+            if (entry.sequence == next) {
+                consumer.accept(entry);
+                consumed++;
+            } else {
+                // overwritten by a producer one lap ahead
+                dropped++;
+            }
+            next++;
+            tail = next;
+        }
+        return consumed;
+    }
+
+    /**
+     * @return number of entries overwritten before they were drained since the previous call
+     */
+    long takeDropped() {
+        long result = dropped;
+        dropped = 0;
+        return result;
+    }
+}
@@ -0,0 +1,35 @@
+package com.pushwoosh.internal.utils;
+
+/**
+ * Scheduling class of a network task, see {@link BackgroundExecutor#network(NetworkPriority, String, Runnable)}.
+ * Classes are served in declaration order, each with its own concurrency limit.
+ */
+public enum NetworkPriority {
+    /**
+     * Latency-critical calls: registration, push statistics, events.
+     */
+    CRITICAL(2),
+
+    /**
+     * Calls the app or the user is waiting for. Default class.
+     */
+    INTERACTIVE(2),
+
+    /**
+     * Bulk fetches that can wait: in-app manifest, inbox, geozones.
+     */
+    BACKGROUND(1);
+
+    private final int concurrencyLimit;
+
+    NetworkPriority(int concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * @return maximum number of tasks of this class running at the same time
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+}
@@ -0,0 +1,291 @@
+package com.pushwoosh.internal.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Priority-aware scheduler behind {@link BackgroundExecutor#network}.
+ * <p>
+ * Tasks are queued per {@link NetworkPriority} class and started FIFO within a class, higher
+ * classes first, as long as the class is below its {@link NetworkPriority#getConcurrencyLimit()}.
+ * The thread pool holds exactly the sum of all class limits, so a slow background fetch never
+ * takes a slot from a critical call.
+ * <p>
+ * Tasks that share an ordering key form a lane: they run one at a time and strictly in submission
+ * order, whatever their classes are. This keeps e.g. {@code /registerDevice} ahead of
+ * {@code /setTags}. A lane that is busy does not block unrelated tasks of the same class.
+ * <p>
+ * Per-class queue depth and queue wait time are tracked, see {@link #getStats(NetworkPriority)};
+ * a task that waited longer than {@link #SLOW_WAIT_WARNING_MS} is reported with a warning.
+ */
+public final class NetworkScheduler {
+    private static final String TAG = "NetworkScheduler";
+
+    @VisibleForTesting
+    static final long SLOW_WAIT_WARNING_MS = 5_000;
+
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private final Executor executor;
+    private final Object lock = new Object();
+    private final Map<NetworkPriority, ClassState> classes = new EnumMap<>(NetworkPriority.class);
+    private final Map<String, ArrayDeque<Task>> lanes = new HashMap<>();
+    private final Set<String> busyLanes = new HashSet<>();
+
+    @VisibleForTesting
+    NetworkScheduler(@NonNull Executor executor) {
+        this.executor = executor;
+        for (NetworkPriority priority : NetworkPriority.values()) {
+            classes.put(priority, new ClassState());
+        }
+    }
+
+    static NetworkScheduler create() {
+        int threads = 0;
+        for (NetworkPriority priority : NetworkPriority.values()) {
+            threads += priority.getConcurrencyLimit();
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threads,
+                threads,
+                IDLE_THREAD_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NetworkThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        return new NetworkScheduler(pool);
+    }
+
+    /**
+     * Queues the task.
+     *
+     * @param priority    scheduling class, {@link NetworkPriority#INTERACTIVE} if {@code null}
+     * @param orderingKey lane of tasks that must run one by one in submission order, or {@code null}
+     */
+    public void submit(@Nullable NetworkPriority priority, @Nullable String orderingKey, @NonNull Runnable task) {
+        Task queued = new Task(priority != null ? priority : NetworkPriority.INTERACTIVE, orderingKey, task);
+        List<Task> ready;
+        synchronized (lock) {
+            ClassState state = classes.get(queued.priority);
+            state.queue.addLast(queued);
+            state.submitted++;
+            state.maxQueued = Math.max(state.maxQueued, state.queue.size());
+            if (orderingKey != null) {
+                ArrayDeque<Task> lane = lanes.get(orderingKey);
+                if (lane == null) {
+                    lane = new ArrayDeque<>();
+                    lanes.put(orderingKey, lane);
+                }
+                lane.addLast(queued);
+            }
+            ready = pollReadyLocked();
+        }
+        start(ready);
+    }
+
+    /**
+     * @return snapshot of queue depth and wait time counters of the class
+     */
+    @NonNull
+    public Stats getStats(@NonNull NetworkPriority priority) {
+        synchronized (lock) {
+            ClassState state = classes.get(priority);
+            return new Stats(priority, state.queue.size(), state.running, state.submitted, state.started,
+                    state.maxQueued, state.totalWaitMillis, state.maxWaitMillis);
+        }
+    }
+
+    private void onFinished(Task task) {
+        List<Task> ready;
+        synchronized (lock) {
+            classes.get(task.priority).running--;
+            if (task.orderingKey != null) {
+                busyLanes.remove(task.orderingKey);
+                ArrayDeque<Task> lane = lanes.get(task.orderingKey);
+                lane.pollFirst();
+                if (lane.isEmpty()) {
+                    lanes.remove(task.orderingKey);
+                }
+            }
+            ready = pollReadyLocked();
+        }
+        start(ready);
+    }
+
+    private List<Task> pollReadyLocked() {
+        List<Task> ready = null;
+        for (NetworkPriority priority : NetworkPriority.values()) {
+            ClassState state = classes.get(priority);
+            Iterator<Task> iterator = state.queue.iterator();
+            while (state.running < priority.getConcurrencyLimit() && iterator.hasNext()) {
+                Task task = iterator.next();
+                if (!isLaneHeadLocked(task)) {
+                    continue;
+                }
+                iterator.remove();
+                state.running++;
+                if (task.orderingKey != null) {
+                    busyLanes.add(task.orderingKey);
+                }
+                long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.enqueuedAtNanos);
+                state.started++;
+                state.totalWaitMillis += waitMillis;
+                state.maxWaitMillis = Math.max(state.maxWaitMillis, waitMillis);
+                if (waitMillis > SLOW_WAIT_WARNING_MS) {
+                    PWLog.warn(TAG, String.format(Locale.US, "%s task waited %d ms in queue, %d more queued",
+                            priority, waitMillis, state.queue.size()));
+                }
+                if (ready == null) {
+                    ready = new ArrayList<>();
+                }
+                ready.add(task);
+            }
+        }
+        return ready != null ? ready : Collections.emptyList();
+    }
+
+    private boolean isLaneHeadLocked(Task task) {
+        if (task.orderingKey == null) {
+            return true;
+        }
+        return !busyLanes.contains(task.orderingKey) && lanes.get(task.orderingKey).peekFirst() == task;
+    }
+
+    private void start(List<Task> ready) {
+        for (Task task : ready) {
+            executor.execute(() -> {
+                try {
+                    task.runnable.run();
+                } finally {
+                    onFinished(task);
+                }
+            });
+        }
+    }
+
+    /**
+     * Counters of one {@link NetworkPriority} class since process start.
+     */
+    public static final class Stats {
+        private final NetworkPriority priority;
+        private final int queued;
+        private final int running;
+        private final long submitted;
+        private final long started;
+        private final int maxQueued;
+        private final long totalWaitMillis;
+        private final long maxWaitMillis;
+
+        Stats(NetworkPriority priority, int queued, int running, long submitted, long started,
+              int maxQueued, long totalWaitMillis, long maxWaitMillis) {
+            this.priority = priority;
+            this.queued = queued;
+            this.running = running;
+            this.submitted = submitted;
+            this.started = started;
+            this.maxQueued = maxQueued;
+            this.totalWaitMillis = totalWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public NetworkPriority getPriority() {
+            return priority;
+        }
+
+        /**
+         * @return tasks waiting for a slot right now
+         */
+        public int getQueued() {
+            return queued;
+        }
+
+        public int getRunning() {
+            return running;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getStarted() {
+            return started;
+        }
+
+        /**
+         * @return highest queue depth observed
+         */
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        /**
+         * @return average time between submission and start of the started tasks
+         */
+        public long getAverageWaitMillis() {
+            return started == 0 ? 0 : totalWaitMillis / started;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s: queued=%d running=%d submitted=%d started=%d maxQueued=%d avgWait=%dms maxWait=%dms",
+                    priority, queued, running, submitted, started, maxQueued, getAverageWaitMillis(), maxWaitMillis);
+        }
+    }
+
+    private static final class Task {
+        final NetworkPriority priority;
+        @Nullable final String orderingKey;
+        final Runnable runnable;
+        final long enqueuedAtNanos = System.nanoTime();
+
+        Task(NetworkPriority priority, @Nullable String orderingKey, Runnable runnable) {
+            this.priority = priority;
+            this.orderingKey = orderingKey;
+            this.runnable = runnable;
+        }
+    }
+
+    private static final class ClassState {
+        final ArrayDeque<Task> queue = new ArrayDeque<>();
+        int running;
+        long submitted;
+        long started;
+        int maxQueued;
+        long totalWaitMillis;
+        long maxWaitMillis;
+    }
+
+    private static final class NetworkThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(runnable, "Pushwoosh-network-" + counter.incrementAndGet());
+        }
+    }
+}
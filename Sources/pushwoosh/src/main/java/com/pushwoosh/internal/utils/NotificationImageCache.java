@@ -0,0 +1,336 @@
+package com.pushwoosh.internal.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.pushwoosh.internal.platform.utils.GeneralUtils;
+import com.pushwoosh.repository.RepositoryModule;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of notification images (large icons, big pictures, live update icons).
+ * <p>
+ * Decoded bitmaps are kept in a memory LRU bounded by bytes and keyed by url and target size. Downloaded
+ * images are kept on disk keyed by url, together with their {@code ETag} and {@code Last-Modified}
+ * validators: a disk hit is revalidated with a conditional request and read from disk on {@code 304},
+ * or when the server can't be reached. The disk cache is bounded too, least recently used files go first.
+ * <p>
+ * Images are streamed to disk and decoded from the file, downsampled to the size the notification
+ * shows them at, so the body is never buffered in memory and a big picture is never decoded at full
+ * resolution. A fetch gives up at its deadline.
+ */
+public class NotificationImageCache {
+    private static final String TAG = "NotificationImageCache";
+
+    public static final String DIRECTORY = "pushwoosh_images";
+    /**
+     * Time a notification waits for its images.
+     */
+    public static final long FETCH_DEADLINE_MS = 8_000;
+
+    private static final int MAX_MEMORY_BYTES = 8 * 1024 * 1024;
+    private static final long DEFAULT_DISK_BYTES = 10 * 1024 * 1024;
+    private static final int INLINE_CONNECT_TIMEOUT_MS = 2_000;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // enough for the header of any PNG/JPEG/WebP, used when there is no disk to decode from
+    private static final int MARK_LIMIT = 256 * 1024;
+    private static final String META_SUFFIX = ".meta";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final LruCache<String, Bitmap> memory;
+    @Nullable
+    private final File directory;
+    private final long maxDiskBytes;
+    private final Object[] locks = new Object[16];
+
+    public NotificationImageCache(@Nullable File cacheDir) {
+        this(cacheDir == null ? null : new File(cacheDir, DIRECTORY),
+                (int) Math.min(Runtime.getRuntime().maxMemory() / 32, MAX_MEMORY_BYTES), DEFAULT_DISK_BYTES);
+    }
+
+    @VisibleForTesting
+    NotificationImageCache(@Nullable File directory, int maxMemoryBytes, long maxDiskBytes) {
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LruCache<String, Bitmap>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @param targetSizePx size of the longer side the image is shown at, the image is decoded at the
+     *                     smallest power-of-two subsample that is not smaller; 0 or less keeps full size
+     * @return image from {@code url}, or null if it can't be loaded within {@link #FETCH_DEADLINE_MS}
+     */
+    @Nullable
+    @WorkerThread
+    public Bitmap get(@Nullable String url, int targetSizePx) {
+        return get(url, targetSizePx, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FETCH_DEADLINE_MS));
+    }
+
+    /**
+     * @param deadlineNanos {@link System#nanoTime()} at which the fetch is abandoned
+     */
+    @Nullable
+    @WorkerThread
+    public Bitmap get(@Nullable String url, int targetSizePx, long deadlineNanos) {
+        if (TextUtils.isEmpty(url)) {
+            return null;
+        }
+        String key = url + '#' + Math.max(targetSizePx, 0);
+        Bitmap bitmap = memory.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        // the icon and the picture of a notification, or live update renders, often ask for one url at once
+        synchronized (locks[(url.hashCode() & 0x7fffffff) % locks.length]) {
+            bitmap = memory.get(key);
+            if (bitmap != null) {
+                return bitmap;
+            }
+            try {
+                bitmap = load(url, targetSizePx, deadlineNanos);
+            } catch (Throwable e) {
+                PWLog.error(TAG, "Can't load image: " + url, e);
+                return null;
+            }
+            if (bitmap != null) {
+                memory.put(key, bitmap);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Drops decoded images, the disk copies stay.
+     */
+    public void evictMemory() {
+        memory.evictAll();
+    }
+
+    @VisibleForTesting
+    int memorySize() {
+        return memory.size();
+    }
+
+    @Nullable
+    private Bitmap load(String url, int targetSizePx, long deadlineNanos) throws IOException {
+        if (directory == null || (!directory.exists() && !directory.mkdirs())) {
+            return fetchAndDecode(url, targetSizePx, deadlineNanos);
+        }
+
+        String name = GeneralUtils.md5(url);
+        File file = new File(directory, name);
+        File meta = new File(directory, name + META_SUFFIX);
+        String[] validators = file.exists() ? readValidators(meta) : null;
+
+        File tmp = new File(directory, name + TMP_SUFFIX);
+        HttpURLConnection connection = null;
+        try {
+            URLConnection urlConnection = open(url, deadlineNanos);
+            if (urlConnection instanceof HttpURLConnection) {
+                connection = (HttpURLConnection) urlConnection;
+                if (validators != null) {
+                    if (!TextUtils.isEmpty(validators[0])) {
+                        connection.setRequestProperty("If-None-Match", validators[0]);
+                    }
+                    if (!TextUtils.isEmpty(validators[1])) {
+                        connection.setRequestProperty("If-Modified-Since", validators[1]);
+                    }
+                }
+                int code = connection.getResponseCode();
+                if (code == HttpURLConnection.HTTP_NOT_MODIFIED && validators != null) {
+                    PWLog.noise(TAG, "not modified: " + url);
+                    return decodeCached(file, targetSizePx);
+                }
+                if (code != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("HTTP " + code);
+                }
+            }
+
+            try (InputStream in = urlConnection.getInputStream(); OutputStream out = new FileOutputStream(tmp)) {
+                copy(in, out, deadlineNanos);
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("can't move " + tmp + " to " + file);
+            }
+            writeValidators(meta, connection);
+        } catch (IOException e) {
+            tmp.delete();
+            if (validators == null) {
+                throw e;
+            }
+            PWLog.warn(TAG, "Can't revalidate " + url + ", using cached copy: " + e.getMessage());
+            return decodeCached(file, targetSizePx);
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+
+        trimDisk(file);
+        return decodeFile(file, targetSizePx);
+    }
+
+    // without a disk cache the image is decoded straight from the response
+    @Nullable
+    private Bitmap fetchAndDecode(String url, int targetSizePx, long deadlineNanos) throws IOException {
+        URLConnection connection = open(url, deadlineNanos);
+        try (InputStream in = new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE)) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            in.mark(MARK_LIMIT);
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeStream(in, null, options);
+            in.reset();
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize(options.outWidth, options.outHeight, targetSizePx);
+            return BitmapFactory.decodeStream(in, null, options);
+        } finally {
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+        }
+    }
+
+    private static URLConnection open(String url, long deadlineNanos) throws IOException {
+        int remaining = remainingMillis(deadlineNanos);
+        URLConnection connection = new URL(url).openConnection();
+        boolean handleUsingWorkManager = RepositoryModule.getNotificationPreferences() != null &&
+                RepositoryModule.getNotificationPreferences().handleNotificationsUsingWorkManager().get();
+        // inside the push receiver there is no time to wait for a host that doesn't answer
+        connection.setConnectTimeout(handleUsingWorkManager ? remaining : Math.min(remaining, INLINE_CONNECT_TIMEOUT_MS));
+        connection.setReadTimeout(remaining);
+        return connection;
+    }
+
+    private static int remainingMillis(long deadlineNanos) throws IOException {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (remaining <= 0) {
+            throw new IOException("image fetch deadline exceeded");
+        }
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    private static void copy(InputStream in, OutputStream out, long deadlineNanos) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            remainingMillis(deadlineNanos);
+        }
+    }
+
+    @Nullable
+    private Bitmap decodeCached(File file, int targetSizePx) {
+        // keeps recently shown images from being trimmed first
+        file.setLastModified(System.currentTimeMillis());
+        return decodeFile(file, targetSizePx);
+    }
+
+    @Nullable
+    private static Bitmap decodeFile(File file, int targetSizePx) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, targetSizePx);
+        return BitmapFactory.decodeFile(file.getPath(), options);
+    }
+
+    @VisibleForTesting
+    static int sampleSize(int width, int height, int targetSizePx) {
+        int longerSide = Math.max(width, height);
+        int sampleSize = 1;
+        if (targetSizePx <= 0) {
+            return sampleSize;
+        }
+        while (longerSide / (sampleSize * 2) >= targetSizePx) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    @Nullable
+    private static String[] readValidators(File meta) {
+        try {
+            String[] lines = FileUtils.readFile(meta).split("\n", -1);
+            return new String[]{lines[0], lines.length > 1 ? lines[1] : ""};
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeValidators(File meta, @Nullable HttpURLConnection connection) {
+        String etag = connection == null ? null : connection.getHeaderField("ETag");
+        String lastModified = connection == null ? null : connection.getHeaderField("Last-Modified");
+        if (etag == null && lastModified == null) {
+            // nothing to revalidate with, the next fetch downloads the image again
+            meta.delete();
+            return;
+        }
+        try {
+            FileUtils.writeFile(meta, (etag == null ? "" : etag) + "\n" + (lastModified == null ? "" : lastModified));
+        } catch (IOException e) {
+            PWLog.error(TAG, "Can't store validators of " + meta, e);
+            meta.delete();
+        }
+    }
+
+    private void trimDisk(@NonNull File keep) {
+        File[] files = directory == null ? null : directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> images = new ArrayList<>();
+        long total = 0;
+        for (File file : files) {
+            if (!file.getName().endsWith(META_SUFFIX) && !file.getName().endsWith(TMP_SUFFIX)) {
+                images.add(file);
+                total += file.length();
+            }
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        File[] byAge = images.toArray(new File[0]);
+        Arrays.sort(byAge, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : byAge) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            if (file.equals(keep)) {
+                continue;
+            }
+            total -= file.length();
+            file.delete();
+            new File(file.getPath() + META_SUFFIX).delete();
+        }
+    }
+}
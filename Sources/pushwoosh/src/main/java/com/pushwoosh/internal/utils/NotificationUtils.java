@@ -31,14 +31,12 @@ import com.pushwoosh.notification.builder.AppIconHelper;
 import com.pushwoosh.repository.NotificationPrefs;
 import com.pushwoosh.repository.RepositoryModule;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
-import java.net.URLConnection;
 
 public class NotificationUtils {
     private static final String DEFAULT_SOUND_NAME = "default";
@@ -268,52 +266,28 @@ public class NotificationUtils {
         }
     }
 
+    /**
+     * @param imageSize size in pixels the image is shown at, -1 for a big picture spanning the notification width
+     * @return image downsampled to {@code imageSize}, served from {@link NotificationImageCache} when possible
+     */
     public static Bitmap tryToGetBitmapFromInternet(String bitmapUrl, int imageSize) {
-        if (null != bitmapUrl) {
-            try {
-                URL url = new URL(bitmapUrl);
-                URLConnection connection = url.openConnection();
-                setDefaultBitmapTimeout(connection);
-                connection.connect();
-
-                byte[] buffer = new byte[1024];
-                InputStream inputStream = connection.getInputStream();
-                try {
-                    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-                    try {
-                        int read;
-
-                        while ((read = inputStream.read(buffer)) != -1) {
-                            byteArrayOutputStream.write(buffer, 0, read);
-                        }
-
-                        buffer = byteArrayOutputStream.toByteArray();
-                    } finally {
-                        byteArrayOutputStream.close();
-                    }
-                } finally {
-                    inputStream.close();
-                }
-
-                BitmapFactory.Options options = new BitmapFactory.Options();
-                options.inJustDecodeBounds = true;
-
-                BitmapFactory.decodeByteArray(buffer, 0, buffer.length, options);
-
-                int outWidth = options.outWidth;
-                int outHeight = options.outHeight;
-                float newImageScale = getNewImageScale(imageSize, outWidth, outHeight);
-
-                options.inJustDecodeBounds = false;
-                options.inSampleSize = Math.round(newImageScale);
-
-                return BitmapFactory.decodeByteArray(buffer, 0, buffer.length, options);
-            } catch (Throwable e) {
-                PWLog.error("Can't load image: " + bitmapUrl, e);
-            }
+        if (null == bitmapUrl) {
+            return null;
         }
+        NotificationImageCache cache = RepositoryModule.getNotificationImageCache();
+        if (cache == null) {
+            // no context to keep a disk cache in, the image is still decoded straight from the response
+            cache = new NotificationImageCache(null);
+        }
+        return cache.get(bitmapUrl, getTargetSizePx(imageSize));
+    }
 
-        return null;
+    private static int getTargetSizePx(int imageSize) {
+        if (-1 != imageSize) {
+            return imageSize;
+        }
+        DisplayMetrics displayMetrics = AndroidPlatformModule.getResourceProvider().getDisplayMetrics();
+        return displayMetrics == null ? 0 : displayMetrics.widthPixels;
     }
 
     public static Bitmap tryToGetBitmapFromDisk(String largeIconUrl, int imageSize) {
@@ -329,15 +303,6 @@ public class NotificationUtils {
         return BitmapFactory.decodeFile(largeIconUrl, options);
     }
 
-    private static void setDefaultBitmapTimeout(URLConnection connection) {
-        boolean handleUsingWorkManager = RepositoryModule.getNotificationPreferences() != null &&
-                RepositoryModule.getNotificationPreferences().handleNotificationsUsingWorkManager().get();
-        if (!handleUsingWorkManager) {
-            int twoSeconds = 2000;
-            connection.setConnectTimeout(twoSeconds);
-        }
-    }
-
     public static Notification rebuildWithDefaultValuesIfNeeded(Notification notification) {
         Context context = AndroidPlatformModule.getApplicationContext();
         boolean isEmptyGroup = TextUtils.isEmpty(notification.getGroup());
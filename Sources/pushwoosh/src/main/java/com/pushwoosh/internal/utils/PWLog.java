@@ -1,12 +1,37 @@
 package com.pushwoosh.internal.utils;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
 import com.pushwoosh.repository.RepositoryModule;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * Proxy class for android.util.Log for custom log level managing
+ * <p>
+ * A message for a disabled level is not built at all unless a {@link LogsUpdateListener} is set.
+ * Use the {@link MessageSupplier} and format-argument overloads for messages that are expensive to
+ * build, so that call sites cost nothing when the level is off. Messages for the listener and the
+ * optional log file go through a lock-free ring buffer and are delivered on a background thread.
  */
 public final class PWLog {
 
+    /**
+     * Sets a listener that receives every log message, including levels disabled for logcat.
+     * Messages are delivered in order on the SDK log thread, shortly after they are logged.
+     */
     public static void setLogsUpdateListener(final LogsUpdateListener logsUpdateListener) {
         PWLog.logsUpdateListener = logsUpdateListener;
     }
@@ -23,16 +48,29 @@ public final class PWLog {
     }
 
     private static final String DEFAULT_TAG = "Pushwoosh";
+    private static final int BUFFER_CAPACITY = 4096;
+    private static final long DEFAULT_MAX_FILE_SIZE = 512 * 1024;
+    private static final int DEFAULT_MAX_FILES = 3;
 
     private static boolean initialized = false;
 
-    private static Level currentLevel = Level.INFO;
-    private static LogsUpdateListener logsUpdateListener;
+    private static volatile Level currentLevel = Level.INFO;
+    private static volatile LogsUpdateListener logsUpdateListener;
+    private static volatile RotatingLogFile logFile;
+
+    private static final LogRingBuffer buffer = new LogRingBuffer(BUFFER_CAPACITY);
+    private static final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private static volatile Executor sinkExecutor;
 
     private static boolean isEnabled(Level l) {
         return currentLevel.compareTo(l) >= 0;
     }
 
+    // the message is needed for logcat or for the listener
+    private static boolean isCaptured(Level l) {
+        return isEnabled(l) || logsUpdateListener != null;
+    }
+
     public static void init() {
         if (initialized) {
             return;
@@ -142,101 +180,287 @@ public final class PWLog {
         return (subTag != null) ? ("[" + subTag + "] " + msg) : (msg);
     }
 
-    public static void fatal(String subTag, String msg) {
-        if (isFatalLevel()) {
-            android.util.Log.wtf(DEFAULT_TAG, buildMessage(subTag, msg));
+    private static void log(Level level, String subTag, String msg, Throwable tr) {
+        boolean enabled = isEnabled(level);
+        LogsUpdateListener listener = logsUpdateListener;
+        if (!enabled && listener == null) {
+            return;
         }
 
-        notifyListener(Level.FATAL, buildMessage(subTag, msg));
+        String message = buildMessage(subTag, msg);
+        if (enabled) {
+            printToLogcat(level, message, tr);
+        }
+        if (listener != null || (enabled && logFile != null)) {
+            buffer.publish(level, message, tr, enabled);
+            scheduleDrain();
+        }
     }
 
-    private static void notifyListener(Level level, final String message) {
-        if (logsUpdateListener != null) {
-            logsUpdateListener.logUpdated(level, message);
+    private static void printToLogcat(Level level, String message, Throwable tr) {
+        switch (level) {
+            case FATAL:
+                if (tr != null) {
+                    android.util.Log.wtf(DEFAULT_TAG, message, tr);
+                } else {
+                    android.util.Log.wtf(DEFAULT_TAG, message);
+                }
+                break;
+            case ERROR:
+                if (tr != null) {
+                    android.util.Log.e(DEFAULT_TAG, message, tr);
+                } else {
+                    android.util.Log.e(DEFAULT_TAG, message);
+                }
+                break;
+            case WARN:
+                if (tr != null) {
+                    android.util.Log.w(DEFAULT_TAG, message, tr);
+                } else {
+                    android.util.Log.w(DEFAULT_TAG, message);
+                }
+                break;
+            case INFO:
+                if (tr != null) {
+                    android.util.Log.i(DEFAULT_TAG, message, tr);
+                } else {
+                    android.util.Log.i(DEFAULT_TAG, message);
+                }
+                break;
+            case DEBUG:
+                if (tr != null) {
+                    android.util.Log.d(DEFAULT_TAG, message, tr);
+                } else {
+                    android.util.Log.d(DEFAULT_TAG, message);
+                }
+                break;
+            default:
+                if (tr != null) {
+                    android.util.Log.v(DEFAULT_TAG, message, tr);
+                } else {
+                    android.util.Log.v(DEFAULT_TAG, message);
+                }
+                break;
         }
     }
 
-    public static void error(String subTag, String msg) {
-        if (isErrorLevel()) {
-            android.util.Log.e(DEFAULT_TAG, buildMessage(subTag, msg));
+    private static String format(String format, Object... args) {
+        try {
+            return String.format(Locale.US, format, args);
+        } catch (IllegalFormatException e) {
+            return format + " " + Arrays.toString(args);
         }
-        notifyListener(Level.ERROR, buildMessage(subTag, msg));
     }
 
-    public static void warn(String subTag, String msg) {
-        if (isWarnLevel()) {
-            android.util.Log.w(DEFAULT_TAG, buildMessage(subTag, msg));
+    // listener and log file delivery
+
+    private static void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            getSinkExecutor().execute(PWLog::drain);
         }
-        notifyListener(Level.WARN, buildMessage(subTag, msg));
     }
 
-    public static void info(String subTag, String msg) {
-        if (isInfoLevel()) {
-            android.util.Log.i(DEFAULT_TAG, buildMessage(subTag, msg));
+    private static void drain() {
+        do {
+            while (buffer.drain(PWLog::deliver) == 0 && buffer.hasPending()) {
+                // a producer claimed the next slot and is about to fill it
+                Thread.yield();
+            }
+            long dropped = buffer.takeDropped();
+            if (dropped > 0) {
+                deliver(new LogRingBuffer.Entry(-1, System.currentTimeMillis(), Level.WARN,
+                        buildMessage("PWLog", dropped + " log messages dropped"), null, true));
+            }
+            RotatingLogFile file = logFile;
+            if (file != null) {
+                file.flush();
+            }
+            drainScheduled.set(false);
+        } while (buffer.hasPending() && drainScheduled.compareAndSet(false, true));
+    }
+
+    private static void deliver(LogRingBuffer.Entry entry) {
+        LogsUpdateListener listener = logsUpdateListener;
+        if (listener != null) {
+            try {
+                listener.logUpdated(entry.level, entry.message);
+            } catch (Exception e) {
+                android.util.Log.e(DEFAULT_TAG, "LogsUpdateListener failed", e);
+            }
+        }
+        RotatingLogFile file = logFile;
+        if (file != null && entry.enabled) {
+            file.append(entry);
         }
-        notifyListener(Level.INFO, buildMessage(subTag, msg));
     }
 
-    public static void debug(String subTag, String msg) {
-        if (isDebugLevel()) {
-            android.util.Log.d(DEFAULT_TAG, buildMessage(subTag, msg));
+    private static Executor getSinkExecutor() {
+        Executor executor = sinkExecutor;
+        if (executor == null) {
+            synchronized (PWLog.class) {
+                if (sinkExecutor == null) {
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(), runnable -> {
+                                Thread thread = new Thread(runnable, "Pushwoosh-log");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    pool.allowCoreThreadTimeOut(true);
+                    sinkExecutor = pool;
+                }
+                executor = sinkExecutor;
+            }
         }
-        notifyListener(Level.DEBUG, buildMessage(subTag, msg));
+        return executor;
     }
 
-    public static void noise(String subTag, String msg) {
-        if (isNoiseLevel()) {
-            android.util.Log.v(DEFAULT_TAG, buildMessage(subTag, msg));
+    @VisibleForTesting
+    static void setSinkExecutor(@Nullable Executor executor) {
+        sinkExecutor = executor;
+    }
+
+    /**
+     * Starts writing enabled log levels to {@code directory} for field diagnostics, rotating
+     * the file every 512 KB and keeping up to 3 files.
+     */
+    public static void enableFileLogging(@NonNull File directory) {
+        enableFileLogging(directory, DEFAULT_MAX_FILE_SIZE, DEFAULT_MAX_FILES);
+    }
+
+    public static void enableFileLogging(@NonNull File directory, long maxFileSize, int maxFiles) {
+        RotatingLogFile previous = logFile;
+        logFile = new RotatingLogFile(directory, maxFileSize, maxFiles);
+        if (previous != null) {
+            getSinkExecutor().execute(previous::close);
         }
-        notifyListener(Level.NONE, buildMessage(subTag, msg));
     }
 
-    public static void internal(String subTag, String msg) {
-        if (isInternalLevel()) {
-            android.util.Log.v(DEFAULT_TAG, buildMessage(subTag, msg));
+    public static void disableFileLogging() {
+        RotatingLogFile previous = logFile;
+        logFile = null;
+        if (previous != null) {
+            getSinkExecutor().execute(previous::close);
         }
-        notifyListener(Level.INTERNAL, buildMessage(subTag, msg));
+    }
+
+    /**
+     * @return files written by {@link #enableFileLogging}, the current one first
+     */
+    @NonNull
+    public static List<File> getLogFiles() {
+        RotatingLogFile file = logFile;
+        return file != null ? file.getFiles() : Collections.<File>emptyList();
+    }
+
+    public static void fatal(String subTag, String msg) {
+        log(Level.FATAL, subTag, msg, null);
+    }
+
+    public static void error(String subTag, String msg) {
+        log(Level.ERROR, subTag, msg, null);
+    }
+
+    public static void warn(String subTag, String msg) {
+        log(Level.WARN, subTag, msg, null);
+    }
+
+    public static void info(String subTag, String msg) {
+        log(Level.INFO, subTag, msg, null);
+    }
+
+    public static void debug(String subTag, String msg) {
+        log(Level.DEBUG, subTag, msg, null);
+    }
+
+    public static void noise(String subTag, String msg) {
+        log(Level.NOISE, subTag, msg, null);
+    }
+
+    public static void internal(String subTag, String msg) {
+        log(Level.INTERNAL, subTag, msg, null);
     }
 
     public static void fatal(String subTag, String msg, Throwable tr) {
-        if (isFatalLevel()) {
-            android.util.Log.wtf(DEFAULT_TAG, buildMessage(subTag, msg), tr);
-        }
+        log(Level.FATAL, subTag, msg, tr);
     }
 
     public static void error(String subTag, String msg, Throwable tr) {
-        if (isErrorLevel()) {
-            android.util.Log.e(DEFAULT_TAG, buildMessage(subTag, msg), tr);
-        }
+        log(Level.ERROR, subTag, msg, tr);
     }
 
     public static void warn(String subTag, String msg, Throwable tr) {
-        if (isWarnLevel()) {
-            android.util.Log.w(DEFAULT_TAG, buildMessage(subTag, msg), tr);
-        }
+        log(Level.WARN, subTag, msg, tr);
     }
 
     public static void info(String subTag, String msg, Throwable tr) {
-        if (isInfoLevel()) {
-            android.util.Log.i(DEFAULT_TAG, buildMessage(subTag, msg), tr);
-        }
+        log(Level.INFO, subTag, msg, tr);
     }
 
     public static void debug(String subTag, String msg, Throwable tr) {
-        if (isDebugLevel()) {
-            android.util.Log.d(DEFAULT_TAG, buildMessage(subTag, msg), tr);
-        }
+        log(Level.DEBUG, subTag, msg, tr);
     }
 
     public static void noise(String subTag, String msg, Throwable tr) {
-        if (isNoiseLevel()) {
-            android.util.Log.v(DEFAULT_TAG, buildMessage(subTag, msg), tr);
-        }
+        log(Level.NOISE, subTag, msg, tr);
     }
 
     public static void internal(String subTag, String msg, Throwable tr) {
-        if (isInternalLevel()) {
-            android.util.Log.v(DEFAULT_TAG, buildMessage(subTag, msg), tr);
+        log(Level.INTERNAL, subTag, msg, tr);
+    }
+
+    // lazy messages, built only if the level is captured
+
+    public static void info(String subTag, MessageSupplier msg) {
+        if (isCaptured(Level.INFO)) {
+            log(Level.INFO, subTag, msg.get(), null);
+        }
+    }
+
+    public static void debug(String subTag, MessageSupplier msg) {
+        if (isCaptured(Level.DEBUG)) {
+            log(Level.DEBUG, subTag, msg.get(), null);
+        }
+    }
+
+    public static void noise(String subTag, MessageSupplier msg) {
+        if (isCaptured(Level.NOISE)) {
+            log(Level.NOISE, subTag, msg.get(), null);
+        }
+    }
+
+    public static void info(String subTag, String format, Object arg) {
+        if (isCaptured(Level.INFO)) {
+            log(Level.INFO, subTag, format(format, arg), null);
+        }
+    }
+
+    public static void info(String subTag, String format, Object arg1, Object arg2) {
+        if (isCaptured(Level.INFO)) {
+            log(Level.INFO, subTag, format(format, arg1, arg2), null);
+        }
+    }
+
+    public static void debug(String subTag, String format, Object arg) {
+        if (isCaptured(Level.DEBUG)) {
+            log(Level.DEBUG, subTag, format(format, arg), null);
+        }
+    }
+
+    public static void debug(String subTag, String format, Object arg1, Object arg2) {
+        if (isCaptured(Level.DEBUG)) {
+            log(Level.DEBUG, subTag, format(format, arg1, arg2), null);
+        }
+    }
+
+    public static void noise(String subTag, String format, Object arg) {
+        if (isCaptured(Level.NOISE)) {
+            log(Level.NOISE, subTag, format(format, arg), null);
+        }
+    }
+
+    public static void noise(String subTag, String format, Object arg1, Object arg2) {
+        if (isCaptured(Level.NOISE)) {
+            log(Level.NOISE, subTag, format(format, arg1, arg2), null);
         }
     }
 
@@ -305,4 +529,11 @@ public final class PWLog {
     public interface LogsUpdateListener {
         void logUpdated(Level level, String message);
     }
+
+    /**
+     * Builds a log message on demand.
+     */
+    public interface MessageSupplier {
+        String get();
+    }
 }
@@ -0,0 +1,102 @@
+package com.pushwoosh.internal.utils;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link SQLiteOpenHelper} whose database stays open for the process lifetime.
+ * <p>
+ * Closing the database after every operation makes SQLite reopen the file, re-read the schema
+ * and rebuild its page cache on the next one. Subclasses get the shared connection from
+ * {@link #getDatabase()} and must not close it. Write-ahead logging is enabled, so queries do
+ * not wait for a running write transaction and can run without holding {@link #mutex}.
+ * <p>
+ * Hot inserts and single-value lookups use compiled statements from {@link #getStatement(String)},
+ * cached by SQL text until {@link #close()}. A statement keeps its bindings between calls, so it
+ * must only be bound and executed while holding {@link #mutex}.
+ */
+public abstract class PersistentSQLiteOpenHelper extends SQLiteOpenHelper {
+    private static final String TAG = "PersistentSQLiteOpenHelper";
+
+    /**
+     * Serializes writes and use of cached statements.
+     */
+    protected final Object mutex = new Object();
+
+    private final Map<String, SQLiteStatement> statements = new HashMap<>();
+    @Nullable private SQLiteDatabase statementsDatabase;
+
+    protected PersistentSQLiteOpenHelper(Context context, String name, int version) {
+        super(context, name, null, version);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * @return database opened once and shared by all callers; never close it
+     */
+    @NonNull
+    protected SQLiteDatabase getDatabase() {
+        return getWritableDatabase();
+    }
+
+    /**
+     * Returns the compiled statement for {@code sql} with cleared bindings.
+     * Must be called and used while holding {@link #mutex}.
+     */
+    @NonNull
+    protected SQLiteStatement getStatement(@NonNull String sql) {
+        SQLiteDatabase db = getDatabase();
+        if (db != statementsDatabase) {
+            // the helper was closed and reopened, statements of the old connection are stale
+            closeStatements();
+            statementsDatabase = db;
+        }
+        SQLiteStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearBindings();
+        }
+        return statement;
+    }
+
+    /**
+     * Binds {@code value} or {@code null}, which {@link SQLiteStatement#bindString} rejects.
+     */
+    protected static void bindStringOrNull(@NonNull SQLiteStatement statement, int index, @Nullable String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (mutex) {
+            closeStatements();
+            statementsDatabase = null;
+            super.close();
+        }
+    }
+
+    private void closeStatements() {
+        for (SQLiteStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to close statement", e);
+            }
+        }
+        statements.clear();
+    }
+}
@@ -0,0 +1,150 @@
+package com.pushwoosh.internal.utils;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Log file with size-based rotation: {@code pushwoosh.log} is renamed to {@code pushwoosh.1.log}
+ * when it exceeds the size limit, older files shift by one and the oldest one is deleted.
+ * <p>
+ * Not thread-safe, {@link PWLog} writes to it from its log thread only.
+ */
+final class RotatingLogFile {
+    private static final String TAG = RotatingLogFile.class.getSimpleName();
+    private static final String NAME = "pushwoosh";
+    private static final String EXTENSION = ".log";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+    private final Date date = new Date();
+
+    private Writer writer;
+    private long size;
+    private boolean failed;
+
+    RotatingLogFile(@NonNull File directory, long maxFileSize, int maxFiles) {
+        this.directory = directory;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+
+    void append(@NonNull LogRingBuffer.Entry entry) {
+        if (failed) {
+            return;
+        }
+        date.setTime(entry.timestamp);
+        StringBuilder line = new StringBuilder(entry.message.length() + 32)
+                .append(dateFormat.format(date))
+                .append(' ')
+                .append(entry.level.name())
+                .append(' ')
+                .append(entry.message)
+                .append('\n');
+        if (entry.throwable != null) {
+            StringWriter trace = new StringWriter();
+            entry.throwable.printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+        try {
+            if (writer == null) {
+                open();
+            }
+            String text = line.toString();
+            writer.write(text);
+            // characters, close enough to bytes for a size limit of log text
+            size += text.length();
+            if (size >= maxFileSize) {
+                rotate();
+            }
+        } catch (IOException e) {
+            // logging must never break the app, and logging the failure would come back here
+            failed = true;
+            android.util.Log.e(TAG, "Failed to write log file, file logging is disabled", e);
+            close();
+        }
+    }
+
+    void flush() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            failed = true;
+            close();
+        }
+    }
+
+    void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // nothing to do
+        }
+        writer = null;
+    }
+
+    /**
+     * @return existing log files, the current one first
+     */
+    @NonNull
+    List<File> getFiles() {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < maxFiles; i++) {
+            File file = file(i);
+            if (file.exists()) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private File file(int index) {
+        return new File(directory, index == 0 ? NAME + EXTENSION : NAME + "." + index + EXTENSION);
+    }
+
+    private void open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        File current = file(0);
+        size = current.length();
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(current, true), UTF_8));
+    }
+
+    private void rotate() throws IOException {
+        close();
+        File oldest = file(maxFiles - 1);
+        if (oldest.exists() && !oldest.delete()) {
+            throw new IOException("Can't delete " + oldest);
+        }
+        for (int i = maxFiles - 2; i >= 0; i--) {
+            File file = file(i);
+            if (file.exists() && !file.renameTo(file(i + 1))) {
+                throw new IOException("Can't rename " + file);
+            }
+        }
+        open();
+    }
+}
@@ -239,21 +239,21 @@ public class NotificationServiceExtension {
             return;
         }
 
-        PWLog.debug(TAG, "handleMessage: " + pushBundle.toString());
+        PWLog.debug(TAG, "handleMessage: %s", pushBundle);
 
         if (pushMessageHandler.preHandleMessage(pushBundle)) {
             return;
         }
 
+        // one lazily decoded message is shared by the user callback, statistics and the handle chain
         PushMessage message = pushMessageFactory.createPushMessage(pushBundle);
 
-
         boolean isHandled = onMessageReceived(message);
 
         boolean isNeedSendPushStat = isHandled && config.getSendPushStatIfShowForegroundDisabled();
         if (isNeedSendPushStat) {
-            PWLog.debug(TAG, String.format("pushStatNotificationOpenHandler.postHandleNotification: %s", pushBundle));
-            pushStatNotificationOpenHandler.postHandleNotification(pushBundle);
+            PWLog.debug(TAG, "pushStatNotificationOpenHandler.postHandlePushMessage: %s", pushBundle);
+            pushStatNotificationOpenHandler.postHandlePushMessage(message);
         }
 
         pushMessageHandler.handlePushMessage(message, isHandled);
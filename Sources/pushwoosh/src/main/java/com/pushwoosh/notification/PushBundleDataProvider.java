@@ -319,6 +319,10 @@ public final class PushBundleDataProvider {
 
 	private static boolean getStringBoolean(Bundle extras, String key) {
 		String stringBoolean = extras.getString(key);
+		// flags are absent from most pushes, don't pay for a NumberFormatException on each check
+		if (TextUtils.isEmpty(stringBoolean)) {
+			return false;
+		}
 		if (TextUtils.equals(stringBoolean, "true")) {
 			return true;
 		}
@@ -140,6 +140,7 @@ import com.pushwoosh.internal.utils.JsonUtils;
  * <li>Silent pushes ({@link #isSilent()} returns true) do not display notifications but can trigger background processing</li>
  * <li>Use {@link #toBundle()} or {@link #toJson()} to access the raw push payload if needed</li>
  * <li>Campaign tracking IDs ({@link #getCampaignId()}, {@link #getMessageId()}) are useful for analytics</li>
+ * <li>Fields are decoded from the payload on first access and cached, so reading only a few of them stays cheap</li>
  * </ul>
  *
  * @see NotificationServiceExtension
@@ -147,32 +148,62 @@ import com.pushwoosh.internal.utils.JsonUtils;
  * @see PushwooshNotificationFactory
  */
 public class PushMessage {
+	// fields are decoded from extras on first access, a set bit in decoded marks a decoded field
+	private static final int HEADER = 1 << 0;
+	private static final int MESSAGE = 1 << 1;
+	private static final int PUSH_HASH = 1 << 2;
+	private static final int META_DATA = 1 << 3;
+	private static final int SILENT = 1 << 4;
+	private static final int LOCAL = 1 << 5;
+	private static final int ICON_BACKGROUND_COLOR = 1 << 6;
+	private static final int LED = 1 << 7;
+	private static final int SOUND = 1 << 8;
+	private static final int VIBRATION = 1 << 9;
+	private static final int LARGE_ICON_URL = 1 << 10;
+	private static final int BIG_PICTURE_URL = 1 << 11;
+	private static final int SMALL_ICON = 1 << 12;
+	private static final int PRIORITY = 1 << 13;
+	private static final int BADGES = 1 << 14;
+	private static final int BADGES_ADDITIVE = 1 << 15;
+	private static final int VISIBILITY = 1 << 16;
+	private static final int LED_ON_MS = 1 << 17;
+	private static final int LED_OFF_MS = 1 << 18;
+	private static final int ACTIONS = 1 << 19;
+	private static final int MSG_TAG = 1 << 20;
+	private static final int LOCK_SCREEN = 1 << 21;
+	private static final int CUSTOM_DATA = 1 << 22;
+	private static final int GROUP_ID = 1 << 23;
+	private static final int PARSED_HASH = 1 << 24;
+	private static final int NOTIFICATION_ID = 1 << 25;
+
 	private final Bundle extras;
-	private final String header;
-	private final String message;
-	private final String pushHash;
-	private final String metaData;
-	private final boolean silent;
-	private final boolean local;
-	private final Integer iconBackgroundColor;
-	private final Integer led;
-	private final String sound;
-	private final boolean vibration;
-	private final String ticker;
-	private final String largeIconUrl;
-	private final String bigPictureUrl;
-	private final int smallIcon;
-	private final int priority;
-	private final int badges;
-	private final boolean badgesAdditive;
-	private final int visibility;
-	private final int ledOnMS;
-	private final int ledOffMS;
-	private final List<Action> actions = new ArrayList<>();
-	private final String msgTag;
-	private final boolean lockScreen;
-	private final String customData;
-	private final String groupId;
+	private volatile int decoded;
+	private String header;
+	private String message;
+	private String pushHash;
+	private String metaData;
+	private boolean silent;
+	private boolean local;
+	private Integer iconBackgroundColor;
+	private Integer led;
+	private String sound;
+	private boolean vibration;
+	private String largeIconUrl;
+	private String bigPictureUrl;
+	private int smallIcon;
+	private int priority;
+	private int badges;
+	private boolean badgesAdditive;
+	private int visibility;
+	private int ledOnMS;
+	private int ledOffMS;
+	private List<Action> actions;
+	private String msgTag;
+	private boolean lockScreen;
+	private String customData;
+	private String groupId;
+	private String[] parsedHash;
+	private long notificationId;
 
 	/**
 	 * Creates a PushMessage from a push notification payload Bundle.
@@ -207,37 +238,6 @@ public class PushMessage {
 	 */
 	public PushMessage(@NonNull Bundle extras) {
 		this.extras = extras;
-
-		pushHash = PushBundleDataProvider.getPushHash(extras);
-		metaData = PushBundleDataProvider.getPushMetadata(extras);
-		silent = PushBundleDataProvider.isSilent(extras);
-		local = PushBundleDataProvider.isLocal(extras);
-		iconBackgroundColor = PushBundleDataProvider.getIconBackgroundColor(extras);
-
-		led = getLedColor(extras);
-		sound = PushBundleDataProvider.getSound(extras);
-		vibration = PushBundleDataProvider.getVibration(extras);
-		message = PushBundleDataProvider.getMessage(extras);
-		header = PushBundleDataProvider.getHeader(extras);
-		ticker = message;
-		priority = PushBundleDataProvider.getPriority(extras);
-		visibility = PushBundleDataProvider.getVisibility(extras);
-		badges = PushBundleDataProvider.getBadges(extras);
-		badgesAdditive = PushBundleDataProvider.isBadgesAdditive(extras);
-		customData = PushBundleDataProvider.getCustomData(extras);
-		groupId = PushBundleDataProvider.getGroupId(extras);
-
-		bigPictureUrl = PushBundleDataProvider.getBigPicture(extras);
-		largeIconUrl = PushBundleDataProvider.getLargeIcon(extras);
-		smallIcon = PushBundleDataProvider.getSmallIcon(extras);
-
-		ledOnMS = PushBundleDataProvider.getLedOnMs(extras);
-		ledOffMS = PushBundleDataProvider.getLedOffMs(extras);
-		msgTag = PushBundleDataProvider.getMessageTag(extras);
-
-		lockScreen = PushBundleDataProvider.isLockScreen(extras);
-
-		actions.addAll(PushBundleDataProvider.getActions(extras));
 	}
 
 	/**
@@ -245,6 +245,9 @@ public class PushMessage {
 	 * @see <a href="https://developer.android.com/reference/android/app/Notification.Builder.html#setLargeIcon(android.graphics.Bitmap)">Notification.Builder.setLargeIcon</a>
 	 */
 	public String getLargeIconUrl() {
+		if ((decoded & LARGE_ICON_URL) == 0) {
+			decode(LARGE_ICON_URL);
+		}
 		return largeIconUrl;
 	}
 
@@ -253,6 +256,9 @@ public class PushMessage {
 	 * @see <a href="https://developer.android.com/reference/android/app/Notification.BigPictureStyle.html#bigPicture(android.graphics.Bitmap)">Notification.BigPictureStyle.bigPicture</a>
 	 */
 	public String getBigPictureUrl() {
+		if ((decoded & BIG_PICTURE_URL) == 0) {
+			decode(BIG_PICTURE_URL);
+		}
 		return bigPictureUrl;
 	}
 
@@ -287,6 +293,9 @@ public class PushMessage {
 	 * @see #getMessage()
 	 */
 	public String getHeader() {
+		if ((decoded & HEADER) == 0) {
+			decode(HEADER);
+		}
 		return header;
 	}
 
@@ -322,6 +331,9 @@ public class PushMessage {
 	 * @see #getHeader()
 	 */
 	public String getMessage() {
+		if ((decoded & MESSAGE) == 0) {
+			decode(MESSAGE);
+		}
 		return message;
 	}
 
@@ -329,13 +341,21 @@ public class PushMessage {
 	 * @return Pushmessage hash. Pushes triggered using remote API may not have hash.
 	 */
 	public String getPushHash() {
+		if ((decoded & PUSH_HASH) == 0) {
+			decode(PUSH_HASH);
+		}
 		return pushHash;
 	}
 
 	/**
 	 * @return Pushmessage metadata.
 	 */
-	public String getPushMetaData() { return metaData; }
+	public String getPushMetaData() {
+		if ((decoded & META_DATA) == 0) {
+			decode(META_DATA);
+		}
+		return metaData;
+	}
 
 	/**
 	 * Gets the Pushwoosh internal notification ID.
@@ -374,12 +394,10 @@ public class PushMessage {
 	 * @see #getCampaignId()
 	 */
 	public long getPushwooshNotificationId() {
-		if (metaData != null) {
-			Bundle metaDataBundle = JsonUtils.jsonStringToBundle(metaData, true);
-			return metaDataBundle.getLong("uid", -1);
-		} else {
-			return -1;
+		if ((decoded & NOTIFICATION_ID) == 0) {
+			decode(NOTIFICATION_ID);
 		}
+		return notificationId;
 	}
 
 	/**
@@ -427,6 +445,9 @@ public class PushMessage {
 	 * @see #getCustomData()
 	 */
 	public boolean isSilent() {
+		if ((decoded & SILENT) == 0) {
+			decode(SILENT);
+		}
 		return silent;
 	}
 
@@ -465,6 +486,9 @@ public class PushMessage {
 	 * @see LocalNotification
 	 */
 	public boolean isLocal() {
+		if ((decoded & LOCAL) == 0) {
+			decode(LOCAL);
+		}
 		return local;
 	}
 
@@ -473,6 +497,9 @@ public class PushMessage {
 	 * @see <a href="https://developer.android.com/reference/android/app/Notification.Builder.html#setColor(int)">Notification.Builder.setColor</a>
 	 */
 	public Integer getIconBackgroundColor() {
+		if ((decoded & ICON_BACKGROUND_COLOR) == 0) {
+			decode(ICON_BACKGROUND_COLOR);
+		}
 		return iconBackgroundColor;
 	}
 
@@ -480,6 +507,9 @@ public class PushMessage {
 	 * @return Led color for current push message.
 	 */
 	public Integer getLed() {
+		if ((decoded & LED) == 0) {
+			decode(LED);
+		}
 		return led;
 	}
 
@@ -487,6 +517,9 @@ public class PushMessage {
 	 * @return sound uri for current push message.
 	 */
 	public String getSound() {
+		if ((decoded & SOUND) == 0) {
+			decode(SOUND);
+		}
 		return sound;
 	}
 
@@ -494,6 +527,9 @@ public class PushMessage {
 	 * @return true if device should vibrate in response to notification.
 	 */
 	public boolean getVibration() {
+		if ((decoded & VIBRATION) == 0) {
+			decode(VIBRATION);
+		}
 		return vibration;
 	}
 
@@ -502,7 +538,7 @@ public class PushMessage {
 	 * @see <a href="https://developer.android.com/reference/android/app/Notification.Builder.html#setTicker(java.lang.CharSequence)">Notification.Builder.setTicker</a>
 	 */
 	public String getTicker() {
-		return ticker;
+		return getMessage();
 	}
 
 	/**
@@ -510,6 +546,9 @@ public class PushMessage {
 	 * @see <a href="https://developer.android.com/reference/android/app/Notification.Builder.html#setSmallIcon(int)">Notification.Builder.setSmallIcon</a>
 	 */
 	public int getSmallIcon() {
+		if ((decoded & SMALL_ICON) == 0) {
+			decode(SMALL_ICON);
+		}
 		return smallIcon;
 	}
 
@@ -518,6 +557,9 @@ public class PushMessage {
 	 * @see <a href="https://developer.android.com/reference/android/app/Notification.Builder.html#setPriority(int)">Notification.Builder.setPriority</a>
 	 */
 	public int getPriority() {
+		if ((decoded & PRIORITY) == 0) {
+			decode(PRIORITY);
+		}
 		return priority;
 	}
 
@@ -525,6 +567,9 @@ public class PushMessage {
 	 * @return Application icon badge number.
 	 */
 	public int getBadges() {
+		if ((decoded & BADGES) == 0) {
+			decode(BADGES);
+		}
 		return badges;
 	}
 
@@ -532,6 +577,9 @@ public class PushMessage {
 	 * @return True if there is a sign '+' or '-' at the beginning of the badge number.
 	 */
 	public boolean isBadgesAdditive() {
+		if ((decoded & BADGES_ADDITIVE) == 0) {
+			decode(BADGES_ADDITIVE);
+		}
 		return badgesAdditive;
 	}
 
@@ -541,6 +589,9 @@ public class PushMessage {
 	 * @see <a href="https://developer.android.com/reference/android/app/Notification.Builder.html#setVisibility(int)">Notification.Builder.setVisibility</a>
 	 */
 	public int getVisibility() {
+		if ((decoded & VISIBILITY) == 0) {
+			decode(VISIBILITY);
+		}
 		return visibility;
 	}
 
@@ -548,6 +599,9 @@ public class PushMessage {
 	 * @return LED on duration in ms
 	 */
 	public int getLedOnMS() {
+		if ((decoded & LED_ON_MS) == 0) {
+			decode(LED_ON_MS);
+		}
 		return ledOnMS;
 	}
 
@@ -555,6 +609,9 @@ public class PushMessage {
 	 * @return LED off duration in ms
 	 */
 	public int getLedOffMS() {
+		if ((decoded & LED_OFF_MS) == 0) {
+			decode(LED_OFF_MS);
+		}
 		return ledOffMS;
 	}
 
@@ -620,7 +677,10 @@ public class PushMessage {
 	 * @see Action
 	 */
 	public List<Action> getActions() {
-		return this.actions;
+		if ((decoded & ACTIONS) == 0) {
+			decode(ACTIONS);
+		}
+		return actions;
 	}
 
 	/**
@@ -628,6 +688,9 @@ public class PushMessage {
 	 * Notifications with same tag will replace each other if multinotification mode is on {@link com.pushwoosh.notification.PushwooshNotificationSettings#setMultiNotificationMode(boolean)}
 	 */
 	public String getTag() {
+		if ((decoded & MSG_TAG) == 0) {
+			decode(MSG_TAG);
+		}
 		return msgTag;
 	}
 
@@ -635,6 +698,9 @@ public class PushMessage {
 	 * @return true if notification presents Rich Media on lock screen.
 	 */
 	public boolean isLockScreen() {
+		if ((decoded & LOCK_SCREEN) == 0) {
+			decode(LOCK_SCREEN);
+		}
 		return lockScreen;
 	}
 
@@ -714,6 +780,9 @@ public class PushMessage {
 	 * @see #toJson()
 	 */
 	public String getCustomData() {
+		if ((decoded & CUSTOM_DATA) == 0) {
+			decode(CUSTOM_DATA);
+		}
 		return customData;
 	}
 
@@ -721,6 +790,9 @@ public class PushMessage {
 	 * @return notification group id
 	 */
 	public String getGroupId() {
+		if ((decoded & GROUP_ID) == 0) {
+			decode(GROUP_ID);
+		}
 		return groupId;
 	}
 
@@ -856,7 +928,7 @@ public class PushMessage {
 	 * @see #getPushHash()
 	 */
 	public String getMessageCode() {
-		return HashDecoder.parseMessageHash(pushHash)[1];
+		return getParsedHash()[1];
 	}
 
 	/**
@@ -913,7 +985,7 @@ public class PushMessage {
 	 * @see #getMessageCode()
 	 */
 	public long getCampaignId() {
-		String[] parsedMessageHash = HashDecoder.parseMessageHash(pushHash);
+		String[] parsedMessageHash = getParsedHash();
 		if (parsedMessageHash[0] != null) {
 			return Long.parseLong(parsedMessageHash[2]);
 		} else return 0;
@@ -974,9 +1046,118 @@ public class PushMessage {
 	 * @see #getPushwooshNotificationId()
 	 */
 	public long getMessageId() {
-		String[] parsedMessageHash = HashDecoder.parseMessageHash(pushHash);
+		String[] parsedMessageHash = getParsedHash();
 		if (parsedMessageHash[0] != null) {
 			return Long.parseLong(parsedMessageHash[0]);
 		} else return 0;
 	}
+
+	private String[] getParsedHash() {
+		if ((decoded & PARSED_HASH) == 0) {
+			decode(PARSED_HASH);
+		}
+		return parsedHash;
+	}
+
+	private static long parseNotificationId(String metaData) {
+		if (metaData == null) {
+			return -1;
+		}
+		Bundle metaDataBundle = JsonUtils.jsonStringToBundle(metaData, true);
+		return metaDataBundle.getLong("uid", -1);
+	}
+
+	/**
+	 * Decodes one field from extras. Getters read the volatile {@link #decoded} mask first, so a decoded
+	 * field is returned without locking and every field is parsed at most once per message, whichever
+	 * thread reads it first.
+	 */
+	private synchronized void decode(int field) {
+		if ((decoded & field) != 0) {
+			return;
+		}
+		switch (field) {
+			case HEADER:
+				header = PushBundleDataProvider.getHeader(extras);
+				break;
+			case MESSAGE:
+				message = PushBundleDataProvider.getMessage(extras);
+				break;
+			case PUSH_HASH:
+				pushHash = PushBundleDataProvider.getPushHash(extras);
+				break;
+			case META_DATA:
+				metaData = PushBundleDataProvider.getPushMetadata(extras);
+				break;
+			case SILENT:
+				silent = PushBundleDataProvider.isSilent(extras);
+				break;
+			case LOCAL:
+				local = PushBundleDataProvider.isLocal(extras);
+				break;
+			case ICON_BACKGROUND_COLOR:
+				iconBackgroundColor = PushBundleDataProvider.getIconBackgroundColor(extras);
+				break;
+			case LED:
+				led = getLedColor(extras);
+				break;
+			case SOUND:
+				sound = PushBundleDataProvider.getSound(extras);
+				break;
+			case VIBRATION:
+				vibration = PushBundleDataProvider.getVibration(extras);
+				break;
+			case LARGE_ICON_URL:
+				largeIconUrl = PushBundleDataProvider.getLargeIcon(extras);
+				break;
+			case BIG_PICTURE_URL:
+				bigPictureUrl = PushBundleDataProvider.getBigPicture(extras);
+				break;
+			case SMALL_ICON:
+				smallIcon = PushBundleDataProvider.getSmallIcon(extras);
+				break;
+			case PRIORITY:
+				priority = PushBundleDataProvider.getPriority(extras);
+				break;
+			case BADGES:
+				badges = PushBundleDataProvider.getBadges(extras);
+				break;
+			case BADGES_ADDITIVE:
+				badgesAdditive = PushBundleDataProvider.isBadgesAdditive(extras);
+				break;
+			case VISIBILITY:
+				visibility = PushBundleDataProvider.getVisibility(extras);
+				break;
+			case LED_ON_MS:
+				ledOnMS = PushBundleDataProvider.getLedOnMs(extras);
+				break;
+			case LED_OFF_MS:
+				ledOffMS = PushBundleDataProvider.getLedOffMs(extras);
+				break;
+			case ACTIONS:
+				actions = new ArrayList<>(PushBundleDataProvider.getActions(extras));
+				break;
+			case MSG_TAG:
+				msgTag = PushBundleDataProvider.getMessageTag(extras);
+				break;
+			case LOCK_SCREEN:
+				lockScreen = PushBundleDataProvider.isLockScreen(extras);
+				break;
+			case CUSTOM_DATA:
+				customData = PushBundleDataProvider.getCustomData(extras);
+				break;
+			case GROUP_ID:
+				groupId = PushBundleDataProvider.getGroupId(extras);
+				break;
+			case PARSED_HASH:
+				parsedHash = HashDecoder.parseMessageHash(getPushHash());
+				break;
+			case NOTIFICATION_ID:
+				notificationId = parseNotificationId(getPushMetaData());
+				break;
+			default:
+				return;
+		}
+		decoded |= field;
+	}
 }
@@ -8,10 +8,21 @@ import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
 import com.pushwoosh.internal.platform.AndroidPlatformModule;
+import com.pushwoosh.internal.utils.NotificationImageCache;
 import com.pushwoosh.internal.utils.NotificationUtils;
+import com.pushwoosh.internal.utils.PWLog;
 import com.pushwoosh.notification.builder.NotificationBuilder;
 import com.pushwoosh.notification.builder.NotificationBuilderManager;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * Default implementation of {@link NotificationFactory} provided by the Pushwoosh SDK.
  * <p>
@@ -112,14 +123,23 @@ import com.pushwoosh.notification.builder.NotificationBuilderManager;
  * @see #getLargeIcon(PushMessage)
  */
 public class PushwooshNotificationFactory extends NotificationFactory {
+	private static final String TAG = "PushwooshNotificationFactory";
+
+	// image fetches run on their own threads: a fetch that misses the deadline is interrupted, which must not
+	// hit a thread shared with API requests
+	private static final Executor IMAGE_EXECUTOR = createImageExecutor();
 
 	@Override
 	@WorkerThread
 	@Nullable
 	public Notification onGenerateNotification(@NonNull PushMessage pushData) {
+		// the icon and the picture are fetched at the same time, within one deadline
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(NotificationImageCache.FETCH_DEADLINE_MS);
+		FutureTask<Bitmap> largeIconTask = new FutureTask<>(() -> getLargeIcon(pushData));
+		IMAGE_EXECUTOR.execute(largeIconTask);
 
-		Bitmap largeIcon = getLargeIcon(pushData);
 		Bitmap bigPicture = getBigPicture(pushData);
+		Bitmap largeIcon = awaitImage(largeIconTask, deadline);
 
 		final String channelId = addChannel(pushData);
 		if (getApplicationContext() == null) {
@@ -215,6 +235,32 @@ public class PushwooshNotificationFactory extends NotificationFactory {
 		return NotificationUtils.tryToGetBitmapFromInternet(pushData.getBigPictureUrl(), -1);
 	}
 
+	private static Executor createImageExecutor() {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "Pushwoosh-notification-image");
+					thread.setDaemon(true);
+					return thread;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	@Nullable
+	private static Bitmap awaitImage(Future<Bitmap> task, long deadline) {
+		try {
+			return task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			PWLog.warn(TAG, "Large icon is not loaded in time, showing notification without it");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			PWLog.error(TAG, "Failed to load large icon", e.getCause());
+		}
+		task.cancel(true);
+		return null;
+	}
+
 	/**
 	 * Loads and returns the large icon image for the notification.
 	 * <p>
@@ -224,7 +270,8 @@ public class PushwooshNotificationFactory extends NotificationFactory {
 	 * <p>
 	 * The image is automatically sized to match the system's notification_large_icon_height
 	 * dimension (typically 64dp x 64dp). This method runs on a worker thread, so network
-	 * operations are safe.
+	 * operations are safe. It runs concurrently with {@link #getBigPicture(PushMessage)}, and the
+	 * notification is shown without the icon if it is not loaded within 8 seconds.
 	 * <p>
 	 * <b>Image Requirements:</b>
 	 * <ul>
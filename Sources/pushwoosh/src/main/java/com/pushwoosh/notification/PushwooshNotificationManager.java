@@ -342,7 +342,7 @@ public class PushwooshNotificationManager {
 
     private void onRegisteredForRemoteNotifications(
             String pushToken, String tagsJson, boolean shouldRetryRegistration) {
-        PWLog.noise(TAG, String.format("onRegisteredForRemoteNotifications: %s", pushToken));
+        PWLog.noise(TAG, "onRegisteredForRemoteNotifications: %s", pushToken);
         // todo: probably we should move this into `if (result.isSuccess) { ... }`
         registrationPrefs.pushToken().set(pushToken);
         if (DeviceSpecificProvider.getInstance() != null) {
@@ -44,7 +44,7 @@ public class RescheduleNotificationsWorker extends BasePushwooshWorker {
         }
         storage.enumerateDbLocalNotificationList(dbLocalNotification -> {
             Bundle bundle = dbLocalNotification.getBundle();
-            PWLog.debug(TAG, "Rescheduling local push: " + bundle.toString());
+            PWLog.debug(TAG, "Rescheduling local push: %s", bundle);
             LocalNotificationReceiver.rescheduleNotification(dbLocalNotification, currentTime);
         });
         return Result.success();
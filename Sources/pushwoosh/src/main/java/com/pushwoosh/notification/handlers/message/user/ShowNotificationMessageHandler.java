@@ -59,6 +59,7 @@ import com.pushwoosh.notification.SummaryNotificationUtils;
 import com.pushwoosh.notification.builder.NotificationBuilderManager;
 import com.pushwoosh.repository.LocalNotificationStorage;
 import com.pushwoosh.repository.NotificationPrefs;
+import com.pushwoosh.repository.PushHistoryStorage;
 import com.pushwoosh.repository.RepositoryModule;
 
 import java.util.List;
@@ -203,8 +204,11 @@ class ShowNotificationMessageHandler extends NotificationMessageHandler {
 	}
 
 	private void addToPushHistory(final PushMessage data) {
-		String message = data.toJson().toString();
-		notificationPrefs.pushHistory().add(message);
+		PushHistoryStorage pushHistoryStorage = RepositoryModule.getPushHistoryStorage();
+		if (pushHistoryStorage == null) {
+			return;
+		}
+		pushHistoryStorage.add(data.toJson().toString());
 	}
 
 	private void notifyNotificationCreated(final Intent intent, final String tag, final int messageId) {
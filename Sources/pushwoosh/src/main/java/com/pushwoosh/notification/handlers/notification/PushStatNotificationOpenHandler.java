@@ -31,21 +31,30 @@ import android.os.Bundle;
 import com.pushwoosh.PushStatisticsScheduler;
 import com.pushwoosh.PushwooshPlatform;
 import com.pushwoosh.internal.utils.PWLog;
-import com.pushwoosh.notification.PushBundleDataProvider;
+import com.pushwoosh.notification.PushMessage;
 import com.pushwoosh.repository.PushwooshRepository;
 
 public class PushStatNotificationOpenHandler implements PushNotificationOpenHandler {
 
     @Override
     public void postHandleNotification(Bundle pushBundle) {
-        if (PushBundleDataProvider.isLocal(pushBundle) || PushBundleDataProvider.isSilent(pushBundle)) {
+        postHandlePushMessage(new PushMessage(pushBundle));
+    }
+
+    /**
+     * Same as {@link #postHandleNotification(Bundle)} for a message that is already decoded, so the
+     * receive path reuses the fields it has parsed instead of reading the bundle again.
+     */
+    public void postHandlePushMessage(PushMessage message) {
+        if (message.isLocal() || message.isSilent()) {
             return;
         }
 
-        String pushHash = PushBundleDataProvider.getPushHash(pushBundle);
-        String metadata = PushBundleDataProvider.getPushMetadata(pushBundle);
+        Bundle pushBundle = message.toBundle();
+        String pushHash = message.getPushHash();
+        String metadata = message.getPushMetaData();
 
-        PWLog.debug("PushStatNotificationOpenHandler", String.format("postHandleNotification, pushHash: %s, metadata: %s", pushHash, metadata));
+        PWLog.debug("PushStatNotificationOpenHandler", "postHandleNotification, pushHash: %s, metadata: %s", pushHash, metadata);
 
         // Set current session hash for repository
         try {
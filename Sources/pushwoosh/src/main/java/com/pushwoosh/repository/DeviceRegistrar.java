@@ -125,6 +125,10 @@ public class DeviceRegistrar {
 
 				EventBus.sendEvent(new DeregistrationSuccessEvent(deviceRegistrationId));
 				registrationPrefs.lastPushRegistration().set(0);
+				SoundInventory soundInventory = RepositoryModule.getSoundInventory();
+				if (soundInventory != null) {
+					soundInventory.clearAcknowledged();
+				}
 			} else {
 				String errorDescription = result.getException() == null ? "" : result.getException().getMessage();
 				if (TextUtils.isEmpty(errorDescription)) {
@@ -36,7 +36,6 @@ package com.pushwoosh.repository;
 
 import android.content.SharedPreferences;
 
-import com.pushwoosh.Pushwoosh;
 import com.pushwoosh.inapp.view.config.enums.ModalRichMediaDismissAnimationType;
 import com.pushwoosh.inapp.view.config.enums.ModalRichMediaPresentAnimationType;
 import com.pushwoosh.inapp.view.config.enums.ModalRichMediaSwipeGesture;
@@ -62,7 +61,7 @@ import com.pushwoosh.richmedia.RichMediaType;
 public class NotificationPrefs {
 	private static final int INITIAL_MESSAGE_ID = 1001;
 
-	private static final String PREFERENCE = "com.pushwoosh.pushnotifications";
+	static final String PREFERENCE = "com.pushwoosh.pushnotifications";
 
 	public static final String DEFAULT_CHANNEL_NAME = "Push notification";
 	public static final String DEFAULT_GROUP_CHANNEL_ID = "pw_push_notifications_summary_id";
@@ -79,7 +78,8 @@ public class NotificationPrefs {
 	private static final String PROPERTY_LED = "dm_ledon";
 	private static final String PROPERTY_LED_COLOR = "dm_led_color";
 	private static final String PROPERTY_NOTIFICATION_FACTORY = "pw_notification_factory";
-	private static final String PROPERTY_PUSH_HISTORY = "pushHistoryArray";
+	// push history of SDK versions before PushHistoryStorage, migrated by PushHistoryStorageImpl
+	static final String PROPERTY_PUSH_HISTORY = "pushHistoryArray";
 	private static final String PROPERTY_CACHED_TAGS = "cached_tags_string";
 	private static final String PROPERTY_NOTIFICATION_BACKGROUND_COLOR = "pw_notification_background_color";
 	private static final String PROPERTY_NOTIFICATION_HASH = "pw_notification_stat_hash";
@@ -120,7 +120,6 @@ public class NotificationPrefs {
 	private final PreferenceSoundTypeValue soundType;
 	private final PreferenceVibrateTypeValue vibrateType;
 	private final PreferenceStringValue channelName;
-	private final PreferenceArrayListValue<String> pushHistory;
 	private final PreferenceArrayListValue<String> allowedExternalHosts;
 	private final PreferenceJsonObjectValue tags;
 	private final PreferenceClassValue notificationFactoryClass;
@@ -164,7 +163,6 @@ public class NotificationPrefs {
 		soundType = new PreferenceSoundTypeValue(preferences, PROPERTY_SOUND_TYPE, SoundType.DEFAULT_MODE);
 		vibrateType = new PreferenceVibrateTypeValue(preferences, PROPERTY_VIBRATE_TYPE, VibrateType.DEFAULT_MODE);
 		channelName = new PreferenceStringValue(preferences, PROPERTY_CHANNEL_NAME, DEFAULT_CHANNEL_NAME);
-		pushHistory = new PreferenceArrayListValue<>(preferences, PROPERTY_PUSH_HISTORY, Pushwoosh.PUSH_HISTORY_CAPACITY, String.class);
 		allowedExternalHosts = new PreferenceArrayListValue<>(preferences, PROPERTY_ALLOWED_EXTERNAL_HOSTS, 256, String.class);
 		tags = new PreferenceJsonObjectValue(preferences, PROPERTY_CACHED_TAGS);
 		tagsMigrationDone = new PreferenceBooleanValue(preferences, PROPERTY_TAG_MIGRATION_DONE, false);
@@ -266,10 +264,6 @@ public class NotificationPrefs {
 		return channelName;
 	}
 
-	public PreferenceArrayListValue<String> pushHistory() {
-		return pushHistory;
-	}
-
 	public PreferenceArrayListValue<String> allowedExternalHosts() {
 		return allowedExternalHosts;
 	}
@@ -0,0 +1,50 @@
+package com.pushwoosh.repository;
+
+import androidx.annotation.NonNull;
+
+import com.pushwoosh.repository.util.AcknowledgedTag;
+
+import java.util.Map;
+
+/**
+ * Durable write-behind store of tags for {@link SendTagsProcessor}.
+ * <p>
+ * Tags set by the application are kept here until {@code /setTags} acknowledges them, one value
+ * per tag name (the last write wins). Acknowledged values are remembered so that a tag that is set
+ * again to the same value does not cause another request. Values are JSON-encoded.
+ */
+public interface PendingTagsStorage {
+    /**
+     * Queues tag values, replacing values queued earlier for the same names.
+     */
+    void putPending(@NonNull Map<String, String> tags);
+
+    /**
+     * @return queued tag values by name
+     */
+    @NonNull
+    Map<String, String> getPending();
+
+    /**
+     * Removes queued tags that still hold the given values. Tags overwritten in the meantime stay queued.
+     */
+    void removePending(@NonNull Map<String, String> tags);
+
+    /**
+     * Records the values as the last ones accepted by Pushwoosh.
+     */
+    void acknowledge(@NonNull Map<String, String> tags, long timestamp);
+
+    /**
+     * @return last accepted values by tag name that were acknowledged at or after {@code notBefore}
+     */
+    @NonNull
+    Map<String, AcknowledgedTag> getAcknowledged(long notBefore);
+
+    void clearAcknowledged();
+
+    /**
+     * Removes queued and acknowledged tags.
+     */
+    void clear();
+}
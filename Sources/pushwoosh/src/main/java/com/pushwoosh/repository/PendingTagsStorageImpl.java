@@ -0,0 +1,196 @@
+package com.pushwoosh.repository;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+
+import com.pushwoosh.internal.utils.PWLog;
+import com.pushwoosh.internal.utils.PersistentSQLiteOpenHelper;
+import com.pushwoosh.repository.util.AcknowledgedTag;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class PendingTagsStorageImpl extends PersistentSQLiteOpenHelper implements PendingTagsStorage {
+    private static final String TAG = PendingTagsStorageImpl.class.getSimpleName();
+    private static final String DB_NAME = "pendingTagsDb.db";
+    private static final int VERSION = 1;
+
+    private static final String TABLE_PENDING = "pendingTags";
+    private static final String TABLE_ACKNOWLEDGED = "acknowledgedTags";
+
+    private static class Column {
+        static final String ROW_ID = "rowid";
+        static final String NAME = "name";
+        static final String VALUE = "value";
+        static final String TIMESTAMP = "timestamp";
+    }
+
+    public PendingTagsStorageImpl(Context context) {
+        super(context, DB_NAME, VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("create table " + TABLE_PENDING + " ("
+                + Column.NAME + " TEXT PRIMARY KEY, "
+                + Column.VALUE + " TEXT NOT NULL"
+                + ");");
+        db.execSQL("create table " + TABLE_ACKNOWLEDGED + " ("
+                + Column.NAME + " TEXT PRIMARY KEY, "
+                + Column.VALUE + " TEXT NOT NULL, "
+                + Column.TIMESTAMP + " INTEGER NOT NULL"
+                + ");");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PENDING);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ACKNOWLEDGED);
+        onCreate(db);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.setVersion(oldVersion);
+    }
+
+    @Override
+    public void putPending(@NonNull Map<String, String> tags) {
+        synchronized (mutex) {
+            SQLiteDatabase db = getDatabase();
+            try {
+                db.beginTransaction();
+                try {
+                    // INSERT OR REPLACE deletes the old row, so a rewritten tag moves to the end of the queue
+                    SQLiteStatement insert = getStatement("INSERT OR REPLACE INTO " + TABLE_PENDING + " ("
+                            + Column.NAME + ", " + Column.VALUE + ") VALUES (?, ?)");
+                    for (Map.Entry<String, String> tag : tags.entrySet()) {
+                        insert.bindString(1, tag.getKey());
+                        insert.bindString(2, tag.getValue());
+                        insert.executeInsert();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to queue tags", e);
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public Map<String, String> getPending() {
+        Map<String, String> tags = new LinkedHashMap<>();
+        String sql = "SELECT " + Column.NAME + ", " + Column.VALUE + " FROM " + TABLE_PENDING
+                + " ORDER BY " + Column.ROW_ID + " ASC";
+        try (Cursor cursor = getDatabase().rawQuery(sql, null)) {
+            while (cursor.moveToNext()) {
+                tags.put(cursor.getString(0), cursor.getString(1));
+            }
+        } catch (Exception e) {
+            PWLog.error(TAG, "Failed to read pending tags", e);
+        }
+        return tags;
+    }
+
+    @Override
+    public void removePending(@NonNull Map<String, String> tags) {
+        synchronized (mutex) {
+            SQLiteDatabase db = getDatabase();
+            try {
+                db.beginTransaction();
+                try {
+                    SQLiteStatement delete = getStatement("DELETE FROM " + TABLE_PENDING
+                            + " WHERE " + Column.NAME + " = ? AND " + Column.VALUE + " = ?");
+                    for (Map.Entry<String, String> tag : tags.entrySet()) {
+                        delete.bindString(1, tag.getKey());
+                        delete.bindString(2, tag.getValue());
+                        delete.executeUpdateDelete();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to remove sent tags", e);
+            }
+        }
+    }
+
+    @Override
+    public void acknowledge(@NonNull Map<String, String> tags, long timestamp) {
+        synchronized (mutex) {
+            SQLiteDatabase db = getDatabase();
+            try {
+                db.beginTransaction();
+                try {
+                    SQLiteStatement insert = getStatement("INSERT OR REPLACE INTO " + TABLE_ACKNOWLEDGED + " ("
+                            + Column.NAME + ", " + Column.VALUE + ", " + Column.TIMESTAMP + ") VALUES (?, ?, ?)");
+                    for (Map.Entry<String, String> tag : tags.entrySet()) {
+                        insert.bindString(1, tag.getKey());
+                        insert.bindString(2, tag.getValue());
+                        insert.bindLong(3, timestamp);
+                        insert.executeInsert();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to store acknowledged tags", e);
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public Map<String, AcknowledgedTag> getAcknowledged(long notBefore) {
+        Map<String, AcknowledgedTag> tags = new LinkedHashMap<>();
+        String sql = "SELECT " + Column.NAME + ", " + Column.VALUE + ", " + Column.TIMESTAMP
+                + " FROM " + TABLE_ACKNOWLEDGED + " WHERE " + Column.TIMESTAMP + " >= ?";
+        try (Cursor cursor = getDatabase().rawQuery(sql, new String[]{String.valueOf(notBefore)})) {
+            while (cursor.moveToNext()) {
+                tags.put(cursor.getString(0), new AcknowledgedTag(cursor.getString(1), cursor.getLong(2)));
+            }
+        } catch (Exception e) {
+            PWLog.error(TAG, "Failed to read acknowledged tags", e);
+        }
+        return tags;
+    }
+
+    @Override
+    public void clearAcknowledged() {
+        synchronized (mutex) {
+            try {
+                getStatement("DELETE FROM " + TABLE_ACKNOWLEDGED).executeUpdateDelete();
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to clear acknowledged tags", e);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (mutex) {
+            SQLiteDatabase db = getDatabase();
+            try {
+                db.beginTransaction();
+                try {
+                    db.execSQL("DELETE FROM " + TABLE_PENDING);
+                    db.execSQL("DELETE FROM " + TABLE_ACKNOWLEDGED);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to remove tags", e);
+            }
+        }
+    }
+}
@@ -1,21 +1,22 @@
 package com.pushwoosh.repository;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
 import android.os.Bundle;
 
 import com.pushwoosh.internal.utils.JsonUtils;
 import com.pushwoosh.internal.utils.PWLog;
+import com.pushwoosh.internal.utils.PersistentSQLiteOpenHelper;
 import com.pushwoosh.notification.PushBundleDataProvider;
 import com.pushwoosh.repository.util.PushBundleDatabaseEntry;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class PushBundleStorageImpl extends SQLiteOpenHelper implements PushBundleStorage {
+public class PushBundleStorageImpl extends PersistentSQLiteOpenHelper implements PushBundleStorage {
     private static final String TAG = PushBundleStorageImpl.class.getSimpleName();
     private static final String DB_NAME = "pushBundleDb.db";
     private static final int VERSION = 6;
@@ -24,8 +25,6 @@ public class PushBundleStorageImpl extends SQLiteOpenHelper implements PushBundl
     private static final String TABLE_GROUP_PUSH_BUNDLES = "groupPushBundles";
     private static final String INDEX_GROUP_NOTIF_TAG = "idx_group_notif_tag";
 
-    private final Object mutex = new Object();
-
     private static class Column {
         static final String ROW_ID = "rowid";
         static final String PUSH_BUNDLE_JSON = "push_bundle_json";
@@ -35,7 +34,7 @@ public class PushBundleStorageImpl extends SQLiteOpenHelper implements PushBundl
     }
 
     public PushBundleStorageImpl(Context context) {
-        super(context, DB_NAME, null, VERSION);
+        super(context, DB_NAME, VERSION);
     }
 
     @Override
@@ -95,8 +94,13 @@ public class PushBundleStorageImpl extends SQLiteOpenHelper implements PushBundl
 
     @Override
     public long putPushBundle(Bundle pushBundle) throws Exception {
-        ContentValues cv = getPushBundleContentValues(pushBundle);
-        return put(cv, TABLE_PUSH_BUNDLES);
+        String pushBundleJson = JsonUtils.bundleToJson(pushBundle).toString();
+        synchronized (mutex) {
+            SQLiteStatement insert = getStatement("INSERT OR REPLACE INTO " + TABLE_PUSH_BUNDLES
+                    + " (" + Column.PUSH_BUNDLE_JSON + ") VALUES (?)");
+            insert.bindString(1, pushBundleJson);
+            return put(insert);
+        }
     }
 
     @Override
@@ -111,8 +115,18 @@ public class PushBundleStorageImpl extends SQLiteOpenHelper implements PushBundl
 
     @Override
     public long putGroupPushBundle(Bundle pushBundle, int id, String groupId) throws Exception {
-        ContentValues cv = getGroupPushBundleContentValues(pushBundle, id, groupId);
-        return put(cv, TABLE_GROUP_PUSH_BUNDLES);
+        String pushBundleJson = JsonUtils.bundleToJson(pushBundle).toString();
+        String messageTag = PushBundleDataProvider.getMessageTag(pushBundle);
+        synchronized (mutex) {
+            SQLiteStatement insert = getStatement("INSERT OR REPLACE INTO " + TABLE_GROUP_PUSH_BUNDLES
+                    + " (" + Column.PUSH_BUNDLE_JSON + ", " + Column.NOTIFICATION_ID + ", "
+                    + Column.GROUP_ID + ", " + Column.MSG_TAG + ") VALUES (?, ?, ?, ?)");
+            insert.bindString(1, pushBundleJson);
+            insert.bindLong(2, id);
+            bindStringOrNull(insert, 3, groupId);
+            bindStringOrNull(insert, 4, messageTag);
+            return put(insert);
+        }
     }
 
     @Override
@@ -130,121 +144,93 @@ public class PushBundleStorageImpl extends SQLiteOpenHelper implements PushBundl
         removeAll(TABLE_GROUP_PUSH_BUNDLES);
     }
 
-    private long put(ContentValues cv, String tableName) throws Exception {
-        synchronized (mutex) {
-            try (SQLiteDatabase db = getWritableDatabase()) {
-                long rowId = db.insertWithOnConflict(tableName, null, cv, SQLiteDatabase.CONFLICT_REPLACE);
-                if (rowId == -1) {
-                    PWLog.warn(TAG, "Push bundle with message was not stored.");
-                    throw new Exception();
-                }
-                return rowId;
-            } catch (Exception e) {
-                PWLog.error("Error occurred while storing push bundle", e);
-                throw e;
+    private long put(SQLiteStatement insert) throws Exception {
+        try {
+            long rowId = insert.executeInsert();
+            if (rowId == -1) {
+                PWLog.warn(TAG, "Push bundle with message was not stored.");
+                throw new Exception();
             }
+            return rowId;
+        } catch (Exception e) {
+            PWLog.error("Error occurred while storing push bundle", e);
+            throw e;
         }
     }
 
     private Bundle get(long id, String tableName) throws Exception {
+        String pushBundleJson;
         synchronized (mutex) {
-            try (SQLiteDatabase db = getWritableDatabase()) {
-                String selection = Column.ROW_ID + " = ?";
-                String[] selectionArgs = {Long.toString(id)};
-                try (Cursor cursor = db.query(tableName, null, selection, selectionArgs, null, null, null)) {
-                    if (cursor.moveToFirst()) {
-                        return getBundle(cursor);
-                    } else {
-                        PWLog.error("Can't get push bundle with id: " + id);
-                        throw new Exception();
-                    }
-                }
+            try {
+                SQLiteStatement select = getStatement("SELECT " + Column.PUSH_BUNDLE_JSON + " FROM " + tableName
+                        + " WHERE " + Column.ROW_ID + " = ?");
+                select.bindLong(1, id);
+                pushBundleJson = select.simpleQueryForString();
+            } catch (SQLiteDoneException e) {
+                PWLog.error("Can't get push bundle with id: " + id);
+                throw new Exception();
             } catch (Exception e) {
                 PWLog.error("Can't get push bundle with id: " + id, e);
                 throw e;
             }
         }
+        return JsonUtils.jsonStringToBundle(pushBundleJson);
     }
 
     private List<Bundle> getAll(String tableName) {
-        synchronized (mutex) {
-            try (SQLiteDatabase db = getWritableDatabase()) {
-                try (Cursor cursor = db.query(tableName, null, null, null, null, null, null)) {
-                    List<Bundle> bundles = new ArrayList<>();
-                    while (cursor.moveToNext()) {
-                        bundles.add(getBundle(cursor));
-                    }
-                    return bundles;
-                }
-            } catch (Exception e) {
-                PWLog.error("Can't get group push bundles", e);
-                throw e;
+        try (Cursor cursor = getDatabase().query(tableName, null, null, null, null, null, null)) {
+            List<Bundle> bundles = new ArrayList<>();
+            while (cursor.moveToNext()) {
+                bundles.add(getBundle(cursor));
             }
+            return bundles;
+        } catch (Exception e) {
+            PWLog.error("Can't get group push bundles", e);
+            throw e;
         }
     }
 
     @Override
     public PushBundleDatabaseEntry getLastPushBundleEntryForGroup(String groupId) throws Exception {
-        synchronized (mutex) {
-            try (SQLiteDatabase db = getWritableDatabase()) {
-                String[] columns = {Column.NOTIFICATION_ID, Column.PUSH_BUNDLE_JSON, Column.GROUP_ID, Column.ROW_ID};
-                String selection = Column.GROUP_ID + " = ?";
-                String[] selectionArgs = {groupId};
-                try (Cursor cursor =
-                        db.query(TABLE_GROUP_PUSH_BUNDLES, columns, selection, selectionArgs, null, null, null)) {
-                    if (cursor.moveToLast()) {
-                        return new PushBundleDatabaseEntry(
-                                cursor.getInt(cursor.getColumnIndex(Column.NOTIFICATION_ID)),
-                                cursor.getLong(cursor.getColumnIndex(Column.ROW_ID)),
-                                getBundle(cursor));
-                    } else {
-                        throw new Exception();
-                    }
-                }
-            } catch (Exception e) {
-                PWLog.error("Failed to obtain the last status bar notification", e);
-                throw e;
+        String[] columns = {Column.NOTIFICATION_ID, Column.PUSH_BUNDLE_JSON, Column.GROUP_ID, Column.ROW_ID};
+        String selection = Column.GROUP_ID + " = ?";
+        String[] selectionArgs = {groupId};
+        try (Cursor cursor =
+                getDatabase().query(TABLE_GROUP_PUSH_BUNDLES, columns, selection, selectionArgs, null, null, null)) {
+            if (cursor.moveToLast()) {
+                return new PushBundleDatabaseEntry(
+                        cursor.getInt(cursor.getColumnIndex(Column.NOTIFICATION_ID)),
+                        cursor.getLong(cursor.getColumnIndex(Column.ROW_ID)),
+                        getBundle(cursor));
+            } else {
+                throw new Exception();
             }
+        } catch (Exception e) {
+            PWLog.error("Failed to obtain the last status bar notification", e);
+            throw e;
         }
     }
 
     private void remove(long id, String tableName) {
         synchronized (mutex) {
-            try (SQLiteDatabase db = getWritableDatabase()) {
-                int result = db.delete(tableName, Column.ROW_ID + "=" + id, null);
-                if (result <= 0) {
-                    PWLog.noise(TAG, "failed to remove push bundle with id: " + id);
-                }
+            SQLiteStatement delete = getStatement("DELETE FROM " + tableName + " WHERE " + Column.ROW_ID + " = ?");
+            delete.bindLong(1, id);
+            int result = delete.executeUpdateDelete();
+            if (result <= 0) {
+                PWLog.noise(TAG, "failed to remove push bundle with id: " + id);
             }
         }
     }
 
     private void removeAll(String tableName) {
         synchronized (mutex) {
-            try (SQLiteDatabase db = getWritableDatabase()) {
-                int result = db.delete(tableName, null, null);
-                if (result <= 0) {
-                    PWLog.noise(TAG, "failed to remove group push bundles");
-                }
+            int result = getDatabase().delete(tableName, null, null);
+            if (result <= 0) {
+                PWLog.noise(TAG, "failed to remove group push bundles");
             }
         }
     }
 
-    private ContentValues getPushBundleContentValues(Bundle pushBundle) {
-        ContentValues cv = new ContentValues();
-        cv.put(Column.PUSH_BUNDLE_JSON, JsonUtils.bundleToJson(pushBundle).toString());
-        return cv;
-    }
-
-    private ContentValues getGroupPushBundleContentValues(Bundle pushBundle, int id, String groupId) {
-        ContentValues cv = new ContentValues();
-        cv.put(Column.PUSH_BUNDLE_JSON, JsonUtils.bundleToJson(pushBundle).toString());
-        cv.put(Column.NOTIFICATION_ID, id);
-        cv.put(Column.GROUP_ID, groupId);
-        cv.put(Column.MSG_TAG, PushBundleDataProvider.getMessageTag(pushBundle));
-        return cv;
-    }
-
     private Bundle getBundle(Cursor c) {
         String pushBundleJson = c.getString(c.getColumnIndex(Column.PUSH_BUNDLE_JSON));
         return JsonUtils.jsonStringToBundle(pushBundleJson);
@@ -0,0 +1,26 @@
+package com.pushwoosh.repository;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Bounded history of shown pushes returned by {@link com.pushwoosh.Pushwoosh#getPushHistory()}.
+ * <p>
+ * Works as a ring: adding a push to a full history drops the oldest one, so an append costs the same
+ * whatever the capacity and never rewrites the pushes already stored. Pushes are stored as JSON.
+ */
+public interface PushHistoryStorage {
+    /**
+     * Appends a push, dropping the oldest one if the history is full.
+     */
+    void add(@NonNull String message);
+
+    /**
+     * @return stored pushes, oldest first
+     */
+    @NonNull
+    List<String> getAll();
+
+    void clear();
+}
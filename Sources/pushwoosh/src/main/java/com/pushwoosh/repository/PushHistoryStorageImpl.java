@@ -0,0 +1,166 @@
+package com.pushwoosh.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.pushwoosh.internal.utils.ObjectSerializer;
+import com.pushwoosh.internal.utils.PWLog;
+import com.pushwoosh.internal.utils.PersistentSQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows are numbered in the order they are added, an append inserts one row and deletes the one that
+ * fell out of the ring by its number. The history that older SDK versions kept in preferences as a
+ * serialized list is moved here on first use.
+ */
+public class PushHistoryStorageImpl extends PersistentSQLiteOpenHelper implements PushHistoryStorage {
+    private static final String TAG = PushHistoryStorageImpl.class.getSimpleName();
+    private static final String DB_NAME = "pushHistoryDb.db";
+    private static final int VERSION = 1;
+
+    private static final String TABLE_HISTORY = "pushHistory";
+
+    private static class Column {
+        static final String ID = "id";
+        static final String MESSAGE = "message";
+    }
+
+    private final int capacity;
+    @Nullable
+    private final SharedPreferences legacyPreferences;
+    private volatile boolean migrated;
+
+    /**
+     * @param legacyPreferences preferences holding {@link NotificationPrefs#PROPERTY_PUSH_HISTORY}
+     */
+    public PushHistoryStorageImpl(Context context, int capacity, @Nullable SharedPreferences legacyPreferences) {
+        super(context, DB_NAME, VERSION);
+        this.capacity = capacity;
+        this.legacyPreferences = legacyPreferences;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("create table " + TABLE_HISTORY + " ("
+                + Column.ID + " INTEGER PRIMARY KEY, "
+                + Column.MESSAGE + " TEXT NOT NULL"
+                + ");");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_HISTORY);
+        onCreate(db);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.setVersion(oldVersion);
+    }
+
+    @Override
+    public void add(@NonNull String message) {
+        synchronized (mutex) {
+            migrateIfNeeded();
+            SQLiteDatabase db = getDatabase();
+            try {
+                db.beginTransaction();
+                try {
+                    append(message);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to add push to history", e);
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public List<String> getAll() {
+        if (!migrated) {
+            synchronized (mutex) {
+                migrateIfNeeded();
+            }
+        }
+
+        List<String> messages = new ArrayList<>(capacity);
+        String sql = "SELECT " + Column.MESSAGE + " FROM " + TABLE_HISTORY + " ORDER BY " + Column.ID + " ASC";
+        try (Cursor cursor = getDatabase().rawQuery(sql, null)) {
+            while (cursor.moveToNext()) {
+                messages.add(cursor.getString(0));
+            }
+        } catch (Exception e) {
+            PWLog.error(TAG, "Failed to read push history", e);
+        }
+        return messages;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (mutex) {
+            migrateIfNeeded();
+            try {
+                getStatement("DELETE FROM " + TABLE_HISTORY).executeUpdateDelete();
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to clear push history", e);
+            }
+        }
+    }
+
+    // must be called holding mutex inside a transaction
+    private void append(String message) {
+        SQLiteStatement insert = getStatement("INSERT INTO " + TABLE_HISTORY + " (" + Column.MESSAGE + ") VALUES (?)");
+        insert.bindString(1, message);
+        long id = insert.executeInsert();
+
+        // ids grow by one per push, so at most one row falls out of the ring
+        SQLiteStatement trim = getStatement("DELETE FROM " + TABLE_HISTORY + " WHERE " + Column.ID + " <= ?");
+        trim.bindLong(1, id - capacity);
+        trim.executeUpdateDelete();
+    }
+
+    // must be called holding mutex
+    private void migrateIfNeeded() {
+        if (migrated) {
+            return;
+        }
+        migrated = true;
+
+        String legacyHistory = legacyPreferences == null
+                ? null
+                : legacyPreferences.getString(NotificationPrefs.PROPERTY_PUSH_HISTORY, null);
+        if (legacyHistory == null) {
+            return;
+        }
+
+        try {
+            ArrayList<String> messages = ObjectSerializer.deserialize(legacyHistory, ArrayList.class, String.class);
+            if (messages != null) {
+                SQLiteDatabase db = getDatabase();
+                db.beginTransaction();
+                try {
+                    for (String message : messages) {
+                        append(message);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+        } catch (Exception e) {
+            PWLog.error(TAG, "Failed to migrate push history", e);
+        }
+        legacyPreferences.edit().remove(NotificationPrefs.PROPERTY_PUSH_HISTORY).apply();
+    }
+}
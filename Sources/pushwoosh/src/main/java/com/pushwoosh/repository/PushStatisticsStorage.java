@@ -0,0 +1,38 @@
+package com.pushwoosh.repository;
+
+import com.pushwoosh.repository.util.PushStatisticsEvent;
+
+import java.util.List;
+
+/**
+ * Durable queue of push delivery and open events waiting to be sent to Pushwoosh.
+ * <p>
+ * Events are appended on push receive/open and drained in batches by
+ * {@link com.pushwoosh.PushStatisticsWorker}.
+ */
+public interface PushStatisticsStorage {
+    /**
+     * Appends an event to the queue. An event with the same type and hash that is
+     * already queued is kept as is.
+     *
+     * @return {@code true} if the event was queued or is already queued
+     */
+    boolean add(String eventType, String hash, String metadata);
+
+    /**
+     * @return up to {@code limit} oldest events of the given type in insertion order
+     */
+    List<PushStatisticsEvent> peek(String eventType, int limit);
+
+    void remove(long rowId);
+
+    /**
+     * Increments the attempt counter of the event.
+     *
+     * @return the updated attempt count
+     * @throws RuntimeException if the counter can't be updated
+     */
+    int incrementAttempts(long rowId);
+
+    int count(String eventType);
+}
@@ -0,0 +1,151 @@
+package com.pushwoosh.repository;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.pushwoosh.internal.utils.PWLog;
+import com.pushwoosh.internal.utils.PersistentSQLiteOpenHelper;
+import com.pushwoosh.repository.util.PushStatisticsEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class PushStatisticsStorageImpl extends PersistentSQLiteOpenHelper implements PushStatisticsStorage {
+    private static final String TAG = PushStatisticsStorageImpl.class.getSimpleName();
+    private static final String DB_NAME = "pushStatisticsDb.db";
+    private static final int VERSION = 1;
+
+    private static final String TABLE_EVENTS = "pushStatisticsEvents";
+    private static final String INDEX_EVENT_TYPE_HASH = "idx_push_stat_type_hash";
+
+    private static class Column {
+        static final String ROW_ID = "rowid";
+        static final String EVENT_TYPE = "event_type";
+        static final String HASH = "hash";
+        static final String METADATA = "metadata";
+        static final String ATTEMPTS = "attempts";
+    }
+
+    public PushStatisticsStorageImpl(Context context) {
+        super(context, DB_NAME, VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("create table " + TABLE_EVENTS + " ("
+                + Column.EVENT_TYPE + " TEXT NOT NULL, "
+                + Column.HASH + " TEXT NOT NULL, "
+                + Column.METADATA + " TEXT, "
+                + Column.ATTEMPTS + " INTEGER NOT NULL DEFAULT 0"
+                + ");");
+        // UNIQUE INDEX keeps the old "eventType_hash" unique work semantics:
+        // a second delivery/open of the same push is not queued twice.
+        db.execSQL("create unique index " + INDEX_EVENT_TYPE_HASH + " on "
+                + TABLE_EVENTS + "(" + Column.EVENT_TYPE + ", " + Column.HASH + ");");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_EVENTS);
+        onCreate(db);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.setVersion(oldVersion);
+    }
+
+    @Override
+    public boolean add(String eventType, String hash, String metadata) {
+        synchronized (mutex) {
+            try {
+                SQLiteStatement insert = getStatement("INSERT OR IGNORE INTO " + TABLE_EVENTS + " ("
+                        + Column.EVENT_TYPE + ", " + Column.HASH + ", " + Column.METADATA + ") VALUES (?, ?, ?)");
+                insert.bindString(1, eventType);
+                insert.bindString(2, hash);
+                bindStringOrNull(insert, 3, metadata);
+                insert.executeInsert();
+                return true;
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to queue " + eventType + " event", e);
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public List<PushStatisticsEvent> peek(String eventType, int limit) {
+        String[] columns = {Column.ROW_ID, Column.EVENT_TYPE, Column.HASH, Column.METADATA, Column.ATTEMPTS};
+        String selection = Column.EVENT_TYPE + " = ?";
+        String[] selectionArgs = {eventType};
+        try (Cursor cursor = getDatabase().query(TABLE_EVENTS, columns, selection, selectionArgs,
+                null, null, Column.ROW_ID + " ASC", String.valueOf(limit))) {
+            List<PushStatisticsEvent> events = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                events.add(new PushStatisticsEvent(
+                        cursor.getLong(0),
+                        cursor.getString(1),
+                        cursor.getString(2),
+                        cursor.getString(3),
+                        cursor.getInt(4)));
+            }
+            return events;
+        } catch (Exception e) {
+            PWLog.error(TAG, "Failed to read queued " + eventType + " events", e);
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public void remove(long rowId) {
+        synchronized (mutex) {
+            try {
+                SQLiteStatement delete = getStatement("DELETE FROM " + TABLE_EVENTS
+                        + " WHERE " + Column.ROW_ID + " = ?");
+                delete.bindLong(1, rowId);
+                delete.executeUpdateDelete();
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to remove push statistics event with id: " + rowId, e);
+            }
+        }
+    }
+
+    @Override
+    public int incrementAttempts(long rowId) {
+        synchronized (mutex) {
+            try {
+                SQLiteStatement update = getStatement("UPDATE " + TABLE_EVENTS
+                        + " SET " + Column.ATTEMPTS + " = " + Column.ATTEMPTS + " + 1"
+                        + " WHERE " + Column.ROW_ID + " = ?");
+                update.bindLong(1, rowId);
+                update.executeUpdateDelete();
+                SQLiteStatement select = getStatement("SELECT " + Column.ATTEMPTS + " FROM " + TABLE_EVENTS
+                        + " WHERE " + Column.ROW_ID + " = ?");
+                select.bindLong(1, rowId);
+                return (int) select.simpleQueryForLong();
+            } catch (RuntimeException e) {
+                // a storage error says nothing about the event, which stays queued for the next attempt
+                PWLog.error(TAG, "Failed to update push statistics event with id: " + rowId, e);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public int count(String eventType) {
+        synchronized (mutex) {
+            try {
+                SQLiteStatement count = getStatement("SELECT COUNT(*) FROM " + TABLE_EVENTS
+                        + " WHERE " + Column.EVENT_TYPE + " = ?");
+                count.bindString(1, eventType);
+                return (int) count.simpleQueryForLong();
+            } catch (Exception e) {
+                PWLog.error(TAG, "Failed to count queued " + eventType + " events", e);
+                return 0;
+            }
+        }
+    }
+}
@@ -122,6 +122,13 @@ public class PushwooshRepository {
         sendTagsProcessor.sendTags(jsonTags, listener);
     }
 
+    /**
+     * Sends tags that were set but not acknowledged before the previous process ended.
+     */
+    public void sendPendingTags() {
+        sendTagsProcessor.flushPending();
+    }
+
     public void sendAdvertisingId(@Nullable String advertisingId, @Nullable Callback<Void, NetworkException> callback) {
         if (requestManager == null) {
             PWLog.error(TAG, "Request manager is null, can't send advertising ID");
@@ -336,8 +343,11 @@ public class PushwooshRepository {
     }
 
     public List<PushMessage> getPushHistory() {
-        List<String> pushHistoryStrings = notificationPrefs.pushHistory().get();
-        List<PushMessage> result = new ArrayList<>();
+        PushHistoryStorage pushHistoryStorage = RepositoryModule.getPushHistoryStorage();
+        List<String> pushHistoryStrings = pushHistoryStorage == null
+                ? new ArrayList<>()
+                : pushHistoryStorage.getAll();
+        List<PushMessage> result = new ArrayList<>(pushHistoryStrings.size());
         for (String pushString : pushHistoryStrings) {
             Bundle pushBundle = new Bundle();
 
@@ -364,6 +374,12 @@ public class PushwooshRepository {
         notificationPrefs.tags().set(null);
         registrationPrefs.advertisingId().set("");
         registrationPrefs.removeAllDeviceData().set(true);
+        sendTagsProcessor.clear();
+
+        InAppRepository inAppRepository = InAppModule.getInAppRepository();
+        if (inAppRepository != null) {
+            inAppRepository.clearPendingEvents();
+        }
     }
 
     public boolean isDeviceDataRemoved() {
@@ -28,19 +28,21 @@ package com.pushwoosh.repository;
 
 import android.text.TextUtils;
 
-import com.pushwoosh.internal.platform.utils.GeneralUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.ArrayList;
-
 public class RegisterDeviceRequest extends AppOpenRequest {
 	private final String deviceId;
 	private final String tagsJson;
 	private final int platform;
 	private final String appCode;
+	// inventory and registration key of the last built params, acknowledged when the server accepts them
+	private volatile SoundInventory.Snapshot sentSounds;
+	private volatile String soundsRegistrationKey;
 
 	RegisterDeviceRequest(String deviceId, String tagsJson, int platform) {
 		this.deviceId = deviceId;
@@ -71,10 +73,55 @@ public class RegisterDeviceRequest extends AppOpenRequest {
 			params.put("tags", tagsObject);
 		}
 
-		ArrayList<String> rawResources = GeneralUtils.getRawResourses();
-		if (rawResources != null) {
-			JSONArray array = new JSONArray(rawResources);
-			params.put("sounds", array);
+		putSounds(params);
+	}
+
+	/**
+	 * Sends {@code sounds} only when the inventory changed since the server last accepted it for this
+	 * application and device; the server keeps the previously registered list otherwise.
+	 */
+	private void putSounds(JSONObject params) throws JSONException {
+		sentSounds = null;
+		SoundInventory soundInventory = RepositoryModule.getSoundInventory();
+		if (soundInventory == null) {
+			return;
+		}
+
+		SoundInventory.Snapshot sounds = soundInventory.get();
+		// identity members are written from RequestBaseParams, params only has the hwid this request overrides
+		String hwid = params.has("hwid") ? params.getString("hwid") : identityHwid();
+		if (hwid == null) {
+			// no key to acknowledge the inventory under, send it every time
+			params.put("sounds", new JSONArray(sounds.getSounds()));
+			return;
+		}
+		String registrationKey = appCode + "|" + hwid;
+		if (soundInventory.isAcknowledged(registrationKey, sounds)) {
+			return;
+		}
+		params.put("sounds", new JSONArray(sounds.getSounds()));
+		soundsRegistrationKey = registrationKey;
+		sentSounds = sounds;
+	}
+
+	@Nullable
+	private String identityHwid() {
+		try {
+			return getHwid();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	@Nullable
+	@Override
+	public Void parseResponse(@NonNull JSONObject response) throws JSONException {
+		SoundInventory.Snapshot sounds = sentSounds;
+		SoundInventory soundInventory = RepositoryModule.getSoundInventory();
+		if (sounds != null && soundInventory != null) {
+			soundInventory.acknowledge(soundsRegistrationKey, sounds);
 		}
+		return super.parseResponse(response);
 	}
 }
@@ -53,7 +53,7 @@ public class RegistrationPrefs implements RegistrationPrefsInterface {
     private static final String BASE_API_URL_FORMAT = "https://%s.api.pushwoosh.com/json/1.3/";
     private static final String DEFAULT_TRACKING_URL = "https://tracking.svc-nue.pushwoosh.com/api/v2/device-api/";
 
-    private static final String PREFERENCE = "com.pushwoosh.registration";
+    static final String PREFERENCE = "com.pushwoosh.registration";
 
     private static final String PROPERTY_APPLICATION_ID = "application_id";
     private static final String PROPERTY_PROJECT_ID = "project_id";
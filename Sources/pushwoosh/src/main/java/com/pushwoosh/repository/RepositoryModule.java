@@ -29,14 +29,17 @@ package com.pushwoosh.repository;
 import android.content.Context;
 import android.os.Build;
 
+import com.pushwoosh.Pushwoosh;
 import com.pushwoosh.internal.Plugin;
 import com.pushwoosh.internal.platform.AndroidPlatformModule;
 import com.pushwoosh.internal.platform.prefs.PrefsFactory;
 import com.pushwoosh.internal.platform.prefs.PrefsProvider;
 import com.pushwoosh.internal.platform.prefs.migration.MigrationScheme;
 import com.pushwoosh.internal.platform.prefs.migration.PrefsMigration;
+import com.pushwoosh.internal.utils.AppVersionProvider;
 import com.pushwoosh.internal.utils.BackgroundExecutor;
 import com.pushwoosh.internal.utils.Config;
+import com.pushwoosh.internal.utils.NotificationImageCache;
 import com.pushwoosh.internal.utils.PWLog;
 import com.pushwoosh.repository.util.StatusBarNotificationHelper;
 
@@ -52,8 +55,14 @@ public class RepositoryModule {
     private static InboxNotificationStorage inboxNotificationStorage;
     private static SilentRichMediaStorage silentRichMediaStorage;
     private static SummaryNotificationStorage summaryNotificationStorage;
+    private static PushStatisticsStorage pushStatisticsStorage;
+    private static PendingTagsStorage pendingTagsStorage;
+    private static PushHistoryStorage pushHistoryStorage;
+    private static SoundInventory soundInventory;
+    private static NotificationImageCache notificationImageCache;
 
     public static void init(Config config, DeviceRegistrar deviceRegistrar) {
+        preloadPreferences();
 
         migratePrefsIfNeeded(config);
 
@@ -79,11 +88,6 @@ public class RepositoryModule {
             pushBundleStorage = new PushBundleStorageImpl(context);
         }
 
-        if (inboxNotificationStorage == null) {
-            Context context = AndroidPlatformModule.getApplicationContext();
-            inboxNotificationStorage = new InboxNotificationStorageImpl(context);
-        }
-
         if (silentRichMediaStorage == null) {
             Context context = AndroidPlatformModule.getApplicationContext();
             silentRichMediaStorage = new SilentRichMediaStorageImpl(context);
@@ -100,6 +104,22 @@ public class RepositoryModule {
         }
     }
 
+    /**
+     * Every {@code getSharedPreferences()} starts reading its file on a background thread, the files
+     * read during startup are requested up front so that they load in parallel and the main thread
+     * only waits for the slowest one instead of each in turn.
+     */
+    private static void preloadPreferences() {
+        PrefsProvider prefsProvider = AndroidPlatformModule.getPrefsProvider();
+        if (prefsProvider == null) {
+            return;
+        }
+        prefsProvider.providePrefs(NotificationPrefs.PREFERENCE);
+        prefsProvider.providePrefs(RegistrationPrefs.PREFERENCE);
+        prefsProvider.providePrefs(AppVersionProvider.PREFS_NAME);
+        prefsProvider.providePrefs(SoundInventory.PREFS_NAME);
+    }
+
     private static void createLocalNotificationStorage() {
         Context context = AndroidPlatformModule.getApplicationContext();
         if (context == null) {
@@ -175,7 +195,20 @@ public class RepositoryModule {
         return pushBundleStorage;
     }
 
-    public static InboxNotificationStorage getInboxNotificationStorage() {
+    /**
+     * Inbox is only used by the apps with {@code pushwoosh-inbox}, so the storage is created on first use.
+     *
+     * @return inbox messages storage or {@code null} if application context is not available yet
+     */
+    public static synchronized InboxNotificationStorage getInboxNotificationStorage() {
+        if (inboxNotificationStorage == null) {
+            Context context = AndroidPlatformModule.getApplicationContext();
+            if (context == null) {
+                PWLog.error(AndroidPlatformModule.NULL_CONTEXT_MESSAGE);
+                return null;
+            }
+            inboxNotificationStorage = new InboxNotificationStorageImpl(context);
+        }
         return inboxNotificationStorage;
     }
 
@@ -186,4 +219,105 @@ public class RepositoryModule {
     public static SummaryNotificationStorage getSummaryNotificationStorage() {
         return summaryNotificationStorage;
     }
+
+    /**
+     * Push statistics can be scheduled from the messaging service before the platform
+     * is initialized, so the storage is created on first use rather than in {@link #init}.
+     *
+     * @return push statistics queue or {@code null} if application context is not available yet
+     */
+    public static synchronized PushStatisticsStorage getPushStatisticsStorage() {
+        if (pushStatisticsStorage == null) {
+            Context context = AndroidPlatformModule.getApplicationContext();
+            if (context == null) {
+                PWLog.error(AndroidPlatformModule.NULL_CONTEXT_MESSAGE);
+                return null;
+            }
+            pushStatisticsStorage = new PushStatisticsStorageImpl(context);
+        }
+        return pushStatisticsStorage;
+    }
+
+    public static synchronized void setPushStatisticsStorage(PushStatisticsStorage storage) {
+        pushStatisticsStorage = storage;
+    }
+
+    /**
+     * @return queue of tags waiting for {@code /setTags} or {@code null} if application context is not available yet
+     */
+    public static synchronized PendingTagsStorage getPendingTagsStorage() {
+        if (pendingTagsStorage == null) {
+            Context context = AndroidPlatformModule.getApplicationContext();
+            if (context == null) {
+                PWLog.error(AndroidPlatformModule.NULL_CONTEXT_MESSAGE);
+                return null;
+            }
+            pendingTagsStorage = new PendingTagsStorageImpl(context);
+        }
+        return pendingTagsStorage;
+    }
+
+    public static synchronized void setPendingTagsStorage(PendingTagsStorage storage) {
+        pendingTagsStorage = storage;
+    }
+
+    /**
+     * @return history of shown pushes or {@code null} if application context is not available yet
+     */
+    public static synchronized PushHistoryStorage getPushHistoryStorage() {
+        if (pushHistoryStorage == null) {
+            Context context = AndroidPlatformModule.getApplicationContext();
+            if (context == null) {
+                PWLog.error(AndroidPlatformModule.NULL_CONTEXT_MESSAGE);
+                return null;
+            }
+            pushHistoryStorage = new PushHistoryStorageImpl(context, Pushwoosh.PUSH_HISTORY_CAPACITY,
+                    AndroidPlatformModule.getPrefsProvider().providePrefs(NotificationPrefs.PREFERENCE));
+        }
+        return pushHistoryStorage;
+    }
+
+    public static synchronized void setPushHistoryStorage(PushHistoryStorage storage) {
+        pushHistoryStorage = storage;
+    }
+
+    /**
+     * @return sound files of the application or {@code null} if application context is not available yet
+     */
+    public static synchronized SoundInventory getSoundInventory() {
+        if (soundInventory == null) {
+            if (AndroidPlatformModule.getApplicationContext() == null) {
+                PWLog.error(AndroidPlatformModule.NULL_CONTEXT_MESSAGE);
+                return null;
+            }
+            PrefsProvider prefsProvider = AndroidPlatformModule.getPrefsProvider();
+            soundInventory = new SoundInventory(
+                    prefsProvider.providePrefs(SoundInventory.PREFS_NAME),
+                    new AppVersionProvider(prefsProvider.providePrefs(AppVersionProvider.PREFS_NAME)));
+        }
+        return soundInventory;
+    }
+
+    public static synchronized void setSoundInventory(SoundInventory inventory) {
+        soundInventory = inventory;
+    }
+
+    /**
+     * @return cache of notification images or {@code null} if application context is not available yet
+     */
+    public static synchronized NotificationImageCache getNotificationImageCache() {
+        if (notificationImageCache == null) {
+            Context context = AndroidPlatformModule.getApplicationContext();
+            if (context == null) {
+                PWLog.error(AndroidPlatformModule.NULL_CONTEXT_MESSAGE);
+                return null;
+            }
+            notificationImageCache = new NotificationImageCache(context.getCacheDir());
+        }
+        return notificationImageCache;
+    }
+
+    public static synchronized void setNotificationImageCache(NotificationImageCache cache) {
+        notificationImageCache = cache;
+    }
 }
@@ -26,89 +26,413 @@
 
 package com.pushwoosh.repository;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.pushwoosh.exception.PushwooshException;
 import com.pushwoosh.function.Callback;
 import com.pushwoosh.function.Result;
+import com.pushwoosh.internal.event.AppIdChangedEvent;
+import com.pushwoosh.internal.event.EventBus;
+import com.pushwoosh.internal.event.InitHwidEvent;
+import com.pushwoosh.internal.event.ServerCommunicationStartedEvent;
+import com.pushwoosh.internal.event.UserIdUpdatedEvent;
+import com.pushwoosh.internal.network.CommunicationStoppedException;
 import com.pushwoosh.internal.network.NetworkException;
 import com.pushwoosh.internal.network.NetworkModule;
 import com.pushwoosh.internal.network.RequestManager;
-import com.pushwoosh.internal.utils.Accumulator;
-import com.pushwoosh.internal.utils.JsonUtils;
+import com.pushwoosh.internal.network.RetryEngine;
+import com.pushwoosh.internal.utils.BackgroundExecutor;
 import com.pushwoosh.internal.utils.PWLog;
+import com.pushwoosh.repository.util.AcknowledgedTag;
 
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind sender of {@code /setTags}.
+ * <p>
+ * Tags are merged per name (the last write wins) and persisted in {@link PendingTagsStorage} until
+ * Pushwoosh acknowledges them, so they survive process death and failed requests. Merged tags are
+ * flushed once writes go quiet for {@link #QUIET_PERIOD_MS}, at the latest {@link #MAX_DELAY_MS}
+ * after the first unsent write, and immediately when {@link #MAX_BATCH_SIZE} names are waiting.
+ * Failed flushes are retried with the jittered backoff of {@link RetryEngine}. Plain values equal to the last acknowledged
+ * ones are not sent again; operations such as {@code incrementInt} or {@code appendList} always are.
+ * Tags rejected by Pushwoosh are dropped; while communication is stopped tags wait until it starts again.
+ */
+public class SendTagsProcessor {
+	private static final String TAG = SendTagsProcessor.class.getSimpleName();
+
+	@VisibleForTesting
+	static final long QUIET_PERIOD_MS = 250;
+	@VisibleForTesting
+	static final long MAX_DELAY_MS = 1000;
+	@VisibleForTesting
+	static final int MAX_BATCH_SIZE = 100;
+	@VisibleForTesting
+	static final long RETRY_MIN_DELAY_MS = TimeUnit.SECONDS.toMillis(5);
+	@VisibleForTesting
+	static final long RETRY_MAX_DELAY_MS = TimeUnit.MINUTES.toMillis(5);
+	// tags may be changed on the server side, so an acknowledged value is trusted for a limited time
+	@VisibleForTesting
+	static final long ACKNOWLEDGED_TTL_MS = TimeUnit.HOURS.toMillis(24);
+
+	private static final String INCREMENT_PREFIX = "[\"#pwinc#";
+
+	private final Object lock = new Object();
+	private final Map<String, String> pending = new LinkedHashMap<>();
+	private final List<Callback<Void, PushwooshException>> listeners = new ArrayList<>();
+	private final Map<String, AcknowledgedTag> acknowledged = new HashMap<>();
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final Runnable flushRunnable = this::flush;
+
+	@Nullable
+	private final PendingTagsStorage storage;
+	private final Executor storageExecutor;
+
+	private boolean restored;
+	private boolean inFlight;
+	private long oldestWriteAt = -1;
+	private long retryAt;
+	private long retryDelayMs;
+
+	private final AtomicInteger requestsSent = new AtomicInteger();
+	private final AtomicInteger requestsSkipped = new AtomicInteger();
+
+	public SendTagsProcessor() {
+		this(RepositoryModule.getPendingTagsStorage(), BackgroundExecutor::execute);
+	}
 
-public class SendTagsProcessor implements Accumulator.Completion<SendTagsProcessor.SendTagsInvocation> {
+	@VisibleForTesting
+	SendTagsProcessor(@Nullable PendingTagsStorage storage, @NonNull Executor storageExecutor) {
+		this.storage = storage;
+		this.storageExecutor = storageExecutor;
+		// acknowledged values belong to one device of one user of one application
+		EventBus.subscribe(AppIdChangedEvent.class, event -> clearAcknowledged());
+		EventBus.subscribe(UserIdUpdatedEvent.class, event -> clearAcknowledged());
+		EventBus.subscribe(InitHwidEvent.class, event -> clearAcknowledged());
+		EventBus.subscribe(ServerCommunicationStartedEvent.class, event -> onCommunicationStarted());
+	}
 
-	public static class SendTagsInvocation {
-		private final JSONObject tags;
-		private final Callback<Void, PushwooshException> handler;
+	public void sendTags(@NonNull JSONObject tags, Callback<Void, PushwooshException> listener) {
+		Map<String, String> encoded = new LinkedHashMap<>();
+		Iterator<String> names = tags.keys();
+		while (names.hasNext()) {
+			String name = names.next();
+			encoded.put(name, encode(tags.opt(name)));
+		}
 
-		SendTagsInvocation(JSONObject tags, Callback<Void, PushwooshException> handler) {
-			this.tags = tags;
-			this.handler = handler;
+		synchronized (lock) {
+			for (Map.Entry<String, String> tag : encoded.entrySet()) {
+				// re-insert so that the map keeps the order of the latest writes
+				pending.remove(tag.getKey());
+				pending.put(tag.getKey(), tag.getValue());
+			}
+			if (listener != null) {
+				listeners.add(listener);
+			}
+			long now = SystemClock.uptimeMillis();
+			if (oldestWriteAt < 0) {
+				oldestWriteAt = now;
+			}
+			scheduleFlushLocked(now);
+			// enqueued under the lock so that it can't be overtaken by the removal after the flush
+			if (storage != null && !encoded.isEmpty()) {
+				storageExecutor.execute(() -> storage.putPending(encoded));
+			}
 		}
+	}
 
-		@NonNull
-		public JSONObject getTags() {
-			return tags;
+	/**
+	 * Loads tags left unsent by a previous process and flushes them. Called on SDK start, when
+	 * requests can be sent.
+	 */
+	public void flushPending() {
+		if (storage == null) {
+			return;
 		}
+		storageExecutor.execute(() -> {
+			Map<String, String> stored = storage.getPending();
+			Map<String, AcknowledgedTag> accepted =
+					storage.getAcknowledged(System.currentTimeMillis() - ACKNOWLEDGED_TTL_MS);
+			synchronized (lock) {
+				if (!restored) {
+					restored = true;
+					for (Map.Entry<String, AcknowledgedTag> tag : accepted.entrySet()) {
+						if (!acknowledged.containsKey(tag.getKey())) {
+							acknowledged.put(tag.getKey(), tag.getValue());
+						}
+					}
+				}
+				for (Map.Entry<String, String> tag : stored.entrySet()) {
+					// values written by this process are newer
+					if (!pending.containsKey(tag.getKey())) {
+						pending.put(tag.getKey(), tag.getValue());
+					}
+				}
+				if (!pending.isEmpty()) {
+					PWLog.debug(TAG, "Flushing " + pending.size() + " pending tags");
+					postFlushLocked(0);
+				}
+			}
+		});
+	}
 
-		public Callback<Void, PushwooshException> getHandler() {
-			return handler;
+	/**
+	 * Drops the pending and acknowledged tags, in memory and stored, called when device data is removed.
+	 * Callers waiting for a result fail; a request in flight is still answered, but its tags are not sent again.
+	 */
+	public void clear() {
+		List<Callback<Void, PushwooshException>> waiting;
+		synchronized (lock) {
+			pending.clear();
+			acknowledged.clear();
+			waiting = new ArrayList<>(listeners);
+			listeners.clear();
+			// what a previous process stored is removed with the rest, there is nothing to restore
+			restored = true;
+			oldestWriteAt = -1;
+			retryDelayMs = 0;
+			retryAt = 0;
+			handler.removeCallbacks(flushRunnable);
+			if (storage != null) {
+				storageExecutor.execute(storage::clear);
+			}
 		}
+		deliver(waiting, Result.fromException(new NetworkException("Pending tags are removed")));
 	}
 
+	@VisibleForTesting
+	int getRequestsSent() {
+		return requestsSent.get();
+	}
 
-	private static final int TAG_ACCUMULATION_DELAY = 1000;
+	@VisibleForTesting
+	int getRequestsSkipped() {
+		return requestsSkipped.get();
+	}
 
-	private Accumulator<SendTagsInvocation> accumulator;
+	@VisibleForTesting
+	int getPendingCount() {
+		synchronized (lock) {
+			return pending.size();
+		}
+	}
 
-	public SendTagsProcessor() {
-		accumulator = new Accumulator<>(this, TAG_ACCUMULATION_DELAY);
+	private void scheduleFlushLocked(long now) {
+		long delay;
+		if (pending.size() >= MAX_BATCH_SIZE) {
+			delay = 0;
+		} else {
+			long oldest = oldestWriteAt < 0 ? now : oldestWriteAt;
+			delay = Math.min(QUIET_PERIOD_MS, Math.max(0, oldest + MAX_DELAY_MS - now));
+		}
+		// while backing off only callers waiting for a result get an earlier attempt
+		if (listeners.isEmpty() && retryAt > now) {
+			delay = Math.max(delay, retryAt - now);
+		}
+		postFlushLocked(delay);
 	}
 
-	public void sendTags(@NonNull JSONObject tags, Callback<Void, PushwooshException> listener) {
-		accumulator.accumulate(new SendTagsInvocation(tags, listener));
+	private void postFlushLocked(long delay) {
+		handler.removeCallbacks(flushRunnable);
+		handler.postDelayed(flushRunnable, delay);
 	}
 
-	@Override
-	public void onAccumulated(List<SendTagsProcessor.SendTagsInvocation> data) {
-		JSONObject tags = new JSONObject();
+	private void flush() {
+		final Map<String, String> batch;
+		final List<Callback<Void, PushwooshException>> batchListeners;
+		final Map<String, String> unchanged = new HashMap<>();
+		final JSONObject tags = new JSONObject();
+		synchronized (lock) {
+			if (inFlight || (pending.isEmpty() && listeners.isEmpty())) {
+				// a flush in flight reschedules itself when it completes
+				return;
+			}
+			batch = new LinkedHashMap<>(pending);
+			batchListeners = new ArrayList<>(listeners);
+			listeners.clear();
+			oldestWriteAt = -1;
+
+			long notBefore = System.currentTimeMillis() - ACKNOWLEDGED_TTL_MS;
+			for (Map.Entry<String, String> tag : batch.entrySet()) {
+				AcknowledgedTag accepted = acknowledged.get(tag.getKey());
+				if (!isOperation(tag.getValue()) && accepted != null && accepted.getTimestamp() >= notBefore
+						&& accepted.getValue().equals(tag.getValue())) {
+					unchanged.put(tag.getKey(), tag.getValue());
+					continue;
+				}
+				try {
+					tags.put(tag.getKey(), decode(tag.getValue()));
+				} catch (JSONException e) {
+					PWLog.error(TAG, "Dropping malformed tag " + tag.getKey(), e);
+					unchanged.put(tag.getKey(), tag.getValue());
+				}
+			}
+
+			if (tags.length() == 0) {
+				removeSentLocked(unchanged);
+			} else {
+				inFlight = true;
+			}
+		}
 
-		for (SendTagsInvocation sendTagsInvocation : data) {
-			JsonUtils.mergeJson(sendTagsInvocation.getTags(), tags);
+		if (tags.length() == 0) {
+			requestsSkipped.incrementAndGet();
+			PWLog.debug(TAG, "Tags are not changed since the last request, skipping");
+			deliver(batchListeners, Result.fromData(null));
+			return;
 		}
 
 		RequestManager requestManager = NetworkModule.getRequestManager();
-		if(requestManager == null){
-			NetworkException exception = new NetworkException("Request manager is null");
-			failedAccumulatedData(data, exception);
+		if (requestManager == null) {
+			onFailure(batch, batchListeners, new NetworkException("Request manager is null"));
 			return;
 		}
+		requestsSent.incrementAndGet();
 		requestManager.sendRequest(new SetTagsRequest(tags), result -> {
 			if (result.isSuccess()) {
-				for (SendTagsInvocation sendTagsInvocation : data) {
-					if (sendTagsInvocation.getHandler() != null) {
-						sendTagsInvocation.getHandler().process(Result.fromData(null));
-					}
-				}
-				PWLog.info("Tags successfully sent to Pushwoosh");
+				onSuccess(batch, unchanged, batchListeners);
 			} else {
-				failedAccumulatedData(data, result.getException());
+				onFailure(batch, batchListeners, result.getException());
 			}
 		});
 	}
 
-	private void failedAccumulatedData(List<SendTagsInvocation> data, NetworkException exception) {
-		for (SendTagsInvocation sendTagsInvocation : data) {
-			if (sendTagsInvocation.getHandler() != null) {
-				sendTagsInvocation.getHandler().process(Result.fromException(exception));
+	private void onSuccess(Map<String, String> batch, Map<String, String> unchanged,
+						   List<Callback<Void, PushwooshException>> batchListeners) {
+		Map<String, String> sent = new HashMap<>(batch);
+		sent.keySet().removeAll(unchanged.keySet());
+		long now = System.currentTimeMillis();
+		synchronized (lock) {
+			inFlight = false;
+			retryDelayMs = 0;
+			retryAt = 0;
+			for (Map.Entry<String, String> tag : sent.entrySet()) {
+				acknowledged.put(tag.getKey(), new AcknowledgedTag(tag.getValue(), now));
+			}
+			removeSentLocked(batch);
+			if (!pending.isEmpty() || !listeners.isEmpty()) {
+				scheduleFlushLocked(SystemClock.uptimeMillis());
+			}
+		}
+		if (storage != null) {
+			storageExecutor.execute(() -> storage.acknowledge(sent, now));
+		}
+		PWLog.info("Tags successfully sent to Pushwoosh");
+		deliver(batchListeners, Result.fromData(null));
+	}
+
+	private void onFailure(Map<String, String> batch, List<Callback<Void, PushwooshException>> batchListeners,
+						   NetworkException exception) {
+		if (!RetryEngine.isRetriableQueued(exception)) {
+			onRejected(batch, batchListeners, exception);
+			return;
+		}
+		synchronized (lock) {
+			inFlight = false;
+			long delay = RetryEngine.getInstance()
+					.nextRetryDelayMs(retryDelayMs, exception, RETRY_MIN_DELAY_MS, RETRY_MAX_DELAY_MS);
+			retryDelayMs = delay;
+			retryAt = SystemClock.uptimeMillis() + delay;
+			if (listeners.isEmpty()) {
+				postFlushLocked(delay);
+			} else {
+				scheduleFlushLocked(SystemClock.uptimeMillis());
+			}
+			PWLog.warn(TAG, "Failed to send tags, " + pending.size() + " tags will be retried in " + delay + " ms");
+		}
+		deliver(batchListeners, Result.fromException(exception));
+	}
+
+	private void onRejected(Map<String, String> batch, List<Callback<Void, PushwooshException>> batchListeners,
+							NetworkException exception) {
+		synchronized (lock) {
+			inFlight = false;
+			retryDelayMs = 0;
+			retryAt = 0;
+			if (exception instanceof CommunicationStoppedException) {
+				// kept until communication starts again, callers that set tags meanwhile get the same failure
+				PWLog.warn(TAG, "Communication is stopped, " + pending.size() + " tags are kept until it starts");
+				if (!listeners.isEmpty()) {
+					postFlushLocked(0);
+				}
+			} else {
+				// sending the same tags again would be rejected again
+				PWLog.error(TAG, "Tags are rejected, dropping " + batch.size() + " tags", exception);
+				removeSentLocked(batch);
+				if (!pending.isEmpty() || !listeners.isEmpty()) {
+					scheduleFlushLocked(SystemClock.uptimeMillis());
+				}
+			}
+		}
+		deliver(batchListeners, Result.fromException(exception));
+	}
+
+	private void onCommunicationStarted() {
+		synchronized (lock) {
+			if (!pending.isEmpty()) {
+				postFlushLocked(0);
 			}
 		}
 	}
+
+	private void removeSentLocked(Map<String, String> sent) {
+		for (Map.Entry<String, String> tag : sent.entrySet()) {
+			// a tag rewritten while the request was in flight stays pending
+			if (tag.getValue().equals(pending.get(tag.getKey()))) {
+				pending.remove(tag.getKey());
+			}
+		}
+		if (storage != null && !sent.isEmpty()) {
+			storageExecutor.execute(() -> storage.removePending(sent));
+		}
+	}
+
+	private void clearAcknowledged() {
+		synchronized (lock) {
+			acknowledged.clear();
+		}
+		if (storage != null) {
+			storageExecutor.execute(storage::clearAcknowledged);
+		}
+	}
+
+	private static void deliver(List<Callback<Void, PushwooshException>> listeners, Result<Void, PushwooshException> result) {
+		for (Callback<Void, PushwooshException> listener : listeners) {
+			listener.process(result);
+		}
+	}
+
+	private static String encode(Object value) {
+		return new JSONArray().put(value).toString();
+	}
+
+	private static Object decode(String value) throws JSONException {
+		return new JSONArray(value).get(0);
+	}
+
+	/**
+	 * @return true for tag operations (JSON objects) and legacy {@code #pwinc#} increments,
+	 * which change the tag relative to its current value and must never be deduplicated
+	 */
+	private static boolean isOperation(String encoded) {
+		return encoded.startsWith("[{") || encoded.startsWith(INCREMENT_PREFIX);
+	}
 }
@@ -26,11 +26,12 @@ class SetAdvertisingIdRequest extends PushRequest<Void> {
     }
 
     @Override
-    protected JSONObject getParams() throws JSONException, InterruptedException {
-        JSONObject params = new JSONObject();
-        params.put("application", getApplicationId());
-        params.put("hwid", getHwid());
+    protected boolean omitsDeviceInfo() {
+        return true;
+    }
+
+    @Override
+    protected void buildParams(JSONObject params) throws JSONException {
         params.put("madid", advertisingId != null ? advertisingId : JSONObject.NULL);
-        return params;
     }
 }
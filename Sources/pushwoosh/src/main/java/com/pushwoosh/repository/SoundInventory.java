@@ -0,0 +1,176 @@
+/*
+ *
+ * Copyright (c) 2017. Pushwoosh Inc. (http://www.pushwoosh.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * (i) the original and/or modified Software should be used exclusively to work with Pushwoosh services,
+ *
+ * (ii) the above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.pushwoosh.repository;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.pushwoosh.internal.platform.utils.GeneralUtils;
+import com.pushwoosh.internal.utils.AppVersionProvider;
+import com.pushwoosh.internal.utils.PWLog;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sound files shipped with the application ({@code res/raw} and {@code assets/www/res}), sent as
+ * {@code sounds} in {@code /registerDevice}.
+ * <p>
+ * Enumerating them reflects over {@code R$raw} and resolves every field through the resources, so the
+ * inventory is computed once per installed app version (see {@link AppVersionProvider}), persisted and
+ * kept in memory for the rest of the process. It also remembers which inventory the server has
+ * acknowledged for a given application and device, so registrations can leave out unchanged sounds.
+ */
+public class SoundInventory {
+	private static final String TAG = "SoundInventory";
+
+	static final String PREFS_NAME = "PWSoundInventory";
+	private static final String KEY_VERSION = "version";
+	private static final String KEY_SOUNDS = "sounds";
+	private static final String KEY_ACKNOWLEDGED = "acknowledged";
+
+	interface Scanner {
+		List<String> scan();
+	}
+
+	private final SharedPreferences prefs;
+	private final AppVersionProvider appVersionProvider;
+	private final Scanner scanner;
+	private final Object lock = new Object();
+	private Snapshot snapshot;
+
+	public SoundInventory(SharedPreferences prefs, AppVersionProvider appVersionProvider) {
+		this(prefs, appVersionProvider, GeneralUtils::getRawResourses);
+	}
+
+	@VisibleForTesting
+	SoundInventory(SharedPreferences prefs, AppVersionProvider appVersionProvider, Scanner scanner) {
+		this.prefs = prefs;
+		this.appVersionProvider = appVersionProvider;
+		this.scanner = scanner;
+	}
+
+	/**
+	 * @return sounds of the installed app version; scans resources only the first time this version runs
+	 */
+	@NonNull
+	public Snapshot get() {
+		synchronized (lock) {
+			if (snapshot == null) {
+				snapshot = load();
+			}
+			return snapshot;
+		}
+	}
+
+	/**
+	 * @param registrationKey identifies the application and device the inventory was registered for
+	 * @return true if the server has already accepted this inventory for {@code registrationKey}
+	 */
+	public boolean isAcknowledged(@NonNull String registrationKey, @NonNull Snapshot inventory) {
+		return acknowledgementOf(registrationKey, inventory).equals(prefs.getString(KEY_ACKNOWLEDGED, null));
+	}
+
+	/**
+	 * Records that the server has accepted {@code inventory} for {@code registrationKey}.
+	 */
+	public void acknowledge(@NonNull String registrationKey, @NonNull Snapshot inventory) {
+		prefs.edit().putString(KEY_ACKNOWLEDGED, acknowledgementOf(registrationKey, inventory)).apply();
+	}
+
+	/**
+	 * Makes the next registration send the sounds again.
+	 */
+	public void clearAcknowledged() {
+		prefs.edit().remove(KEY_ACKNOWLEDGED).apply();
+	}
+
+	private static String acknowledgementOf(String registrationKey, Snapshot inventory) {
+		return registrationKey + "|" + inventory.getHash();
+	}
+
+	private Snapshot load() {
+		String version = appVersionProvider.getCurrentVersion() + ":" + appVersionProvider.getLastUpdateTime();
+		String stored = prefs.getString(KEY_SOUNDS, null);
+		if (stored != null && version.equals(prefs.getString(KEY_VERSION, null))) {
+			try {
+				return Snapshot.fromJson(stored);
+			} catch (JSONException e) {
+				PWLog.noise(TAG, "Stored sound inventory is corrupted, scanning resources again", e);
+			}
+		}
+
+		List<String> sounds = scanner.scan();
+		Snapshot scanned = new Snapshot(sounds != null ? sounds : Collections.<String>emptyList());
+		prefs.edit()
+				.putString(KEY_VERSION, version)
+				.putString(KEY_SOUNDS, scanned.json)
+				.apply();
+		PWLog.noise(TAG, "Scanned %d sounds for app version %s", scanned.sounds.size(), version);
+		return scanned;
+	}
+
+	/**
+	 * Immutable list of sound file names with a digest that changes whenever the list does.
+	 */
+	public static final class Snapshot {
+		private final List<String> sounds;
+		private final String json;
+		private final String hash;
+
+		Snapshot(List<String> sounds) {
+			this.sounds = Collections.unmodifiableList(new ArrayList<>(sounds));
+			this.json = new JSONArray(this.sounds).toString();
+			this.hash = GeneralUtils.md5(json);
+		}
+
+		static Snapshot fromJson(String json) throws JSONException {
+			JSONArray array = new JSONArray(json);
+			List<String> sounds = new ArrayList<>(array.length());
+			for (int i = 0; i < array.length(); i++) {
+				sounds.add(array.getString(i));
+			}
+			return new Snapshot(sounds);
+		}
+
+		@NonNull
+		public List<String> getSounds() {
+			return sounds;
+		}
+
+		@NonNull
+		public String getHash() {
+			return hash;
+		}
+	}
+}
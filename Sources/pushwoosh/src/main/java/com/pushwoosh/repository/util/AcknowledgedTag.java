@@ -0,0 +1,28 @@
+package com.pushwoosh.repository.util;
+
+/**
+ * Tag value accepted by Pushwoosh as stored by {@link com.pushwoosh.repository.PendingTagsStorage}.
+ */
+public class AcknowledgedTag {
+    private final String value;
+    private final long timestamp;
+
+    public AcknowledgedTag(String value, long timestamp) {
+        this.value = value;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return JSON-encoded tag value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return time the value was acknowledged, in milliseconds since epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
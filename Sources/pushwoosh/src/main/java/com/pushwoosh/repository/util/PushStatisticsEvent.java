@@ -0,0 +1,40 @@
+package com.pushwoosh.repository.util;
+
+/**
+ * Single queued push statistics event as stored by {@link com.pushwoosh.repository.PushStatisticsStorage}.
+ */
+public class PushStatisticsEvent {
+    private final long rowId;
+    private final String eventType;
+    private final String hash;
+    private final String metadata;
+    private final int attempts;
+
+    public PushStatisticsEvent(long rowId, String eventType, String hash, String metadata, int attempts) {
+        this.rowId = rowId;
+        this.eventType = eventType;
+        this.hash = hash;
+        this.metadata = metadata;
+        this.attempts = attempts;
+    }
+
+    public long getRowId() {
+        return rowId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getMetadata() {
+        return metadata;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
@@ -236,6 +236,28 @@ public class AndroidManifestConfigTest {
         assertEquals(60, config.getExitIntentTimeoutSeconds());
     }
 
+    // Verifies that request compression is opt-in via gzip_requests meta-data.
+    @Test
+    public void requestCompressionIsReadFromMetaData() {
+        assertFalse(configWithMetaData(new Bundle()).isRequestCompressionEnabled());
+
+        Bundle metaData = new Bundle();
+        metaData.putBoolean("com.pushwoosh.gzip_requests", true);
+
+        assertTrue(configWithMetaData(metaData).isRequestCompressionEnabled());
+    }
+
+    // Verifies that WebView preloading is opt-in via preload_webview meta-data.
+    @Test
+    public void webViewPreloadIsReadFromMetaData() {
+        assertFalse(configWithMetaData(new Bundle()).isWebViewPreloadEnabled());
+
+        Bundle metaData = new Bundle();
+        metaData.putBoolean("com.pushwoosh.preload_webview", true);
+
+        assertTrue(configWithMetaData(metaData).isWebViewPreloadEnabled());
+    }
+
     // Verifies that trusted_package_names is split on commas and each entry is trimmed.
     @Test
     public void trustedPackageNamesAreSplitAndTrimmed() {
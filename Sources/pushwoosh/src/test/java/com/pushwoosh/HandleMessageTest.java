@@ -48,6 +48,7 @@ import com.pushwoosh.notification.SoundType;
 import com.pushwoosh.repository.NotificationPrefs;
 import com.pushwoosh.repository.PushwooshRepository;
 import com.pushwoosh.repository.RegistrationPrefs;
+import com.pushwoosh.repository.RepositoryModule;
 import com.pushwoosh.repository.RepositoryTestManager;
 import com.pushwoosh.testutil.Expectation;
 import com.pushwoosh.testutil.NotificationFactoryMock;
@@ -472,7 +473,7 @@ public class HandleMessageTest {
         Bundle testBundle = new Bundle();
         testBundle.putString("pw_msg", "1");
         notificationService.handleMessage(testBundle);
-        notificationPrefs.pushHistory().clear();
+        RepositoryModule.getPushHistoryStorage().clear();
         ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
 
         // Postcondition:
@@ -0,0 +1,175 @@
+package com.pushwoosh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.ListenableWorker;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkerParameters;
+
+import com.pushwoosh.function.Result;
+import com.pushwoosh.internal.SdkStateProvider;
+import com.pushwoosh.repository.PushStatisticsStorage;
+import com.pushwoosh.repository.PushStatisticsStorageImpl;
+import com.pushwoosh.repository.PushwooshRepository;
+import com.pushwoosh.repository.RepositoryModule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Counts WorkManager jobs and HTTP requests issued for 1,000 delivered pushes with per-event
+ * scheduling (queue unavailable) and with the batched statistics queue.
+ * <p>
+ * WorkManager is replaced by a minimal in-memory model of unique work: {@code KEEP} joins a
+ * pending job, {@code APPEND_OR_REPLACE} chains a new job after the running one.
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.LEGACY)
+@org.robolectric.annotation.Config(manifest = org.robolectric.annotation.Config.NONE)
+public class PushStatisticsBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(PushStatisticsBenchmarkTest.class.getName());
+    private static final int PUSHES = 1000;
+
+    private final Map<String, Deque<OneTimeWorkRequest>> uniqueWork = new LinkedHashMap<>();
+    private final AtomicInteger jobsCreated = new AtomicInteger();
+    private final AtomicInteger requestsSent = new AtomicInteger();
+
+    private Context context;
+    private PushwooshRepository repositoryMock;
+    private PushwooshPlatform platformMock;
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.application;
+        repositoryMock = mock(PushwooshRepository.class);
+        platformMock = mock(PushwooshPlatform.class);
+        when(platformMock.pushwooshRepository()).thenReturn(repositoryMock);
+        when(repositoryMock.sendPushDeliveredSync(anyString(), any())).thenAnswer(invocation -> {
+            requestsSent.incrementAndGet();
+            return Result.fromData(null);
+        });
+        SdkStateProvider.getInstance().resetForTesting();
+        SdkStateProvider.getInstance().setReady();
+    }
+
+    @After
+    public void tearDown() {
+        SdkStateProvider.getInstance().resetForTesting();
+        RepositoryModule.setPushStatisticsStorage(null);
+        PushStatisticsScheduler.clearWaitingFlushes();
+    }
+
+    @Test
+    public void jobsAndRequestsPerThousandPushes() {
+        PushStatisticsStorage unavailableQueue = mock(PushStatisticsStorage.class);
+        int[] before = run(unavailableQueue);
+
+        PushStatisticsStorageImpl queue = new PushStatisticsStorageImpl(context);
+        int[] after = run(queue);
+        queue.close();
+
+        LOG.info(String.format(
+                "Push statistics per %d pushes: before jobs=%d requests=%d, after jobs=%d requests=%d (batch size %d)",
+                PUSHES, before[0], before[1], after[0], after[1], PushStatisticsScheduler.DEFAULT_BATCH_SIZE));
+
+        assertEquals(PUSHES, before[0]);
+        assertEquals(PUSHES, before[1]);
+        // /messageDeliveryEvent accepts one hash, so requests stay 1:1 while jobs collapse to one per batch
+        assertEquals(PUSHES, after[1]);
+        assertTrue(after[0] <= PUSHES / PushStatisticsScheduler.DEFAULT_BATCH_SIZE + 1);
+    }
+
+    private int[] run(PushStatisticsStorage storage) {
+        uniqueWork.clear();
+        jobsCreated.set(0);
+        requestsSent.set(0);
+        PushStatisticsScheduler.clearWaitingFlushes();
+        RepositoryModule.setPushStatisticsStorage(storage);
+
+        try (MockedStatic<PushwooshWorkManagerHelper> workManagerMock = Mockito.mockStatic(PushwooshWorkManagerHelper.class);
+             MockedStatic<PushwooshPlatform> platformStatic = Mockito.mockStatic(PushwooshPlatform.class)) {
+            platformStatic.when(PushwooshPlatform::getInstance).thenReturn(platformMock);
+            workManagerMock.when(PushwooshWorkManagerHelper::getStatisticsConstraints).thenReturn(Constraints.NONE);
+            workManagerMock.when(() -> PushwooshWorkManagerHelper.enqueueOneTimeUniqueWork(any(), anyString(), any()))
+                    .thenAnswer(invocation -> {
+                        enqueue(invocation.getArgument(1), invocation.getArgument(0), invocation.getArgument(2));
+                        return null;
+                    });
+
+            // a broadcast burst arrives before the first job gets a chance to run
+            for (int i = 0; i < PUSHES; i++) {
+                PushStatisticsScheduler.scheduleStatisticsEvent(PushStatisticsWorker.EVENT_DELIVERY, "hash-" + i, null);
+            }
+            drain();
+        }
+        return new int[]{jobsCreated.get(), requestsSent.get()};
+    }
+
+    private void enqueue(String name, OneTimeWorkRequest request, ExistingWorkPolicy policy) {
+        Deque<OneTimeWorkRequest> chain = uniqueWork.get(name);
+        if (chain == null) {
+            chain = new ArrayDeque<>();
+            uniqueWork.put(name, chain);
+        }
+        if (policy == ExistingWorkPolicy.KEEP && !chain.isEmpty()) {
+            return;
+        }
+        chain.addLast(request);
+        jobsCreated.incrementAndGet();
+    }
+
+    private void drain() {
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (Deque<OneTimeWorkRequest> chain : uniqueWork.values()) {
+                OneTimeWorkRequest request = chain.peekFirst();
+                if (request == null) {
+                    continue;
+                }
+                ListenableWorker.Result result = runWorker(request.getWorkSpec().input);
+                assertEquals(ListenableWorker.Result.success(), result);
+                chain.removeFirst();
+                progress = true;
+                break;
+            }
+        }
+    }
+
+    private ListenableWorker.Result runWorker(Data input) {
+        WorkerParameters parameters = mock(WorkerParameters.class);
+        when(parameters.getInputData()).thenReturn(input);
+        return new PushStatisticsWorker(context, parameters).doWork();
+    }
+}
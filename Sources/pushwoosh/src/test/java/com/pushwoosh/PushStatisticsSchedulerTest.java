@@ -7,6 +7,8 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.os.Bundle;
 
@@ -15,6 +17,8 @@ import androidx.work.ExistingWorkPolicy;
 import androidx.work.OneTimeWorkRequest;
 
 import com.pushwoosh.notification.PushBundleDataProvider;
+import com.pushwoosh.repository.PushStatisticsStorage;
+import com.pushwoosh.repository.RepositoryModule;
 
 import org.junit.After;
 import org.junit.Before;
@@ -35,14 +39,20 @@ public class PushStatisticsSchedulerTest {
     private static final String TEST_HASH = "test-hash-123";
     private static final String TEST_METADATA = "test-metadata";
 
+    private PushStatisticsStorage storageMock;
+
     @Before
     public void setUp() {
         ShadowLog.stream = System.out;
+        // add() returns false by default: events fall back to per-event work unless a test queues them
+        storageMock = mock(PushStatisticsStorage.class);
+        RepositoryModule.setPushStatisticsStorage(storageMock);
     }
 
     @After
     public void tearDown() {
-        // Clean up any static mocks
+        RepositoryModule.setPushStatisticsStorage(null);
+        PushStatisticsScheduler.clearWaitingFlushes();
     }
 
     private Bundle createValidPushBundle() {
@@ -425,4 +435,87 @@ public class PushStatisticsSchedulerTest {
             assertTrue("Work names should be the same", firstName.equals(secondName));
         }
     }
+
+    /**
+     * Test that a queued delivery event schedules the coalescing flush work instead of a per-push job,
+     * appended after a flush job that may be running
+     */
+    @Test
+    public void testScheduleDeliveryEventQueuesEventAndSchedulesFlush() {
+        Bundle pushBundle = createValidPushBundle();
+        when(storageMock.add(PushStatisticsWorker.EVENT_DELIVERY, TEST_HASH, TEST_METADATA)).thenReturn(true);
+
+        try (MockedStatic<PushwooshWorkManagerHelper> workManagerHelperMock = Mockito.mockStatic(PushwooshWorkManagerHelper.class)) {
+            workManagerHelperMock.when(PushwooshWorkManagerHelper::getStatisticsConstraints).thenReturn(mock(Constraints.class));
+
+            PushStatisticsScheduler.scheduleDeliveryEvent(pushBundle);
+
+            verify(storageMock).add(PushStatisticsWorker.EVENT_DELIVERY, TEST_HASH, TEST_METADATA);
+
+            ArgumentCaptor<OneTimeWorkRequest> requestCaptor = ArgumentCaptor.forClass(OneTimeWorkRequest.class);
+            workManagerHelperMock.verify(() ->
+                PushwooshWorkManagerHelper.enqueueOneTimeUniqueWork(
+                    requestCaptor.capture(),
+                    eq(PushStatisticsScheduler.getFlushWorkName(PushStatisticsWorker.EVENT_DELIVERY)),
+                    eq(ExistingWorkPolicy.APPEND_OR_REPLACE)
+                ), times(1));
+
+            OneTimeWorkRequest capturedRequest = requestCaptor.getValue();
+            assertEquals(PushStatisticsWorker.EVENT_DELIVERY,
+                capturedRequest.getWorkSpec().input.getString(PushStatisticsWorker.DATA_EVENT_TYPE));
+            assertTrue("Flush work should drain the queue",
+                capturedRequest.getWorkSpec().input.getBoolean(PushStatisticsWorker.DATA_BATCH, false));
+            assertEquals(null,
+                capturedRequest.getWorkSpec().input.getString(PushStatisticsWorker.DATA_PUSH_HASH));
+        }
+    }
+
+    /**
+     * Test that a burst of pushes shares one unique flush work name and joins the flush job it enqueued
+     */
+    @Test
+    public void testBurstOfOpenEventsSharesFlushWork() {
+        when(storageMock.add(eq(PushStatisticsWorker.EVENT_OPEN), anyString(), any())).thenReturn(true);
+
+        try (MockedStatic<PushwooshWorkManagerHelper> workManagerHelperMock = Mockito.mockStatic(PushwooshWorkManagerHelper.class)) {
+            workManagerHelperMock.when(PushwooshWorkManagerHelper::getStatisticsConstraints).thenReturn(mock(Constraints.class));
+
+            for (int i = 0; i < 3; i++) {
+                PushStatisticsScheduler.scheduleStatisticsEvent(PushStatisticsWorker.EVENT_OPEN, "hash-" + i, null);
+            }
+
+            workManagerHelperMock.verify(() ->
+                PushwooshWorkManagerHelper.enqueueOneTimeUniqueWork(
+                    any(),
+                    eq(PushStatisticsScheduler.getFlushWorkName(PushStatisticsWorker.EVENT_OPEN)),
+                    eq(ExistingWorkPolicy.APPEND_OR_REPLACE)
+                ), times(1));
+            workManagerHelperMock.verify(() ->
+                PushwooshWorkManagerHelper.enqueueOneTimeUniqueWork(
+                    any(),
+                    eq(PushStatisticsScheduler.getFlushWorkName(PushStatisticsWorker.EVENT_OPEN)),
+                    eq(ExistingWorkPolicy.KEEP)
+                ), times(2));
+        }
+    }
+
+    /**
+     * Test that events left in the queue by a previous process are flushed on SDK start
+     */
+    @Test
+    public void testSchedulePendingEventsFlushesOnlyNonEmptyQueues() {
+        when(storageMock.count(PushStatisticsWorker.EVENT_DELIVERY)).thenReturn(2);
+        when(storageMock.count(PushStatisticsWorker.EVENT_OPEN)).thenReturn(0);
+
+        try (MockedStatic<PushwooshWorkManagerHelper> workManagerHelperMock = Mockito.mockStatic(PushwooshWorkManagerHelper.class)) {
+            workManagerHelperMock.when(PushwooshWorkManagerHelper::getStatisticsConstraints).thenReturn(mock(Constraints.class));
+
+            PushStatisticsScheduler.schedulePendingEvents();
+
+            ArgumentCaptor<String> nameCaptor = ArgumentCaptor.forClass(String.class);
+            workManagerHelperMock.verify(() ->
+                PushwooshWorkManagerHelper.enqueueOneTimeUniqueWork(any(), nameCaptor.capture(), any()), times(1));
+            assertEquals(PushStatisticsScheduler.getFlushWorkName(PushStatisticsWorker.EVENT_DELIVERY), nameCaptor.getValue());
+        }
+    }
 }
@@ -30,7 +30,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -39,7 +43,9 @@ import static org.mockito.Mockito.when;
 
 import android.content.Context;
 
+import androidx.work.Constraints;
 import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
 import androidx.work.ListenableWorker;
 import androidx.work.WorkerParameters;
 
@@ -48,7 +54,10 @@ import com.pushwoosh.internal.SdkStateProvider;
 import com.pushwoosh.internal.network.ConnectionException;
 import com.pushwoosh.internal.network.NetworkException;
 import com.pushwoosh.internal.utils.Config;
+import com.pushwoosh.repository.PushStatisticsStorage;
 import com.pushwoosh.repository.PushwooshRepository;
+import com.pushwoosh.repository.RepositoryModule;
+import com.pushwoosh.repository.util.PushStatisticsEvent;
 
 import org.junit.After;
 import org.junit.Before;
@@ -63,6 +72,7 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.LooperMode;
 import org.robolectric.shadows.ShadowLog;
 
+import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -86,6 +96,9 @@ public class PushStatisticsWorkerTest {
     @Mock
     private WorkerParameters workerParametersMock;
 
+    @Mock
+    private PushStatisticsStorage storageMock;
+
     private static final String TEST_HASH = "test-hash-123";
     private static final String TEST_METADATA = "test-metadata";
 
@@ -109,6 +122,8 @@ public class PushStatisticsWorkerTest {
     @After
     public void tearDown() throws Exception {
         SdkStateProvider.getInstance().resetForTesting();
+        RepositoryModule.setPushStatisticsStorage(null);
+        PushStatisticsScheduler.clearWaitingFlushes();
         mocks.close();
     }
 
@@ -333,4 +348,152 @@ public class PushStatisticsWorkerTest {
         verify(pushwooshRepositoryMock, never()).sendPushDeliveredSync(anyString(), anyString());
         verify(pushwooshRepositoryMock, never()).sendPushOpenedSync(anyString(), anyString());
     }
+
+    private static PushStatisticsEvent queuedEvent(long rowId, String hash) {
+        return new PushStatisticsEvent(rowId, PushStatisticsWorker.EVENT_DELIVERY, hash, TEST_METADATA, 0);
+    }
+
+    private void setupBatchWorker(PushStatisticsEvent... events) {
+        RepositoryModule.setPushStatisticsStorage(storageMock);
+        when(storageMock.peek(eq(PushStatisticsWorker.EVENT_DELIVERY), anyInt())).thenReturn(Arrays.asList(events));
+        setupWorkerWithData(PushStatisticsWorker.createBatchInputData(PushStatisticsWorker.EVENT_DELIVERY));
+    }
+
+    @Test
+    public void testBatchSendsAndRemovesAllQueuedEvents() throws Exception {
+        setupBatchWorker(queuedEvent(1, "hash-1"), queuedEvent(2, "hash-2"));
+        ensureSdkReady();
+
+        try (MockedStatic<PushwooshPlatform> platformMock = Mockito.mockStatic(PushwooshPlatform.class)) {
+            platformMock.when(PushwooshPlatform::getInstance).thenReturn(pushwooshPlatformMock);
+            when(pushwooshRepositoryMock.sendPushDeliveredSync(anyString(), eq(TEST_METADATA)))
+                    .thenReturn(Result.fromData(null));
+
+            ListenableWorker.Result result = pushStatisticsWorker.doWork();
+
+            assertEquals(ListenableWorker.Result.success(), result);
+            verify(pushwooshRepositoryMock).sendPushDeliveredSync("hash-1", TEST_METADATA);
+            verify(pushwooshRepositoryMock).sendPushDeliveredSync("hash-2", TEST_METADATA);
+            verify(storageMock).remove(1);
+            verify(storageMock).remove(2);
+        }
+    }
+
+    // Retriable failure keeps the failed event and the rest of the batch in the queue for WorkManager backoff.
+    @Test
+    public void testBatchStopsAndRetriesOnRetriableError() throws Exception {
+        setupBatchWorker(queuedEvent(1, "hash-1"), queuedEvent(2, "hash-2"));
+        when(storageMock.incrementAttempts(1)).thenReturn(1);
+        ensureSdkReady();
+
+        try (MockedStatic<PushwooshPlatform> platformMock = Mockito.mockStatic(PushwooshPlatform.class)) {
+            platformMock.when(PushwooshPlatform::getInstance).thenReturn(pushwooshPlatformMock);
+            when(pushwooshRepositoryMock.sendPushDeliveredSync("hash-1", TEST_METADATA))
+                    .thenReturn(Result.fromException(new ConnectionException("Server error", 503, 0)));
+
+            ListenableWorker.Result result = pushStatisticsWorker.doWork();
+
+            assertEquals(ListenableWorker.Result.retry(), result);
+            verify(storageMock).incrementAttempts(1);
+            verify(storageMock, never()).remove(anyLong());
+            verify(pushwooshRepositoryMock, never()).sendPushDeliveredSync("hash-2", TEST_METADATA);
+        }
+    }
+
+    // A storage error while counting the attempt keeps the event queued instead of dropping it.
+    @Test
+    public void testBatchRetriesWhenAttemptsCantBeCounted() throws Exception {
+        setupBatchWorker(queuedEvent(1, "hash-1"));
+        when(storageMock.incrementAttempts(1)).thenThrow(new IllegalStateException("database is locked"));
+        ensureSdkReady();
+
+        try (MockedStatic<PushwooshPlatform> platformMock = Mockito.mockStatic(PushwooshPlatform.class)) {
+            platformMock.when(PushwooshPlatform::getInstance).thenReturn(pushwooshPlatformMock);
+            when(pushwooshRepositoryMock.sendPushDeliveredSync("hash-1", TEST_METADATA))
+                    .thenReturn(Result.fromException(new ConnectionException("Server error", 503, 0)));
+
+            ListenableWorker.Result result = pushStatisticsWorker.doWork();
+
+            assertEquals(ListenableWorker.Result.retry(), result);
+            verify(storageMock, never()).remove(anyLong());
+        }
+    }
+
+    @Test
+    public void testBatchDropsEventOnNonRetriableErrorAndContinues() throws Exception {
+        setupBatchWorker(queuedEvent(1, "hash-1"), queuedEvent(2, "hash-2"));
+        ensureSdkReady();
+
+        try (MockedStatic<PushwooshPlatform> platformMock = Mockito.mockStatic(PushwooshPlatform.class)) {
+            platformMock.when(PushwooshPlatform::getInstance).thenReturn(pushwooshPlatformMock);
+            when(pushwooshRepositoryMock.sendPushDeliveredSync("hash-1", TEST_METADATA))
+                    .thenReturn(Result.fromException(new ConnectionException("Not found", 404, 0)));
+            when(pushwooshRepositoryMock.sendPushDeliveredSync("hash-2", TEST_METADATA))
+                    .thenReturn(Result.fromData(null));
+
+            ListenableWorker.Result result = pushStatisticsWorker.doWork();
+
+            assertEquals(ListenableWorker.Result.success(), result);
+            verify(storageMock).remove(1);
+            verify(storageMock).remove(2);
+            verify(storageMock, never()).incrementAttempts(anyLong());
+        }
+    }
+
+    @Test
+    public void testBatchDropsEventWhenRetryLimitReached() throws Exception {
+        setupBatchWorker(queuedEvent(1, "hash-1"));
+        when(storageMock.incrementAttempts(1)).thenReturn(5);
+        ensureSdkReady();
+
+        try (MockedStatic<PushwooshPlatform> platformMock = Mockito.mockStatic(PushwooshPlatform.class)) {
+            platformMock.when(PushwooshPlatform::getInstance).thenReturn(pushwooshPlatformMock);
+            when(pushwooshRepositoryMock.sendPushDeliveredSync("hash-1", TEST_METADATA))
+                    .thenReturn(Result.fromException(new ConnectionException("No network", 0, 0)));
+
+            ListenableWorker.Result result = pushStatisticsWorker.doWork();
+
+            assertEquals(ListenableWorker.Result.success(), result);
+            verify(storageMock).remove(1);
+        }
+    }
+
+    // An event queued once the job has read its batch, up to the moment the job finishes, is flushed by a job
+    // appended after it: KEEP would join the running job and the event would wait for the next push.
+    @Test
+    public void testEventQueuedWhileBatchRunsIsAppended() throws Exception {
+        setupBatchWorker(queuedEvent(1, "hash-1"));
+        when(storageMock.add(eq(PushStatisticsWorker.EVENT_DELIVERY), anyString(), any())).thenReturn(true);
+        ensureSdkReady();
+        String flushWorkName = PushStatisticsScheduler.getFlushWorkName(PushStatisticsWorker.EVENT_DELIVERY);
+
+        try (MockedStatic<PushwooshPlatform> platformMock = Mockito.mockStatic(PushwooshPlatform.class);
+             MockedStatic<PushwooshWorkManagerHelper> workManagerMock = Mockito.mockStatic(PushwooshWorkManagerHelper.class)) {
+            platformMock.when(PushwooshPlatform::getInstance).thenReturn(pushwooshPlatformMock);
+            workManagerMock.when(PushwooshWorkManagerHelper::getStatisticsConstraints).thenReturn(Constraints.NONE);
+            PushStatisticsScheduler.scheduleStatisticsEvent(PushStatisticsWorker.EVENT_DELIVERY, "hash-1", null);
+            when(pushwooshRepositoryMock.sendPushDeliveredSync("hash-1", TEST_METADATA)).thenAnswer(invocation -> {
+                PushStatisticsScheduler.scheduleStatisticsEvent(PushStatisticsWorker.EVENT_DELIVERY, "hash-2", null);
+                return Result.fromData(null);
+            });
+
+            assertEquals(ListenableWorker.Result.success(), pushStatisticsWorker.doWork());
+            PushStatisticsScheduler.scheduleStatisticsEvent(PushStatisticsWorker.EVENT_DELIVERY, "hash-3", null);
+
+            workManagerMock.verify(() -> PushwooshWorkManagerHelper.enqueueOneTimeUniqueWork(
+                    any(), eq(flushWorkName), eq(ExistingWorkPolicy.APPEND_OR_REPLACE)), times(2));
+            workManagerMock.verify(() -> PushwooshWorkManagerHelper.enqueueOneTimeUniqueWork(
+                    any(), eq(flushWorkName), eq(ExistingWorkPolicy.KEEP)), times(1));
+        }
+    }
+
+    @Test
+    public void testBatchRetriesWhenSdkNotReady() {
+        setupBatchWorker(queuedEvent(1, "hash-1"));
+
+        ListenableWorker.Result result = pushStatisticsWorker.doWork();
+
+        assertEquals(ListenableWorker.Result.retry(), result);
+        verify(storageMock, never()).peek(anyString(), anyInt());
+    }
 }
@@ -123,8 +123,8 @@ public void testMaxRetriesExceeded() {
 
     retriableCallback.process(failureResult);
 
-    // Wait for all retries to complete (total time is 1 + 5 + 10 = 16 seconds)
-    // Since RetriableRequestCallback uses a real ScheduledExecutorService, we need to wait for real time
+    // Wait for all retries to complete (jittered delays add up to at most 1 + 3 + 9 = 13 seconds)
+    // Since RetryEngine uses a real ScheduledExecutorService, we need to wait for real time
     // or use a longer timeout to allow the retries to happen
 
     // Final callback should be called with last failure after all retries (allow 20 seconds)
@@ -0,0 +1,194 @@
+package com.pushwoosh.inapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+import com.pushwoosh.inapp.mapper.PlaceholderSubstitutor;
+import com.pushwoosh.inapp.storage.InAppFolderProvider;
+import com.pushwoosh.inapp.view.config.ModalRichmediaConfig;
+import com.pushwoosh.internal.platform.AndroidPlatformModule;
+import com.pushwoosh.internal.utils.FileUtils;
+import com.pushwoosh.internal.utils.MockConfig;
+import com.pushwoosh.repository.DeviceRegistrar;
+import com.pushwoosh.repository.RegistrationPrefs;
+import com.pushwoosh.repository.RepositoryModule;
+import com.pushwoosh.repository.RepositoryTestManager;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockedStatic;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Latency of repeated displays of the same rich media in-app with a pushwoosh.json of 20 languages: what
+ * {@code ResourceMapper.getHtmlData} and {@code ModalRichMediaWindow} do before the WebView gets the html.
+ *
+ * <p>The former path parsed pushwoosh.json twice per display, once for the localized strings and once for
+ * the style settings. {@link InAppConfig} now reads the bundle compiled at deploy from disk the first time
+ * the in-app is displayed and from memory afterwards.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class InAppConfigBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(InAppConfigBenchmarkTest.class.getName());
+    private static final String CODE = "ABCDE-12345";
+    private static final long UPDATED = 1700000000L;
+    private static final int LANGUAGES = 20;
+    private static final int STRINGS = 60;
+    private static final int WARMUP = 20;
+    private static final int DISPLAYS = 200;
+
+    private RegistrationPrefs registrationPrefs;
+    private InAppConfig config;
+    private File html;
+    private final Map<String, String> tags = Collections.singletonMap("FirstName", "alice");
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        AndroidPlatformModule.init(RuntimeEnvironment.getApplication(), true);
+        registrationPrefs = RepositoryTestManager.createRegistrationPrefs(MockConfig.createMock(),
+                mock(DeviceRegistrar.class));
+        RepositoryModule.setRegistrationPreferences(registrationPrefs);
+        registrationPrefs.language().set("lang7");
+
+        File folder = Files.createTempDirectory("inapp-config-benchmark").toFile();
+        File configFile = new File(folder, "pushwoosh.json");
+        FileUtils.writeFile(configFile, pushwooshJson());
+        html = new File(folder, "index.html");
+        FileUtils.writeFile(html, html());
+
+        InAppFolderProvider folderProvider = mock(InAppFolderProvider.class);
+        when(folderProvider.getConfigFile(CODE)).thenReturn(configFile);
+        when(folderProvider.getInAppHtmlFile(CODE)).thenReturn(html);
+        config = new InAppConfig(folderProvider);
+        config.compile(CODE, UPDATED);
+    }
+
+    @After
+    public void tearDown() {
+        InAppConfig.clearCache();
+        RepositoryTestManager.destroyRegistrationPrefs(registrationPrefs);
+    }
+
+    private static String pushwooshJson() throws Exception {
+        JSONObject localization = new JSONObject();
+        for (int l = 0; l < LANGUAGES; l++) {
+            JSONObject strings = new JSONObject();
+            for (int s = 0; s < STRINGS; s++) {
+                strings.put("string_" + s, "Localized string " + s + " in language " + l);
+            }
+            localization.put("lang" + l, strings);
+        }
+        JSONObject style = new JSONObject()
+                .put("position", "bottom")
+                .put("present_animation", "up")
+                .put("dismiss_animation", "fade_out")
+                .put("swipe_to_dismiss", new JSONArray().put("down").put("left"))
+                .put("animation_duration", 400);
+        return new JSONObject()
+                .put("default_language", "lang0")
+                .put("localization", localization)
+                .put("style_settings", style)
+                .toString(2);
+    }
+
+    private static String html() {
+        StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head></head><body>\n");
+        for (int s = 0; s < STRINGS; s++) {
+            html.append("<p>{{string_").append(s).append("|text|Default ").append(s).append("}}</p>\n");
+            html.append("<p>Hello, {FirstName|CapitalizeFirst|friend}</p>\n");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    private interface Display {
+        String run() throws Exception;
+    }
+
+    private String parsingDisplay() throws Exception {
+        ModalRichmediaConfig modalConfig = config.parseModalConfig(CODE);
+        assertNotNull(modalConfig);
+        Map<String, String> strings = config.parseLocalizedStrings(CODE);
+        return PlaceholderSubstitutor.substitute(CODE, UPDATED, FileUtils.readFile(html), strings, tags);
+    }
+
+    private String compiledDisplay() throws Exception {
+        ModalRichmediaConfig modalConfig = config.getModalConfig(CODE, UPDATED);
+        assertNotNull(modalConfig);
+        Map<String, String> strings = config.getLocalizedStrings(CODE, UPDATED);
+        return PlaceholderSubstitutor.substitute(CODE, UPDATED, FileUtils.readFile(html), strings, tags);
+    }
+
+    private String firstDisplay() throws Exception {
+        InAppConfig.clearCache();
+        return compiledDisplay();
+    }
+
+    private void measure(String label, Display display, String expected, MockedStatic<InAppConfigBundle> bundles)
+            throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            assertEquals(expected, display.run());
+        }
+        bundles.clearInvocations();
+        long[] elapsed = new long[DISPLAYS];
+        for (int i = 0; i < DISPLAYS; i++) {
+            long start = System.nanoTime();
+            String content = display.run();
+            elapsed[i] = System.nanoTime() - start;
+            assertEquals(expected.length(), content.length());
+        }
+        Arrays.sort(elapsed);
+        LOG.info(String.format("%-24s display p50 %7.3f ms, p90 %7.3f ms, max %7.3f ms", label,
+                elapsed[DISPLAYS / 2] / 1e6, elapsed[DISPLAYS * 9 / 10] / 1e6, elapsed[DISPLAYS - 1] / 1e6));
+    }
+
+    @Test
+    public void repeatedDisplays() throws Exception {
+        String expected = parsingDisplay();
+        assertTrue(expected.contains("Localized string 0 in language 7"));
+
+        try (MockedStatic<InAppConfigBundle> bundles = mockStatic(InAppConfigBundle.class, CALLS_REAL_METHODS)) {
+            measure("parse pushwoosh.json", this::parsingDisplay, expected, bundles);
+            bundles.verify(() -> InAppConfigBundle.parse(anyString()), times(2 * DISPLAYS));
+
+            measure("compiled file", this::firstDisplay, expected, bundles);
+            bundles.verify(() -> InAppConfigBundle.parse(anyString()), never());
+            bundles.verify(() -> InAppConfigBundle.read(any(DataInputStream.class), anyLong()), times(DISPLAYS));
+
+            measure("cached bundle", this::compiledDisplay, expected, bundles);
+            bundles.verify(() -> InAppConfigBundle.parse(anyString()), never());
+            bundles.verify(() -> InAppConfigBundle.read(any(DataInputStream.class), anyLong()), never());
+        }
+    }
+}
@@ -2,11 +2,14 @@ package com.pushwoosh.inapp;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
 
 import android.os.Build;
@@ -39,6 +42,7 @@ import org.robolectric.annotation.Config;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
 import java.util.Map;
 
 @RunWith(RobolectricTestRunner.class)
@@ -59,6 +63,7 @@ public class InAppConfigTest {
 
     @After
     public void tearDown() {
+        InAppConfig.clearCache();
         if (registrationPrefs != null) {
             RepositoryTestManager.destroyRegistrationPrefs(registrationPrefs);
             registrationPrefs = null;
@@ -84,6 +89,13 @@ public class InAppConfigTest {
         registrationPrefs.language().set(preferredLanguage);
     }
 
+    private File givenConfigOnDisk(String code, String json) throws IOException {
+        File configFile = new File(Files.createTempDirectory("inapp-config-test").toFile(), "pushwoosh.json");
+        FileUtils.writeFile(configFile, json);
+        when(mockFolderProvider.getConfigFile(code)).thenReturn(configFile);
+        return configFile;
+    }
+
     @Test
     public void testParseModalConfig_FileNotExists_ReturnsNull() throws IOException {
         when(mockConfigFile.exists()).thenReturn(false);
@@ -560,4 +572,83 @@ public class InAppConfigTest {
                     result.getAnimationDuration());
         }
     }
+
+    // Verifies the bundle compiled at deploy is read back from disk without parsing pushwoosh.json again.
+    @Test
+    public void testGetLocalizedStrings_Compiled_ReadFromCompiledFile() throws Exception {
+        initRegistrationPrefs("fr");
+        File configFile = givenConfigOnDisk("code", "{\"default_language\":\"en\",\"localization\":{"
+                + "\"en\":{\"hello\":\"hi\"},\"fr\":{\"hello\":\"salut\"}},"
+                + "\"style_settings\":{\"position\":\"top\",\"swipe_to_dismiss\":[\"up\"]}}");
+
+        inAppConfig.compile("code", 100L);
+        InAppConfig.clearCache();
+        assertTrue(new File(configFile.getPath() + ".bin").exists());
+
+        try (MockedStatic<FileUtils> fileUtilsMock = Mockito.mockStatic(FileUtils.class)) {
+            Map<String, String> strings = inAppConfig.getLocalizedStrings("code", 100L);
+            ModalRichmediaConfig config = inAppConfig.getModalConfig("code", 100L);
+
+            assertEquals("salut", strings.get("hello"));
+            assertNotNull(config);
+            assertEquals(ModalRichMediaViewPosition.TOP, config.getViewPosition());
+            assertTrue(config.getSwipeGestures().contains(ModalRichMediaSwipeGesture.UP));
+            fileUtilsMock.verify(() -> FileUtils.readFile(any()), never());
+        }
+    }
+
+    // Verifies a redeployed in-app gets the strings of its new pushwoosh.json, not the cached ones.
+    @Test
+    public void testGetLocalizedStrings_UpdatedChanged_CompiledAgain() throws Exception {
+        initRegistrationPrefs("en");
+        File configFile =
+                givenConfigOnDisk("code", "{\"default_language\":\"en\",\"localization\":{\"en\":{\"hello\":\"hi\"}}}");
+        inAppConfig.compile("code", 100L);
+        assertEquals("hi", inAppConfig.getLocalizedStrings("code", 100L).get("hello"));
+
+        FileUtils.writeFile(configFile, "{\"default_language\":\"en\",\"localization\":{\"en\":{\"hello\":\"hey\"}}}");
+
+        assertEquals("hey", inAppConfig.getLocalizedStrings("code", 200L).get("hello"));
+    }
+
+    // Verifies every display gets a config of its own, the resolver is free to change it.
+    @Test
+    public void testGetModalConfig_Cached_NewConfigEachTime() throws Exception {
+        givenConfigOnDisk("code", "{\"style_settings\":{\"position\":\"center\",\"animation_duration\":500}}");
+
+        ModalRichmediaConfig first = inAppConfig.getModalConfig("code", 100L);
+        ModalRichmediaConfig second = inAppConfig.getModalConfig("code", 100L);
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNotSame(first, second);
+        assertEquals(ModalRichMediaViewPosition.CENTER, second.getViewPosition());
+        assertEquals(Integer.valueOf(500), second.getAnimationDuration());
+    }
+
+    // Verifies a corrupted compiled file is ignored and pushwoosh.json is parsed instead.
+    @Test
+    public void testGetLocalizedStrings_CorruptedCompiledFile_ParsesJson() throws Exception {
+        initRegistrationPrefs("en");
+        File configFile =
+                givenConfigOnDisk("code", "{\"default_language\":\"en\",\"localization\":{\"en\":{\"hello\":\"hi\"}}}");
+        inAppConfig.compile("code", 100L);
+        InAppConfig.clearCache();
+        FileUtils.writeFile(new File(configFile.getPath() + ".bin"), "garbage");
+
+        assertEquals("hi", inAppConfig.getLocalizedStrings("code", 100L).get("hello"));
+    }
+
+    // Verifies an in-app without pushwoosh.json has no strings and no modal config of its own.
+    @Test
+    public void testGetLocalizedStrings_NoConfigFile_Throws() throws Exception {
+        initRegistrationPrefs("en");
+        File configFile = new File(Files.createTempDirectory("inapp-config-test").toFile(), "pushwoosh.json");
+        when(mockFolderProvider.getConfigFile("code")).thenReturn(configFile);
+
+        inAppConfig.compile("code", 100L);
+
+        assertThrows(JSONException.class, () -> inAppConfig.getLocalizedStrings("code", 100L));
+        assertNull(inAppConfig.getModalConfig("code", 100L));
+    }
 }
@@ -0,0 +1,146 @@
+package com.pushwoosh.inapp.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockedStatic;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * JMH-style benchmark (warm-up iterations, then timed iterations, p50/avg reported) of Rich Media
+ * placeholder rendering over a 200 KB in-app with 500 placeholders: the legacy regex passes, a cold
+ * compile-and-render, and a render from the template cached for the in-app code and {@code updated}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PlaceholderSubstitutorBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(PlaceholderSubstitutorBenchmarkTest.class.getName());
+    private static final int TEMPLATE_SIZE = 200 * 1024;
+    private static final int PLACEHOLDERS = 500;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @After
+    public void tearDown() {
+        PlaceholderSubstitutor.clearTemplateCache();
+    }
+
+    private interface Render {
+        String run();
+    }
+
+    /**
+     * Landing-page shaped html: a stylesheet, 500 blocks mixing localized strings and tag placeholders
+     * of every supported form, padding markup, and a script at the end.
+     */
+    private static String template() {
+        StringBuilder html = new StringBuilder(TEMPLATE_SIZE + 4096);
+        html.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><style>\n");
+        for (int i = 0; i < 40; i++) {
+            html.append(".block-").append(i).append(" { margin: ").append(i).append("px; color: #333; }\n");
+        }
+        html.append("</style></head><body>\n");
+        int perBlock = (TEMPLATE_SIZE - 8192) / PLACEHOLDERS;
+        for (int i = 0; i < PLACEHOLDERS; i++) {
+            int start = html.length();
+            html.append("<div class=\"block-").append(i % 40).append("\"><p>");
+            switch (i % 5) {
+                case 0:
+                    html.append("{{title_").append(i).append("|text|Default title ").append(i).append("}}");
+                    break;
+                case 1:
+                    html.append("{{subtitle_").append(i).append("|UPPERCASE}}");
+                    break;
+                case 2:
+                    html.append("{FirstName|CapitalizeFirst|friend}");
+                    break;
+                case 3:
+                    html.append("{discount_").append(i).append("|text|}");
+                    break;
+                default:
+                    html.append("{{button_").append(i).append("|text|}}");
+                    break;
+            }
+            html.append("</p>");
+            while (html.length() - start < perBlock) {
+                html.append("<span class=\"copy\">Lorem ipsum dolor sit amet, consectetur adipiscing.</span>");
+            }
+            html.append("</div>\n");
+        }
+        html.append("<script>function close() { window.pushwoosh.closeInApp(); }</script></body></html>");
+        return html.toString();
+    }
+
+    private static void measure(String label, Render render) {
+        for (int i = 0; i < WARMUP; i++) {
+            render.run();
+        }
+        long[] times = new long[ITERATIONS];
+        long total = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            render.run();
+            times[i] = System.nanoTime() - start;
+            total += times[i];
+        }
+        Arrays.sort(times);
+        LOG.info(String.format("%-28s p50 %8.3f ms, avg %8.3f ms",
+                label, times[ITERATIONS / 2] / 1e6, total / (double) ITERATIONS / 1e6));
+    }
+
+    @Test
+    public void renderLargeTemplate() {
+        final String html = template();
+        final Map<String, String> strings = new HashMap<>();
+        final Map<String, String> tags = new HashMap<>();
+        for (int i = 0; i < PLACEHOLDERS; i += 2) {
+            strings.put("title_" + i, "Localized title " + i);
+            strings.put("subtitle_" + i, "localized subtitle " + i);
+            strings.put("button_" + i, "Buy now");
+            tags.put("discount_" + i, "15");
+        }
+        tags.put("FirstName", "alice");
+
+        PlaceholderTemplate template = PlaceholderTemplate.compile(html);
+        LOG.info(String.format("Template: %d KB, %d placeholders, %d distinct slots, compiled: %b",
+                html.length() / 1024, PLACEHOLDERS, template.slotCount(), template.isCompiled()));
+
+        String expected = PlaceholderSubstitutor.substituteLegacy(html, strings, tags);
+        assertTrue(template.isCompiled());
+        assertEquals(expected, PlaceholderSubstitutor.substitute(html, strings, tags));
+        assertEquals(expected, PlaceholderSubstitutor.substitute("ABCDE-12345", 1L, html, strings, tags));
+
+        measure("legacy 5 regex passes", () -> PlaceholderSubstitutor.substituteLegacy(html, strings, tags));
+        measure("compile + render", () -> PlaceholderSubstitutor.substitute(html, strings, tags));
+        measure("cached template render",
+                () -> PlaceholderSubstitutor.substitute("ABCDE-12345", 1L, html, strings, tags));
+
+        // what the cached render saves is the compilation, done once per in-app code and updated
+        PlaceholderSubstitutor.clearTemplateCache();
+        try (MockedStatic<PlaceholderTemplate> compiles = mockStatic(PlaceholderTemplate.class, CALLS_REAL_METHODS)) {
+            for (int i = 0; i < ITERATIONS; i++) {
+                assertEquals(expected, PlaceholderSubstitutor.substitute("ABCDE-12345", 1L, html, strings, tags));
+            }
+            compiles.verify(() -> PlaceholderTemplate.compile(html), times(1));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.pushwoosh.inapp.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PlaceholderTemplateTest {
+    private static final String[] FRAGMENTS =
+            {"{", "{{", "}", "}}", "|", "a", "ab", "Name", "\n", "\r", " ", "type", "<p>", ";"};
+    private static final String[] VALUES =
+            {"", "v", "Value", "a|b", "}", "\n", "x\ny", "\rab", "{", "{ab|cd|ef}", "{{ab|cd|ef}}", "ab", "Name"};
+
+    @After
+    public void tearDown() {
+        PlaceholderSubstitutor.clearTemplateCache();
+    }
+
+    private static Map<String, String> map(String... kv) {
+        Map<String, String> m = new HashMap<>();
+        for (int i = 0; i < kv.length; i += 2) {
+            m.put(kv[i], kv[i + 1]);
+        }
+        return m;
+    }
+
+    @Test
+    public void compile_htmlWithStylesAndScripts_rendersLikeLegacyPasses() {
+        String html = "<style>body { margin: 0; }\n.title { color: red; }</style>\n"
+                + "<h1>{{Title|UPPERCASE|Hello}}</h1><p>{{Body|text}}</p>\n"
+                + "<p>{FirstName|CapitalizeFirst|friend}, {Discount|text|}% off {{Plan|text|basic}}</p>\n"
+                + "<script>function f(a) { return a; }</script>{{Title|UPPERCASE|Hello}}";
+        Map<String, String> strings = map("Title", "welcome", "Body", "text body");
+        Map<String, String> tags = map("FirstName", "alice", "Plan", "pro");
+
+        PlaceholderTemplate template = PlaceholderTemplate.compile(html);
+
+        assertTrue(template.isCompiled());
+        assertEquals(5, template.slotCount());
+        assertEquals(PlaceholderSubstitutor.substituteLegacy(html, strings, tags), template.render(html, strings, tags));
+    }
+
+    @Test
+    public void compile_placeholderInsideLaterPlaceholder_fallsBackToLegacy() {
+        // the localized value becomes part of a tag placeholder in pass 5, which a slot can't express
+        String content = "<p>{Plan|text|{{Title|text|Hi}}|basic}</p>";
+
+        PlaceholderTemplate template = PlaceholderTemplate.compile(content);
+
+        assertFalse(template.isCompiled());
+        assertNull(template.render(content, map("Title", "Hello"), Collections.emptyMap()));
+        assertEquals(PlaceholderSubstitutor.substituteLegacy(content, map("Title", "Hello"), Collections.emptyMap()),
+                PlaceholderSubstitutor.substitute(content, map("Title", "Hello"), Collections.emptyMap()));
+    }
+
+    @Test
+    public void render_emptyValueBeforeClosingBrace_fallsBackToLegacy() {
+        // an empty value turns the '}' after it into the first char of a group: "{ab|}cd|ef}" is a match
+        String content = "{ab|{{Title|text|x}}}cd|ef}";
+
+        PlaceholderTemplate template = PlaceholderTemplate.compile(content);
+
+        assertTrue(template.isCompiled());
+        assertNull(template.render(content, map("Title", ""), Collections.emptyMap()));
+        assertEquals(PlaceholderSubstitutor.substituteLegacy(content, map("Title", ""), Collections.emptyMap()),
+                PlaceholderSubstitutor.substitute(content, map("Title", ""), Collections.emptyMap()));
+    }
+
+    @Test
+    public void render_valueWithBrace_fallsBackToLegacy() {
+        String content = "{{Welcome|text|def}}";
+        PlaceholderTemplate template = PlaceholderTemplate.compile(content);
+
+        assertTrue(template.isCompiled());
+        assertNull(template.render(content, map("Welcome", "Hi {Name|text|friend}!"), Collections.emptyMap()));
+    }
+
+    @Test
+    public void substitute_cachedTemplate_isReusedUntilUpdatedChanges() {
+        String content = "<p>{{Title|text|Hi}}</p>";
+
+        String first = PlaceholderSubstitutor.substitute("ABCDE-12345", 1L, content, map("Title", "One"),
+                Collections.emptyMap());
+        String second = PlaceholderSubstitutor.substitute("ABCDE-12345", 1L, content, map("Title", "Two"),
+                Collections.emptyMap());
+        String redeployed = PlaceholderSubstitutor.substitute("ABCDE-12345", 2L, "<b>{{Title|text|Hi}}</b>",
+                map("Title", "Two"), Collections.emptyMap());
+
+        assertEquals("<p>One</p>", first);
+        assertEquals("<p>Two</p>", second);
+        assertEquals("<b>Two</b>", redeployed);
+    }
+
+    @Test
+    public void substitute_cachedTemplate_recompiledWhenContentDiffers() {
+        PlaceholderSubstitutor.substitute("ABCDE-12345", 1L, "{{Title|text|Hi}}", map(), map());
+
+        String out = PlaceholderSubstitutor.substitute("ABCDE-12345", 1L, "<i>{{Title|text|Hi}}</i>", map(), map());
+
+        assertEquals("<i>Hi</i>", out);
+    }
+
+    @Test
+    public void substitute_randomTemplates_matchLegacyPasses() {
+        Random random = new Random(42);
+        int compiled = 0;
+        for (int i = 0; i < 20000; i++) {
+            String content = randomTemplate(random);
+            Map<String, String> strings = randomValues(random);
+            Map<String, String> tags = randomValues(random);
+
+            if (PlaceholderTemplate.compile(content).isCompiled()) {
+                compiled++;
+            }
+            assertEquals(content, PlaceholderSubstitutor.substituteLegacy(content, strings, tags),
+                    PlaceholderSubstitutor.substitute(content, strings, tags));
+        }
+        assertTrue(compiled > 0);
+    }
+
+    private static String randomTemplate(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int parts = random.nextInt(30);
+        for (int i = 0; i < parts; i++) {
+            if (random.nextInt(4) != 0) {
+                builder.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                continue;
+            }
+            String key = random.nextBoolean() ? "ab" : "Name";
+            String type = random.nextBoolean() ? "UPPERCASE" : "text";
+            switch (random.nextInt(5)) {
+                case 0:
+                    builder.append("{{").append(key).append('|').append(type).append("|d").append(random.nextInt(3))
+                            .append("}}");
+                    break;
+                case 1:
+                    builder.append("{{").append(key).append('|').append(type).append("}}");
+                    break;
+                case 2:
+                    builder.append('{').append(key).append('|').append(type).append("|}");
+                    break;
+                case 3:
+                    builder.append('{').append(key).append('|').append(type).append("|df}");
+                    break;
+                default:
+                    builder.append("{{").append(key).append('|').append(type).append("|}}");
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static Map<String, String> randomValues(Random random) {
+        Map<String, String> values = new HashMap<>();
+        for (String key : new String[]{"ab", "Name", "a", "x"}) {
+            if (random.nextBoolean()) {
+                values.put(key, VALUES[random.nextInt(VALUES.length)]);
+            }
+        }
+        return values;
+    }
+}
@@ -102,6 +102,48 @@ public class ResourceMapperTest {
         Assert.assertEquals("123", htmlData.getCode());
         Assert.assertEquals("https://appassets.androidplatform.net/pushwoosh_richmedia/123/", htmlData.getUrl());
         Assert.assertEquals("", htmlData.getHtmlContent());
+        Assert.assertNull(htmlData.getDocument());
+    }
+
+    @Test
+    public void map_localized_streamsDocument() throws Exception {
+        File file = File.createTempFile("123", ".html");
+        FileUtils.writeFile(file, htmlData);
+
+        File configFile = File.createTempFile("pushwoosh", ".json");
+        FileUtils.writeFile(configFile, configJson);
+
+        InAppFolderProvider inAppFolderProvider = Mockito.mock(InAppFolderProvider.class);
+        Mockito.when(inAppFolderProvider.getInAppFolder("123")).thenReturn(new File("test/inApp1"));
+        Mockito.when(inAppFolderProvider.getInAppHtmlFile("123")).thenReturn(file);
+        Mockito.when(inAppFolderProvider.getConfigFile("123")).thenReturn(configFile);
+
+        HtmlData htmlData = new ResourceMapper(inAppFolderProvider).map(new Resource("123", true));
+
+        Assert.assertNull(htmlData.getHtmlContent());
+        Assert.assertNotNull(htmlData.getDocument());
+        Assert.assertEquals(file.getName(), htmlData.getDocument().getFileName());
+    }
+
+    @Test
+    public void map_uncompiledTemplate_loadsString() throws Exception {
+        File file = File.createTempFile("123", ".html");
+        // private use characters are reserved for the template markers
+        String content = "<p>\uE000 {{LocalizedString1|text|testvalue1}}</p>";
+        FileUtils.writeFile(file, content);
+
+        File configFile = File.createTempFile("pushwoosh", ".json");
+        FileUtils.writeFile(configFile, configJson);
+
+        InAppFolderProvider inAppFolderProvider = Mockito.mock(InAppFolderProvider.class);
+        Mockito.when(inAppFolderProvider.getInAppFolder("123")).thenReturn(new File("test/inApp1"));
+        Mockito.when(inAppFolderProvider.getInAppHtmlFile("123")).thenReturn(file);
+        Mockito.when(inAppFolderProvider.getConfigFile("123")).thenReturn(configFile);
+
+        HtmlData htmlData = new ResourceMapper(inAppFolderProvider).map(new Resource("123", true));
+
+        Assert.assertNull(htmlData.getDocument());
+        Assert.assertEquals("<p>\uE000 LocalizedStringValue1</p>\n", htmlData.getHtmlContent());
     }
 
     @Test
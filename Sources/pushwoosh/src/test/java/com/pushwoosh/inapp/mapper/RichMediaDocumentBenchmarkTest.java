@@ -0,0 +1,286 @@
+package com.pushwoosh.inapp.mapper;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+
+import com.pushwoosh.internal.utils.FileUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockedStatic;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Heap profile of rendering a 5 MB rich media with 2000 placeholders: the string path (read the file,
+ * substitute with the cached template, inject the Pushwoosh script, hand the string to
+ * {@code loadDataWithBaseURL}) against {@link RichMediaDocument} read the way the WebView reads an
+ * intercepted response.
+ *
+ * <p>For each path it reports the bytes allocated on the rendering thread, the peak of the used heap
+ * sampled by another thread, the peak of the live heap (used heap after a full GC at checkpoints: once the
+ * string is ready on the string path, once the document is prepared and every 64 reads of the stream) and
+ * the time to the first byte the WebView gets. On the streamed path every run compiles the template from the
+ * file again, so both include {@link RichMediaDocument#prepare} with the compilation.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RichMediaDocumentBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(RichMediaDocumentBenchmarkTest.class.getName());
+    private static final int DOCUMENT_SIZE = 5 * 1024 * 1024;
+    private static final int PLACEHOLDERS = 2000;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 5;
+    // what the WebView reads from an intercepted response at a time
+    private static final int READ_BUFFER = 8 * 1024;
+    private static final String SCRIPT = "window.pushwoosh = {};";
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private File html;
+    private Map<String, String> strings;
+    private Map<String, String> tags;
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        html = File.createTempFile("index", ".html");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(html), "UTF-8")) {
+            writer.write(document());
+        }
+        strings = new HashMap<>();
+        tags = new HashMap<>();
+        for (int i = 0; i < PLACEHOLDERS; i += 2) {
+            strings.put("title_" + i, "Localized title " + i);
+            strings.put("button_" + i, "Buy now");
+            tags.put("discount_" + i, "15");
+        }
+        tags.put("FirstName", "alice");
+    }
+
+    @After
+    public void tearDown() {
+        html.delete();
+        PlaceholderSubstitutor.clearTemplateCache();
+    }
+
+    private interface Render {
+        /**
+         * @return digest of the bytes the WebView gets
+         */
+        byte[] run(Profile profile) throws Exception;
+    }
+
+    private final class Profile {
+        long start;
+        long firstByteNs = -1;
+        long baseline;
+        long livePeak;
+
+        void firstByte() {
+            if (firstByteNs < 0) {
+                firstByteNs = System.nanoTime() - start;
+            }
+        }
+
+        void checkpoint() {
+            System.gc();
+            livePeak = Math.max(livePeak, memory.getHeapMemoryUsage().getUsed() - baseline);
+        }
+    }
+
+    /**
+     * Landing-page shaped html: a stylesheet, blocks mixing localized strings and tag placeholders, padding
+     * markup and scripts with braces of their own.
+     */
+    private static String document() {
+        StringBuilder html = new StringBuilder(DOCUMENT_SIZE + 4096);
+        html.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><style>\n");
+        for (int i = 0; i < 40; i++) {
+            html.append(".block-").append(i).append(" { margin: ").append(i).append("px; color: #333; }\n");
+        }
+        html.append("</style></head><body>\n");
+        int perBlock = (DOCUMENT_SIZE - 8192) / PLACEHOLDERS;
+        for (int i = 0; i < PLACEHOLDERS; i++) {
+            int start = html.length();
+            html.append("<div class=\"block-").append(i % 40).append("\"><p>");
+            switch (i % 4) {
+                case 0:
+                    html.append("{{title_").append(i).append("|text|Default title ").append(i).append("}}");
+                    break;
+                case 1:
+                    html.append("{FirstName|CapitalizeFirst|friend}");
+                    break;
+                case 2:
+                    html.append("{discount_").append(i).append("|text|}");
+                    break;
+                default:
+                    html.append("{{button_").append(i).append("|text|}}");
+                    break;
+            }
+            html.append("</p>\n");
+            while (html.length() - start < perBlock) {
+                html.append("<span class=\"copy\">Lorem ipsum dolor sit amet, consectetur adipiscing.</span>\n");
+            }
+            html.append("<script>if (window.pushwoosh) { window.pushwoosh.track(").append(i).append("); }</script>\n");
+            html.append("</div>\n");
+        }
+        html.append("</body></html>");
+        return html.toString();
+    }
+
+    // ResourceMapper.getHtmlData and RichMediaWebActivity.htmlContentWithPushwooshInterface
+    private byte[] loadString(Profile profile) throws Exception {
+        String content = FileUtils.readFile(html);
+        content = PlaceholderSubstitutor.substitute("ABCDE-12345", 1L, content, strings, tags);
+        content = content.replace("<head>", "<head>\n<script type=\"text/javascript\">" + SCRIPT + "</script>");
+        profile.firstByte();
+        profile.checkpoint();
+        return MessageDigest.getInstance("SHA-1").digest(content.getBytes("UTF-8"));
+    }
+
+    // ResourceMapper.map, then WebClient serving the document to the WebView
+    private byte[] stream(Profile profile) throws Exception {
+        PlaceholderSubstitutor.clearTemplateCache();
+        RichMediaDocument document = RichMediaDocument.prepare("ABCDE-12345", 1L, html, strings, tags);
+        assertNotNull(document);
+        profile.checkpoint();
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        byte[] buffer = new byte[READ_BUFFER];
+        try (InputStream in = document.open(SCRIPT)) {
+            int read;
+            int reads = 0;
+            while ((read = in.read(buffer)) != -1) {
+                profile.firstByte();
+                digest.update(buffer, 0, read);
+                if (++reads % 64 == 0) {
+                    profile.checkpoint();
+                }
+            }
+        }
+        return digest.digest();
+    }
+
+    private static final class Result {
+        byte[] digest;
+        // median of the live heap peaks
+        long livePeak;
+    }
+
+    private Result profile(String label, Render render) throws Exception {
+        Result result = new Result();
+        for (int i = 0; i < WARMUP; i++) {
+            result.digest = render.run(new Profile());
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean allocationSupported = threads instanceof com.sun.management.ThreadMXBean;
+        long[] allocated = new long[ITERATIONS];
+        long[] sampledPeak = new long[ITERATIONS];
+        long[] livePeak = new long[ITERATIONS];
+        long[] firstByte = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            Profile profile = new Profile();
+            System.gc();
+            profile.baseline = memory.getHeapMemoryUsage().getUsed();
+            HeapSampler sampler = new HeapSampler(memory);
+            sampler.start();
+            long allocatedBefore = allocationSupported
+                    ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId())
+                    : 0;
+            profile.start = System.nanoTime();
+            render.run(profile);
+            allocated[i] = allocationSupported
+                    ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId())
+                            - allocatedBefore
+                    : -1;
+            sampledPeak[i] = sampler.finish() - profile.baseline;
+            livePeak[i] = profile.livePeak;
+            firstByte[i] = profile.firstByteNs;
+        }
+        Arrays.sort(allocated);
+        Arrays.sort(sampledPeak);
+        Arrays.sort(livePeak);
+        Arrays.sort(firstByte);
+        int p50 = ITERATIONS / 2;
+        LOG.info(String.format("%-22s allocated %7.1f MB, sampled peak %7.1f MB, live peak %7.1f MB,"
+                        + " first byte %8.3f ms",
+                label, allocated[p50] / 1048576.0, sampledPeak[p50] / 1048576.0, livePeak[p50] / 1048576.0,
+                firstByte[p50] / 1e6));
+        result.livePeak = livePeak[p50];
+        return result;
+    }
+
+    @Test
+    public void heapProfile5Mb() throws Exception {
+        LOG.info(String.format("Document: %d KB, %d placeholders", html.length() / 1024, PLACEHOLDERS));
+
+        Result string = profile("string", this::loadString);
+        Result stream;
+        try (MockedStatic<FileUtils> files = mockStatic(FileUtils.class, CALLS_REAL_METHODS)) {
+            stream = profile("stream", this::stream);
+            // neither the compilation nor the stream reads the file as a whole
+            files.verify(() -> FileUtils.readFile(any(File.class)), never());
+        }
+
+        assertTrue("streamed document differs from the string", Arrays.equals(string.digest, stream.digest));
+        // the template and a few buffers; the document alone would take DOCUMENT_SIZE
+        assertTrue("live heap of the stream: " + stream.livePeak, stream.livePeak < DOCUMENT_SIZE / 4);
+    }
+
+    private static final class HeapSampler extends Thread {
+        private final MemoryMXBean memory;
+        private volatile boolean running = true;
+        private long peak;
+
+        HeapSampler(MemoryMXBean memory) {
+            super("HeapSampler");
+            this.memory = memory;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        long finish() throws InterruptedException {
+            running = false;
+            join();
+            return peak;
+        }
+    }
+}
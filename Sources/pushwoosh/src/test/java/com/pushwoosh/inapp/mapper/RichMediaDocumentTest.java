@@ -0,0 +1,303 @@
+package com.pushwoosh.inapp.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.pushwoosh.internal.utils.FileUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RichMediaDocumentTest {
+    private static final String SCRIPT = "var pushwoosh = {};";
+    private static final String CODE = "ABCDE-12345";
+    private static final long UPDATED = 1700000000L;
+
+    private File html;
+    private Map<String, String> localizedStrings;
+    private Map<String, String> tags;
+
+    @Before
+    public void setUp() throws Exception {
+        html = File.createTempFile("index", ".html");
+
+        localizedStrings = new HashMap<>();
+        localizedStrings.put("LocalizedString1", "LocalizedStringValue1");
+        localizedStrings.put("LocalizedString2", "{Tag2|CapitalizeFirst|Tag2Value}");
+
+        tags = new HashMap<>();
+        tags.put("DynamicContentValue", "DynamicContentValue");
+        tags.put("Tag2", "Tag2");
+        tags.put("Tag3", "Tag3");
+        tags.put("tag4", "{DynamicContent|Type|Value");
+        tags.put("tag5", "{DynamicContent|Type|}");
+    }
+
+    @After
+    public void tearDown() {
+        PlaceholderSubstitutor.clearTemplateCache();
+        html.delete();
+    }
+
+    // Verifies the localized strings and tags of a rich media are substituted as by the legacy passes.
+    @Test
+    public void open_substitutesPlaceholders() throws Exception {
+        assertStreamedAsLegacy("<html><head><title>{{LocalizedString1|text|testvalue1}}</title></head><body>"
+                + "{{LocalizedString3|text|testvalue3}}, {{tag3|templateValue3}},"
+                + " {DynamicContent|String|DefaultDynamicValue}, "
+                + "{DynamicContent|String|}, {DynamicContentValue|String|Default}</body></html>");
+    }
+
+    // Verifies a localized string holding a tag placeholder, which the legacy passes substitute once more,
+    // leaves the document to them.
+    @Test
+    public void prepare_placeholderInLocalizedString_returnsNull() throws Exception {
+        write("<head>{{LocalizedString2|text|testvalue2}}</head>");
+
+        assertNull(RichMediaDocument.prepare(CODE, UPDATED, html, localizedStrings, tags));
+    }
+
+    // Verifies braces of stylesheets and scripts around placeholders are left as they are.
+    @Test
+    public void open_cssAndScripts() throws Exception {
+        assertStreamedAsLegacy("<html><head><style>\n.a { color: red; }\n.b{margin:0}</style>\n"
+                + "<script>function f() { if (x) { return {a: 1}; } }</script></head>\n"
+                + "<body><p>{{LocalizedString1|text|testvalue1}}</p><p>{Tag3|String|}</p>"
+                + "<script>var o = {k: '{Tag2|CapitalizeFirst|}'};</script></body></html>");
+    }
+
+    // Verifies line terminators and a missing last line terminator end up as FileUtils.readFile makes them.
+    @Test
+    public void open_lineTerminators() throws Exception {
+        assertStreamedAsLegacy("<head>\r\n{{LocalizedString1|text|a}}\r{Tag3|String|}\n\r\nlast line");
+    }
+
+    // Verifies the script is injected after a "<head>" split between two chunks of the stream.
+    @Test
+    public void open_headAcrossChunks() throws Exception {
+        for (int padding = 16 * 1024 - 8; padding < 16 * 1024 + 8; padding++) {
+            assertStreamedAsLegacy(repeat('x', padding) + "<head>{{LocalizedString1|text|a}}</head>");
+        }
+    }
+
+    // Verifies a surrogate pair at the end of a chunk is encoded as one character.
+    @Test
+    public void open_surrogatePairs() throws Exception {
+        StringBuilder content = new StringBuilder("<head>");
+        while (content.length() < 40 * 1024) {
+            content.append("\uD83D\uDE00 {Tag2|String|} ");
+        }
+        assertStreamedAsLegacy(content.toString());
+    }
+
+    // Verifies a document whose template isn't compiled is left to the legacy passes.
+    @Test
+    public void prepare_legacyTemplate_returnsNull() throws Exception {
+        write("<head>\uE000{Tag2|String|}</head>");
+
+        assertNull(RichMediaDocument.prepare(CODE, UPDATED, html, localizedStrings, tags));
+    }
+
+    // Verifies a value the template can't render exactly leaves the document to the legacy passes.
+    @Test
+    public void prepare_valueWithBraces_returnsNull() throws Exception {
+        write("<head>{tag4|String|}</head>");
+
+        assertNull(RichMediaDocument.prepare(CODE, UPDATED, html, localizedStrings, tags));
+    }
+
+    // Verifies every display of the same deployment streams the template compiled by the first one.
+    @Test
+    public void prepare_sameDeployment_reusesTemplate() throws Exception {
+        write("<head>{{LocalizedString1|text|a}}</head>");
+
+        PlaceholderTemplate template = PlaceholderSubstitutor.template(CODE, UPDATED, html);
+        assertNotNull(RichMediaDocument.prepare(CODE, UPDATED, html, localizedStrings, tags));
+
+        assertSame(template, PlaceholderSubstitutor.template(CODE, UPDATED, html));
+    }
+
+    // Verifies a document changed after it was prepared is not streamed with keys of the old one.
+    @Test
+    public void open_changedFile_throws() throws Exception {
+        write("<head>{Tag2|String|}</head>");
+        RichMediaDocument document = RichMediaDocument.prepare(CODE, UPDATED, html, localizedStrings, tags);
+        assertNotNull(document);
+
+        write("<head>{Tag3|String|}</head><body></body>");
+
+        try {
+            document.open(SCRIPT);
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // the rich media is reloaded as a string
+        }
+    }
+
+    // Verifies random documents full of braces and bars either stream as the legacy passes render them
+    // or are left to the legacy passes.
+    @Test
+    public void open_randomDocuments_sameAsLegacy() throws Exception {
+        String[] pieces = {"{", "}", "|", "a", "b", " ", "\n", "\r\n", "\r", "<head>", "}}", "{{",
+                "{{a|text|x}}", "{b|String|}", "{a|t}", "\uD83D\uDE00"};
+        Map<String, String> randomLocalizedStrings = new HashMap<>();
+        randomLocalizedStrings.put("a", "A");
+        randomLocalizedStrings.put("b", "{a|t|q}");
+        Map<String, String> randomTags = new HashMap<>();
+        randomTags.put("a", "T}");
+        randomTags.put("b", "{b|x|");
+
+        Random random = new Random(42);
+        int streamed = 0;
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder content = new StringBuilder();
+            int length = random.nextInt(60);
+            for (int j = 0; j < length; j++) {
+                content.append(pieces[random.nextInt(pieces.length)]);
+            }
+            write(content.toString());
+
+            RichMediaDocument document = RichMediaDocument.prepare(CODE, UPDATED, html, randomLocalizedStrings, randomTags);
+            if (document != null) {
+                assertEquals(content.toString(),
+                        legacy(randomLocalizedStrings, randomTags), read(document.open(SCRIPT)));
+                streamed++;
+            }
+        }
+        assertTrue("too many documents left to the legacy passes: " + streamed, streamed > 1000);
+    }
+
+    // Verifies a document compiled in several regions streams placeholders of every region, including keys
+    // that show up again in other regions.
+    @Test
+    public void open_placeholdersInSeveralRegions() throws Exception {
+        StringBuilder content = new StringBuilder("<html><head><style>\n");
+        for (int i = 0; i < 2000; i++) {
+            content.append(".block-").append(i).append(" { margin: ").append(i).append("px; }\n");
+        }
+        content.append("</style></head><body>\n");
+        for (int i = 0; i < 500; i++) {
+            content.append("<p>{{LocalizedString1|text|a}} {Tag").append(i % 4).append("|String|}</p>")
+                    .append("<script>if (x) { f(").append(i).append("); }</script>\n");
+        }
+        content.append("</body></html>");
+        assertTrue(content.length() > 4 * 16 * 1024);
+
+        assertStreamedAsLegacy(content.toString());
+    }
+
+    // Verifies a long run without braces, such as an inline image, doesn't keep the document from streaming.
+    @Test
+    public void open_inlineImage() throws Exception {
+        StringBuilder content = new StringBuilder("<head><style>.a { color: red; }</style></head><body>")
+                .append("<img src=\"data:image/png;base64,");
+        while (content.length() < 600 * 1024) {
+            content.append("iVBORw0KGgoAAAANSUhEUgAA");
+        }
+        content.append("\"><p>{{LocalizedString1|text|a}}</p></body>");
+
+        assertStreamedAsLegacy(content.toString());
+    }
+
+    // Verifies random documents cut into regions either stream as the legacy passes render them or are left
+    // to the legacy passes.
+    @Test
+    public void open_randomLargeDocuments_sameAsLegacy() throws Exception {
+        String[] pieces = {"{", "}", "|", "a", " ", "\n", "<head>", "}}", "{{", "{{a|text|x}}", "{b|String|}",
+                "{a|t}", "{a|String|d}"};
+        String[] padding = {".c { m: 0; }\n", "<p>text text</p>", "QUJDREVGR0g="};
+        Map<String, String> randomLocalizedStrings = new HashMap<>();
+        randomLocalizedStrings.put("a", "A");
+        Map<String, String> randomTags = new HashMap<>();
+        randomTags.put("a", "T");
+        randomTags.put("b", "B");
+
+        Random random = new Random(42);
+        int streamed = 0;
+        for (int i = 0; i < 100; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int block = random.nextInt(4); block >= 0; block--) {
+                for (int j = random.nextInt(20); j > 0; j--) {
+                    content.append(pieces[random.nextInt(pieces.length)]);
+                }
+                String pad = padding[random.nextInt(padding.length)];
+                for (int length = random.nextInt(40 * 1024); length > 0; length -= pad.length()) {
+                    content.append(pad);
+                }
+            }
+            write(content.toString());
+
+            RichMediaDocument document = RichMediaDocument.prepare(CODE, UPDATED, html, randomLocalizedStrings, randomTags);
+            if (document != null) {
+                assertEquals(legacy(randomLocalizedStrings, randomTags), read(document.open(SCRIPT)));
+                streamed++;
+            }
+        }
+        assertTrue("too many documents left to the legacy passes: " + streamed, streamed > 25);
+    }
+
+    private void assertStreamedAsLegacy(String content) throws IOException {
+        write(content);
+
+        RichMediaDocument document = RichMediaDocument.prepare(CODE, UPDATED, html, localizedStrings, tags);
+
+        assertNotNull(document);
+        assertEquals(legacy(localizedStrings, tags), read(document.open(SCRIPT)));
+    }
+
+    // what ResourceMapper and RichMediaWebActivity used to hand to loadDataWithBaseURL
+    private String legacy(Map<String, String> localizedStrings, Map<String, String> tags) throws IOException {
+        String content = PlaceholderSubstitutor.substituteLegacy(FileUtils.readFile(html), localizedStrings, tags);
+        return content.replace("<head>", "<head>\n<script type=\"text/javascript\">" + SCRIPT + "</script>");
+    }
+
+    private void write(String content) throws IOException {
+        long lastModified = html.lastModified();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(html))) {
+            writer.write(content);
+        }
+        // a rewrite within the timestamp resolution still has to look modified
+        html.setLastModified(lastModified + 1000);
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = stream) {
+            byte[] buffer = new byte[1000];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toString("UTF-8");
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
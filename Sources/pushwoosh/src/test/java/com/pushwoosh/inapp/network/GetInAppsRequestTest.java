@@ -33,6 +33,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -41,6 +42,9 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class GetInAppsRequestTest {
+	private static final String IN_APP = "{\"url\":\"https:\\/\\/richmedia.pushwoosh.com\\/5\\/9\\/59D14-A0C23.zip\"," +
+			"\"code\":\"CE545-99A0A\",\"layout\":\"topbanner\",\"updated\":1548402966,\"closeButtonType\":1," +
+			"\"hash\":\"ae274622772dc8fee4fda8e653de1a81\",\"required\":true,\"priority\":0}";
 
 	@Test
 	public void testGetMethod() throws Exception {
@@ -199,4 +203,64 @@ public class GetInAppsRequestTest {
 		GetInAppsRequest request = new GetInAppsRequest();
 		List<Resource> inApps = request.parseResponse(response);
 	}
+
+	// Verifies the version of the stored list is sent only when there is one.
+	@Test
+	public void testBuildParamsVersion() throws Exception {
+		JSONObject params = new JSONObject();
+		new GetInAppsRequest("v1").buildParams(params);
+		assertEquals("v1", params.getString("version"));
+
+		params = new JSONObject();
+		new GetInAppsRequest().buildParams(params);
+		assertFalse(params.has("version"));
+	}
+
+	// Verifies a whole list is returned with its version.
+	@Test
+	public void testParseResponseWithVersion() throws Exception {
+		GetInAppsRequest request = new GetInAppsRequest("v1");
+		List<Resource> inApps = request.parseResponse(new JSONObject("{\"version\":\"v2\",\"inApps\":[" + IN_APP + "]}"));
+
+		assertEquals(1, inApps.size());
+		assertEquals("v2", request.getVersion());
+		assertFalse(request.isNotModified());
+		assertFalse(request.isDelta());
+	}
+
+	// Verifies a "not modified" answer is parsed without a list.
+	@Test
+	public void testParseResponseNotModified() throws Exception {
+		GetInAppsRequest request = new GetInAppsRequest("v1");
+		List<Resource> inApps = request.parseResponse(new JSONObject("{\"version\":\"v1\",\"notModified\":true}"));
+
+		assertTrue(inApps.isEmpty());
+		assertTrue(request.isNotModified());
+		assertEquals("v1", request.getVersion());
+	}
+
+	// Verifies a delta is parsed into the changed in-apps and the codes of the removed ones.
+	@Test
+	public void testParseResponseDelta() throws Exception {
+		GetInAppsRequest request = new GetInAppsRequest("v1");
+		List<Resource> inApps = request.parseResponse(new JSONObject(
+				"{\"version\":\"v2\",\"delta\":true,\"inApps\":[" + IN_APP + "],\"removed\":[\"A\",\"B\"]}"));
+
+		assertTrue(request.isDelta());
+		assertEquals(1, inApps.size());
+		assertEquals("CE545-99A0A", inApps.get(0).getCode());
+		assertEquals(Arrays.asList("A", "B"), request.getRemoved());
+		assertEquals("v2", request.getVersion());
+	}
+
+	// Verifies a delta or "not modified" answer to a request without a version is not trusted.
+	@Test
+	public void testParseResponseDeltaWithoutKnownVersion() throws Exception {
+		GetInAppsRequest request = new GetInAppsRequest();
+		request.parseResponse(new JSONObject("{\"version\":\"v2\",\"notModified\":true,\"delta\":true}"));
+
+		assertFalse(request.isNotModified());
+		assertFalse(request.isDelta());
+		assertTrue(request.getRemoved().isEmpty());
+	}
 }
@@ -2,10 +2,14 @@ package com.pushwoosh.inapp.network;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.pushwoosh.inapp.network.model.Resource;
 import com.pushwoosh.inapp.storage.InAppFolderProvider;
+import com.pushwoosh.inapp.storage.InAppManifest;
 import com.pushwoosh.inapp.storage.InAppStorage;
 
 import org.junit.After;
@@ -133,4 +137,63 @@ public class InAppDeployedCheckerTest {
 
         assertFalse(checker.check(input));
     }
+
+    // Verifies files of an inApp found on disk are not looked for again.
+    @Test
+    public void check_deployedFound_laterChecksSkipDisk() {
+        Resource input = resource(CODE, 100L);
+        when(inAppStorage.getResource(CODE)).thenReturn(resource(CODE, 100L));
+        when(inAppFolderProvider.getInAppHtmlFile(CODE)).thenReturn(htmlFile);
+        when(htmlFile.exists()).thenReturn(true);
+
+        assertTrue(checker.check(input));
+        assertTrue(checker.check(input));
+        assertTrue(checker.check(input));
+
+        verify(htmlFile, times(1)).exists();
+    }
+
+    // Verifies an inApp deployed through the manifest is not looked for on disk at all.
+    @Test
+    public void check_inManifest_skipsDisk() {
+        InAppManifest manifest = new InAppManifest();
+        manifest.beginChange(CODE);
+        manifest.endChange(CODE, new InAppManifest.Entry(CODE, 100L, "hash", null));
+        checker = new InAppDeployedChecker(inAppStorage, inAppFolderProvider, manifest);
+        when(inAppStorage.getResource(CODE)).thenReturn(resource(CODE, 100L));
+
+        assertTrue(checker.check(resource(CODE, 100L)));
+
+        verify(inAppFolderProvider, never()).getInAppHtmlFile(CODE);
+    }
+
+    // Verifies files removed through the manifest are looked for on disk again.
+    @Test
+    public void check_removedFromManifest_looksOnDiskAgain() {
+        InAppManifest manifest = new InAppManifest();
+        checker = new InAppDeployedChecker(inAppStorage, inAppFolderProvider, manifest);
+        Resource input = resource(CODE, 100L);
+        when(inAppStorage.getResource(CODE)).thenReturn(resource(CODE, 100L));
+        when(inAppFolderProvider.getInAppHtmlFile(CODE)).thenReturn(htmlFile);
+        when(htmlFile.exists()).thenReturn(true);
+        assertTrue(checker.check(input));
+
+        manifest.beginChange(CODE);
+        manifest.endChange(CODE, null);
+        when(htmlFile.exists()).thenReturn(false);
+
+        assertFalse(checker.check(input));
+    }
+
+    // Verifies a stale stored inApp is not deployed even if the manifest still has its files.
+    @Test
+    public void check_inManifestButUpdatedMismatch_returnsFalse() {
+        InAppManifest manifest = new InAppManifest();
+        manifest.beginChange(CODE);
+        manifest.endChange(CODE, new InAppManifest.Entry(CODE, 100L, "hash", null));
+        checker = new InAppDeployedChecker(inAppStorage, inAppFolderProvider, manifest);
+        when(inAppStorage.getResource(CODE)).thenReturn(resource(CODE, 100L));
+
+        assertFalse(checker.check(resource(CODE, 200L)));
+    }
 }
@@ -0,0 +1,109 @@
+package com.pushwoosh.inapp.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Wake-up latency of a thread waiting for the in-app list: time from the load finishing to the
+ * waiter resuming, for the former 200 ms polling loop and for {@link InAppLoadTracker}. Loads finish
+ * at random points of the polling period, as they do in the field.
+ */
+public class InAppLoadTrackerBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(InAppLoadTrackerBenchmarkTest.class.getName());
+    private static final int ITERATIONS = 20;
+    private static final long POLL_INTERVAL_MS = 200;
+
+    private interface Waiter {
+        void await() throws Exception;
+    }
+
+    private interface Loader {
+        void finish();
+    }
+
+    private static long wakeLatencyNanos(Waiter waiter, Loader loader, long finishAfterMs) throws Exception {
+        final AtomicLong resumedAt = new AtomicLong();
+        final CountDownLatch started = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            started.countDown();
+            try {
+                waiter.await();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            resumedAt.set(System.nanoTime());
+        });
+        thread.start();
+        started.await();
+        Thread.sleep(finishAfterMs);
+        long finishedAt = System.nanoTime();
+        loader.finish();
+        thread.join();
+        return resumedAt.get() - finishedAt;
+    }
+
+    private static void report(String label, long[] latencies) {
+        Arrays.sort(latencies);
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        LOG.info(String.format("%-22s wake latency p50 %8.3f ms, avg %8.3f ms, max %8.3f ms", label,
+                latencies[latencies.length / 2] / 1e6, total / (double) latencies.length / 1e6,
+                latencies[latencies.length - 1] / 1e6));
+    }
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Test
+    public void loadFinishedToWaiterResumed() throws Exception {
+        Random random = new Random(5);
+        long[] polling = new long[ITERATIONS];
+        long[] tracked = new long[ITERATIONS];
+        final AtomicInteger pollingWakeUps = new AtomicInteger();
+        final AtomicInteger trackerTimeouts = new AtomicInteger();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long finishAfterMs = 20 + random.nextInt((int) POLL_INTERVAL_MS);
+
+            final AtomicBoolean loaded = new AtomicBoolean();
+            polling[i] = wakeLatencyNanos(() -> {
+                int waitCounter = 0;
+                while (!loaded.get() && waitCounter < 25) {
+                    Thread.sleep(POLL_INTERVAL_MS);
+                    pollingWakeUps.incrementAndGet();
+                    waitCounter++;
+                }
+            }, () -> loaded.set(true), finishAfterMs);
+
+            final InAppLoadTracker tracker = new InAppLoadTracker();
+            final long generation = tracker.begin();
+            tracked[i] = wakeLatencyNanos(() -> {
+                if (!tracker.await(generation, 5, TimeUnit.SECONDS)) {
+                    trackerTimeouts.incrementAndGet();
+                }
+            }, () -> tracker.complete(generation), finishAfterMs);
+        }
+
+        report("polling every 200 ms", polling);
+        report("InAppLoadTracker", tracked);
+        LOG.info(String.format("%d polling wake-ups for %d loads", pollingWakeUps.get(), ITERATIONS));
+
+        // the tracker resumes the waiter when the load completes, not when a timer fires
+        assertEquals(0, trackerTimeouts.get());
+    }
+}
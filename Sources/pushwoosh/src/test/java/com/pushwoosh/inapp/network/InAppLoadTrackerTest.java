@@ -0,0 +1,116 @@
+package com.pushwoosh.inapp.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class InAppLoadTrackerTest {
+
+    @Test
+    public void waiterIsReleasedWhenItsLoadCompletes() throws Exception {
+        InAppLoadTracker tracker = new InAppLoadTracker();
+        long generation = tracker.begin();
+        Future<Long> waiter = tracker.whenLoaded(generation);
+
+        assertFalse(waiter.isDone());
+        assertTrue(tracker.isLoading());
+
+        tracker.complete(generation);
+
+        assertEquals(Long.valueOf(generation), waiter.get(0, TimeUnit.MILLISECONDS));
+        assertTrue(tracker.isLoaded());
+        assertFalse(tracker.isLoading());
+    }
+
+    @Test
+    public void staleLoadDoesNotReleaseWaiterForReload() throws Exception {
+        InAppLoadTracker tracker = new InAppLoadTracker();
+        long first = tracker.begin();
+        long reload = tracker.begin();
+        Future<Long> waiter = tracker.whenLoaded(reload);
+
+        tracker.complete(first);
+
+        assertFalse(waiter.isDone());
+        assertTrue(tracker.isLoaded());
+        assertTrue(tracker.isLoading());
+
+        tracker.complete(reload);
+
+        assertEquals(Long.valueOf(reload), waiter.get());
+    }
+
+    @Test
+    public void newerLoadReleasesWaiterForOlderGeneration() throws Exception {
+        InAppLoadTracker tracker = new InAppLoadTracker();
+        long first = tracker.begin();
+        long reload = tracker.begin();
+        Future<Long> waiter = tracker.whenLoaded(first);
+
+        tracker.complete(reload);
+        tracker.complete(first);
+
+        assertEquals(Long.valueOf(reload), waiter.get());
+        assertFalse(tracker.isLoading());
+    }
+
+    @Test
+    public void completedGenerationIsReturnedWithoutWaiting() throws Exception {
+        InAppLoadTracker tracker = new InAppLoadTracker();
+        tracker.complete(tracker.begin());
+
+        assertTrue(tracker.whenLoaded(1).isDone());
+        assertTrue(tracker.await(1, 0, TimeUnit.MILLISECONDS));
+        assertEquals(0, tracker.waitersCount());
+    }
+
+    @Test
+    public void awaitTimesOutAndDropsWaiter() throws Exception {
+        InAppLoadTracker tracker = new InAppLoadTracker();
+        long generation = tracker.begin();
+
+        assertFalse(tracker.await(generation, 50, TimeUnit.MILLISECONDS));
+        assertEquals(0, tracker.waitersCount());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void cancelledWaiterIsReleasedWithCancellation() throws Exception {
+        InAppLoadTracker tracker = new InAppLoadTracker();
+        Future<Long> waiter = tracker.whenLoaded(tracker.begin());
+
+        assertTrue(waiter.cancel(false));
+        assertTrue(waiter.isCancelled());
+        assertEquals(0, tracker.waitersCount());
+
+        waiter.get();
+    }
+
+    @Test
+    public void cancelAfterCompletionHasNoEffect() throws Exception {
+        InAppLoadTracker tracker = new InAppLoadTracker();
+        long generation = tracker.begin();
+        Future<Long> waiter = tracker.whenLoaded(generation);
+        tracker.complete(generation);
+
+        assertFalse(waiter.cancel(true));
+        assertEquals(Long.valueOf(generation), waiter.get());
+    }
+
+    @Test(timeout = 5_000)
+    public void awaitingThreadWakesUpWhenAnotherThreadCompletes() throws Exception {
+        InAppLoadTracker tracker = new InAppLoadTracker();
+        long generation = tracker.begin();
+        Thread loader = new Thread(() -> tracker.complete(generation));
+
+        loader.start();
+
+        assertTrue(tracker.await(generation, 5, TimeUnit.SECONDS));
+        loader.join();
+    }
+}
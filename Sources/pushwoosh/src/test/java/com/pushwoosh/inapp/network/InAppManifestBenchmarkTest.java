@@ -0,0 +1,200 @@
+package com.pushwoosh.inapp.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.pushwoosh.inapp.network.model.InAppLayout;
+import com.pushwoosh.inapp.network.model.Resource;
+import com.pushwoosh.inapp.storage.ContextInAppFolderProvider;
+import com.pushwoosh.inapp.storage.InAppDbHelper;
+import com.pushwoosh.inapp.storage.InAppFolderProvider;
+import com.pushwoosh.inapp.storage.InAppManifest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Cost of an in-app sync with 500 in-apps, 5 of them changed: storing the list the server returned and
+ * checking that every in-app is deployed, as {@link InAppRepository} does after {@code getInApps}.
+ *
+ * <p>The former path selected every in-app from {@code inAppDb.db} before writing it and again to check
+ * it, then looked for its files on disk. {@link InAppDbHelper} now compares the list with its index and
+ * writes only the changed rows, and {@link InAppDeployedChecker} answers from the index and the
+ * {@link InAppManifest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class InAppManifestBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(InAppManifestBenchmarkTest.class.getName());
+    private static final int IN_APPS = 500;
+    private static final int CHANGED = 5;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    private InAppDbHelper storage;
+    private InAppFolderProvider folderProvider;
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        storage = new InAppDbHelper(RuntimeEnvironment.getApplication());
+        folderProvider = spy(new ContextInAppFolderProvider(RuntimeEnvironment.getApplication()));
+        for (int i = 0; i < IN_APPS; i++) {
+            File folder = folderProvider.getInAppFolder(code(i));
+            assertTrue(folder.isDirectory() || folder.mkdirs());
+            try (FileWriter writer = new FileWriter(folderProvider.getInAppHtmlFile(code(i)))) {
+                writer.write("<html><head></head><body></body></html>");
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        storage.close();
+    }
+
+    private static String code(int i) {
+        return String.format("%05d-%05d", i, i * 7);
+    }
+
+    // what getInApps returns on the given sync: every in-app, the first few of them updated
+    private static List<Resource> inApps(int sync) {
+        List<Resource> inApps = new ArrayList<>(IN_APPS);
+        for (int i = 0; i < IN_APPS; i++) {
+            long updated = i < CHANGED ? 1000L + sync : 1000L;
+            inApps.add(new Resource(code(i), "https://example.com/" + code(i) + ".zip", "hash" + i, updated,
+                    InAppLayout.FULLSCREEN, null, i % 10 == 0, i % 3));
+        }
+        return inApps;
+    }
+
+    private interface Sync {
+        int run(List<Resource> inApps);
+    }
+
+    // InAppDbHelper.saveOrUpdateResources and getResource before the index
+    private static Resource legacySelect(SQLiteDatabase db, String code) {
+        Cursor cursor = db.query("inApps", null, "code = ?", new String[]{code}, null, null, null);
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new Resource(code, cursor.getString(cursor.getColumnIndex("url")), "",
+                    cursor.getLong(cursor.getColumnIndex("updated")),
+                    InAppLayout.of(cursor.getString(cursor.getColumnIndex("layout"))), null,
+                    cursor.getInt(cursor.getColumnIndex("required")) == 1,
+                    cursor.getInt(cursor.getColumnIndex("priority")));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private int legacySync(List<Resource> inApps) {
+        SQLiteDatabase db = storage.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Resource inApp : inApps) {
+                Resource resource = legacySelect(db, inApp.getCode());
+                if (resource != null && resource.equals(inApp)) {
+                    continue;
+                }
+                db.execSQL("UPDATE OR IGNORE inApps SET url = ?, updated = ?, layout = ?, priority = ?, required = ?"
+                                + " WHERE code = ?",
+                        new Object[]{inApp.getUrl(), inApp.getUpdated(), inApp.getLayout().getCode(),
+                                inApp.getPriority(), inApp.isRequired() ? 1 : 0, inApp.getCode()});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        int deployed = 0;
+        for (Resource inApp : inApps) {
+            Resource resource = legacySelect(db, inApp.getCode());
+            if (resource == null || resource.getUpdated() != inApp.getUpdated()) {
+                continue;
+            }
+            File html = folderProvider.getInAppHtmlFile(inApp.getCode());
+            File nativeConfig = folderProvider.getNativeConfigFile(inApp.getCode());
+            if (html != null && html.exists() || nativeConfig != null && nativeConfig.exists()) {
+                deployed++;
+            }
+        }
+        return deployed;
+    }
+
+    private int indexedSync(InAppDeployedChecker checker, List<Resource> inApps) {
+        storage.saveOrUpdateResources(inApps);
+        int deployed = 0;
+        for (Resource inApp : inApps) {
+            if (checker.check(inApp)) {
+                deployed++;
+            }
+        }
+        return deployed;
+    }
+
+    private void measure(String label, Sync sync, int firstSync) {
+        for (int i = 0; i < WARMUP; i++) {
+            assertEquals(IN_APPS, sync.run(inApps(firstSync + i)));
+        }
+        clearInvocations(folderProvider);
+        long[] elapsed = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            List<Resource> inApps = inApps(firstSync + WARMUP + i);
+            long start = System.nanoTime();
+            int deployed = sync.run(inApps);
+            elapsed[i] = System.nanoTime() - start;
+            assertEquals(IN_APPS, deployed);
+        }
+        Arrays.sort(elapsed);
+        long total = 0;
+        for (long e : elapsed) {
+            total += e;
+        }
+        LOG.info(String.format("%-26s sync p50 %8.3f ms, avg %8.3f ms, max %8.3f ms", label,
+                elapsed[ITERATIONS / 2] / 1e6, total / (double) ITERATIONS / 1e6, elapsed[ITERATIONS - 1] / 1e6));
+    }
+
+    @Test
+    public void syncFiveHundredInApps() {
+        storage.saveOrUpdateResources(inApps(0));
+        InAppDeployedChecker checker = new InAppDeployedChecker(storage, folderProvider, new InAppManifest());
+
+        measure("select per in-app", this::legacySync, 1);
+        verify(folderProvider, times(IN_APPS * ITERATIONS)).getInAppHtmlFile(anyString());
+
+        // the manifest knows every in-app after the first sync, changed ones included
+        measure("index and manifest", inApps -> indexedSync(checker, inApps), 1000);
+        verify(folderProvider, never()).getInAppHtmlFile(anyString());
+        verify(folderProvider, never()).getNativeConfigFile(anyString());
+    }
+}
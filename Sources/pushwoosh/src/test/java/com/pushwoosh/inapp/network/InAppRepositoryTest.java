@@ -68,6 +68,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.robolectric.RobolectricTestRunner;
@@ -80,7 +81,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Created by aevstefeev on 07/03/2018.
@@ -191,6 +191,66 @@ public class InAppRepositoryTest {
         Assert.assertEquals(true, data.isRequired());
     }
 
+    // postEvent: a code that arrives while /getInApps is in flight is resolved from that load, not a second request.
+    @Test(timeout = 10_000)
+    public void postEvent_inAppListLoading_waitsForLoadInsteadOfRefetching() throws Exception {
+        Resource full =
+                new Resource("test_code", "http://example.com/z.zip", "h", 5L, InAppLayout.FULLSCREEN, null, true, 0);
+        when(inAppStorageMock.getResource("test_code")).thenReturn(null, full);
+        when(inAppDeployedCheckerMock.check(full)).thenReturn(true);
+        WhiteboxHelper.setInternalState(inAppRepository, "io", InAppExecutorServiceHelper.createExecutorService());
+
+        InAppLoadTracker inAppListLoad =
+                (InAppLoadTracker) WhiteboxHelper.getInternalState(inAppRepository, "inAppListLoad");
+        long generation = inAppListLoad.begin();
+        Thread listLoader = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            inAppListLoad.complete(generation);
+        });
+        listLoader.start();
+
+        Callback<Resource, PostEventException> callback = CallbackWrapper.spy();
+        inAppRepository.postEvent("test_event", Tags.intTag("intTag", 5), callback);
+        JSONObject response = new JSONObject();
+        response.put("code", "test_code");
+        emulatePostEventToNetwork(Result.fromData(new PostEventResponse(response)));
+        listLoader.join();
+
+        ArgumentCaptor<Result<Resource, PostEventException>> resultArgumentCaptor =
+                ArgumentCaptor.forClass(Result.class);
+        verify(callback).process(resultArgumentCaptor.capture());
+        Assert.assertSame(full, resultArgumentCaptor.getValue().getData());
+        verify(requestManagerMock, never()).sendRequestSync(any());
+    }
+
+    // postEvent: a code missing from a list fetched a moment ago is not looked up with another /getInApps.
+    @Test
+    public void postEvent_codeMissingFromRecentList_doesNotRefetch() throws Exception {
+        List<Resource> resources = new ArrayList<>();
+        resources.add(new Resource("test_code", true));
+        when(requestManagerMock.sendRequestSync(any())).thenReturn(Result.from(resources, null));
+        WhiteboxHelper.setInternalState(inAppRepository, "io", InAppExecutorServiceHelper.createExecutorService());
+        ArgumentCaptor<Callback<PostEventResponse, NetworkException>> callbackCaptor =
+                ArgumentCaptor.forClass(Callback.class);
+        JSONObject response = new JSONObject();
+        response.put("code", "missing_code");
+
+        inAppRepository.postEvent("first_event", null, CallbackWrapper.spy());
+        verify(requestManagerMock).sendRequest(any(PostEventRequest.class), callbackCaptor.capture());
+        callbackCaptor.getValue().process(Result.fromData(new PostEventResponse(response)));
+
+        inAppRepository.postEvent("second_event", null, CallbackWrapper.spy());
+        verify(requestManagerMock, Mockito.times(2)).sendRequest(any(PostEventRequest.class), callbackCaptor.capture());
+        callbackCaptor.getValue().process(Result.fromData(new PostEventResponse(response)));
+
+        verify(requestManagerMock, Mockito.times(1)).sendRequestSync(any());
+        verify(inAppStorageMock).saveOrUpdateResources(resources);
+    }
+
     private void emulatePostEventToNetwork(Result<PostEventResponse, NetworkException> result) throws JSONException {
         ArgumentCaptor<Callback<PostEventResponse, NetworkException>> callbackNetworkArgumentCaptor =
                 ArgumentCaptor.forClass(Callback.class);
@@ -328,12 +388,26 @@ public class InAppRepositoryTest {
         verify(inAppDownloaderMock).downloadAndDeploy(Collections.singletonList(resource));
     }
 
+    // ensureResolvedAndDeployed: a concurrent deploy that finished before we subscribed doesn't block the caller.
+    @Test(timeout = 10_000)
+    public void ensureResolvedAndDeployed_concurrentDeployFinishedBeforeWait_returnsDeployed() {
+        Resource resource =
+                new Resource("1", "http://example.com/inapp", null, 0L, InAppLayout.FULLSCREEN, null, true, -1);
+        when(inAppDeployedCheckerMock.check(resource)).thenReturn(false, false, true);
+        when(inAppDownloaderMock.isDownloading(resource)).thenReturn(true, false);
+
+        Result<Resource, ResourceParseException> result = inAppRepository.ensureResolvedAndDeployed(resource);
+
+        Assert.assertTrue(result.isSuccess());
+        verify(inAppDownloaderMock, never()).downloadAndDeploy(anyList());
+    }
+
     // ensureResolvedAndDeployed: code-only in-app resolves the full Resource from storage.
     @Test
     public void ensureResolvedAndDeployed_inAppByCode_resolvesFromStorage() {
         Result<Object, NetworkException> emptyResult = Result.fromData(Collections.emptyList());
         when(requestManagerMock.sendRequestSync(any())).thenReturn(emptyResult);
-        inAppRepository.loadInApps(); // sets inAppLoaded=true
+        inAppRepository.loadInApps(); // marks the in-app list loaded
 
         Resource stub = new Resource("code1", false);
         Resource full =
@@ -427,7 +501,7 @@ public class InAppRepositoryTest {
 
     // Verifies that a non-required code-only in-app does not resolve from storage while the in-app
     // list is not loaded yet and goes straight to the download path with the stub.
-    // Kills L497 mutant that makes inAppLoaded.get() always true: the mutant enters the resolve
+    // Kills L497 mutant that makes inAppListLoad.isLoaded() always true: the mutant enters the resolve
     // block immediately and "successfully" resolves the baited full resource from storage.
     @Test
     public void ensureResolvedAndDeployed_notRequiredListNotLoaded_skipsStorageResolve() {
@@ -448,9 +522,9 @@ public class InAppRepositoryTest {
         verify(inAppDownloaderMock).downloadAndDeploy(anyList());
     }
 
-    // Verifies that loadInApps sets inAppLoaded flag and skips downloads when server returns empty list.
+    // Verifies that loadInApps marks the in-app list loaded and skips downloads when server returns empty list.
     @Test
-    public void loadInApps_inAppListEmpty_setsInAppLoadedFlagAndReturnsNullData() {
+    public void loadInApps_inAppListEmpty_marksListLoadedAndReturnsNullData() {
         Result<Object, NetworkException> emptyResult = Result.fromData(Collections.emptyList());
         when(requestManagerMock.sendRequestSync(any())).thenReturn(emptyResult);
 
@@ -460,13 +534,14 @@ public class InAppRepositoryTest {
         Assert.assertNull(result.getException());
         verify(inAppDownloaderMock, never()).downloadAndDeploy(anyList());
         verify(inAppDownloaderMock, never()).removeResourceFiles(Mockito.anyString());
-        AtomicBoolean inAppLoaded = (AtomicBoolean) WhiteboxHelper.getInternalState(inAppRepository, "inAppLoaded");
-        Assert.assertTrue(inAppLoaded.get());
+        InAppLoadTracker inAppListLoad =
+                (InAppLoadTracker) WhiteboxHelper.getInternalState(inAppRepository, "inAppListLoad");
+        Assert.assertTrue(inAppListLoad.isLoaded());
     }
 
-    // Verifies that loadInApps still sets inAppLoaded flag in finally block when storage throws.
+    // Verifies that loadInApps still marks the in-app list loaded in finally block when storage throws.
     @Test
-    public void loadInApps_storageThrows_stillSetsInAppLoadedFlag() {
+    public void loadInApps_storageThrows_stillMarksListLoaded() {
         List<Resource> resourceList = new ArrayList<>();
         resourceList.add(new Resource("1", true));
         Result<Object, NetworkException> result = Result.fromData(resourceList);
@@ -475,8 +550,9 @@ public class InAppRepositoryTest {
 
         Assert.assertThrows(RuntimeException.class, () -> inAppRepository.loadInApps());
 
-        AtomicBoolean inAppLoaded = (AtomicBoolean) WhiteboxHelper.getInternalState(inAppRepository, "inAppLoaded");
-        Assert.assertTrue(inAppLoaded.get());
+        InAppLoadTracker inAppListLoad =
+                (InAppLoadTracker) WhiteboxHelper.getInternalState(inAppRepository, "inAppListLoad");
+        Assert.assertTrue(inAppListLoad.isLoaded());
     }
 
     // Verifies that setUserId fetches RequestManager from NetworkModule fallback when local one is null.
@@ -528,6 +604,110 @@ public class InAppRepositoryTest {
         verify(inAppDownloaderMock, never()).removeResourceFiles(Mockito.anyString());
     }
 
+    private static String inAppJson(String code, long updated) {
+        return "{\"code\":\"" + code + "\",\"url\":\"https://example.com/" + code + ".zip\",\"updated\":" + updated
+                + ",\"layout\":\"fullscreen\",\"hash\":\"hash\",\"required\":false,\"priority\":0}";
+    }
+
+    // answers getInApps with the response and returns the parameters of the requests
+    private List<JSONObject> answerGetInApps(String response) {
+        List<JSONObject> sentParams = new ArrayList<>();
+        when(requestManagerMock.sendRequestSync(any())).thenAnswer(invocation -> {
+            GetInAppsRequest request = invocation.getArgument(0);
+            JSONObject params = new JSONObject();
+            request.buildParams(params);
+            sentParams.add(params);
+            return Result.fromData(request.parseResponse(new JSONObject(response)));
+        });
+        return sentParams;
+    }
+
+    // Verifies that a "not modified" answer to the saved list version leaves storage and files alone.
+    @Test
+    public void loadInApps_notModified_skipsStorageAndDownloads() throws Exception {
+        when(inAppStorageMock.getListVersion(Mockito.anyString())).thenReturn("v1");
+        List<JSONObject> sentParams = answerGetInApps("{\"version\":\"v1\",\"notModified\":true}");
+
+        inAppRepository.loadInApps();
+
+        Assert.assertEquals("v1", sentParams.get(0).getString("version"));
+        verify(inAppStorageMock, never()).saveOrUpdateResources(anyList());
+        verify(inAppStorageMock, never()).saveListVersion(Mockito.anyString(), any());
+        verify(inAppDownloaderMock, never()).downloadAndDeploy(anyList());
+        // the stored list counts as a fresh one for codes of postEvent
+        Assert.assertNotEquals(0L, WhiteboxHelper.getInternalState(inAppRepository, "inAppListFetchedAt"));
+    }
+
+    // Verifies that a delta stores and deploys the changed in-apps, removes the removed ones and
+    // saves the new list version.
+    @Test
+    public void loadInApps_delta_appliesChangesAndSavesVersion() throws Exception {
+        Resource changed = new Resource(new JSONObject(inAppJson("A", 2)));
+        when(inAppStorageMock.getListVersion(Mockito.anyString())).thenReturn("v1");
+        when(inAppStorageMock.saveOrUpdateResources(anyList())).thenReturn(Collections.singletonList("A"));
+        when(inAppStorageMock.getResource("A")).thenReturn(changed);
+        when(inAppDownloaderMock.downloadAndDeploy(anyList())).thenReturn(DownloadResult.success(
+                Collections.singletonList(changed)));
+        answerGetInApps("{\"version\":\"v2\",\"delta\":true,\"inApps\":[" + inAppJson("A", 2) + "],"
+                + "\"removed\":[\"B\"]}");
+
+        inAppRepository.loadInApps();
+
+        verify(inAppStorageMock).saveOrUpdateResources(Collections.singletonList(changed));
+        verify(inAppDownloaderMock).removeResourceFiles("A");
+        InOrder removal = Mockito.inOrder(inAppStorageMock, inAppDownloaderMock);
+        removal.verify(inAppStorageMock).removeResources(Collections.singletonList("B"));
+        removal.verify(inAppDownloaderMock).removeResourceFiles("B");
+        verify(inAppDownloaderMock).downloadAndDeploy(Collections.singletonList(changed));
+        verify(inAppStorageMock).saveListVersion(Mockito.anyString(), Mockito.eq("v2"));
+    }
+
+    // Verifies that the list version is saved per device, so a version of another HWID is never sent.
+    @Test
+    public void loadInApps_hwidChanged_versionScopeChanges() throws Exception {
+        answerGetInApps("{\"inApps\":[]}");
+        platformTestManager.getRegistrationPrefs().hwid().set("hwid-1");
+        inAppRepository.loadInApps();
+        platformTestManager.getRegistrationPrefs().hwid().set("hwid-2");
+        inAppRepository.loadInApps();
+
+        ArgumentCaptor<String> scopes = ArgumentCaptor.forClass(String.class);
+        verify(inAppStorageMock, Mockito.times(2)).getListVersion(scopes.capture());
+        Assert.assertNotEquals(scopes.getAllValues().get(0), scopes.getAllValues().get(1));
+    }
+
+    // Verifies that the list version is forgotten when an in-app fails to deploy, so the next sync
+    // returns the whole list and retries it.
+    @Test
+    public void loadInApps_deployFailed_forgetsVersion() throws Exception {
+        Resource inApp = new Resource(new JSONObject(inAppJson("A", 2)));
+        DownloadResult failed = mock(DownloadResult.class);
+        when(failed.getFailed()).thenReturn(Collections.singletonList(inApp));
+        when(inAppStorageMock.getListVersion(Mockito.anyString())).thenReturn("v1");
+        when(inAppStorageMock.saveOrUpdateResources(anyList())).thenReturn(Collections.emptyList());
+        when(inAppStorageMock.getResource("A")).thenReturn(inApp);
+        when(inAppDownloaderMock.downloadAndDeploy(anyList())).thenReturn(failed);
+        answerGetInApps("{\"version\":\"v2\",\"inApps\":[" + inAppJson("A", 2) + "]}");
+
+        inAppRepository.loadInApps();
+
+        verify(inAppStorageMock).saveListVersion(Mockito.anyString(), Mockito.isNull());
+    }
+
+    // Verifies that no list version is saved for a server that doesn't version the list.
+    @Test
+    public void loadInApps_unversionedList_noVersionSaved() throws Exception {
+        when(inAppStorageMock.saveOrUpdateResources(anyList())).thenReturn(Collections.emptyList());
+        when(inAppDeployedCheckerMock.check(any(Resource.class))).thenReturn(true);
+        List<JSONObject> sentParams = answerGetInApps("{\"inApps\":[" + inAppJson("A", 2) + "]}");
+
+        inAppRepository.loadInApps();
+
+        Assert.assertFalse(sentParams.get(0).has("version"));
+        verify(inAppStorageMock).saveOrUpdateResources(anyList());
+        verify(inAppStorageMock, never()).saveListVersion(Mockito.anyString(), any());
+    }
+
     // Verifies that setUserId with callback delivers success Result when server responds with success.
     @Test
     public void setUserIdWithCallback_serverSuccess_callbackReceivesTrue() {
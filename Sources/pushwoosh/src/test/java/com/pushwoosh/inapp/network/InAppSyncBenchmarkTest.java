@@ -0,0 +1,202 @@
+package com.pushwoosh.inapp.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.pushwoosh.inapp.network.model.Resource;
+import com.pushwoosh.inapp.storage.InAppDbHelper;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Bytes on the wire and CPU of the application thread per app open with a catalog of 300 in-apps,
+ * against a local mock server: the whole {@code /getInApps} list parsed and stored as before, a delta of
+ * 3 changed in-apps and 1 removed one, and a "not modified" answer to the saved list version.
+ *
+ * <p>CPU is the time of the thread that sends the request, parses the response and stores the in-apps in
+ * {@link InAppDbHelper}; the mock server runs on threads of its own.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class InAppSyncBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(InAppSyncBenchmarkTest.class.getName());
+    private static final int IN_APPS = 300;
+    private static final int CHANGED = 3;
+    private static final int WARMUP = 5;
+    private static final int APP_OPENS = 30;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private MockWebServer server;
+    private InAppDbHelper storage;
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        storage = new InAppDbHelper(RuntimeEnvironment.getApplication());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        storage.close();
+        server.shutdown();
+    }
+
+    private static JSONObject inApp(int i, long updated) throws Exception {
+        return new JSONObject()
+                .put("code", String.format("%05X-%05X", i, i * 7))
+                .put("url", "https://richmedia.pushwoosh.com/inapps/" + i + ".zip")
+                .put("updated", updated)
+                .put("layout", "fullscreen")
+                .put("closeButtonType", 1)
+                .put("hash", "d41d8cd98f00b204e9800998ecf8427e")
+                .put("required", i % 10 == 0)
+                .put("priority", i % 3)
+                .put("businessCase", i % 20 == 0 ? "push-register" : "")
+                .put("gdpr", "");
+    }
+
+    private static String envelope(JSONObject response) throws Exception {
+        return new JSONObject().put("status_code", 200).put("status_message", "Ok").put("response", response)
+                .toString();
+    }
+
+    // the catalog on the given app open: the first in-apps are updated on every open
+    private static String fullList(int open) throws Exception {
+        JSONArray inApps = new JSONArray();
+        for (int i = 0; i < IN_APPS; i++) {
+            inApps.put(inApp(i, i < CHANGED ? 1700000000L + open : 1700000000L));
+        }
+        return envelope(new JSONObject().put("version", "v" + open).put("inApps", inApps));
+    }
+
+    private static String delta(int open) throws Exception {
+        JSONArray inApps = new JSONArray();
+        for (int i = 0; i < CHANGED; i++) {
+            inApps.put(inApp(i, 1700000000L + open));
+        }
+        return envelope(new JSONObject().put("version", "v" + open).put("delta", true).put("inApps", inApps)
+                .put("removed", new JSONArray().put("FFFFF-FFFFF")));
+    }
+
+    private static String notModified(int open) throws Exception {
+        return envelope(new JSONObject().put("version", "v" + open).put("notModified", true));
+    }
+
+    private interface Answer {
+        String body(int open) throws Exception;
+    }
+
+    private static final class Cost {
+        long requestBytes;
+        long responseBytes;
+        long cpuNanos;
+        int parsedInApps;
+    }
+
+    // what InAppRepository.loadInApps does up to the downloads
+    private Cost appOpen(GetInAppsRequest request, String response) throws Exception {
+        server.enqueue(new MockResponse().setBody(response));
+        Cost cost = new Cost();
+        long cpu = threads.getCurrentThreadCpuTime();
+
+        JSONObject params = new JSONObject();
+        request.buildParams(params);
+        byte[] body = new JSONObject().put("request", params).toString().getBytes("UTF-8");
+        URL url = new URL(server.url("/getInApps").toString());
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[8 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                received.write(buffer, 0, read);
+            }
+        }
+        JSONObject envelope = new JSONObject(received.toString("UTF-8"));
+        List<Resource> inApps = request.parseResponse(envelope.getJSONObject("response"));
+        cost.parsedInApps = inApps.size();
+        if (!request.isNotModified()) {
+            storage.saveOrUpdateResources(inApps);
+        }
+
+        cost.cpuNanos = threads.getCurrentThreadCpuTime() - cpu;
+        RecordedRequest recorded = server.takeRequest();
+        cost.requestBytes = recorded.getBodySize();
+        cost.responseBytes = received.size();
+        return cost;
+    }
+
+    private Cost[] measure(String label, boolean sendVersion, Answer answer, int parsedInApps) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            appOpen(new GetInAppsRequest(sendVersion ? "v" + i : null), answer.body(i));
+        }
+        Cost[] costs = new Cost[APP_OPENS];
+        long bytes = 0;
+        for (int i = 0; i < APP_OPENS; i++) {
+            int open = WARMUP + i;
+            costs[i] = appOpen(new GetInAppsRequest(sendVersion ? "v" + (open - 1) : null), answer.body(open));
+            bytes += costs[i].requestBytes + costs[i].responseBytes;
+            assertEquals(parsedInApps, costs[i].parsedInApps);
+        }
+        LOG.info(String.format("%-14s %7d B/app open (request %4d B, response %6d B), CPU p50 %7.3f ms",
+                label, bytes / APP_OPENS, costs[0].requestBytes, costs[0].responseBytes, p50Cpu(costs) / 1e6));
+        return costs;
+    }
+
+    private static long p50Cpu(Cost[] costs) {
+        long[] cpu = new long[costs.length];
+        for (int i = 0; i < costs.length; i++) {
+            cpu[i] = costs[i].cpuNanos;
+        }
+        Arrays.sort(cpu);
+        return cpu[cpu.length / 2];
+    }
+
+    @Test
+    public void appOpenWithThreeHundredInApps() throws Exception {
+        Cost[] full = measure("whole list", false, InAppSyncBenchmarkTest::fullList, IN_APPS);
+        Cost[] delta = measure("delta", true, InAppSyncBenchmarkTest::delta, CHANGED);
+        Cost[] notModified = measure("not modified", true, InAppSyncBenchmarkTest::notModified, 0);
+
+        assertEquals(IN_APPS, new JSONObject(fullList(0)).getJSONObject("response").getJSONArray("inApps").length());
+        assertTrue(delta[0].responseBytes * 20 < full[0].responseBytes);
+        assertTrue(notModified[0].responseBytes < delta[0].responseBytes);
+    }
+}
@@ -38,6 +38,7 @@ import androidx.annotation.NonNull;
 import com.pushwoosh.exception.PostEventException;
 import com.pushwoosh.function.Callback;
 import com.pushwoosh.function.Result;
+import com.pushwoosh.inapp.InAppModule;
 import com.pushwoosh.inapp.PushwooshInAppImpl;
 import com.pushwoosh.internal.SdkStateProvider;
 import com.pushwoosh.internal.network.NetworkException;
@@ -96,8 +97,7 @@ public class InAppTest {
 
         ExecutorService directIo = InAppExecutorServiceHelper.createExecutorService();
 
-        InAppRepository repository =
-                (InAppRepository) WhiteboxHelper.getInternalState(pushwooshInApp, "inAppRepository");
+        InAppRepository repository = InAppModule.getInAppRepository();
 
         WhiteboxHelper.setInternalState(repository, "io", directIo);
     }
@@ -0,0 +1,187 @@
+package com.pushwoosh.inapp.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import androidx.annotation.NonNull;
+
+import com.pushwoosh.function.Callback;
+import com.pushwoosh.function.Result;
+import com.pushwoosh.inapp.mapper.ResourceMapper;
+import com.pushwoosh.inapp.network.downloader.InAppDownloader;
+import com.pushwoosh.inapp.network.model.Resource;
+import com.pushwoosh.inapp.storage.InAppFolderProvider;
+import com.pushwoosh.inapp.storage.InAppStorage;
+import com.pushwoosh.inapp.storage.PendingEvent;
+import com.pushwoosh.inapp.storage.PendingEventsStorage;
+import com.pushwoosh.internal.network.ConnectionException;
+import com.pushwoosh.internal.network.NetworkException;
+import com.pushwoosh.internal.network.RequestManager;
+import com.pushwoosh.testutil.PlatformTestManager;
+import com.pushwoosh.testutil.WhiteboxHelper;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Round trips spent on 100 events: an offline burst followed by reconnection, and events that trigger
+ * in-apps missing from the local storage. Before {@link PostEventQueue} every event was one request
+ * whether the server was reachable or not, and every in-app code missing from the storage was looked
+ * up with its own /getInApps.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+@LooperMode(LooperMode.Mode.LEGACY)
+public class PostEventQueueBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(PostEventQueueBenchmarkTest.class.getName());
+    private static final int EVENTS = 100;
+
+    private PlatformTestManager platformTestManager;
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() {
+        platformTestManager = new PlatformTestManager();
+        platformTestManager.setUp();
+    }
+
+    @After
+    public void tearDown() {
+        platformTestManager.tearDown();
+    }
+
+    private static void report(String label, int roundTrips, int delivered) {
+        LOG.info(String.format("%-45s %4d round trips, %4d of %d events delivered",
+                label, roundTrips, delivered, EVENTS));
+    }
+
+    @Test
+    public void offlineBurstThenReconnect() throws Exception {
+        final boolean[] online = {false};
+        final AtomicInteger delivered = new AtomicInteger();
+        PostEventQueue queue = new PostEventQueue((request, callback) -> {
+            if (online[0]) {
+                delivered.incrementAndGet();
+                callback.process(Result.fromData(new PostEventResponse(new JSONObject())));
+            } else {
+                callback.process(Result.fromException(new ConnectionException("offline", 0, 0)));
+            }
+            return true;
+        }, new InMemoryStorage(), Runnable::run);
+
+        for (int i = 0; i < EVENTS; i++) {
+            queue.post(new PostEventRequest(new PendingEvent(-1, "event" + i, "{}", i, i)), null);
+        }
+        int offlineRoundTrips = queue.getRequestsSent();
+
+        online[0] = true;
+        queue.flushPending();
+        int totalRoundTrips = queue.getRequestsSent();
+
+        report("offline burst, request per event", EVENTS, 0);
+        report("offline burst, PostEventQueue", offlineRoundTrips, 0);
+        report("reconnect, PostEventQueue", totalRoundTrips - offlineRoundTrips, delivered.get());
+
+        assertEquals(EVENTS, delivered.get());
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(1, offlineRoundTrips);
+    }
+
+    @Test
+    public void triggersMissingFromStorage() throws Exception {
+        RequestManager requestManager = mock(RequestManager.class);
+        InAppStorage inAppStorage = mock(InAppStorage.class);
+        InAppRepository repository = new InAppRepository(
+                requestManager,
+                inAppStorage,
+                mock(InAppDownloader.class),
+                mock(ResourceMapper.class),
+                mock(InAppFolderProvider.class),
+                platformTestManager.getRegistrationPrefs());
+        WhiteboxHelper.setInternalState(repository, "inAppDeployedChecker", mock(InAppDeployedChecker.class));
+        WhiteboxHelper.setInternalState(repository, "io", InAppExecutorServiceHelper.createExecutorService());
+
+        List<Resource> inApps = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            inApps.add(new Resource("code" + i, false));
+        }
+        AtomicInteger getInApps = new AtomicInteger();
+        when(requestManager.sendRequestSync(any())).thenAnswer(invocation -> {
+            getInApps.incrementAndGet();
+            return Result.fromData(inApps);
+        });
+        AtomicInteger postEvents = new AtomicInteger();
+        doAnswer(invocation -> {
+            Callback<PostEventResponse, NetworkException> callback = invocation.getArgument(1);
+            JSONObject response = new JSONObject();
+            // the codes the server answers with are missing from the storage mock
+            response.put("code", "unknown" + postEvents.getAndIncrement());
+            callback.process(Result.fromData(new PostEventResponse(response)));
+            return null;
+        }).when(requestManager).sendRequest(any(PostEventRequest.class), any());
+
+        for (int i = 0; i < EVENTS; i++) {
+            repository.postEvent("event" + i, null, null);
+            repository.postEvent("trigger" + i, null, result -> { });
+        }
+
+        report("trigger resolution, /getInApps per code", EVENTS, EVENTS);
+        report("trigger resolution, stored in-app list", getInApps.get(), EVENTS);
+
+        assertEquals(EVENTS * 2, postEvents.get());
+        assertEquals(1, getInApps.get());
+    }
+
+    private static class InMemoryStorage implements PendingEventsStorage {
+        private final List<PendingEvent> events = new ArrayList<>();
+        private long nextId = 1;
+
+        @Override
+        public long add(@NonNull PendingEvent event) {
+            events.add(new PendingEvent(nextId, event.getEvent(), event.getAttributes(),
+                    event.getTimestampUtc(), event.getTimestampCurrent()));
+            return nextId++;
+        }
+
+        @NonNull
+        @Override
+        public List<PendingEvent> getAll() {
+            return new ArrayList<>(events);
+        }
+
+        @Override
+        public void remove(long id) {
+            for (int i = 0; i < events.size(); i++) {
+                if (events.get(i).getId() == id) {
+                    events.remove(i);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void clear() {
+            events.clear();
+        }
+    }
+}
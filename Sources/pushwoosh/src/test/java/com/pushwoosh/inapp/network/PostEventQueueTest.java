@@ -0,0 +1,296 @@
+package com.pushwoosh.inapp.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.pushwoosh.function.Callback;
+import com.pushwoosh.function.Result;
+import com.pushwoosh.inapp.storage.PendingEvent;
+import com.pushwoosh.inapp.storage.PendingEventsStorage;
+import com.pushwoosh.internal.network.CommunicationStoppedException;
+import com.pushwoosh.internal.network.ConnectionException;
+import com.pushwoosh.internal.network.NetworkException;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "AndroidManifest.xml")
+public class PostEventQueueTest {
+    private FakeSender sender;
+    private FakeStorage storage;
+    private PostEventQueue queue;
+
+    @Before
+    public void setUp() {
+        sender = new FakeSender();
+        storage = new FakeStorage();
+        queue = new PostEventQueue(sender, storage, Runnable::run);
+    }
+
+    static class FakeSender implements PostEventQueue.Sender {
+        final List<String> sent = new ArrayList<>();
+        final List<Callback<PostEventResponse, NetworkException>> callbacks = new ArrayList<>();
+        boolean available = true;
+
+        @Override
+        public boolean send(@NonNull PostEventRequest request, @NonNull Callback<PostEventResponse, NetworkException> callback) {
+            if (!available) {
+                return false;
+            }
+            sent.add(request.getEvent());
+            callbacks.add(callback);
+            return true;
+        }
+
+        void succeed() throws Exception {
+            callbacks.get(callbacks.size() - 1).process(Result.fromData(new PostEventResponse(new JSONObject())));
+        }
+
+        void fail(NetworkException exception) {
+            callbacks.get(callbacks.size() - 1).process(Result.fromException(exception));
+        }
+    }
+
+    static class FakeStorage implements PendingEventsStorage {
+        final List<PendingEvent> events = new ArrayList<>();
+        long nextId = 1;
+
+        @Override
+        public long add(@NonNull PendingEvent event) {
+            PendingEvent stored = new PendingEvent(nextId++, event.getEvent(), event.getAttributes(),
+                    event.getTimestampUtc(), event.getTimestampCurrent());
+            events.add(stored);
+            return stored.getId();
+        }
+
+        @NonNull
+        @Override
+        public List<PendingEvent> getAll() {
+            return new ArrayList<>(events);
+        }
+
+        @Override
+        public void remove(long id) {
+            for (int i = 0; i < events.size(); i++) {
+                if (events.get(i).getId() == id) {
+                    events.remove(i);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void clear() {
+            events.clear();
+        }
+    }
+
+    static class RecordingCallback implements Callback<PostEventResponse, NetworkException> {
+        final List<Result<PostEventResponse, NetworkException>> results = new ArrayList<>();
+
+        @Override
+        public void process(@NonNull Result<PostEventResponse, NetworkException> result) {
+            results.add(result);
+        }
+    }
+
+    private static PostEventRequest request(String event) {
+        return new PostEventRequest(new PendingEvent(-1, event, "{}", 1000, 1000));
+    }
+
+    @Test
+    public void post_sendsEventsOneAtATimeInOrder() throws Exception {
+        queue.post(request("first"), null);
+        queue.post(request("second"), null);
+        queue.post(request("third"), null);
+
+        assertEquals(1, sender.sent.size());
+
+        sender.succeed();
+        sender.succeed();
+        sender.succeed();
+
+        assertEquals(3, sender.sent.size());
+        assertEquals("first", sender.sent.get(0));
+        assertEquals("second", sender.sent.get(1));
+        assertEquals("third", sender.sent.get(2));
+        assertEquals(0, queue.getPendingCount());
+        assertTrue(storage.events.isEmpty());
+    }
+
+    @Test
+    public void post_callbackReceivesResponse() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        queue.post(request("event"), callback);
+
+        sender.succeed();
+
+        assertEquals(1, callback.results.size());
+        assertTrue(callback.results.get(0).isSuccess());
+    }
+
+    @Test
+    public void serverUnreachable_keepsEventsAndFailsCallbacks() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        queue.post(request("first"), first);
+        queue.post(request("second"), second);
+
+        sender.fail(new ConnectionException("timeout", 0, 0));
+
+        assertEquals(1, first.results.size());
+        assertNotNull(first.results.get(0).getException());
+        assertEquals(1, second.results.size());
+        assertNotNull(second.results.get(0).getException());
+        assertEquals(2, queue.getPendingCount());
+        assertEquals(2, storage.events.size());
+        assertEquals(1, sender.sent.size());
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(PostEventQueue.RETRY_MIN_DELAY_MS));
+
+        assertEquals(2, sender.sent.size());
+        assertEquals("first", sender.sent.get(1));
+    }
+
+    @Test
+    public void serverUnreachable_newEventIsQueuedUntilRetry() {
+        queue.post(request("first"), null);
+        sender.fail(new ConnectionException("timeout", 0, 0));
+
+        RecordingCallback callback = new RecordingCallback();
+        queue.post(request("second"), callback);
+
+        assertEquals(1, sender.sent.size());
+        assertEquals(1, callback.results.size());
+        assertNotNull(callback.results.get(0).getException());
+        assertEquals(2, storage.events.size());
+    }
+
+    @Test
+    public void rejectedEvent_isDroppedAndNextIsSent() {
+        RecordingCallback callback = new RecordingCallback();
+        queue.post(request("rejected"), callback);
+        queue.post(request("next"), null);
+
+        sender.fail(new ConnectionException("bad request", 400, 210));
+
+        assertEquals(1, callback.results.size());
+        assertNotNull(callback.results.get(0).getException());
+        assertEquals(2, sender.sent.size());
+        assertEquals("next", sender.sent.get(1));
+        assertEquals(1, storage.events.size());
+        assertEquals("next", storage.events.get(0).getEvent());
+    }
+
+    @Test
+    public void requestTimeout_keepsEventForRetry() {
+        queue.post(request("first"), null);
+
+        sender.fail(new ConnectionException("request timeout", 408, 0));
+
+        assertEquals(1, sender.sent.size());
+        assertEquals(1, queue.getPendingCount());
+    }
+
+    @Test
+    public void communicationStopped_eventIsDroppedAndNextIsSent() {
+        RecordingCallback callback = new RecordingCallback();
+        queue.post(request("blocked"), callback);
+        queue.post(request("next"), null);
+
+        sender.fail(new CommunicationStoppedException("communication stopped"));
+
+        assertEquals(1, callback.results.size());
+        assertNotNull(callback.results.get(0).getException());
+        assertEquals(2, sender.sent.size());
+        assertEquals("next", sender.sent.get(1));
+        assertEquals(1, storage.events.size());
+        assertEquals("next", storage.events.get(0).getEvent());
+    }
+
+    @Test
+    public void clear_dropsQueuedAndStoredEvents() {
+        queue.post(request("first"), null);
+        sender.fail(new ConnectionException("timeout", 0, 0));
+        queue.post(request("second"), null);
+        storage.add(request("stored").toPendingEvent());
+
+        queue.clear();
+
+        assertEquals(0, queue.getPendingCount());
+        assertTrue(storage.events.isEmpty());
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(PostEventQueue.RETRY_MAX_DELAY_MS));
+        queue.flushPending();
+
+        assertEquals(1, sender.sent.size());
+    }
+
+    @Test
+    public void senderUnavailable_callbackFailsAndEventIsKept() {
+        sender.available = false;
+        RecordingCallback callback = new RecordingCallback();
+
+        queue.post(request("event"), callback);
+
+        assertEquals(1, callback.results.size());
+        assertEquals(PostEventQueue.NO_REQUEST_MANAGER, callback.results.get(0).getException().getMessage());
+        assertEquals(1, queue.getPendingCount());
+        assertEquals(1, storage.events.size());
+    }
+
+    @Test
+    public void flushPending_sendsStoredEventsInOrder() throws Exception {
+        storage.add(request("stored1").toPendingEvent());
+        storage.add(request("stored2").toPendingEvent());
+
+        queue.flushPending();
+        sender.succeed();
+        sender.succeed();
+
+        assertEquals(2, sender.sent.size());
+        assertEquals("stored1", sender.sent.get(0));
+        assertEquals("stored2", sender.sent.get(1));
+        assertTrue(storage.events.isEmpty());
+    }
+
+    @Test
+    public void flushPending_doesNotDuplicateEventsPostedByThisProcess() throws Exception {
+        sender.available = false;
+        queue.post(request("event"), null);
+        sender.available = true;
+
+        queue.flushPending();
+        sender.succeed();
+
+        assertEquals(1, sender.sent.size());
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    public void flushPending_withoutStorage_sendsQueuedEvents() {
+        queue = new PostEventQueue(sender, null, Runnable::run);
+        sender.available = false;
+        queue.post(request("event"), null);
+        sender.available = true;
+
+        queue.flushPending();
+
+        assertEquals(1, sender.sent.size());
+    }
+}
@@ -0,0 +1,191 @@
+package com.pushwoosh.inapp.network.downloader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.pushwoosh.inapp.network.model.InAppLayout;
+import com.pushwoosh.inapp.network.model.Resource;
+import com.pushwoosh.inapp.storage.InAppFolderProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+/**
+ * Local mock-server benchmark of {@link InAppDownloader#downloadAndDeploy}: a batch of 12 in-app zips
+ * of 200 KB served at a throttled per-connection rate, deployed one by one and by the parallel
+ * pipeline, and a batch whose every first response breaks off mid-body and has to be resumed.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class InAppDownloaderBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(InAppDownloaderBenchmarkTest.class.getName());
+    private static final int RESOURCES = 12;
+    private static final int ZIP_SIZE = 200 * 1024;
+    private static final long THROTTLE_BYTES = 64 * 1024;
+    private static final long THROTTLE_PERIOD_MS = 50;
+    private static final String ETAG = "\"v1\"";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private final Map<String, byte[]> zips = new HashMap<>();
+    private final Map<String, Integer> served = new HashMap<>();
+    private volatile boolean breakFirstResponse;
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Random random = new Random(11);
+        for (int i = 0; i < RESOURCES; i++) {
+            zips.put("/ABCDE-" + i + ".zip", zip(random));
+        }
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                byte[] zip = zips.get(request.getPath());
+                int count;
+                synchronized (served) {
+                    count = served.containsKey(request.getPath()) ? served.get(request.getPath()) : 0;
+                    served.put(request.getPath(), count + 1);
+                }
+                String range = request.getHeader("Range");
+                MockResponse response;
+                if (range != null && ETAG.equals(request.getHeader("If-Range"))) {
+                    int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                    byte[] tail = new byte[zip.length - start];
+                    System.arraycopy(zip, start, tail, 0, tail.length);
+                    response = new MockResponse()
+                            .setResponseCode(206)
+                            .setHeader("Content-Range", "bytes " + start + "-" + (zip.length - 1) + "/" + zip.length)
+                            .setBody(new Buffer().write(tail));
+                } else {
+                    response = new MockResponse().setBody(new Buffer().write(zip));
+                }
+                response.setHeader("ETag", ETAG).throttleBody(THROTTLE_BYTES, THROTTLE_PERIOD_MS, TimeUnit.MILLISECONDS);
+                if (breakFirstResponse && count == 0) {
+                    response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+                }
+                return response;
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static byte[] zip(Random random) throws Exception {
+        byte[] payload = new byte[ZIP_SIZE];
+        random.nextBytes(payload);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        out.putNextEntry(new ZipEntry("index.html"));
+        out.write(payload);
+        out.closeEntry();
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static String md5(byte[] bytes) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("MD5").digest(bytes)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private InAppFolderProvider folderProvider(String name) throws Exception {
+        final File root = tempFolder.newFolder(name);
+        final File cacheDir = new File(root, "cache");
+        cacheDir.mkdirs();
+        InAppFolderProvider provider = mock(InAppFolderProvider.class);
+        when(provider.getCacheDir()).thenReturn(cacheDir);
+        when(provider.getInAppFolder(anyString())).thenAnswer(invocation ->
+                new File(root, (String) invocation.getArgument(0)));
+        return provider;
+    }
+
+    private List<Resource> resources() throws Exception {
+        List<Resource> resources = new ArrayList<>();
+        for (int i = 0; i < RESOURCES; i++) {
+            String path = "/ABCDE-" + i + ".zip";
+            resources.add(new Resource("ABCDE-" + i, server.url(path).toString(), md5(zips.get(path)), 1L,
+                    InAppLayout.FULLSCREEN, null, false, 0));
+        }
+        return resources;
+    }
+
+    private DeployMetrics run(String label, InAppDownloader downloader, int requestsPerResource) throws Exception {
+        synchronized (served) {
+            served.clear();
+        }
+        DownloadResult result = downloader.downloadAndDeploy(resources());
+        DeployMetrics metrics = downloader.getLastMetrics();
+        LOG.info(String.format("%-24s %s, %.1f resources/s", label, metrics,
+                metrics.getResourcesPerSecond()));
+        assertEquals(RESOURCES, result.getSuccess().size());
+        synchronized (served) {
+            for (String path : zips.keySet()) {
+                assertEquals(path, Integer.valueOf(requestsPerResource), served.get(path));
+            }
+        }
+        return metrics;
+    }
+
+    @Test
+    public void deployBatch() throws Exception {
+        DeployMetrics sequential =
+                run("sequential", new InAppDownloader(folderProvider("sequential"), Runnable::run), 1);
+        run("parallel (" + InAppDownloader.MAX_PARALLEL_DOWNLOADS + " threads)",
+                new InAppDownloader(folderProvider("parallel")), 1);
+
+        breakFirstResponse = true;
+        InAppFolderProvider resumeFolders = folderProvider("resumed");
+        // the broken response and the request for the missing tail
+        DeployMetrics resumed = run("parallel, every 1st response broken", new InAppDownloader(resumeFolders), 2);
+
+        assertTrue(resumed.getResumedBytes() > 0);
+        // resumed downloads fetch every byte once, not once per attempt
+        assertTrue(resumed.getBytesTransferred() < sequential.getBytesTransferred() * 1.1);
+        assertTrue(new File(resumeFolders.getInAppFolder("ABCDE-0"), "index.html").exists());
+    }
+}
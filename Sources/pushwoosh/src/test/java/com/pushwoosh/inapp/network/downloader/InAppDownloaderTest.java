@@ -2,6 +2,8 @@ package com.pushwoosh.inapp.network.downloader;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -14,6 +16,7 @@ import com.pushwoosh.inapp.event.InAppEvent;
 import com.pushwoosh.inapp.network.model.InAppLayout;
 import com.pushwoosh.inapp.network.model.Resource;
 import com.pushwoosh.inapp.storage.InAppFolderProvider;
+import com.pushwoosh.inapp.storage.InAppManifest;
 import com.pushwoosh.internal.event.EventBus;
 import com.pushwoosh.internal.utils.FileUtils;
 
@@ -27,12 +30,14 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import org.robolectric.annotation.LooperMode;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -60,7 +65,8 @@ public class InAppDownloaderTest {
         mocks = MockitoAnnotations.openMocks(this);
         fileUtilsMock = mockStatic(FileUtils.class);
         eventBusMock = mockStatic(EventBus.class);
-        downloader = new InAppDownloader(inAppFolderProvider);
+        // static mocks are visible on the test thread only, so deploy batches on the calling thread
+        downloader = new InAppDownloader(inAppFolderProvider, Runnable::run);
     }
 
     @After
@@ -78,6 +84,16 @@ public class InAppDownloaderTest {
         return new Resource(code, url, hash, 0L, InAppLayout.FULLSCREEN, null, required, priority);
     }
 
+    private static Answer<File> downloadWithContent(File zipFile, String content) {
+        return invocation -> {
+            MessageDigest digest = invocation.getArgument(2);
+            if (digest != null) {
+                digest.update(content.getBytes("UTF-8"));
+            }
+            return zipFile;
+        };
+    }
+
     private List<InAppEvent.EventType> capturedEventTypesFor(String code) {
         ArgumentCaptor<InAppEvent> captor = ArgumentCaptor.forClass(InAppEvent.class);
         eventBusMock.verify(() -> EventBus.sendEvent(captor.capture()), org.mockito.Mockito.atLeast(0));
@@ -100,7 +116,7 @@ public class InAppDownloaderTest {
         when(inAppFolderProvider.getCacheDir()).thenReturn(cacheDir);
         when(inAppFolderProvider.getInAppFolder("r1")).thenReturn(deployDir);
         fileUtilsMock
-                .when(() -> FileUtils.downloadFile(eq("http://example/r1.zip"), any(File.class)))
+                .when(() -> FileUtils.downloadFile(eq("http://example/r1.zip"), any(File.class), any(), any()))
                 .thenReturn(zipFile);
         fileUtilsMock.when(() -> FileUtils.unzip(eq(zipFile), eq(deployDir))).thenReturn(deployDir);
 
@@ -134,7 +150,7 @@ public class InAppDownloaderTest {
         assertEquals(1, result.getFailed().size());
         assertEquals(resource, result.getFailed().get(0));
 
-        fileUtilsMock.verify(() -> FileUtils.downloadFile(any(), any()), never());
+        fileUtilsMock.verify(() -> FileUtils.downloadFile(any(), any(), any(), any()), never());
 
         List<InAppEvent.EventType> types = capturedEventTypesFor("r1");
         assertTrue(types.contains(InAppEvent.EventType.DOWNLOADING_ZIP));
@@ -148,7 +164,7 @@ public class InAppDownloaderTest {
     public void downloadAndDeploy_downloadReturnsNull_resourceFails() throws Exception {
         File cacheDir = tempFolder.newFolder("cache");
         when(inAppFolderProvider.getCacheDir()).thenReturn(cacheDir);
-        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class))).thenReturn(null);
+        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class), any(), any())).thenReturn(null);
 
         Resource resource = newResource("r1", "http://example/r1.zip", "");
 
@@ -175,8 +191,8 @@ public class InAppDownloaderTest {
         assertTrue(zipFile.exists());
 
         when(inAppFolderProvider.getCacheDir()).thenReturn(cacheDir);
-        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class))).thenReturn(zipFile);
-        fileUtilsMock.when(() -> FileUtils.getMd5Hash(zipFile)).thenReturn("actual-hash");
+        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class), any(), any()))
+                .thenAnswer(downloadWithContent(zipFile, "payload"));
 
         Resource resource = newResource("r1", "http://example/r1.zip", "bogus-hash");
 
@@ -192,6 +208,28 @@ public class InAppDownloaderTest {
         assertTrue(types.contains(InAppEvent.EventType.DEPLOY_FAILED));
     }
 
+    // Verifies that the hash computed while downloading is used, so the zip is not read a second time.
+    @Test
+    public void downloadAndDeploy_matchingHash_verifiedWithoutRereadingZip() throws Exception {
+        File cacheDir = tempFolder.newFolder("cache");
+        File deployDir = tempFolder.newFolder("deploy");
+        File zipFile = tempFolder.newFile("r1.zip");
+
+        when(inAppFolderProvider.getCacheDir()).thenReturn(cacheDir);
+        when(inAppFolderProvider.getInAppFolder("r1")).thenReturn(deployDir);
+        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class), any(), any()))
+                .thenAnswer(downloadWithContent(zipFile, "payload"));
+        fileUtilsMock.when(() -> FileUtils.unzip(eq(zipFile), eq(deployDir))).thenReturn(deployDir);
+
+        // md5("payload")
+        Resource resource = newResource("r1", "http://example/r1.zip", "321c3cf486ed509164edec1e1981fec8");
+
+        DownloadResult result = downloader.downloadAndDeploy(Collections.singletonList(resource));
+
+        assertEquals(Collections.singletonList(resource), result.getSuccess());
+        fileUtilsMock.verify(() -> FileUtils.getMd5Hash(any()), never());
+    }
+
     // Verifies that empty hash skips validation and the resource is deployed.
     @Test
     public void downloadAndDeploy_emptyHash_skipsValidation() throws Exception {
@@ -201,7 +239,7 @@ public class InAppDownloaderTest {
 
         when(inAppFolderProvider.getCacheDir()).thenReturn(cacheDir);
         when(inAppFolderProvider.getInAppFolder("r1")).thenReturn(deployDir);
-        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class))).thenReturn(zipFile);
+        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class), any(), any())).thenReturn(zipFile);
         fileUtilsMock.when(() -> FileUtils.unzip(eq(zipFile), eq(deployDir))).thenReturn(deployDir);
 
         Resource resource = newResource("r1", "http://example/r1.zip", "");
@@ -222,7 +260,7 @@ public class InAppDownloaderTest {
 
         when(inAppFolderProvider.getCacheDir()).thenReturn(cacheDir);
         when(inAppFolderProvider.getInAppFolder("r1")).thenReturn(deployDir);
-        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class))).thenReturn(zipFile);
+        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class), any(), any())).thenReturn(zipFile);
         fileUtilsMock.when(() -> FileUtils.unzip(eq(zipFile), eq(deployDir))).thenReturn(null);
 
         Resource resource = newResource("r1", "http://example/r1.zip", "");
@@ -248,10 +286,10 @@ public class InAppDownloaderTest {
         when(inAppFolderProvider.getCacheDir()).thenReturn(cacheDir);
         when(inAppFolderProvider.getInAppFolder("ok")).thenReturn(deployDirOk);
         fileUtilsMock
-                .when(() -> FileUtils.downloadFile(eq("http://example/ok.zip"), any(File.class)))
+                .when(() -> FileUtils.downloadFile(eq("http://example/ok.zip"), any(File.class), any(), any()))
                 .thenReturn(zipFile);
         fileUtilsMock
-                .when(() -> FileUtils.downloadFile(eq("http://example/bad.zip"), any(File.class)))
+                .when(() -> FileUtils.downloadFile(eq("http://example/bad.zip"), any(File.class), any(), any()))
                 .thenReturn(null);
         fileUtilsMock.when(() -> FileUtils.unzip(eq(zipFile), eq(deployDirOk))).thenReturn(deployDirOk);
 
@@ -281,7 +319,7 @@ public class InAppDownloaderTest {
 
         when(inAppFolderProvider.getCacheDir()).thenReturn(cacheDir);
         when(inAppFolderProvider.getInAppFolder("r1")).thenReturn(deployDir);
-        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class))).thenReturn(zipFile);
+        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class), any(), any())).thenReturn(zipFile);
         fileUtilsMock.when(() -> FileUtils.unzip(eq(zipFile), eq(deployDir))).thenReturn(deployDir);
 
         Resource resource = newResource("r1", "http://example/r1.zip", "");
@@ -305,7 +343,7 @@ public class InAppDownloaderTest {
         Resource resource = newResource("r1", "http://example/r1.zip", "");
 
         final boolean[] duringDownload = new boolean[1];
-        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class))).thenAnswer(inv -> {
+        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class), any(), any())).thenAnswer(inv -> {
             duringDownload[0] = downloader.isDownloading(resource);
             return zipFile;
         });
@@ -315,4 +353,40 @@ public class InAppDownloaderTest {
         assertTrue(duringDownload[0]);
         assertFalse(downloader.isDownloading(resource));
     }
+
+    // Verifies that a deployed resource is recorded in the manifest and dropped when its files are removed.
+    @Test
+    public void downloadAndDeploy_deployed_recordedInManifestUntilRemoved() throws Exception {
+        File cacheDir = tempFolder.newFolder("cache");
+        File deployDir = tempFolder.newFolder("deploy-r1");
+        File zipFile = tempFolder.newFile("r1.zip");
+
+        when(inAppFolderProvider.getCacheDir()).thenReturn(cacheDir);
+        when(inAppFolderProvider.getInAppFolder("r1")).thenReturn(deployDir);
+        fileUtilsMock.when(() -> FileUtils.downloadFile(any(), any(File.class), any(), any())).thenReturn(zipFile);
+        fileUtilsMock.when(() -> FileUtils.unzip(eq(zipFile), eq(deployDir))).thenReturn(deployDir);
+
+        Resource resource = new Resource("r1", "http://example/r1.zip", "", 42L, InAppLayout.FULLSCREEN, null, false, 0);
+
+        downloader.downloadAndDeploy(Collections.singletonList(resource));
+
+        InAppManifest.Entry entry = downloader.getManifest().get("r1");
+        assertNotNull(entry);
+        assertEquals(42L, entry.getUpdated());
+        assertEquals(deployDir, entry.getFolder());
+
+        downloader.removeResourceFiles("r1");
+
+        assertNull(downloader.getManifest().get("r1"));
+    }
+
+    // Verifies that a resource that failed to deploy is not in the manifest.
+    @Test
+    public void downloadAndDeploy_failed_notInManifest() {
+        when(inAppFolderProvider.getCacheDir()).thenReturn(null);
+
+        downloader.downloadAndDeploy(Collections.singletonList(newResource("r1", "http://example/r1.zip", "")));
+
+        assertNull(downloader.getManifest().get("r1"));
+    }
 }
@@ -173,6 +173,74 @@ public class InAppDbHelperTest {
         Assert.assertFalse("identical resource1 must not be in updated list", result.contains("code1"));
     }
 
+    // Verifies that a new helper reads back the resources stored by an earlier one.
+    @Test
+    public void getResource_newHelper_loadsStoredResources() {
+        InAppDbHelper reopened = new InAppDbHelper(RuntimeEnvironment.application);
+        try {
+            Assert.assertEquals(resource1, reopened.getResource("code1"));
+            Assert.assertEquals(resource2, reopened.getResource("code2"));
+            Assert.assertNull(reopened.getResource("code3"));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    // Verifies that a new resource is stored and readable but not reported as updated.
+    @Test
+    public void saveOrUpdateResources_newResource_storedAndNotReported() {
+        Resource resource3 = new Resource("code3", "url3", "hash3", 3L, InAppLayout.TOP, null, false, 1);
+
+        List<String> result = inAppDbHelper.saveOrUpdateResources(Arrays.asList(resource1, resource3));
+
+        Assert.assertTrue(result.isEmpty());
+        Assert.assertEquals(resource3, inAppDbHelper.getResource("code3"));
+    }
+
+    // Verifies that a removed resource no longer resolves, from the index or from the table.
+    @Test
+    public void removeResources_removedCodeNoLongerResolves() {
+        inAppDbHelper.removeResources(Arrays.asList("code2", "code3"));
+
+        Assert.assertNull(inAppDbHelper.getResource("code2"));
+        Assert.assertEquals(resource1, inAppDbHelper.getResource("code1"));
+        InAppDbHelper reopened = new InAppDbHelper(RuntimeEnvironment.application);
+        try {
+            Assert.assertNull(reopened.getResource("code2"));
+            Assert.assertEquals(resource1, reopened.getResource("code1"));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    // Verifies that the list version is read back only for the scope it was saved for, and can be forgotten.
+    @Test
+    public void saveListVersion_readBackForItsScope() {
+        inAppDbHelper.saveListVersion("app/user/en", "v1");
+        Assert.assertEquals("v1", inAppDbHelper.getListVersion("app/user/en"));
+        Assert.assertNull(inAppDbHelper.getListVersion("app/user/de"));
+
+        inAppDbHelper.saveListVersion("app/user/de", "v2");
+        Assert.assertEquals("v2", inAppDbHelper.getListVersion("app/user/de"));
+        Assert.assertNull(inAppDbHelper.getListVersion("app/user/en"));
+
+        inAppDbHelper.saveListVersion("app/user/de", null);
+        Assert.assertNull(inAppDbHelper.getListVersion("app/user/de"));
+    }
+
+    // Verifies that onUpgrade from v4 to v5 adds the list version table.
+    @Test
+    public void onUpgrade_fromV4ToV5_addsListVersionTable() {
+        SQLiteDatabase db = inAppDbHelper.getWritableDatabase();
+        db.execSQL("DROP TABLE IF EXISTS inAppsListVersion");
+
+        inAppDbHelper.onUpgrade(db, 4, 5);
+
+        Set<String> columns = getColumnNames(db, "inAppsListVersion");
+        Assert.assertTrue("scope column missing", columns.contains("scope"));
+        Assert.assertTrue("version column missing", columns.contains("version"));
+    }
+
     private Set<String> getColumnNames(SQLiteDatabase db, String table) {
         Set<String> names = new HashSet<>();
         Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null);
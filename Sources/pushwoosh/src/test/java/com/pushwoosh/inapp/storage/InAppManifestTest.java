@@ -0,0 +1,92 @@
+package com.pushwoosh.inapp.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.io.File;
+
+public class InAppManifestTest {
+    private static final String CODE = "inapp-code";
+
+    private final InAppManifest manifest = new InAppManifest();
+
+    private static InAppManifest.Entry entry(long updated, String hash) {
+        return new InAppManifest.Entry(CODE, updated, hash, new File("folder"));
+    }
+
+    // Verifies an in-app found on disk is added when nothing changed since the stamp was taken.
+    @Test
+    public void restore_unchangedSinceStamp_added() {
+        InAppManifest.Entry entry = entry(100L, null);
+
+        manifest.restore(entry, manifest.stamp());
+
+        assertSame(entry, manifest.get(CODE));
+        assertEquals(1, manifest.size());
+    }
+
+    // Verifies an in-app whose files changed after the stamp was taken is not added.
+    @Test
+    public void restore_changedSinceStamp_ignored() {
+        long stamp = manifest.stamp();
+        manifest.beginChange("other");
+        manifest.endChange("other", null);
+
+        manifest.restore(entry(100L, null), stamp);
+
+        assertNull(manifest.get(CODE));
+    }
+
+    // Verifies an in-app being deployed is not restored from the files it is replacing.
+    @Test
+    public void restore_whileChanging_ignored() {
+        manifest.beginChange(CODE);
+
+        manifest.restore(entry(100L, null), manifest.stamp());
+
+        assertNull(manifest.get(CODE));
+    }
+
+    // Verifies a restore doesn't replace the entry of a deployed in-app.
+    @Test
+    public void restore_alreadyDeployed_keepsEntry() {
+        InAppManifest.Entry deployed = entry(200L, "hash");
+        manifest.beginChange(CODE);
+        manifest.endChange(CODE, deployed);
+
+        manifest.restore(entry(100L, null), manifest.stamp());
+
+        assertSame(deployed, manifest.get(CODE));
+    }
+
+    // Verifies a deploy removes the in-app until it ends, and records the deployed in-app.
+    @Test
+    public void beginChange_endChange_replacesEntry() {
+        manifest.restore(entry(100L, null), manifest.stamp());
+
+        manifest.beginChange(CODE);
+        assertNull(manifest.get(CODE));
+
+        manifest.endChange(CODE, entry(200L, "hash"));
+        InAppManifest.Entry entry = manifest.get(CODE);
+        assertNotNull(entry);
+        assertEquals(200L, entry.getUpdated());
+        assertEquals("hash", entry.getHash());
+    }
+
+    // Verifies a failed deploy or a removal leaves the in-app out of the manifest.
+    @Test
+    public void endChange_nullEntry_removed() {
+        manifest.restore(entry(100L, null), manifest.stamp());
+
+        manifest.beginChange(CODE);
+        manifest.endChange(CODE, null);
+
+        assertNull(manifest.get(CODE));
+        assertEquals(0, manifest.size());
+    }
+}
@@ -0,0 +1,101 @@
+package com.pushwoosh.inapp.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "AndroidManifest.xml")
+public class PendingEventsStorageImplTest {
+    private PendingEventsStorageImpl storage;
+
+    @After
+    public void tearDown() {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    private static PendingEvent event(String name) {
+        return new PendingEvent(-1, name, "{\"name\":\"" + name + "\"}", 1000, 2000);
+    }
+
+    @Test
+    public void getAll_returnsEventsInOrderTheyWereAdded() {
+        storage = new PendingEventsStorageImpl(RuntimeEnvironment.application, 10);
+        long first = storage.add(event("first"));
+        long second = storage.add(event("second"));
+
+        List<PendingEvent> events = storage.getAll();
+
+        assertTrue(first < second);
+        assertEquals(2, events.size());
+        assertEquals(first, events.get(0).getId());
+        assertEquals("first", events.get(0).getEvent());
+        assertEquals("{\"name\":\"first\"}", events.get(0).getAttributes());
+        assertEquals(1000, events.get(0).getTimestampUtc());
+        assertEquals(2000, events.get(0).getTimestampCurrent());
+        assertEquals(second, events.get(1).getId());
+        assertEquals("second", events.get(1).getEvent());
+    }
+
+    @Test
+    public void add_dropsOldestWhenFull() {
+        storage = new PendingEventsStorageImpl(RuntimeEnvironment.application, 3);
+        for (int i = 1; i <= 5; i++) {
+            storage.add(event("event" + i));
+        }
+
+        List<PendingEvent> events = storage.getAll();
+
+        assertEquals(3, events.size());
+        assertEquals("event3", events.get(0).getEvent());
+        assertEquals("event5", events.get(2).getEvent());
+    }
+
+    @Test
+    public void remove_deletesOnlyThatEvent() {
+        storage = new PendingEventsStorageImpl(RuntimeEnvironment.application, 10);
+        storage.add(event("first"));
+        long second = storage.add(event("second"));
+        storage.add(event("third"));
+
+        storage.remove(second);
+
+        List<PendingEvent> events = storage.getAll();
+        assertEquals(2, events.size());
+        assertEquals("first", events.get(0).getEvent());
+        assertEquals("third", events.get(1).getEvent());
+    }
+
+    @Test
+    public void clear_removesAllEvents() {
+        storage = new PendingEventsStorageImpl(RuntimeEnvironment.application, 10);
+        storage.add(event("first"));
+        storage.add(event("second"));
+
+        storage.clear();
+
+        assertTrue(storage.getAll().isEmpty());
+    }
+
+    @Test
+    public void events_surviveReopening() {
+        storage = new PendingEventsStorageImpl(RuntimeEnvironment.application, 10);
+        storage.add(event("first"));
+        storage.close();
+
+        storage = new PendingEventsStorageImpl(RuntimeEnvironment.application, 10);
+
+        assertEquals(1, storage.getAll().size());
+        assertEquals("first", storage.getAll().get(0).getEvent());
+    }
+}
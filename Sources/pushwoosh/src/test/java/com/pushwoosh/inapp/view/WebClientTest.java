@@ -24,6 +24,7 @@ import android.webkit.WebView;
 import com.pushwoosh.PushwooshPlatform;
 import com.pushwoosh.inapp.InAppModule;
 import com.pushwoosh.inapp.PushwooshInAppImpl;
+import com.pushwoosh.inapp.mapper.RichMediaDocument;
 import com.pushwoosh.inapp.network.model.Resource;
 import com.pushwoosh.inapp.storage.InAppFolderProvider;
 import com.pushwoosh.internal.utils.PWLog;
@@ -49,6 +50,7 @@ import org.robolectric.shadows.ShadowPackageManager;
 import java.io.File;
 import java.io.FileWriter;
 import java.util.Collections;
+import java.util.Scanner;
 
 @RunWith(RobolectricTestRunner.class)
 @LooperMode(LooperMode.Mode.LEGACY)
@@ -280,6 +282,56 @@ public class WebClientTest {
         assertNull(response);
     }
 
+    // Verifies the main document set for the page is streamed with the head script instead of read from disk.
+    @Test
+    public void shouldInterceptRequest_document_streamedWithScript() throws Exception {
+        File folder = new File(application.getCacheDir(), "richmedia");
+        folder.mkdirs();
+        File html = new File(folder, "index.html");
+        try (FileWriter w = new FileWriter(html)) {
+            w.write("<html><head></head></html>");
+        }
+        when(inAppFolderProvider.getInAppFolder("CODE")).thenReturn(folder);
+        String url = "https://appassets.androidplatform.net/pushwoosh_richmedia/CODE/index.html";
+        webClient.setDocument(url, RichMediaDocument.prepare("CODE", 1L, html, Collections.emptyMap(), Collections.emptyMap()), "var a;");
+        when(webResourceRequest.getUrl()).thenReturn(Uri.parse(url));
+
+        WebResourceResponse response = webClient.shouldInterceptRequest(webView, webResourceRequest);
+
+        assertNotNull(response);
+        assertEquals("text/html", response.getMimeType());
+        assertEquals("<html><head>\n<script type=\"text/javascript\">var a;</script></head></html>\n",
+                new Scanner(response.getData(), "UTF-8").useDelimiter("\\A").next());
+    }
+
+    // Verifies a document that can't be opened any more (the in-app was redeployed after it was prepared) is
+    // rendered as a string instead of served as an empty page.
+    @Test
+    public void shouldInterceptRequest_documentChanged_rendersString() throws Exception {
+        File folder = new File(application.getCacheDir(), "richmedia");
+        folder.mkdirs();
+        File html = new File(folder, "index.html");
+        try (FileWriter w = new FileWriter(html)) {
+            w.write("<html><head></head></html>");
+        }
+        when(inAppFolderProvider.getInAppFolder("CODE")).thenReturn(folder);
+        when(inAppFolderProvider.getInAppHtmlFile("CODE")).thenReturn(html);
+        String url = "https://appassets.androidplatform.net/pushwoosh_richmedia/CODE/index.html";
+        webClient.setDocument(url, RichMediaDocument.prepare("CODE", 1L, html, Collections.emptyMap(),
+                Collections.emptyMap()), "var a;");
+        try (FileWriter w = new FileWriter(html)) {
+            w.write("<html><head></head><body>redeployed</body></html>");
+        }
+        when(webResourceRequest.getUrl()).thenReturn(Uri.parse(url));
+
+        WebResourceResponse response = webClient.shouldInterceptRequest(webView, webResourceRequest);
+
+        assertNotNull(response);
+        assertEquals("<html><head>\n<script type=\"text/javascript\">var a;</script></head>"
+                        + "<body>redeployed</body></html>\n",
+                new Scanner(response.getData(), "UTF-8").useDelimiter("\\A").next());
+    }
+
     // Verifies that after release() a lifecycle callback is a no-op: no inAppView callback, no phantom present event.
     @Test
     public void onPageFinished_afterRelease_isNoOp() {
@@ -0,0 +1,114 @@
+package com.pushwoosh.inapp.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Looper;
+import android.webkit.WebView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "AndroidManifest.xml")
+public class WebViewPoolTest {
+
+    private WebViewPool pool;
+    private Context context;
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        pool = new WebViewPool();
+        context = RuntimeEnvironment.getApplication();
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+    }
+
+    @After
+    public void tearDown() {
+        pool.resetForTesting();
+    }
+
+    // Verifies that without preloading every presentation creates its own WebView on the given context.
+    @Test
+    public void acquire_notEnabled_createsWebView() {
+        WebView webView = pool.acquire(activity);
+
+        assertSame(activity, webView.getContext());
+        assertFalse(pool.hasWarmWebView());
+        assertEquals(1, pool.getColdPresentations());
+    }
+
+    // Verifies that the WebView is preloaded only once the main thread is idle.
+    @Test
+    public void enable_preloadsWhenIdle() {
+        pool.enable(context);
+        assertFalse(pool.hasWarmWebView());
+
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertTrue(pool.hasWarmWebView());
+    }
+
+    // Verifies that the preloaded WebView is handed over on the context of the presentation and a
+    // new one is preloaded for the next presentation.
+    @Test
+    public void acquire_warm_handsOverPreloadedWebView() {
+        pool.enable(context);
+        shadowOf(Looper.getMainLooper()).idle();
+
+        WebView webView = pool.acquire(activity);
+
+        assertSame(activity, ((MutableContextWrapper) webView.getContext()).getBaseContext());
+        assertEquals(1, pool.getWarmPresentations());
+        assertFalse(pool.hasWarmWebView());
+
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertTrue(pool.hasWarmWebView());
+        assertNotSame(webView, pool.acquire(activity));
+        assertEquals(2, pool.getWarmPresentations());
+    }
+
+    // Verifies that a released WebView lets go of the activity it was shown in.
+    @Test
+    public void release_rebasesOnApplicationContext() {
+        pool.enable(context);
+        WebView webView = pool.acquire(activity);
+
+        pool.release(webView);
+
+        assertSame(context, ((MutableContextWrapper) webView.getContext()).getBaseContext());
+    }
+
+    // Verifies that the preloaded WebView is dropped under memory pressure and kept otherwise.
+    @Test
+    public void onTrimMemory_runningLow_evicts() {
+        pool.enable(context);
+        shadowOf(Looper.getMainLooper()).idle();
+
+        pool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertTrue(pool.hasWarmWebView());
+
+        pool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertFalse(pool.hasWarmWebView());
+
+        WebView webView = pool.acquire(activity);
+        assertEquals(1, pool.getColdPresentations());
+        assertSame(activity, ((MutableContextWrapper) webView.getContext()).getBaseContext());
+    }
+}
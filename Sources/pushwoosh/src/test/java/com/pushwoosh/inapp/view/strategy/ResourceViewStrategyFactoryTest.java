@@ -275,7 +275,7 @@ public class ResourceViewStrategyFactoryTest {
         when(mockFolderProvider.getConfigFile(code)).thenReturn(configFile);
     }
 
-    // In-memory registration prefs so InAppConfig.parseLocalizedStrings can resolve the device language
+    // In-memory registration prefs so InAppConfig.getLocalizedStrings can resolve the device language
     // (it falls back to default_language when the device language is absent from the localization block).
     private void givenDeviceLanguagePrefs() {
         com.pushwoosh.internal.utils.Config configMock = MockConfig.createMock();
@@ -322,7 +322,7 @@ public class ResourceViewStrategyFactoryTest {
                 new ResourceWrapper.Builder().setResource(resource).build();
         givenNativeConfigOnDisk(
                 "code1", "{\"displayType\":\"modal\",\"modal\":{\"title\":{\"text\":\"{{Greeting|text|Hello}}\"}}}");
-        // getConfigFile left unstubbed -> parseLocalizedStrings throws -> empty map -> defaults applied.
+        // getConfigFile left unstubbed -> getLocalizedStrings throws -> empty map -> defaults applied.
 
         NativeInAppPresenter presenter = mock(NativeInAppPresenter.class);
         when(presenter.present(any(), any())).thenReturn(true);
@@ -0,0 +1,90 @@
+package com.pushwoosh.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.os.SystemClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class StartupTraceTest {
+    private StartupTrace trace;
+
+    @Before
+    public void setUp() {
+        trace = StartupTrace.getInstance();
+        trace.resetForTesting();
+    }
+
+    @After
+    public void tearDown() {
+        trace.resetForTesting();
+    }
+
+    // Verifies that an ended section is recorded with its duration and the main thread flag.
+    @Test
+    public void end_recordsStage() {
+        StartupTrace.Section section = trace.begin("platform");
+        SystemClock.sleep(20);
+        section.end();
+
+        List<StartupTrace.Stage> stages = trace.getStages();
+        assertEquals(1, stages.size());
+        assertEquals("platform", stages.get(0).getName());
+        assertTrue(stages.get(0).isMainThread());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), stages.get(0).getDurationNanos());
+    }
+
+    // Verifies that a section which is never ended is not reported.
+    @Test
+    public void begin_withoutEnd_isNotRecorded() {
+        trace.begin("platform");
+
+        assertTrue(trace.getStages().isEmpty());
+    }
+
+    // Verifies that stages of background threads are recorded but not counted as main thread time.
+    @Test
+    public void backgroundStage_isNotMainThreadTime() throws Exception {
+        Thread thread = new Thread(() -> {
+            StartupTrace.Section section = trace.begin("lockScreenReceiver");
+            section.end();
+        });
+        thread.start();
+        thread.join();
+
+        List<StartupTrace.Stage> stages = trace.getStages();
+        assertEquals(1, stages.size());
+        assertFalse(stages.get(0).isMainThread());
+        assertEquals(0, trace.getMainThreadNanos());
+    }
+
+    // Verifies that a stage nested in another one is counted once in the main thread time.
+    @Test
+    public void getMainThreadNanos_countsNestedStagesOnce() {
+        StartupTrace.Section outer = trace.begin("init");
+        SystemClock.sleep(10);
+        StartupTrace.Section inner = trace.begin("platform");
+        SystemClock.sleep(30);
+        inner.end();
+        SystemClock.sleep(10);
+        outer.end();
+        StartupTrace.Section after = trace.begin("applicationCreated");
+        SystemClock.sleep(5);
+        after.end();
+
+        assertEquals(3, trace.getStages().size());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(55), trace.getMainThreadNanos());
+    }
+}
@@ -0,0 +1,146 @@
+package com.pushwoosh.internal.network;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.logging.Logger;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Local mock-server benchmark of {@link HttpTransport}: request bytes on the wire and
+ * per-request latency for typical SDK payloads, with request compression off and on,
+ * and response bytes for a gzip-encoded {@code /getInApps} reply.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class HttpTransportBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(HttpTransportBenchmarkTest.class.getName());
+    private static final int REQUESTS = 50;
+    private static final String OK_BODY = "{\"status_code\":200,\"response\":{}}";
+
+    private MockWebServer server;
+    private String baseUrl;
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        baseUrl = server.url("/").toString();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static JSONObject registerDevicePayload() throws Exception {
+        return new JSONObject().put("request", new JSONObject()
+                .put("application", "XXXXX-XXXXX")
+                .put("hwid", "0123456789abcdef0123456789abcdef")
+                .put("push_token", "fcm-token-0123456789abcdef0123456789abcdef0123456789abcdef")
+                .put("language", "en")
+                .put("timezone", 3600)
+                .put("device_model", "Pixel 8")
+                .put("os_version", "14")
+                .put("device_type", 3)
+                .put("v", "6.7.0"));
+    }
+
+    private static JSONObject setTagsPayload(int tagCount) throws Exception {
+        JSONObject tags = new JSONObject();
+        for (int i = 0; i < tagCount; i++) {
+            tags.put("custom_tag_" + i, "value of custom tag number " + i);
+        }
+        return new JSONObject().put("request", new JSONObject()
+                .put("application", "XXXXX-XXXXX")
+                .put("hwid", "0123456789abcdef0123456789abcdef")
+                .put("tags", tags));
+    }
+
+    private static Buffer getInAppsResponse(int inAppCount) throws Exception {
+        JSONArray inApps = new JSONArray();
+        for (int i = 0; i < inAppCount; i++) {
+            inApps.put(new JSONObject()
+                    .put("code", "ABCDE-" + i)
+                    .put("url", "https://cdn.pushwoosh.com/inapps/ABCDE-" + i + ".zip")
+                    .put("updated", 1700000000L + i)
+                    .put("layout", "fullscreen")
+                    .put("hash", "d41d8cd98f00b204e9800998ecf8427e")
+                    .put("required", false)
+                    .put("priority", 0));
+        }
+        String body = new JSONObject()
+                .put("status_code", 200)
+                .put("response", new JSONObject().put("inApps", inApps))
+                .toString();
+        Buffer gzipped = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(gzipped));
+        sink.writeUtf8(body);
+        sink.close();
+        LOG.info(String.format("/getInApps response: %d bytes plain, %d bytes gzip",
+                body.getBytes("UTF-8").length, gzipped.size()));
+        return gzipped;
+    }
+
+    private long[] run(String label, HttpTransport transport, String method, JSONObject payload) throws Exception {
+        long[] latencies = new long[REQUESTS];
+        long bytes = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            server.enqueue(new MockResponse().setBody(OK_BODY));
+            long start = System.nanoTime();
+            transport.makeRequest(baseUrl, payload, method, Collections.emptyMap(), "Token test");
+            latencies[i] = System.nanoTime() - start;
+            RecordedRequest request = server.takeRequest();
+            bytes += request.getBodySize();
+        }
+        Arrays.sort(latencies);
+        LOG.info(String.format("%-34s body %6d B/request, latency p50 %5d us, p95 %5d us",
+                label, bytes / REQUESTS, latencies[REQUESTS / 2] / 1000, latencies[REQUESTS * 95 / 100] / 1000));
+        return new long[]{bytes / REQUESTS, latencies[REQUESTS / 2]};
+    }
+
+    @Test
+    public void bytesOnWireAndLatency() throws Exception {
+        HttpTransport plain = new HttpTransport(false);
+        HttpTransport gzip = new HttpTransport(true);
+
+        run("/registerDevice plain", plain, "registerDevice", registerDevicePayload());
+        run("/registerDevice gzip", gzip, "registerDevice", registerDevicePayload());
+
+        JSONObject tags = setTagsPayload(200);
+        long[] tagsPlain = run("/setTags 200 tags plain", plain, "setTags", tags);
+        long[] tagsGzip = run("/setTags 200 tags gzip", gzip, "setTags", tags);
+
+        server.enqueue(new MockResponse().setBody(getInAppsResponse(300)).setHeader("Content-Encoding", "gzip"));
+        HttpResponse response = plain.makeRequest(baseUrl, registerDevicePayload(), "getInApps",
+                Collections.emptyMap(), "Token test");
+
+        assertTrue(tagsGzip[0] * 4 < tagsPlain[0]);
+        assertTrue(response.body.startsWith("{"));
+        assertTrue(new JSONObject(response.body).getJSONObject("response").getJSONArray("inApps").length() == 300);
+    }
+}
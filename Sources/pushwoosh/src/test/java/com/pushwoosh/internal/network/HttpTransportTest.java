@@ -0,0 +1,184 @@
+package com.pushwoosh.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class HttpTransportTest {
+    private static final String OK_BODY = "{\"status_code\":200,\"response\":{}}";
+
+    private MockWebServer server;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        baseUrl = server.url("/").toString();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static JSONObject payloadOfSize(int approximateChars) throws Exception {
+        StringBuilder value = new StringBuilder();
+        while (value.length() < approximateChars) {
+            value.append("tag value ");
+        }
+        return new JSONObject().put("request", new JSONObject().put("tags", value.toString()));
+    }
+
+    private HttpResponse send(HttpTransport transport, JSONObject payload) throws Exception {
+        return transport.makeRequest(baseUrl, payload, "setTags", Collections.emptyMap(), "Token test");
+    }
+
+    private static String gunzip(InputStream inputStream) throws Exception {
+        return HttpTransport.readBody(new GZIPInputStream(inputStream), -1);
+    }
+
+    @Test
+    public void payloadIsSentAsUtf8WithExactContentLength() throws Exception {
+        server.enqueue(new MockResponse().setBody(OK_BODY));
+        JSONObject payload = new JSONObject().put("text", "Привет, 世界");
+
+        send(new HttpTransport(), payload);
+
+        RecordedRequest request = server.takeRequest();
+        byte[] expected = payload.toString().getBytes("UTF-8");
+        assertEquals(String.valueOf(expected.length), request.getHeader("Content-Length"));
+        assertEquals(payload.toString(), request.getBody().readUtf8());
+        assertNull(request.getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void largePayloadIsGzippedWhenCompressionEnabled() throws Exception {
+        server.enqueue(new MockResponse().setBody(OK_BODY));
+        JSONObject payload = payloadOfSize(HttpTransport.gzipThresholdBytes * 4);
+
+        send(new HttpTransport(true), payload);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+        assertEquals(payload.toString(), gunzip(request.getBody().inputStream()));
+    }
+
+    @Test
+    public void smallPayloadIsNotGzippedWhenCompressionEnabled() throws Exception {
+        server.enqueue(new MockResponse().setBody(OK_BODY));
+        JSONObject payload = new JSONObject().put("hwid", "abc");
+
+        send(new HttpTransport(true), payload);
+
+        RecordedRequest request = server.takeRequest();
+        assertNull(request.getHeader("Content-Encoding"));
+        assertEquals(payload.toString(), request.getBody().readUtf8());
+    }
+
+    @Test
+    public void largePayloadIsNotGzippedWhenCompressionDisabled() throws Exception {
+        server.enqueue(new MockResponse().setBody(OK_BODY));
+
+        send(new HttpTransport(), payloadOfSize(HttpTransport.gzipThresholdBytes * 4));
+
+        assertNull(server.takeRequest().getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void gzipResponseIsDecoded() throws Exception {
+        Buffer gzipped = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(gzipped));
+        sink.writeUtf8(OK_BODY);
+        sink.close();
+        server.enqueue(new MockResponse().setBody(gzipped).setHeader("Content-Encoding", "gzip"));
+
+        HttpResponse response = send(new HttpTransport(), new JSONObject());
+
+        assertEquals(200, response.statusCode);
+        assertEquals(OK_BODY, response.body);
+        assertEquals("gzip", server.takeRequest().getHeader("Accept-Encoding"));
+    }
+
+    @Test
+    public void errorResponseBodyIsRead() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500).setBody("{\"status_code\":500}"));
+
+        HttpResponse response = send(new HttpTransport(), new JSONObject());
+
+        assertEquals(500, response.statusCode);
+        assertEquals("{\"status_code\":500}", response.body);
+    }
+
+    // Fully consumed responses keep the socket in the platform pool for the next call.
+    @Test
+    public void consecutiveRequestsReuseConnection() throws Exception {
+        server.enqueue(new MockResponse().setBody(OK_BODY));
+        server.enqueue(new MockResponse().setBody(OK_BODY));
+        HttpTransport transport = new HttpTransport();
+
+        send(transport, new JSONObject());
+        send(transport, new JSONObject());
+
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void readBodyDecodesUtf8() throws Exception {
+        byte[] bytes = "  {\"a\":\"ü\"}  ".getBytes("UTF-8");
+
+        String body = HttpTransport.readBody(new ByteArrayInputStream(bytes), bytes.length);
+
+        assertEquals("  {\"a\":\"ü\"}  ", body);
+    }
+
+    @Test
+    public void readBodyReturnsEmptyForZeroContentLength() throws Exception {
+        assertEquals("", HttpTransport.readBody(new ByteArrayInputStream(new byte[0]), 0));
+    }
+
+    @Test
+    public void parseRetryAfterReadsSecondsAndHttpDate() {
+        long now = 1_700_000_000_000L; // Tue, 14 Nov 2023 22:13:20 GMT
+
+        assertEquals(120_000, HttpTransport.parseRetryAfterMs("120", now));
+        assertEquals(30_000, HttpTransport.parseRetryAfterMs("Tue, 14 Nov 2023 22:13:50 GMT", now));
+        assertEquals(0, HttpTransport.parseRetryAfterMs("Tue, 14 Nov 2023 22:00:00 GMT", now));
+        assertEquals(0, HttpTransport.parseRetryAfterMs("soon", now));
+        assertEquals(0, HttpTransport.parseRetryAfterMs(null, now));
+    }
+
+    @Test
+    public void retryAfterHeaderIsReturned() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "7").setBody(OK_BODY));
+
+        HttpResponse response = new HttpTransport().makeRequest(
+                baseUrl, "{}", "method", Collections.emptyMap(), "Token t");
+
+        assertEquals(429, response.statusCode);
+        assertEquals(7_000, response.retryAfterMs);
+    }
+}
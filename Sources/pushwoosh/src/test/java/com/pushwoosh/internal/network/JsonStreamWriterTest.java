@@ -0,0 +1,67 @@
+package com.pushwoosh.internal.network;
+
+import static org.junit.Assert.assertEquals;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.skyscreamer.jsonassert.JSONAssert;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class JsonStreamWriterTest {
+
+    private static String write(JSONObject object) throws Exception {
+        StringBuilder out = new StringBuilder();
+        JsonStreamWriter.writeObject(out, object);
+        return out.toString();
+    }
+
+    @Test
+    public void writesSameJsonAsToString() throws Exception {
+        JSONObject object = new JSONObject()
+                .put("string", "value")
+                .put("int", 42)
+                .put("long", 1_700_000_000_000L)
+                .put("double", 2.5)
+                .put("bool", true)
+                .put("null", JSONObject.NULL)
+                .put("nested", new JSONObject().put("tags", new JSONArray().put("a").put(1).put(false)))
+                .put("empty", new JSONObject())
+                .put("emptyArray", new JSONArray());
+
+        String written = write(object);
+
+        assertEquals(object.toString(), written);
+        JSONAssert.assertEquals(object, new JSONObject(written), true);
+    }
+
+    @Test
+    public void escapesStrings() throws Exception {
+        String value = "quote \" backslash \\ slash / tab \t newline \n cr \r bell \u0007 unicode é ";
+        StringBuilder out = new StringBuilder();
+
+        JsonStreamWriter.writeString(out, value);
+
+        assertEquals("\"quote \\\" backslash \\\\ slash \\/ tab \\t newline \\n cr \\r bell \\u0007 unicode é \"",
+                out.toString());
+        assertEquals(value, new JSONArray("[" + out + "]").getString(0));
+    }
+
+    @Test
+    public void skipsMembersWrittenElsewhere() throws Exception {
+        JSONObject params = new JSONObject().put("application", "APP").put("hwid", "hwid").put("v", "1.0");
+        JSONObject overrides = new JSONObject().put("hwid", "sms-hwid");
+        StringBuilder out = new StringBuilder("{");
+
+        boolean written = JsonStreamWriter.writeMembers(out, params, false, overrides);
+        JsonStreamWriter.writeMembers(out, overrides, written, null);
+        out.append('}');
+
+        JSONAssert.assertEquals(new JSONObject().put("application", "APP").put("v", "1.0").put("hwid", "sms-hwid"),
+                new JSONObject(out.toString()), true);
+    }
+}
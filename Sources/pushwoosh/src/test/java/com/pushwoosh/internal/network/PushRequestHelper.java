@@ -10,4 +10,8 @@ public class PushRequestHelper {
 	public static JSONObject getParams(PushRequest request) throws Exception {
 		return request.getParams();
 	}
+
+	public static void writePayload(PushRequest request, StringBuilder out) throws Exception {
+		request.writePayload(out);
+	}
 }
@@ -0,0 +1,187 @@
+package com.pushwoosh.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import androidx.annotation.NonNull;
+
+import com.pushwoosh.internal.event.EventBus;
+import com.pushwoosh.internal.event.UserIdUpdatedEvent;
+import com.pushwoosh.internal.platform.AndroidPlatformModule;
+import com.pushwoosh.internal.registrar.PushRegistrar;
+import com.pushwoosh.internal.specific.DeviceSpecificProvider;
+import com.pushwoosh.internal.specific.TestDeviceSpecific;
+import com.pushwoosh.internal.utils.Config;
+import com.pushwoosh.internal.utils.MockConfig;
+import com.pushwoosh.repository.DeviceRegistrar;
+import com.pushwoosh.repository.RegistrationPrefs;
+import com.pushwoosh.repository.RepositoryModule;
+import com.pushwoosh.repository.RepositoryTestManager;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
+import org.skyscreamer.jsonassert.JSONAssert;
+
+@RunWith(RobolectricTestRunner.class)
+@org.robolectric.annotation.Config(manifest = "AndroidManifest.xml")
+@LooperMode(LooperMode.Mode.LEGACY)
+public class PushRequestPayloadTest {
+    private RegistrationPrefs registrationPrefs;
+
+    private static class TagsRequest extends PushRequest<Void> {
+        @Override
+        public String getMethod() {
+            return "setTags";
+        }
+
+        @NonNull @Override
+        protected String getHwid() {
+            return "test_hwid";
+        }
+
+        @Override
+        protected void buildParams(JSONObject params) throws JSONException {
+            params.put("tags", new JSONObject().put("Name", "Test/User \"1\"").put("Age", 30));
+        }
+    }
+
+    private static class SmsRequest extends TagsRequest {
+        @Override
+        protected void buildParams(JSONObject params) throws JSONException {
+            params.put("hwid", "+15551234567");
+        }
+    }
+
+    private static class CustomParamsRequest extends TagsRequest {
+        @Override
+        public boolean shouldWrapRequest() {
+            return false;
+        }
+
+        @Override
+        protected boolean omitsDeviceInfo() {
+            return true;
+        }
+
+        @Override
+        protected void buildParams(JSONObject params) throws JSONException {
+            params.put("madid", "gaid");
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Config configMock = MockConfig.createMock();
+        AndroidPlatformModule.init(RuntimeEnvironment.application, true);
+        registrationPrefs = RepositoryTestManager.createRegistrationPrefs(configMock, mock(DeviceRegistrar.class));
+        RepositoryModule.setRegistrationPreferences(registrationPrefs);
+        new DeviceSpecificProvider.Builder()
+                .setDeviceSpecific(new TestDeviceSpecific(mock(PushRegistrar.class)))
+                .build(true);
+        RequestBaseParams.invalidate();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RepositoryTestManager.destroyRegistrationPrefs(registrationPrefs);
+        RepositoryModule.setRegistrationPreferences(null);
+        EventBus.clearSubscribersMap();
+        RequestBaseParams.invalidate();
+    }
+
+    private static JSONObject payload(PushRequest<?> request) throws Exception {
+        StringBuilder out = new StringBuilder();
+        request.writePayload(out);
+        return new JSONObject(out.toString());
+    }
+
+    @Test
+    public void payloadMatchesParams() throws Exception {
+        registrationPrefs.userId().set("user@example.com");
+        TagsRequest request = new TagsRequest();
+
+        JSONObject payload = payload(request);
+
+        JSONAssert.assertEquals(new JSONObject().put("request", request.getParams()), payload, true);
+        assertEquals("user@example.com", payload.getJSONObject("request").getString("userId"));
+    }
+
+    @Test
+    public void paramsOfRequestReplaceIdentityMembers() throws Exception {
+        SmsRequest request = new SmsRequest();
+
+        String body = payloadString(request);
+
+        JSONObject params = new JSONObject(body).getJSONObject("request");
+        assertEquals("+15551234567", params.getString("hwid"));
+        assertEquals(body.indexOf("\"hwid\""), body.lastIndexOf("\"hwid\""));
+        JSONAssert.assertEquals(request.getParams(), params, true);
+    }
+
+    @Test
+    public void requestWithoutDeviceInfoSendsApplicationHwidAndItsParams() throws Exception {
+        registrationPrefs.userId().set("user@example.com");
+        CustomParamsRequest request = new CustomParamsRequest();
+
+        JSONObject payload = payload(request);
+
+        JSONAssert.assertEquals(request.getParams(), payload, true);
+        assertEquals("test_hwid", payload.getString("hwid"));
+        assertEquals("gaid", payload.getString("madid"));
+        assertFalse(payload.has("v"));
+        assertFalse(payload.has("device_type"));
+        assertFalse(payload.has("userId"));
+    }
+
+    @Test
+    public void templateIsReusedUntilIdentityChanges() throws Exception {
+        payload(new TagsRequest());
+        RequestBaseParams template = RequestBaseParams.current();
+
+        payload(new TagsRequest());
+        assertSame(template, RequestBaseParams.current());
+
+        // written without UserIdUpdatedEvent, as Pushwoosh.setUserId does
+        registrationPrefs.userId().set("another user");
+        JSONObject params = payload(new TagsRequest()).getJSONObject("request");
+
+        assertNotSame(template, RequestBaseParams.current());
+        assertEquals("another user", params.getString("userId"));
+    }
+
+    @Test
+    public void emptyUserIdIsOmitted() throws Exception {
+        registrationPrefs.userId().set("");
+
+        assertFalse(payload(new TagsRequest()).getJSONObject("request").has("userId"));
+    }
+
+    @Test
+    public void identityEventsDropTemplate() throws Exception {
+        RequestBaseParams.subscribe();
+        payload(new TagsRequest());
+
+        EventBus.sendEvent(new UserIdUpdatedEvent());
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertNull(RequestBaseParams.current());
+    }
+
+    private static String payloadString(PushRequest<?> request) throws Exception {
+        StringBuilder out = new StringBuilder();
+        request.writePayload(out);
+        return out.toString();
+    }
+}
@@ -155,11 +155,13 @@ public class PushwooshRequestManagerTest {
         }
 
         @Override
-        protected JSONObject getParams() throws JSONException, InterruptedException {
-            JSONObject params = new JSONObject();
-            params.put("hwid", getHwid());
+        protected boolean omitsDeviceInfo() {
+            return true;
+        }
+
+        @Override
+        protected void buildParams(JSONObject params) throws JSONException {
             params.put("custom", value);
-            return params;
         }
     }
 
@@ -235,6 +237,7 @@ public class PushwooshRequestManagerTest {
         server.shutdown();
         RepositoryTestManager.destroyRegistrationPrefs(registrationPrefs);
         RepositoryModule.setRegistrationPreferences(null);
+        RetryEngine.getInstance().resetForTesting();
     }
 
     @Test(timeout = TIMEOUT_TEST)
@@ -695,6 +698,46 @@ public class PushwooshRequestManagerTest {
         assertThat(ex.getMessage(), containsString("\"status_code\":503"));
     }
 
+    // Retry-After of a 429 reaches the caller so that its backoff does not undercut it.
+    @Test(timeout = TIMEOUT_TEST)
+    public void error_429_retryAfterIsPassedToException() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "12"));
+
+        Result<String, NetworkException> result = requestManager.sendRequestSync(new TestRequest("p", "r"));
+
+        ConnectionException ce = (ConnectionException) result.getException();
+        assertThat(ce.getStatusCode(), is(429));
+        assertEquals(12_000, ce.getRetryAfterMs());
+    }
+
+    // After a run of server errors requests fail fast without reaching the server,
+    // other endpoints are not affected.
+    @Test(timeout = TIMEOUT_TEST)
+    public void error_5xxInARow_opensCircuitBreaker() throws Exception {
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+            requestManager.sendRequestSync(new TestRequest("p", "r"));
+        }
+
+        Result<String, NetworkException> result = requestManager.sendRequestSync(new TestRequest("p", "r"));
+
+        assertThat(result.getException(), instanceOf(CircuitOpenException.class));
+        assertTrue(((CircuitOpenException) result.getException()).getRetryAfterMs() > 0);
+        assertEquals(CircuitBreaker.FAILURE_THRESHOLD, server.getRequestCount());
+        assertEquals(1, RetryEngine.getInstance().getMetrics().getShortCircuited());
+
+        MockWebServer other = new MockWebServer();
+        other.start();
+        try {
+            other.enqueue(new MockResponse().setBody("{\"response\" : {}, \"status_code\" : 200}"));
+            requestManager.updateBaseUrl(other.url("/").toString());
+
+            assertTrue(requestManager.sendRequestSync(new TestRequest("p", "r")).isSuccess());
+        } finally {
+            other.shutdown();
+        }
+    }
+
     // HTTP 4xx with a parseable JSON envelope in body: body overrides the synthetic envelope.
     // pushwooshStatusCode is taken from the body's status_code field, not the HTTP status.
     @Test(timeout = TIMEOUT_TEST)
@@ -0,0 +1,230 @@
+package com.pushwoosh.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.pushwoosh.function.Callback;
+import com.pushwoosh.function.Result;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RetryEngineTest {
+    private static final long BASE = 5_000;
+    private static final long MAX = 300_000;
+
+    private ScheduledExecutorService timer;
+    private RequestManager requestManager;
+
+    private static class TestRequest extends PushRequest<String> {
+        private final String param;
+
+        TestRequest(String param) {
+            this.param = param;
+        }
+
+        @Override
+        public String getMethod() {
+            return "testMethod";
+        }
+
+        @Override
+        protected void buildParams(JSONObject params) throws JSONException {
+            params.put("param", param);
+        }
+    }
+
+    private static class RecordingCallback implements Callback<String, NetworkException> {
+        final List<Result<String, NetworkException>> results = new CopyOnWriteArrayList<>();
+        final CountDownLatch called = new CountDownLatch(1);
+
+        @Override
+        public void process(Result<String, NetworkException> result) {
+            results.add(result);
+            called.countDown();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+        requestManager = mock(RequestManager.class);
+        NetworkModule.setRequestManager(requestManager);
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+        NetworkModule.setRequestManager(null);
+    }
+
+    // Verifies that delays stay between half the base delay and three times the previous one.
+    @Test
+    public void nextRetryDelay_staysInDecorrelatedJitterBounds() {
+        RetryEngine engine = new RetryEngine(new Random(42), timer);
+        for (int device = 0; device < 100; device++) {
+            long previous = 0;
+            for (int attempt = 0; attempt < 10; attempt++) {
+                long delay = engine.nextRetryDelayMs(previous, null, BASE, MAX);
+                assertTrue(delay >= BASE / 2);
+                assertTrue(delay <= Math.max(BASE, Math.min(MAX, previous * 3)));
+                previous = delay;
+            }
+        }
+        assertEquals(1000, engine.getMetrics().getRetriesScheduled());
+    }
+
+    // Verifies that devices failing at the same time do not retry at the same time.
+    @Test
+    public void nextRetryDelay_spreadsFirstRetries() {
+        RetryEngine engine = new RetryEngine(new Random(42), timer);
+        Set<Long> firstRetrySeconds = new HashSet<>();
+        for (int device = 0; device < 100; device++) {
+            firstRetrySeconds.add(engine.nextRetryDelayMs(0, null, BASE, MAX) / 100);
+        }
+
+        assertTrue(firstRetrySeconds.size() > 10);
+    }
+
+    // Verifies that the delay is never shorter than the Retry-After of the server, within the limit.
+    @Test
+    public void nextRetryDelay_honorsRetryAfter() {
+        RetryEngine engine = new RetryEngine(new Random(42), timer);
+
+        long delay = engine.nextRetryDelayMs(0, new ConnectionException("busy", 503, 503, 60_000), BASE, MAX);
+        long limited = engine.nextRetryDelayMs(0,
+                new ConnectionException("busy", 429, 429, TimeUnit.DAYS.toMillis(1)), BASE, MAX);
+
+        assertTrue(delay >= 60_000);
+        assertEquals(RetryEngine.RETRY_AFTER_LIMIT_MS, limited);
+    }
+
+    // Verifies that queued requests stay queued for the failures the engine retries and for requests that
+    // weren't sent, and are dropped when Pushwoosh rejects them or communication is stopped.
+    @Test
+    public void isRetriableQueued() {
+        assertTrue(RetryEngine.isRetriableQueued(new NetworkException("not sent")));
+        assertTrue(RetryEngine.isRetriableQueued(new ConnectionException("timeout", 0, 0)));
+        assertTrue(RetryEngine.isRetriableQueued(new ConnectionException("request timeout", 408, 0)));
+        assertTrue(RetryEngine.isRetriableQueued(new ConnectionException("too many requests", 429, 0)));
+        assertTrue(RetryEngine.isRetriableQueued(new ConnectionException("server error", 503, 0)));
+        assertTrue(RetryEngine.isRetriableQueued(new CircuitOpenException("server is unavailable", 1000)));
+        assertFalse(RetryEngine.isRetriableQueued(new ConnectionException("bad request", 400, 210)));
+        assertFalse(RetryEngine.isRetriableQueued(new ConnectionException("rejected", 200, 210)));
+        assertFalse(RetryEngine.isRetriableQueued(new ConnectionException("not implemented", 501, 0)));
+        assertFalse(RetryEngine.isRetriableQueued(new CommunicationStoppedException("communication stopped")));
+    }
+
+    // Verifies that the breaker opens after a run of failures, lets requests through once the time
+    // has passed and opens again on the first failure after that.
+    @Test
+    public void circuitBreaker_opensAndCloses() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD - 1; i++) {
+            assertFalse(breaker.onFailure(0, 0));
+        }
+        assertEquals(0, breaker.remainingOpenMs(0));
+
+        assertTrue(breaker.onFailure(0, 0));
+        assertEquals(CircuitBreaker.OPEN_MS, breaker.remainingOpenMs(0));
+        assertEquals(0, breaker.remainingOpenMs(CircuitBreaker.OPEN_MS));
+
+        assertTrue(breaker.onFailure(CircuitBreaker.OPEN_MS, 120_000));
+        assertEquals(120_000, breaker.remainingOpenMs(CircuitBreaker.OPEN_MS));
+
+        breaker.onSuccess();
+        assertEquals(0, breaker.remainingOpenMs(CircuitBreaker.OPEN_MS));
+        assertFalse(breaker.onFailure(CircuitBreaker.OPEN_MS, 0));
+    }
+
+    // Verifies that only unavailability of the server counts against the endpoint.
+    @Test
+    public void onResponse_clientErrorsDoNotOpenBreaker() {
+        RetryEngine engine = new RetryEngine(new Random(42), timer);
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            engine.onResponse("https://a/", 400, 0);
+            engine.onResponse("https://b/", 502, 0);
+        }
+
+        assertEquals(0, engine.checkCircuit("https://a/"));
+        assertTrue(engine.checkCircuit("https://b/") > 0);
+        assertEquals(1, engine.getMetrics().getCircuitsOpened());
+        assertEquals(1, engine.getMetrics().getShortCircuited());
+    }
+
+    // Verifies that the same request failed twice is resent once and both callbacks get the result.
+    @Test(timeout = 10_000)
+    public void retry_sameRequest_isDeduplicated() throws Exception {
+        RetryEngine engine = new RetryEngine(mock(Random.class), timer);
+        when(requestManager.sendRequestSync(any())).thenReturn(Result.fromData("ok"));
+        Result<String, NetworkException> failure = Result.fromException(new ConnectionException("offline", 0, 0));
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+
+        engine.retry(new TestRequest("a"), failure, first);
+        engine.retry(new TestRequest("a"), failure, second);
+
+        first.called.await();
+        second.called.await();
+        verify(requestManager, times(1)).sendRequestSync(any());
+        assertTrue(first.results.get(0).isSuccess());
+        assertTrue(second.results.get(0).isSuccess());
+        assertEquals(1, engine.getMetrics().getRetriesDeduplicated());
+        assertEquals(1, engine.getMetrics().getRetriesSucceeded());
+    }
+
+    // Verifies that the last failure is delivered after the last attempt.
+    @Test(timeout = 10_000)
+    public void retry_keepsFailing_givesUpAfterMaxAttempts() throws Exception {
+        RetryEngine engine = new RetryEngine(mock(Random.class), timer);
+        ConnectionException last = new ConnectionException("still offline", 0, 0);
+        when(requestManager.sendRequestSync(any())).thenReturn(Result.fromException(last));
+        RecordingCallback callback = new RecordingCallback();
+
+        engine.retry(new TestRequest("a"), Result.fromException(new ConnectionException("offline", 0, 0)), callback);
+
+        callback.called.await();
+        verify(requestManager, times(RetryEngine.MAX_ATTEMPTS)).sendRequestSync(any());
+        assertEquals(last, callback.results.get(0).getException());
+        assertEquals(1, engine.getMetrics().getRetriesExhausted());
+    }
+
+    // Verifies that retrying stops as soon as the breaker of the endpoint is open.
+    @Test(timeout = 10_000)
+    public void retry_circuitOpen_failsFast() throws Exception {
+        RetryEngine engine = new RetryEngine(mock(Random.class), timer);
+        when(requestManager.sendRequestSync(any()))
+                .thenReturn(Result.fromException(new CircuitOpenException("Server is unavailable", 30_000)));
+        RecordingCallback callback = new RecordingCallback();
+
+        engine.retry(new TestRequest("a"), Result.fromException(new ConnectionException("offline", 0, 0)), callback);
+
+        callback.called.await();
+        verify(requestManager, times(1)).sendRequestSync(any());
+        assertTrue(callback.results.get(0).getException() instanceof CircuitOpenException);
+    }
+}
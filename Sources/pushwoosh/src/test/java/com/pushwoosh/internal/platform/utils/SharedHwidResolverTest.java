@@ -0,0 +1,171 @@
+package com.pushwoosh.internal.platform.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SharedHwidResolverTest {
+    private SharedPreferences negativeCache;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        negativeCache = RuntimeEnvironment.application
+                .getSharedPreferences(SharedHwidResolver.PREFS_NAME, Context.MODE_PRIVATE);
+        negativeCache.edit().clear().commit();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        negativeCache.edit().clear().commit();
+    }
+
+    private SharedHwidResolver resolver(FakeSource source, long deadlineMs, String... packages) {
+        return new SharedHwidResolver(source, Arrays.asList(packages), negativeCache, executor, deadlineMs);
+    }
+
+    // Verifies that the HWID of the package that has one is returned.
+    @Test
+    public void resolve_returnsSharedHwid() {
+        FakeSource source = new FakeSource();
+        source.answers.put("com.app.b", "hwid-b");
+
+        String hwid = resolver(source, 1000, "com.app.a", "com.app.b", "com.app.c").resolve();
+
+        assertEquals("hwid-b", hwid);
+    }
+
+    // Verifies that a package that does not answer does not hold the lookup past the deadline.
+    @Test
+    public void resolve_blockedPackage_returnsAfterDeadline() {
+        FakeSource source = new FakeSource();
+        source.blocked = new CountDownLatch(1);
+
+        long start = System.currentTimeMillis();
+        String hwid = resolver(source, 100, "com.app.a").resolve();
+        long elapsed = System.currentTimeMillis() - start;
+        source.blocked.countDown();
+
+        assertNull(hwid);
+        assertTrue("took " + elapsed + " ms", elapsed < 1000);
+    }
+
+    // Verifies that the first HWID is returned without waiting for a package that does not answer.
+    @Test
+    public void resolve_hwidFound_doesNotWaitForOthers() {
+        FakeSource source = new FakeSource();
+        source.answers.put("com.app.b", "hwid-b");
+        source.blockedPackage = "com.app.a";
+        source.blocked = new CountDownLatch(1);
+
+        long start = System.currentTimeMillis();
+        String hwid = resolver(source, 5000, "com.app.a", "com.app.b").resolve();
+        long elapsed = System.currentTimeMillis() - start;
+        source.blocked.countDown();
+
+        assertEquals("hwid-b", hwid);
+        assertTrue("took " + elapsed + " ms", elapsed < 1000);
+    }
+
+    // Verifies that a package without an HWID is remembered and is not asked by the next lookup.
+    @Test
+    public void resolve_packageWithoutHwid_isNotAskedAgain() {
+        FakeSource source = new FakeSource();
+
+        assertNull(resolver(source, 1000, "com.app.a").resolve());
+        assertTrue(negativeCache.contains("com.app.a"));
+
+        assertNull(resolver(source, 1000, "com.app.a").resolve());
+        assertEquals(Collections.singletonList("com.app.a"), source.asked());
+    }
+
+    // Verifies that a package without an HWID is asked again once the negative cache expires.
+    @Test
+    public void resolve_expiredNegativeCache_asksAgain() {
+        negativeCache.edit()
+                .putLong("com.app.a", System.currentTimeMillis() - SharedHwidResolver.NEGATIVE_CACHE_TTL_MS - 1)
+                .commit();
+        FakeSource source = new FakeSource();
+        source.answers.put("com.app.a", "hwid-a");
+
+        assertEquals("hwid-a", resolver(source, 1000, "com.app.a").resolve());
+    }
+
+    // Verifies that a failed query is not cached, the package is asked again by the next lookup.
+    @Test
+    public void resolve_failedQuery_isNotCached() {
+        FakeSource source = new FakeSource();
+        source.failing = true;
+
+        assertNull(resolver(source, 1000, "com.app.a").resolve());
+        assertFalse(negativeCache.contains("com.app.a"));
+
+        source.failing = false;
+        source.answers.put("com.app.a", "hwid-a");
+        assertEquals("hwid-a", resolver(source, 1000, "com.app.a").resolve());
+    }
+
+    // Verifies that the current package, empty names and duplicates are dropped keeping the manifest order.
+    @Test
+    public void otherPackages_dropsCurrentAndDuplicates() {
+        List<String> packages = SharedHwidResolver.otherPackages(
+                new String[]{"com.app.b", "com.app.current", "", "com.app.a", "com.app.b"}, "com.app.current");
+
+        assertEquals(Arrays.asList("com.app.b", "com.app.a"), packages);
+        assertTrue(SharedHwidResolver.otherPackages(null, "com.app.current").isEmpty());
+    }
+
+    private static class FakeSource implements SharedHwidResolver.Source {
+        private final List<String> asked = new ArrayList<>();
+        final Map<String, String> answers = new HashMap<>();
+        volatile boolean failing;
+        volatile String blockedPackage;
+        volatile CountDownLatch blocked;
+
+        @Override
+        public String query(String packageName) throws Exception {
+            synchronized (asked) {
+                asked.add(packageName);
+            }
+            if (blocked != null && (blockedPackage == null || blockedPackage.equals(packageName))) {
+                blocked.await();
+            }
+            if (failing) {
+                throw new IllegalStateException("provider died");
+            }
+            return answers.get(packageName);
+        }
+
+        List<String> asked() {
+            synchronized (asked) {
+                return new ArrayList<>(asked);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.pushwoosh.internal.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class FileUtilsDownloadTest {
+    private static final String ETAG = "\"v1\"";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private byte[] content;
+    private File destination;
+
+    @Before
+    public void setUp() throws Exception {
+        content = new byte[256 * 1024];
+        new Random(7).nextBytes(content);
+        destination = new File(tempFolder.getRoot(), "ABCDE-12345.zip");
+        server = new MockWebServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    /**
+     * Serves {@link #content} with an ETag and honours {@code Range}; the first {@code brokenResponses}
+     * responses are cut off in the middle of the body.
+     */
+    private void serveContent(final int brokenResponses, final boolean supportsRange) {
+        final AtomicInteger served = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String range = request.getHeader("Range");
+                MockResponse response;
+                if (supportsRange && range != null && ETAG.equals(request.getHeader("If-Range"))) {
+                    int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                    response = new MockResponse()
+                            .setResponseCode(206)
+                            .setHeader("Content-Range", "bytes " + start + "-" + (content.length - 1) + "/" + content.length)
+                            .setBody(new Buffer().write(Arrays.copyOfRange(content, start, content.length)));
+                } else {
+                    response = new MockResponse().setBody(new Buffer().write(content));
+                }
+                response.setHeader("ETag", ETAG);
+                if (served.getAndIncrement() < brokenResponses) {
+                    response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+                }
+                return response;
+            }
+        });
+    }
+
+    private String url() {
+        return server.url("/inapps/ABCDE-12345.zip").toString();
+    }
+
+    private void writePart(int length, String partUrl) throws Exception {
+        try (FileOutputStream out = new FileOutputStream(destination.getPath() + ".part")) {
+            out.write(content, 0, length);
+        }
+        FileUtils.writeFile(new File(destination.getPath() + ".part.meta"), partUrl + "\n" + ETAG);
+    }
+
+    private byte[] md5(byte[] bytes) throws Exception {
+        return MessageDigest.getInstance("MD5").digest(bytes);
+    }
+
+    @Test
+    public void brokenDownloadIsResumedFromLastByte() throws Exception {
+        serveContent(1, true);
+        MessageDigest digest = MessageDigest.getInstance("MD5");
+        DownloadStats stats = new DownloadStats();
+
+        File result = FileUtils.downloadFile(url(), destination, digest, stats);
+
+        assertSame(destination, result);
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertArrayEquals(md5(content), digest.digest());
+        assertEquals(1, stats.getResumeCount());
+        assertTrue(stats.getResumedBytes() > 0);
+        // the cut-off attempt and the resumed tail add up to the file exactly once
+        assertEquals(content.length, stats.getBytesTransferred());
+        assertEquals(2, stats.getAttempts());
+        assertNull(server.takeRequest().getHeader("Range"));
+        assertEquals("bytes=" + stats.getResumedBytes() + "-", server.takeRequest().getHeader("Range"));
+        assertFalse(new File(destination.getPath() + ".part").exists());
+        assertFalse(new File(destination.getPath() + ".part.meta").exists());
+    }
+
+    @Test
+    public void brokenDownloadWithoutValidatorStartsOver() throws Exception {
+        final AtomicInteger served = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse response = new MockResponse().setBody(new Buffer().write(content));
+                if (served.getAndIncrement() == 0) {
+                    response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+                }
+                return response;
+            }
+        });
+        MessageDigest digest = MessageDigest.getInstance("MD5");
+        DownloadStats stats = new DownloadStats();
+
+        File result = FileUtils.downloadFile(url(), destination, digest, stats);
+
+        assertSame(destination, result);
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertArrayEquals(md5(content), digest.digest());
+        assertEquals(0, stats.getResumeCount());
+        assertEquals(2, stats.getAttempts());
+        assertNull(server.takeRequest().getHeader("Range"));
+        RecordedRequest retry = server.takeRequest();
+        assertNull(retry.getHeader("Range"));
+        assertNull(retry.getHeader("If-Range"));
+    }
+
+    @Test
+    public void partLeftByPreviousCallIsResumed() throws Exception {
+        serveContent(0, true);
+        writePart(100_000, url());
+        MessageDigest digest = MessageDigest.getInstance("MD5");
+        DownloadStats stats = new DownloadStats();
+
+        File result = FileUtils.downloadFile(url(), destination, digest, stats);
+
+        assertSame(destination, result);
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertArrayEquals(md5(content), digest.digest());
+        assertEquals(content.length - 100_000, stats.getBytesTransferred());
+        RecordedRequest request = server.takeRequest();
+        assertEquals("bytes=100000-", request.getHeader("Range"));
+        assertEquals(ETAG, request.getHeader("If-Range"));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void fullResponseToRangeRequestStartsFileOver() throws Exception {
+        serveContent(0, false);
+        writePart(100_000, url());
+        // the part holds data of a different version of the file
+        try (FileOutputStream out = new FileOutputStream(destination.getPath() + ".part")) {
+            out.write(new byte[100_000]);
+        }
+        MessageDigest digest = MessageDigest.getInstance("MD5");
+
+        File result = FileUtils.downloadFile(url(), destination, digest, new DownloadStats());
+
+        assertSame(destination, result);
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertArrayEquals(md5(content), digest.digest());
+    }
+
+    @Test
+    public void partOfAnotherUrlIsDiscarded() throws Exception {
+        serveContent(0, true);
+        writePart(100_000, "https://cdn.example.com/other.zip");
+
+        File result = FileUtils.downloadFile(url(), destination, null, null);
+
+        assertSame(destination, result);
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertNull(server.takeRequest().getHeader("Range"));
+    }
+
+    @Test
+    public void errorResponseReturnsNullAndDropsPart() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        writePart(100_000, url());
+
+        File result = FileUtils.downloadFile(url(), destination, null, null);
+
+        assertNull(result);
+        assertFalse(destination.exists());
+        assertFalse(new File(destination.getPath() + ".part").exists());
+    }
+}
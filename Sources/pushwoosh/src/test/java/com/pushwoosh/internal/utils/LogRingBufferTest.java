@@ -0,0 +1,92 @@
+package com.pushwoosh.internal.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class LogRingBufferTest {
+
+    private static List<String> drain(LogRingBuffer buffer) {
+        List<String> messages = new ArrayList<>();
+        buffer.drain(entry -> messages.add(entry.message));
+        return messages;
+    }
+
+    @Test
+    public void drain_returnsEntriesInPublishOrder() {
+        LogRingBuffer buffer = new LogRingBuffer(8);
+        buffer.publish(PWLog.Level.INFO, "a", null, true);
+        buffer.publish(PWLog.Level.DEBUG, "b", null, false);
+
+        assertTrue(buffer.hasPending());
+        List<String> messages = drain(buffer);
+
+        assertEquals(2, messages.size());
+        assertEquals("a", messages.get(0));
+        assertEquals("b", messages.get(1));
+        assertFalse(buffer.hasPending());
+        assertEquals(0, buffer.takeDropped());
+    }
+
+    @Test
+    public void publish_overwritesOldestEntriesWhenConsumerFallsBehind() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        for (int i = 0; i < 10; i++) {
+            buffer.publish(PWLog.Level.INFO, String.valueOf(i), null, true);
+        }
+
+        List<String> messages = drain(buffer);
+
+        assertEquals(4, messages.size());
+        assertEquals("6", messages.get(0));
+        assertEquals("9", messages.get(3));
+        assertEquals(6, buffer.takeDropped());
+        assertEquals(0, buffer.takeDropped());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsCapacityThatIsNotPowerOfTwo() {
+        new LogRingBuffer(100);
+    }
+
+    @Test(timeout = 10_000)
+    public void concurrentProducers_everyEntryIsDrainedOnce() throws Exception {
+        final int producers = 4;
+        final int perProducer = 10_000;
+        final LogRingBuffer buffer = new LogRingBuffer(1 << 16);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    buffer.publish(PWLog.Level.DEBUG, "m", null, true);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        int consumed = 0;
+        while (consumed < producers * perProducer) {
+            consumed += buffer.drain(entry -> { });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(producers * perProducer, consumed);
+        assertEquals(0, buffer.takeDropped());
+    }
+}
@@ -0,0 +1,143 @@
+package com.pushwoosh.internal.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class NetworkSchedulerTest {
+    private ManualExecutor executor;
+    private NetworkScheduler scheduler;
+    private List<String> started;
+
+    @Before
+    public void setUp() {
+        executor = new ManualExecutor();
+        scheduler = new NetworkScheduler(executor);
+        started = new ArrayList<>();
+    }
+
+    private void submit(NetworkPriority priority, String orderingKey, String name) {
+        scheduler.submit(priority, orderingKey, () -> started.add(name));
+    }
+
+    @Test
+    public void criticalTaskIsNotBlockedByRunningBackgroundTasks() {
+        submit(NetworkPriority.BACKGROUND, null, "getInApps");
+        submit(NetworkPriority.BACKGROUND, null, "getInboxMessages");
+        submit(NetworkPriority.CRITICAL, null, "pushStat");
+
+        assertEquals(2, executor.pending.size());
+        executor.runLast();
+
+        assertEquals(Arrays.asList("pushStat"), started);
+        assertEquals(1, scheduler.getStats(NetworkPriority.BACKGROUND).getQueued());
+    }
+
+    @Test
+    public void tasksOfClassStartFifoWithinConcurrencyLimit() {
+        submit(NetworkPriority.INTERACTIVE, null, "a");
+        submit(NetworkPriority.INTERACTIVE, null, "b");
+        submit(NetworkPriority.INTERACTIVE, null, "c");
+
+        assertEquals(NetworkPriority.INTERACTIVE.getConcurrencyLimit(), executor.pending.size());
+        assertEquals(2, scheduler.getStats(NetworkPriority.INTERACTIVE).getRunning());
+
+        executor.runAll();
+
+        assertEquals(Arrays.asList("a", "b", "c"), started);
+        assertEquals(0, scheduler.getStats(NetworkPriority.INTERACTIVE).getRunning());
+    }
+
+    @Test
+    public void higherClassIsDispatchedFirstWhenSlotsFree() {
+        submit(NetworkPriority.BACKGROUND, null, "blocker");
+        submit(NetworkPriority.BACKGROUND, null, "getInApps");
+        submit(NetworkPriority.INTERACTIVE, null, "getTags");
+
+        executor.runAll();
+
+        assertEquals(Arrays.asList("blocker", "getTags", "getInApps"), started);
+    }
+
+    // registerDevice is CRITICAL and setTags INTERACTIVE, yet setTags must wait for registration.
+    @Test
+    public void tasksWithSameOrderingKeyRunOneByOneInSubmissionOrder() {
+        submit(NetworkPriority.INTERACTIVE, "device", "setTags 1");
+        submit(NetworkPriority.CRITICAL, "device", "registerDevice");
+        submit(NetworkPriority.INTERACTIVE, "device", "setTags 2");
+        submit(NetworkPriority.INTERACTIVE, null, "getTags");
+
+        assertEquals(2, executor.pending.size());
+
+        executor.runAll();
+
+        assertEquals(Arrays.asList("setTags 1", "getTags", "registerDevice", "setTags 2"), started);
+    }
+
+    @Test
+    public void statsTrackQueueDepth() {
+        submit(NetworkPriority.BACKGROUND, null, "a");
+        submit(NetworkPriority.BACKGROUND, null, "b");
+        submit(NetworkPriority.BACKGROUND, null, "c");
+
+        NetworkScheduler.Stats stats = scheduler.getStats(NetworkPriority.BACKGROUND);
+        assertEquals(3, stats.getSubmitted());
+        assertEquals(1, stats.getStarted());
+        assertEquals(2, stats.getQueued());
+        assertEquals(2, stats.getMaxQueued());
+
+        executor.runAll();
+
+        stats = scheduler.getStats(NetworkPriority.BACKGROUND);
+        assertEquals(3, stats.getStarted());
+        assertEquals(0, stats.getQueued());
+        assertEquals(2, stats.getMaxQueued());
+    }
+
+    @Test
+    public void failingTaskReleasesItsSlotAndLane() {
+        scheduler.submit(NetworkPriority.CRITICAL, "device", () -> {
+            throw new RuntimeException("boom");
+        });
+        submit(NetworkPriority.CRITICAL, "device", "registerDevice");
+
+        try {
+            executor.runFirst();
+        } catch (RuntimeException ignored) {
+            // the pool thread would swallow it
+        }
+        executor.runAll();
+
+        assertEquals(Arrays.asList("registerDevice"), started);
+        assertEquals(0, scheduler.getStats(NetworkPriority.CRITICAL).getRunning());
+    }
+
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> pending = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            pending.add(command);
+        }
+
+        void runFirst() {
+            pending.remove(0).run();
+        }
+
+        void runLast() {
+            pending.remove(pending.size() - 1).run();
+        }
+
+        void runAll() {
+            while (!pending.isEmpty()) {
+                runFirst();
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.pushwoosh.internal.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Random;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * Loading the large icon and the big picture of a notification from a local mock server with a
+ * 150 ms round trip and a throttled body: one after the other without a cache, as before, then in
+ * parallel through {@link NotificationImageCache} with a cold cache, a warm memory cache (the next
+ * live update render) and a disk copy revalidated by a new process.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class NotificationImageCacheBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(NotificationImageCacheBenchmarkTest.class.getName());
+    private static final String ETAG = "\"campaign-1\"";
+    private static final int ICON_SIZE_PX = 192;
+    private static final int SCREEN_WIDTH_PX = 1080;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private byte[] icon;
+    private byte[] picture;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicLong bodyBytes = new AtomicLong();
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        icon = noisePng(256, 256, 1);
+        picture = noisePng(1600, 800, 2);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                requests.incrementAndGet();
+                MockResponse response = new MockResponse()
+                        .setHeader("ETag", ETAG)
+                        .setBodyDelay(150, TimeUnit.MILLISECONDS);
+                if (ETAG.equals(request.getHeader("If-None-Match"))) {
+                    return response.setResponseCode(304);
+                }
+                byte[] body = request.getPath().endsWith("icon.png") ? icon : picture;
+                bodyBytes.addAndGet(body.length);
+                return response.setBody(new Buffer().write(body)).throttleBody(256 * 1024, 100, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static byte[] noisePng(int width, int height, long seed) throws Exception {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    // the former NotificationUtils.tryToGetBitmapFromInternet: whole body buffered, decoded twice
+    private static Bitmap legacyFetch(String url, int imageSize) throws Exception {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(2000);
+        connection.connect();
+        byte[] buffer = new byte[1024];
+        try (InputStream inputStream = connection.getInputStream();
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                byteArrayOutputStream.write(buffer, 0, read);
+            }
+            buffer = byteArrayOutputStream.toByteArray();
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(buffer, 0, buffer.length, options);
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = imageSize == -1 ? 1 : Math.round(Math.max(options.outWidth, options.outHeight) / (float) imageSize);
+        return BitmapFactory.decodeByteArray(buffer, 0, buffer.length, options);
+    }
+
+    private long[] sequentialWithoutCache() throws Exception {
+        long start = System.nanoTime();
+        Bitmap largeIcon = legacyFetch(server.url("/icon.png").toString(), ICON_SIZE_PX);
+        Bitmap bigPicture = legacyFetch(server.url("/picture.png").toString(), -1);
+        assertNotNull(largeIcon);
+        assertNotNull(bigPicture);
+        return new long[]{System.nanoTime() - start, largeIcon.getByteCount() + bigPicture.getByteCount()};
+    }
+
+    private long[] parallel(final NotificationImageCache cache) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(NotificationImageCache.FETCH_DEADLINE_MS);
+        FutureTask<Bitmap> largeIconTask = new FutureTask<>(() ->
+                cache.get(server.url("/icon.png").toString(), ICON_SIZE_PX, deadline));
+        new Thread(largeIconTask).start();
+        Bitmap bigPicture = cache.get(server.url("/picture.png").toString(), SCREEN_WIDTH_PX, deadline);
+        Bitmap largeIcon = largeIconTask.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        assertNotNull(largeIcon);
+        assertNotNull(bigPicture);
+        return new long[]{System.nanoTime() - start, largeIcon.getByteCount() + bigPicture.getByteCount()};
+    }
+
+    private long[] report(String label, long[] result, int requestsBefore, long bytesBefore) {
+        LOG.info(String.format("%-34s %7.1f ms, %2d requests, %8d body bytes, %9d bitmap bytes",
+                label, result[0] / 1e6, requests.get() - requestsBefore, bodyBytes.get() - bytesBefore, result[1]));
+        return new long[]{result[0], requests.get() - requestsBefore, bodyBytes.get() - bytesBefore};
+    }
+
+    private long[] run(String label, Step step) throws Exception {
+        int requestsBefore = requests.get();
+        long bytesBefore = bodyBytes.get();
+        return report(label, step.run(), requestsBefore, bytesBefore);
+    }
+
+    private interface Step {
+        long[] run() throws Exception;
+    }
+
+    @Test
+    public void notificationImages() throws Exception {
+        File directory = tempFolder.newFolder("images");
+        final NotificationImageCache cache = new NotificationImageCache(directory, 8 * 1024 * 1024, 10 * 1024 * 1024);
+
+        run("sequential, no cache", this::sequentialWithoutCache);
+        long[] cold = run("parallel, cold cache", () -> parallel(cache));
+        long[] warm = run("parallel, memory hit (next render)", () -> parallel(cache));
+        long[] revalidated = run("parallel, new process, 304", () ->
+                parallel(new NotificationImageCache(directory, 8 * 1024 * 1024, 10 * 1024 * 1024)));
+
+        assertEquals(2, cold[1]);
+        assertEquals(icon.length + picture.length, cold[2]);
+        assertEquals(0, warm[1]);
+        assertEquals(2, revalidated[1]);
+        assertEquals(0, revalidated[2]);
+    }
+}
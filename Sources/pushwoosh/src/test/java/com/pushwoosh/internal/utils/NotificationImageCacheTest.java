@@ -0,0 +1,182 @@
+package com.pushwoosh.internal.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+
+import com.pushwoosh.internal.platform.utils.GeneralUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class NotificationImageCacheTest {
+    private static final String ETAG = "\"img-1\"";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        directory = tempFolder.newFolder("images");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    static byte[] png(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, x * 31 + y * 17);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private MockResponse image(byte[] png) {
+        return new MockResponse().setHeader("ETag", ETAG).setBody(new Buffer().write(png));
+    }
+
+    private String url() {
+        return server.url("/campaign/picture.png").toString();
+    }
+
+    @Test
+    public void secondRequestIsServedFromMemory() throws Exception {
+        server.enqueue(image(png(64, 32)));
+        NotificationImageCache cache = new NotificationImageCache(directory, 1024 * 1024, 1024 * 1024);
+
+        Bitmap first = cache.get(url(), 0);
+        Bitmap second = cache.get(url(), 0);
+
+        assertNotNull(first);
+        assertEquals(first, second);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void diskCopyIsRevalidatedWithEtag() throws Exception {
+        server.enqueue(image(png(64, 32)));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", ETAG));
+        new NotificationImageCache(directory, 1024 * 1024, 1024 * 1024).get(url(), 0);
+
+        // a new process: memory is empty, the disk copy is still there
+        Bitmap bitmap = new NotificationImageCache(directory, 1024 * 1024, 1024 * 1024).get(url(), 0);
+
+        assertNotNull(bitmap);
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        assertEquals(ETAG, server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void diskCopyIsUsedWhenServerFails() throws Exception {
+        server.enqueue(image(png(64, 32)));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        new NotificationImageCache(directory, 1024 * 1024, 1024 * 1024).get(url(), 0);
+
+        Bitmap bitmap = new NotificationImageCache(directory, 1024 * 1024, 1024 * 1024).get(url(), 0);
+
+        assertNotNull(bitmap);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void failedDownloadReturnsNullAndLeavesNoFiles() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        assertNull(new NotificationImageCache(directory, 1024 * 1024, 1024 * 1024).get(url(), 0));
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void slowResponseIsAbandonedAtDeadline() throws Exception {
+        server.enqueue(image(png(256, 256)).throttleBody(64, 1, TimeUnit.SECONDS));
+        NotificationImageCache cache = new NotificationImageCache(directory, 1024 * 1024, 1024 * 1024);
+
+        long start = System.nanoTime();
+        Bitmap bitmap = cache.get(url(), 0, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertNull(bitmap);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+    }
+
+    @Test
+    public void diskCacheIsTrimmedToItsBound() throws Exception {
+        byte[] png = png(128, 128);
+        NotificationImageCache cache = new NotificationImageCache(directory, 1024 * 1024, png.length * 2);
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(image(png));
+            String url = server.url("/picture" + i + ".png").toString();
+            assertNotNull(cache.get(url, 0));
+            // file times may share a millisecond, make the order of use explicit
+            new File(directory, GeneralUtils.md5(url)).setLastModified(1_000_000L * (i + 1));
+        }
+
+        long total = 0;
+        for (File file : directory.listFiles()) {
+            if (!file.getName().endsWith(".meta")) {
+                total += file.length();
+            }
+        }
+        assertTrue(total <= png.length * 2);
+        assertFalse(new File(directory, GeneralUtils.md5(server.url("/picture0.png").toString())).exists());
+        assertTrue(new File(directory, GeneralUtils.md5(server.url("/picture3.png").toString())).exists());
+    }
+
+    @Test
+    public void requestCarriesLastModifiedWhenThereIsNoEtag() throws Exception {
+        String lastModified = "Wed, 21 Oct 2026 07:28:00 GMT";
+        server.enqueue(new MockResponse().setHeader("Last-Modified", lastModified).setBody(new Buffer().write(png(16, 16))));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        new NotificationImageCache(directory, 1024 * 1024, 1024 * 1024).get(url(), 0);
+
+        assertNotNull(new NotificationImageCache(directory, 1024 * 1024, 1024 * 1024).get(url(), 0));
+
+        server.takeRequest();
+        RecordedRequest revalidation = server.takeRequest();
+        assertEquals(lastModified, revalidation.getHeader("If-Modified-Since"));
+        assertNull(revalidation.getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void sampleSizeKeepsImageNotSmallerThanTarget() {
+        assertEquals(1, NotificationImageCache.sampleSize(2048, 1024, 0));
+        assertEquals(1, NotificationImageCache.sampleSize(200, 200, 192));
+        assertEquals(1, NotificationImageCache.sampleSize(2048, 1024, 1080));
+        assertEquals(2, NotificationImageCache.sampleSize(4000, 2000, 1080));
+        assertEquals(8, NotificationImageCache.sampleSize(1600, 1600, 192));
+    }
+}
@@ -0,0 +1,183 @@
+package com.pushwoosh.internal.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import android.os.Bundle;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Bytes allocated by log statements at the default INFO level, without a listener, for the
+ * former {@code PWLog} (message concatenated by the caller and built twice by {@code buildMessage})
+ * and for the lazy overloads. "Push receive" are the debug statements of
+ * {@code NotificationServiceExtension.handleMessageInternal} and
+ * {@code PushStatNotificationOpenHandler.postHandleNotification}; "network request" is the debug
+ * dump of {@code HttpTransport.makeRequest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PWLogBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(PWLogBenchmarkTest.class.getName());
+    private static final int ITERATIONS = 20_000;
+    private static final String TAG = "Benchmark";
+
+    private interface Statement {
+        void run();
+    }
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Bundle pushBundle;
+    private String payload;
+    private String responseBody;
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        setStaticField("currentLevel", PWLog.Level.INFO);
+        setStaticField("logsUpdateListener", null);
+
+        pushBundle = new Bundle();
+        pushBundle.putString("title", "Your order has been shipped");
+        pushBundle.putString("header", "Order #12345");
+        pushBundle.putString("p", "ab12cd34ef");
+        pushBundle.putString("md", "{\"_c\":\"1234\",\"_o\":\"5678\"}");
+        pushBundle.putString("u", "{\"order_id\":12345,\"carrier\":\"DHL\",\"eta\":\"2026-10-20\"}");
+        pushBundle.putString("l", "https://example.com/orders/12345");
+        pushBundle.putString("pw_msg", "1");
+
+        JSONObject request = new JSONObject();
+        JSONObject data = new JSONObject();
+        data.put("application", "ABCDE-12345");
+        data.put("hwid", "0123456789abcdef0123456789abcdef");
+        data.put("userId", "user@example.com");
+        data.put("v", "6.7.0");
+        data.put("device_type", 3);
+        JSONObject tags = new JSONObject();
+        for (int i = 0; i < 20; i++) {
+            tags.put("Tag" + i, "value " + i);
+        }
+        data.put("tags", tags);
+        request.put("request", data);
+        payload = request.toString();
+        responseBody = "{\"status_code\":200,\"status_message\":\"OK\",\"response\":null}";
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        setStaticField("currentLevel", PWLog.Level.INFO);
+    }
+
+    private static void setStaticField(String name, Object value) throws Exception {
+        Field f = PWLog.class.getDeclaredField(name);
+        f.setAccessible(true);
+        f.set(null, value);
+    }
+
+    // The former PWLog.debug: buildMessage for logcat when enabled and always once more for the listener.
+    private static void legacyDebug(String subTag, String msg) {
+        if (PWLog.isLoggable(subTag, PWLog.DEBUG)) {
+            android.util.Log.d("Pushwoosh", legacyBuildMessage(subTag, msg));
+        }
+        legacyBuildMessage(subTag, msg);
+    }
+
+    private static String legacyBuildMessage(String subTag, String msg) {
+        return (subTag != null) ? ("[" + subTag + "] " + msg) : (msg);
+    }
+
+    private long bytesPerRun(Statement statement) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            statement.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            statement.run();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    }
+
+    private void pushReceiveLegacy() {
+        legacyDebug(TAG, "handleMessage: " + pushBundle.toString());
+        legacyDebug(TAG, String.format("pushStatNotificationOpenHandler.postHandleNotification: %s", pushBundle));
+        legacyDebug("PushStatNotificationOpenHandler",
+                String.format("postHandleNotification, pushHash: %s, metadata: %s", "ab12cd34ef", "{\"_c\":\"1234\"}"));
+    }
+
+    private void pushReceive() {
+        PWLog.debug(TAG, "handleMessage: %s", pushBundle);
+        PWLog.debug(TAG, "pushStatNotificationOpenHandler.postHandleNotification: %s", pushBundle);
+        PWLog.debug("PushStatNotificationOpenHandler", "postHandleNotification, pushHash: %s, metadata: %s",
+                "ab12cd34ef", "{\"_c\":\"1234\"}");
+    }
+
+    private void networkRequestLegacy(String methodName, String url) {
+        legacyDebug(
+                TAG,
+                "\n"
+                        + "| Pushwoosh request: " + methodName + "\n"
+                        + "| - URL: " + url + "\n"
+                        + "| - Payload: " + payload + "\n"
+                        + "| - Response: " + responseBody + "\n");
+    }
+
+    private void networkRequest(String methodName, String url) {
+        PWLog.debug(
+                TAG,
+                () -> "\n"
+                        + "| Pushwoosh request: " + methodName + "\n"
+                        + "| - URL: " + url + "\n"
+                        + "| - Payload: " + payload + "\n"
+                        + "| - Response: " + responseBody + "\n");
+    }
+
+    @Test
+    public void allocationsRemovedAtDisabledLevel() {
+        final String url = "https://api.pushwoosh.com/json/1.3/";
+        long pushLegacy = bytesPerRun(this::pushReceiveLegacy);
+        long push = bytesPerRun(this::pushReceive);
+        long requestLegacy = bytesPerRun(() -> networkRequestLegacy("setTags", url));
+        long request = bytesPerRun(() -> networkRequest("setTags", url));
+
+        LOG.info(String.format("per push receive:    %6d bytes before, %4d bytes now", pushLegacy, push));
+        LOG.info(String.format("per network request: %6d bytes before, %4d bytes now (payload %d chars)",
+                requestLegacy, request, payload.length()));
+
+        // at a disabled level neither the arguments nor the suppliers are turned into a message
+        final AtomicInteger built = new AtomicInteger();
+        Object bundle = new Object() {
+            @Override
+            public String toString() {
+                built.incrementAndGet();
+                return pushBundle.toString();
+            }
+        };
+        PWLog.debug(TAG, "handleMessage: %s", bundle);
+        PWLog.debug("PushStatNotificationOpenHandler", "postHandleNotification, pushHash: %s, metadata: %s",
+                "ab12cd34ef", bundle);
+        PWLog.debug(TAG, () -> {
+            built.incrementAndGet();
+            return payload;
+        });
+        assertEquals(0, built.get());
+    }
+}
@@ -16,7 +16,9 @@ import com.pushwoosh.repository.RepositoryModule;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
@@ -24,26 +26,36 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import org.robolectric.annotation.LooperMode;
 
+import java.io.File;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = "AndroidManifest.xml")
 @LooperMode(LooperMode.Mode.LEGACY)
 public class PWLogTest {
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     private AutoCloseable mocks;
 
     @Before
     public void setUp() throws Exception {
         mocks = MockitoAnnotations.openMocks(this);
         resetPWLogState();
+        // deliver to the listener and the log file on the calling thread
+        PWLog.setSinkExecutor(Runnable::run);
     }
 
     @After
     public void tearDown() throws Exception {
         resetPWLogState();
+        PWLog.setSinkExecutor(null);
         mocks.close();
     }
 
@@ -51,6 +63,7 @@ public class PWLogTest {
         setStaticField("initialized", false);
         setStaticField("currentLevel", PWLog.Level.INFO);
         setStaticField("logsUpdateListener", null);
+        setStaticField("logFile", null);
     }
 
     private static void setStaticField(String name, Object value) throws Exception {
@@ -283,15 +296,15 @@ public class PWLogTest {
     }
 
     @Test
-    public void noise_notifiesListenerWithLevelNoneNotNoise() {
+    public void noise_notifiesListenerWithLevelNoise() {
         PWLog.updateLogLevel("NOISE");
         PWLog.LogsUpdateListener listener = mock(PWLog.LogsUpdateListener.class);
         PWLog.setLogsUpdateListener(listener);
 
         PWLog.noise("T", "m");
 
-        verify(listener).logUpdated(PWLog.Level.NONE, "[T] m");
-        verify(listener, never()).logUpdated(PWLog.Level.NOISE, "[T] m");
+        verify(listener).logUpdated(PWLog.Level.NOISE, "[T] m");
+        verify(listener, never()).logUpdated(PWLog.Level.NONE, "[T] m");
     }
 
     @Test
@@ -308,4 +321,90 @@ public class PWLogTest {
         verify(listener, times(0))
                 .logUpdated(org.mockito.ArgumentMatchers.any(), org.mockito.ArgumentMatchers.anyString());
     }
+
+    // --- lazy messages ---
+
+    @Test
+    public void debug_supplier_isNotCalledWhenLevelDisabledAndNoListener() {
+        PWLog.updateLogLevel("INFO");
+        AtomicInteger built = new AtomicInteger();
+
+        PWLog.debug("T", () -> "payload " + built.incrementAndGet());
+        PWLog.noise("T", "payload: %s", new Object() {
+            @Override
+            public String toString() {
+                return "payload " + built.incrementAndGet();
+            }
+        });
+
+        assertEquals(0, built.get());
+    }
+
+    @Test
+    public void debug_supplierAndFormat_areBuiltForListener() {
+        PWLog.updateLogLevel("INFO");
+        PWLog.LogsUpdateListener listener = mock(PWLog.LogsUpdateListener.class);
+        PWLog.setLogsUpdateListener(listener);
+
+        PWLog.debug("T", () -> "lazy");
+        PWLog.debug("T", "hash: %s, metadata: %s", "abc", null);
+
+        verify(listener).logUpdated(PWLog.Level.DEBUG, "[T] lazy");
+        verify(listener).logUpdated(PWLog.Level.DEBUG, "[T] hash: abc, metadata: null");
+    }
+
+    @Test
+    public void info_malformedFormat_logsFormatAndArguments() {
+        PWLog.LogsUpdateListener listener = mock(PWLog.LogsUpdateListener.class);
+        PWLog.setLogsUpdateListener(listener);
+
+        PWLog.info("T", "value %d", "text");
+
+        verify(listener).logUpdated(PWLog.Level.INFO, "[T] value %d [text]");
+    }
+
+    // --- asynchronous delivery ---
+
+    @Test
+    public void listener_isNotifiedInOrderByOneDrainTask() {
+        List<Runnable> tasks = new ArrayList<>();
+        PWLog.setSinkExecutor(tasks::add);
+        List<String> received = new ArrayList<>();
+        PWLog.setLogsUpdateListener((level, message) -> received.add(message));
+
+        PWLog.info("T", "1");
+        PWLog.error("T", "2");
+        PWLog.noise("T", "3");
+
+        assertTrue(received.isEmpty());
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+
+        assertEquals(Arrays.asList("[T] 1", "[T] 2", "[T] 3"), received);
+    }
+
+    // --- file logging ---
+
+    @Test
+    public void fileLogging_writesEnabledLevelsAndRotates() throws Exception {
+        PWLog.updateLogLevel("INFO");
+        File directory = tempFolder.newFolder("logs");
+        PWLog.enableFileLogging(directory, 300, 2);
+
+        for (int i = 0; i < 20; i++) {
+            PWLog.info("T", "message " + i);
+            PWLog.debug("T", "hidden " + i);
+        }
+
+        List<File> files = PWLog.getLogFiles();
+        assertEquals(2, files.size());
+        assertEquals(new File(directory, "pushwoosh.log"), files.get(0));
+        assertEquals(new File(directory, "pushwoosh.1.log"), files.get(1));
+        String current = new String(Files.readAllBytes(files.get(0).toPath()), "UTF-8");
+        String previous = new String(Files.readAllBytes(files.get(1).toPath()), "UTF-8");
+        assertTrue(current.contains("INFO [T] message 19"));
+        assertFalse(previous.contains("message 0\n"));
+        assertFalse((current + previous).contains("hidden"));
+    }
 }
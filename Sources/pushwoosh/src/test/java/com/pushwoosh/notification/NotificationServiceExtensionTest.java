@@ -126,7 +126,7 @@ public class NotificationServiceExtensionTest {
 
         notificationServiceExtension.handleMessageInternal(pushBundle);
 
-        verify(pushStatNotificationOpenHandler).postHandleNotification(pushBundle);
+        verify(pushStatNotificationOpenHandler).postHandlePushMessage(message);
         verify(pushMessageHandler).handlePushMessage(message, true);
     }
 
@@ -139,7 +139,7 @@ public class NotificationServiceExtensionTest {
 
         notificationServiceExtension.handleMessageInternal(pushBundle);
 
-        verify(pushStatNotificationOpenHandler, never()).postHandleNotification(any());
+        verify(pushStatNotificationOpenHandler, never()).postHandlePushMessage(any());
         verify(pushMessageHandler).handlePushMessage(message, false);
     }
 
@@ -189,7 +189,7 @@ public class NotificationServiceExtensionTest {
 
         notificationServiceExtension.handleMessageInternal(pushBundle);
 
-        verify(pushStatNotificationOpenHandler, never()).postHandleNotification(any());
+        verify(pushStatNotificationOpenHandler, never()).postHandlePushMessage(any());
         verify(pushMessageHandler).handlePushMessage(message, true);
     }
 
@@ -0,0 +1,193 @@
+package com.pushwoosh.notification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.os.Bundle;
+
+import com.pushwoosh.internal.utils.MockConfig;
+import com.pushwoosh.testutil.PlatformTestManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Field;
+import java.util.logging.Logger;
+
+/**
+ * CPU time per push from receiving the payload to the point the SDK either drops it as silent or has
+ * built the notification, for the former eager {@link PushMessage} (every field decoded in the
+ * constructor) and for the lazily decoded one shared across the receive path.
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.LEGACY)
+@org.robolectric.annotation.Config(manifest = "AndroidManifest.xml")
+public class PushMessageBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(PushMessageBenchmarkTest.class.getName());
+    private static final int ITERATIONS = 20_000;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private PlatformTestManager platformTestManager;
+
+    private interface Path {
+        Object run(Bundle pushBundle);
+    }
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() {
+        platformTestManager = new PlatformTestManager(MockConfig.createMock());
+        platformTestManager.onApplicationCreated();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        platformTestManager.tearDown();
+    }
+
+    private static Bundle pushBundle(boolean silent) {
+        Bundle bundle = new Bundle();
+        bundle.putString("p", "p_1a_2b_code");
+        bundle.putString("md", "{\"uid\":12345678,\"_c\":\"1234\"}");
+        bundle.putString("pw_msg", "1");
+        bundle.putString("title", "Your order has been shipped");
+        bundle.putString("header", "Shop");
+        bundle.putString("u", "{\"screen\":\"order\",\"order_id\":\"A-1024\"}");
+        bundle.putString("led", "#FF00FF00");
+        bundle.putString("led_on_ms", "300");
+        bundle.putString("led_off_ms", "1200");
+        bundle.putString("vib", "1");
+        bundle.putString("s", "default");
+        bundle.putString("pri", "1");
+        bundle.putString("ci", "https://cdn.example.com/icon.png");
+        bundle.putString("b", "https://cdn.example.com/picture.png");
+        bundle.putString("pw_badges", "+1");
+        bundle.putString("pw_actions", "[{\"title\":\"Track\",\"type\":\"ACTIVITY\",\"url\":\"https://example.com/t\"},"
+                + "{\"title\":\"Later\",\"type\":\"BROADCAST\",\"action\":\"later\"}]");
+        if (silent) {
+            bundle.putString("pw_silent", "1");
+        }
+        return bundle;
+    }
+
+    // what the former constructor did before anything else could look at the message
+    private static PushMessage eagerMessage(Bundle pushBundle) {
+        PushMessage message = new PushMessage(pushBundle);
+        message.getPushHash();
+        message.getPushMetaData();
+        message.isSilent();
+        message.isLocal();
+        message.getIconBackgroundColor();
+        message.getLed();
+        message.getSound();
+        message.getVibration();
+        message.getMessage();
+        message.getHeader();
+        message.getPriority();
+        message.getVisibility();
+        message.getBadges();
+        message.isBadgesAdditive();
+        message.getCustomData();
+        message.getGroupId();
+        message.getBigPictureUrl();
+        message.getLargeIconUrl();
+        message.getSmallIcon();
+        message.getLedOnMS();
+        message.getLedOffMS();
+        message.getTag();
+        message.isLockScreen();
+        message.getActions();
+        return message;
+    }
+
+    // statistics and the handle chain looking at a silent push
+    private static Object silentPath(PushMessage message) {
+        if (message.isLocal() || !message.isSilent()) {
+            throw new AssertionError();
+        }
+        return message.getPushHash() + message.getPushMetaData() + message.getCustomData();
+    }
+
+    // reads of PushwooshNotificationFactory and the notification handler for a visible push
+    private static Object visiblePath(PushMessage message) {
+        if (message.isSilent()) {
+            throw new AssertionError();
+        }
+        int hash = 0;
+        for (int i = 0; i < 3; i++) {
+            hash += message.getHeader().length() + message.getMessage().length() + message.getTicker().length();
+        }
+        hash += message.getSmallIcon() + message.getIconBackgroundColor() + message.getPriority() + message.getVisibility();
+        hash += message.getLed() + message.getLedOnMS() + message.getLedOffMS();
+        hash += message.getSound().length() + (message.getVibration() ? 1 : 0) + (message.isLockScreen() ? 1 : 0);
+        hash += message.getLargeIconUrl().length() + message.getBigPictureUrl().length() + message.getActions().size();
+        hash += message.getGroupId().length() + message.getCustomData().length() + (message.getTag() == null ? 0 : 1);
+        hash += (int) message.getPushwooshNotificationId();
+        return hash;
+    }
+
+    private long cpuNanosPerPush(Path path, Bundle pushBundle) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            path.run(pushBundle);
+        }
+        long start = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            path.run(pushBundle);
+        }
+        return (threads.getCurrentThreadCpuTime() - start) / ITERATIONS;
+    }
+
+    private void compare(String label, Path eager, Path lazy, Bundle pushBundle) {
+        long eagerNanos = cpuNanosPerPush(eager, pushBundle);
+        long lazyNanos = cpuNanosPerPush(lazy, pushBundle);
+        LOG.info(String.format("%-8s receive-to-notify CPU: eager %7d ns, lazy %7d ns (%.1fx)",
+                label, eagerNanos, lazyNanos, eagerNanos / (double) lazyNanos));
+    }
+
+    // fields of the message decoded from its bundle so far
+    private static int decodedFields(PushMessage message) throws Exception {
+        Field decoded = PushMessage.class.getDeclaredField("decoded");
+        decoded.setAccessible(true);
+        return Integer.bitCount(decoded.getInt(message));
+    }
+
+    @Test
+    public void receiveToNotifyCpuTime() throws Exception {
+        compare("silent",
+                pushBundle -> silentPath(eagerMessage(pushBundle)),
+                pushBundle -> silentPath(new PushMessage(pushBundle)),
+                pushBundle(true));
+        compare("visible",
+                pushBundle -> visiblePath(eagerMessage(pushBundle)),
+                pushBundle -> visiblePath(new PushMessage(pushBundle)),
+                pushBundle(false));
+
+        PushMessage eagerSilent = eagerMessage(pushBundle(true));
+        silentPath(eagerSilent);
+        PushMessage lazySilent = new PushMessage(pushBundle(true));
+        silentPath(lazySilent);
+        // local, silent, hash, metadata and custom data
+        assertEquals(5, decodedFields(lazySilent));
+        assertTrue(decodedFields(lazySilent) * 4 < decodedFields(eagerSilent));
+
+        // a visible push reads nearly every field, decoding on demand must not decode more of them
+        PushMessage eagerVisible = eagerMessage(pushBundle(false));
+        visiblePath(eagerVisible);
+        PushMessage lazyVisible = new PushMessage(pushBundle(false));
+        visiblePath(lazyVisible);
+        assertTrue(decodedFields(lazyVisible) <= decodedFields(eagerVisible));
+    }
+}
@@ -1,15 +1,21 @@
 package com.pushwoosh.notification;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import android.os.Bundle;
 
+import java.util.List;
+
 import com.pushwoosh.testutil.PlatformTestManager;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.LooperMode;
 
@@ -88,4 +94,56 @@ public class PushMessageTest {
         assertEquals(0L, pushMessage.getCampaignId());
         assertEquals(0L, pushMessage.getMessageId());
     }
+
+    @Test
+    public void constructor_doesNotReadPayload() {
+        Bundle bundle = Mockito.spy(bundleWith("p_1_2_code", "{\"uid\": 1}"));
+
+        new PushMessage(bundle);
+
+        Mockito.verifyNoInteractions(bundle);
+    }
+
+    @Test
+    public void getters_decodeEachFieldOnce() {
+        Bundle bundle = Mockito.spy(bundleWith("p_1_2_code", null));
+        bundle.putString("pw_actions", "[{\"title\":\"Open\",\"type\":\"ACTIVITY\"}]");
+        PushMessage pushMessage = new PushMessage(bundle);
+
+        List<Action> actions = pushMessage.getActions();
+        pushMessage.getPushHash();
+        pushMessage.getCampaignId();
+        pushMessage.getMessageId();
+        pushMessage.getMessageCode();
+
+        assertSame(actions, pushMessage.getActions());
+        assertEquals(1, actions.size());
+        assertEquals("p_1_2_code", pushMessage.getPushHash());
+        Mockito.verify(bundle, Mockito.times(1)).getString("pw_actions");
+        Mockito.verify(bundle, Mockito.times(1)).getString(KEY_PUSH_HASH);
+    }
+
+    @Test
+    public void isSilent_readsFlagsWithoutDecodingOtherFields() {
+        Bundle bundle = Mockito.spy(bundleWith("p_1_2_code", null));
+        bundle.putString("pw_silent", "1");
+        PushMessage pushMessage = new PushMessage(bundle);
+
+        assertTrue(pushMessage.isSilent());
+        assertFalse(pushMessage.isLocal());
+
+        Mockito.verify(bundle, Mockito.never()).getString("pw_actions");
+        Mockito.verify(bundle, Mockito.never()).getString(KEY_PUSH_HASH);
+    }
+
+    @Test
+    public void getTicker_isMessage() {
+        Bundle bundle = bundleWith(null, null);
+        bundle.putString("title", "Sale");
+
+        PushMessage pushMessage = new PushMessage(bundle);
+
+        assertEquals("Sale", pushMessage.getTicker());
+        assertEquals(pushMessage.getMessage(), pushMessage.getTicker());
+    }
 }
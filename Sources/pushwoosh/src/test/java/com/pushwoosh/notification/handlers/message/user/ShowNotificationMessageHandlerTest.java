@@ -47,7 +47,6 @@ import android.service.notification.StatusBarNotification;
 import com.pushwoosh.internal.event.EventBus;
 import com.pushwoosh.internal.platform.AndroidPlatformModule;
 import com.pushwoosh.internal.platform.manager.ManagerProvider;
-import com.pushwoosh.internal.preference.PreferenceArrayListValue;
 import com.pushwoosh.internal.preference.PreferenceBooleanValue;
 import com.pushwoosh.internal.preference.PreferenceIntValue;
 import com.pushwoosh.internal.utils.NotificationUtils;
@@ -61,6 +60,7 @@ import com.pushwoosh.repository.InboxNotificationStorage;
 import com.pushwoosh.repository.LocalNotificationStorage;
 import com.pushwoosh.repository.NotificationPrefs;
 import com.pushwoosh.repository.PushBundleStorage;
+import com.pushwoosh.repository.PushHistoryStorage;
 import com.pushwoosh.repository.RepositoryModule;
 import com.pushwoosh.testutil.WhiteboxHelper;
 
@@ -76,7 +76,6 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.robolectric.util.ReflectionHelpers;
 
-import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 
@@ -156,8 +155,8 @@ public class ShowNotificationMessageHandlerTest {
             when(lightScreenMock.get()).thenReturn(true);
             when(notificationPrefsMock.lightScreenOn()).thenReturn(lightScreenMock);
 
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
             PushMessage pushMessage = pushMessageTestTool.getPushMessageMock(false);
 
             Notification notification = new Notification();
@@ -172,8 +171,7 @@ public class ShowNotificationMessageHandlerTest {
 
             notificationUtilsMockedStatic.verify(NotificationUtils::turnScreenOn, times(1));
             EventBus.sendEvent(Mockito.any());
-            verify(notificationPrefsMock).pushHistory();
-            verify(history).add(Mockito.any(Serializable.class));
+            verify(history).add(Mockito.anyString());
             verify(localNotificationStorageMock).removeLocalNotificationShown(Mockito.anyInt(), Mockito.anyString());
         }
     }
@@ -226,8 +224,8 @@ public class ShowNotificationMessageHandlerTest {
             when(lightScreenMock.get()).thenReturn(true);
             when(notificationPrefsMock.lightScreenOn()).thenReturn(lightScreenMock);
 
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
 
             when(preferenceBooleanValueMock.get()).thenReturn(true);
             PushMessage pushMessage = pushMessageTestTool.getPushMessageMock(false);
@@ -285,8 +283,8 @@ public class ShowNotificationMessageHandlerTest {
             when(lightScreenMock.get()).thenReturn(true);
             when(notificationPrefsMock.lightScreenOn()).thenReturn(lightScreenMock);
 
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
 
             when(preferenceBooleanValueMock.get()).thenReturn(false);
             PushMessage pushMessage = pushMessageTestTool.getPushMessageMock(false);
@@ -350,8 +348,8 @@ public class ShowNotificationMessageHandlerTest {
                     .thenReturn(managerProviderMock);
 
             stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ false);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
 
             LocalNotificationStorage localNotificationStorageMock = mock(LocalNotificationStorage.class);
             repositoryModuleMockedStatic
@@ -381,7 +379,7 @@ public class ShowNotificationMessageHandlerTest {
             showNotificationMessageHandler.handleNotification(pushMessage);
 
             verify(pushwooshNotificationFactoryMock, times(1)).onGenerateNotification(pushMessage);
-            verify(history).add(any(Serializable.class));
+            verify(history).add(anyString());
             verify(localNotificationStorageMock).removeLocalNotificationShown(anyInt(), anyString());
             ArgumentCaptor<NotificationCreatedEvent> eventCaptor =
                     ArgumentCaptor.forClass(NotificationCreatedEvent.class);
@@ -403,8 +401,8 @@ public class ShowNotificationMessageHandlerTest {
                     .when(AndroidPlatformModule::getApplicationContext)
                     .thenReturn(RuntimeEnvironment.application);
             stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ false);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
 
             showNotificationMessageHandler = new ShowNotificationMessageHandler();
             pushwooshNotificationFactoryMock = mock(PushwooshNotificationFactory.class);
@@ -417,7 +415,7 @@ public class ShowNotificationMessageHandlerTest {
 
             showNotificationMessageHandler.handleNotification(pushMessage);
 
-            verify(history, never()).add(any(Serializable.class));
+            verify(history, never()).add(anyString());
             eventBusMockedStatic.verifyNoInteractions();
         }
     }
@@ -436,8 +434,8 @@ public class ShowNotificationMessageHandlerTest {
                     .when(AndroidPlatformModule::getApplicationContext)
                     .thenReturn(RuntimeEnvironment.application);
             stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ true);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
 
             showNotificationMessageHandler = new ShowNotificationMessageHandler();
             pushwooshNotificationFactoryMock = mock(PushwooshNotificationFactory.class);
@@ -453,7 +451,7 @@ public class ShowNotificationMessageHandlerTest {
             summaryStatic.verify(
                     () -> SummaryNotificationUtils.getSummaryNotification(anyInt(), any(), any()), never());
             summaryStatic.verify(() -> SummaryNotificationUtils.fireSummaryNotification(any()), never());
-            verify(history, never()).add(any(Serializable.class));
+            verify(history, never()).add(anyString());
             eventBusMockedStatic.verifyNoInteractions();
         }
     }
@@ -488,8 +486,8 @@ public class ShowNotificationMessageHandlerTest {
                     .thenReturn(managerProviderMock);
 
             stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ true);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
             LocalNotificationStorage localNotificationStorageMock = mock(LocalNotificationStorage.class);
             repositoryModuleMockedStatic
                     .when(RepositoryModule::getLocalNotificationStorage)
@@ -568,8 +566,8 @@ public class ShowNotificationMessageHandlerTest {
                     .thenReturn(managerProviderMock);
 
             stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ true);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
             LocalNotificationStorage localNotificationStorageMock = mock(LocalNotificationStorage.class);
             repositoryModuleMockedStatic
                     .when(RepositoryModule::getLocalNotificationStorage)
@@ -604,7 +602,7 @@ public class ShowNotificationMessageHandlerTest {
             summaryStatic.verify(
                     () -> SummaryNotificationUtils.getSummaryNotification(anyInt(), any(), any()), never());
             summaryStatic.verify(() -> SummaryNotificationUtils.fireSummaryNotification(any()), never());
-            verify(history).add(any(Serializable.class));
+            verify(history).add(anyString());
         }
     }
 
@@ -627,8 +625,8 @@ public class ShowNotificationMessageHandlerTest {
                         return callCount[0] <= 2 ? RuntimeEnvironment.application : null;
                     });
             stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ false);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
 
             showNotificationMessageHandler = new ShowNotificationMessageHandler();
             pushwooshNotificationFactoryMock = mock(PushwooshNotificationFactory.class);
@@ -643,7 +641,7 @@ public class ShowNotificationMessageHandlerTest {
 
             showNotificationMessageHandler.handleNotification(pushMessage);
 
-            verify(history, never()).add(any(Serializable.class));
+            verify(history, never()).add(anyString());
             eventBusMockedStatic.verifyNoInteractions();
         }
     }
@@ -672,8 +670,8 @@ public class ShowNotificationMessageHandlerTest {
                     .thenReturn(managerProviderMock);
 
             stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ false);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
             LocalNotificationStorage localNotificationStorageMock = mock(LocalNotificationStorage.class);
             repositoryModuleMockedStatic
                     .when(RepositoryModule::getLocalNotificationStorage)
@@ -700,7 +698,7 @@ public class ShowNotificationMessageHandlerTest {
             showNotificationMessageHandler.handleNotification(pushMessage);
 
             verify(localNotificationStorageMock).removeLocalNotificationShown(anyInt(), anyString());
-            verify(history, never()).add(any(Serializable.class));
+            verify(history, never()).add(anyString());
             eventBusMockedStatic.verifyNoInteractions();
             notificationUtilsMockedStatic.verify(NotificationUtils::turnScreenOn, never());
         }
@@ -732,8 +730,8 @@ public class ShowNotificationMessageHandlerTest {
                     .thenReturn(managerProviderMock);
 
             stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ false);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
             LocalNotificationStorage localNotificationStorageMock = mock(LocalNotificationStorage.class);
             repositoryModuleMockedStatic
                     .when(RepositoryModule::getLocalNotificationStorage)
@@ -793,8 +791,8 @@ public class ShowNotificationMessageHandlerTest {
                     .thenReturn(managerProviderMock);
 
             stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ false);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
             LocalNotificationStorage localNotificationStorageMock = mock(LocalNotificationStorage.class);
             repositoryModuleMockedStatic
                     .when(RepositoryModule::getLocalNotificationStorage)
@@ -859,8 +857,8 @@ public class ShowNotificationMessageHandlerTest {
             PreferenceIntValue messageIdMock = mock(PreferenceIntValue.class);
             when(messageIdMock.get()).thenReturn(7);
             when(notificationPrefsMock.messageId()).thenReturn(messageIdMock);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
             LocalNotificationStorage localNotificationStorageMock = mock(LocalNotificationStorage.class);
             repositoryModuleMockedStatic
                     .when(RepositoryModule::getLocalNotificationStorage)
@@ -929,8 +927,8 @@ public class ShowNotificationMessageHandlerTest {
             PreferenceIntValue messageIdMock = mock(PreferenceIntValue.class);
             when(messageIdMock.get()).thenReturn(7);
             when(notificationPrefsMock.messageId()).thenReturn(messageIdMock);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
             LocalNotificationStorage localNotificationStorageMock = mock(LocalNotificationStorage.class);
             repositoryModuleMockedStatic
                     .when(RepositoryModule::getLocalNotificationStorage)
@@ -995,8 +993,8 @@ public class ShowNotificationMessageHandlerTest {
                         .thenReturn(managerProviderMock);
 
                 stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ false);
-                PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-                when(notificationPrefsMock.pushHistory()).thenReturn(history);
+                PushHistoryStorage history = mock(PushHistoryStorage.class);
+                repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
                 LocalNotificationStorage localNotificationStorageMock = mock(LocalNotificationStorage.class);
                 repositoryModuleMockedStatic
                         .when(RepositoryModule::getLocalNotificationStorage)
@@ -1066,8 +1064,8 @@ public class ShowNotificationMessageHandlerTest {
                         .thenReturn(managerProviderMock);
 
                 stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ false);
-                PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-                when(notificationPrefsMock.pushHistory()).thenReturn(history);
+                PushHistoryStorage history = mock(PushHistoryStorage.class);
+                repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
                 LocalNotificationStorage localNotificationStorageMock = mock(LocalNotificationStorage.class);
                 repositoryModuleMockedStatic
                         .when(RepositoryModule::getLocalNotificationStorage)
@@ -1134,8 +1132,8 @@ public class ShowNotificationMessageHandlerTest {
                     .thenReturn(managerProviderMock);
 
             stubNotificationPrefsBasics(repositoryModuleMockedStatic, /*multiMode*/ false);
-            PreferenceArrayListValue history = mock(PreferenceArrayListValue.class);
-            when(notificationPrefsMock.pushHistory()).thenReturn(history);
+            PushHistoryStorage history = mock(PushHistoryStorage.class);
+            repositoryModuleMockedStatic.when(RepositoryModule::getPushHistoryStorage).thenReturn(history);
             LocalNotificationStorage localNotificationStorageMock = mock(LocalNotificationStorage.class);
             repositoryModuleMockedStatic
                     .when(RepositoryModule::getLocalNotificationStorage)
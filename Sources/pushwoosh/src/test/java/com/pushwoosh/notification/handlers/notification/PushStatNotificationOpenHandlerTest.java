@@ -4,6 +4,7 @@ import android.os.Bundle;
 
 import com.pushwoosh.PushStatisticsScheduler;
 import com.pushwoosh.PushwooshPlatform;
+import com.pushwoosh.notification.PushMessage;
 import com.pushwoosh.repository.PushwooshRepository;
 import com.pushwoosh.testutil.PlatformTestManager;
 import com.pushwoosh.testutil.WhiteboxHelper;
@@ -23,6 +24,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -171,4 +173,27 @@ public class PushStatNotificationOpenHandlerTest {
         // Verify PushStatisticsScheduler.scheduleOpenEvent was still called - validation happens in Worker
         schedulerMock.verify(() -> PushStatisticsScheduler.scheduleOpenEvent(bundle));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test verifies that the receive path can hand over its decoded message: the statistics are sent
+     * from the fields the message has already read, without decoding the bundle again.
+     */
+    @Test
+    public void postHandlePushMessage_readsEachFieldOnce() {
+        // Given
+        when(bundle.getBoolean("local", false)).thenReturn(false);
+        when(bundle.getString("p")).thenReturn("test_push_hash");
+        PushMessage message = new PushMessage(bundle);
+        message.isSilent();
+        message.getPushHash();
+
+        // When
+        pushStatNotificationOpenHandler.postHandlePushMessage(message);
+
+        // Then
+        verify(pushwooshRepositoryMock).setCurrentSessionHash(eq("test_push_hash"));
+        schedulerMock.verify(() -> PushStatisticsScheduler.scheduleOpenEvent(bundle));
+        verify(bundle, times(1)).getString("p");
+        verify(bundle, times(1)).getString("silent");
+    }
+}
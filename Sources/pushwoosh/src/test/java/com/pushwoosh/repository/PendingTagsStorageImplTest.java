@@ -0,0 +1,96 @@
+package com.pushwoosh.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.pushwoosh.repository.util.AcknowledgedTag;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "AndroidManifest.xml")
+public class PendingTagsStorageImplTest {
+    private PendingTagsStorageImpl storage;
+
+    @Before
+    public void setUp() {
+        storage = new PendingTagsStorageImpl(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    private static Map<String, String> tags(String... namesAndValues) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            tags.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return tags;
+    }
+
+    @Test
+    public void putPending_lastWriteWins() {
+        storage.putPending(tags("a", "[1]", "b", "[2]"));
+        storage.putPending(tags("a", "[3]"));
+
+        assertEquals(tags("b", "[2]", "a", "[3]"), storage.getPending());
+    }
+
+    @Test
+    public void removePending_keepsTagsRewrittenSinceSent() {
+        storage.putPending(tags("a", "[1]", "b", "[2]"));
+        storage.putPending(tags("b", "[5]"));
+
+        storage.removePending(tags("a", "[1]", "b", "[2]"));
+
+        assertEquals(tags("b", "[5]"), storage.getPending());
+    }
+
+    @Test
+    public void getAcknowledged_returnsOnlyValuesAcknowledgedSince() {
+        storage.acknowledge(tags("a", "[1]"), 1000);
+        storage.acknowledge(tags("b", "[\"x\"]"), 5000);
+
+        Map<String, AcknowledgedTag> acknowledged = storage.getAcknowledged(2000);
+
+        assertEquals(Collections.singleton("b"), acknowledged.keySet());
+        assertEquals("[\"x\"]", acknowledged.get("b").getValue());
+        assertEquals(5000, acknowledged.get("b").getTimestamp());
+    }
+
+    @Test
+    public void clearAcknowledged_keepsPendingTags() {
+        storage.putPending(tags("a", "[1]"));
+        storage.acknowledge(tags("a", "[0]"), 1000);
+
+        storage.clearAcknowledged();
+
+        assertTrue(storage.getAcknowledged(0).isEmpty());
+        assertEquals(tags("a", "[1]"), storage.getPending());
+    }
+
+    @Test
+    public void clear_removesPendingAndAcknowledgedTags() {
+        storage.putPending(tags("a", "[1]"));
+        storage.acknowledge(tags("b", "[0]"), 1000);
+
+        storage.clear();
+
+        assertTrue(storage.getPending().isEmpty());
+        assertTrue(storage.getAcknowledged(0).isEmpty());
+    }
+}
@@ -95,4 +95,16 @@ public class PushBundleStorageImplTest {
         assertEquals(1, rows.size());
         assertEquals("kept", rows.get(0).getString("header"));
     }
+
+    // Cached statements belong to the closed connection and must be recompiled after reopening.
+    @Test
+    public void close_thenStorageReopensWithFreshStatements() throws Exception {
+        long firstId = storage.putPushBundle(minimalBundle(null, "first"));
+        storage.close();
+
+        long secondId = storage.putPushBundle(minimalBundle(null, "second"));
+
+        assertEquals("first", storage.getPushBundle(firstId).getString("header"));
+        assertEquals("second", storage.getPushBundle(secondId).getString("header"));
+    }
 }
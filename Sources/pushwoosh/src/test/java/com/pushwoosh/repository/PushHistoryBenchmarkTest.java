@@ -0,0 +1,107 @@
+package com.pushwoosh.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.pushwoosh.internal.preference.PreferenceArrayListValue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Cost of recording a push in a full history of 100 pushes with 4 KB payloads: the former
+ * Java-serialized list in preferences, which is deserialized when the preferences are created and
+ * rewritten whole on every push, and {@link PushHistoryStorageImpl}, which appends one row.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PushHistoryBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(PushHistoryBenchmarkTest.class.getName());
+    private static final int CAPACITY = 100;
+    private static final int PAYLOAD_BYTES = 4 * 1024;
+    private static final int PUSHES = 200;
+    private static final String LEGACY_KEY = "benchmarkPushHistory";
+
+    private static String[] payloads(int count) {
+        Random random = new Random(15);
+        String[] payloads = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder payload = new StringBuilder("{\"pw_msg\":\"" + i + "\",\"title\":\"");
+            while (payload.length() < PAYLOAD_BYTES - 2) {
+                payload.append((char) ('a' + random.nextInt(26)));
+            }
+            payloads[i] = payload.append("\"}").toString();
+        }
+        return payloads;
+    }
+
+    private static void report(String label, long elapsedNanos, int operations) {
+        LOG.info(String.format("%-40s %9.3f ms per operation", label, elapsedNanos / 1e6 / operations));
+    }
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Test
+    public void fullHistoryOfFourKilobytePushes() {
+        String[] payloads = payloads(CAPACITY + PUSHES);
+        SharedPreferences preferences = RuntimeEnvironment.getApplication()
+                .getSharedPreferences("benchmarkPushHistory", Context.MODE_PRIVATE);
+
+        PreferenceArrayListValue<String> legacy = new PreferenceArrayListValue<>(preferences, LEGACY_KEY, CAPACITY, String.class);
+        PushHistoryStorageImpl storage = new PushHistoryStorageImpl(RuntimeEnvironment.getApplication(), CAPACITY, null);
+        for (int i = 0; i < CAPACITY; i++) {
+            legacy.add(payloads[i]);
+            storage.add(payloads[i]);
+        }
+
+        long start = System.nanoTime();
+        for (int i = CAPACITY; i < payloads.length; i++) {
+            legacy.add(payloads[i]);
+        }
+        long legacyAppend = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = CAPACITY; i < payloads.length; i++) {
+            storage.add(payloads[i]);
+        }
+        long ringAppend = System.nanoTime() - start;
+
+        // what every process start paid for the history, whether it was read or not
+        start = System.nanoTime();
+        List<String> legacyHistory = null;
+        for (int i = 0; i < 10; i++) {
+            legacyHistory = new PreferenceArrayListValue<>(preferences, LEGACY_KEY, CAPACITY, String.class).get();
+        }
+        long legacyLoad = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<String> history = null;
+        for (int i = 0; i < 10; i++) {
+            history = storage.getAll();
+        }
+        long ringRead = System.nanoTime() - start;
+        storage.close();
+
+        report("append, serialized list in preferences", legacyAppend, PUSHES);
+        report("append, PushHistoryStorage", ringAppend, PUSHES);
+        report("load, serialized list in preferences", legacyLoad, 10);
+        report("read all, PushHistoryStorage", ringRead, 10);
+
+        assertEquals(legacyHistory, history);
+        assertEquals(CAPACITY, history.size());
+    }
+}
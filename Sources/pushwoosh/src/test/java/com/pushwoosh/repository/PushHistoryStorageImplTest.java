@@ -0,0 +1,99 @@
+package com.pushwoosh.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.pushwoosh.internal.utils.ObjectSerializer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "AndroidManifest.xml")
+public class PushHistoryStorageImplTest {
+    private SharedPreferences preferences;
+    private PushHistoryStorageImpl storage;
+
+    @Before
+    public void setUp() {
+        preferences = RuntimeEnvironment.application.getSharedPreferences(NotificationPrefs.PREFERENCE, Context.MODE_PRIVATE);
+    }
+
+    @After
+    public void tearDown() {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    @Test
+    public void add_dropsOldestWhenFull() {
+        storage = new PushHistoryStorageImpl(RuntimeEnvironment.application, 3, preferences);
+        for (int i = 1; i <= 5; i++) {
+            storage.add("{\"pw_msg\":\"" + i + "\"}");
+        }
+
+        assertEquals(Arrays.asList("{\"pw_msg\":\"3\"}", "{\"pw_msg\":\"4\"}", "{\"pw_msg\":\"5\"}"), storage.getAll());
+    }
+
+    @Test
+    public void clear_removesEverything() {
+        storage = new PushHistoryStorageImpl(RuntimeEnvironment.application, 3, preferences);
+        storage.add("a");
+        storage.clear();
+        storage.add("b");
+
+        assertEquals(Arrays.asList("b"), storage.getAll());
+    }
+
+    @Test
+    public void history_survivesReopen() {
+        storage = new PushHistoryStorageImpl(RuntimeEnvironment.application, 3, preferences);
+        storage.add("a");
+        storage.add("b");
+        storage.close();
+
+        storage = new PushHistoryStorageImpl(RuntimeEnvironment.application, 3, preferences);
+        storage.add("c");
+        storage.add("d");
+
+        assertEquals(Arrays.asList("b", "c", "d"), storage.getAll());
+    }
+
+    @Test
+    public void legacyHistory_isMigratedOnce() throws Exception {
+        ArrayList<String> legacy = new ArrayList<>(Arrays.asList("a", "b", "c", "d"));
+        preferences.edit().putString(NotificationPrefs.PROPERTY_PUSH_HISTORY, ObjectSerializer.serialize(legacy)).commit();
+        storage = new PushHistoryStorageImpl(RuntimeEnvironment.application, 3, preferences);
+
+        assertEquals(Arrays.asList("b", "c", "d"), storage.getAll());
+        assertFalse(preferences.contains(NotificationPrefs.PROPERTY_PUSH_HISTORY));
+
+        storage.add("e");
+        storage.close();
+        storage = new PushHistoryStorageImpl(RuntimeEnvironment.application, 3, preferences);
+
+        assertEquals(Arrays.asList("c", "d", "e"), storage.getAll());
+    }
+
+    @Test
+    public void corruptedLegacyHistory_isDropped() {
+        preferences.edit().putString(NotificationPrefs.PROPERTY_PUSH_HISTORY, "not serialized").commit();
+        storage = new PushHistoryStorageImpl(RuntimeEnvironment.application, 3, preferences);
+
+        assertTrue(storage.getAll().isEmpty());
+        assertFalse(preferences.contains(NotificationPrefs.PROPERTY_PUSH_HISTORY));
+    }
+}
@@ -0,0 +1,100 @@
+package com.pushwoosh.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.pushwoosh.repository.util.PushStatisticsEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "AndroidManifest.xml")
+public class PushStatisticsStorageImplTest {
+    private static final String DELIVERY = "delivery";
+    private static final String OPEN = "open";
+
+    private PushStatisticsStorageImpl storage;
+
+    @Before
+    public void setUp() {
+        storage = new PushStatisticsStorageImpl(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    @Test
+    public void peek_returnsEventsOfTypeInInsertionOrder() {
+        assertTrue(storage.add(DELIVERY, "h1", "md1"));
+        assertTrue(storage.add(OPEN, "h2", null));
+        assertTrue(storage.add(DELIVERY, "h3", null));
+
+        List<PushStatisticsEvent> events = storage.peek(DELIVERY, 10);
+
+        assertEquals(2, events.size());
+        assertEquals("h1", events.get(0).getHash());
+        assertEquals("md1", events.get(0).getMetadata());
+        assertEquals("h3", events.get(1).getHash());
+        assertNull(events.get(1).getMetadata());
+        assertEquals(DELIVERY, events.get(1).getEventType());
+    }
+
+    @Test
+    public void peek_isBoundedByLimit() {
+        for (int i = 0; i < 5; i++) {
+            storage.add(DELIVERY, "h" + i, null);
+        }
+
+        assertEquals(3, storage.peek(DELIVERY, 3).size());
+        assertEquals(5, storage.count(DELIVERY));
+    }
+
+    // Same dedup as the former "eventType_hash" unique work name with ExistingWorkPolicy.KEEP.
+    @Test
+    public void add_keepsSingleRowForSameTypeAndHash() {
+        storage.add(OPEN, "h1", "first");
+        assertTrue(storage.add(OPEN, "h1", "second"));
+        storage.add(DELIVERY, "h1", null);
+
+        List<PushStatisticsEvent> events = storage.peek(OPEN, 10);
+        assertEquals(1, events.size());
+        assertEquals("first", events.get(0).getMetadata());
+        assertEquals(1, storage.count(DELIVERY));
+    }
+
+    @Test
+    public void incrementAttempts_returnsUpdatedCounter() {
+        storage.add(DELIVERY, "h1", null);
+        long rowId = storage.peek(DELIVERY, 1).get(0).getRowId();
+
+        assertEquals(1, storage.incrementAttempts(rowId));
+        assertEquals(2, storage.incrementAttempts(rowId));
+        assertEquals(2, storage.peek(DELIVERY, 1).get(0).getAttempts());
+    }
+
+    @Test
+    public void remove_deletesOnlyGivenEvent() {
+        storage.add(DELIVERY, "h1", null);
+        storage.add(DELIVERY, "h2", null);
+        long firstRowId = storage.peek(DELIVERY, 1).get(0).getRowId();
+
+        storage.remove(firstRowId);
+
+        List<PushStatisticsEvent> events = storage.peek(DELIVERY, 10);
+        assertEquals(1, events.size());
+        assertEquals("h2", events.get(0).getHash());
+    }
+}
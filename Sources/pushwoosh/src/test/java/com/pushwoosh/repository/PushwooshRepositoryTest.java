@@ -114,6 +114,25 @@ public class PushwooshRepositoryTest {
         verify(registrationPrefs.removeAllDeviceData()).set(true);
     }
 
+    @Test
+    public void removeAllDeviceData_clearsPendingEvents() {
+        InAppRepository inAppRepository = mock(InAppRepository.class);
+        try (MockedStatic<InAppModule> mocked = mockStatic(InAppModule.class)) {
+            mocked.when(InAppModule::getInAppRepository).thenReturn(inAppRepository);
+
+            pushwooshRepository.removeAllDeviceData();
+
+            verify(inAppRepository).clearPendingEvents();
+        }
+    }
+
+    @Test
+    public void removeAllDeviceData_clearsPendingTags() {
+        pushwooshRepository.removeAllDeviceData();
+
+        verify(sendTagsProcessor).clear();
+    }
+
     // ---------- sendTags ----------
 
     @Test
@@ -2,11 +2,18 @@ package com.pushwoosh.repository;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import android.content.Context;
+
+import com.pushwoosh.internal.utils.AppVersionProvider;
 import com.pushwoosh.internal.utils.Config;
 import com.pushwoosh.internal.utils.MockConfig;
 import com.pushwoosh.testutil.PlatformTestManager;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.After;
@@ -14,24 +21,38 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.LooperMode;
 
+import java.util.Arrays;
+
 @RunWith(RobolectricTestRunner.class)
 @LooperMode(LooperMode.Mode.LEGACY)
 @org.robolectric.annotation.Config(manifest = "AndroidManifest.xml")
 public class RegisterDeviceRequestTest {
 
     private PlatformTestManager platformTestManager;
+    private SoundInventory soundInventory;
 
     @Before
     public void setUp() {
         Config configMock = MockConfig.createMock();
         platformTestManager = new PlatformTestManager(configMock);
         platformTestManager.onApplicationCreated();
+
+        AppVersionProvider appVersionProvider = mock(AppVersionProvider.class);
+        when(appVersionProvider.getCurrentVersion()).thenReturn(1);
+        soundInventory = new SoundInventory(
+                RuntimeEnvironment.getApplication().getSharedPreferences(SoundInventory.PREFS_NAME, Context.MODE_PRIVATE),
+                appVersionProvider,
+                () -> Arrays.asList("chime", "bell.mp3"));
+        soundInventory.clearAcknowledged();
+        RepositoryModule.setSoundInventory(soundInventory);
     }
 
     @After
     public void tearDown() throws Exception {
+        RepositoryModule.setSoundInventory(null);
         platformTestManager.tearDown();
     }
 
@@ -111,4 +132,71 @@ public class RegisterDeviceRequestTest {
             assertFalse("tags must be omitted for tagsJson=" + label, params.has("tags"));
         }
     }
+
+    @Test
+    public void buildParams_soundsNotAcknowledged_sendsInventory() throws Exception {
+        RegisterDeviceRequest request = new RegisterDeviceRequest("dev-1", null, 3);
+
+        JSONObject params = buildParams(request);
+
+        JSONArray sounds = params.getJSONArray("sounds");
+        assertEquals(2, sounds.length());
+        assertEquals("chime", sounds.getString(0));
+        assertEquals("bell.mp3", sounds.getString(1));
+    }
+
+    @Test
+    public void buildParams_afterSuccessfulRegistration_omitsUnchangedSounds() throws Exception {
+        RegisterDeviceRequest first = new RegisterDeviceRequest("dev-1", null, 3);
+        buildParams(first);
+        first.parseResponse(new JSONObject());
+
+        JSONObject params = buildParams(new RegisterDeviceRequest("dev-1", null, 3));
+
+        assertFalse(params.has("sounds"));
+    }
+
+    @Test
+    public void buildParams_registrationNotAcknowledged_retrySendsSoundsAgain() throws Exception {
+        RegisterDeviceRequest request = new RegisterDeviceRequest("dev-1", null, 3);
+        buildParams(request);
+
+        JSONObject retryParams = buildParams(request);
+
+        assertTrue(retryParams.has("sounds"));
+    }
+
+    @Test
+    public void buildParams_anotherDevice_sendsSounds() throws Exception {
+        RegisterDeviceRequest first = new RegisterDeviceRequest("+15551234567", null, DeviceRegistrar.PLATFORM_SMS);
+        buildParams(first);
+        first.parseResponse(new JSONObject());
+
+        JSONObject params = buildParams(
+                new RegisterDeviceRequest("+15559876543", null, DeviceRegistrar.PLATFORM_SMS));
+
+        assertTrue(params.has("sounds"));
+    }
+
+    private static RegisterDeviceRequest requestWithHwid(String hwid) {
+        return new RegisterDeviceRequest("dev-1", null, 3) {
+            @Override
+            protected String getHwid() {
+                return hwid;
+            }
+        };
+    }
+
+    // Verifies the inventory acknowledged for one HWID is sent again once the HWID of the device changes.
+    @Test
+    public void buildParams_hwidChanged_sendsSounds() throws Exception {
+        RegisterDeviceRequest first = requestWithHwid("hwid-1");
+        buildParams(first);
+        first.parseResponse(new JSONObject());
+        assertFalse(buildParams(requestWithHwid("hwid-1")).has("sounds"));
+
+        JSONObject params = buildParams(requestWithHwid("hwid-2"));
+
+        assertTrue(params.has("sounds"));
+    }
 }
@@ -0,0 +1,128 @@
+package com.pushwoosh.repository;
+
+import static org.junit.Assume.assumeTrue;
+
+import com.pushwoosh.internal.network.PushRequest;
+import com.pushwoosh.internal.network.PushRequestHelper;
+import com.pushwoosh.internal.utils.MockConfig;
+import com.pushwoosh.tags.TagsBundle;
+import com.pushwoosh.testutil.PlatformTestManager;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+import org.skyscreamer.jsonassert.JSONAssert;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Constructor;
+import java.util.logging.Logger;
+
+/**
+ * Bytes allocated and time spent per request to build the body of {@code /setTags}, {@code /pushStat}
+ * and {@code /postEvent}: the former pipeline (identity members put into a fresh {@link JSONObject},
+ * wrapped into another one and serialized with {@code toString()}) against
+ * {@code PushRequest.writePayload} with the cached identity fragment and a reused buffer.
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.LEGACY)
+@org.robolectric.annotation.Config(manifest = "AndroidManifest.xml")
+public class RequestPayloadBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(RequestPayloadBenchmarkTest.class.getName());
+    private static final int ITERATIONS = 20_000;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private PlatformTestManager platformTestManager;
+    private final StringBuilder buffer = new StringBuilder(1024);
+
+    private interface RequestFactory {
+        PushRequest<?> create() throws Exception;
+    }
+
+    private interface Body {
+        String build(PushRequest<?> request) throws Exception;
+    }
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() {
+        platformTestManager = new PlatformTestManager(MockConfig.createMock());
+        platformTestManager.onApplicationCreated();
+        RepositoryModule.getRegistrationPreferences().userId().set("user@example.com");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        platformTestManager.tearDown();
+    }
+
+    private static String legacyBody(PushRequest<?> request) throws Exception {
+        return new JSONObject().put("request", PushRequestHelper.getParams(request)).toString();
+    }
+
+    private String streamedBody(PushRequest<?> request) throws Exception {
+        buffer.setLength(0);
+        PushRequestHelper.writePayload(request, buffer);
+        return buffer.toString();
+    }
+
+    private static PushRequest<?> postEventRequest() throws Exception {
+        Class<?> type = Class.forName("com.pushwoosh.inapp.network.PostEventRequest");
+        Constructor<?> constructor = type.getDeclaredConstructor(String.class, String.class, TagsBundle.class);
+        constructor.setAccessible(true);
+        TagsBundle attributes = new TagsBundle.Builder()
+                .putString("screen", "checkout")
+                .putInt("items", 3)
+                .build();
+        return (PushRequest<?>) constructor.newInstance("PurchaseCompleted", "ab12cd34ef", attributes);
+    }
+
+    private static PushRequest<?> setTagsRequest() throws Exception {
+        JSONObject tags = new JSONObject();
+        for (int i = 0; i < 10; i++) {
+            tags.put("Tag" + i, "value " + i);
+        }
+        return new SetTagsRequest(tags);
+    }
+
+    private long[] measure(RequestFactory factory, Body body) throws Exception {
+        PushRequest<?> request = factory.create();
+        for (int i = 0; i < ITERATIONS; i++) {
+            body.build(request);
+        }
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            body.build(request);
+        }
+        long elapsed = System.nanoTime() - start;
+        return new long[]{(threads.getThreadAllocatedBytes(threadId) - bytesBefore) / ITERATIONS, elapsed / ITERATIONS};
+    }
+
+    private void compare(String method, RequestFactory factory) throws Exception {
+        long[] legacy = measure(factory, RequestPayloadBenchmarkTest::legacyBody);
+        long[] streamed = measure(factory, this::streamedBody);
+        LOG.info(String.format("%-10s JSONObject: %6d B, %6d ns | writePayload: %6d B, %6d ns",
+                method, legacy[0], legacy[1], streamed[0], streamed[1]));
+        PushRequest<?> request = factory.create();
+        JSONAssert.assertEquals(method, legacyBody(request), streamedBody(request), true);
+    }
+
+    @Test
+    public void bytesAllocatedPerRequest() throws Exception {
+        compare("setTags", RequestPayloadBenchmarkTest::setTagsRequest);
+        compare("pushStat", () -> new PushStatRequest("ab12cd34ef", "{\"_c\":\"1234\",\"_o\":\"5678\"}"));
+        compare("postEvent", RequestPayloadBenchmarkTest::postEventRequest);
+    }
+}
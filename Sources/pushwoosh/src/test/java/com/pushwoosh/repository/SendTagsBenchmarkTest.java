@@ -0,0 +1,195 @@
+package com.pushwoosh.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.pushwoosh.function.Callback;
+import com.pushwoosh.function.Result;
+import com.pushwoosh.internal.network.NetworkException;
+import com.pushwoosh.internal.network.NetworkModule;
+import com.pushwoosh.internal.network.RequestManager;
+import com.pushwoosh.internal.utils.Accumulator;
+import com.pushwoosh.internal.utils.JsonUtils;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.util.Scheduler;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Number of {@code /setTags} requests made for apps that set tags in tight loops, by the former fixed
+ * 1 second {@link Accumulator} window and by {@link SendTagsProcessor}, on simulated time. The last
+ * scenario loses connectivity while tags are being set and reports what the server ends up with.
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.LEGACY)
+@Config(manifest = "AndroidManifest.xml")
+public class SendTagsBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(SendTagsBenchmarkTest.class.getName());
+    private interface Writer {
+        JSONObject tagsAt(long time) throws Exception;
+    }
+
+    /**
+     * Counts requests and keeps the tags accepted by the server.
+     */
+    private static final class Server {
+        final RequestManager requestManager = mock(RequestManager.class);
+        final JSONObject tags = new JSONObject();
+        boolean online = true;
+        int requests;
+
+        Server() throws Exception {
+            final Field tagsField = SetTagsRequest.class.getDeclaredField("tags");
+            tagsField.setAccessible(true);
+            doAnswer(invocation -> {
+                requests++;
+                Callback<Void, NetworkException> callback = invocation.getArgument(1);
+                if (online) {
+                    JsonUtils.mergeJson((JSONObject) tagsField.get(invocation.getArgument(0)), tags);
+                    callback.process(Result.fromData(null));
+                } else {
+                    callback.process(Result.fromException(new NetworkException("offline")));
+                }
+                return null;
+            }).when(requestManager).sendRequest(any(SetTagsRequest.class), any());
+        }
+    }
+
+    private Scheduler scheduler;
+    private PendingTagsStorageImpl storage;
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Before
+    public void setUp() {
+        scheduler = Robolectric.getForegroundThreadScheduler();
+        storage = new PendingTagsStorageImpl(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() {
+        storage.close();
+    }
+
+    private static Accumulator<JSONObject> accumulator(Server server) {
+        return new Accumulator<>(data -> {
+            JSONObject tags = new JSONObject();
+            for (JSONObject invocation : data) {
+                JsonUtils.mergeJson(invocation, tags);
+            }
+            server.requestManager.sendRequest(new SetTagsRequest(tags), result -> { });
+        }, 1000);
+    }
+
+    private void drive(long durationMs, long intervalMs, Writer writer, Accumulator<JSONObject> accumulator,
+                       SendTagsProcessor processor) throws Exception {
+        for (long time = 0; time < durationMs; time += intervalMs) {
+            JSONObject tags = writer.tagsAt(time);
+            accumulator.accumulate(new JSONObject(tags.toString()));
+            processor.sendTags(tags, null);
+            scheduler.advanceBy(intervalMs, TimeUnit.MILLISECONDS);
+        }
+        scheduler.advanceBy(SendTagsProcessor.MAX_DELAY_MS * 2, TimeUnit.MILLISECONDS);
+    }
+
+    private static void report(String scenario, int calls, Server baseline, Server processor) {
+        LOG.info(String.format("%-34s %6d sendTags calls, %4d requests with 1 s window, %4d with "
+                        + "write-behind store (%.0f%% saved)", scenario, calls, baseline.requests, processor.requests,
+                100.0 * (baseline.requests - processor.requests) / baseline.requests));
+    }
+
+    private static int count(long durationMs, long intervalMs) {
+        return (int) ((durationMs + intervalMs - 1) / intervalMs);
+    }
+
+    @Test
+    public void requestsSavedInTightLoops() throws Exception {
+        try (MockedStatic<NetworkModule> netMock = Mockito.mockStatic(NetworkModule.class)) {
+            // progress counter updated every frame
+            Server baseline = new Server();
+            Server processor = new Server();
+            netMock.when(NetworkModule::getRequestManager).thenReturn(processor.requestManager);
+            drive(10_000, 16, time -> new JSONObject().put("Progress", time / 16).put("Screen", "game"),
+                    accumulator(baseline), new SendTagsProcessor(storage, Runnable::run));
+            report("per-frame progress, 10 s", count(10_000, 16), baseline, processor);
+            assertTrue(processor.requests <= baseline.requests);
+            assertEquals(624, processor.tags.getInt("Progress"));
+
+            // state re-sent every 100 ms, level changes every 3 s
+            baseline = new Server();
+            processor = new Server();
+            netMock.when(NetworkModule::getRequestManager).thenReturn(processor.requestManager);
+            drive(60_000, 100, time -> new JSONObject().put("Level", time / 3000).put("Premium", false)
+                            .put("Language", "en"),
+                    accumulator(baseline), new SendTagsProcessor(storage, Runnable::run));
+            report("unchanged state every 100 ms, 60 s", count(60_000, 100), baseline, processor);
+            assertTrue(processor.requests * 2 < baseline.requests);
+            assertEquals(19, processor.tags.getInt("Level"));
+
+            // every session start sets the same profile tags, the process is restarted in between
+            baseline = new Server();
+            processor = new Server();
+            netMock.when(NetworkModule::getRequestManager).thenReturn(processor.requestManager);
+            int sessions = 30;
+            for (int i = 0; i < sessions; i++) {
+                SendTagsProcessor restarted = new SendTagsProcessor(storage, Runnable::run);
+                restarted.flushPending();
+                drive(1, 1, time -> new JSONObject().put("Name", "Jane").put("Age", 31).put("Premium", true),
+                        accumulator(baseline), restarted);
+                scheduler.advanceBy(10, TimeUnit.MINUTES);
+            }
+            report("same profile on 30 session starts", sessions, baseline, processor);
+            assertEquals(1, processor.requests);
+        }
+    }
+
+    @Test
+    public void tagsSetWhileOfflineReachServer() throws Exception {
+        try (MockedStatic<NetworkModule> netMock = Mockito.mockStatic(NetworkModule.class)) {
+            Server baseline = new Server();
+            Server processor = new Server();
+            netMock.when(NetworkModule::getRequestManager).thenReturn(processor.requestManager);
+            Accumulator<JSONObject> accumulator = accumulator(baseline);
+            SendTagsProcessor sendTagsProcessor = new SendTagsProcessor(storage, Runnable::run);
+
+            drive(5_000, 250, time -> new JSONObject().put("Level", time / 1000), accumulator, sendTagsProcessor);
+            baseline.online = false;
+            processor.online = false;
+            drive(5_000, 250, time -> new JSONObject().put("Level", 5 + time / 1000), accumulator, sendTagsProcessor);
+            scheduler.advanceBy(30, TimeUnit.SECONDS);
+            baseline.online = true;
+            processor.online = true;
+            scheduler.advanceBy(SendTagsProcessor.RETRY_MAX_DELAY_MS, TimeUnit.MILLISECONDS);
+
+            LOG.info(String.format("offline for the last 5 s: server has Level %d with 1 s window "
+                            + "(%d requests), Level %d with write-behind store (%d requests)",
+                    baseline.tags.getInt("Level"), baseline.requests, processor.tags.getInt("Level"),
+                    processor.requests));
+            assertEquals(9, processor.tags.getInt("Level"));
+            assertEquals(0, sendTagsProcessor.getPendingCount());
+            assertTrue(storage.getPending().isEmpty());
+        }
+    }
+}
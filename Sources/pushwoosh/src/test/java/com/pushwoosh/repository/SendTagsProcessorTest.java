@@ -32,17 +32,30 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 import com.pushwoosh.exception.PushwooshException;
 import com.pushwoosh.function.Callback;
 import com.pushwoosh.function.Result;
+import com.pushwoosh.internal.event.Event;
+import com.pushwoosh.internal.event.EventBus;
+import com.pushwoosh.internal.event.InitHwidEvent;
+import com.pushwoosh.internal.event.ServerCommunicationStartedEvent;
+import com.pushwoosh.internal.event.UserIdUpdatedEvent;
+import com.pushwoosh.internal.network.CommunicationStoppedException;
+import com.pushwoosh.internal.network.ConnectionException;
 import com.pushwoosh.internal.network.NetworkException;
 import com.pushwoosh.internal.network.NetworkModule;
 import com.pushwoosh.internal.network.RequestManager;
+import com.pushwoosh.repository.util.AcknowledgedTag;
+import com.pushwoosh.tags.Tags;
 
 import org.json.JSONObject;
 import org.junit.Before;
@@ -53,12 +66,17 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import org.robolectric.annotation.LooperMode;
 import org.robolectric.shadows.ShadowLooper;
 
 import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(RobolectricTestRunner.class)
 @LooperMode(LooperMode.Mode.LEGACY)
@@ -74,12 +92,16 @@ public class SendTagsProcessorTest {
     @Mock
     private Callback<Void, PushwooshException> listener2;
 
+    @Mock
+    private PendingTagsStorage storage;
+
     private SendTagsProcessor processor;
 
     @Before
     public void setUp() {
         MockitoAnnotations.openMocks(this);
-        processor = new SendTagsProcessor();
+        EventBus.clearSubscribersMap();
+        processor = new SendTagsProcessor(storage, Runnable::run);
     }
 
     private static void stubRequestManagerSuccess(RequestManager requestManager) {
@@ -204,4 +226,211 @@ public class SendTagsProcessorTest {
             assertSame(boom, r2.getValue().getException());
         }
     }
+
+    private static JSONObject sentTags(RequestManager requestManager, int requests) throws Exception {
+        ArgumentCaptor<SetTagsRequest> reqCaptor = ArgumentCaptor.forClass(SetTagsRequest.class);
+        verify(requestManager, times(requests)).sendRequest(reqCaptor.capture(), any());
+        Field tagsField = SetTagsRequest.class.getDeclaredField("tags");
+        tagsField.setAccessible(true);
+        return (JSONObject) tagsField.get(reqCaptor.getValue());
+    }
+
+    @Test
+    public void sendTags_sameTagInWindow_lastWriteWins() throws Exception {
+        try (MockedStatic<NetworkModule> netMock = Mockito.mockStatic(NetworkModule.class)) {
+            netMock.when(NetworkModule::getRequestManager).thenReturn(requestManager);
+            stubRequestManagerSuccess(requestManager);
+
+            for (int i = 0; i < 50; i++) {
+                processor.sendTags(new JSONObject().put("level", i), null);
+            }
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+            assertEquals(49, sentTags(requestManager, 1).getInt("level"));
+            assertEquals(0, processor.getPendingCount());
+        }
+    }
+
+    @Test
+    public void sendTags_valueUnchangedSinceAcknowledged_skipsRequest() throws Exception {
+        try (MockedStatic<NetworkModule> netMock = Mockito.mockStatic(NetworkModule.class)) {
+            netMock.when(NetworkModule::getRequestManager).thenReturn(requestManager);
+            stubRequestManagerSuccess(requestManager);
+
+            processor.sendTags(new JSONObject().put("Language", "en").put("Premium", false), null);
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            processor.sendTags(new JSONObject().put("Language", "en").put("Premium", false), listener);
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+            verify(requestManager, times(1)).sendRequest(any(SetTagsRequest.class), any());
+            ArgumentCaptor<Result<Void, PushwooshException>> result = ArgumentCaptor.forClass(Result.class);
+            verify(listener).process(result.capture());
+            assertTrue(result.getValue().isSuccess());
+            assertEquals(1, processor.getRequestsSkipped());
+
+            processor.sendTags(new JSONObject().put("Language", "de").put("Premium", false), null);
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+            JSONObject tags = sentTags(requestManager, 2);
+            assertEquals("de", tags.getString("Language"));
+            assertFalse(tags.has("Premium"));
+        }
+    }
+
+    @Test
+    public void sendTags_userIdChanged_resendsAcknowledgedValue() throws Exception {
+        assertAcknowledgedValueResentAfter(new UserIdUpdatedEvent());
+    }
+
+    @Test
+    public void sendTags_hwidChanged_resendsAcknowledgedValue() throws Exception {
+        assertAcknowledgedValueResentAfter(new InitHwidEvent("new-hwid"));
+    }
+
+    private void assertAcknowledgedValueResentAfter(Event event) throws Exception {
+        try (MockedStatic<NetworkModule> netMock = Mockito.mockStatic(NetworkModule.class)) {
+            netMock.when(NetworkModule::getRequestManager).thenReturn(requestManager);
+            stubRequestManagerSuccess(requestManager);
+
+            processor.sendTags(new JSONObject().put("Language", "en"), null);
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            EventBus.sendEvent(event);
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            processor.sendTags(new JSONObject().put("Language", "en"), null);
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+            assertEquals("en", sentTags(requestManager, 2).getString("Language"));
+            assertEquals(0, processor.getRequestsSkipped());
+            verify(storage).clearAcknowledged();
+        }
+    }
+
+    @Test
+    public void sendTags_operations_areNeverSkipped() throws Exception {
+        try (MockedStatic<NetworkModule> netMock = Mockito.mockStatic(NetworkModule.class)) {
+            netMock.when(NetworkModule::getRequestManager).thenReturn(requestManager);
+            stubRequestManagerSuccess(requestManager);
+
+            for (int i = 0; i < 2; i++) {
+                processor.sendTags(Tags.incrementInt("score", 1).toJson(), null);
+                ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            }
+
+            verify(requestManager, times(2)).sendRequest(any(SetTagsRequest.class), any());
+        }
+    }
+
+    @Test
+    public void sendTags_requestFails_keepsTagsAndRetriesWithBackoff() throws Exception {
+        try (MockedStatic<NetworkModule> netMock = Mockito.mockStatic(NetworkModule.class)) {
+            netMock.when(NetworkModule::getRequestManager).thenReturn(requestManager);
+            stubRequestManagerFailure(requestManager, new NetworkException("offline"));
+
+            processor.sendTags(new JSONObject().put("a", 1), listener);
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+            assertEquals(1, processor.getPendingCount());
+            verify(storage, never()).removePending(any());
+
+            stubRequestManagerSuccess(requestManager);
+            Robolectric.getForegroundThreadScheduler().advanceBy(SendTagsProcessor.RETRY_MIN_DELAY_MS, TimeUnit.MILLISECONDS);
+
+            assertEquals(1, sentTags(requestManager, 2).getInt("a"));
+            assertEquals(0, processor.getPendingCount());
+            verify(storage).removePending(Collections.singletonMap("a", "[1]"));
+            verify(storage).acknowledge(eq(Collections.singletonMap("a", "[1]")), anyLong());
+        }
+    }
+
+    @Test
+    public void sendTags_rejected_dropsTagsAndFailsListeners() throws Exception {
+        ConnectionException rejected = new ConnectionException("bad request", 400, 210);
+        try (MockedStatic<NetworkModule> netMock = Mockito.mockStatic(NetworkModule.class)) {
+            netMock.when(NetworkModule::getRequestManager).thenReturn(requestManager);
+            stubRequestManagerFailure(requestManager, rejected);
+
+            processor.sendTags(new JSONObject().put("a", 1), listener);
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            Robolectric.getForegroundThreadScheduler().advanceBy(SendTagsProcessor.RETRY_MAX_DELAY_MS, TimeUnit.MILLISECONDS);
+
+            verify(requestManager, times(1)).sendRequest(any(SetTagsRequest.class), any());
+            ArgumentCaptor<Result<Void, PushwooshException>> result = ArgumentCaptor.forClass(Result.class);
+            verify(listener).process(result.capture());
+            assertSame(rejected, result.getValue().getException());
+            assertEquals(0, processor.getPendingCount());
+            verify(storage).removePending(Collections.singletonMap("a", "[1]"));
+        }
+    }
+
+    @Test
+    public void sendTags_communicationStopped_keepsTagsUntilItStarts() throws Exception {
+        try (MockedStatic<NetworkModule> netMock = Mockito.mockStatic(NetworkModule.class)) {
+            netMock.when(NetworkModule::getRequestManager).thenReturn(requestManager);
+            stubRequestManagerFailure(requestManager, new CommunicationStoppedException("communication stopped"));
+
+            processor.sendTags(new JSONObject().put("a", 1), listener);
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            Robolectric.getForegroundThreadScheduler().advanceBy(SendTagsProcessor.RETRY_MAX_DELAY_MS, TimeUnit.MILLISECONDS);
+
+            verify(requestManager, times(1)).sendRequest(any(SetTagsRequest.class), any());
+            verify(listener).process(any());
+            assertEquals(1, processor.getPendingCount());
+            verify(storage, never()).removePending(any());
+
+            stubRequestManagerSuccess(requestManager);
+            EventBus.sendEvent(new ServerCommunicationStartedEvent());
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+            assertEquals(1, sentTags(requestManager, 2).getInt("a"));
+            assertEquals(0, processor.getPendingCount());
+        }
+    }
+
+    @Test
+    public void clear_dropsPendingTagsAndFailsListeners() throws Exception {
+        processor.sendTags(new JSONObject().put("a", 1), listener);
+
+        processor.clear();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        ArgumentCaptor<Result<Void, PushwooshException>> result = ArgumentCaptor.forClass(Result.class);
+        verify(listener).process(result.capture());
+        assertFalse(result.getValue().isSuccess());
+        assertEquals(0, processor.getPendingCount());
+        verify(storage).clear();
+        verifyNoInteractions(requestManager);
+    }
+
+    @Test
+    public void sendTags_persistsEveryWrite() throws Exception {
+        processor.sendTags(new JSONObject().put("a", "x").put("b", 2), null);
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("a", "[\"x\"]");
+        expected.put("b", "[2]");
+        verify(storage).putPending(expected);
+    }
+
+    @Test
+    public void flushPending_sendsTagsLeftByPreviousProcess() throws Exception {
+        Map<String, String> stored = new LinkedHashMap<>();
+        stored.put("Language", "[\"en\"]");
+        stored.put("Premium", "[true]");
+        when(storage.getPending()).thenReturn(stored);
+        when(storage.getAcknowledged(anyLong())).thenReturn(Collections.singletonMap("Premium",
+                new AcknowledgedTag("[true]", System.currentTimeMillis())));
+
+        try (MockedStatic<NetworkModule> netMock = Mockito.mockStatic(NetworkModule.class)) {
+            netMock.when(NetworkModule::getRequestManager).thenReturn(requestManager);
+            stubRequestManagerSuccess(requestManager);
+
+            processor.flushPending();
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+            JSONObject tags = sentTags(requestManager, 1);
+            assertEquals("en", tags.getString("Language"));
+            assertFalse(tags.has("Premium"));
+            assertEquals(0, processor.getPendingCount());
+        }
+    }
 }
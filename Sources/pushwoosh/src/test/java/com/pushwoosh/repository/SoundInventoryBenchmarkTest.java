@@ -0,0 +1,151 @@
+package com.pushwoosh.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.TypedValue;
+
+import com.pushwoosh.internal.platform.AndroidPlatformModule;
+import com.pushwoosh.internal.platform.app.AppInfoProvider;
+import com.pushwoosh.internal.platform.manager.ManagerProvider;
+import com.pushwoosh.internal.platform.resource.ResourceProvider;
+import com.pushwoosh.internal.platform.utils.GeneralUtils;
+import com.pushwoosh.internal.utils.AppVersionProvider;
+import com.pushwoosh.repository.soundfixture.R;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Time spent building {@code sounds} for {@code /registerDevice} in an application with 500 raw
+ * resources ({@link R.raw}): scanning the resources on every registration as before, and the
+ * {@link SoundInventory} restored in a new process and then reused, including the registrations
+ * where the server has already acknowledged the inventory and the list is left out.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SoundInventoryBenchmarkTest {
+    private static final Logger LOG = Logger.getLogger(SoundInventoryBenchmarkTest.class.getName());
+    private static final int REGISTRATIONS = 50;
+    private static final int RAW_RESOURCES = R.raw.class.getFields().length;
+
+    private static MockedStatic<AndroidPlatformModule> mockPlatform() {
+        AppInfoProvider appInfoProvider = mock(AppInfoProvider.class);
+        when(appInfoProvider.getPackageName()).thenReturn("com.pushwoosh.repository.soundfixture");
+
+        ResourceProvider resourceProvider = mock(ResourceProvider.class);
+        when(resourceProvider.getIdentifier(anyString(), eq("raw")))
+                .thenAnswer(invocation -> R.raw.class.getField(invocation.getArgument(0)).getInt(null));
+        doAnswer(invocation -> {
+            int id = invocation.getArgument(0);
+            TypedValue value = invocation.getArgument(1);
+            value.string = "res/raw/res_" + (id & 0xffff) + (id % 2 == 0 ? ".mp3" : ".json");
+            return null;
+        }).when(resourceProvider).getValue(anyInt(), any(TypedValue.class), anyBoolean());
+
+        MockedStatic<AndroidPlatformModule> platform = Mockito.mockStatic(AndroidPlatformModule.class);
+        platform.when(AndroidPlatformModule::getAppInfoProvider).thenReturn(appInfoProvider);
+        platform.when(AndroidPlatformModule::getResourceProvider).thenReturn(resourceProvider);
+        platform.when(AndroidPlatformModule::getManagerProvider).thenReturn(mock(ManagerProvider.class));
+        return platform;
+    }
+
+    private static void report(String label, long elapsedNanos, int registrations) {
+        LOG.info(String.format("%-36s %8.3f ms per registration", label,
+                elapsedNanos / 1e6 / registrations));
+    }
+
+    @BeforeClass
+    public static void assumeBenchmarksEnabled() {
+        assumeTrue(Boolean.getBoolean("pw.benchmarks"));
+    }
+
+    @Test
+    public void soundsOfFiveHundredRawResources() throws Exception {
+        SharedPreferences prefs = RuntimeEnvironment.getApplication()
+                .getSharedPreferences(SoundInventory.PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        AppVersionProvider appVersionProvider = mock(AppVersionProvider.class);
+        when(appVersionProvider.getCurrentVersion()).thenReturn(42);
+
+        try (MockedStatic<AndroidPlatformModule> ignored = mockPlatform()) {
+            ResourceProvider resources = AndroidPlatformModule.getResourceProvider();
+            // warm up reflection and mocks
+            assertEquals(RAW_RESOURCES / 2, GeneralUtils.getRawResourses().size());
+            clearInvocations(resources);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < REGISTRATIONS; i++) {
+                new JSONObject().put("sounds", new JSONArray(GeneralUtils.getRawResourses()));
+            }
+            long scanning = System.nanoTime() - start;
+            verify(resources, times(RAW_RESOURCES * REGISTRATIONS))
+                    .getValue(anyInt(), any(TypedValue.class), anyBoolean());
+
+            // the first launch of this app version scans and persists the inventory
+            start = System.nanoTime();
+            new SoundInventory(prefs, appVersionProvider).get();
+            long firstLaunch = System.nanoTime() - start;
+            clearInvocations(resources);
+
+            // later processes restore it
+            SoundInventory inventory = new SoundInventory(prefs, appVersionProvider, () -> {
+                throw new AssertionError("inventory must not be scanned again for the same app version");
+            });
+            start = System.nanoTime();
+            for (int i = 0; i < REGISTRATIONS; i++) {
+                new JSONObject().put("sounds", new JSONArray(inventory.get().getSounds()));
+            }
+            long cached = System.nanoTime() - start;
+
+            inventory.acknowledge("APP-CODE|hwid", inventory.get());
+            start = System.nanoTime();
+            for (int i = 0; i < REGISTRATIONS; i++) {
+                JSONObject params = new JSONObject();
+                SoundInventory.Snapshot sounds = inventory.get();
+                if (!inventory.isAcknowledged("APP-CODE|hwid", sounds)) {
+                    params.put("sounds", new JSONArray(sounds.getSounds()));
+                }
+                assertFalse(params.has("sounds"));
+            }
+            long acknowledged = System.nanoTime() - start;
+
+            List<String> sounds = inventory.get().getSounds();
+            LOG.info(RAW_RESOURCES + " raw resources, " + sounds.size() + " sounds");
+            report("scan on every registration", scanning, REGISTRATIONS);
+            report("first launch of app version", firstLaunch, 1);
+            report("cached inventory", cached, REGISTRATIONS);
+            report("cached inventory, acknowledged", acknowledged, REGISTRATIONS);
+
+            assertEquals(RAW_RESOURCES / 2, sounds.size());
+            // the restored inventory doesn't look up a single resource
+            verify(resources, never()).getValue(anyInt(), any(TypedValue.class), anyBoolean());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.pushwoosh.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.pushwoosh.internal.utils.AppVersionProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SoundInventoryTest {
+    private SharedPreferences prefs;
+    private AppVersionProvider appVersionProvider;
+    private List<String> resources;
+    private int scans;
+
+    @Before
+    public void setUp() {
+        prefs = RuntimeEnvironment.getApplication().getSharedPreferences(SoundInventory.PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        appVersionProvider = mock(AppVersionProvider.class);
+        when(appVersionProvider.getCurrentVersion()).thenReturn(7);
+        when(appVersionProvider.getLastUpdateTime()).thenReturn(1000L);
+        resources = new ArrayList<>(Arrays.asList("chime", "bell.mp3"));
+        scans = 0;
+    }
+
+    private SoundInventory inventory() {
+        return new SoundInventory(prefs, appVersionProvider, () -> {
+            scans++;
+            return new ArrayList<>(resources);
+        });
+    }
+
+    @Test
+    public void resourcesAreScannedOncePerProcess() {
+        SoundInventory inventory = inventory();
+
+        SoundInventory.Snapshot first = inventory.get();
+        SoundInventory.Snapshot second = inventory.get();
+
+        assertSame(first, second);
+        assertEquals(Arrays.asList("chime", "bell.mp3"), first.getSounds());
+        assertEquals(1, scans);
+    }
+
+    @Test
+    public void storedInventoryIsReusedForSameAppVersion() {
+        SoundInventory.Snapshot scanned = inventory().get();
+
+        SoundInventory.Snapshot restored = inventory().get();
+
+        assertEquals(1, scans);
+        assertEquals(scanned.getSounds(), restored.getSounds());
+        assertEquals(scanned.getHash(), restored.getHash());
+    }
+
+    @Test
+    public void appUpdateTriggersNewScan() {
+        SoundInventory.Snapshot old = inventory().get();
+        resources.add("alarm.ogg");
+        when(appVersionProvider.getCurrentVersion()).thenReturn(8);
+
+        SoundInventory.Snapshot updated = inventory().get();
+
+        assertEquals(2, scans);
+        assertEquals(Arrays.asList("chime", "bell.mp3", "alarm.ogg"), updated.getSounds());
+        assertNotEquals(old.getHash(), updated.getHash());
+    }
+
+    @Test
+    public void reinstallWithSameVersionCodeTriggersNewScan() {
+        inventory().get();
+        when(appVersionProvider.getLastUpdateTime()).thenReturn(2000L);
+
+        inventory().get();
+
+        assertEquals(2, scans);
+    }
+
+    @Test
+    public void corruptedStoredInventoryIsRescanned() {
+        inventory().get();
+        prefs.edit().putString("sounds", "not json").commit();
+
+        SoundInventory.Snapshot snapshot = inventory().get();
+
+        assertEquals(2, scans);
+        assertEquals(Arrays.asList("chime", "bell.mp3"), snapshot.getSounds());
+    }
+
+    @Test
+    public void acknowledgementIsBoundToRegistrationKeyAndInventory() {
+        SoundInventory inventory = inventory();
+        SoundInventory.Snapshot snapshot = inventory.get();
+        assertFalse(inventory.isAcknowledged("APP-CODE|hwid", snapshot));
+
+        inventory.acknowledge("APP-CODE|hwid", snapshot);
+
+        assertTrue(inventory.isAcknowledged("APP-CODE|hwid", snapshot));
+        assertFalse(inventory.isAcknowledged("OTHER-APP|hwid", snapshot));
+        assertFalse(inventory.isAcknowledged("APP-CODE|hwid",
+                new SoundInventory.Snapshot(Arrays.asList("chime", "bell.mp3", "alarm.ogg"))));
+
+        inventory.clearAcknowledged();
+
+        assertFalse(inventory.isAcknowledged("APP-CODE|hwid", snapshot));
+    }
+}
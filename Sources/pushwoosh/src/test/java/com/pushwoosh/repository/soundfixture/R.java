@@ -0,0 +1,60 @@
+package com.pushwoosh.repository.soundfixture;
+
+/**
+ * Stand-in for the {@code R} class of an application with 500 raw resources, every other one a sound.
+ */
+@SuppressWarnings("unused")
+public final class R {
+    public static final class raw {
+        public static final int res_000 = 0x7f0e0000, res_001 = 0x7f0e0001, res_002 = 0x7f0e0002, res_003 = 0x7f0e0003, res_004 = 0x7f0e0004, res_005 = 0x7f0e0005, res_006 = 0x7f0e0006, res_007 = 0x7f0e0007, res_008 = 0x7f0e0008, res_009 = 0x7f0e0009;
+        public static final int res_010 = 0x7f0e000a, res_011 = 0x7f0e000b, res_012 = 0x7f0e000c, res_013 = 0x7f0e000d, res_014 = 0x7f0e000e, res_015 = 0x7f0e000f, res_016 = 0x7f0e0010, res_017 = 0x7f0e0011, res_018 = 0x7f0e0012, res_019 = 0x7f0e0013;
+        public static final int res_020 = 0x7f0e0014, res_021 = 0x7f0e0015, res_022 = 0x7f0e0016, res_023 = 0x7f0e0017, res_024 = 0x7f0e0018, res_025 = 0x7f0e0019, res_026 = 0x7f0e001a, res_027 = 0x7f0e001b, res_028 = 0x7f0e001c, res_029 = 0x7f0e001d;
+        public static final int res_030 = 0x7f0e001e, res_031 = 0x7f0e001f, res_032 = 0x7f0e0020, res_033 = 0x7f0e0021, res_034 = 0x7f0e0022, res_035 = 0x7f0e0023, res_036 = 0x7f0e0024, res_037 = 0x7f0e0025, res_038 = 0x7f0e0026, res_039 = 0x7f0e0027;
+        public static final int res_040 = 0x7f0e0028, res_041 = 0x7f0e0029, res_042 = 0x7f0e002a, res_043 = 0x7f0e002b, res_044 = 0x7f0e002c, res_045 = 0x7f0e002d, res_046 = 0x7f0e002e, res_047 = 0x7f0e002f, res_048 = 0x7f0e0030, res_049 = 0x7f0e0031;
+        public static final int res_050 = 0x7f0e0032, res_051 = 0x7f0e0033, res_052 = 0x7f0e0034, res_053 = 0x7f0e0035, res_054 = 0x7f0e0036, res_055 = 0x7f0e0037, res_056 = 0x7f0e0038, res_057 = 0x7f0e0039, res_058 = 0x7f0e003a, res_059 = 0x7f0e003b;
+        public static final int res_060 = 0x7f0e003c, res_061 = 0x7f0e003d, res_062 = 0x7f0e003e, res_063 = 0x7f0e003f, res_064 = 0x7f0e0040, res_065 = 0x7f0e0041, res_066 = 0x7f0e0042, res_067 = 0x7f0e0043, res_068 = 0x7f0e0044, res_069 = 0x7f0e0045;
+        public static final int res_070 = 0x7f0e0046, res_071 = 0x7f0e0047, res_072 = 0x7f0e0048, res_073 = 0x7f0e0049, res_074 = 0x7f0e004a, res_075 = 0x7f0e004b, res_076 = 0x7f0e004c, res_077 = 0x7f0e004d, res_078 = 0x7f0e004e, res_079 = 0x7f0e004f;
+        public static final int res_080 = 0x7f0e0050, res_081 = 0x7f0e0051, res_082 = 0x7f0e0052, res_083 = 0x7f0e0053, res_084 = 0x7f0e0054, res_085 = 0x7f0e0055, res_086 = 0x7f0e0056, res_087 = 0x7f0e0057, res_088 = 0x7f0e0058, res_089 = 0x7f0e0059;
+        public static final int res_090 = 0x7f0e005a, res_091 = 0x7f0e005b, res_092 = 0x7f0e005c, res_093 = 0x7f0e005d, res_094 = 0x7f0e005e, res_095 = 0x7f0e005f, res_096 = 0x7f0e0060, res_097 = 0x7f0e0061, res_098 = 0x7f0e0062, res_099 = 0x7f0e0063;
+        public static final int res_100 = 0x7f0e0064, res_101 = 0x7f0e0065, res_102 = 0x7f0e0066, res_103 = 0x7f0e0067, res_104 = 0x7f0e0068, res_105 = 0x7f0e0069, res_106 = 0x7f0e006a, res_107 = 0x7f0e006b, res_108 = 0x7f0e006c, res_109 = 0x7f0e006d;
+        public static final int res_110 = 0x7f0e006e, res_111 = 0x7f0e006f, res_112 = 0x7f0e0070, res_113 = 0x7f0e0071, res_114 = 0x7f0e0072, res_115 = 0x7f0e0073, res_116 = 0x7f0e0074, res_117 = 0x7f0e0075, res_118 = 0x7f0e0076, res_119 = 0x7f0e0077;
+        public static final int res_120 = 0x7f0e0078, res_121 = 0x7f0e0079, res_122 = 0x7f0e007a, res_123 = 0x7f0e007b, res_124 = 0x7f0e007c, res_125 = 0x7f0e007d, res_126 = 0x7f0e007e, res_127 = 0x7f0e007f, res_128 = 0x7f0e0080, res_129 = 0x7f0e0081;
+        public static final int res_130 = 0x7f0e0082, res_131 = 0x7f0e0083, res_132 = 0x7f0e0084, res_133 = 0x7f0e0085, res_134 = 0x7f0e0086, res_135 = 0x7f0e0087, res_136 = 0x7f0e0088, res_137 = 0x7f0e0089, res_138 = 0x7f0e008a, res_139 = 0x7f0e008b;
+        public static final int res_140 = 0x7f0e008c, res_141 = 0x7f0e008d, res_142 = 0x7f0e008e, res_143 = 0x7f0e008f, res_144 = 0x7f0e0090, res_145 = 0x7f0e0091, res_146 = 0x7f0e0092, res_147 = 0x7f0e0093, res_148 = 0x7f0e0094, res_149 = 0x7f0e0095;
+        public static final int res_150 = 0x7f0e0096, res_151 = 0x7f0e0097, res_152 = 0x7f0e0098, res_153 = 0x7f0e0099, res_154 = 0x7f0e009a, res_155 = 0x7f0e009b, res_156 = 0x7f0e009c, res_157 = 0x7f0e009d, res_158 = 0x7f0e009e, res_159 = 0x7f0e009f;
+        public static final int res_160 = 0x7f0e00a0, res_161 = 0x7f0e00a1, res_162 = 0x7f0e00a2, res_163 = 0x7f0e00a3, res_164 = 0x7f0e00a4, res_165 = 0x7f0e00a5, res_166 = 0x7f0e00a6, res_167 = 0x7f0e00a7, res_168 = 0x7f0e00a8, res_169 = 0x7f0e00a9;
+        public static final int res_170 = 0x7f0e00aa, res_171 = 0x7f0e00ab, res_172 = 0x7f0e00ac, res_173 = 0x7f0e00ad, res_174 = 0x7f0e00ae, res_175 = 0x7f0e00af, res_176 = 0x7f0e00b0, res_177 = 0x7f0e00b1, res_178 = 0x7f0e00b2, res_179 = 0x7f0e00b3;
+        public static final int res_180 = 0x7f0e00b4, res_181 = 0x7f0e00b5, res_182 = 0x7f0e00b6, res_183 = 0x7f0e00b7, res_184 = 0x7f0e00b8, res_185 = 0x7f0e00b9, res_186 = 0x7f0e00ba, res_187 = 0x7f0e00bb, res_188 = 0x7f0e00bc, res_189 = 0x7f0e00bd;
+        public static final int res_190 = 0x7f0e00be, res_191 = 0x7f0e00bf, res_192 = 0x7f0e00c0, res_193 = 0x7f0e00c1, res_194 = 0x7f0e00c2, res_195 = 0x7f0e00c3, res_196 = 0x7f0e00c4, res_197 = 0x7f0e00c5, res_198 = 0x7f0e00c6, res_199 = 0x7f0e00c7;
+        public static final int res_200 = 0x7f0e00c8, res_201 = 0x7f0e00c9, res_202 = 0x7f0e00ca, res_203 = 0x7f0e00cb, res_204 = 0x7f0e00cc, res_205 = 0x7f0e00cd, res_206 = 0x7f0e00ce, res_207 = 0x7f0e00cf, res_208 = 0x7f0e00d0, res_209 = 0x7f0e00d1;
+        public static final int res_210 = 0x7f0e00d2, res_211 = 0x7f0e00d3, res_212 = 0x7f0e00d4, res_213 = 0x7f0e00d5, res_214 = 0x7f0e00d6, res_215 = 0x7f0e00d7, res_216 = 0x7f0e00d8, res_217 = 0x7f0e00d9, res_218 = 0x7f0e00da, res_219 = 0x7f0e00db;
+        public static final int res_220 = 0x7f0e00dc, res_221 = 0x7f0e00dd, res_222 = 0x7f0e00de, res_223 = 0x7f0e00df, res_224 = 0x7f0e00e0, res_225 = 0x7f0e00e1, res_226 = 0x7f0e00e2, res_227 = 0x7f0e00e3, res_228 = 0x7f0e00e4, res_229 = 0x7f0e00e5;
+        public static final int res_230 = 0x7f0e00e6, res_231 = 0x7f0e00e7, res_232 = 0x7f0e00e8, res_233 = 0x7f0e00e9, res_234 = 0x7f0e00ea, res_235 = 0x7f0e00eb, res_236 = 0x7f0e00ec, res_237 = 0x7f0e00ed, res_238 = 0x7f0e00ee, res_239 = 0x7f0e00ef;
+        public static final int res_240 = 0x7f0e00f0, res_241 = 0x7f0e00f1, res_242 = 0x7f0e00f2, res_243 = 0x7f0e00f3, res_244 = 0x7f0e00f4, res_245 = 0x7f0e00f5, res_246 = 0x7f0e00f6, res_247 = 0x7f0e00f7, res_248 = 0x7f0e00f8, res_249 = 0x7f0e00f9;
+        public static final int res_250 = 0x7f0e00fa, res_251 = 0x7f0e00fb, res_252 = 0x7f0e00fc, res_253 = 0x7f0e00fd, res_254 = 0x7f0e00fe, res_255 = 0x7f0e00ff, res_256 = 0x7f0e0100, res_257 = 0x7f0e0101, res_258 = 0x7f0e0102, res_259 = 0x7f0e0103;
+        public static final int res_260 = 0x7f0e0104, res_261 = 0x7f0e0105, res_262 = 0x7f0e0106, res_263 = 0x7f0e0107, res_264 = 0x7f0e0108, res_265 = 0x7f0e0109, res_266 = 0x7f0e010a, res_267 = 0x7f0e010b, res_268 = 0x7f0e010c, res_269 = 0x7f0e010d;
+        public static final int res_270 = 0x7f0e010e, res_271 = 0x7f0e010f, res_272 = 0x7f0e0110, res_273 = 0x7f0e0111, res_274 = 0x7f0e0112, res_275 = 0x7f0e0113, res_276 = 0x7f0e0114, res_277 = 0x7f0e0115, res_278 = 0x7f0e0116, res_279 = 0x7f0e0117;
+        public static final int res_280 = 0x7f0e0118, res_281 = 0x7f0e0119, res_282 = 0x7f0e011a, res_283 = 0x7f0e011b, res_284 = 0x7f0e011c, res_285 = 0x7f0e011d, res_286 = 0x7f0e011e, res_287 = 0x7f0e011f, res_288 = 0x7f0e0120, res_289 = 0x7f0e0121;
+        public static final int res_290 = 0x7f0e0122, res_291 = 0x7f0e0123, res_292 = 0x7f0e0124, res_293 = 0x7f0e0125, res_294 = 0x7f0e0126, res_295 = 0x7f0e0127, res_296 = 0x7f0e0128, res_297 = 0x7f0e0129, res_298 = 0x7f0e012a, res_299 = 0x7f0e012b;
+        public static final int res_300 = 0x7f0e012c, res_301 = 0x7f0e012d, res_302 = 0x7f0e012e, res_303 = 0x7f0e012f, res_304 = 0x7f0e0130, res_305 = 0x7f0e0131, res_306 = 0x7f0e0132, res_307 = 0x7f0e0133, res_308 = 0x7f0e0134, res_309 = 0x7f0e0135;
+        public static final int res_310 = 0x7f0e0136, res_311 = 0x7f0e0137, res_312 = 0x7f0e0138, res_313 = 0x7f0e0139, res_314 = 0x7f0e013a, res_315 = 0x7f0e013b, res_316 = 0x7f0e013c, res_317 = 0x7f0e013d, res_318 = 0x7f0e013e, res_319 = 0x7f0e013f;
+        public static final int res_320 = 0x7f0e0140, res_321 = 0x7f0e0141, res_322 = 0x7f0e0142, res_323 = 0x7f0e0143, res_324 = 0x7f0e0144, res_325 = 0x7f0e0145, res_326 = 0x7f0e0146, res_327 = 0x7f0e0147, res_328 = 0x7f0e0148, res_329 = 0x7f0e0149;
+        public static final int res_330 = 0x7f0e014a, res_331 = 0x7f0e014b, res_332 = 0x7f0e014c, res_333 = 0x7f0e014d, res_334 = 0x7f0e014e, res_335 = 0x7f0e014f, res_336 = 0x7f0e0150, res_337 = 0x7f0e0151, res_338 = 0x7f0e0152, res_339 = 0x7f0e0153;
+        public static final int res_340 = 0x7f0e0154, res_341 = 0x7f0e0155, res_342 = 0x7f0e0156, res_343 = 0x7f0e0157, res_344 = 0x7f0e0158, res_345 = 0x7f0e0159, res_346 = 0x7f0e015a, res_347 = 0x7f0e015b, res_348 = 0x7f0e015c, res_349 = 0x7f0e015d;
+        public static final int res_350 = 0x7f0e015e, res_351 = 0x7f0e015f, res_352 = 0x7f0e0160, res_353 = 0x7f0e0161, res_354 = 0x7f0e0162, res_355 = 0x7f0e0163, res_356 = 0x7f0e0164, res_357 = 0x7f0e0165, res_358 = 0x7f0e0166, res_359 = 0x7f0e0167;
+        public static final int res_360 = 0x7f0e0168, res_361 = 0x7f0e0169, res_362 = 0x7f0e016a, res_363 = 0x7f0e016b, res_364 = 0x7f0e016c, res_365 = 0x7f0e016d, res_366 = 0x7f0e016e, res_367 = 0x7f0e016f, res_368 = 0x7f0e0170, res_369 = 0x7f0e0171;
+        public static final int res_370 = 0x7f0e0172, res_371 = 0x7f0e0173, res_372 = 0x7f0e0174, res_373 = 0x7f0e0175, res_374 = 0x7f0e0176, res_375 = 0x7f0e0177, res_376 = 0x7f0e0178, res_377 = 0x7f0e0179, res_378 = 0x7f0e017a, res_379 = 0x7f0e017b;
+        public static final int res_380 = 0x7f0e017c, res_381 = 0x7f0e017d, res_382 = 0x7f0e017e, res_383 = 0x7f0e017f, res_384 = 0x7f0e0180, res_385 = 0x7f0e0181, res_386 = 0x7f0e0182, res_387 = 0x7f0e0183, res_388 = 0x7f0e0184, res_389 = 0x7f0e0185;
+        public static final int res_390 = 0x7f0e0186, res_391 = 0x7f0e0187, res_392 = 0x7f0e0188, res_393 = 0x7f0e0189, res_394 = 0x7f0e018a, res_395 = 0x7f0e018b, res_396 = 0x7f0e018c, res_397 = 0x7f0e018d, res_398 = 0x7f0e018e, res_399 = 0x7f0e018f;
+        public static final int res_400 = 0x7f0e0190, res_401 = 0x7f0e0191, res_402 = 0x7f0e0192, res_403 = 0x7f0e0193, res_404 = 0x7f0e0194, res_405 = 0x7f0e0195, res_406 = 0x7f0e0196, res_407 = 0x7f0e0197, res_408 = 0x7f0e0198, res_409 = 0x7f0e0199;
+        public static final int res_410 = 0x7f0e019a, res_411 = 0x7f0e019b, res_412 = 0x7f0e019c, res_413 = 0x7f0e019d, res_414 = 0x7f0e019e, res_415 = 0x7f0e019f, res_416 = 0x7f0e01a0, res_417 = 0x7f0e01a1, res_418 = 0x7f0e01a2, res_419 = 0x7f0e01a3;
+        public static final int res_420 = 0x7f0e01a4, res_421 = 0x7f0e01a5, res_422 = 0x7f0e01a6, res_423 = 0x7f0e01a7, res_424 = 0x7f0e01a8, res_425 = 0x7f0e01a9, res_426 = 0x7f0e01aa, res_427 = 0x7f0e01ab, res_428 = 0x7f0e01ac, res_429 = 0x7f0e01ad;
+        public static final int res_430 = 0x7f0e01ae, res_431 = 0x7f0e01af, res_432 = 0x7f0e01b0, res_433 = 0x7f0e01b1, res_434 = 0x7f0e01b2, res_435 = 0x7f0e01b3, res_436 = 0x7f0e01b4, res_437 = 0x7f0e01b5, res_438 = 0x7f0e01b6, res_439 = 0x7f0e01b7;
+        public static final int res_440 = 0x7f0e01b8, res_441 = 0x7f0e01b9, res_442 = 0x7f0e01ba, res_443 = 0x7f0e01bb, res_444 = 0x7f0e01bc, res_445 = 0x7f0e01bd, res_446 = 0x7f0e01be, res_447 = 0x7f0e01bf, res_448 = 0x7f0e01c0, res_449 = 0x7f0e01c1;
+        public static final int res_450 = 0x7f0e01c2, res_451 = 0x7f0e01c3, res_452 = 0x7f0e01c4, res_453 = 0x7f0e01c5, res_454 = 0x7f0e01c6, res_455 = 0x7f0e01c7, res_456 = 0x7f0e01c8, res_457 = 0x7f0e01c9, res_458 = 0x7f0e01ca, res_459 = 0x7f0e01cb;
+        public static final int res_460 = 0x7f0e01cc, res_461 = 0x7f0e01cd, res_462 = 0x7f0e01ce, res_463 = 0x7f0e01cf, res_464 = 0x7f0e01d0, res_465 = 0x7f0e01d1, res_466 = 0x7f0e01d2, res_467 = 0x7f0e01d3, res_468 = 0x7f0e01d4, res_469 = 0x7f0e01d5;
+        public static final int res_470 = 0x7f0e01d6, res_471 = 0x7f0e01d7, res_472 = 0x7f0e01d8, res_473 = 0x7f0e01d9, res_474 = 0x7f0e01da, res_475 = 0x7f0e01db, res_476 = 0x7f0e01dc, res_477 = 0x7f0e01dd, res_478 = 0x7f0e01de, res_479 = 0x7f0e01df;
+        public static final int res_480 = 0x7f0e01e0, res_481 = 0x7f0e01e1, res_482 = 0x7f0e01e2, res_483 = 0x7f0e01e3, res_484 = 0x7f0e01e4, res_485 = 0x7f0e01e5, res_486 = 0x7f0e01e6, res_487 = 0x7f0e01e7, res_488 = 0x7f0e01e8, res_489 = 0x7f0e01e9;
+        public static final int res_490 = 0x7f0e01ea, res_491 = 0x7f0e01eb, res_492 = 0x7f0e01ec, res_493 = 0x7f0e01ed, res_494 = 0x7f0e01ee, res_495 = 0x7f0e01ef, res_496 = 0x7f0e01f0, res_497 = 0x7f0e01f1, res_498 = 0x7f0e01f2, res_499 = 0x7f0e01f3;
+    }
+}
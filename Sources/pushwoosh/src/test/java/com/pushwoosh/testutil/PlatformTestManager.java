@@ -51,6 +51,7 @@ import com.pushwoosh.inapp.storage.InAppFolderProvider;
 import com.pushwoosh.inapp.storage.InAppStorage;
 import com.pushwoosh.internal.SdkStateProvider;
 import com.pushwoosh.internal.network.NetworkModule;
+import com.pushwoosh.internal.network.RetryEngine;
 import com.pushwoosh.internal.platform.AndroidPlatformModule;
 import com.pushwoosh.internal.platform.AndroidPlatformModuleTest;
 import com.pushwoosh.internal.prefs.TestPrefsProvider;
@@ -240,5 +241,6 @@ public class PlatformTestManager {
 	public void tearDown() {
 		PrefsHelper.tearDownPrefs();
 		SdkStateProvider.getInstance().resetForTesting();
+		RetryEngine.getInstance().resetForTesting();
 	}
 }
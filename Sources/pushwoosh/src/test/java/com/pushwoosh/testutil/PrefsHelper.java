@@ -26,11 +26,13 @@
 
 package com.pushwoosh.testutil;
 
+import com.pushwoosh.inapp.InAppModule;
 import com.pushwoosh.internal.event.EventBus;
 import com.pushwoosh.notification.SoundType;
 import com.pushwoosh.notification.VibrateType;
 import com.pushwoosh.repository.LocalNotificationStorage;
 import com.pushwoosh.repository.NotificationPrefs;
+import com.pushwoosh.repository.PushHistoryStorage;
 import com.pushwoosh.repository.RegistrationPrefs;
 import com.pushwoosh.repository.RepositoryModule;
 import com.pushwoosh.repository.RepositoryTestManager;
@@ -45,6 +47,8 @@ public class PrefsHelper {
 	public static void tearDownPrefs() {
 		tearDownNotificationPrefs();
 		tearDownRegistrationPrefs();
+		tearDownPushHistory();
+		InAppModule.setPendingEventsStorage(null);
 		tearDowmLocalNotificationStorage();
 		EventBus.clearSubscribersMap();
 	}
@@ -67,11 +71,20 @@ public class PrefsHelper {
 		notificationPrefs.notificationEnabled().set(false);
 		notificationPrefs.soundType().set(SoundType.DEFAULT_MODE);
 		notificationPrefs.vibrateType().set(VibrateType.DEFAULT_MODE);
-		notificationPrefs.pushHistory().clear();
 		notificationPrefs.tags().set(null);
 		RepositoryModule.setNotificationPreferences(null);
 	}
 
+	private static void tearDownPushHistory() {
+		PushHistoryStorage pushHistoryStorage = RepositoryModule.getPushHistoryStorage();
+		if (pushHistoryStorage == null) {
+			return;
+		}
+
+		pushHistoryStorage.clear();
+		RepositoryModule.setPushHistoryStorage(null);
+	}
+
 	private static void tearDownRegistrationPrefs() {
 		RegistrationPrefs registrationPrefs = RepositoryModule.getRegistrationPreferences();
 		if (registrationPrefs == null) {